@@ -42,6 +42,7 @@ public final class AOKeyStoreDialog implements KeyStoreDialogManager {
 	private static final String EXTS_DESC = " (*.p12, *.pfx)"; //$NON-NLS-1$
 
 	private final AggregatedKeyStoreManager ksm;
+	private final CertificateIndex certIndex;
 	private final Object parentComponent;
 	private final boolean checkPrivateKeys;
 	private final boolean checkValidity;
@@ -140,6 +141,7 @@ public final class AOKeyStoreDialog implements KeyStoreDialogManager {
     	}
 
 		this.ksm = new AggregatedKeyStoreManager(ksm);
+		this.certIndex = new CertificateIndex(this.ksm);
 		this.parentComponent = parentComponent;
 		this.checkPrivateKeys = checkPrivateKeys;
 		this.checkValidity = checkValidity;
@@ -177,6 +179,7 @@ public final class AOKeyStoreDialog implements KeyStoreDialogManager {
     	}
 
 		this.ksm = new AggregatedKeyStoreManager(ksm);
+		this.certIndex = new CertificateIndex(this.ksm);
 		this.parentComponent = parentComponent;
 		this.checkPrivateKeys = checkPrivateKeys;
 		this.checkValidity = checkValidity;
@@ -189,10 +192,20 @@ public final class AOKeyStoreDialog implements KeyStoreDialogManager {
 	@Override
 	public NameCertificateBean[] getNameCertificates() {
 
+		// Mientras se cargan almacenes en segundo plano se muestran los certificados de los ya
+		// cargados. Si se debe autoseleccionar un certificado unico, se necesitan todos
+		String[] aliases = null;
+		if (!this.mandatoryCertificate && this.ksm.isLoading()) {
+			aliases = this.ksm.getAvailableAliases();
+		}
+		if (aliases == null || aliases.length == 0) {
+			aliases = this.certIndex.getAliases();
+		}
+
     	final Map<String, String> aliassesByFriendlyName =
         		KeyStoreUtilities.getAliasesByFriendlyName(
-    				this.ksm.getAliases(),
-    				this.ksm,
+    				aliases,
+    				this.certIndex,
     				this.checkPrivateKeys,
     				this.showExpiredCertificates,
     				this.certFilters
@@ -202,7 +215,7 @@ public final class AOKeyStoreDialog implements KeyStoreDialogManager {
     	final NameCertificateBean[] namedCerts =
     			new NameCertificateBean[aliassesByFriendlyName.size()];
     	for (final String certAlias : aliassesByFriendlyName.keySet().toArray(new String[aliassesByFriendlyName.size()])) {
-    		final X509Certificate[] certChain = this.ksm.getCertificateChain(certAlias);
+    		final X509Certificate[] certChain = this.certIndex.getCertificateChain(certAlias);
     		if (certChain != null) {
 	    		namedCerts[i++] = new NameCertificateBean(
 	    				certAlias,
@@ -217,10 +230,16 @@ public final class AOKeyStoreDialog implements KeyStoreDialogManager {
 		return namedCerts;
 	}
 
+	@Override
+	public boolean isLoading() {
+		return this.ksm.isLoading();
+	}
+
 	@Override
 	public void setKeyStoreManager(final KeyStoreManager ksm) {
 		this.ksm.removeAll();
 		this.ksm.addKeyStoreManager((AOKeyStoreManager) ksm);
+		this.certIndex.clear();
 	}
 
 	@Override
@@ -756,7 +775,7 @@ public final class AOKeyStoreDialog implements KeyStoreDialogManager {
 
 	@Override
 	public void refresh() throws IOException {
-		this.ksm.refresh();
+		this.certIndex.refresh();
 	}
 
 	@Override
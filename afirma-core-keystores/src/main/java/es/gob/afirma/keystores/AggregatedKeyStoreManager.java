@@ -18,18 +18,76 @@ import java.security.UnrecoverableEntryException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import es.gob.afirma.core.misc.AOUtil;
 
 /** Gestor de claves consistente a su vez en un agregado de varios gestores, que se tratan y manejan como
  * si fuese un gestor normal de un &uacute;nico almac&eacute;n.
+ * <p>Los almacenes que tardan en cargarse (NSS, tarjetas PKCS#11...) pueden cargarse en segundo plano
+ * con {@link #addKeyStoreManager(String, Callable)}. Cada carga tiene un tiempo m&aacute;ximo, pasado el
+ * cual se descarta el almac&eacute;n, de forma que un dispositivo lento o ausente no bloquea al resto.
+ * {@link #getAvailableAliases()} devuelve sin esperas los alias de los almacenes ya cargados, mientras que
+ * {@link #getAliases()} espera a que terminen las cargas pendientes o venza su tiempo m&aacute;ximo.</p>
+ * <p>La localizaci&oacute;n del almac&eacute;n al que pertenece cada alias se hace mediante un
+ * &iacute;ndice que se reconstruye cuando cambian los almacenes agregados.</p>
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s */
 public class AggregatedKeyStoreManager extends AOKeyStoreManager {
 
+	/** Propiedad de sistema con el tiempo m&aacute;ximo en milisegundos de carga de un almac&eacute;n
+	 * en segundo plano. */
+	public static final String LOAD_TIMEOUT_PROPERTY = "es.gob.afirma.keystores.LoadTimeout"; //$NON-NLS-1$
+
+	/** Tiempo m&aacute;ximo por defecto en milisegundos de carga de un almac&eacute;n en segundo plano. */
+	private static final long DEFAULT_LOAD_TIMEOUT = 60000;
+
+	private static final ExecutorService LOADER = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread t = new Thread(r, "AggregatedKeyStoreLoader"); //$NON-NLS-1$
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	/** Almacenes agregados, en orden de precedencia. */
 	private final List<AOKeyStoreManager> ksms = new ArrayList<>();
 
+	/** Orden de agregaci&oacute;n de cada almac&eacute;n, para respetarlo aunque las cargas en
+	 * segundo plano terminen desordenadas. */
+	private final List<Long> ksmsOrder = new ArrayList<>();
+
+	/** Cargas de almacenes en segundo plano a&uacute;n no incorporadas. */
+	private final List<PendingKeyStoreManager> pendingKsms = new ArrayList<>();
+
+	/** Huellas de los certificados que s&oacute;lo se toman de un almac&eacute;n preferente. Se
+	 * aplican tambi&eacute;n a los almacenes que terminan de cargarse despu&eacute;s. */
+	private final Set<String> preferredThumbprints = new LinkedHashSet<>();
+
+	/** &Iacute;ndice de alias a almac&eacute;n o {@code null} si hay que reconstruirlo. */
+	private Map<String, AOKeyStoreManager> aliasIndex = null;
+
+	/** Alias en orden o {@code null} si hay que reconstruirlos. */
+	private String[] indexedAliases = null;
+
+	private long sequence = 0;
+
+	/** Contador de cambios en el contenido del agregado, incluidas las cargas pendientes. */
+	private long contentVersion = 0;
+
 	AggregatedKeyStoreManager(final AOKeyStoreManager mainKsm) {
 		if (mainKsm == null) {
 			throw new IllegalArgumentException("El gestor principal de almacenes no puede ser nulo"); //$NON-NLS-1$
@@ -48,8 +106,11 @@ public class AggregatedKeyStoreManager extends AOKeyStoreManager {
     @Override
 	public AOKeyStore getType() {
     	AOKeyStore type = super.getType();
-    	if (type == null && this.ksms != null && this.ksms.size() > 0) {
-    		type = this.ksms.get(0).getType();
+    	if (type == null) {
+    		final List<AOKeyStoreManager> current = getLoadedKeyStoreManagers();
+    		if (current.size() > 0) {
+    			type = current.get(0).getType();
+    		}
     	}
     	return type;
     }
@@ -59,10 +120,9 @@ public class AggregatedKeyStoreManager extends AOKeyStoreManager {
      * @return Tipo de almac&eacute;n de claves para el alias indicado. */
     @Override
 	protected AOKeyStore getType(final String alias) {
-    	for (final AOKeyStoreManager ksm : this.ksms) {
-    		if (ksm.getCertificate(alias) != null) {
-    			return ksm.getType(alias);
-    		}
+    	final AOKeyStoreManager ksm = getKeyStoreManager(alias);
+    	if (ksm != null) {
+    		return ksm.getType(alias);
     	}
     	LOGGER.warning(
 			"Se ha pedido el tipo de almacen de un alias no contenido en este gestor, se devolvera el tipo por defecto" //$NON-NLS-1$
@@ -74,76 +134,279 @@ public class AggregatedKeyStoreManager extends AOKeyStoreManager {
 	 * a partir de un almac&acute;n principal.
 	 * @param ksm Gestor de claves principal */
 	public final void addKeyStoreManager(final AOKeyStoreManager ksm) {
-		if (ksm != null) {
-			// Si es preferente hay que eliminar antes de anadir los posibles duplicados que hubiese
-			if (ksm.isPreferred()) {
-				final String[] newAliases = ksm.getAliases();
-				MessageDigest md = null;
-				try {
-					md = MessageDigest.getInstance("SHA1"); //$NON-NLS-1$
-				}
-				catch (final NoSuchAlgorithmException e) {
-					LOGGER.warning(
-						"No se ha podido instanciar el generador de huellas digitales SHA1, pueden aparecer duplicados en la lista de certificados: " + e //$NON-NLS-1$
-					);
-				}
-				if (md != null) {
-					for (final String alias : newAliases) {
-						final String currentThumbprint;
-						try {
-							currentThumbprint = AOUtil.hexify(
-								md.digest(ksm.getCertificate(alias).getEncoded()),
-								false
-							);
-						}
-						catch (final CertificateEncodingException e) {
-							LOGGER.severe(
-								"No se ha podido obtener la huella del certificado con numero de serie '" + ksm.getCertificate(alias).getSerialNumber() + "', pueden aparecer duplicados en la lista de certificados: " + e //$NON-NLS-1$ //$NON-NLS-2$
-							);
-							continue;
-						}
-						LOGGER.info(
-							"El certificado de huella '" + currentThumbprint + "' se tomara unicamente del almacen preferente" //$NON-NLS-1$ //$NON-NLS-2$
-						);
-						for (final AOKeyStoreManager currentKsm : this.ksms) {
-							currentKsm.deactivateEntry(currentThumbprint);
-						}
-					}
-				}
+		final long order;
+		synchronized (this) {
+			order = this.sequence++;
+		}
+		addKeyStoreManager(ksm, order);
+	}
+
+	/** Agrega un almac&eacute;n que se carga en segundo plano. El almac&eacute;n ocupa en el agregado
+	 * la posici&oacute;n correspondiente al momento de esta llamada, aunque termine de cargarse
+	 * despu&eacute;s que otros agregados m&aacute;s tarde. Si la carga falla o no termina en el tiempo
+	 * m&aacute;ximo establecido (propiedad {@link #LOAD_TIMEOUT_PROPERTY}), el almac&eacute;n se descarta.
+	 * @param description Descripci&oacute;n del almac&eacute;n para los registros.
+	 * @param loader Tarea que crea e inicializa el gestor del almac&eacute;n. */
+	protected final void addKeyStoreManager(final String description, final Callable<AOKeyStoreManager> loader) {
+		addKeyStoreManager(description, loader, reserveKeyStorePosition());
+	}
+
+	/** Reserva una posici&oacute;n en el agregado para un almac&eacute;n que se agregar&aacute;
+	 * m&aacute;s adelante con {@link #addKeyStoreManager(String, Callable, long)}. Permite retrasar
+	 * el inicio de una carga sin que el almac&eacute;n pierda su precedencia.
+	 * @return Posici&oacute;n reservada. */
+	protected final synchronized long reserveKeyStorePosition() {
+		return this.sequence++;
+	}
+
+	/** Agrega un almac&eacute;n que se carga en segundo plano en una posici&oacute;n reservada
+	 * previamente con {@link #reserveKeyStorePosition()}.
+	 * @param description Descripci&oacute;n del almac&eacute;n para los registros.
+	 * @param loader Tarea que crea e inicializa el gestor del almac&eacute;n.
+	 * @param position Posici&oacute;n reservada para el almac&eacute;n. */
+	protected final void addKeyStoreManager(final String description,
+			                                final Callable<AOKeyStoreManager> loader,
+			                                final long position) {
+		final PendingKeyStoreManager pending;
+		synchronized (this) {
+			pending = new PendingKeyStoreManager(
+				description,
+				position,
+				System.currentTimeMillis() + getLoadTimeout(),
+				LOADER.submit(loader)
+			);
+			this.pendingKsms.add(pending);
+			this.contentVersion++;
+		}
+		LOGGER.info("Se carga en segundo plano el almacen: " + description); //$NON-NLS-1$
+	}
+
+	private void addKeyStoreManager(final AOKeyStoreManager ksm, final long order) {
+		if (ksm == null) {
+			return;
+		}
+		// Si es preferente hay que eliminar antes de anadir los posibles duplicados que hubiese
+		final List<String> newThumbprints = ksm.isPreferred() ? getThumbprints(ksm) : Collections.<String>emptyList();
+		final List<AOKeyStoreManager> current;
+		synchronized (this) {
+			this.preferredThumbprints.addAll(newThumbprints);
+			current = new ArrayList<>(this.ksms);
+		}
+		for (final String thumbprint : newThumbprints) {
+			LOGGER.info(
+				"El certificado de huella '" + thumbprint + "' se tomara unicamente del almacen preferente" //$NON-NLS-1$ //$NON-NLS-2$
+			);
+			for (final AOKeyStoreManager currentKsm : current) {
+				currentKsm.deactivateEntry(thumbprint);
+			}
+		}
+		// Los almacenes no preferentes que se agregan despues no deben mostrar los certificados
+		// que ya se toman de un preferente
+		if (!ksm.isPreferred()) {
+			final List<String> preferred;
+			synchronized (this) {
+				preferred = new ArrayList<>(this.preferredThumbprints);
 			}
-			this.ksms.add(ksm);
+			for (final String thumbprint : preferred) {
+				ksm.deactivateEntry(thumbprint);
+			}
+		}
+		synchronized (this) {
+			int pos = this.ksmsOrder.size();
+			while (pos > 0 && this.ksmsOrder.get(pos - 1).longValue() > order) {
+				pos--;
+			}
+			this.ksms.add(pos, ksm);
+			this.ksmsOrder.add(pos, Long.valueOf(order));
+			invalidateIndex();
 		}
 	}
 
-	@Override
-	public String[] getAliases() {
-		final List<String> aliases = new ArrayList<>();
-		for (final AOKeyStoreManager ksm : this.ksms) {
+	private static List<String> getThumbprints(final AOKeyStoreManager ksm) {
+		final MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA1"); //$NON-NLS-1$
+		}
+		catch (final NoSuchAlgorithmException e) {
+			LOGGER.warning(
+				"No se ha podido instanciar el generador de huellas digitales SHA1, pueden aparecer duplicados en la lista de certificados: " + e //$NON-NLS-1$
+			);
+			return Collections.emptyList();
+		}
+		final List<String> thumbprints = new ArrayList<>();
+		for (final String alias : ksm.getAliases()) {
+			try {
+				thumbprints.add(AOUtil.hexify(
+					md.digest(ksm.getCertificate(alias).getEncoded()),
+					false
+				));
+			}
+			catch (final CertificateEncodingException e) {
+				LOGGER.severe(
+					"No se ha podido obtener la huella del certificado con numero de serie '" + ksm.getCertificate(alias).getSerialNumber() + "', pueden aparecer duplicados en la lista de certificados: " + e //$NON-NLS-1$ //$NON-NLS-2$
+				);
+			}
+		}
+		return thumbprints;
+	}
+
+	private static long getLoadTimeout() {
+		try {
+			return Long.parseLong(System.getProperty(LOAD_TIMEOUT_PROPERTY, Long.toString(DEFAULT_LOAD_TIMEOUT)));
+		}
+		catch (final NumberFormatException e) {
+			LOGGER.warning("Tiempo maximo de carga de almacenes no valido, se usara el por defecto: " + e); //$NON-NLS-1$
+			return DEFAULT_LOAD_TIMEOUT;
+		}
+	}
+
+	/** Indica si quedan almacenes carg&aacute;ndose en segundo plano.
+	 * @return {@code true} si hay cargas pendientes, {@code false} en caso contrario. */
+	public boolean isLoading() {
+		mergeLoadedKeyStoreManagers(false);
+		synchronized (this) {
+			return !this.pendingKsms.isEmpty();
+		}
+	}
+
+	/** Incorpora los almacenes cuya carga en segundo plano ha terminado.
+	 * @param wait Si se debe esperar a las cargas pendientes hasta su tiempo m&aacute;ximo. */
+	private void mergeLoadedKeyStoreManagers(final boolean wait) {
+		final List<PendingKeyStoreManager> pendings;
+		synchronized (this) {
+			if (this.pendingKsms.isEmpty()) {
+				return;
+			}
+			pendings = new ArrayList<>(this.pendingKsms);
+		}
+		for (final PendingKeyStoreManager pending : pendings) {
+			if (!wait && !pending.future.isDone() && System.currentTimeMillis() < pending.deadline) {
+				continue;
+			}
+			AOKeyStoreManager ksm = null;
 			try {
-				aliases.addAll(Arrays.asList(ksm.getAliases()));
+				ksm = pending.future.get(Math.max(0, pending.deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			}
+			catch (final TimeoutException e) {
+				pending.future.cancel(true);
+				LOGGER.warning("Se ha superado el tiempo maximo de carga del almacen " + pending.description + ", se descartara"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			catch (final ExecutionException e) {
+				LOGGER.warning("No se ha podido cargar el almacen " + pending.description + ": " + e.getCause()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			catch (final InterruptedException e) {
+				LOGGER.warning("Se interrumpio la espera de la carga del almacen " + pending.description); //$NON-NLS-1$
+				Thread.currentThread().interrupt();
+				return;
 			}
 			catch (final Exception e) {
-				LOGGER.warning("No se pudieron obtener los alias del almacen " + ksm.getType() + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+				LOGGER.warning("No se ha podido cargar el almacen " + pending.description + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			boolean stillPending;
+			synchronized (this) {
+				stillPending = this.pendingKsms.remove(pending);
+			}
+			// Si se elimino la carga mientras esperabamos (removeAll), no se incorpora
+			if (stillPending && ksm != null) {
+				addKeyStoreManager(ksm, pending.order);
+				LOGGER.info("Se ha cargado el almacen " + pending.description); //$NON-NLS-1$
 			}
 		}
-		return aliases.toArray(new String[0]);
 	}
 
-	@Override
-	public X509Certificate getCertificate(final String alias) {
-		for (final AOKeyStoreManager ksm : this.ksms) {
-			List<String> listAlias;
+	private synchronized void invalidateIndex() {
+		this.aliasIndex = null;
+		this.indexedAliases = null;
+		this.contentVersion++;
+	}
+
+	/** Obtiene un valor que cambia cada vez que cambia el contenido del agregado: al incorporarse
+	 * un almac&eacute;n cargado en segundo plano, al agregar o eliminar almacenes o al refrescarlos.
+	 * Permite a quien conserve informaci&oacute;n del almac&eacute;n saber cu&aacute;ndo descartarla.
+	 * @return Versi&oacute;n del contenido del agregado. */
+	long getContentVersion() {
+		mergeLoadedKeyStoreManagers(false);
+		synchronized (this) {
+			return this.contentVersion;
+		}
+	}
+
+	/** Obtiene el &iacute;ndice de alias, reconstruy&eacute;ndolo si es necesario. Si un alias
+	 * est&aacute; en varios almacenes, se asocia al primero de ellos. */
+	private Map<String, AOKeyStoreManager> getAliasIndex() {
+		final List<AOKeyStoreManager> current;
+		synchronized (this) {
+			if (this.aliasIndex != null) {
+				return this.aliasIndex;
+			}
+			current = new ArrayList<>(this.ksms);
+		}
+		final Map<String, AOKeyStoreManager> index = new HashMap<>();
+		final List<String> aliases = new ArrayList<>();
+		for (final AOKeyStoreManager ksm : current) {
 			try {
-				listAlias = Arrays.asList(ksm.getAliases());
+				for (final String alias : ksm.getAliases()) {
+					aliases.add(alias);
+					if (!index.containsKey(alias)) {
+						index.put(alias, ksm);
+					}
+				}
 			}
 			catch (final Exception e) {
 				LOGGER.warning("No se pudieron obtener los alias del almacen " + ksm.getType() + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
-				continue;
 			}
-			if (listAlias.contains(alias)) {
-				return ksm.getCertificate(alias);
+		}
+		synchronized (this) {
+			// Solo se guarda si no han cambiado los almacenes mientras se construia
+			if (this.aliasIndex == null && current.equals(this.ksms)) {
+				this.aliasIndex = index;
+				this.indexedAliases = aliases.toArray(new String[0]);
+			}
+		}
+		return index;
+	}
+
+	/** Obtiene el almac&eacute;n que contiene un alias. Si no se encuentra y hay almacenes
+	 * carg&aacute;ndose, se espera a que terminen.
+	 * @param alias Alias buscado.
+	 * @return Almac&eacute;n que contiene el alias o {@code null} si ninguno lo contiene. */
+	private AOKeyStoreManager getKeyStoreManager(final String alias) {
+		mergeLoadedKeyStoreManagers(false);
+		AOKeyStoreManager ksm = getAliasIndex().get(alias);
+		if (ksm == null && isLoading()) {
+			mergeLoadedKeyStoreManagers(true);
+			ksm = getAliasIndex().get(alias);
+		}
+		return ksm;
+	}
+
+	/** Obtiene los alias de los almacenes ya cargados, sin esperar a los que se cargan en
+	 * segundo plano.
+	 * @return Alias disponibles en este momento. */
+	public String[] getAvailableAliases() {
+		mergeLoadedKeyStoreManagers(false);
+		getAliasIndex();
+		synchronized (this) {
+			if (this.indexedAliases != null) {
+				return this.indexedAliases.clone();
 			}
 		}
+		// Los almacenes cambiaron durante la indexacion
+		return getAvailableAliases();
+	}
+
+	@Override
+	public String[] getAliases() {
+		mergeLoadedKeyStoreManagers(true);
+		return getAvailableAliases();
+	}
+
+	@Override
+	public X509Certificate getCertificate(final String alias) {
+		final AOKeyStoreManager ksm = getKeyStoreManager(alias);
+		if (ksm != null) {
+			return ksm.getCertificate(alias);
+		}
 		LOGGER.warning(
 			"El almacen no contiene ningun certificado con el alias especificado, se devolvera null" //$NON-NLS-1$
 		);
@@ -154,18 +417,9 @@ public class AggregatedKeyStoreManager extends AOKeyStoreManager {
 	public KeyStore.PrivateKeyEntry getKeyEntry(final String alias) throws KeyStoreException,
                                                                            NoSuchAlgorithmException,
                                                                            UnrecoverableEntryException {
-		for (final AOKeyStoreManager ksm : this.ksms) {
-			List<String> listAlias;
-			try {
-				listAlias = Arrays.asList(ksm.getAliases());
-			}
-			catch (final Exception e) {
-				LOGGER.warning("No se pudieron obtener los alias del almacen " + ksm.getType() + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
-				continue;
-			}
-			if (listAlias.contains(alias)) {
-				return ksm.getKeyEntry(alias);
-			}
+		final AOKeyStoreManager ksm = getKeyStoreManager(alias);
+		if (ksm != null) {
+			return ksm.getKeyEntry(alias);
 		}
 		LOGGER.warning(
 			"El almacen no contiene ninguna clave el alias especificado, se devolvera null" //$NON-NLS-1$
@@ -175,18 +429,9 @@ public class AggregatedKeyStoreManager extends AOKeyStoreManager {
 
 	@Override
 	public X509Certificate[] getCertificateChain(final String alias) {
-		for (final AOKeyStoreManager ksm : this.ksms) {
-			List<String> listAlias;
-			try {
-				listAlias = Arrays.asList(ksm.getAliases());
-			}
-			catch (final Exception e) {
-				LOGGER.warning("No se pudieron obtener los alias del almacen " + ksm.getType() + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
-				continue;
-			}
-			if (listAlias.contains(alias)) {
-				return ksm.getCertificateChain(alias);
-			}
+		final AOKeyStoreManager ksm = getKeyStoreManager(alias);
+		if (ksm != null) {
+			return ksm.getCertificateChain(alias);
 		}
 		LOGGER.warning(
 			"El almacen no contiene ninguna cadena de certificados con el alias especificado, se devolvera null" //$NON-NLS-1$
@@ -196,7 +441,7 @@ public class AggregatedKeyStoreManager extends AOKeyStoreManager {
 
 	@Override
 	public void refresh() throws IOException {
-		for (final AOKeyStoreManager ksm : this.ksms) {
+		for (final AOKeyStoreManager ksm : getKeyStoreManagers()) {
 			try {
 				ksm.refresh();
 			}
@@ -205,27 +450,19 @@ public class AggregatedKeyStoreManager extends AOKeyStoreManager {
 				LOGGER.warning("Error al actualizar el almacen de tipo " + ksm.getType() + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 		}
+		invalidateIndex();
 	}
 
 	@Override
-	protected boolean lacksKeyStores() {
-		return this.ksms.isEmpty();
+	protected synchronized boolean lacksKeyStores() {
+		return this.ksms.isEmpty() && this.pendingKsms.isEmpty();
 	}
 
 	@Override
 	public boolean isKeyEntry(final String alias) throws KeyStoreException {
-		for (final AOKeyStoreManager ksm : this.ksms) {
-			List<String> listAlias;
-			try {
-				listAlias = Arrays.asList(ksm.getAliases());
-			}
-			catch (final Exception e) {
-				LOGGER.warning("No se pudieron obtener los alias del almacen " + ksm.getType() + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
-				continue;
-			}
-			if (listAlias.contains(alias)) {
-				return ksm.isKeyEntry(alias);
-			}
+		final AOKeyStoreManager ksm = getKeyStoreManager(alias);
+		if (ksm != null) {
+			return ksm.isKeyEntry(alias);
 		}
 		throw new KeyStoreException(
 			"Se ha pedido comprobar la clave privada de un certificado no contenido en este gestor" //$NON-NLS-1$
@@ -234,20 +471,57 @@ public class AggregatedKeyStoreManager extends AOKeyStoreManager {
 
 	@Override
 	public void deactivateEntry(final String certificateThumbprint) {
-		for (final AOKeyStoreManager ksm : this.ksms) {
+		for (final AOKeyStoreManager ksm : getKeyStoreManagers()) {
 			ksm.deactivateEntry(certificateThumbprint);
 		}
+		invalidateIndex();
 	}
 
-	/** Recupera la lista (no mutable) de almacenes del almac&eacute;n agregado.
+	/** Recupera la lista de almacenes del almac&eacute;n agregado, esperando a los que se
+	 * est&eacute;n cargando en segundo plano. Los cambios en la lista no afectan al agregado.
 	 * @return Lista de almacenes. */
 	List<AOKeyStoreManager> getKeyStoreManagers() {
-		return (List<AOKeyStoreManager>) ((ArrayList<AOKeyStoreManager>)this.ksms).clone();
+		mergeLoadedKeyStoreManagers(true);
+		return getLoadedKeyStoreManagers();
+	}
+
+	/** Recupera la lista de almacenes ya cargados del almac&eacute;n agregado.
+	 * @return Lista de almacenes. */
+	private synchronized List<AOKeyStoreManager> getLoadedKeyStoreManagers() {
+		return new ArrayList<>(this.ksms);
 	}
 
 	/** Elimina todos los almacenes del de claves del almac&eacute;n agregado. */
 	public void removeAll() {
-		this.ksms.clear();
+		synchronized (this) {
+			for (final PendingKeyStoreManager pending : this.pendingKsms) {
+				pending.future.cancel(true);
+			}
+			this.pendingKsms.clear();
+			this.ksms.clear();
+			this.ksmsOrder.clear();
+			this.preferredThumbprints.clear();
+			invalidateIndex();
+		}
 		setKeyStoreType(null);
 	}
+
+	/** Carga de un almac&eacute;n en segundo plano. */
+	private static final class PendingKeyStoreManager {
+
+		final String description;
+		final long order;
+		final long deadline;
+		final Future<AOKeyStoreManager> future;
+
+		PendingKeyStoreManager(final String description,
+				               final long order,
+				               final long deadline,
+				               final Future<AOKeyStoreManager> future) {
+			this.description = description;
+			this.order = order;
+			this.deadline = deadline;
+			this.future = future;
+		}
+	}
 }
@@ -0,0 +1,206 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.keystores;
+
+import java.io.IOException;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableEntryException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.callback.PasswordCallback;
+
+import es.gob.afirma.core.keystores.KeyStoreManager;
+
+/** &Iacute;ndice de los certificados de un almac&eacute;n. Recupera del almac&eacute;n cada
+ * certificado, cadena de certificaci&oacute;n e indicador de clave privada una &uacute;nica
+ * vez y conserva el resultado de aplicar cada filtro sobre un mismo listado de alias, de
+ * forma que aplicar varios filtros o volver a mostrar el di&aacute;logo de selecci&oacute;n
+ * no obliga a consultar de nuevo los almacenes (lo que es costoso en tarjetas PKCS#11 o NSS).
+ * El &iacute;ndice se vac&iacute;a al refrescar el almac&eacute;n o al llamar a {@link #clear()} y,
+ * si el almac&eacute;n es un {@link AggregatedKeyStoreManager}, tambi&eacute;n cuando se incorpora
+ * a &eacute;l un almac&eacute;n cargado en segundo plano.
+ * Las claves privadas nunca se conservan. */
+public final class CertificateIndex implements KeyStoreManager {
+
+	private final KeyStoreManager ksm;
+
+	private String[] aliases = null;
+
+	/** Versi&oacute;n del contenido del almac&eacute;n agregado con la que se construy&oacute; el &iacute;ndice. */
+	private long indexedVersion = -1;
+
+	private final Map<String, X509Certificate> certificates = new HashMap<>();
+
+	private final Map<String, X509Certificate[]> chains = new HashMap<>();
+
+	private final Map<String, Boolean> keyEntries = new HashMap<>();
+
+	private final Map<CertificateFilter, Map<Set<String>, String[]>> filterResults = new IdentityHashMap<>();
+
+	/** Crea el &iacute;ndice de los certificados de un almac&eacute;n.
+	 * @param ksm Gestor del almac&eacute;n. */
+	public CertificateIndex(final KeyStoreManager ksm) {
+		if (ksm == null) {
+			throw new IllegalArgumentException("El almacen de claves no puede ser nulo"); //$NON-NLS-1$
+		}
+		this.ksm = ksm;
+	}
+
+	/** Descarta la informaci&oacute;n indexada, que se volver&aacute; a obtener del
+	 * almac&eacute;n cuando se necesite. Debe llamarse siempre que cambie el contenido
+	 * del almac&eacute;n. */
+	public synchronized void clear() {
+		this.aliases = null;
+		this.certificates.clear();
+		this.chains.clear();
+		this.keyEntries.clear();
+		this.filterResults.clear();
+	}
+
+	/** Descarta el &iacute;ndice si ha cambiado el contenido del almac&eacute;n agregado desde que
+	 * se construy&oacute;. */
+	private void checkContentVersion() {
+		if (this.ksm instanceof AggregatedKeyStoreManager) {
+			final long version = ((AggregatedKeyStoreManager) this.ksm).getContentVersion();
+			synchronized (this) {
+				if (version != this.indexedVersion) {
+					clear();
+					this.indexedVersion = version;
+				}
+			}
+		}
+	}
+
+	/** Obtiene los alias de un listado que cumplen con un filtro. El resultado se conserva,
+	 * de forma que aplicar de nuevo el mismo filtro sobre el mismo listado no requiere volver
+	 * a evaluarlo.
+	 * @param filter Filtro a aplicar. Se identifica por instancia, no por su configuraci&oacute;n.
+	 * @param aliasesToFilter Listado de alias de certificados de este almac&eacute;n.
+	 * @return Alias que cumplen el filtro. */
+	public String[] getMatchingAliases(final CertificateFilter filter, final String[] aliasesToFilter) {
+		checkContentVersion();
+		final Set<String> key = new HashSet<>(Arrays.asList(aliasesToFilter));
+		synchronized (this) {
+			final Map<Set<String>, String[]> results = this.filterResults.get(filter);
+			if (results != null && results.containsKey(key)) {
+				return results.get(key).clone();
+			}
+		}
+		final String[] matches = filter.matches(aliasesToFilter, this);
+		synchronized (this) {
+			Map<Set<String>, String[]> results = this.filterResults.get(filter);
+			if (results == null) {
+				results = new HashMap<>();
+				this.filterResults.put(filter, results);
+			}
+			results.put(key, matches.clone());
+		}
+		return matches;
+	}
+
+	@Override
+	public String[] getAliases() {
+		checkContentVersion();
+		synchronized (this) {
+			if (this.aliases != null) {
+				return this.aliases.clone();
+			}
+		}
+		final String[] storeAliases = this.ksm.getAliases();
+		synchronized (this) {
+			this.aliases = storeAliases;
+		}
+		return storeAliases != null ? storeAliases.clone() : null;
+	}
+
+	@Override
+	public X509Certificate getCertificate(final String alias) {
+		checkContentVersion();
+		synchronized (this) {
+			if (this.certificates.containsKey(alias)) {
+				return this.certificates.get(alias);
+			}
+		}
+		final X509Certificate cert = this.ksm.getCertificate(alias);
+		synchronized (this) {
+			this.certificates.put(alias, cert);
+		}
+		return cert;
+	}
+
+	@Override
+	public X509Certificate[] getCertificateChain(final String alias) {
+		checkContentVersion();
+		synchronized (this) {
+			if (this.chains.containsKey(alias)) {
+				final X509Certificate[] chain = this.chains.get(alias);
+				return chain != null ? chain.clone() : null;
+			}
+		}
+		final X509Certificate[] chain = this.ksm.getCertificateChain(alias);
+		synchronized (this) {
+			this.chains.put(alias, chain);
+		}
+		return chain != null ? chain.clone() : null;
+	}
+
+	@Override
+	public boolean isKeyEntry(final String alias) throws KeyStoreException {
+		checkContentVersion();
+		synchronized (this) {
+			final Boolean keyEntry = this.keyEntries.get(alias);
+			if (keyEntry != null) {
+				return keyEntry.booleanValue();
+			}
+		}
+		final boolean keyEntry = this.ksm.isKeyEntry(alias);
+		synchronized (this) {
+			this.keyEntries.put(alias, Boolean.valueOf(keyEntry));
+		}
+		return keyEntry;
+	}
+
+	@Override
+	public PrivateKeyEntry getKeyEntry(final String alias) throws KeyStoreException,
+	                                                              NoSuchAlgorithmException,
+	                                                              UnrecoverableEntryException {
+		return this.ksm.getKeyEntry(alias);
+	}
+
+	@Override
+	public void deactivateEntry(final String certificateThumbprint) {
+		this.ksm.deactivateEntry(certificateThumbprint);
+		clear();
+	}
+
+	@Override
+	public void refresh() throws IOException {
+		clear();
+		this.ksm.refresh();
+	}
+
+	@Override
+	public void setEntryPasswordCallBack(final PasswordCallback pwc) {
+		this.ksm.setEntryPasswordCallBack(pwc);
+	}
+
+	@Override
+	public void setParentComponent(final Object parent) {
+		this.ksm.setParentComponent(parent);
+	}
+}
@@ -172,9 +172,11 @@ public final class KeyStoreUtilities {
      * certificados (como claves de estas &uacute;ltimas). Se aplicar&aacute;n los
      * filtros de certificados sobre todos ellos y se devolver&aacute;n aquellos
      * certificados que cumplan con los filtros definidos.
+     * Si el gestor no es un {@link CertificateIndex}, se indexa para la llamada, de forma
+     * que cada certificado s&oacute;lo se recupere del almac&eacute;n una vez.
      * @param aliases Alias de los certificados entre los que el usuario debe
      *                seleccionar uno
-     * @param ksm Gestor de los almac&eacute;nes de certificados a los que pertenecen los alias.
+     * @param keyStoreManager Gestor de los almac&eacute;nes de certificados a los que pertenecen los alias.
      *            Debe ser {@code null} si se quiere usar el m&eacute;todo para seleccionar
      *            otra cosa que no sean certificados X.509 (como claves de cifrado)
      * @param checkPrivateKeys Indica si se debe comprobar que el certificado tiene clave
@@ -185,11 +187,19 @@ public final class KeyStoreUtilities {
      * @return Mapa que asocia los alias reales de los certificados que han pasados los
      *         filtros con un nombre mas amistoso. */
     public static Map<String, String> getAliasesByFriendlyName(final String[] aliases,
-                                                               final KeyStoreManager ksm,
+                                                               final KeyStoreManager keyStoreManager,
                                                                final boolean checkPrivateKeys,
                                                                final boolean showExpiredCertificates,
                                                                final List<? extends CertificateFilter> certFilters) {
 
+    	final CertificateIndex ksm;
+    	if (keyStoreManager == null || keyStoreManager instanceof CertificateIndex) {
+    		ksm = (CertificateIndex) keyStoreManager;
+    	}
+    	else {
+    		ksm = new CertificateIndex(keyStoreManager);
+    	}
+
         // Creamos un mapa con la relacion Alias-Nombre_a_mostrar de los
         // certificados
     	final String[] trimmedAliases = aliases.clone();
@@ -269,7 +279,7 @@ public final class KeyStoreUtilities {
             	final Map<String, String> filteredAliases = new Hashtable<>();
                 for (final CertificateFilter cf : certFilters) {
                 	final String[] certAliases = aliassesByFriendlyName.keySet().toArray(new String[aliassesByFriendlyName.size()]);
-                	for (final String filteredAlias : cf.matches(certAliases, ksm)) {
+                	for (final String filteredAlias : ksm.getMatchingAliases(cf, certAliases)) {
                 		filteredAliases.put(filteredAlias, aliassesByFriendlyName.get(filteredAlias));
                 		aliassesByFriendlyName.remove(filteredAlias);
                 	}
@@ -0,0 +1,169 @@
+package es.gob.afirma.keystores;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Pruebas de carga en segundo plano de almacenes en un almac&eacute;n agregado. */
+public final class TestAggregatedKeyStoreLoading {
+
+	/** Restablece el tiempo m&aacute;ximo de carga. */
+	@After
+	@SuppressWarnings("static-method")
+	public void resetTimeout() {
+		System.clearProperty(AggregatedKeyStoreManager.LOAD_TIMEOUT_PROPERTY);
+	}
+
+	/** Comprueba que un almac&eacute;n cargado en segundo plano conserva su posici&oacute;n
+	 * aunque termine de cargarse despu&eacute;s que otros agregados m&aacute;s tarde.
+	 * @throws Exception En cualquier error. */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testLoadingOrder() throws Exception {
+		final TestAggregatedKeyStoreManager aksm = new TestAggregatedKeyStoreManager();
+		aksm.addKeyStoreManager("Lento", new DelayedLoader(300, "lento1", "lento2")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		aksm.addKeyStoreManager(new StubKeyStoreManager("rapido")); //$NON-NLS-1$
+
+		Assert.assertTrue(aksm.isLoading());
+		Assert.assertArrayEquals(new String[] { "rapido" }, aksm.getAvailableAliases()); //$NON-NLS-1$
+		Assert.assertArrayEquals(
+			new String[] { "lento1", "lento2", "rapido" }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			aksm.getAliases()
+		);
+		Assert.assertFalse(aksm.isLoading());
+		Assert.assertTrue(aksm.isKeyEntry("lento2")); //$NON-NLS-1$
+	}
+
+	/** Comprueba que un almac&eacute;n cuya carga empieza despu&eacute;s de agregar otros ocupa
+	 * la posici&oacute;n que se le reserv&oacute; antes.
+	 * @throws Exception En cualquier error. */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testReservedPosition() throws Exception {
+		final TestAggregatedKeyStoreManager aksm = new TestAggregatedKeyStoreManager();
+		final long position = aksm.reserveKeyStorePosition();
+		aksm.addKeyStoreManager(new StubKeyStoreManager("tarjeta")); //$NON-NLS-1$
+		aksm.addKeyStoreManager("Principal", new DelayedLoader(100, "principal"), position); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Assert.assertArrayEquals(
+			new String[] { "principal", "tarjeta" }, //$NON-NLS-1$ //$NON-NLS-2$
+			aksm.getAliases()
+		);
+	}
+
+	/** Comprueba que la b&uacute;squeda de un alias espera a los almacenes pendientes.
+	 * @throws Exception En cualquier error. */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testLookupWaitsForPendingLoads() throws Exception {
+		final TestAggregatedKeyStoreManager aksm = new TestAggregatedKeyStoreManager();
+		aksm.addKeyStoreManager(new StubKeyStoreManager("rapido")); //$NON-NLS-1$
+		aksm.addKeyStoreManager("Lento", new DelayedLoader(200, "lento")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Assert.assertTrue(aksm.isKeyEntry("rapido")); //$NON-NLS-1$
+		Assert.assertTrue(aksm.isLoading());
+		Assert.assertTrue(aksm.isKeyEntry("lento")); //$NON-NLS-1$
+		Assert.assertNull(aksm.getCertificate("inexistente")); //$NON-NLS-1$
+	}
+
+	/** Comprueba que un almac&eacute;n que no termina de cargarse en el tiempo m&aacute;ximo,
+	 * o cuya carga falla, se descarta sin afectar al resto.
+	 * @throws Exception En cualquier error. */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testTimeoutAndFailure() throws Exception {
+		System.setProperty(AggregatedKeyStoreManager.LOAD_TIMEOUT_PROPERTY, "200"); //$NON-NLS-1$
+		final TestAggregatedKeyStoreManager aksm = new TestAggregatedKeyStoreManager();
+		aksm.addKeyStoreManager("Bloqueado", new DelayedLoader(10000, "bloqueado")); //$NON-NLS-1$ //$NON-NLS-2$
+		aksm.addKeyStoreManager("Erroneo", new Callable<AOKeyStoreManager>() { //$NON-NLS-1$
+			@Override
+			public AOKeyStoreManager call() throws Exception {
+				throw new AOKeyStoreManagerException("Fallo de prueba"); //$NON-NLS-1$
+			}
+		});
+		aksm.addKeyStoreManager(new StubKeyStoreManager("rapido")); //$NON-NLS-1$
+
+		final long start = System.currentTimeMillis();
+		Assert.assertArrayEquals(new String[] { "rapido" }, aksm.getAliases()); //$NON-NLS-1$
+		Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+		Assert.assertFalse(aksm.isLoading());
+		Assert.assertEquals(1, aksm.getKeyStoreManagers().size());
+	}
+
+	/** Comprueba que se descartan las cargas pendientes al vaciar el almac&eacute;n. */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testRemoveAllCancelsPendingLoads() {
+		final TestAggregatedKeyStoreManager aksm = new TestAggregatedKeyStoreManager();
+		aksm.addKeyStoreManager("Lento", new DelayedLoader(10000, "lento")); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertFalse(aksm.lacksKeyStores());
+		aksm.removeAll();
+		Assert.assertTrue(aksm.lacksKeyStores());
+		Assert.assertEquals(0, aksm.getAliases().length);
+	}
+
+	/** Comprueba que el &iacute;ndice de certificados no conserva los alias obtenidos antes de
+	 * agregar un almac&eacute;n que se carga en segundo plano.
+	 * @throws Exception En cualquier error. */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testCertificateIndexFollowsLoadedStores() throws Exception {
+		final TestAggregatedKeyStoreManager aksm = new TestAggregatedKeyStoreManager();
+		aksm.addKeyStoreManager(new StubKeyStoreManager("rapido")); //$NON-NLS-1$
+		final CertificateIndex index = new CertificateIndex(aksm);
+		Assert.assertArrayEquals(new String[] { "rapido" }, index.getAliases()); //$NON-NLS-1$
+
+		aksm.addKeyStoreManager("Lento", new DelayedLoader(200, "lento")); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertArrayEquals(
+			new String[] { "rapido", "lento" }, //$NON-NLS-1$ //$NON-NLS-2$
+			index.getAliases()
+		);
+		Assert.assertTrue(index.isKeyEntry("lento")); //$NON-NLS-1$
+	}
+
+	/** Almac&eacute;n agregado que permite agregar cargas en segundo plano. */
+	static final class TestAggregatedKeyStoreManager extends AggregatedKeyStoreManager {
+		// Solo hace accesible el constructor y los metodos protegidos
+	}
+
+	/** Carga de un almac&eacute;n que tarda un tiempo determinado. */
+	private static final class DelayedLoader implements Callable<AOKeyStoreManager> {
+
+		private final long delay;
+		private final String[] aliases;
+
+		DelayedLoader(final long delay, final String... aliases) {
+			this.delay = delay;
+			this.aliases = aliases;
+		}
+
+		@Override
+		public AOKeyStoreManager call() throws InterruptedException {
+			Thread.sleep(this.delay);
+			return new StubKeyStoreManager(this.aliases);
+		}
+	}
+
+	/** Almac&eacute;n con alias fijos, todos ellos con clave privada. */
+	static final class StubKeyStoreManager extends AOKeyStoreManager {
+
+		private final String[] aliases;
+
+		StubKeyStoreManager(final String... aliases) {
+			this.aliases = aliases;
+		}
+
+		@Override
+		public String[] getAliases() {
+			return this.aliases.clone();
+		}
+
+		@Override
+		public boolean isKeyEntry(final String alias) {
+			return Arrays.asList(this.aliases).contains(alias);
+		}
+	}
+}
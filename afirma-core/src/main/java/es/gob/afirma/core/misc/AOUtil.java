@@ -488,7 +488,7 @@ public final class AOUtil {
     		return p;
     	}
     	p.load(new InputStreamReader(
-    					new ByteArrayInputStream(Base64.decode(base64.replace('-', '+').replace('_', '/'))), DEFAULT_ENCODING)
+    					new ByteArrayInputStream(Base64.decode(base64)), DEFAULT_ENCODING)
     			);
 
     	return p;
@@ -0,0 +1,394 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.core.misc;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/** Codificador y descodificador Base64 incremental que trabaja directamente sobre
+ * {@link ByteBuffer}, canales y flujos de datos, sin generar cadenas de texto ni copias
+ * intermedias de los datos.
+ * <p>Al codificar, el alfabeto normal o el apto para URL (secci&oacute;n 4 de la RFC 3548)
+ * se selecciona por tabla. Al descodificar se aceptan indistintamente los caracteres de
+ * ambos alfabetos, por lo que no es necesario normalizar los datos antes de descodificarlos.
+ * Los espacios y saltos de l&iacute;nea se ignoran y el relleno final es opcional.</p> */
+public final class Base64Codec {
+
+	/** Tama&ntilde;o de los buffers de transferencia entre canales. M&uacute;ltiplo de 3 y de 4. */
+	private static final int BUFFER_SIZE = 6144;
+
+	private static final byte EQUALS_SIGN = (byte) '=';
+
+	private static final byte[] STANDARD_ALPHABET =
+			"ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+
+	private static final byte[] URL_SAFE_ALPHABET =
+			"ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+
+	/** Valor en la tabla de descodificaci&oacute;n de un car&aacute;cter no v&aacute;lido. */
+	private static final byte INVALID = -1;
+
+	/** Valor en la tabla de descodificaci&oacute;n de un espacio o salto de l&iacute;nea. */
+	private static final byte WHITE_SPACE = -2;
+
+	/** Valor en la tabla de descodificaci&oacute;n del car&aacute;cter de relleno. */
+	private static final byte PADDING = -3;
+
+	/** Tabla de descodificaci&oacute;n com&uacute;n a los dos alfabetos. */
+	private static final byte[] DECODABET = new byte[256];
+
+	static {
+		for (int i = 0; i < DECODABET.length; i++) {
+			DECODABET[i] = INVALID;
+		}
+		for (int i = 0; i < STANDARD_ALPHABET.length; i++) {
+			DECODABET[STANDARD_ALPHABET[i]] = (byte) i;
+			DECODABET[URL_SAFE_ALPHABET[i]] = (byte) i;
+		}
+		DECODABET['\t'] = WHITE_SPACE;
+		DECODABET['\n'] = WHITE_SPACE;
+		DECODABET['\r'] = WHITE_SPACE;
+		DECODABET[' '] = WHITE_SPACE;
+		DECODABET[EQUALS_SIGN] = PADDING;
+	}
+
+	private Base64Codec() {
+		// No instanciable
+	}
+
+	/** Obtiene el tama&ntilde;o que ocupar&aacute; la codificaci&oacute;n Base64 (con relleno
+	 * y sin saltos de l&iacute;nea) de unos datos.
+	 * @param len Tama&ntilde;o de los datos.
+	 * @return Tama&ntilde;o de los datos codificados. */
+	public static int encodedLength(final int len) {
+		return (len / 3 + (len % 3 > 0 ? 1 : 0)) * 4;
+	}
+
+	/** Obtiene el tama&ntilde;o m&aacute;ximo que pueden ocupar unos datos Base64 una vez
+	 * descodificados.
+	 * @param len Tama&ntilde;o de los datos codificados.
+	 * @return Tama&ntilde;o m&aacute;ximo de los datos descodificados. */
+	public static int maxDecodedLength(final int len) {
+		return len / 4 * 3 + len % 4 * 3 / 4;
+	}
+
+	/** Codifica en Base64 todos los datos restantes de un buffer, incluyendo el relleno final.
+	 * @param src Buffer con los datos a codificar.
+	 * @param dst Buffer en el que se escribe la codificaci&oacute;n. Debe disponer al menos de
+	 *            {@link #encodedLength(int)} octetos libres.
+	 * @param urlSafe Si se debe usar el alfabeto apto para URL.
+	 * @throws BufferOverflowException Si el buffer de destino no tiene espacio suficiente. */
+	public static void encode(final ByteBuffer src, final ByteBuffer dst, final boolean urlSafe) {
+		final Encoder encoder = new Encoder(urlSafe);
+		encoder.encode(src, dst);
+		if (src.hasRemaining()) {
+			throw new BufferOverflowException();
+		}
+		encoder.finish(dst);
+	}
+
+	/** Descodifica todos los datos Base64 restantes de un buffer.
+	 * @param src Buffer con los datos codificados.
+	 * @param dst Buffer en el que se escriben los datos descodificados. Debe disponer al menos de
+	 *            {@link #maxDecodedLength(int)} octetos libres.
+	 * @throws IOException Si los datos contienen caracteres no v&aacute;lidos.
+	 * @throws BufferOverflowException Si el buffer de destino no tiene espacio suficiente. */
+	public static void decode(final ByteBuffer src, final ByteBuffer dst) throws IOException {
+		final Decoder decoder = new Decoder();
+		decoder.decode(src, dst);
+		if (src.hasRemaining()) {
+			throw new BufferOverflowException();
+		}
+		decoder.finish(dst);
+	}
+
+	/** Codifica en Base64 todos los datos de un canal y los escribe en otro.
+	 * Ninguno de los canales se cierra.
+	 * @param in Canal del que se leen los datos.
+	 * @param out Canal en el que se escribe la codificaci&oacute;n.
+	 * @param urlSafe Si se debe usar el alfabeto apto para URL.
+	 * @return N&uacute;mero de octetos escritos.
+	 * @throws IOException Cuando ocurre un error de lectura o escritura. */
+	public static long encode(final ReadableByteChannel in,
+			                  final WritableByteChannel out,
+			                  final boolean urlSafe) throws IOException {
+		final Encoder encoder = new Encoder(urlSafe);
+		final ByteBuffer inBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+		final ByteBuffer outBuffer = ByteBuffer.allocate(encodedLength(BUFFER_SIZE));
+		long total = 0;
+		while (in.read(inBuffer) != -1) {
+			inBuffer.flip();
+			encoder.encode(inBuffer, outBuffer);
+			inBuffer.compact();
+			total += writeFully(outBuffer, out);
+		}
+		inBuffer.flip();
+		encoder.encode(inBuffer, outBuffer);
+		encoder.finish(outBuffer);
+		return total + writeFully(outBuffer, out);
+	}
+
+	/** Descodifica los datos Base64 de un canal y los escribe en otro.
+	 * Ninguno de los canales se cierra.
+	 * @param in Canal del que se leen los datos codificados.
+	 * @param out Canal en el que se escriben los datos descodificados.
+	 * @return N&uacute;mero de octetos escritos.
+	 * @throws IOException Cuando ocurre un error de lectura o escritura o los datos
+	 *                     contienen caracteres no v&aacute;lidos. */
+	public static long decode(final ReadableByteChannel in, final WritableByteChannel out) throws IOException {
+		final Decoder decoder = new Decoder();
+		final ByteBuffer inBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+		final ByteBuffer outBuffer = ByteBuffer.allocate(maxDecodedLength(BUFFER_SIZE));
+		long total = 0;
+		while (in.read(inBuffer) != -1) {
+			inBuffer.flip();
+			decoder.decode(inBuffer, outBuffer);
+			inBuffer.compact();
+			total += writeFully(outBuffer, out);
+		}
+		inBuffer.flip();
+		decoder.decode(inBuffer, outBuffer);
+		decoder.finish(outBuffer);
+		return total + writeFully(outBuffer, out);
+	}
+
+	private static int writeFully(final ByteBuffer buffer, final WritableByteChannel out) throws IOException {
+		buffer.flip();
+		final int len = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+		return len;
+	}
+
+	/** Codificador Base64 incremental. Conserva entre llamadas los octetos que no
+	 * completan un grupo de tres, de forma que los datos pueden proporcionarse por partes. */
+	public static final class Encoder {
+
+		private final byte[] alphabet;
+
+		private int pending = 0;
+
+		private int pendingCount = 0;
+
+		/** Crea un codificador.
+		 * @param urlSafe Si se debe usar el alfabeto apto para URL. */
+		public Encoder(final boolean urlSafe) {
+			this.alphabet = urlSafe ? URL_SAFE_ALPHABET : STANDARD_ALPHABET;
+		}
+
+		/** Codifica tantos datos como quepan en el buffer de destino. Los octetos que no
+		 * completan un grupo de tres se conservan hasta la siguiente llamada o hasta
+		 * {@link #finish(ByteBuffer)}.
+		 * @param src Buffer con los datos a codificar.
+		 * @param dst Buffer en el que se escribe la codificaci&oacute;n. */
+		public void encode(final ByteBuffer src, final ByteBuffer dst) {
+			while (dst.remaining() >= 4) {
+				if (this.pendingCount == 0 && src.remaining() >= 3) {
+					if (src.hasArray() && dst.hasArray()) {
+						encodeArrays(src, dst);
+					}
+					else {
+						write(dst, (src.get() & 0xFF) << 16 | (src.get() & 0xFF) << 8 | src.get() & 0xFF, 4);
+					}
+				}
+				else if (src.hasRemaining()) {
+					this.pending = this.pending << 8 | src.get() & 0xFF;
+					if (++this.pendingCount == 3) {
+						write(dst, this.pending, 4);
+						this.pending = 0;
+						this.pendingCount = 0;
+					}
+				}
+				else {
+					return;
+				}
+			}
+		}
+
+		/** Escribe la codificaci&oacute;n de los octetos pendientes junto con el relleno.
+		 * @param dst Buffer en el que se escribe la codificaci&oacute;n. Necesita hasta
+		 *            cuatro octetos libres. */
+		public void finish(final ByteBuffer dst) {
+			if (this.pendingCount == 0) {
+				return;
+			}
+			final int chars = this.pendingCount + 1;
+			final int group = this.pending << 8 * (3 - this.pendingCount);
+			if (dst.remaining() < 4) {
+				throw new BufferOverflowException();
+			}
+			write(dst, group, chars);
+			for (int i = chars; i < 4; i++) {
+				dst.put(EQUALS_SIGN);
+			}
+			this.pending = 0;
+			this.pendingCount = 0;
+		}
+
+		private void write(final ByteBuffer dst, final int group, final int chars) {
+			dst.put(this.alphabet[group >>> 18 & 0x3f]);
+			dst.put(this.alphabet[group >>> 12 & 0x3f]);
+			if (chars > 2) {
+				dst.put(this.alphabet[group >>> 6 & 0x3f]);
+			}
+			if (chars > 3) {
+				dst.put(this.alphabet[group & 0x3f]);
+			}
+		}
+
+		/** Codifica grupos completos accediendo directamente a los arrays de los buffers. */
+		private void encodeArrays(final ByteBuffer src, final ByteBuffer dst) {
+			final int groups = Math.min(src.remaining() / 3, dst.remaining() / 4);
+			final byte[] in = src.array();
+			final byte[] out = dst.array();
+			int i = src.arrayOffset() + src.position();
+			int o = dst.arrayOffset() + dst.position();
+			final byte[] abc = this.alphabet;
+			for (int n = 0; n < groups; n++) {
+				final int group = (in[i++] & 0xFF) << 16 | (in[i++] & 0xFF) << 8 | in[i++] & 0xFF;
+				out[o++] = abc[group >>> 18];
+				out[o++] = abc[group >>> 12 & 0x3f];
+				out[o++] = abc[group >>> 6 & 0x3f];
+				out[o++] = abc[group & 0x3f];
+			}
+			src.position(src.position() + groups * 3);
+			dst.position(dst.position() + groups * 4);
+		}
+	}
+
+	/** Descodificador Base64 incremental. Acepta los caracteres de los alfabetos normal y
+	 * apto para URL, ignora espacios y saltos de l&iacute;nea y deja de procesar datos tras
+	 * el relleno. */
+	public static final class Decoder {
+
+		private int bits = 0;
+
+		private int count = 0;
+
+		private boolean finished = false;
+
+		/** Descodifica tantos datos como quepan en el buffer de destino.
+		 * @param src Buffer con los datos codificados.
+		 * @param dst Buffer en el que se escriben los datos descodificados.
+		 * @throws IOException Si los datos contienen caracteres no v&aacute;lidos. */
+		public void decode(final ByteBuffer src, final ByteBuffer dst) throws IOException {
+			while (src.hasRemaining()) {
+				if (this.finished) {
+					// Lo que haya tras el relleno se ignora
+					src.position(src.limit());
+					return;
+				}
+				if (this.count == 0 && src.hasArray() && dst.hasArray()) {
+					decodeArrays(src, dst);
+					if (!src.hasRemaining()) {
+						return;
+					}
+				}
+				final int c = src.get(src.position()) & 0xFF;
+				final byte value = DECODABET[c];
+				if (value >= 0) {
+					if (this.count == 3 && dst.remaining() < 3) {
+						return;
+					}
+					src.get();
+					this.bits = this.bits << 6 | value;
+					if (++this.count == 4) {
+						dst.put((byte) (this.bits >> 16));
+						dst.put((byte) (this.bits >> 8));
+						dst.put((byte) this.bits);
+						this.bits = 0;
+						this.count = 0;
+					}
+				}
+				else if (value == PADDING) {
+					if (dst.remaining() < this.count - 1) {
+						return;
+					}
+					src.get();
+					flush(dst);
+				}
+				else if (value == WHITE_SPACE) {
+					src.get();
+				}
+				else {
+					throw new IOException(String.format(
+						"Caracter Base64 no valido (decimal %d) en la posicion %d", //$NON-NLS-1$
+						Integer.valueOf(c),
+						Integer.valueOf(src.position())
+					));
+				}
+			}
+		}
+
+		/** Escribe los octetos correspondientes a un &uacute;ltimo grupo incompleto sin relleno.
+		 * @param dst Buffer en el que se escriben los datos descodificados. Necesita hasta
+		 *            dos octetos libres. */
+		public void finish(final ByteBuffer dst) {
+			if (!this.finished) {
+				flush(dst);
+			}
+		}
+
+		/** Indica si se ha encontrado el final de los datos codificados.
+		 * @return {@code true} si ya se ha procesado el relleno o se ha llamado a
+		 *         {@link #finish(ByteBuffer)}. */
+		public boolean isFinished() {
+			return this.finished;
+		}
+
+		private void flush(final ByteBuffer dst) {
+			if (this.count == 2) {
+				dst.put((byte) (this.bits >> 4));
+			}
+			else if (this.count == 3) {
+				dst.put((byte) (this.bits >> 10));
+				dst.put((byte) (this.bits >> 2));
+			}
+			this.bits = 0;
+			this.count = 0;
+			this.finished = true;
+		}
+
+		/** Descodifica grupos completos sin espacios ni relleno accediendo directamente a
+		 * los arrays de los buffers. Se detiene en el primer grupo que no cumpla estas
+		 * condiciones para que lo trate el procesado car&aacute;cter a car&aacute;cter. */
+		private static void decodeArrays(final ByteBuffer src, final ByteBuffer dst) {
+			final int groups = Math.min(src.remaining() / 4, dst.remaining() / 3);
+			final byte[] in = src.array();
+			final byte[] out = dst.array();
+			final int inStart = src.arrayOffset() + src.position();
+			final int outStart = dst.arrayOffset() + dst.position();
+			int i = inStart;
+			int o = outStart;
+			for (int n = 0; n < groups; n++) {
+				final int b0 = DECODABET[in[i] & 0xFF];
+				final int b1 = DECODABET[in[i + 1] & 0xFF];
+				final int b2 = DECODABET[in[i + 2] & 0xFF];
+				final int b3 = DECODABET[in[i + 3] & 0xFF];
+				if ((b0 | b1 | b2 | b3) < 0) {
+					break;
+				}
+				final int group = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+				out[o++] = (byte) (group >> 16);
+				out[o++] = (byte) (group >> 8);
+				out[o++] = (byte) group;
+				i += 4;
+			}
+			src.position(src.position() + i - inStart);
+			dst.position(dst.position() + o - outStart);
+		}
+	}
+}
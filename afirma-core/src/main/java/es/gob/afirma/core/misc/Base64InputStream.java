@@ -0,0 +1,118 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.core.misc;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/** Flujo de entrada que descodifica al vuelo los datos Base64 le&iacute;dos del flujo
+ * subyacente. Acepta indistintamente los alfabetos normal y apto para URL. */
+public final class Base64InputStream extends FilterInputStream {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Base64Codec.Decoder decoder = new Base64Codec.Decoder();
+
+	private final ByteBuffer encoded = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private final ByteBuffer decoded = ByteBuffer.allocate(Base64Codec.maxDecodedLength(BUFFER_SIZE));
+
+	private boolean eof = false;
+
+	/** Crea el flujo de descodificaci&oacute;n.
+	 * @param in Flujo del que se leen los datos en Base64. */
+	public Base64InputStream(final InputStream in) {
+		super(in);
+		this.encoded.flip();
+		this.decoded.flip();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!this.decoded.hasRemaining() && !fill()) {
+			return -1;
+		}
+		return this.decoded.get() & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!this.decoded.hasRemaining() && !fill()) {
+			return -1;
+		}
+		final int n = Math.min(len, this.decoded.remaining());
+		this.decoded.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n && (this.decoded.hasRemaining() || fill())) {
+			final int step = (int) Math.min(n - skipped, this.decoded.remaining());
+			this.decoded.position(this.decoded.position() + step);
+			skipped += step;
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return this.decoded.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(final int readlimit) {
+		// No soportado
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("El flujo de descodificacion Base64 no soporta marcas"); //$NON-NLS-1$
+	}
+
+	/** Descodifica m&aacute;s datos del flujo subyacente.
+	 * @return {@code true} si hay nuevos datos descodificados, {@code false} si se ha
+	 *         llegado al final de los datos. */
+	private boolean fill() throws IOException {
+		this.decoded.clear();
+		while (this.decoded.position() == 0) {
+			if (!this.encoded.hasRemaining()) {
+				if (this.eof || this.decoder.isFinished()) {
+					this.decoder.finish(this.decoded);
+					break;
+				}
+				final int n = this.in.read(this.encoded.array());
+				if (n < 0) {
+					this.eof = true;
+					this.encoded.limit(0);
+				}
+				else {
+					this.encoded.position(0);
+					this.encoded.limit(n);
+				}
+				continue;
+			}
+			this.decoder.decode(this.encoded, this.decoded);
+		}
+		this.decoded.flip();
+		return this.decoded.hasRemaining();
+	}
+}
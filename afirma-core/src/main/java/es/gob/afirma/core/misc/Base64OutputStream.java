@@ -0,0 +1,100 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.core.misc;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/** Flujo de salida que codifica en Base64 los datos que se escriben en &eacute;l antes de
+ * enviarlos al flujo subyacente. La codificaci&oacute;n se completa, con su relleno, al
+ * cerrar el flujo. */
+public final class Base64OutputStream extends FilterOutputStream {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Base64Codec.Encoder encoder;
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private final byte[] singleByte = new byte[1];
+
+	private boolean closed = false;
+
+	/** Crea el flujo de codificaci&oacute;n con el alfabeto Base64 normal.
+	 * @param out Flujo en el que se escribe la codificaci&oacute;n. */
+	public Base64OutputStream(final OutputStream out) {
+		this(out, false);
+	}
+
+	/** Crea el flujo de codificaci&oacute;n.
+	 * @param out Flujo en el que se escribe la codificaci&oacute;n.
+	 * @param urlSafe Si se debe usar el alfabeto apto para URL. */
+	public Base64OutputStream(final OutputStream out, final boolean urlSafe) {
+		super(out);
+		this.encoder = new Base64Codec.Encoder(urlSafe);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		this.singleByte[0] = (byte) b;
+		write(this.singleByte, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		if (this.closed) {
+			throw new IOException("El flujo de codificacion Base64 esta cerrado"); //$NON-NLS-1$
+		}
+		final ByteBuffer src = ByteBuffer.wrap(b, off, len);
+		do {
+			this.encoder.encode(src, this.buffer);
+			if (this.buffer.remaining() < 4) {
+				writeBuffer();
+			}
+		} while (src.hasRemaining());
+	}
+
+	/** Env&iacute;a al flujo subyacente la codificaci&oacute;n de los grupos de tres octetos
+	 * completos. Los octetos restantes no se codifican hasta que se complete su grupo o se
+	 * cierre el flujo. */
+	@Override
+	public void flush() throws IOException {
+		writeBuffer();
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			if (this.buffer.remaining() < 4) {
+				writeBuffer();
+			}
+			this.encoder.finish(this.buffer);
+			writeBuffer();
+			this.out.flush();
+		}
+		finally {
+			this.out.close();
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		if (this.buffer.position() > 0) {
+			this.out.write(this.buffer.array(), 0, this.buffer.position());
+			this.buffer.clear();
+		}
+	}
+}
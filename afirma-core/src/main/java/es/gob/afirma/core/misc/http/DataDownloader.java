@@ -65,7 +65,7 @@ public final class DataDownloader {
 			LOGGER.info(
 				"Se ha indicado que los datos de entrada estan comrpimidos con GZIP" //$NON-NLS-1$
 			);
-			return gunzipBytes(Base64.decode(ds.replace("_", "/").replace("-", "+"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			return gunzipBytes(Base64.decode(ds));
 		}
 
 		final String dataSource = ds.trim();
@@ -127,7 +127,7 @@ public final class DataDownloader {
 		if (Base64.isBase64(dataSource.getBytes())) {
 			LOGGER.info("El contenido a obtener es Base64"); //$NON-NLS-1$
 			try {
-				return Base64.decode(dataSource.replace("_", "/").replace("-", "+")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				return Base64.decode(dataSource);
 			}
 			catch (final Exception e) {
 				LOGGER.warning(
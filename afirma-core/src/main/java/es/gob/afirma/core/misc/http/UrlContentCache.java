@@ -0,0 +1,170 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.core.misc.http;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import es.gob.afirma.core.misc.LoggerUtil;
+
+/** Cach&eacute; en memoria del contenido de URL remotas (hojas de estilo, referencias externas
+ * de las firmas XML, etc.) que se descargan repetidamente al firmar en serie.
+ * <p>El contenido se sirve desde memoria durante un tiempo de vida. Pasado ese tiempo, se
+ * revalida con el servidor mediante una petici&oacute;n condicional (<i>If-None-Match</i> o
+ * <i>If-Modified-Since</i>) si el servidor proporcion&oacute; <i>ETag</i> o
+ * <i>Last-Modified</i>, de forma que si no ha cambiado no vuelve a descargarse. No se guardan
+ * los contenidos que superen el tama&ntilde;o m&aacute;ximo por entrada ni los que el servidor
+ * marque con <i>Cache-Control: no-store</i>, y cuando se supera el tama&ntilde;o total se
+ * descartan los menos usados recientemente.</p>
+ * <p>Las descargas se realizan con el manejador de conexiones instalado en
+ * {@link UrlHttpManagerFactory}. La revalidaci&oacute;n condicional solo se usa con el
+ * manejador por defecto; con otros manejadores el contenido se descarga de nuevo al caducar.</p> */
+public final class UrlContentCache {
+
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	/** Tiempo de vida por defecto de los contenidos antes de revalidarlos (10 minutos). */
+	public static final long DEFAULT_TTL = 10 * 60 * 1000L;
+
+	/** Tama&ntilde;o total m&aacute;ximo por defecto de los contenidos guardados (32 MiB). */
+	public static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024L;
+
+	/** Tama&ntilde;o m&aacute;ximo por defecto de cada contenido guardado (4 MiB). */
+	public static final int DEFAULT_MAX_ENTRY_SIZE = 4 * 1024 * 1024;
+
+	private static final UrlContentCache SHARED_INSTANCE =
+			new UrlContentCache(DEFAULT_TTL, DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRY_SIZE);
+
+	private final long ttl;
+
+	private final long maxSize;
+
+	private final int maxEntrySize;
+
+	/** Entradas en orden de uso, de la menos a la m&aacute;s recientemente usada. */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long size = 0;
+
+	/** Crea una cach&eacute;.
+	 * @param ttl Tiempo en milisegundos durante el que se sirve un contenido sin revalidarlo.
+	 * @param maxSize Tama&ntilde;o total m&aacute;ximo de los contenidos guardados.
+	 * @param maxEntrySize Tama&ntilde;o m&aacute;ximo de cada contenido guardado. */
+	public UrlContentCache(final long ttl, final long maxSize, final int maxEntrySize) {
+		this.ttl = ttl;
+		this.maxSize = maxSize;
+		this.maxEntrySize = maxEntrySize;
+	}
+
+	/** Obtiene la cach&eacute; compartida por todos los firmadores.
+	 * @return Cach&eacute; compartida. */
+	public static UrlContentCache getSharedInstance() {
+		return SHARED_INSTANCE;
+	}
+
+	/** Obtiene el contenido de una URL HTTP o HTTPS mediante GET, desde la cach&eacute; si
+	 * est&aacute; vigente o no ha cambiado en el servidor.
+	 * @param url URL a leer.
+	 * @param processor Procesador de errores en la conexi&oacute;n o {@code null}.
+	 * @return Contenido de la URL. Es una copia que puede modificarse libremente.
+	 * @throws IOException Si no se puede leer la URL. */
+	public byte[] get(final String url, final HttpErrorProcessor processor) throws IOException {
+
+		final Entry cached;
+		synchronized (this) {
+			cached = this.entries.get(url);
+		}
+		if (cached != null && System.currentTimeMillis() - cached.validated < this.ttl) {
+			return cached.content.clone();
+		}
+
+		final UrlHttpManager manager = UrlHttpManagerFactory.getInstalledManager();
+		final UrlHttpManagerImpl.ResponseInfo info = new UrlHttpManagerImpl.ResponseInfo();
+		final byte[] data;
+		if (manager instanceof UrlHttpManagerImpl) {
+			final Properties headers = new Properties();
+			if (cached != null && cached.eTag != null) {
+				headers.setProperty("If-None-Match", cached.eTag); //$NON-NLS-1$
+			}
+			if (cached != null && cached.lastModified != null) {
+				headers.setProperty("If-Modified-Since", cached.lastModified); //$NON-NLS-1$
+			}
+			data = ((UrlHttpManagerImpl) manager).readUrl(
+					url, UrlHttpManagerImpl.DEFAULT_TIMEOUT, UrlHttpMethod.GET, headers, processor, null, info);
+		}
+		else {
+			data = manager.readUrl(url, UrlHttpManagerImpl.DEFAULT_TIMEOUT, UrlHttpMethod.GET, null, processor);
+		}
+
+		if (cached != null && info.responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			LOGGER.fine("El contenido de la cache sigue vigente: " + LoggerUtil.getTrimStr(url)); //$NON-NLS-1$
+			cached.validated = System.currentTimeMillis();
+			return cached.content.clone();
+		}
+
+		if (data.length <= this.maxEntrySize
+				&& (info.cacheControl == null || !info.cacheControl.toLowerCase().contains("no-store"))) { //$NON-NLS-1$
+			put(url, new Entry(data.clone(), info.eTag, info.lastModified));
+		}
+		else {
+			remove(url);
+		}
+		return data;
+	}
+
+	/** Elimina todos los contenidos guardados. */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.size = 0;
+	}
+
+	private synchronized void put(final String url, final Entry entry) {
+		final Entry previous = this.entries.put(url, entry);
+		if (previous != null) {
+			this.size -= previous.content.length;
+		}
+		this.size += entry.content.length;
+
+		final Iterator<Map.Entry<String, Entry>> it = this.entries.entrySet().iterator();
+		while (this.size > this.maxSize && it.hasNext()) {
+			final Map.Entry<String, Entry> eldest = it.next();
+			this.size -= eldest.getValue().content.length;
+			it.remove();
+		}
+	}
+
+	private synchronized void remove(final String url) {
+		final Entry previous = this.entries.remove(url);
+		if (previous != null) {
+			this.size -= previous.content.length;
+		}
+	}
+
+	/** Contenido guardado junto con los datos para revalidarlo. */
+	private static final class Entry {
+
+		final byte[] content;
+		final String eTag;
+		final String lastModified;
+		volatile long validated;
+
+		Entry(final byte[] content, final String eTag, final String lastModified) {
+			this.content = content;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.validated = System.currentTimeMillis();
+		}
+	}
+}
@@ -149,7 +149,30 @@ public class UrlHttpManagerImpl implements UrlHttpManager {
 		                  final Properties requestProperties,
 		                  final HttpErrorProcessor httpProcessor,
 		                  final SSLConfig sslConfig) throws IOException {
+		return readUrl(urlToRead, timeout, method, requestProperties, httpProcessor, sslConfig, null);
+	}
 
+	/**
+	 * Lee una URL HTTP o HTTPS y, si se indica, recoge los datos de la respuesta que permiten
+	 * revalidar el contenido. Una respuesta 304 (sin cambios) devuelve un contenido vac&iacute;o.
+	 * @param urlToRead URL a leer
+	 * @param timeout Tiempo m&aacute;ximo en milisegundos para la conexi&oacute;n.
+	 * @param method M&eacute;todo HTTP.
+	 * @param requestProperties Propiedades a usar en la cabecera de la petici&oacute;n HTTP.
+	 * @param httpProcessor Procesador de errores en la conexi&oacute;n.
+	 * @param sslConfig Configuraci&oacute;n para las conexiones SSL.
+	 * @param responseInfo Objeto en el que guardar los datos de la respuesta o {@code null}
+	 * si no se necesitan. No se rellena si la lectura la completa el procesador de errores.
+	 * @return Contenido de la URL.
+	 * @throws IOException Si no se puede leer la URL.
+	 */
+	byte[] readUrl(final String urlToRead,
+	               final int timeout,
+	               final UrlHttpMethod method,
+	               final Properties requestProperties,
+	               final HttpErrorProcessor httpProcessor,
+	               final SSLConfig sslConfig,
+	               final ResponseInfo responseInfo) throws IOException {
 
 		if (urlToRead == null) {
 			throw new IllegalArgumentException("La URL a leer no puede ser nula"); //$NON-NLS-1$
@@ -283,6 +306,12 @@ public class UrlHttpManagerImpl implements UrlHttpManager {
 
 			conn.connect();
 			final int resCode = conn.getResponseCode();
+			if (responseInfo != null) {
+				responseInfo.responseCode = resCode;
+				responseInfo.eTag = conn.getHeaderField("ETag"); //$NON-NLS-1$
+				responseInfo.lastModified = conn.getHeaderField("Last-Modified"); //$NON-NLS-1$
+				responseInfo.cacheControl = conn.getHeaderField("Cache-Control"); //$NON-NLS-1$
+			}
 			final String statusCode = Integer.toString(resCode);
 			if (statusCode.startsWith("4") || statusCode.startsWith("5")) { //$NON-NLS-1$ //$NON-NLS-2$
 				throw new HttpError(
@@ -311,6 +340,14 @@ public class UrlHttpManagerImpl implements UrlHttpManager {
 		return data;
 	}
 
+	/** Datos de la respuesta HTTP que permiten revalidar el contenido le&iacute;do. */
+	static final class ResponseInfo {
+		int responseCode = -1;
+		String eTag;
+		String lastModified;
+		String cacheControl;
+	}
+
 	/**
 	 * Indica si la URL a la que se desea acceder est&aacute; en el bucle
 	 * local (127.0.0.1/localhost).
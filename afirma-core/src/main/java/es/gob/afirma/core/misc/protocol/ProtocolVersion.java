@@ -16,7 +16,9 @@ public enum ProtocolVersion {
 	/** Versi&oacute;n 3: devuelve el nombre del fichero seleccionado en las operaciones de firma. */
 	VERSION_3 (3),
 	/** Seguridad adicional en la comunicacion por WebSockets. */
-	VERSION_4 (4);
+	VERSION_4 (4),
+	/** Versi&oacute;n 5: permite el cifrado autenticado (AES-GCM) de los datos para el servidor intermedio. */
+	VERSION_5 (5);
 
 	private int version;
 
@@ -46,6 +46,12 @@ public interface KeyStoreDialogManager {
 	 * @return Listado de certificados con alias. */
 	NameCertificateBean[] getNameCertificates();
 
+	/** Indica si quedan almacenes carg&aacute;ndose en segundo plano. Mientras sea as&iacute;,
+	 * {@link #getNameCertificates()} puede devolver s&oacute;lo los certificados de los almacenes
+	 * ya cargados, por lo que el di&aacute;logo debe volver a consultarlos para mostrar el resto.
+	 * @return {@code true} si hay almacenes pendientes de cargar, {@code false} en caso contrario. */
+	boolean isLoading();
+
 	/** Cambia el almac&eacute;n que gestiona internamente el di&aacute;logo.
 	 * @param ksm Almac&eacute;n de certificados. */
 	void setKeyStoreManager(KeyStoreManager ksm);
@@ -12,7 +12,9 @@ package es.gob.afirma.core.util.tree;
 import java.util.ArrayList;
 import java.util.List;
 
-/** Adaptaci&oacute;n de las clases TreeNode de Swing para su uso sin interfaz gr6aacute;fico. */
+/** Adaptaci&oacute;n de las clases TreeNode de Swing para su uso sin interfaz gr6aacute;fico.
+ * El objeto y los hijos de un nodo pueden indicarse al crearlo o calcularse bajo demanda
+ * mediante un {@link AOTreeNodeLoader}. */
 public final class AOTreeNode {
 
     /** this node's parent, or null if this node has no parent */
@@ -24,6 +26,16 @@ public final class AOTreeNode {
     /** optional user object */
     private transient Object userObject;
 
+    /** loader of the user object and the children, or null if they were set when
+     * the node was created */
+    private AOTreeNodeLoader loader;
+
+    /** true if the user object was already obtained from the loader */
+    private boolean userObjectLoaded;
+
+    /** true if the children were already obtained from the loader */
+    private boolean childrenLoaded;
+
     /** Creates a tree node with no parent, no children, but which allows
      * children, and initializes it with the specified user object.
      * @param userObject
@@ -33,6 +45,49 @@ public final class AOTreeNode {
         super();
         this.parent = null;
         this.userObject = userObject;
+        this.userObjectLoaded = true;
+        this.childrenLoaded = true;
+    }
+
+    /** Crea un nodo cuyo objeto e hijos se obtienen del cargador indicado la primera
+     * vez que se consultan.
+     * @param loader Cargador del objeto y de los hijos del nodo. */
+    public AOTreeNode(final AOTreeNodeLoader loader) {
+        if (loader == null) {
+            throw new IllegalArgumentException("El cargador del nodo no puede ser nulo"); //$NON-NLS-1$
+        }
+        this.parent = null;
+        this.loader = loader;
+        this.userObjectLoaded = false;
+        this.childrenLoaded = false;
+    }
+
+    /** Indica si ya se han obtenido los hijos del nodo. Los nodos creados sin cargador
+     * siempre tienen sus hijos disponibles.
+     * @return {@code true} si ya se conocen los hijos del nodo, {@code false} si
+     *         se obtendr&aacute;n al consultarlos. */
+    public synchronized boolean isChildrenLoaded() {
+        return this.childrenLoaded;
+    }
+
+    /** Obtiene del cargador los hijos del nodo si a&uacute;n no se hab&iacute;a hecho. Si el
+     * cargador falla, el error se propaga y se volver&aacute; a intentar en la siguiente
+     * consulta. */
+    private synchronized void loadChildren() {
+        if (this.childrenLoaded) {
+            return;
+        }
+        final List<AOTreeNode> loadedChildren = this.loader.loadChildren();
+        // Se marcan como cargados antes de agregarlos, ya que al insertarlos se vuelve a comprobar
+        this.childrenLoaded = true;
+        if (loadedChildren != null) {
+            for (final AOTreeNode child : loadedChildren) {
+                insert(child, getChildCount());
+            }
+        }
+        if (this.userObjectLoaded) {
+            this.loader = null;
+        }
     }
 
     //
@@ -69,6 +124,7 @@ public final class AOTreeNode {
         if (oldParent != null) {
             oldParent.remove(newChild);
         }
+        loadChildren();
         newChild.setParent(this);
         if (this.children == null) {
             this.children = new ArrayList<>();
@@ -110,6 +166,7 @@ public final class AOTreeNode {
      *            if <code>index</code> is out of bounds
      * @return the TreeNode in this node's child array at the specified index */
     public AOTreeNode getChildAt(final int index) {
+        loadChildren();
         if (this.children == null) {
             throw new ArrayIndexOutOfBoundsException("El nodo no tiene hijos"); //$NON-NLS-1$
         }
@@ -119,6 +176,7 @@ public final class AOTreeNode {
     /** Returns the number of children of this node.
      * @return an int giving the number of children of this node */
     public int getChildCount() {
+        loadChildren();
         if (this.children == null) {
             return 0;
         }
@@ -147,9 +205,17 @@ public final class AOTreeNode {
         return this.children.indexOf(aChild); // linear search
     }
 
-    /** Returns this node's user object.
+    /** Returns this node's user object. If it is obtained from a loader that fails, the
+     * error is propagated and the loader is called again on the next request.
      * @return the Object stored at this node by the user */
-    public Object getUserObject() {
+    public synchronized Object getUserObject() {
+        if (!this.userObjectLoaded) {
+            this.userObject = this.loader.loadUserObject();
+            this.userObjectLoaded = true;
+            if (this.childrenLoaded) {
+                this.loader = null;
+            }
+        }
         return this.userObject;
     }
 
@@ -266,9 +332,10 @@ public final class AOTreeNode {
      * @see #getUserObject */
     @Override
     public String toString() {
-        if (this.userObject == null) {
+        final Object object = getUserObject();
+        if (object == null) {
             return "null"; //$NON-NLS-1$
         }
-        return this.userObject.toString();
+        return object.toString();
     }
 }
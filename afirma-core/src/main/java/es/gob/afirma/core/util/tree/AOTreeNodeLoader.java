@@ -0,0 +1,29 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.core.util.tree;
+
+import java.util.List;
+
+/** Cargador del contenido de un nodo de &aacute;rbol que se obtiene bajo demanda.
+ * Permite construir un &aacute;rbol en el que s&oacute;lo se calcula el objeto de un
+ * nodo la primera vez que se consulta y s&oacute;lo se crean sus hijos la primera vez
+ * que se expande. */
+public interface AOTreeNodeLoader {
+
+    /** Obtiene el objeto asociado al nodo. Se llama una &uacute;nica vez, la primera vez
+     * que se consulta el objeto del nodo.
+     * @return Objeto asociado al nodo. */
+    Object loadUserObject();
+
+    /** Obtiene los hijos del nodo. Se llama una &uacute;nica vez, la primera vez que se
+     * consultan o se agregan hijos al nodo.
+     * @return Listado de hijos del nodo o {@code null} si no tiene hijos. */
+    List<AOTreeNode> loadChildren();
+}
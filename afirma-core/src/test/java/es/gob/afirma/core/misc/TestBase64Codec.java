@@ -0,0 +1,134 @@
+package es.gob.afirma.core.misc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Pruebas del codificador Base64 incremental. */
+public final class TestBase64Codec {
+
+	/** Vectores de prueba de la secci&oacute;n 10 de la RFC 4648. */
+	private static final String[][] RFC4648_VECTORS = new String[][] {
+		{ "", "" }, //$NON-NLS-1$ //$NON-NLS-2$
+		{ "f", "Zg==" }, //$NON-NLS-1$ //$NON-NLS-2$
+		{ "fo", "Zm8=" }, //$NON-NLS-1$ //$NON-NLS-2$
+		{ "foo", "Zm9v" }, //$NON-NLS-1$ //$NON-NLS-2$
+		{ "foob", "Zm9vYg==" }, //$NON-NLS-1$ //$NON-NLS-2$
+		{ "fooba", "Zm9vYmE=" }, //$NON-NLS-1$ //$NON-NLS-2$
+		{ "foobar", "Zm9vYmFy" } //$NON-NLS-1$ //$NON-NLS-2$
+	};
+
+	/** Comprueba la codificaci&oacute;n y descodificaci&oacute;n de los vectores de la RFC 4648.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRfc4648Vectors() throws Exception {
+		for (final String[] vector : RFC4648_VECTORS) {
+			final byte[] data = vector[0].getBytes(StandardCharsets.US_ASCII);
+			Assert.assertEquals(vector[1], Base64.encode(data));
+			Assert.assertArrayEquals(data, Base64.decode(vector[1]));
+		}
+	}
+
+	/** Comprueba que el alfabeto URL Safe se aplica al codificar y que al descodificar se
+	 * aceptan ambos alfabetos, los saltos de l&iacute;nea y la ausencia de relleno.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testAlphabets() throws Exception {
+		final byte[] data = new byte[] { (byte) 0xFB, (byte) 0xFF, (byte) 0xBF, (byte) 0xFE };
+		Assert.assertEquals("+/+//g==", Base64.encode(data)); //$NON-NLS-1$
+		Assert.assertEquals("-_-__g==", Base64.encode(data, true)); //$NON-NLS-1$
+		Assert.assertArrayEquals(data, Base64.decode("-_-__g==")); //$NON-NLS-1$
+		Assert.assertArrayEquals(data, Base64.decode("+/+//g==", true)); //$NON-NLS-1$
+		Assert.assertArrayEquals(data, Base64.decode("-/+_\r\n/g")); //$NON-NLS-1$
+	}
+
+	/** Comprueba que se rechazan los caracteres que no pertenecen a ning&uacute;n alfabeto.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test(expected = IOException.class)
+	public void testInvalidCharacter() throws Exception {
+		Base64.decode("Zm9v*mFy"); //$NON-NLS-1$
+	}
+
+	/** Comprueba que la codificaci&oacute;n sobre buffers directos, canales y flujos de datos
+	 * coincide con la de los m&eacute;todos sobre arrays.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBuffersChannelsAndStreams() throws Exception {
+		final Random random = new Random(1234);
+		for (final int size : new int[] { 1, 2, 3, 100, 6143, 6144, 6145, 100001 }) {
+			final byte[] data = new byte[size];
+			random.nextBytes(data);
+			for (final boolean urlSafe : new boolean[] { false, true }) {
+				final String expected = Base64.encode(data, urlSafe);
+
+				// Buffers directos
+				final ByteBuffer src = ByteBuffer.allocateDirect(size);
+				src.put(data).flip();
+				final ByteBuffer encoded = ByteBuffer.allocateDirect(Base64Codec.encodedLength(size));
+				Base64Codec.encode(src, encoded, urlSafe);
+				encoded.flip();
+				final byte[] encodedBytes = new byte[encoded.remaining()];
+				encoded.get(encodedBytes);
+				Assert.assertEquals(expected, new String(encodedBytes, StandardCharsets.US_ASCII));
+
+				encoded.rewind();
+				final ByteBuffer decoded = ByteBuffer.allocateDirect(Base64Codec.maxDecodedLength(encoded.remaining()));
+				Base64Codec.decode(encoded, decoded);
+				decoded.flip();
+				final byte[] decodedBytes = new byte[decoded.remaining()];
+				decoded.get(decodedBytes);
+				Assert.assertArrayEquals(data, decodedBytes);
+
+				// Canales
+				final ByteArrayOutputStream channelOut = new ByteArrayOutputStream();
+				Base64Codec.encode(
+					Channels.newChannel(new ByteArrayInputStream(data)),
+					Channels.newChannel(channelOut),
+					urlSafe
+				);
+				Assert.assertEquals(expected, new String(channelOut.toByteArray(), StandardCharsets.US_ASCII));
+
+				final ByteArrayOutputStream channelDecoded = new ByteArrayOutputStream();
+				Base64Codec.decode(
+					Channels.newChannel(new ByteArrayInputStream(channelOut.toByteArray())),
+					Channels.newChannel(channelDecoded)
+				);
+				Assert.assertArrayEquals(data, channelDecoded.toByteArray());
+
+				// Flujos, escribiendo y leyendo en bloques de tamano irregular
+				final ByteArrayOutputStream streamOut = new ByteArrayOutputStream();
+				try (final OutputStream os = new Base64OutputStream(streamOut, urlSafe)) {
+					int off = 0;
+					while (off < size) {
+						final int len = Math.min(size - off, 1 + random.nextInt(5000));
+						if (len == 1) {
+							os.write(data[off]);
+						}
+						else {
+							os.write(data, off, len);
+						}
+						off += len;
+					}
+				}
+				Assert.assertEquals(expected, new String(streamOut.toByteArray(), StandardCharsets.US_ASCII));
+
+				try (final InputStream is = new Base64InputStream(new ByteArrayInputStream(streamOut.toByteArray()))) {
+					Assert.assertArrayEquals(data, AOUtil.getDataFromInputStream(is));
+				}
+			}
+		}
+	}
+}
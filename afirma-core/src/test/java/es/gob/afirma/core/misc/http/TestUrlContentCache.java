@@ -0,0 +1,117 @@
+package es.gob.afirma.core.misc.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/** Pruebas de la cach&eacute; de contenidos remotos contra un servidor HTTP local. */
+public final class TestUrlContentCache {
+
+	private static final String ETAG = "\"v1\""; //$NON-NLS-1$
+
+	private HttpServer server;
+
+	/** Descargas completas realizadas por el servidor. */
+	final AtomicInteger downloads = new AtomicInteger();
+
+	/** Respuestas 304 enviadas por el servidor. */
+	final AtomicInteger notModified = new AtomicInteger();
+
+	/** Arranca el servidor local.
+	 * @throws IOException Si no se puede arrancar. */
+	@Before
+	public void startServer() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0); //$NON-NLS-1$
+		this.server.createContext("/", new HttpHandler() { //$NON-NLS-1$
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				final String path = exchange.getRequestURI().getPath();
+				if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) { //$NON-NLS-1$
+					TestUrlContentCache.this.notModified.incrementAndGet();
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+					return;
+				}
+				TestUrlContentCache.this.downloads.incrementAndGet();
+				final byte[] body = path.startsWith("/big") ? new byte[2048] : path.getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+				exchange.getResponseHeaders().set("ETag", ETAG); //$NON-NLS-1$
+				if (path.startsWith("/nostore")) { //$NON-NLS-1$
+					exchange.getResponseHeaders().set("Cache-Control", "no-store"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				exchange.sendResponseHeaders(200, body.length);
+				try (final OutputStream os = exchange.getResponseBody()) {
+					os.write(body);
+				}
+			}
+		});
+		this.server.start();
+	}
+
+	/** Detiene el servidor local. */
+	@After
+	public void stopServer() {
+		this.server.stop(0);
+	}
+
+	private String url(final String path) {
+		return "http://127.0.0.1:" + this.server.getAddress().getPort() + path; //$NON-NLS-1$
+	}
+
+	/** Comprueba que el contenido vigente se sirve desde la cach&eacute; y que, al caducar,
+	 * se revalida sin volver a descargarlo.
+	 * @throws Exception En cualquier error. */
+	@Test
+	public void testCacheAndRevalidation() throws Exception {
+		final UrlContentCache cache = new UrlContentCache(60000, 1024, 1024);
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals("/style.xsl", new String(cache.get(url("/style.xsl"), null), StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		Assert.assertEquals(1, this.downloads.get());
+		Assert.assertEquals(0, this.notModified.get());
+
+		final UrlContentCache expiring = new UrlContentCache(0, 1024, 1024);
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals("/style.xsl", new String(expiring.get(url("/style.xsl"), null), StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		Assert.assertEquals(2, this.downloads.get());
+		Assert.assertEquals(2, this.notModified.get());
+	}
+
+	/** Comprueba que no se guardan los contenidos demasiado grandes ni los marcados como
+	 * no almacenables, y que se descartan los menos usados al superar el tama&ntilde;o total.
+	 * @throws Exception En cualquier error. */
+	@Test
+	public void testLimits() throws Exception {
+		final UrlContentCache cache = new UrlContentCache(60000, 20, 1024);
+
+		cache.get(url("/big"), null); //$NON-NLS-1$
+		cache.get(url("/big"), null); //$NON-NLS-1$
+		Assert.assertEquals(2, this.downloads.get());
+
+		cache.get(url("/nostore"), null); //$NON-NLS-1$
+		cache.get(url("/nostore"), null); //$NON-NLS-1$
+		Assert.assertEquals(4, this.downloads.get());
+
+		// Cada contenido ocupa 8 octetos, asi que solo caben dos
+		cache.get(url("/a123456"), null); //$NON-NLS-1$
+		cache.get(url("/b123456"), null); //$NON-NLS-1$
+		cache.get(url("/a123456"), null); //$NON-NLS-1$
+		cache.get(url("/c123456"), null); //$NON-NLS-1$
+		Assert.assertEquals(7, this.downloads.get());
+		cache.get(url("/a123456"), null); //$NON-NLS-1$
+		Assert.assertEquals(7, this.downloads.get());
+		cache.get(url("/b123456"), null); //$NON-NLS-1$
+		Assert.assertEquals(8, this.downloads.get());
+	}
+}
@@ -0,0 +1,128 @@
+package es.gob.afirma.core.util.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Pruebas de los nodos de &aacute;rbol cargados bajo demanda. */
+public final class TestAOTreeNode {
+
+	/** Cargador que crea un hijo por nivel hasta la profundidad indicada. */
+	private static final class CountingLoader implements AOTreeNodeLoader {
+
+		private final int depth;
+		private final int[] loads;
+
+		CountingLoader(final int depth, final int[] loads) {
+			this.depth = depth;
+			this.loads = loads;
+		}
+
+		@Override
+		public Object loadUserObject() {
+			this.loads[0]++;
+			return "Nodo " + this.depth; //$NON-NLS-1$
+		}
+
+		@Override
+		public List<AOTreeNode> loadChildren() {
+			this.loads[1]++;
+			if (this.depth == 0) {
+				return null;
+			}
+			final List<AOTreeNode> children = new ArrayList<>();
+			children.add(new AOTreeNode(new CountingLoader(this.depth - 1, this.loads)));
+			return children;
+		}
+	}
+
+	/** Comprueba que el objeto y los hijos de cada nodo s&oacute;lo se cargan al consultarse,
+	 * una &uacute;nica vez, y que el &aacute;rbol resultante es el mismo. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testLazyLoading() {
+		final int[] loads = new int[2];
+		final AOTreeNode root = new AOTreeNode("Datos"); //$NON-NLS-1$
+		root.add(new AOTreeNode(new CountingLoader(2, loads)));
+
+		final AOTreeNode first = root.getChildAt(0);
+		Assert.assertFalse(first.isChildrenLoaded());
+		Assert.assertEquals(0, loads[0]);
+		Assert.assertEquals(0, loads[1]);
+
+		Assert.assertEquals("Nodo 2", first.getUserObject()); //$NON-NLS-1$
+		Assert.assertEquals("Nodo 2", first.toString()); //$NON-NLS-1$
+		Assert.assertEquals(1, loads[0]);
+		Assert.assertEquals(0, loads[1]);
+
+		Assert.assertEquals(1, first.getChildCount());
+		Assert.assertEquals(1, first.getChildCount());
+		Assert.assertTrue(first.isChildrenLoaded());
+		Assert.assertEquals(1, loads[1]);
+		Assert.assertSame(first, first.getChildAt(0).getParent());
+
+		Assert.assertEquals(
+			"\nNodo 2\n\tNodo 1\n\t\tNodo 0", //$NON-NLS-1$
+			AOTreeUtil.showTreeAsString(new AOTreeModel(root), "", "\t") //$NON-NLS-1$ //$NON-NLS-2$
+		);
+		Assert.assertEquals(3, loads[0]);
+		Assert.assertEquals(3, loads[1]);
+		Assert.assertTrue(first.getChildAt(0).getChildAt(0).isLeaf());
+	}
+
+	/** Comprueba que si el cargador falla el error se propaga y el nodo se vuelve a cargar
+	 * en la siguiente consulta, en lugar de quedarse vac&iacute;o. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testFailedLoadIsRetried() {
+		final int[] loads = new int[2];
+		final boolean[] fail = { true };
+		final AOTreeNode node = new AOTreeNode(new AOTreeNodeLoader() {
+			@Override
+			public Object loadUserObject() {
+				loads[0]++;
+				if (fail[0]) {
+					throw new IllegalStateException("Fallo de prueba"); //$NON-NLS-1$
+				}
+				return "Nodo"; //$NON-NLS-1$
+			}
+
+			@Override
+			public List<AOTreeNode> loadChildren() {
+				loads[1]++;
+				if (fail[0]) {
+					throw new IllegalStateException("Fallo de prueba"); //$NON-NLS-1$
+				}
+				final List<AOTreeNode> children = new ArrayList<>();
+				children.add(new AOTreeNode("Hijo")); //$NON-NLS-1$
+				return children;
+			}
+		});
+
+		try {
+			node.getUserObject();
+			Assert.fail("Deberia haberse propagado el error del cargador"); //$NON-NLS-1$
+		}
+		catch (final IllegalStateException e) {
+			// Esperado
+		}
+		try {
+			node.getChildCount();
+			Assert.fail("Deberia haberse propagado el error del cargador"); //$NON-NLS-1$
+		}
+		catch (final IllegalStateException e) {
+			// Esperado
+		}
+		Assert.assertFalse(node.isChildrenLoaded());
+
+		fail[0] = false;
+		Assert.assertEquals("Nodo", node.getUserObject()); //$NON-NLS-1$
+		Assert.assertEquals(1, node.getChildCount());
+		Assert.assertEquals("Hijo", node.getChildAt(0).getUserObject()); //$NON-NLS-1$
+		Assert.assertTrue(node.isChildrenLoaded());
+		Assert.assertEquals(2, loads[0]);
+		Assert.assertEquals(2, loads[1]);
+	}
+}
@@ -240,7 +240,7 @@ public final class BatchSigner {
 
 		byte[] ret;
 		final SSLErrorProcessor errorProcessor = new SSLErrorProcessor(extraParams);
-		final String batchUrlSafe = batchB64.replace("+", "-").replace("/",  "_");  //$NON-NLS-1$ //$NON-NLS-2$//$NON-NLS-3$ //$NON-NLS-4$
+		final String batchUrlSafe = Base64.encode(Base64.decode(batchB64), true);
 		try {
 			ret = UrlHttpManagerFactory.getInstalledManager().readUrl(
 					batchPresignerUrl + "?" + //$NON-NLS-1$
@@ -365,7 +365,7 @@ public final class BatchSigner {
 		}
 
 		byte[] ret;
-		String batchUrlSafe = batchB64.replace("+", "-").replace("/",  "_");  //$NON-NLS-1$ //$NON-NLS-2$//$NON-NLS-3$ //$NON-NLS-4$
+		String batchUrlSafe = Base64.encode(Base64.decode(batchB64), true);
 		final SSLErrorProcessor errorProcessor = new SSLErrorProcessor(extraParams);
 		try {
 			ret = UrlHttpManagerFactory.getInstalledManager().readUrl(
@@ -461,7 +461,7 @@ public final class BatchSigner {
 	 * @throws IOException error en caso de que no se lea correctamente la petici&oacute;n
 	 */
 	private static String getAlgorithmForXML(final String batch) throws IOException {
-		final byte[] xml =  Base64.decode(batch.replace("-", "+").replace("_", "/")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		final byte[] xml =  Base64.decode(batch);
 		final Document doc;
 		try (
 			final InputStream is = new ByteArrayInputStream(xml);
@@ -11,7 +11,6 @@ package es.gob.afirma.signers.multi.cades;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
@@ -33,7 +32,6 @@ import org.spongycastle.asn1.cms.AttributeTable;
 import org.spongycastle.asn1.cms.CMSAttributes;
 import org.spongycastle.asn1.cms.ContentInfo;
 import org.spongycastle.asn1.cms.IssuerAndSerialNumber;
-import org.spongycastle.asn1.cms.SignedData;
 import org.spongycastle.asn1.cms.SignerIdentifier;
 import org.spongycastle.asn1.cms.SignerInfo;
 import org.spongycastle.asn1.pkcs.PKCSObjectIdentifiers;
@@ -45,13 +43,13 @@ import org.spongycastle.cms.CMSProcessable;
 import org.spongycastle.cms.CMSProcessableByteArray;
 
 import es.gob.afirma.core.AOException;
-import es.gob.afirma.core.misc.AOUtil;
 import es.gob.afirma.core.signers.AOPkcs1Signer;
 import es.gob.afirma.core.signers.AOSignConstants;
 import es.gob.afirma.signers.cades.CAdESParameters;
 import es.gob.afirma.signers.cades.CAdESUtils;
 import es.gob.afirma.signers.pkcs7.AOAlgorithmID;
 import es.gob.afirma.signers.pkcs7.ContainsNoDataException;
+import es.gob.afirma.signers.pkcs7.LazySignedData;
 import es.gob.afirma.signers.pkcs7.SigUtils;
 
 /** Implementa la cofirma digital CADES SignedData. La
@@ -137,8 +135,8 @@ final class CAdESCoSigner {
 			                                                  NoSuchAlgorithmException,
 			                                                  CertificateException,
 			                                                  AOException {
-		// Leemos la firma de entrada
-		final SignedData sd = CAdESMultiUtil.readData(signature);
+		// Leemos la firma de entrada sin decodificar los datos firmados
+		final LazySignedData sd = LazySignedData.getInstance(signature);
 		return coSigner(sd, signatureAlgorithm, key, certChain, config);
 	}
 
@@ -159,7 +157,7 @@ final class CAdESCoSigner {
      * @throws AOException Cuando ocurre un error durante la generacion de PKCS#1 de la firma.
      */
 	static byte[] coSigner(
-			final SignedData signedData,
+			final LazySignedData signedData,
 			final String signatureAlgorithm,
 			final PrivateKey key,
 			final java.security.cert.Certificate[] certChain,
@@ -170,8 +168,8 @@ final class CAdESCoSigner {
 			                                                  AOException {
 
 		// 3. CONTENTINFO
-		// si se introduce el contenido o no
-		ContentInfo encInfo;
+		// si se introduce el contenido o no. Si es nulo, se conservara el de la firma original
+		ContentInfo encInfo = null;
 
 		// Si se proporcionaron los datos, los uso para identificar el contenido
 		if (config.getContentData() != null) {
@@ -188,26 +186,15 @@ final class CAdESCoSigner {
 		}
 		// Si no, obtenemos la informacion directamente de la firma. Si, ademas, no tenemos la huella de los datos
 		// y la firma contenia el documento
-		else {
-			encInfo = signedData.getEncapContentInfo();
-
-			if (config.getDataDigest() == null) {
-				final DEROctetString contentData = (DEROctetString) encInfo.getContent();
-				if (contentData != null) {
-					final byte[] data;
-					try (
-						final InputStream is = contentData.getOctetStream()
-					) {
-						data = AOUtil.getDataFromInputStream(is);
-					}
-					config.setDataDigest(MessageDigest.getInstance(config.getDigestAlgorithm()).digest(data));
-				}
-			}
+		else if (config.getDataDigest() == null && signedData.hasContent()) {
+			config.setDataDigest(
+				signedData.digestContent(MessageDigest.getInstance(config.getDigestAlgorithm()))
+			);
 		}
 
 		// 4. CERTIFICADOS
 		// obtenemos la lista de certificados
-		final ASN1Set certificates = CAdESMultiUtil.addCertificates(signedData, certChain);
+		final ASN1Set certificates = CAdESMultiUtil.addCertificates(signedData.getCertificates(), certChain);
 
 		// buscamos que tipo de algoritmo es y lo codificamos con su OID
 		final String digestAlgorithm = AOSignConstants.getDigestAlgorithmName(signatureAlgorithm);
@@ -297,17 +284,13 @@ final class CAdESCoSigner {
 						null));		// Atributos no firmados
 
 		// construimos el Signed Data y lo devolvemos
-		return new ContentInfo(
-			PKCSObjectIdentifiers.signedData,
-			new SignedData(
-				signedData.getDigestAlgorithms(),
-				encInfo,
-				certificates,
-				signedData.getCRLs(),
-				//null,	// CRLS no usado
-				new DERSet(signerInfos)// SignerInfos
-			)
-		).getEncoded(ASN1Encoding.DER);
+		return signedData.encode(
+			signedData.getDigestAlgorithms(),
+			encInfo,
+			certificates,
+			signedData.getCRLs(),
+			new DERSet(signerInfos)// SignerInfos
+		);
 	}
 
 	/**
@@ -23,21 +23,15 @@ import java.util.Properties;
 import org.spongycastle.asn1.ASN1Encodable;
 import org.spongycastle.asn1.ASN1EncodableVector;
 import org.spongycastle.asn1.ASN1Encoding;
-import org.spongycastle.asn1.ASN1InputStream;
-import org.spongycastle.asn1.ASN1ObjectIdentifier;
 import org.spongycastle.asn1.ASN1OctetString;
 import org.spongycastle.asn1.ASN1Primitive;
-import org.spongycastle.asn1.ASN1Sequence;
 import org.spongycastle.asn1.ASN1Set;
-import org.spongycastle.asn1.ASN1TaggedObject;
 import org.spongycastle.asn1.DEROctetString;
 import org.spongycastle.asn1.DERSet;
 import org.spongycastle.asn1.cms.Attribute;
 import org.spongycastle.asn1.cms.AttributeTable;
 import org.spongycastle.asn1.cms.CMSAttributes;
-import org.spongycastle.asn1.cms.ContentInfo;
 import org.spongycastle.asn1.cms.IssuerAndSerialNumber;
-import org.spongycastle.asn1.cms.SignedData;
 import org.spongycastle.asn1.cms.SignerIdentifier;
 import org.spongycastle.asn1.cms.SignerInfo;
 import org.spongycastle.asn1.pkcs.PKCSObjectIdentifiers;
@@ -46,7 +40,6 @@ import org.spongycastle.asn1.x509.AlgorithmIdentifier;
 import org.spongycastle.asn1.x509.TBSCertificate;
 
 import es.gob.afirma.core.AOException;
-import es.gob.afirma.core.AOFormatFileException;
 import es.gob.afirma.core.SigningLTSException;
 import es.gob.afirma.core.signers.AOPkcs1Signer;
 import es.gob.afirma.core.signers.AOSignConstants;
@@ -56,6 +49,7 @@ import es.gob.afirma.signers.cades.CAdESExtraParams;
 import es.gob.afirma.signers.cades.CAdESParameters;
 import es.gob.afirma.signers.cades.CAdESUtils;
 import es.gob.afirma.signers.pkcs7.AOAlgorithmID;
+import es.gob.afirma.signers.pkcs7.LazySignedData;
 import es.gob.afirma.signers.pkcs7.SigUtils;
 
 /** Contrafirma digital CADES SignedData.
@@ -148,33 +142,16 @@ final class CAdESCounterSigner {
                                                                                     NoSuchAlgorithmException,
                                                                                     CertificateException,
                                                                                     AOException {
-        // Leemos los datos originales (la firma que nos llega)
-    	final ASN1Sequence dsq;
-    	try (
-			final ASN1InputStream is = new ASN1InputStream(signature);
-		) {
-    		dsq = (ASN1Sequence) is.readObject();
-    	}
-        final Enumeration<?> pkcs7RootSequenceElements = dsq.getObjects();
-
-        // Pasamos el primer elemento de la secuencia original, que es el OID de SignedData
-        final Object o = pkcs7RootSequenceElements.nextElement();
-        if (!(o instanceof ASN1ObjectIdentifier) && ((ASN1ObjectIdentifier)o).equals(PKCSObjectIdentifiers.signedData)) {
-			throw new AOFormatFileException("No se ha encontrado un SignedData en los datos a contrafirmar"); //$NON-NLS-1$
-		}
-
-        // Obtenemos el Context-Specific
-        final ASN1TaggedObject pkcs7RootContextSpecificZero = (ASN1TaggedObject) pkcs7RootSequenceElements.nextElement();
-
-        // Sacamos la secuencia de dentro Context-Specific, que es ya el SignedData ASN.1
-        final SignedData signedData = SignedData.getInstance(pkcs7RootContextSpecificZero.getObject());
+        // Leemos los datos originales (la firma que nos llega). Solo se localizan sus
+        // elementos, sin decodificar el contenido firmado, que se copiara tal cual
+        final LazySignedData signedData = LazySignedData.getInstance(signature);
 
         // Obtenemos el SignerInfos (conjunto de SignerInfo) del SignedData
         final ASN1Set originalSignerInfosFromSignedData = signedData.getSignerInfos();
 
         // Anadimos los nuevos certificados a los ya existentes en el fichero de firmas
         // en un SET para anadirlo al SignedData final
-        final ASN1Set certificates = CAdESMultiUtil.addCertificates(signedData, certChain);
+        final ASN1Set certificates = CAdESMultiUtil.addCertificates(signedData.getCertificates(), certChain);
 
         // Creamos el que sera el nuevo conjunto SignerInfos (SET de muchos SignerInfo), para lo que agregamos
         // a los actuales los nuevos
@@ -190,16 +167,13 @@ final class CAdESCounterSigner {
         // Construimos y devolvemos la nueva firma (atributo identificador del signedData mas el propio signedData).
         // Esta firma sera igual a la anterior pero con el conjunto de certificados actualizados con los nuevos y la
         // nueva estructura de SignerInfos. Incluimos el listado de CRLs, aunque este puede no estar completo
-        return new ContentInfo(
-    		PKCSObjectIdentifiers.signedData,
-    		new SignedData(
-				signedData.getDigestAlgorithms(),
-                signedData.getEncapContentInfo(),
-                certificates,
-                signedData.getCRLs(),
-                new DERSet(newSignerInfos)
-			)
-		).getEncoded(ASN1Encoding.DER);
+        return signedData.encode(
+			signedData.getDigestAlgorithms(),
+            null,
+            certificates,
+            signedData.getCRLs(),
+            new DERSet(newSignerInfos)
+		);
 
     }
 
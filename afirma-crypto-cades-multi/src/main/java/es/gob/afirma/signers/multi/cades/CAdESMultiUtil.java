@@ -18,12 +18,9 @@ import java.util.List;
 
 import org.spongycastle.asn1.ASN1Encodable;
 import org.spongycastle.asn1.ASN1EncodableVector;
-import org.spongycastle.asn1.ASN1InputStream;
 import org.spongycastle.asn1.ASN1ObjectIdentifier;
 import org.spongycastle.asn1.ASN1Primitive;
-import org.spongycastle.asn1.ASN1Sequence;
 import org.spongycastle.asn1.ASN1Set;
-import org.spongycastle.asn1.ASN1TaggedObject;
 import org.spongycastle.asn1.BERSet;
 import org.spongycastle.asn1.cms.AttributeTable;
 import org.spongycastle.asn1.cms.SignedData;
@@ -63,13 +60,26 @@ public final class CAdESMultiUtil {
 	public static ASN1Set addCertificates(final SignedData sd,
 			                       final java.security.cert.Certificate[] certChain) throws CertificateEncodingException,
 			                                                                                IOException {
-		final ASN1Set certificatesSigned = sd.getCertificates();
+		return addCertificates(sd.getCertificates(), certChain);
+	}
+
+	/** Agrega una cadena de certificados a un conjunto de certificados de una firma.
+	 * @param certificatesSigned Certificados existentes en la firma. Puede ser {@code null}.
+	 * @param certChain Cadena de certificados a agregar.
+	 * @return Conjunto con todos los certificados.
+	 * @throws CertificateEncodingException Si no se puede codificar alg&uacute;n certificado de la cadena.
+	 * @throws IOException Si no se puede decodificar alg&uacute;n certificado de la cadena. */
+	public static ASN1Set addCertificates(final ASN1Set certificatesSigned,
+			                       final java.security.cert.Certificate[] certChain) throws CertificateEncodingException,
+			                                                                                IOException {
 		final ASN1EncodableVector vCertsSig = new ASN1EncodableVector();
-		final Enumeration<?> certs = certificatesSigned.getObjects();
 
 		// COGEMOS LOS CERTIFICADOS EXISTENTES EN EL FICHERO
-		while (certs.hasMoreElements()) {
-			vCertsSig.add((ASN1Encodable) certs.nextElement());
+		if (certificatesSigned != null) {
+			final Enumeration<?> certs = certificatesSigned.getObjects();
+			while (certs.hasMoreElements()) {
+				vCertsSig.add((ASN1Encodable) certs.nextElement());
+			}
 		}
 
 		// Y ANADIMOS LOS DE LA NUEVA CADENA
@@ -141,27 +151,4 @@ public final class CAdESMultiUtil {
     	return PKCSObjectIdentifiers.pkcs_9_at_counterSignature.equals(oid);
     }
 
-
-    /**
-     * Carga datos firmados.
-     * @param signature Datos firmados.
-     * @return Estructura de datos firmados.
-     * @throws IOException Cuando falla la carga de la firma
-     */
-	static SignedData readData(final byte[] signature) throws IOException {
-		final ASN1Sequence dsq;
-		try (
-			final ASN1InputStream is = new ASN1InputStream(signature);
-		) {
-			dsq = (ASN1Sequence) is.readObject();
-		}
-		final Enumeration<?> e = dsq.getObjects();
-		// Elementos que contienen los elementos OID SignedData
-		e.nextElement();
-		// Contenido de SignedData
-		final ASN1TaggedObject doj = (ASN1TaggedObject) e.nextElement();
-		final ASN1Sequence contentSignedData = (ASN1Sequence) doj.getObject(); // contenido del SignedData
-
-		return SignedData.getInstance(contentSignedData);
-	}
 }
@@ -26,13 +26,11 @@ import java.util.Map;
 import org.spongycastle.asn1.ASN1Encodable;
 import org.spongycastle.asn1.ASN1EncodableVector;
 import org.spongycastle.asn1.ASN1Encoding;
-import org.spongycastle.asn1.ASN1InputStream;
 import org.spongycastle.asn1.ASN1ObjectIdentifier;
 import org.spongycastle.asn1.ASN1OctetString;
 import org.spongycastle.asn1.ASN1Primitive;
 import org.spongycastle.asn1.ASN1Sequence;
 import org.spongycastle.asn1.ASN1Set;
-import org.spongycastle.asn1.ASN1TaggedObject;
 import org.spongycastle.asn1.ASN1UTCTime;
 import org.spongycastle.asn1.BERSet;
 import org.spongycastle.asn1.DEROctetString;
@@ -41,9 +39,7 @@ import org.spongycastle.asn1.DERSet;
 import org.spongycastle.asn1.cms.Attribute;
 import org.spongycastle.asn1.cms.AttributeTable;
 import org.spongycastle.asn1.cms.CMSAttributes;
-import org.spongycastle.asn1.cms.ContentInfo;
 import org.spongycastle.asn1.cms.IssuerAndSerialNumber;
-import org.spongycastle.asn1.cms.SignedData;
 import org.spongycastle.asn1.cms.SignerIdentifier;
 import org.spongycastle.asn1.cms.SignerInfo;
 import org.spongycastle.asn1.pkcs.PKCSObjectIdentifiers;
@@ -57,6 +53,7 @@ import es.gob.afirma.core.AOException;
 import es.gob.afirma.core.signers.AOSignConstants;
 import es.gob.afirma.core.signers.CounterSignTarget;
 import es.gob.afirma.signers.pkcs7.AOAlgorithmID;
+import es.gob.afirma.signers.pkcs7.LazySignedData;
 import es.gob.afirma.signers.pkcs7.P7ContentSignerParameters;
 import es.gob.afirma.signers.pkcs7.SigUtils;
 
@@ -105,22 +102,8 @@ final class CounterSigner {
         this.atrib2 = atri;
         this.uatrib2 = uatri;
 
-        // LEEMOS EL FICHERO QUE NOS INTRODUCEN
-        final ASN1Sequence dsq;
-        try (
-    		final ASN1InputStream is = new ASN1InputStream(data);
-		) {
-        	dsq = (ASN1Sequence) is.readObject();
-        }
-
-        final Enumeration<?> e = dsq.getObjects();
-        // Elementos que contienen los elementos OID SignedData
-        e.nextElement();
-        // Contenido de SignedData
-        final ASN1TaggedObject doj = (ASN1TaggedObject) e.nextElement();
-        final ASN1Sequence contentSignedData = (ASN1Sequence) doj.getObject();
-
-        final SignedData sd = SignedData.getInstance(contentSignedData);
+        // LEEMOS EL FICHERO QUE NOS INTRODUCEN, sin decodificar el contenido firmado
+        final LazySignedData sd = LazySignedData.getInstance(data);
 
         // Obtenemos los signerInfos del SignedData
         final ASN1Set signerInfosSd = sd.getSignerInfos();
@@ -131,11 +114,13 @@ final class CounterSigner {
 
         final ASN1Set certificatesSigned = sd.getCertificates();
         final ASN1EncodableVector vCertsSig = new ASN1EncodableVector();
-        final Enumeration<?> certs = certificatesSigned.getObjects();
 
         // COGEMOS LOS CERTIFICADOS EXISTENTES EN EL FICHERO
-        while (certs.hasMoreElements()) {
-            vCertsSig.add((ASN1Encodable) certs.nextElement());
+        if (certificatesSigned != null) {
+            final Enumeration<?> certs = certificatesSigned.getObjects();
+            while (certs.hasMoreElements()) {
+                vCertsSig.add((ASN1Encodable) certs.nextElement());
+            }
         }
 
         if (certChain.length != 0) {
@@ -163,36 +148,36 @@ final class CounterSigner {
         // FIRMA DE NODOS O FIRMANTES CONCRETOS
         else if (CounterSignTarget.NODES.equals(targetType) || targetType.equals(CounterSignTarget.SIGNERS)) {
 
-            SignedData aux = sd;
+            ASN1Set auxSignerInfos = signerInfosSd;
+            ASN1Set auxCertificates = sd.getCertificates();
+            ASN1Set auxCrls = sd.getCRLs();
 
             for (int i = targets.length - 1; i >= 0; i--) {
                 signerInfos = counterNode(
-            		aux,
+            		auxSignerInfos,
             		parameters,
             		key,
             		certChain,
             		targets[i]
         		);
-                final SignedData sigDat = new SignedData(
-            		sd.getDigestAlgorithms(),
-            		sd.getEncapContentInfo(),
-            		certificates,
-            		certrevlist,
-            		new DERSet(signerInfos)
-        		);
 
-                // Esto se realiza asi por problemas con los casting.
-                final ASN1Sequence contentSignedData2;
-                try (
-            		final ASN1InputStream sd2 = new ASN1InputStream(sigDat.getEncoded(ASN1Encoding.DER));
-        		) {
-                	contentSignedData2 = (ASN1Sequence) sd2.readObject();// contenido del SignedData
-                }
-                aux = SignedData.getInstance(contentSignedData2);
+                // Esto se realiza asi por problemas con los casting. Solo se recodifican
+                // los SignerInfos, no el SignedData completo.
+                auxSignerInfos = ASN1Set.getInstance(
+            		ASN1Primitive.fromByteArray(new DERSet(signerInfos).getEncoded(ASN1Encoding.DER))
+        		);
+                auxCertificates = certificates;
+                auxCrls = certrevlist;
             }
 
             // construimos el Signed Data y lo devolvemos
-            return new ContentInfo(PKCSObjectIdentifiers.signedData, aux).getEncoded(ASN1Encoding.DER);
+            return sd.encode(
+        		sd.getDigestAlgorithms(),
+        		null,
+        		auxCertificates,
+        		auxCrls,
+        		auxSignerInfos
+    		);
         }
 
         else {
@@ -202,16 +187,13 @@ final class CounterSigner {
         }
 
         // construimos el Signed Data y lo devolvemos
-        return new ContentInfo(
-    		PKCSObjectIdentifiers.signedData,
-    		new SignedData(
-				sd.getDigestAlgorithms(),
-				sd.getEncapContentInfo(),
-				certificates,
-				certrevlist,
-				new DERSet(signerInfos)
-			)
-		).getEncoded(ASN1Encoding.DER);
+        return sd.encode(
+    		sd.getDigestAlgorithms(),
+    		null,
+    		certificates,
+    		certrevlist,
+    		new DERSet(signerInfos)
+		);
 
     }
 
@@ -285,7 +267,7 @@ final class CounterSigner {
 
     /** Contrafirma un nodo determinado del arbol buscandolo de
      * forma recursiva.<br>
-     * @param sd <code>SignedData</code> que contiene el Nodo ra&iacute;z.
+     * @param signerInfosRaiz <code>SignerInfos</code> del <code>SignedData</code> que contiene el Nodo ra&iacute;z.
      * @param parameters Par&aacute;metros necesarios para firmar un determinado
      *                   <code>SignerInfo</code> hoja.
      * @param key Clave privada a usar para firmar.
@@ -296,7 +278,7 @@ final class CounterSigner {
      * @throws java.io.IOException Si ocurren problemas durante la lectura de datos
      * @throws java.security.cert.CertificateException SI ocurren problemas en el tratamiento de los certificados
      * @throws AOException EN caso de cualquier otro error */
-    private ASN1EncodableVector counterNode(final SignedData sd,
+    private ASN1EncodableVector counterNode(final ASN1Set signerInfosRaiz,
                                             final P7ContentSignerParameters parameters,
                                             final PrivateKey key,
                                             final java.security.cert.Certificate[] certChain,
@@ -305,8 +287,6 @@ final class CounterSigner {
                                                                    CertificateException,
                                                                    AOException {
 
-        final ASN1Set signerInfosRaiz = sd.getSignerInfos();
-
         final ASN1EncodableVector counterSigners = new ASN1EncodableVector();
         ASN1Set auxSignerRaiz;
 
@@ -0,0 +1,502 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signers.pkcs7;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.spongycastle.asn1.ASN1Encodable;
+import org.spongycastle.asn1.ASN1Encoding;
+import org.spongycastle.asn1.ASN1InputStream;
+import org.spongycastle.asn1.ASN1ObjectIdentifier;
+import org.spongycastle.asn1.ASN1Primitive;
+import org.spongycastle.asn1.ASN1Sequence;
+import org.spongycastle.asn1.ASN1Set;
+import org.spongycastle.asn1.ASN1TaggedObject;
+import org.spongycastle.asn1.cms.ContentInfo;
+import org.spongycastle.asn1.cms.SignedData;
+import org.spongycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.spongycastle.asn1.x500.X500Name;
+
+/** Vista perezosa de una estructura PKCS#7/CMS <i>SignedData</i> (envuelta en su <i>ContentInfo</i>).
+ * Al crearla s&oacute;lo se recorren las cabeceras ASN.1 para localizar cada elemento del
+ * <i>SignedData</i>, sin decodificar el contenido encapsulado, del que &uacute;nicamente se
+ * registra su posici&oacute;n. Los certificados, CRL y <i>SignerInfos</i> se decodifican cuando
+ * se solicitan, los certificados se indexan por emisor y n&uacute;mero de serie y, al volver a
+ * codificar la estructura, el contenido encapsulado se copia tal cual de la firma original.
+ * <pre>
+ *  SignedData ::= SEQUENCE {
+ *       version CMSVersion,
+ *       digestAlgorithms DigestAlgorithmIdentifiers,
+ *       encapContentInfo EncapsulatedContentInfo,
+ *       certificates [0] IMPLICIT CertificateSet OPTIONAL,
+ *       crls [1] IMPLICIT RevocationInfoChoices OPTIONAL,
+ *       signerInfos SignerInfos
+ *  }
+ * </pre> */
+public final class LazySignedData {
+
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	private static final int TAG_INTEGER = 0x02;
+	private static final int TAG_OCTET_STRING = 0x04;
+	private static final int TAG_OCTET_STRING_CONSTRUCTED = 0x24;
+	private static final int TAG_OID = 0x06;
+	private static final int TAG_SEQUENCE = 0x30;
+	private static final int TAG_SET = 0x31;
+	private static final int TAG_CONTEXT_0 = 0xA0;
+	private static final int TAG_CONTEXT_1 = 0xA1;
+
+	private final byte[] encoded;
+
+	private final Tlv digestAlgorithms;
+	private final Tlv encapContentInfo;
+	private final Tlv certificates;
+	private final Tlv crls;
+	private final Tlv signerInfos;
+
+	private Map<BigInteger, List<X509Certificate>> certificatesIndex = null;
+
+	private LazySignedData(final byte[] encoded,
+			               final Tlv digestAlgorithms,
+			               final Tlv encapContentInfo,
+			               final Tlv certificates,
+			               final Tlv crls,
+			               final Tlv signerInfos) {
+		this.encoded = encoded;
+		this.digestAlgorithms = digestAlgorithms;
+		this.encapContentInfo = encapContentInfo;
+		this.certificates = certificates;
+		this.crls = crls;
+		this.signerInfos = signerInfos;
+	}
+
+	/** Localiza los elementos de una firma PKCS#7/CMS <i>SignedData</i>. Los datos no se copian,
+	 * por lo que no deben modificarse mientras se use la vista.
+	 * @param signature Firma <i>SignedData</i> envuelta en un <i>ContentInfo</i>.
+	 * @return Vista de la firma.
+	 * @throws IOException Si los datos no son un <i>SignedData</i> bien formado. */
+	public static LazySignedData getInstance(final byte[] signature) throws IOException {
+		if (signature == null) {
+			throw new IllegalArgumentException("La firma no puede ser nula"); //$NON-NLS-1$
+		}
+
+		final Tlv contentInfo = Tlv.read(signature, 0, signature.length);
+		checkTag(contentInfo, TAG_SEQUENCE, "ContentInfo"); //$NON-NLS-1$
+
+		final Tlv contentType = Tlv.read(signature, contentInfo.contentOffset, contentInfo.contentEnd);
+		checkTag(contentType, TAG_OID, "contentType"); //$NON-NLS-1$
+		if (!PKCSObjectIdentifiers.signedData.equals(
+				ASN1ObjectIdentifier.getInstance(parse(signature, contentType)))) {
+			throw new IOException("Los datos no contienen un SignedData"); //$NON-NLS-1$
+		}
+
+		final Tlv explicitContent = Tlv.read(signature, contentType.end, contentInfo.contentEnd);
+		checkTag(explicitContent, TAG_CONTEXT_0, "content"); //$NON-NLS-1$
+
+		final Tlv signedData = Tlv.read(signature, explicitContent.contentOffset, explicitContent.contentEnd);
+		checkTag(signedData, TAG_SEQUENCE, "SignedData"); //$NON-NLS-1$
+
+		final Tlv version = Tlv.read(signature, signedData.contentOffset, signedData.contentEnd);
+		checkTag(version, TAG_INTEGER, "version"); //$NON-NLS-1$
+
+		final Tlv digestAlgs = Tlv.read(signature, version.end, signedData.contentEnd);
+		checkTag(digestAlgs, TAG_SET, "digestAlgorithms"); //$NON-NLS-1$
+
+		final Tlv encapContent = Tlv.read(signature, digestAlgs.end, signedData.contentEnd);
+		checkTag(encapContent, TAG_SEQUENCE, "encapContentInfo"); //$NON-NLS-1$
+
+		Tlv next = Tlv.read(signature, encapContent.end, signedData.contentEnd);
+		Tlv certs = null;
+		if (next.tag == TAG_CONTEXT_0) {
+			certs = next;
+			next = Tlv.read(signature, certs.end, signedData.contentEnd);
+		}
+		Tlv revocationInfo = null;
+		if (next.tag == TAG_CONTEXT_1) {
+			revocationInfo = next;
+			next = Tlv.read(signature, revocationInfo.end, signedData.contentEnd);
+		}
+		checkTag(next, TAG_SET, "signerInfos"); //$NON-NLS-1$
+
+		return new LazySignedData(signature, digestAlgs, encapContent, certs, revocationInfo, next);
+	}
+
+	/** Obtiene los algoritmos de huella declarados en la firma.
+	 * @return Conjunto de algoritmos de huella.
+	 * @throws IOException Si no se pueden decodificar. */
+	public ASN1Set getDigestAlgorithms() throws IOException {
+		return ASN1Set.getInstance(parse(this.encoded, this.digestAlgorithms));
+	}
+
+	/** Obtiene el tipo del contenido encapsulado sin decodificar el contenido.
+	 * @return OID del tipo de contenido.
+	 * @throws IOException Si no se puede decodificar. */
+	public ASN1ObjectIdentifier getContentType() throws IOException {
+		final Tlv eContentType = Tlv.read(
+			this.encoded,
+			this.encapContentInfo.contentOffset,
+			this.encapContentInfo.contentEnd
+		);
+		checkTag(eContentType, TAG_OID, "eContentType"); //$NON-NLS-1$
+		return ASN1ObjectIdentifier.getInstance(parse(this.encoded, eContentType));
+	}
+
+	/** Indica si la firma contiene los datos firmados (firma impl&iacute;cita).
+	 * @return {@code true} si la firma contiene los datos, {@code false} en caso contrario.
+	 * @throws IOException Si la estructura del contenido encapsulado no es v&aacute;lida. */
+	public boolean hasContent() throws IOException {
+		return getContentTlv() != null;
+	}
+
+	/** Calcula la huella digital de los datos encapsulados en la firma leyendo directamente
+	 * sus octetos, sin copiarlos ni decodificarlos como objetos ASN.1.
+	 * @param md Algoritmo de huella a usar.
+	 * @return Huella de los datos o {@code null} si la firma no contiene los datos.
+	 * @throws IOException Si la estructura del contenido encapsulado no es v&aacute;lida. */
+	public byte[] digestContent(final MessageDigest md) throws IOException {
+		final Tlv content = getContentTlv();
+		if (content == null) {
+			return null;
+		}
+		final Tlv octetString = Tlv.read(this.encoded, content.contentOffset, content.contentEnd);
+		updateDigest(md, octetString);
+		return md.digest();
+	}
+
+	/** Obtiene los certificados incluidos en la firma.
+	 * @return Conjunto de certificados o {@code null} si la firma no los incluye.
+	 * @throws IOException Si no se pueden decodificar. */
+	public ASN1Set getCertificates() throws IOException {
+		return this.certificates != null ?
+			ASN1Set.getInstance((ASN1TaggedObject) parse(this.encoded, this.certificates), false) :
+				null;
+	}
+
+	/** Obtiene las CRL incluidas en la firma.
+	 * @return Conjunto de CRL o {@code null} si la firma no las incluye.
+	 * @throws IOException Si no se pueden decodificar. */
+	public ASN1Set getCRLs() throws IOException {
+		return this.crls != null ?
+			ASN1Set.getInstance((ASN1TaggedObject) parse(this.encoded, this.crls), false) :
+				null;
+	}
+
+	/** Obtiene los <i>SignerInfos</i> de la firma.
+	 * @return Conjunto de <i>SignerInfo</i>.
+	 * @throws IOException Si no se pueden decodificar. */
+	public ASN1Set getSignerInfos() throws IOException {
+		return ASN1Set.getInstance(parse(this.encoded, this.signerInfos));
+	}
+
+	/** Busca entre los certificados de la firma el de un firmante. Los certificados se
+	 * decodifican e indexan por n&uacute;mero de serie la primera vez que se llama a este
+	 * m&eacute;todo. Si hay varios certificados con el mismo n&uacute;mero de serie, se devuelve
+	 * el del emisor indicado o, si ninguno coincide, el primero de ellos.
+	 * @param issuer Emisor del certificado. Puede ser {@code null}.
+	 * @param serialNumber N&uacute;mero de serie del certificado.
+	 * @return Certificado o {@code null} si la firma no lo contiene. */
+	public synchronized X509Certificate getCertificate(final X500Name issuer, final BigInteger serialNumber) {
+		if (this.certificatesIndex == null) {
+			this.certificatesIndex = buildCertificatesIndex();
+		}
+		final List<X509Certificate> candidates = this.certificatesIndex.get(serialNumber);
+		if (candidates == null || candidates.isEmpty()) {
+			return null;
+		}
+		if (issuer != null && candidates.size() > 1) {
+			for (final X509Certificate cert : candidates) {
+				try {
+					if (issuer.equals(X500Name.getInstance(cert.getIssuerX500Principal().getEncoded()))) {
+						return cert;
+					}
+				}
+				catch (final Exception e) {
+					LOGGER.warning("No se ha podido analizar el emisor de un certificado de la firma: " + e); //$NON-NLS-1$
+				}
+			}
+		}
+		return candidates.get(0);
+	}
+
+	/** Codifica una nueva firma <i>SignedData</i> con los elementos indicados. Si no se indica un
+	 * nuevo contenido encapsulado se copian sin modificar los octetos del contenido encapsulado
+	 * de esta firma. El resto de elementos se codifican en DER.
+	 * @param digestAlgs Algoritmos de huella.
+	 * @param newEncapContentInfo Nuevo contenido encapsulado o {@code null} para conservar el actual.
+	 * @param certs Certificados o {@code null} si no se desea incluirlos.
+	 * @param revocationInfo CRL o {@code null} si no se desea incluirlas.
+	 * @param signers Conjunto de <i>SignerInfo</i>.
+	 * @return <i>ContentInfo</i> codificado con el nuevo <i>SignedData</i>.
+	 * @throws IOException Si no se puede codificar alguno de los elementos. */
+	public byte[] encode(final ASN1Set digestAlgs,
+			             final ContentInfo newEncapContentInfo,
+			             final ASN1Set certs,
+			             final ASN1Set revocationInfo,
+			             final ASN1Set signers) throws IOException {
+
+		// Construimos el SignedData con un contenido sin datos para que se calcule la version
+		// y se compongan los elementos opcionales, pero sin volver a codificar los datos
+		final ContentInfo encapContent = newEncapContentInfo != null ?
+			newEncapContentInfo : new ContentInfo(getContentType(), null);
+		final ASN1Sequence signedDataSeq = (ASN1Sequence) new SignedData(
+			digestAlgs,
+			encapContent,
+			certs,
+			revocationInfo,
+			signers
+		).toASN1Primitive();
+
+		final List<byte[]> elements = new ArrayList<>(signedDataSeq.size());
+		int signedDataLength = 0;
+		for (int i = 0; i < signedDataSeq.size(); i++) {
+			// El tercer elemento es el contenido encapsulado
+			if (i == 2 && newEncapContentInfo == null) {
+				elements.add(null);
+				signedDataLength += this.encapContentInfo.end - this.encapContentInfo.offset;
+			}
+			else {
+				final byte[] element = signedDataSeq.getObjectAt(i).toASN1Primitive().getEncoded(ASN1Encoding.DER);
+				elements.add(element);
+				signedDataLength += element.length;
+			}
+		}
+
+		final byte[] contentTypeOid = PKCSObjectIdentifiers.signedData.getEncoded(ASN1Encoding.DER);
+		final int signedDataTotal = headerLength(signedDataLength) + signedDataLength;
+		final int explicitTotal = headerLength(signedDataTotal) + signedDataTotal;
+		final int contentInfoLength = contentTypeOid.length + explicitTotal;
+
+		final byte[] out = new byte[headerLength(contentInfoLength) + contentInfoLength];
+		int pos = writeHeader(out, 0, TAG_SEQUENCE, contentInfoLength);
+		System.arraycopy(contentTypeOid, 0, out, pos, contentTypeOid.length);
+		pos += contentTypeOid.length;
+		pos = writeHeader(out, pos, TAG_CONTEXT_0, signedDataTotal);
+		pos = writeHeader(out, pos, TAG_SEQUENCE, signedDataLength);
+		for (final byte[] element : elements) {
+			if (element == null) {
+				final int len = this.encapContentInfo.end - this.encapContentInfo.offset;
+				System.arraycopy(this.encoded, this.encapContentInfo.offset, out, pos, len);
+				pos += len;
+			}
+			else {
+				System.arraycopy(element, 0, out, pos, element.length);
+				pos += element.length;
+			}
+		}
+		return out;
+	}
+
+	private Tlv getContentTlv() throws IOException {
+		final Tlv eContentType = Tlv.read(
+			this.encoded,
+			this.encapContentInfo.contentOffset,
+			this.encapContentInfo.contentEnd
+		);
+		if (eContentType.end >= this.encapContentInfo.contentEnd) {
+			return null;
+		}
+		final Tlv content = Tlv.read(this.encoded, eContentType.end, this.encapContentInfo.contentEnd);
+		checkTag(content, TAG_CONTEXT_0, "eContent"); //$NON-NLS-1$
+		return content;
+	}
+
+	private void updateDigest(final MessageDigest md, final Tlv octetString) throws IOException {
+		if (octetString.tag == TAG_OCTET_STRING) {
+			md.update(this.encoded, octetString.contentOffset, octetString.contentEnd - octetString.contentOffset);
+		}
+		else if (octetString.tag == TAG_OCTET_STRING_CONSTRUCTED) {
+			// Codificacion BER por fragmentos
+			int pos = octetString.contentOffset;
+			while (pos < octetString.contentEnd) {
+				final Tlv fragment = Tlv.read(this.encoded, pos, octetString.contentEnd);
+				updateDigest(md, fragment);
+				pos = fragment.end;
+			}
+		}
+		else {
+			throw new IOException("El contenido encapsulado no es un OCTET STRING: " + Integer.toHexString(octetString.tag)); //$NON-NLS-1$
+		}
+	}
+
+	private Map<BigInteger, List<X509Certificate>> buildCertificatesIndex() {
+		final Map<BigInteger, List<X509Certificate>> index = new HashMap<>();
+		final ASN1Set certSet;
+		try {
+			certSet = getCertificates();
+		}
+		catch (final IOException e) {
+			LOGGER.severe("No se han podido decodificar los certificados de la firma: " + e); //$NON-NLS-1$
+			return index;
+		}
+		if (certSet == null) {
+			return index;
+		}
+		final CertificateFactory cf;
+		try {
+			cf = CertificateFactory.getInstance("X.509"); //$NON-NLS-1$
+		}
+		catch (final Exception e) {
+			LOGGER.severe("No se ha podido obtener la factoria de certificados: " + e); //$NON-NLS-1$
+			return index;
+		}
+		final Enumeration<?> certs = certSet.getObjects();
+		while (certs.hasMoreElements()) {
+			final X509Certificate c;
+			try {
+				c = (X509Certificate) cf.generateCertificate(
+					new ByteArrayInputStream(((ASN1Encodable) certs.nextElement()).toASN1Primitive().getEncoded())
+				);
+			}
+			catch (final Exception e) {
+				LOGGER.severe("Error extrayendo los certificados del Set ASN.1, puede que se haya omitido un elemento valido: " + e); //$NON-NLS-1$
+				continue;
+			}
+			List<X509Certificate> sameSerial = index.get(c.getSerialNumber());
+			if (sameSerial == null) {
+				sameSerial = new ArrayList<>(1);
+				index.put(c.getSerialNumber(), sameSerial);
+			}
+			sameSerial.add(c);
+		}
+		return index;
+	}
+
+	private static ASN1Primitive parse(final byte[] data, final Tlv tlv) throws IOException {
+		final int len = tlv.end - tlv.offset;
+		try (
+			final ASN1InputStream is = new ASN1InputStream(new ByteArrayInputStream(data, tlv.offset, len), len);
+		) {
+			return is.readObject();
+		}
+	}
+
+	private static void checkTag(final Tlv tlv, final int expectedTag, final String element) throws IOException {
+		if (tlv.tag != expectedTag) {
+			throw new IOException(
+				"Se esperaba el elemento " + element + " del SignedData y se encontro la etiqueta ASN.1 " + Integer.toHexString(tlv.tag) //$NON-NLS-1$ //$NON-NLS-2$
+			);
+		}
+	}
+
+	private static int headerLength(final int length) {
+		if (length < 0x80) {
+			return 2;
+		}
+		int n = 1;
+		int l = length;
+		while ((l >>>= 8) != 0) {
+			n++;
+		}
+		return 2 + n;
+	}
+
+	private static int writeHeader(final byte[] out, final int offset, final int tag, final int length) {
+		int pos = offset;
+		out[pos++] = (byte) tag;
+		if (length < 0x80) {
+			out[pos++] = (byte) length;
+			return pos;
+		}
+		final int n = headerLength(length) - 2;
+		out[pos++] = (byte) (0x80 | n);
+		for (int i = n - 1; i >= 0; i--) {
+			out[pos++] = (byte) (length >>> 8 * i);
+		}
+		return pos;
+	}
+
+	/** Posici&oacute;n de un elemento TLV de ASN.1 (DER o BER) dentro de un array de octetos. */
+	private static final class Tlv {
+
+		final int tag;
+		final int offset;
+		final int contentOffset;
+		final int contentEnd;
+		final int end;
+
+		private Tlv(final int tag, final int offset, final int contentOffset, final int contentEnd, final int end) {
+			this.tag = tag;
+			this.offset = offset;
+			this.contentOffset = contentOffset;
+			this.contentEnd = contentEnd;
+			this.end = end;
+		}
+
+		/** Lee la cabecera de un elemento ASN.1 y localiza su final sin decodificar su contenido.
+		 * Los elementos de longitud indefinida se recorren hasta su marca de fin.
+		 * @param data Datos ASN.1.
+		 * @param offset Posici&oacute;n del elemento.
+		 * @param limit Posici&oacute;n m&aacute;xima en la que puede terminar el elemento.
+		 * @return Posici&oacute;n del elemento.
+		 * @throws IOException Si la codificaci&oacute;n no es v&aacute;lida. */
+		static Tlv read(final byte[] data, final int offset, final int limit) throws IOException {
+			int pos = offset;
+			if (pos >= limit) {
+				throw new IOException("Fin inesperado de los datos ASN.1 en la posicion " + pos); //$NON-NLS-1$
+			}
+			final int tag = data[pos++] & 0xff;
+			if ((tag & 0x1f) == 0x1f) {
+				// Etiqueta de numero alto, la ignoramos hasta su ultimo octeto
+				do {
+					if (pos >= limit) {
+						throw new IOException("Etiqueta ASN.1 truncada en la posicion " + offset); //$NON-NLS-1$
+					}
+				} while ((data[pos++] & 0x80) != 0);
+			}
+			if (pos >= limit) {
+				throw new IOException("Longitud ASN.1 truncada en la posicion " + offset); //$NON-NLS-1$
+			}
+			int length = data[pos++] & 0xff;
+
+			// Longitud indefinida
+			if (length == 0x80) {
+				if ((tag & 0x20) == 0) {
+					throw new IOException("Longitud indefinida en un elemento ASN.1 primitivo en la posicion " + offset); //$NON-NLS-1$
+				}
+				int p = pos;
+				while (true) {
+					if (p + 1 < limit && data[p] == 0 && data[p + 1] == 0) {
+						return new Tlv(tag, offset, pos, p, p + 2);
+					}
+					p = read(data, p, limit).end;
+				}
+			}
+
+			if (length > 0x7f) {
+				final int n = length & 0x7f;
+				if (n > 4 || pos + n > limit) {
+					throw new IOException("Longitud ASN.1 no soportada en la posicion " + offset); //$NON-NLS-1$
+				}
+				length = 0;
+				for (int i = 0; i < n; i++) {
+					length = length << 8 | data[pos++] & 0xff;
+				}
+				if (length < 0) {
+					throw new IOException("Longitud ASN.1 no soportada en la posicion " + offset); //$NON-NLS-1$
+				}
+			}
+			if (length > limit - pos) {
+				throw new IOException("Elemento ASN.1 truncado en la posicion " + offset); //$NON-NLS-1$
+			}
+			return new Tlv(tag, offset, pos, pos + length, pos + length);
+		}
+	}
+}
@@ -9,9 +9,7 @@
 
 package es.gob.afirma.signers.pkcs7;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -23,17 +21,13 @@ import java.util.logging.Logger;
 
 import org.spongycastle.asn1.ASN1Encodable;
 import org.spongycastle.asn1.ASN1GeneralizedTime;
-import org.spongycastle.asn1.ASN1InputStream;
-import org.spongycastle.asn1.ASN1Integer;
 import org.spongycastle.asn1.ASN1ObjectIdentifier;
 import org.spongycastle.asn1.ASN1Sequence;
 import org.spongycastle.asn1.ASN1Set;
-import org.spongycastle.asn1.ASN1TaggedObject;
 import org.spongycastle.asn1.ASN1UTCTime;
 import org.spongycastle.asn1.cms.Attribute;
 import org.spongycastle.asn1.cms.CMSAttributes;
 import org.spongycastle.asn1.cms.IssuerAndSerialNumber;
-import org.spongycastle.asn1.cms.SignedData;
 import org.spongycastle.asn1.cms.SignerInfo;
 import org.spongycastle.asn1.pkcs.PKCSObjectIdentifiers;
 
@@ -41,6 +35,7 @@ import es.gob.afirma.core.misc.AOUtil;
 import es.gob.afirma.core.signers.AOSimpleSignInfo;
 import es.gob.afirma.core.util.tree.AOTreeModel;
 import es.gob.afirma.core.util.tree.AOTreeNode;
+import es.gob.afirma.core.util.tree.AOTreeNodeLoader;
 
 
 /** Clase que genera las listas de nodos o de firmantes que existe en un fichero. */
@@ -48,12 +43,14 @@ public final class ReadNodesTree {
 
     private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
 
+    /** Nombre del nodo ra&iacute;z del &aacute;rbol. */
+    private static final String ROOT_NAME = "Datos"; //$NON-NLS-1$
+
     private String stringRetorn = ""; //$NON-NLS-1$
     private AOTreeNode rama;
     private AOTreeNode rama2;
     private int seleccionados[];
     private final List<String> lista = new ArrayList<>();
-    private final List<X509Certificate[]> listaCert = new ArrayList<>();
 
     int[] getSeleccionados() {
         return this.seleccionados != null ? this.seleccionados.clone() : null;
@@ -71,7 +68,10 @@ public final class ReadNodesTree {
         this.stringRetorn = stringRetorn;
     }
 
-    /** Genera el &aacute;rbol que representa las firmas.
+    /** Genera el &aacute;rbol que representa las firmas. Cuando se extrae la informaci&oacute;n
+     * b&aacute;sica de las firmas, al generar el &aacute;rbol s&oacute;lo se comprueba la
+     * estructura de los firmantes de primer nivel. Sus certificados, sus datos y sus
+     * contrafirmas no se obtienen hasta que se consulta o se expande el nodo correspondiente.
      * @param data
      *        Archivo que contiene la firma.
      * @param asSimpleSignInfo
@@ -83,65 +83,45 @@ public final class ReadNodesTree {
      *         datos */
     public AOTreeModel readNodesTree(final byte[] data, final boolean asSimpleSignInfo) throws IOException {
 
-        // LEEMOS EL FICHERO QUE NOS INTRODUCEN
-    	final ASN1Sequence dsq;
-    	try (
-			final ASN1InputStream is = new ASN1InputStream(data);
-		) {
-    		dsq = (ASN1Sequence) is.readObject();
-    	}
-        final Enumeration<?> contentsData = dsq.getObjects();
-
-        // Elementos que contienen los elementos OID SignedData
-        contentsData.nextElement();
-
-        // Contenido de SignedData
-        final ASN1TaggedObject doj = (ASN1TaggedObject) contentsData.nextElement();
-        final ASN1Sequence contentSignedData = (ASN1Sequence) doj.getObject();
+        // Localizamos los elementos del SignedData sin decodificar el contenido firmado
+        final LazySignedData sd = LazySignedData.getInstance(data);
 
         // Raiz de la secuencia de SignerInfo
         // Obtenemos los signerInfos del SignedData
         ASN1Set signerInfosSd = null;
-        ASN1Set certificates = null;
         try {
-            final SignedData sd = SignedData.getInstance(contentSignedData);
             signerInfosSd = sd.getSignerInfos();
-            certificates = sd.getCertificates();
         }
         catch (final Exception e) {
             LOGGER.severe("Error obteniendo los SignerInfos del SignedData: " + e); //$NON-NLS-1$
         }
 
-        // Para la creacion del arbol
-        final AOTreeNode raiz = new AOTreeNode("Datos"); //$NON-NLS-1$
-
-        // introducimos el nuevo SignerInfo del firmante actual.
-
         if (asSimpleSignInfo && signerInfosSd != null) {
+            // Solo comprobamos ahora la estructura de los SignerInfo de primer nivel, sin
+            // decodificar los certificados ni recorrer las contrafirmas
+            final List<ASN1Sequence> signerInfos = new ArrayList<>();
             for (int i = 0; i < signerInfosSd.size(); i++) {
-                final ASN1Sequence atribute = (ASN1Sequence) signerInfosSd.getObjectAt(i);
-                final IssuerAndSerialNumber issuerSerial = IssuerAndSerialNumber.getInstance(atribute.getObjectAt(1));
-                final X509Certificate[] nameSigner = searchCert(certificates, issuerSerial.getSerialNumber());
-                final SignerInfo si = SignerInfo.getInstance(atribute);
-                final Date signingTime = getSigningTime(si);
-                final AOSimpleSignInfo aossi = new AOSimpleSignInfo(nameSigner, signingTime);
-                aossi.setPkcs1(si.getEncryptedDigest().getOctets());
-                aossi.setSignAlgorithm(getSignatureAlgorithm(si));
-                this.rama = new AOTreeNode(aossi);
-                this.listaCert.add(nameSigner);
-                getUnsignedAtributes(true, si.getUnauthenticatedAttributes(), this.rama, certificates);
-                raiz.add(this.rama);
+                final ASN1Sequence signerInfo = (ASN1Sequence) signerInfosSd.getObjectAt(i);
+                checkSignerInfo(signerInfo);
+                signerInfos.add(signerInfo);
             }
+            return new AOTreeModel(new AOTreeNode(new SignersNodeLoader(signerInfos, sd)));
         }
-        else if (signerInfosSd != null) {
+
+        // Para la creacion del arbol
+        final AOTreeNode raiz = new AOTreeNode(ROOT_NAME);
+
+        // introducimos el nuevo SignerInfo del firmante actual.
+
+        if (signerInfosSd != null) {
             for (int i = 0; i < signerInfosSd.size(); i++) {
                 final ASN1Sequence atribute = (ASN1Sequence) signerInfosSd.getObjectAt(i);
                 final IssuerAndSerialNumber issuerSerial = IssuerAndSerialNumber.getInstance(atribute.getObjectAt(1));
-                final String nameSigner = searchName(certificates, issuerSerial.getSerialNumber());
+                final String nameSigner = searchName(sd, issuerSerial);
                 final SignerInfo si = SignerInfo.getInstance(atribute);
                 this.rama = new AOTreeNode(nameSigner);
                 this.lista.add(nameSigner);
-                getUnsignedAtributes(false, si.getUnauthenticatedAttributes(), this.rama, certificates);
+                getUnsignedAtributes(si.getUnauthenticatedAttributes(), this.rama, sd);
 
                 raiz.add(this.rama);
             }
@@ -185,16 +165,30 @@ public final class ReadNodesTree {
     	return oidString;
     }
 
-    /** M&eacute;todo para obtener las contrafirmas.
-     * @param withCertificates <code>true</code> para hacer la obtenci&oacute;n con certificados, <code>false</code>
-     *                         en caso contrario.
+    /** M&eacute;todo para obtener las contrafirmas con los nombres de sus firmantes.
      * @param signerInfouAtrib Atributos en los que puede estar la contrafirma.
      * @param ramahija Rama hija donde buscar los siguientes nodos.
-     * @param certificates Certificados. */
-    private void getUnsignedAtributes(final boolean withCertificates,
-    		                          final ASN1Set signerInfouAtrib,
+     * @param sd Firma en la que buscar los certificados. */
+    private void getUnsignedAtributes(final ASN1Set signerInfouAtrib,
     		                          final AOTreeNode ramahija,
-    		                          final ASN1Set certificates) {
+    		                          final LazySignedData sd) {
+        for (final ASN1Sequence atrib : getCounterSignatures(signerInfouAtrib)) {
+            final IssuerAndSerialNumber issuerSerial = IssuerAndSerialNumber.getInstance(atrib.getObjectAt(1));
+            final SignerInfo si = SignerInfo.getInstance(atrib);
+            final String nameSigner = searchName(sd, issuerSerial);
+            this.rama2 = new AOTreeNode(nameSigner);
+            this.lista.add(nameSigner);
+            ramahija.add(this.rama2);
+            getUnsignedAtributes(si.getUnauthenticatedAttributes(), this.rama2, sd);
+        }
+    }
+
+    /** Obtiene los SignerInfo de las contrafirmas contenidas en los atributos no firmados
+     * de una firma.
+     * @param signerInfouAtrib Atributos en los que puede estar la contrafirma.
+     * @return Listado de SignerInfo de las contrafirmas. */
+    static List<ASN1Sequence> getCounterSignatures(final ASN1Set signerInfouAtrib) {
+        final List<ASN1Sequence> counterSignatures = new ArrayList<>();
         if (signerInfouAtrib != null) {
             final Enumeration<?> eAtributes = signerInfouAtrib.getObjects();
             while (eAtributes.hasMoreElements()) {
@@ -205,33 +199,13 @@ public final class ReadNodesTree {
                     while (eAtributesData.hasMoreElements()) {
                         final Object obj = eAtributesData.nextElement();
                         if (obj instanceof ASN1Sequence) {
-                            final ASN1Sequence atrib = (ASN1Sequence) obj;
-                            final IssuerAndSerialNumber issuerSerial = IssuerAndSerialNumber.getInstance(atrib.getObjectAt(1));
-                            final SignerInfo si = SignerInfo.getInstance(atrib);
-                            if (withCertificates) {
-                                final X509Certificate[] nameSigner = searchCert(certificates, issuerSerial.getSerialNumber());
-                                final Date signingTime = getSigningTime(si);
-                                final AOSimpleSignInfo aossi = new AOSimpleSignInfo(nameSigner, signingTime);
-                                aossi.setPkcs1(si.getEncryptedDigest().getOctets());
-                                aossi.setSignAlgorithm(getSignatureAlgorithm(si));
-                                this.rama2 = new AOTreeNode(aossi);
-                                this.listaCert.add(nameSigner);
-                                ramahija.add(this.rama2);
-                                getUnsignedAtributes(true, si.getUnauthenticatedAttributes(), this.rama2, certificates);
-                            }
-                            else {
-                                final String nameSigner = searchName(certificates, issuerSerial.getSerialNumber());
-                                this.rama2 = new AOTreeNode(nameSigner);
-                                this.lista.add(nameSigner);
-                                ramahija.add(this.rama2);
-                                getUnsignedAtributes(false, si.getUnauthenticatedAttributes(), this.rama2, certificates);
-                            }
+                            counterSignatures.add((ASN1Sequence) obj);
                         }
                     }
                 }
             }
         }
-
+        return counterSignatures;
     }
 
     private static boolean isValideAttributeType(final ASN1ObjectIdentifier attributeType) {
@@ -250,6 +224,48 @@ public final class ReadNodesTree {
 				!attributeType.equals(new ASN1ObjectIdentifier("0.4.0.1733.2.2"));  //$NON-NLS-1$
     }
 
+    /** Comprueba la estructura de un SignerInfo, sin consultar su certificado ni sus
+     * contrafirmas.
+     * @param signerInfo SignerInfo a comprobar.
+     * @return SignerInfo decodificado.
+     * @throws IllegalArgumentException Si el SignerInfo no tiene la estructura esperada. */
+    private static SignerInfo checkSignerInfo(final ASN1Sequence signerInfo) {
+        IssuerAndSerialNumber.getInstance(signerInfo.getObjectAt(1));
+        return SignerInfo.getInstance(signerInfo);
+    }
+
+    /** Crea los nodos de un conjunto de firmantes. Los firmantes cuyo SignerInfo no es
+     * v&aacute;lido o cuyo certificado no est&aacute; en la firma se omiten, registrando
+     * el error, para que la expansi&oacute;n del nodo padre no falle.
+     * @param signerInfos SignerInfos de los firmantes.
+     * @param sd Firma en la que buscar los certificados.
+     * @return Nodos de los firmantes. */
+    static List<AOTreeNode> createSignerNodes(final List<ASN1Sequence> signerInfos, final LazySignedData sd) {
+        final List<AOTreeNode> nodes = new ArrayList<>();
+        for (final ASN1Sequence signerInfo : signerInfos) {
+            final SignerInfo si;
+            final X509Certificate cert;
+            try {
+                si = checkSignerInfo(signerInfo);
+                final IssuerAndSerialNumber issuerSerial = IssuerAndSerialNumber.getInstance(si.getSID().getId());
+                cert = sd.getCertificate(issuerSerial.getName(), issuerSerial.getSerialNumber().getValue());
+                if (cert == null) {
+                    LOGGER.severe(
+                        "Se omite el firmante con numero de serie " + issuerSerial.getSerialNumber().getValue() + //$NON-NLS-1$
+                            " porque la firma no contiene su certificado" //$NON-NLS-1$
+                    );
+                    continue;
+                }
+            }
+            catch (final RuntimeException e) {
+                LOGGER.severe("Se omite un firmante con un SignerInfo no valido: " + e); //$NON-NLS-1$
+                continue;
+            }
+            nodes.add(new AOTreeNode(new SignerInfoNodeLoader(si, cert, sd)));
+        }
+        return nodes;
+    }
+
     /** Lee los nodos pertenecientes a un firmante.
      * @param signers Firmante del que se buscan los nodos.
      * @param data Fichero que representa la firma.
@@ -301,62 +317,23 @@ public final class ReadNodesTree {
         return simplificado;
     }
 
-    /** M&eacute;todo que, apartir de un numero de serie de un certificado,
+    /** M&eacute;todo que, apartir del emisor y n&uacute;mero de serie de un certificado,
      * devuelve su nombre com&uacute;n (CN). De no existir el CN,
      * devolver&aacute; el nombre de la unidad organizativa.
-     * @param certificates
-     *        Certificados de los firmantes.
-     * @param serialNumber
-     *        N&uacute;mero de serie del certificado a firmar.
+     * @param sd
+     *        Firma que contiene los certificados de los firmantes.
+     * @param issuerSerial
+     *        Emisor y n&uacute;mero de serie del certificado del firmante.
      * @return El nombre com&uacute;n. */
-    private static String searchName(final ASN1Set certificates, final ASN1Integer serialNumber) {
-        final Enumeration<?> certSet = certificates.getObjects();
-        while (certSet.hasMoreElements()) {
-            final X509Certificate c;
-            try {
-                c = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(((ASN1Sequence) certSet.nextElement()).getEncoded())); //$NON-NLS-1$
-            }
-            catch(final Exception e) {
-                LOGGER.severe("Error extrayendo los certificados del Set ASN.1, puede que se haya omitido un elemento valido" + e); //$NON-NLS-1$
-                continue;
-            }
-            if (c.getSerialNumber().equals(serialNumber.getValue())) {
-                return AOUtil.getCN(c);
-            }
+    private static String searchName(final LazySignedData sd, final IssuerAndSerialNumber issuerSerial) {
+        final X509Certificate c = sd.getCertificate(issuerSerial.getName(), issuerSerial.getSerialNumber().getValue());
+        if (c != null) {
+            return AOUtil.getCN(c);
         }
         LOGGER.info("No se ha encontrado el certificado indicado, se devolvera una cadena vacia"); //$NON-NLS-1$
         return ""; //$NON-NLS-1$
     }
 
-    /** A partir de un numero de serie de un certificado, devuelve un array con
-     * el certificado y su cadena de confianza.
-     * @param certificates
-     *        Certificados de los firmantes.
-     * @param serialNumber
-     *        N&uacute;mero de serie del certificado a firmar.
-     * @return El certificado (en la posici&oacute;n 0 y su cadena de confianza
-     *         en orden). */
-    private static X509Certificate[] searchCert(final ASN1Set certificates, final ASN1Integer serialNumber) {
-    	if (certificates != null) {
-        final Enumeration<?> certSet = certificates.getObjects();
-	        while (certSet.hasMoreElements()) {
-	            final X509Certificate c;
-	            try {
-	                c = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(((ASN1Sequence) certSet.nextElement()).getEncoded())); //$NON-NLS-1$
-	            }
-	            catch(final Exception e) {
-	                LOGGER.severe("Error extrayendo los certificados del Set ASN.1, puede que se haya omitido un elemento valido" + e); //$NON-NLS-1$
-	                continue;
-	            }
-	            if (c.getSerialNumber().equals(serialNumber.getValue())) {
-	                return new X509Certificate[] { c };
-	            }
-	        }
-    	}
-        LOGGER.severe("El certificados pedido no estaba en la lista, se devolvera un array vacio"); //$NON-NLS-1$
-        return new X509Certificate[0];
-    }
-
     private static Date getSigningTime(final SignerInfo si) {
         Date returnDate = null;
 
@@ -395,4 +372,66 @@ public final class ReadNodesTree {
 
         return returnDate;
     }
+
+    /** Cargador del nodo ra&iacute;z del &aacute;rbol de firmantes, que comprueba los
+     * certificados de los firmantes de primer nivel al expandirse. */
+    private static final class SignersNodeLoader implements AOTreeNodeLoader {
+
+        private final List<ASN1Sequence> signerInfos;
+        private final LazySignedData sd;
+
+        SignersNodeLoader(final List<ASN1Sequence> signerInfos, final LazySignedData sd) {
+            this.signerInfos = signerInfos;
+            this.sd = sd;
+        }
+
+        @Override
+        public Object loadUserObject() {
+            return ROOT_NAME;
+        }
+
+        @Override
+        public List<AOTreeNode> loadChildren() {
+            return createSignerNodes(this.signerInfos, this.sd);
+        }
+    }
+
+    /** Cargador de un nodo del &aacute;rbol de firmantes, que obtiene los datos de la firma
+     * y sus contrafirmas del SignerInfo s&oacute;lo cuando se consultan. Las contrafirmas
+     * se comprueban con {@link ReadNodesTree#createSignerNodes(List, LazySignedData)} al
+     * expandir el nodo. */
+    private static final class SignerInfoNodeLoader implements AOTreeNodeLoader {
+
+        private final SignerInfo signerInfo;
+        private final X509Certificate cert;
+        private final LazySignedData sd;
+
+        SignerInfoNodeLoader(final SignerInfo signerInfo, final X509Certificate cert, final LazySignedData sd) {
+            this.signerInfo = signerInfo;
+            this.cert = cert;
+            this.sd = sd;
+        }
+
+        @Override
+        public Object loadUserObject() {
+            final Date signingTime = getSigningTime(this.signerInfo);
+            final AOSimpleSignInfo aossi = new AOSimpleSignInfo(new X509Certificate[] { this.cert }, signingTime);
+            aossi.setPkcs1(this.signerInfo.getEncryptedDigest().getOctets());
+            aossi.setSignAlgorithm(getSignatureAlgorithm(this.signerInfo));
+            return aossi;
+        }
+
+        @Override
+        public List<AOTreeNode> loadChildren() {
+            final List<ASN1Sequence> counterSignatures;
+            try {
+                counterSignatures = getCounterSignatures(this.signerInfo.getUnauthenticatedAttributes());
+            }
+            catch (final RuntimeException e) {
+                LOGGER.severe("No se han podido leer las contrafirmas del firmante: " + e); //$NON-NLS-1$
+                return new ArrayList<>();
+            }
+            return createSignerNodes(counterSignatures, this.sd);
+        }
+    }
 }
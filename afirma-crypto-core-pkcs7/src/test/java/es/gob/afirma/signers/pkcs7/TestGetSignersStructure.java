@@ -3,8 +3,21 @@ package es.gob.afirma.signers.pkcs7;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.junit.Assert;
 import org.junit.Test;
+import org.spongycastle.asn1.ASN1EncodableVector;
+import org.spongycastle.asn1.ASN1Encoding;
+import org.spongycastle.asn1.ASN1Set;
+import org.spongycastle.asn1.DERSet;
+import org.spongycastle.asn1.cms.ContentInfo;
+import org.spongycastle.asn1.cms.IssuerAndSerialNumber;
+import org.spongycastle.asn1.cms.SignedData;
+import org.spongycastle.asn1.cms.SignerInfo;
+import org.spongycastle.asn1.x509.Certificate;
 
 import es.gob.afirma.core.util.tree.AOTreeModel;
 import es.gob.afirma.core.util.tree.AOTreeNode;
@@ -81,6 +94,81 @@ public class TestGetSignersStructure {
 		System.out.println("=========================="); //$NON-NLS-1$
 	}
 
+	/**
+	 * Comprueba que los firmantes cuyo certificado no est&aacute; en la firma se omiten al
+	 * expandir su nodo padre, sin que falle la generaci&oacute;n del &aacute;rbol ni la
+	 * consulta de sus nodos.
+	 * @throws Exception Cuando ocurre cualquier error.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testMissingSignerCertificate() throws Exception {
+		final byte[] data = readResource(RESOURCE_COUNTERSIGN_CADES_BES);
+
+		final AOTreeNode complete = (AOTreeNode) new ReadNodesTree().readNodesTree(data, true).getRoot();
+		Assert.assertTrue(complete.getChildCount() > 0);
+		Assert.assertTrue(complete.getChildAt(0).getChildCount() > 0);
+
+		// Sin ningun certificado
+		final AOTreeNode withoutCerts = (AOTreeNode) new ReadNodesTree().readNodesTree(
+			removeCertificates(data, false), true
+		).getRoot();
+		Assert.assertEquals("Datos", withoutCerts.getUserObject()); //$NON-NLS-1$
+		Assert.assertEquals(0, withoutCerts.getChildCount());
+
+		// Solo sin los certificados de las contrafirmas
+		final AOTreeNode withoutCounterSignerCerts = (AOTreeNode) new ReadNodesTree().readNodesTree(
+			removeCertificates(data, true), true
+		).getRoot();
+		Assert.assertEquals(complete.getChildCount(), withoutCounterSignerCerts.getChildCount());
+		for (int i = 0; i < withoutCounterSignerCerts.getChildCount(); i++) {
+			final AOTreeNode signer = withoutCounterSignerCerts.getChildAt(i);
+			Assert.assertNotNull(signer.getUserObject());
+			Assert.assertEquals(0, signer.getChildCount());
+		}
+	}
+
+	/**
+	 * Elimina certificados de una firma CAdES.
+	 * @param data Firma CAdES.
+	 * @param keepSigners Si se deben conservar los certificados de los firmantes de primer
+	 *                    nivel.
+	 * @return Firma sin los certificados indicados.
+	 * @throws IOException Si la firma no es v&aacute;lida.
+	 */
+	private static byte[] removeCertificates(final byte[] data, final boolean keepSigners) throws IOException {
+		final ContentInfo contentInfo = ContentInfo.getInstance(data);
+		final SignedData sd = SignedData.getInstance(contentInfo.getContent());
+
+		final Set<BigInteger> signerSerials = new HashSet<>();
+		for (int i = 0; i < sd.getSignerInfos().size(); i++) {
+			final SignerInfo si = SignerInfo.getInstance(sd.getSignerInfos().getObjectAt(i));
+			signerSerials.add(IssuerAndSerialNumber.getInstance(si.getSID().getId()).getSerialNumber().getValue());
+		}
+
+		final ASN1EncodableVector certs = new ASN1EncodableVector();
+		if (keepSigners) {
+			for (int i = 0; i < sd.getCertificates().size(); i++) {
+				final Certificate cert = Certificate.getInstance(sd.getCertificates().getObjectAt(i));
+				if (signerSerials.contains(cert.getSerialNumber().getValue())) {
+					certs.add(cert);
+				}
+			}
+			Assert.assertTrue(certs.size() < sd.getCertificates().size());
+		}
+
+		return new ContentInfo(
+			contentInfo.getContentType(),
+			new SignedData(
+				sd.getDigestAlgorithms(),
+				sd.getEncapContentInfo(),
+				certs.size() > 0 ? new DERSet(certs) : (ASN1Set) null,
+				sd.getCRLs(),
+				sd.getSignerInfos()
+			)
+		).getEncoded(ASN1Encoding.DER);
+	}
+
 	private static void printTreeBranch(final AOTreeNode node, final int lv) {
 
 		// Escalonamos el nodo
@@ -0,0 +1,111 @@
+package es.gob.afirma.signers.pkcs7;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spongycastle.asn1.ASN1Encoding;
+import org.spongycastle.asn1.ASN1OctetString;
+import org.spongycastle.asn1.ASN1Primitive;
+import org.spongycastle.asn1.cms.ContentInfo;
+import org.spongycastle.asn1.cms.IssuerAndSerialNumber;
+import org.spongycastle.asn1.cms.SignedData;
+import org.spongycastle.asn1.cms.SignerInfo;
+
+/** Pruebas de la vista perezosa de <i>SignedData</i>. */
+public class TestLazySignedData {
+
+	private static final String[] RESOURCES = {
+		"countersign-cades.csig", //$NON-NLS-1$
+		"cades-t.csig", //$NON-NLS-1$
+		"cades-a.csig" //$NON-NLS-1$
+	};
+
+	/** Comprueba que la vista obtiene los mismos elementos que la decodificaci&oacute;n completa
+	 * y que al recodificar se conserva el contenido encapsulado.
+	 * @throws Exception Cuando ocurre cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testReencodeKeepsContent() throws Exception {
+		for (final String resource : RESOURCES) {
+			final byte[] signature = readResource(resource);
+			final SignedData expected = SignedData.getInstance(
+				ContentInfo.getInstance(ASN1Primitive.fromByteArray(signature)).getContent()
+			);
+
+			final LazySignedData sd = LazySignedData.getInstance(signature);
+			Assert.assertEquals(expected.getEncapContentInfo().getContentType(), sd.getContentType());
+			Assert.assertEquals(expected.getEncapContentInfo().getContent() != null, sd.hasContent());
+			Assert.assertEquals(expected.getSignerInfos(), sd.getSignerInfos());
+			Assert.assertEquals(expected.getCertificates(), sd.getCertificates());
+
+			final byte[] reencoded = sd.encode(
+				sd.getDigestAlgorithms(),
+				null,
+				sd.getCertificates(),
+				sd.getCRLs(),
+				sd.getSignerInfos()
+			);
+			final SignedData actual = SignedData.getInstance(
+				ContentInfo.getInstance(ASN1Primitive.fromByteArray(reencoded)).getContent()
+			);
+			Assert.assertEquals(expected.getVersion(), actual.getVersion());
+			Assert.assertArrayEquals(
+				expected.getEncapContentInfo().getEncoded(ASN1Encoding.DER),
+				actual.getEncapContentInfo().getEncoded(ASN1Encoding.DER)
+			);
+			Assert.assertEquals(expected.getSignerInfos(), actual.getSignerInfos());
+
+			if (sd.hasContent()) {
+				final byte[] content = ASN1OctetString.getInstance(expected.getEncapContentInfo().getContent()).getOctets();
+				Assert.assertTrue(Arrays.equals(
+					MessageDigest.getInstance("SHA-256").digest(content), //$NON-NLS-1$
+					sd.digestContent(MessageDigest.getInstance("SHA-256")) //$NON-NLS-1$
+				));
+			}
+		}
+	}
+
+	/** Comprueba la b&uacute;squeda de los certificados de los firmantes.
+	 * @throws Exception Cuando ocurre cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCertificateIndex() throws Exception {
+		final LazySignedData sd = LazySignedData.getInstance(readResource(RESOURCES[0]));
+		for (int i = 0; i < sd.getSignerInfos().size(); i++) {
+			final SignerInfo si = SignerInfo.getInstance(sd.getSignerInfos().getObjectAt(i));
+			final IssuerAndSerialNumber issuerSerial = IssuerAndSerialNumber.getInstance(si.getSID().getId());
+			Assert.assertEquals(
+				issuerSerial.getSerialNumber().getValue(),
+				sd.getCertificate(issuerSerial.getName(), issuerSerial.getSerialNumber().getValue()).getSerialNumber()
+			);
+		}
+		Assert.assertNull(sd.getCertificate(null, BigInteger.valueOf(-1)));
+	}
+
+	/** Comprueba que se rechazan los datos que no son un <i>SignedData</i>. */
+	@SuppressWarnings("static-method")
+	@Test(expected = IOException.class)
+	public void testNotSignedData() throws IOException {
+		LazySignedData.getInstance(new byte[] { 0x30, 0x03, 0x02, 0x01, 0x00 });
+	}
+
+	private static byte[] readResource(final String filename) throws IOException {
+		int n;
+		final byte[] buffer = new byte[1024];
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (
+			final InputStream is = TestLazySignedData.class.getResourceAsStream("/" + filename); //$NON-NLS-1$
+		) {
+			while ((n = is.read(buffer)) > 0) {
+				baos.write(buffer, 0, n);
+			}
+		}
+		return baos.toByteArray();
+	}
+}
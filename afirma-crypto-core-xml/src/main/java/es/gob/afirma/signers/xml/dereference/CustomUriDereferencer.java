@@ -26,23 +26,18 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import es.gob.afirma.core.misc.LoggerUtil;
 import es.gob.afirma.core.misc.SecureXmlBuilder;
 import es.gob.afirma.core.misc.http.SSLErrorProcessor;
-import es.gob.afirma.core.misc.http.UrlHttpManagerFactory;
-import es.gob.afirma.core.misc.http.UrlHttpMethod;
+import es.gob.afirma.core.misc.http.UrlContentCache;
 import es.gob.afirma.signers.xml.Utils;
 
 /** Dereferenciador a medida de referencias XML DOM. */
 public class CustomUriDereferencer implements URIDereferencer {
 
-	private static final String ID = "Id"; //$NON-NLS-1$
-
 	private static final String DEFAULT_SUN_XML_SIGNATURE_INPUT_CLASSNAME = "com.sun.org.apache.xml.internal.security.signature.XMLSignatureInput"; //$NON-NLS-1$
 	private static final String DEFAULT_APACHE_XML_SIGNATURE_INPUT_CLASSNAME =               "org.apache.xml.security.signature.XMLSignatureInput"; //$NON-NLS-1$
 
@@ -105,7 +100,7 @@ public class CustomUriDereferencer implements URIDereferencer {
 				byte[] externalContent;
 				final SSLErrorProcessor errorProcessor = new SSLErrorProcessor();
 				try {
-					externalContent = UrlHttpManagerFactory.getInstalledManager().readUrl(uri, UrlHttpMethod.GET, errorProcessor);
+					externalContent = UrlContentCache.getSharedInstance().get(uri, errorProcessor);
 				}
 				catch (final Exception e1) {
 					if (errorProcessor.isCancelled()) {
@@ -217,24 +212,7 @@ public class CustomUriDereferencer implements URIDereferencer {
 	 * @return Primer nodo de un documento XML que tenga un atributo <i>Id</i> con el
 	 *         valor indicado o <code>null</code> si no se encuentra ninguno */
 	public static Element getElementById(final Document doc, final String nodeId) {
-		if (doc == null || nodeId == null) {
-			return null;
-		}
-	    final NodeList nodeList = doc.getElementsByTagName("*"); //$NON-NLS-1$
-	    for (int i = 0, len = nodeList.getLength(); i < len; i++) {
-	        final Node node = nodeList.item(i);
-	        if (node.getNodeType() == Node.ELEMENT_NODE) {
-	        	// Buscamos un atributo 'Id'
-	        	final NamedNodeMap nnm = node.getAttributes();
-	        	for (int j = 0; j < nnm.getLength(); ++j) {
-	        	    final Node attr = nnm.item(j);
-	        	    if (ID.equalsIgnoreCase(attr.getNodeName()) && nodeId.equals(attr.getNodeValue()) && node instanceof Element) {
-	        	    	return (Element) node;
-	        	    }
-	        	}
-	        }
-	    }
-		return null;
+		return XmlIdIndex.getElementById(doc, nodeId);
 	}
 
 }
@@ -0,0 +1,149 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signers.xml.dereference;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/** &Iacute;ndice de los elementos de un documento XML por el valor de su atributo <i>Id</i>.
+ * <p>El &iacute;ndice se construye con un &uacute;nico recorrido del documento la primera vez
+ * que se busca en &eacute;l y se guarda como dato de usuario del propio documento, por lo que
+ * las b&uacute;squedas posteriores no recorren el documento y el &iacute;ndice se libera junto
+ * con &eacute;l.</p>
+ * <p>No es necesario notificar los cambios del documento: cada elemento encontrado se
+ * comprueba antes de devolverlo (que conserve el identificador y siga dentro del documento) y,
+ * si no se encuentra o ha dejado de ser v&aacute;lido, se busca s&oacute;lo ese identificador
+ * en el documento, actualizando su entrada del &iacute;ndice, antes de darlo por inexistente.
+ * As&iacute; se recogen los nodos que vaya a&ntilde;adiendo, moviendo o eliminando el
+ * c&oacute;digo de firma sin volver a construir el &iacute;ndice completo.</p> */
+public final class XmlIdIndex {
+
+	private static final String ID = "Id"; //$NON-NLS-1$
+
+	/** Clave con la que se guarda el &iacute;ndice en los datos de usuario del documento. */
+	private static final String USER_DATA_KEY = XmlIdIndex.class.getName();
+
+	private XmlIdIndex() {
+		// No instanciable
+	}
+
+	/** Busca el elemento de un documento XML que tenga un atributo con nombre <i>Id</i>
+	 * (sin distinguir may&uacute;sculas de min&uacute;sculas) con el valor indicado. Si hay
+	 * varios, se devuelve el primero en el orden del documento.
+	 * @param doc Documento XML.
+	 * @param nodeId Valor del atributo <i>Id</i> del elemento a buscar.
+	 * @return Elemento con el identificador indicado o <code>null</code> si no se encuentra
+	 *         ninguno. */
+	public static Element getElementById(final Document doc, final String nodeId) {
+		if (doc == null || nodeId == null) {
+			return null;
+		}
+
+		@SuppressWarnings("unchecked")
+		Map<String, Element> index = (Map<String, Element>) doc.getUserData(USER_DATA_KEY);
+		if (index == null) {
+			index = buildIndex(doc);
+			doc.setUserData(USER_DATA_KEY, index, null);
+			return index.get(nodeId);
+		}
+
+		final Element element = index.get(nodeId);
+		if (element != null && isValid(element, nodeId, doc)) {
+			return element;
+		}
+
+		// Si no estaba indexado o ha cambiado, buscamos solo ese identificador
+		final Element found = findElement(doc, nodeId);
+		if (found != null) {
+			index.put(nodeId, found);
+		}
+		else {
+			index.remove(nodeId);
+		}
+		return found;
+	}
+
+	/** Recorre el documento en orden y registra el primer elemento con cada identificador. */
+	private static Map<String, Element> buildIndex(final Document doc) {
+		final Map<String, Element> index = new HashMap<>();
+		Node node = doc.getDocumentElement();
+		while (node != null) {
+			if (node.getNodeType() == Node.ELEMENT_NODE) {
+				final NamedNodeMap attributes = node.getAttributes();
+				for (int i = 0; i < attributes.getLength(); i++) {
+					final Node attr = attributes.item(i);
+					if (ID.equalsIgnoreCase(attr.getNodeName()) && !index.containsKey(attr.getNodeValue())) {
+						index.put(attr.getNodeValue(), (Element) node);
+					}
+				}
+			}
+			node = next(node);
+		}
+		return index;
+	}
+
+	/** Recorre el documento en orden y devuelve el primer elemento con el identificador
+	 * indicado. */
+	private static Element findElement(final Document doc, final String nodeId) {
+		Node node = doc.getDocumentElement();
+		while (node != null) {
+			if (node.getNodeType() == Node.ELEMENT_NODE) {
+				final NamedNodeMap attributes = node.getAttributes();
+				for (int i = 0; i < attributes.getLength(); i++) {
+					final Node attr = attributes.item(i);
+					if (ID.equalsIgnoreCase(attr.getNodeName()) && nodeId.equals(attr.getNodeValue())) {
+						return (Element) node;
+					}
+				}
+			}
+			node = next(node);
+		}
+		return null;
+	}
+
+	/** Obtiene el siguiente nodo en el orden del documento. */
+	private static Node next(final Node node) {
+		if (node.getFirstChild() != null) {
+			return node.getFirstChild();
+		}
+		Node current = node;
+		while (current != null) {
+			if (current.getNextSibling() != null) {
+				return current.getNextSibling();
+			}
+			current = current.getParentNode();
+		}
+		return null;
+	}
+
+	/** Comprueba que un elemento indexado conserve el identificador y siga formando parte
+	 * del documento. */
+	private static boolean isValid(final Element element, final String nodeId, final Document doc) {
+		final NamedNodeMap attributes = element.getAttributes();
+		boolean hasId = false;
+		for (int i = 0; !hasId && i < attributes.getLength(); i++) {
+			final Node attr = attributes.item(i);
+			hasId = ID.equalsIgnoreCase(attr.getNodeName()) && nodeId.equals(attr.getNodeValue());
+		}
+		if (!hasId) {
+			return false;
+		}
+		Node parent = element.getParentNode();
+		while (parent != null && parent != doc) {
+			parent = parent.getParentNode();
+		}
+		return parent == doc;
+	}
+}
@@ -24,6 +24,7 @@ import org.w3c.dom.Element;
 import es.gob.afirma.core.AOCancelledOperationException;
 import es.gob.afirma.core.misc.AOUtil;
 import es.gob.afirma.core.misc.SecureXmlBuilder;
+import es.gob.afirma.core.misc.http.UrlContentCache;
 import es.gob.afirma.core.ui.AOUIFactory;
 
 /** Elemento de estilo XML (XSL) a firmar.
@@ -211,10 +212,18 @@ public final class XmlStyle {
                 }
         	}
 
-            // AOUtil.loadFile() usa internamente un ByteArrayInputStream, pero externamente es mejor
-            // usar siempre try-with-resources para no depender de esta implementacion concreta
-            try (final InputStream is = AOUtil.loadFile(styleURI)) {
-            	xml = AOUtil.getDataFromInputStream(is);
+            // Las hojas de estilo remotas se comparten entre firmas, asi que las obtenemos de la
+            // cache para no descargarlas de nuevo en cada una
+            if (styleURI.getScheme().equalsIgnoreCase("http") //$NON-NLS-1$
+            		|| styleURI.getScheme().equalsIgnoreCase("https")) { //$NON-NLS-1$
+            	xml = UrlContentCache.getSharedInstance().get(styleURI.toString(), null);
+            }
+            else {
+                // AOUtil.loadFile() usa internamente un ByteArrayInputStream, pero externamente es mejor
+                // usar siempre try-with-resources para no depender de esta implementacion concreta
+                try (final InputStream is = AOUtil.loadFile(styleURI)) {
+                	xml = AOUtil.getDataFromInputStream(is);
+                }
             }
         }
         catch (final Exception e) {
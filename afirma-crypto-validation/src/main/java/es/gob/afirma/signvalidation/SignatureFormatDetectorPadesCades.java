@@ -1,10 +1,14 @@
 package es.gob.afirma.signvalidation;
 
-import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
+import org.spongycastle.asn1.ASN1EncodableVector;
 import org.spongycastle.asn1.ASN1ObjectIdentifier;
+import org.spongycastle.asn1.cms.Attribute;
 import org.spongycastle.asn1.cms.AttributeTable;
 import org.spongycastle.asn1.cms.CMSObjectIdentifiers;
 import org.spongycastle.asn1.esf.ESFAttributes;
@@ -88,276 +92,149 @@ public class SignatureFormatDetectorPadesCades implements ISignatureFormatDetect
 	static String FORMAT_CMS_T = "CMS-T"; //$NON-NLS-1$
 
 	/**
-	 * Method that indicates if a signature dictionary refers to a PAdES B-Level
-	 * profile (true) or not (false).
-	 *
-	 * @param signatureDictionary Parameter that represents the signature
-	 *                            dictionary.
-	 * @return a boolean that indicates if a signature dictionary refers to a PAdES
-	 *         B-Level profile (true) or not (false).
+	 * Feature bit: the signer has the <code>signing-certificate</code> signed attribute.
 	 */
-	private static boolean isPAdESBLevel(final PDFSignatureDictionary signatureDictionary) {
-		/*
-		 * Consideramos que una firma es PAdES B-Level si: > El nucleo de firma CAdES
-		 * contiene el elemento SignedData.certificates con, al menos, un certificado
-		 * (el firmante). > Contiene la entrada /M en el diccionario de firma. > La
-		 * entrada /SubFilter del diccionario de firma posee el valor
-		 * 'ETSI.CAdES.detached'.
-		 */
-		final PdfDictionary pdfDic = signatureDictionary.getDictionary();
-
-		// Accedemos a la entrada /SubFilter
-		final PdfName subFilterValue = signatureDictionary.getDictionary().getAsName(PdfName.SUBFILTER);
-
-		// Comprobamos que la entrada /SubFilter posee el valor
-		// 'ETSI.CAdES.detached' y que se encuentra la entrada /M en el
-		// diccionario de firma
-		if (subFilterValue.equals(CADES_SUBFILTER_VALUE) && pdfDic.get(PdfName.M) != null) {
-			try {
-				// Obtenemos los datos firmados
-				final CMSSignedData signedData = getCMSSignature(signatureDictionary);
-
-				// Accedemos al elemento SignedData.certificates y comprobamos
-				// que posee al menos un elemento
-				final Iterator<SignerInformation> it = signedData.getSignerInfos().getSigners().iterator();
-				while (it.hasNext()) {
-					final SignerInformation si = it.next();
-					final AttributeTable signedAttrs = si.getSignedAttributes();
-					if(signedAttrs.get(PKCSObjectIdentifiers.id_aa_signingCertificate) != null) {
-						return true;
-					}
-				}
-			} catch (final Exception e) {
-				return false;
-			}
-		}
-		return false;
-	}
+	private static final int SIGNING_CERTIFICATE = 1;
 
 	/**
-	 * Method that indicates if a signature dictionary refers to a PAdES B-B-Level
-	 * profile (true) or not (false).
-	 *
-	 * @param signatureDictionary Parameter that represents the signature
-	 *                            dictionary.
-	 * @return a boolean that indicates if a signature dictionary refers to a PAdES
-	 *         B-B-Level profile (true) or not (false).
+	 * Feature bit: the signer has the <code>signing-certificate-v2</code> signed attribute.
 	 */
-	private static boolean isPAdESBBLevel(final PDFSignatureDictionary signatureDictionary) {
-		/*
-		 * Consideramos que una firma es PAdES B-Level si: > El nucleo de firma CAdES
-		 * contiene el elemento SignedData.certificates con, al menos, un certificado
-		 * (el firmante). > Contiene la entrada /M en el diccionario de firma. > La
-		 * entrada /SubFilter del diccionario de firma posee el valor
-		 * 'ETSI.CAdES.detached'.
-		 */
-		final PdfDictionary pdfDic = signatureDictionary.getDictionary();
-
-		// Accedemos a la entrada /SubFilter
-		final PdfName subFilterValue = signatureDictionary.getDictionary().getAsName(PdfName.SUBFILTER);
+	private static final int SIGNING_CERTIFICATE_V2 = 1 << 1;
 
-		// Comprobamos que la entrada /SubFilter posee el valor
-		// 'ETSI.CAdES.detached' y que se encuentra la entrada /M en el
-		// diccionario de firma
-		if (subFilterValue.equals(CADES_SUBFILTER_VALUE) && pdfDic.get(PdfName.M) != null) {
-			try {
-				// Obtenemos los datos firmados
-				final CMSSignedData signedData = getCMSSignature(signatureDictionary);
-
-				// Accedemos al elemento SignedData.certificates y comprobamos
-				// que posee al menos un elemento
-				final Iterator<SignerInformation> it = signedData.getSignerInfos().getSigners().iterator();
-				while (it.hasNext()) {
-					final SignerInformation si = it.next();
-					final AttributeTable signedAttrs = si.getSignedAttributes();
-					if(signedAttrs.get(PKCSObjectIdentifiers.id_aa_signingCertificateV2) != null) {
-						return true;
-					}
-				}
-			} catch (final Exception e) {
-				return false;
-			}
-		}
-		return false;
-	}
+	/**
+	 * Feature bit: the signer has the <code>other-signing-certificate</code> signed attribute.
+	 */
+	private static final int OTHER_SIGNING_CERTIFICATE = 1 << 2;
 
 	/**
-	 * Method that indicates if a signature dictionary refers to a PAdES T-Level
-	 * profile (true) or not (false).
-	 *
-	 * @param signatureDictionary Parameter that represents the signature
-	 *                            dictionary.
-	 * @param reader              Parameter that allows to read the PDF document.
-	 * @return a boolean that indicates if a signature dictionary refers to a PAdES
-	 *         T-Level profile (true) or not (false).
+	 * Feature bit: the signer has the <code>signature-policy-identifier</code> signed attribute.
 	 */
-	private static boolean isPAdESTLevel(final PDFSignatureDictionary signatureDictionary, final PdfReader reader) {
-		/*
-		 * Consideramos que una firma es PAdES T-Level si: > El nucleo de firma CAdES
-		 * contiene un unico elemento signature-time-stamp y el documento PDF no
-		 * contiene ningun diccionario de sello de tiempo o > El nucleo de firma CAdES
-		 * no contiene ningun elemento signature-time-stamp y el documento PDF contiene
-		 * un unico diccionario de sello de tiempo
-		 */
-		try {
-			int signatureTimeStampNumber = 0;
-			int documentTimeStampDictionariesNumber = 0;
+	private static final int SIGNATURE_POLICY_IDENTIFIER = 1 << 3;
 
-			// Obtenemos los datos firmados
-			final CMSSignedData signedData = getCMSSignature(signatureDictionary);
-			if (!signedData.getCertificates().getMatches(null).isEmpty()) {
-				// Obtenemos la lista con todos los firmantes contenidos en la
-				// firma
-				final SignerInformationStore signerInformationStore = signedData.getSignerInfos();
-				final List<SignerInformation> listSignersSignature = (List<SignerInformation>) signerInformationStore
-						.getSigners();
+	/**
+	 * Feature bit: the signer has the <code>signing-time</code> signed attribute.
+	 */
+	private static final int SIGNING_TIME = 1 << 4;
 
-				// Accedemos al primer firmante
-				final SignerInformation signerInfo = listSignersSignature.get(0);
+	/**
+	 * Feature bit: the signer has the <code>signature-time-stamp</code> unsigned attribute.
+	 */
+	private static final int SIGNATURE_TIME_STAMP = 1 << 5;
 
-				// Obtenemos el numero de atributos signature-time-stamp
-				if (signerInfo.getUnsignedAttributes() != null && signerInfo.getUnsignedAttributes()
-						.getAll(PKCSObjectIdentifiers.id_aa_signatureTimeStampToken) != null) {
-					signatureTimeStampNumber = signerInfo.getUnsignedAttributes()
-							.getAll(PKCSObjectIdentifiers.id_aa_signatureTimeStampToken).size();
-				}
+	/**
+	 * Feature bit: the signer has the <code>archive-time-stamp-v3</code> unsigned attribute.
+	 */
+	private static final int ARCHIVE_TIME_STAMP_V3 = 1 << 6;
 
-				// Obtenemos el numero de diccionarios de sello de tiempo
-				documentTimeStampDictionariesNumber = countDocumentTimeStampDictionaries(reader);
+	/**
+	 * Feature bit: the signer has one of the unsigned attributes that a CAdES LT-Level
+	 * signature mustn't contain.
+	 */
+	private static final int NO_LT_LEVEL_ATTRIBUTE = 1 << 7;
 
-				if (signatureTimeStampNumber == 1 && documentTimeStampDictionariesNumber == 0
-						|| signatureTimeStampNumber == 0 && documentTimeStampDictionariesNumber == 1) {
-					return true;
-				}
-			}
-			return false;
-		} catch (final Exception e) {
-			return false;
-		}
-	}
+	/**
+	 * Constant attribute that represents the unsigned attributes that a CAdES LT-Level
+	 * signature mustn't contain.
+	 */
+	private static final Set<ASN1ObjectIdentifier> NO_LT_LEVEL_ATTRIBUTES = new HashSet<>(Arrays.asList(
+			PKCSObjectIdentifiers.id_aa_ets_certificateRefs,
+			PKCSObjectIdentifiers.id_aa_ets_revocationRefs,
+			ID_ATTRIBUTE_CERTIFICATE_REFERENCES,
+			ID_ATTRIBUTE_REVOCATION_REFERENCES,
+			PKCSObjectIdentifiers.id_aa_ets_escTimeStamp,
+			PKCSObjectIdentifiers.id_aa_ets_certCRLTimestamp,
+			PKCSObjectIdentifiers.id_aa_ets_certValues,
+			PKCSObjectIdentifiers.id_aa_ets_revocationValues,
+			ESFAttributes.archiveTimestamp,
+			ESFAttributes.archiveTimestampV2,
+			ID_LONG_TERM_VALIDATION));
 
 	/**
-	 * Method that indicates if a signature dictionary refers to a PAdES LT-Level
-	 * profile (true) or not (false).
+	 * Method that obtains the Baseline level of a PAdES B-Level or B-B-Level signature
+	 * from its time-stamps and the validation data of the PDF document.
+	 * <ul>
+	 * <li>LTA-Level: the CAdES signature core contains more than one
+	 * signature-time-stamp attribute or the PDF document contains more than one
+	 * Document Time-stamp dictionary, and the PDF document contains a DSS
+	 * dictionary.</li>
+	 * <li>LT-Level: the CAdES signature core contains only one signature-time-stamp
+	 * attribute and the PDF document doesn't contain any Document Time-stamp
+	 * dictionary, or the CAdES signature core doesn't contain any
+	 * signature-time-stamp attribute and the PDF document contains only one
+	 * Document Time-stamp dictionary, and the PDF document contains a DSS
+	 * dictionary.</li>
+	 * <li>T-Level: the same as LT-Level but without DSS dictionary.</li>
+	 * </ul>
 	 *
-	 * @param signatureDictionary Parameter that represents the signature
-	 *                            dictionary.
-	 * @param reader              Parameter that allows to read the PDF document.
-	 * @return a boolean that indicates if a signature dictionary refers to a PAdES
-	 *         LT-Level profile (true) or not (false).
-	 */
-	private static boolean isPAdESLTLevel(final PDFSignatureDictionary signatureDictionary, final PdfReader reader) {
-		/*
-		 * Consideramos que una firma es PAdES LT-Level si: > El documento PDF contiene
-		 * al menos un diccionario DSS > El nucleo de firma CAdES contiene un unico
-		 * elemento signature-time-stamp y el documento PDF no contiene ningun
-		 * diccionario de sello de tiempo o > El nucleo de firma CAdES no contiene
-		 * ningun elemento signature-time-stamp y el documento PDF contiene un unico
-		 * diccionario de sello de tiempo
-		 */
-		if (isPAdESTLevel(signatureDictionary, reader)) {
-			if (reader.getCatalog().get(DSS_DICTIONARY_NAME) != null) {
-				return true;
+	 * @param bFormat    Parameter that represents the format of the signature
+	 *                   without time-stamps.
+	 * @param signedData Parameter that represents the signed data.
+	 * @param reader     Parameter that allows to read the PDF document.
+	 * @param documentTimeStampDictionariesNumber Parameter that represents the
+	 *                   number of Document Time-stamp dictionaries of the PDF
+	 *                   document.
+	 * @return the Baseline format of the signature.
+	 */
+	private static String resolvePAdESBaselineFormat(final String bFormat, final CMSSignedData signedData,
+			final PdfReader reader, final int documentTimeStampDictionariesNumber) {
+		try {
+			if (signedData.getCertificates().getMatches(null).isEmpty()) {
+				return bFormat;
 			}
-			// Instanciamos un objeto para leer las firmas
-			final AcroFields af = reader.getAcroFields();
 
-			// Obtenemos la lista de firmas del documento PDF
-			final List<String> listSignatures = af.getSignatureNames();
-
-			for (int i = 0; i < listSignatures.size(); i++) {
-				// Metemos en una variable el nombre de la firma
-				final String signatureName = listSignatures.get(i);
+			// Obtenemos el numero de atributos signature-time-stamp del primer
+			// firmante
+			int signatureTimeStampNumber = 0;
+			final SignerInformation signerInfo = signedData.getSignerInfos().getSigners().iterator().next();
+			if (signerInfo.getUnsignedAttributes() != null && signerInfo.getUnsignedAttributes()
+					.getAll(PKCSObjectIdentifiers.id_aa_signatureTimeStampToken) != null) {
+				signatureTimeStampNumber = signerInfo.getUnsignedAttributes()
+						.getAll(PKCSObjectIdentifiers.id_aa_signatureTimeStampToken).size();
+			}
 
-				try {
-					// Obtenemos el PdfReader asociado a la revision que
-					// estamos procesando
-					final PdfReader revisionReader = new PdfReader(af.extractRevision(signatureName));
+			final boolean archive = signatureTimeStampNumber > 1 || documentTimeStampDictionariesNumber > 1;
+			final boolean timeStamped = signatureTimeStampNumber == 1 && documentTimeStampDictionariesNumber == 0
+					|| signatureTimeStampNumber == 0 && documentTimeStampDictionariesNumber == 1;
 
-					if (revisionReader.getCatalog().getAsDict(DSS_DICTIONARY_NAME) != null) {
-						return true;
-					}
-				} catch (final IOException e) {
-					return false;
-				}
+			if ((archive || timeStamped) && hasDSSDictionary(reader)) {
+				return archive ? FORMAT_PADES_LTA_LEVEL : FORMAT_PADES_LT_LEVEL;
 			}
+			return timeStamped ? FORMAT_PADES_T_LEVEL : bFormat;
+		} catch (final Exception e) {
+			return bFormat;
 		}
-		return false;
 	}
 
 	/**
-	 * Method that indicates if a signature dictionary refers to a PAdES LTA-Level
-	 * profile (true) or not (false).
+	 * Method that indicates if the PDF document or any of its revisions contains a
+	 * DSS dictionary.
 	 *
-	 * @param signatureDictionary Parameter that represents the signature
-	 *                            dictionary.
-	 * @param reader              Parameter that allows to read the PDF document.
-	 * @return a boolean that indicates if a signature dictionary refers to a PAdES
-	 *         LTA-Level profile (true) or not (false).
+	 * @param reader Parameter that allows to read the PDF document.
+	 * @return a boolean that indicates if a DSS dictionary has been found.
 	 */
-	private static boolean isPAdESLTALevel(final PDFSignatureDictionary signatureDictionary, final PdfReader reader) {
-		/*
-		 * Consideramos que una firma es PAdES LTA-Level si: > El documento PDF contiene
-		 * al menos un diccionario DSS > El documento PDF contiene al menos un
-		 * diccionario de sello de tiempo > El nucleo de firma CAdES contiene al menos
-		 * un atributo signature-time-stamp
-		 */
-		int signatureTimeStampNumber = 0;
-		int documentTimeStampDictionariesNumber = 0;
-
+	private static boolean hasDSSDictionary(final PdfReader reader) {
+		if (reader.getCatalog().get(DSS_DICTIONARY_NAME) != null) {
+			return true;
+		}
 		try {
+			// Instanciamos un objeto para leer las firmas
+			final AcroFields af = reader.getAcroFields();
 
-			// Obtenemos los datos firmados
-			final CMSSignedData signedData = getCMSSignature(signatureDictionary);
-
-			if (!signedData.getCertificates().getMatches(null).isEmpty()) {
-				// Obtenemos la lista con todos los firmantes contenidos en la
-				// firma
-				final SignerInformationStore signerInformationStore = signedData.getSignerInfos();
-				final List<SignerInformation> listSignersSignature = (List<SignerInformation>) signerInformationStore
-						.getSigners();
-
-				// Accedemos al primer firmante
-				final SignerInformation signerInfo = listSignersSignature.get(0);
-
-				// Obtenemos el numero de atributos signature-time-stamp
-				if (signerInfo.getUnsignedAttributes() != null && signerInfo.getUnsignedAttributes()
-						.getAll(PKCSObjectIdentifiers.id_aa_signatureTimeStampToken) != null) {
-					signatureTimeStampNumber = signerInfo.getUnsignedAttributes()
-							.getAll(PKCSObjectIdentifiers.id_aa_signatureTimeStampToken).size();
-				}
-
-				// Obtenemos el numero de diccionarios de sello de tiempo
-				documentTimeStampDictionariesNumber = countDocumentTimeStampDictionaries(reader);
-
-				if (signatureTimeStampNumber > 1 || documentTimeStampDictionariesNumber > 1) {
-					if (reader.getCatalog().get(DSS_DICTIONARY_NAME) != null) {
-						return true;
-					}
-					// Instanciamos un objeto para leer las firmas
-					final AcroFields af = reader.getAcroFields();
-
-					// Obtenemos la lista de firmas del documento PDF
-					final List<String> listSignatures = af.getSignatureNames();
-
-					for (int i = 0; i < listSignatures.size(); i++) {
-						// Metemos en una variable el nombre de la firma
-						final String signatureName = listSignatures.get(i);
-
-						// Obtenemos el PdfReader asociado a la revision que
-						// estamos procesando
-						final PdfReader revisionReader = new PdfReader(af.extractRevision(signatureName));
+			// Obtenemos la lista de firmas del documento PDF
+			final List<String> listSignatures = af.getSignatureNames();
 
-						if (revisionReader.getCatalog().getAsDict(DSS_DICTIONARY_NAME) != null) {
-							return true;
-						}
-					}
+			for (final String signatureName : listSignatures) {
+				// Obtenemos el PdfReader asociado a la revision que
+				// estamos procesando
+				final PdfReader revisionReader = new PdfReader(af.extractRevision(signatureName));
+				if (revisionReader.getCatalog().getAsDict(DSS_DICTIONARY_NAME) != null) {
+					return true;
 				}
 			}
-			return false;
 		} catch (final Exception e) {
 			return false;
 		}
+		return false;
 	}
 
 	/**
@@ -432,28 +309,37 @@ public class SignatureFormatDetectorPadesCades implements ISignatureFormatDetect
 			// revision
 			final PDFSignatureDictionary signatureDictionary = obtainLatestSignatureFromPDF(reader);
 
-			if (isPAdESBLevel(signatureDictionary)) {
-				format = FORMAT_PADES_B_LEVEL;
-				if (isPAdESLTALevel(signatureDictionary, reader)) {
-					format = FORMAT_PADES_LTA_LEVEL;
-				} else if (isPAdESLTLevel(signatureDictionary, reader)) {
-					format = FORMAT_PADES_LT_LEVEL;
-				} else if (isPAdESTLevel(signatureDictionary, reader)) {
-					format = FORMAT_PADES_T_LEVEL;
+			// Si la firma es PAdES, obtenemos una unica vez los datos firmados
+			// y los atributos de sus firmantes
+			final PdfName subFilterValue = signatureDictionary.getDictionary().getAsName(PdfName.SUBFILTER);
+			CMSSignedData signedData = null;
+			int signersFeatures = 0;
+			if (subFilterValue.equals(CADES_SUBFILTER_VALUE)) {
+				try {
+					signedData = getCMSSignature(signatureDictionary);
+					final Iterator<SignerInformation> it = signedData.getSignerInfos().getSigners().iterator();
+					while (it.hasNext()) {
+						signersFeatures |= getSignerFeatures(it.next());
+					}
+				} catch (final Exception e) {
+					signedData = null;
 				}
 			}
-			else if (isPAdESBBLevel(signatureDictionary)) {
-				format = FORMAT_PADES_B_B_LEVEL;
-				if (isPAdESLTALevel(signatureDictionary, reader)) {
-					format = FORMAT_PADES_LTA_LEVEL;
-				} else if (isPAdESLTLevel(signatureDictionary, reader)) {
-					format = FORMAT_PADES_LT_LEVEL;
-				} else if (isPAdESTLevel(signatureDictionary, reader)) {
-					format = FORMAT_PADES_T_LEVEL;
-				}
+
+			// Los formatos Baseline requieren la entrada /M en el diccionario
+			// de firma y el atributo firmado signing-certificate o
+			// signing-certificate-v2 en alguno de los firmantes
+			final boolean baseline = signedData != null && signatureDictionary.getDictionary().get(PdfName.M) != null;
+			if (baseline && (signersFeatures & SIGNING_CERTIFICATE) != 0) {
+				format = resolvePAdESBaselineFormat(FORMAT_PADES_B_LEVEL, signedData, reader,
+						countDocumentTimeStampDictionaries(reader));
+			}
+			else if (baseline && (signersFeatures & SIGNING_CERTIFICATE_V2) != 0) {
+				format = resolvePAdESBaselineFormat(FORMAT_PADES_B_B_LEVEL, signedData, reader,
+						countDocumentTimeStampDictionaries(reader));
 			}
-			else{
-				return getFormatOfPAdESSignature(signatureDictionary, reader);
+			else {
+				return getFormatOfPAdESSignature(signatureDictionary, signedData, reader);
 			}
 		} catch (final Exception e) {
 			format = FORMAT_UNRECOGNIZED;
@@ -479,17 +365,21 @@ public class SignatureFormatDetectorPadesCades implements ISignatureFormatDetect
 	 *         </ul>
 	 */
 	private static String getFormatOfPAdESSignature(final PDFSignatureDictionary signatureDictionary,
-			final PdfReader reader) {
+			final CMSSignedData signedData, final PdfReader reader) {
 		// Por defecto establecemos el formato como no reconocido
 		String format = FORMAT_UNRECOGNIZED;
 
 		if (isPAdESLTV(reader)) {
 			format = FORMAT_PADES_LTV;
 		} else {
-			// Comprobamos el formato especifico de la firma
-			if (isPAdESEPES(signatureDictionary)) {
+			// Comprobamos el formato especifico de la firma. Los datos firmados
+			// solo se obtienen de las firmas con /SubFilter 'ETSI.CAdES.detached'
+			final List<SignerInformation> listSignersSignature = signedData != null
+					? (List<SignerInformation>) signedData.getSignerInfos().getSigners()
+					: null;
+			if (listSignersSignature != null && isCAdESEPES(listSignersSignature)) {
 				format = FORMAT_PADES_EPES;
-			} else if (isPAdESBES(signatureDictionary)) {
+			} else if (listSignersSignature != null && !hasSignaturePolicyIdentifier(listSignersSignature.get(0))) {
 				format = FORMAT_PADES_BES;
 			} else if (isPAdESBasic(signatureDictionary)) {
 				format = FORMAT_PADES_BASIC;
@@ -819,75 +709,38 @@ public class SignatureFormatDetectorPadesCades implements ISignatureFormatDetect
 		// Inicialmente definidos que el formato no está reconocido
 		String format = FORMAT_UNRECOGNIZED;
 		try {
-			// Comprobamos si la firma es CMS
-			if (isCMS(signature)) {
-				format = FORMAT_CMS;
+			// Obtenemos en una unica pasada los atributos del firmante
+			final int features = getSignerFeatures(signature);
+
+			// Comprobamos si la firma es CMS, es decir, si no posee ninguno
+			// de los atributos firmados signing-certificate,
+			// signing-certificate-v2 ni other-signing-certificate
+			if ((features & (SIGNING_CERTIFICATE | SIGNING_CERTIFICATE_V2 | OTHER_SIGNING_CERTIFICATE)) == 0) {
 				// Comprobamos si la firma contiene sello de tiempo, y por lo
 				// tanto, si es CMS-T
-				if (isCAdEST(signature)) {
-					format = FORMAT_CMS_T;
-				}
+				format = (features & SIGNATURE_TIME_STAMP) != 0 ? FORMAT_CMS_T : FORMAT_CMS;
 			}
 			// Comprobamos si la firma es CAdES-EPES
-			else if (isCAdESEPES(signature)) {
-				format = resolveFormatOfCAdESEPESSignature(signedData, signature);
-			}
-			// Comprobamos si la firma es CAdES-BES
-			else if (isCAdESBES(signature)) {
-				// Establecemos el formato a CAdES-EPES
-				format = FORMAT_CADES_BES;
+			else if ((features & SIGNATURE_POLICY_IDENTIFIER) != 0) {
 				// Comprobamos si la firma es CAdES B-Level, esto es, si tiene
 				// el atributo firmado signing-time
-				if (isCAdESBLevel(signature)) {
-					// Establecemos el formato a CAdES B-Level
-					format = FORMAT_CADES_B_LEVEL;
-					// Comprobamos si la firma posee signature-time-stamp en
-					// cuyo caso será CAdES T-Level
-					if (isCAdEST(signature)) {
-						// Establecemos el formato a CAdES T-Level
-						format = FORMAT_CADES_T_LEVEL;
-						// Comprobamos si la firma es LT-Level
-						if (isCAdESLTLevel(signature, signedData)) {
-							format = FORMAT_CADES_LT_LEVEL;
-							// Comprobamos si la firma es LTA-Level
-							if (isCAdESLTALevel(signature)) {
-								format = FORMAT_CADES_LTA_LEVEL;
-							}
-						} else {
-							format = resolveCAdESNoBaselineFormat(format, signature);
-						}
-					}
-					// Si la firma no es CAdES B-Level
-					else {
-						// Comprobamos si la firma es CAdES-T, CAdES-C, CAdES-X1,
-						// CAdES-X2, CAdES-XL1, CAdES-XL2 o CAdES-A
-						format = resolveCAdESNoBaselineFormat(format, signature);
-					}
-				}
-			}
-			else if (isCAdESBBLevel(signature)) {
-				format = FORMAT_CADES_B_B_LEVEL;
-				if (isCAdEST(signature)) {
-					// Establecemos el formato a CAdES T-Level
-					format = FORMAT_CADES_T_LEVEL;
-					// Comprobamos si la firma es LT-Level
-					if (isCAdESLTLevel(signature, signedData)) {
-						format = FORMAT_CADES_LT_LEVEL;
-						// Comprobamos si la firma es LTA-Level
-						if (isCAdESLTALevel(signature)) {
-							format = FORMAT_CADES_LTA_LEVEL;
-						}
-					} else {
-						format = resolveCAdESNoBaselineFormat(format, signature);
-					}
+				if ((features & SIGNING_TIME) != 0) {
+					format = resolveCAdESBaselineFormat(features, signedData);
 				}
-				// Si la firma no es CAdES B-Level
+				// Si no, comprobamos si la firma es CAdES-T
 				else {
-					// Comprobamos si la firma es CAdES-T, CAdES-C, CAdES-X1,
-					// CAdES-X2, CAdES-XL1, CAdES-XL2 o CAdES-A
-					format = resolveCAdESNoBaselineFormat(format, signature);
+					format = (features & SIGNATURE_TIME_STAMP) != 0 ? FORMAT_CADES_T : FORMAT_CADES_EPES;
 				}
 			}
+			// En otro caso la firma es CAdES-BES (incluidas las que solo
+			// tienen signing-certificate-v2). Comprobamos si es CAdES
+			// B-Level, esto es, si tiene el atributo firmado signing-time
+			else if ((features & SIGNING_TIME) != 0) {
+				format = resolveCAdESBaselineFormat(features, signedData);
+			}
+			else {
+				format = FORMAT_CADES_BES;
+			}
 		} catch (final Exception e) {
 			format = FORMAT_UNRECOGNIZED;
 		}
@@ -895,50 +748,18 @@ public class SignatureFormatDetectorPadesCades implements ISignatureFormatDetect
 	}
 
 	/**
-	 * Method that checks whether a signer has CMS format.
-	 *
-	 * @param signerInformation Parameter that represents the information about the
-	 *                          signer.
-	 * @return a boolean that indicates whether the signer has CMS format.
-	 */
-	private static boolean isCMS(final SignerInformation signerInformation) {
-		// Accedemos al conjunto de atributos firmados
-		final AttributeTable signedAttrs = signerInformation.getSignedAttributes();
-		// Se considera una firma con formato CMS si no posee ningún
-		// atributo firmado
-		// id_aa_signingCertificate, id_aa_signingCertificateV2, ni
-		// id_aa_ets_otherSigCert
-		return signedAttrs.get(PKCSObjectIdentifiers.id_aa_signingCertificate) == null
-				&& signedAttrs.get(PKCSObjectIdentifiers.id_aa_signingCertificateV2) == null
-				&& signedAttrs.get(PKCSObjectIdentifiers.id_aa_ets_otherSigCert) == null;
-	}
-
-	/**
-	 * Method that checks whether a signer has CAdES-T format.
-	 *
-	 * @param signerInformation Parameter that represents the information about the
-	 *                          signer.
-	 * @return a boolean that indicates whether the signer has CAdES-T format.
-	 */
-	private static boolean isCAdEST(final SignerInformation signerInformation) {
-		// Accedemos al conjunto de atributos no firmados
-		final AttributeTable unsignedAttrs = signerInformation.getUnsignedAttributes();
-		// Se considera una firma con formato CAdES-T si posee el
-		// atributo no firmado
-		// id-aa-timeStampToken
-		if (unsignedAttrs != null && unsignedAttrs.get(PKCSObjectIdentifiers.id_aa_signatureTimeStampToken) != null) {
-			return true;
-		}
-		return false;
-	}
-
-	/**
-	 * Method that obtains the concrete format of an ASN.1 signature which has, al
-	 * least, CAdES-EPES form.
+	 * Method that obtains the Baseline format of a CAdES B-Level signature:
+	 * <ul>
+	 * <li>T-Level: the signer has the <code>signature-time-stamp</code> attribute.</li>
+	 * <li>LT-Level: besides, the signed data contains at least one revocation
+	 * value and the signer doesn't contain any of the unsigned attributes of the
+	 * CAdES-C, CAdES-X, CAdES-XL and CAdES-A forms.</li>
+	 * <li>LTA-Level: besides, the signer has the <code>archive-time-stamp-v3</code>
+	 * attribute.</li>
+	 * </ul>
 	 *
-	 * @param signedData           Parameter that represents the signed data.
-	 * @param listSignersSignature Parameter that represents the list of signers of
-	 *                             the signature.
+	 * @param features   Parameter that represents the attributes of the signer.
+	 * @param signedData Parameter that represents the signed data.
 	 * @return the format of the signature. The format will have one of these
 	 *         values:
 	 *         <ul>
@@ -946,90 +767,25 @@ public class SignatureFormatDetectorPadesCades implements ISignatureFormatDetect
 	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_LT_LEVEL}.</li>
 	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_T_LEVEL}.</li>
 	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_B_LEVEL}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_A}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_XL2}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_XL1}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_X2}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_X1}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_T}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_C}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_EPES}.</li>
 	 *         </ul>
 	 */
-	private static String resolveFormatOfCAdESEPESSignature(final CMSSignedData signedData,
-			final SignerInformation signature) {
-		// Establecemos el formato a CAdES-EPES
-		String format = FORMAT_CADES_EPES;
-		// Comprobamos si la firma es CAdES B-Level, esto es, si tiene
-		// el atributo firmado signing-time
-		if (isCAdESBLevel(signature)) {
-			// Establecemos el formato a CAdES B-Level
-			format = FORMAT_CADES_B_LEVEL;
-			// Comprobamos si la firma posee signature-time-stamp en
-			// cuyo caso será CAdES T-Level
-			if (isCAdEST(signature)) {
-				// Establecemos el formato a CAdES T-Level
-				format = FORMAT_CADES_T_LEVEL;
-				// Comprobamos si la firma es LT-Level
-				if (isCAdESLTLevel(signature, signedData)) {
+	private static String resolveCAdESBaselineFormat(final int features, final CMSSignedData signedData) {
+		String format = FORMAT_CADES_B_LEVEL;
+		if ((features & SIGNATURE_TIME_STAMP) != 0) {
+			format = FORMAT_CADES_T_LEVEL;
+			if ((features & NO_LT_LEVEL_ATTRIBUTE) == 0) {
+				final CollectionStore<X509CRLHolder> crlStore = (CollectionStore<X509CRLHolder>) signedData.getCRLs();
+				if (crlStore != null && crlStore.iterator().hasNext()) {
 					format = FORMAT_CADES_LT_LEVEL;
-					// Comprobamos si la firma es LTA-Level
-					if (isCAdESLTALevel(signature)) {
+					if ((features & ARCHIVE_TIME_STAMP_V3) != 0) {
 						format = FORMAT_CADES_LTA_LEVEL;
 					}
 				}
 			}
 		}
-		// Si la firma no es CAdES B-Level
-		else {
-			// Comprobamos si la firma es CAdES-T, CAdES-C, CAdES-X1,
-			// CAdES-X2, CAdES-XL1, CAdES-XL2 o CAdES-A
-			format = resolveCAdESNoBaselineFormat(format, signature);
-		}
-		return format;
-	}
-
-	/**
-	 * Method that obtains the format of a CAdES signature without Baseline form.
-	 *
-	 * @param temporalFormat       Parameter that represents the current format of
-	 *                             the CAdES signature. It must have one of these
-	 *                             values:
-	 *                             <ul>
-	 *                             <li>{@link ISignatureFormatDetector#FORMAT_CADES_BES}.</li>
-	 *                             <li>{@link ISignatureFormatDetector#FORMAT_CADES_EPES}.</li>
-	 *                             </ul>
-	 * @param listSignersSignature Parameter that represents the signers list of the
-	 *                             signature.
-	 * @return the format of the CAdES signature without Baseline form. The format
-	 *         will have one of these values:
-	 *         <ul>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_A}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_XL2}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_XL1}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_X2}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_X1}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_T}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_C}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_BES}.</li>
-	 *         <li>{@link ISignatureFormatDetector#FORMAT_CADES_EPES}.</li>
-	 *         </ul>
-	 */
-	private static String resolveCAdESNoBaselineFormat(final String temporalFormat,
-			final SignerInformation signature) {
-		// Primero establecemos el formato a devolver como el formato temporal
-		// que posee la firma
-		String format = temporalFormat;
-
-		// Si la firma no es CAdES-T comprobamos si pudiera serlo
-		if (!format.equals(FORMAT_CADES_T_LEVEL) && isCAdEST(signature)) {
-			format = FORMAT_CADES_T;
-		}
-
 		return format;
 	}
 
-
 	/**
 	 * Method that checks whether an ASN.1 signature has
 	 * <code>SignaturePolicyIdentifier</code> element.
@@ -1048,232 +804,50 @@ public class SignatureFormatDetectorPadesCades implements ISignatureFormatDetect
 	}
 
 	/**
-	 * Method that checks whether a signer has CAdES-BES format.
+	 * Method that obtains, reading each attribute only once, the attributes of a
+	 * signer used to determine its format.
 	 *
 	 * @param signerInformation Parameter that represents the information about the
 	 *                          signer.
-	 * @return a boolean that indicates whether the signer has CAdES-BES format.
+	 * @return the attributes of the signer, as a combination of the feature bits.
 	 */
-	private static boolean isCAdESBES(final SignerInformation signerInformation) {
-		// Accedemos al conjunto de atributos firmados
-		final AttributeTable signedAttrs = signerInformation.getSignedAttributes();
-		// Se considera una firma con formato CAdES-BES si posee los
-		// atributos firmados
-		// id_aa_signingCertificate, o id_aa_signingCertificateV2, o
-		// id_aa_ets_otherSigCert
-		return signedAttrs.get(PKCSObjectIdentifiers.id_aa_signingCertificate) != null
-				|| signedAttrs.get(PKCSObjectIdentifiers.id_aa_signingCertificateV2) != null
-				|| signedAttrs.get(PKCSObjectIdentifiers.id_aa_ets_otherSigCert) != null;
-	}
+	private static int getSignerFeatures(final SignerInformation signerInformation) {
+		int features = 0;
 
-	/**
-	 * Method that checks whether a signer has CAdES-B-B-Level format.
-	 *
-	 * @param signerInformation Parameter that represents the information about the
-	 *                          signer.
-	 * @return a boolean that indicates whether the signer has CAdES-B-B-Level format.
-	 */
-	private static boolean isCAdESBBLevel(final SignerInformation signerInformation) {
-		// Accedemos al conjunto de atributos firmados
 		final AttributeTable signedAttrs = signerInformation.getSignedAttributes();
-		// Se considera una firma con formato CAdES-B-B-Level si posee el
-		// atributo firmado id_aa_signingCertificateV2
-		return signedAttrs.get(PKCSObjectIdentifiers.id_aa_signingCertificateV2) != null;
-	}
-
-
-	/**
-	 * Method that checks if the signature has <code>signing-time</code> attribute.
-	 *
-	 * @param signature Parameter that represents the signer of the
-	 *                             signature.
-	 * @return a boolean that indicates if the signature has
-	 *         <code>signing-time</code> attribute (true) or not (false).
-	 */
-	private static boolean isCAdESBLevel(final SignerInformation signature) {
-		// Si la firma posee firmantes
-
-		// Accedemos al conjunto de atributos firmados
-		final AttributeTable signedAttrs = signature.getSignedAttributes();
-
-		// Comprobamos si tiene el atributo signing-time
-		if (signedAttrs.get(PKCSObjectIdentifiers.pkcs_9_at_signingTime) != null) {
-			return true;
-		}
-
-		return false;
-	}
-
-	/**
-	 * Method that checks if a signer has CAdES LT-Level format, it contains at
-	 * least one revocation value into the signed data, and it doesn't contain any
-	 * of the following unsigned attributes:
-	 * <ul>
-	 * <li>complete-certificate-references.</li>
-	 * <li>complete-revocation-references.</li>
-	 * <li>attribute-certificate-references.</li>
-	 * <li>attribute-revocation-references.</li>
-	 * <li>CAdES-C-time-stamp.</li>
-	 * <li>time-stamped-certs-crls-references.</li>
-	 * <li>certificate-values.</li>
-	 * <li>revocation-values.</li>
-	 * <li>archive-time-stamp.</li>
-	 * <li>archive-time-stampv2.</li>
-	 * <li>long-term-validation.</li>
-	 * </ul>
-	 *
-	 * @param signerInformation Parameter that represents the information about the
-	 *                          signer.
-	 * @param cmsSignedData     Parameter that represents the signed data.
-	 * @return a boolean that indicates if the signer has CAdES LT-Level (true) or
-	 *         not (false).
-	 */
-	private static boolean isCAdESLTLevel(final SignerInformation signerInformation,
-			final CMSSignedData cmsSignedData) {
-		// Accedemos al conjunto de atributos no firmados
-		final AttributeTable unsignedAttrs = signerInformation.getUnsignedAttributes();
-
-		/*
-		 * Comprobamos que la firma no contenga ninguno de los atributos no firmados: >
-		 * complete-certificate-references > complete-revocation-references >
-		 * attribute-certificate-references > attribute-revocation-references >
-		 * CAdES-C-time-stamp > time-stamped-certs-crls-references > certificate-values
-		 * > revocation-values > archive-time-stamp > archive-time-stampv2 >
-		 * long-term-validation
-		 *
-		 * y que contenga al menos un elemento de revocación dentro de SignedData.crl
-		 */
-		final CollectionStore<X509CRLHolder> crlStore = (CollectionStore<X509CRLHolder>) cmsSignedData.getCRLs();
-		if (checkUnsignedAttributesForCAdESLTLevel(unsignedAttrs) && crlStore != null) {
-			final Iterator<X509CRLHolder> it = crlStore.iterator();
-			if (it.hasNext()) {
-				return true;
+		if (signedAttrs != null) {
+			final ASN1EncodableVector attributes = signedAttrs.toASN1EncodableVector();
+			for (int i = 0; i < attributes.size(); i++) {
+				final ASN1ObjectIdentifier type = Attribute.getInstance(attributes.get(i)).getAttrType();
+				if (PKCSObjectIdentifiers.id_aa_signingCertificate.equals(type)) {
+					features |= SIGNING_CERTIFICATE;
+				} else if (PKCSObjectIdentifiers.id_aa_signingCertificateV2.equals(type)) {
+					features |= SIGNING_CERTIFICATE_V2;
+				} else if (PKCSObjectIdentifiers.id_aa_ets_otherSigCert.equals(type)) {
+					features |= OTHER_SIGNING_CERTIFICATE;
+				} else if (PKCSObjectIdentifiers.id_aa_ets_sigPolicyId.equals(type)) {
+					features |= SIGNATURE_POLICY_IDENTIFIER;
+				} else if (PKCSObjectIdentifiers.pkcs_9_at_signingTime.equals(type)) {
+					features |= SIGNING_TIME;
+				}
 			}
 		}
-		return false;
-	}
-
 
-	/**
-	 * Method that checks if a signature doesn't contain any of the next unsigned
-	 * attributes:
-	 * <ul>
-	 * <li>complete-certificate-references.</li>
-	 * <li>complete-revocation-references.</li>
-	 * <li>attribute-certificate-references.</li>
-	 * <li>attribute-revocation-references.</li>
-	 * <li>CAdES-C-time-stamp.</li>
-	 * <li>time-stamped-certs-crls-references.</li>
-	 * <li>certificate-values.</li>
-	 * <li>revocation-values.</li>
-	 * <li>archive-time-stamp.</li>
-	 * <li>archive-time-stampv2.</li>
-	 * <li>long-term-validation.</li>
-	 * </ul>
-	 *
-	 * @param unsignedAttrs Parameter that represents the unsigned attributes of the
-	 *                      signature.
-	 * @return a boolean that indicates if the signature contains at least one of
-	 *         the attributes (false) or none (true).
-	 */
-	private static boolean checkUnsignedAttributesForCAdESLTLevel(final AttributeTable unsignedAttrs) {
+		final AttributeTable unsignedAttrs = signerInformation.getUnsignedAttributes();
 		if (unsignedAttrs != null) {
-			// complete-certificate-references
-			if (unsignedAttrs.get(PKCSObjectIdentifiers.id_aa_ets_certificateRefs) != null) {
-				return false;
-			}
-
-			// complete-revocation-references
-			if (unsignedAttrs.get(PKCSObjectIdentifiers.id_aa_ets_revocationRefs) != null) {
-				return false;
-			}
-
-			// attribute-certificate-references
-			if (unsignedAttrs.get(ID_ATTRIBUTE_CERTIFICATE_REFERENCES) != null) {
-				return false;
-			}
-
-			// attribute-revocation-references
-			if (unsignedAttrs.get(ID_ATTRIBUTE_REVOCATION_REFERENCES) != null) {
-				return false;
-			}
-
-			// CAdES-C-time-stamp
-			if (unsignedAttrs.get(PKCSObjectIdentifiers.id_aa_ets_escTimeStamp) != null) {
-				return false;
-			}
-
-			// time-stamped-certs-crls-references
-			if (unsignedAttrs.get(PKCSObjectIdentifiers.id_aa_ets_certCRLTimestamp) != null) {
-				return false;
-			}
-
-			// certificate-values
-			if (unsignedAttrs.get(PKCSObjectIdentifiers.id_aa_ets_certValues) != null) {
-				return false;
+			final ASN1EncodableVector attributes = unsignedAttrs.toASN1EncodableVector();
+			for (int i = 0; i < attributes.size(); i++) {
+				final ASN1ObjectIdentifier type = Attribute.getInstance(attributes.get(i)).getAttrType();
+				if (PKCSObjectIdentifiers.id_aa_signatureTimeStampToken.equals(type)) {
+					features |= SIGNATURE_TIME_STAMP;
+				} else if (ID_ARCHIVE_TIME_STAMP_V3.equals(type)) {
+					features |= ARCHIVE_TIME_STAMP_V3;
+				} else if (NO_LT_LEVEL_ATTRIBUTES.contains(type)) {
+					features |= NO_LT_LEVEL_ATTRIBUTE;
+				}
 			}
-
-			return checkUnsignedAttributesForCAdESLTLevelAux(unsignedAttrs);
-		}
-		return true;
-	}
-
-	/**
-	 * Method that checks if a signature doesn't contain any of the next unsigned
-	 * attributes:
-	 * <ul>
-	 * <li>revocation-values.</li>
-	 * <li>archive-time-stamp.</li>
-	 * <li>archive-time-stampv2.</li>
-	 * <li>long-term-validation.</li>
-	 * </ul>
-	 *
-	 * @param unsignedAttrs Parameter that represents the unsigned attributes of the
-	 *                      signature.
-	 * @return a boolean that indicates if the signature contains at least one of
-	 *         the attributes (false) or none (true).
-	 */
-	private static boolean checkUnsignedAttributesForCAdESLTLevelAux(final AttributeTable unsignedAttrs) {
-		// revocation-values
-		if (unsignedAttrs.get(PKCSObjectIdentifiers.id_aa_ets_revocationValues) != null) {
-			return false;
-		}
-
-		// archive-time-stamp
-		if (unsignedAttrs.get(ESFAttributes.archiveTimestamp) != null) {
-			return false;
-		}
-
-		// archive-time-stamp-v2
-		if (unsignedAttrs.get(ESFAttributes.archiveTimestampV2) != null) {
-			return false;
-		}
-
-		// long-term-validation
-		if (unsignedAttrs.get(ID_LONG_TERM_VALIDATION) != null) {
-			return false;
-		}
-		return true;
-	}
-
-	/**
-	 * Method that checks if a signer contains the
-	 * <code>archive-time-stamp-v3</code> attribute.
-	 *
-	 * @param signerInformation Parameter that represents the information about the
-	 *                          signer.
-	 * @return a boolean that indicates if the signer contains the
-	 *         <code>archive-time-stamp-v3</code> attribute (true) or not (false).
-	 */
-	private static boolean isCAdESLTALevel(final SignerInformation signerInformation) {
-		// Accedemos al conjunto de atributos no firmados
-		final AttributeTable unsignedAttrs = signerInformation.getUnsignedAttributes();
-
-		// Comprobamos si tiene el atributo archive-time-stamp-v3
-		if (unsignedAttrs != null && unsignedAttrs.get(ID_ARCHIVE_TIME_STAMP_V3) != null) {
-			return true;
 		}
-		return false;
+		return features;
 	}
 
 
@@ -21,6 +21,103 @@ import es.gob.afirma.signers.xml.XMLConstants;
  */
 public final class SignatureFormatDetectorXades implements ISignatureFormatDetector {
 
+    /** Feature bit: the signature contains the <code>xades:QualifyingProperties</code> element. */
+    private static final int QUALIFYING_PROPERTIES = 1;
+
+    /** Feature bit: the signature contains the <code>xades:QualifyingPropertiesReference</code> element. */
+    private static final int QUALIFYING_PROPERTIES_REFERENCE = 1 << 1;
+
+    /** Feature bit: the signature contains the <code>xades:SignaturePolicyIdentifier</code> element. */
+    private static final int SIGNATURE_POLICY_IDENTIFIER = 1 << 2;
+
+    /** Feature bit: the signature contains the <code>xades:SigningCertificate</code> element. */
+    private static final int SIGNING_CERTIFICATE = 1 << 3;
+
+    /** Feature bit: the signature contains the <code>xades:SigningCertificateV2</code> element. */
+    private static final int SIGNING_CERTIFICATE_V2 = 1 << 4;
+
+    /** Feature bit: the signature contains the <code>xades:SigningTime</code> element. */
+    private static final int SIGNING_TIME = 1 << 5;
+
+    /** Feature bit: the signature contains the <code>xades:DataObjectFormat</code> element. */
+    private static final int DATA_OBJECT_FORMAT = 1 << 6;
+
+    /** Feature bit: the <code>xades:DataObjectFormat</code> element contains the <code>xades:MimeType</code> element. */
+    private static final int MIME_TYPE = 1 << 7;
+
+    /** Feature bit: the signature contains the <code>xades:SignatureTimeStamp</code> element. */
+    private static final int SIGNATURE_TIMESTAMP = 1 << 8;
+
+    /** Feature bit: the signature contains the <code>xades:CertificateValues</code> element. */
+    private static final int CERTIFICATE_VALUES = 1 << 9;
+
+    /** Feature bit: the signature contains the <code>xades:RevocationValues</code> element. */
+    private static final int REVOCATION_VALUES = 1 << 10;
+
+    /** Feature bit: the signature contains the <code>xadesv141:TimeStampValidationData</code> element. */
+    private static final int TIME_STAMP_VALIDATION_DATA = 1 << 11;
+
+    /** Feature bit: the signature contains the <code>xades:CompleteCertificateRefs</code> element. */
+    private static final int COMPLETE_CERTIFICATE_REFS = 1 << 12;
+
+    /** Feature bit: the signature contains the <code>xades:CompleteRevocationRefs</code> element. */
+    private static final int COMPLETE_REVOCATION_REFS = 1 << 13;
+
+    /** Feature bit: the signature contains the <code>xades:AttributeCertificateRefs</code> element. */
+    private static final int ATTRIBUTE_CERTIFICATE_REFS = 1 << 14;
+
+    /** Feature bit: the signature contains the <code>xades:AttributeRevocationRefs</code> element. */
+    private static final int ATTRIBUTE_REVOCATION_REFS = 1 << 15;
+
+    /** Feature bit: the signature contains the <code>xades:SigAndRefsTimeStamp</code> element. */
+    private static final int SIG_AND_REFS_TIMESTAMP = 1 << 16;
+
+    /** Feature bit: the signature contains the <code>xades:RefsOnlyTimeStamp</code> element. */
+    private static final int REFS_ONLY_TIMESTAMP = 1 << 17;
+
+    /** Feature bit: the signature contains an <code>ArchiveTimeStamp</code> element. */
+    private static final int ARCHIVE_TIMESTAMP = 1 << 18;
+
+    /** Properties that a XAdES LT-Level signature mustn't contain. */
+    private static final int NO_LT_LEVEL_PROPERTIES = COMPLETE_CERTIFICATE_REFS | COMPLETE_REVOCATION_REFS
+	    | ATTRIBUTE_CERTIFICATE_REFS | ATTRIBUTE_REVOCATION_REFS | SIG_AND_REFS_TIMESTAMP | REFS_ONLY_TIMESTAMP;
+
+    /** Level bit: XAdES-EPES. */
+    private static final int LEVEL_EPES = 1;
+
+    /** Level bit: XAdES-BES. */
+    private static final int LEVEL_BES = 1 << 1;
+
+    /** Level bit: XAdES B-Level. */
+    private static final int LEVEL_B = 1 << 2;
+
+    /** Level bit: XAdES B-B-Level. */
+    private static final int LEVEL_BB = 1 << 3;
+
+    /** Level bit: XAdES-T and XAdES T-Level. */
+    private static final int LEVEL_T = 1 << 4;
+
+    /** Level bit: XAdES LT-Level. */
+    private static final int LEVEL_LT = 1 << 5;
+
+    /** Level bit: XAdES-A and XAdES LTA-Level. */
+    private static final int LEVEL_A = 1 << 6;
+
+    /** Level bit: XAdES-XL1. */
+    private static final int LEVEL_XL1 = 1 << 7;
+
+    /** Level bit: XAdES-XL2. */
+    private static final int LEVEL_XL2 = 1 << 8;
+
+    /** Level bit: XAdES-X1. */
+    private static final int LEVEL_X1 = 1 << 9;
+
+    /** Level bit: XAdES-X2. */
+    private static final int LEVEL_X2 = 1 << 10;
+
+    /** Level bit: XAdES-C. */
+    private static final int LEVEL_C = 1 << 11;
+
     /**
      * Constructor method for the class SignatureFormatDetector.java.
      */
@@ -62,44 +159,32 @@ public final class SignatureFormatDetectorXades implements ISignatureFormatDetec
 		// con un sello de tiempo XML
 		final List<Element> listSignatureElements = getListSignatures(doc);
 
+		// Recorremos una unica vez cada firma y acumulamos los niveles
+		// que alcanza alguna de ellas
+		int levels = 0;
+		int firstSignatureLevels = 0;
+		for (int i = 0; i < listSignatureElements.size(); i++) {
+		    final int signatureLevels = getLevels(getFeatures(listSignatureElements.get(i)));
+		    if (i == 0) {
+			firstSignatureLevels = signatureLevels;
+		    }
+		    levels |= signatureLevels;
+		}
+
+		// El nivel B-Level del documento es el de su primera firma
+		final boolean bLevel = (firstSignatureLevels & LEVEL_B) != 0;
+
 		// Comprobamos si alguna de las firmas del documento XML tiene
 		// el
 		// formato XAdES-EPES
-		if (isXAdESEPES(listSignatureElements)) {
-		    // Comprobamos si alguna de las firmas del documento XML
-		    // tiene
-		    // un formato Baseline, estableciendo que, al menos, el
-		    // formato
-		    // es XAdES-EPES
-		    format = resolveXAdESBaselineFormat(ISignatureFormatDetector.FORMAT_XADES_EPES, listSignatureElements);
-
-		    // Si ninguna de las firmas del documento XML tiene un
-		    // formato
-		    // Baseline, es decir, el formato por ahora es XAdES-EPES,
-		    // comprobamos si posee un formato mÃ¡s avanzado no Baseline
-		    if (format.equals(ISignatureFormatDetector.FORMAT_XADES_EPES)) {
-		    	format = resolveXAdESNoBaselineFormat(ISignatureFormatDetector.FORMAT_XADES_EPES, listSignatureElements);
-		    }
-
+		if ((levels & LEVEL_EPES) != 0) {
+		    format = resolveXAdESFormat(ISignatureFormatDetector.FORMAT_XADES_EPES, levels, bLevel, false);
 		}
 		// Comprobamos si alguna de las firmas del documento XML tiene
 		// el
 		// formato XAdES-BES
-		else if (isXAdESBES(listSignatureElements)) {
-		    // Comprobamos si alguna de las firmas del documento XML
-		    // tiene
-		    // un formato Baseline, estableciendo que, al menos, el
-		    // formato
-		    // es XAdES-BES
-		    format = resolveXAdESBaselineFormat(ISignatureFormatDetector.FORMAT_XADES_BES, listSignatureElements);
-
-		    // Si ninguna de las firmas del documento XML tiene un
-		    // formato
-		    // Baseline, es decir, el formato por ahora es XAdES-BES,
-		    // comprobamos si posee un formato mÃ¡s avanzado no Baseline
-		    if (format.equals(ISignatureFormatDetector.FORMAT_XADES_BES)) {
-		    	format = resolveXAdESNoBaselineFormat(ISignatureFormatDetector.FORMAT_XADES_BES, listSignatureElements);
-		    }
+		else if ((levels & LEVEL_BES) != 0) {
+		    format = resolveXAdESFormat(ISignatureFormatDetector.FORMAT_XADES_BES, levels, bLevel, false);
 		}
 
 	    } catch (final Exception e) {
@@ -110,155 +195,62 @@ public final class SignatureFormatDetectorXades implements ISignatureFormatDetec
     }
 
     /**
-     * Method that obtains the format of the most advanced XML signature format of Baseline form contained inside of a signed XML document.
-     * @param temporalFormat Parameter that represents the current most advanced XML signature format contained inside of a signed XML document. This parameter only allows one of these values:
+     * Method that obtains the most advanced format of a set of levels, starting from the Baseline forms and, if none
+     * of them is reached, from the forms without Baseline form.
+     * @param temporalFormat Parameter that represents the current format. This parameter only allows one of these values:
      * <ul>
      * <li>{@link ISignatureFormatDetector#FORMAT_XADES_BES}.</li>
      * <li>{@link ISignatureFormatDetector#FORMAT_XADES_EPES}.</li>
      * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures contained inside of the XML document.
-     * @return the most advanced XML signature format of Baseline form contained inside of the signed XML document, or the current most advanced XML signature format contained inside of a signed XML document
-     * if any of the signatures contained inside of the XML document has a Baseline form. The value to return will be on of these:
-     * <ul>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_LTA_LEVEL}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_LT_LEVEL}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_T_LEVEL}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_B_LEVEL}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_BES}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_EPES}.</li>
-     * </ul>
+     * @param levels Parameter that represents the levels reached, as a combination of the <code>LEVEL_*</code> bits.
+     * @param bLevel Parameter that indicates if the format has XAdES B-Level form.
+     * @param bbLevel Parameter that indicates if the format has XAdES B-B-Level form.
+     * @return the most advanced format.
      */
-    private static String resolveXAdESBaselineFormat(final String temporalFormat, final List<Element> listSignatureElements) {
+    private static String resolveXAdESFormat(final String temporalFormat, final int levels, final boolean bLevel, final boolean bbLevel) {
 	String format = temporalFormat;
-	// Comprobamos si alguna de las firmas del documento XML tiene
-	// el formato XAdES B-Level
-	if (isXAdESBLevel(listSignatureElements)) {
-	    // Indicamos que el formato por ahora es XAdES B-Level
+	if (bLevel) {
 	    format = ISignatureFormatDetector.FORMAT_XADES_B_LEVEL;
-
-	    // Comprobamos si alguna de las firmas del documento XML
-	    // tiene
-	    // el formato XAdES T-Level
-	    if (isXAdEST(listSignatureElements)) {
-			// Indicamos que el formato por ahora es XAdES T-Level
-			format = ISignatureFormatDetector.FORMAT_XADES_T_LEVEL;
-
-			// Comprobamos si alguna de las firmas del documento XML
-			// tiene
-			// el formato XAdES LT-Level
-			if (isXAdESLTLevel(listSignatureElements)) {
-			    // Indicamos que el formato por ahora es XAdES
-			    // LT-Level
-			    format = ISignatureFormatDetector.FORMAT_XADES_LT_LEVEL;
-
-			    // Comprobamos si alguna de las firmas del documento XML
-			    // tiene
-			    // el formato XAdES LTA-Level
-			    if (isXAdESLTALevel(listSignatureElements)) {
-					// Indicamos que el formato por ahora es XAdES
-					// LTA-Level
-					format = ISignatureFormatDetector.FORMAT_XADES_LTA_LEVEL;
-
-			    }
-			} else {
-			    resolveXAdESNoBaselineFormat(format, listSignatureElements);
-			}
-
+	    if ((levels & LEVEL_T) != 0) {
+		format = ISignatureFormatDetector.FORMAT_XADES_T_LEVEL;
+		if ((levels & LEVEL_LT) != 0) {
+		    format = ISignatureFormatDetector.FORMAT_XADES_LT_LEVEL;
+		    if ((levels & LEVEL_A) != 0) {
+			format = ISignatureFormatDetector.FORMAT_XADES_LTA_LEVEL;
+		    }
+		}
 	    }
 	}
-	return format;
-    }
-
-    /**
-     * Method that obtains the format of the most advanced XML signature format without Baseline form contained inside of a signed XML document.
-     * @param temporalFormat Parameter that represents the current most advanced XML signature format contained inside of a signed XML document. This parameter only allows one of these values:
-     * <ul>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_BES}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_EPES}.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures contained inside of the XML document.
-     * @return the most advanced XML signature format without Baseline form contained inside of the signed XML document. The value to return will be on of these:
-     * <ul>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_A}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_XL2}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_XL1}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_X2}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_X1}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_T}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_C}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_BES}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_EPES}.</li>
-     * </ul>
-     */
-    private static String resolveXAdESNoBaselineFormat(final String temporalFormat, final List<Element> listSignatureElements) {
-	String format = temporalFormat;
-
-	// Comprobamos si alguna de las firmas del documento XML
-	// tiene
-	// el formato XAdES-A
-	if (isXAdESA(listSignatureElements)) {
-	    // Indicamos que el formato es XAdES-A
-	    format = ISignatureFormatDetector.FORMAT_XADES_A;
-	}
-	// Comprobamos si alguna de las firmas del documento XML
-	// tiene
-	// el formato XAdES-XL1
-	else if (isXAdESXL1(listSignatureElements)) {
-	    // Indicamos que el formato es XAdES-XL1
-	    format = ISignatureFormatDetector.FORMAT_XADES_XL1;
-	}
-	// Comprobamos si alguna de las firmas del documento XML
-	// tiene
-	// el formato XAdES-XL2
-	else if (isXAdESXL2(listSignatureElements)) {
-	    // Indicamos que el formato es XAdES-XL2
-	    format = ISignatureFormatDetector.FORMAT_XADES_XL2;
-	}
-	// Comprobamos si alguna de las firmas del documento XML
-	// tiene
-	// el formato XAdES-X1
-	else if (isXAdESX1(listSignatureElements)) {
-	    // Indicamos que el formato es XAdES-X1
-	    format = ISignatureFormatDetector.FORMAT_XADES_X1;
-	}
-	// Comprobamos si alguna de las firmas del documento XML
-	// tiene
-	// el formato XAdES-X2
-	else if (isXAdESX2(listSignatureElements)) {
-	    // Indicamos que el formato es XAdES-X2
-	    format = ISignatureFormatDetector.FORMAT_XADES_X2;
-	}
-	// Comprobamos si alguna de las firmas del documento XML
-	// tiene
-	// el formato XAdES-C
-	else if (isXAdESC(listSignatureElements)) {
-	    // Indicamos que el formato es XAdES-C
-	    format = ISignatureFormatDetector.FORMAT_XADES_C;
-	}
-	// Comprobamos si alguna de las firmas del documento XML
-	// tiene
-	// el formato XAdES-T
-	else if (isXAdEST(listSignatureElements) && !format.equals(ISignatureFormatDetector.FORMAT_XADES_T_LEVEL)) {
-	    // Indicamos que el formato es XAdES-T
-	    format = ISignatureFormatDetector.FORMAT_XADES_T;
+	else if (bbLevel) {
+	    format = ISignatureFormatDetector.FORMAT_XADES_B_B_LEVEL;
 	}
-	return format;
-    }
 
-    /**
-     * Method that obtains a child element of a parent element, both elements contained inside of a XML document.
-     * @param parentElement Parameter that represents the parent element.
-     * @param namespace Parameter that represents the namespace of the element to obtain.
-     * @param elementName Parameter that represents the name of the element to obtain.
-     * @return the found element, or <code>null</code> if the element hasn't been found.
-     */
-    private static Element getXMLElement(final Element parentElement, final String namespace, final String elementName) {
-	Element result = (Element) parentElement.getElementsByTagNameNS(namespace, elementName).item(0);
-	if (result == null) {
-	    result = (Element) parentElement.getElementsByTagName(elementName).item(0);
+	// Si no tiene un formato Baseline, comprobamos si posee un formato
+	// mas avanzado no Baseline
+	if (format.equals(temporalFormat)) {
+	    if ((levels & LEVEL_A) != 0) {
+		format = ISignatureFormatDetector.FORMAT_XADES_A;
+	    }
+	    else if ((levels & LEVEL_XL1) != 0) {
+		format = ISignatureFormatDetector.FORMAT_XADES_XL1;
+	    }
+	    else if ((levels & LEVEL_XL2) != 0) {
+		format = ISignatureFormatDetector.FORMAT_XADES_XL2;
+	    }
+	    else if ((levels & LEVEL_X1) != 0) {
+		format = ISignatureFormatDetector.FORMAT_XADES_X1;
+	    }
+	    else if ((levels & LEVEL_X2) != 0) {
+		format = ISignatureFormatDetector.FORMAT_XADES_X2;
+	    }
+	    else if ((levels & LEVEL_C) != 0) {
+		format = ISignatureFormatDetector.FORMAT_XADES_C;
+	    }
+	    else if ((levels & LEVEL_T) != 0) {
+		format = ISignatureFormatDetector.FORMAT_XADES_T;
+	    }
 	}
-
-	return result;
+	return format;
     }
 
     /**
@@ -267,854 +259,270 @@ public final class SignatureFormatDetectorXades implements ISignatureFormatDetec
      * @return a boolean that indicates if the XML signature contains the <code>xades:SignaturePolicyIdentifier</code> element (true) or not (false).
      */
     public static boolean hasSignaturePolicyIdentifier(final Element dsSignature) {
-	// Accedemos al elemento SignedProperties
-	final Element signedProperties = getXMLElement(dsSignature, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_PROPERTIES);
-	if (signedProperties != null) {
-	    // Accedemos al elemento SignedSignatureProperties
-	    final Element signedSignatureProperties = getXMLElement(signedProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_SIGNATURE_PROPERTIES);
-	    if (signedSignatureProperties != null) {
-			// Se considera una firma con formato XAdES-EPES si
-			// posee el
-			// elemento SignaturePolicyIdentifier
-			final Element signaturePolicyIdentifier = getXMLElement(signedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNATURE_POLICY_IDENTIFIER);
-			if (signaturePolicyIdentifier != null) {
-			    return true;
-			}
-	    }
-	}
-	return false;
+	return (getFeatures(dsSignature) & SIGNATURE_POLICY_IDENTIFIER) != 0;
     }
 
     /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:ArchiveTimeStamp</code> element</li>
-     * or
-     * <li><code>xadesv141:ArchiveTimeStamp</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of the list of XML signatures contains:
+     * Method that obtains the levels reached by a signature from the properties it contains:
      * <ul>
-     * <li>One <code>xades:ArchiveTimeStamp</code> element</li>
-     * or
-     * <li>One <code>xadesv141:ArchiveTimeStamp</code> element.</li>
+     * <li>EPES: <code>xades:SignaturePolicyIdentifier</code>.</li>
+     * <li>BES: <code>xades:QualifyingProperties</code>.</li>
+     * <li>B-Level: <code>xades:SigningCertificate</code>, <code>xades:SigningTime</code> and <code>xades:DataObjectFormat</code>
+     * with <code>xades:MimeType</code>, and no <code>xades:QualifyingPropertiesReference</code>.</li>
+     * <li>B-B-Level: the same as B-Level but with <code>xades:SigningCertificateV2</code>.</li>
+     * <li>T: <code>xades:SignatureTimeStamp</code>.</li>
+     * <li>LT-Level: <code>xadesv141:TimeStampValidationData</code> and none of the references or timestamps of the
+     * C and X forms.</li>
+     * <li>A and LTA-Level: <code>ArchiveTimeStamp</code>.</li>
+     * <li>XL1 and XL2: <code>xades:SigAndRefsTimeStamp</code> or <code>xades:RefsOnlyTimeStamp</code>, with
+     * <code>xades:CertificateValues</code> and <code>xades:RevocationValues</code>.</li>
+     * <li>X1 and X2: <code>xades:SigAndRefsTimeStamp</code> or <code>xades:RefsOnlyTimeStamp</code>.</li>
+     * <li>C: <code>xades:CompleteCertificateRefs</code> and <code>xades:CompleteRevocationRefs</code>.</li>
      * </ul>
+     * @param features Parameter that represents the properties of the signature, as obtained by {@link #getFeatures(Element)}.
+     * @return the levels reached by the signature, as a combination of the <code>LEVEL_*</code> bits.
      */
-    private static boolean isXAdESLTALevel(final List<Element> listSignatureElements) {
-    	return isXAdESA(listSignatureElements);
-    }
-
-    /**
-     * Method that indicates if a signer has XAdES LTA-Level format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES LTA-Level format.
-     */
-    private static boolean isXAdESLTALevel(final Element signatureElement) {
-    	return isXAdESA(signatureElement);
-    }
-
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains:
-     * <ul>
-     * <li>One <code>xades:CertificateValues</code> element and one <code>xades:RevocationValues</code> element</li>
-     * or at least one
-     * <li><code>xadesv141:TimeStampValidationData</code> element.</li>
-     * </ul>
-     * And it doesn't contain:
-     * <ul>
-     * <li>Any <code>xades:CompleteCertificateRefs</code> element</li>
-     * and
-     * <li>Any <code>xades:CompleteRevocationRefs</code> element</li>
-     * and
-     * <li>Any <code>xades:AttributeCertificateRefs</code> element</li>
-     * and
-     * <li>Any <code>xades:AttributeRevocationRefs</code> element</li>
-     * and
-     * <li>Any <code>xades:SigAndRefsTimeStamp</code> element</li>
-     * and
-     * <li>Any <code>xades:RefsOnlyTimeStamp</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of the list of XML signatures contains:
-     * <ul>
-     * <li>One <code>xades:CertificateValues</code> element and one <code>xades:RevocationValues</code> element</li>
-     * or at least one
-     * <li><code>xadesv141:TimeStampValidationData</code> element.</li>
-     * </ul>
-     * And it doesn't contain:
-     * <ul>
-     * <li>Any <code>xades:CompleteCertificateRefs</code> element</li>
-     * and
-     * <li>Any <code>xades:CompleteRevocationRefs</code> element</li>
-     * and
-     * <li>Any <code>xades:AttributeCertificateRefs</code> element</li>
-     * and
-     * <li>Any <code>xades:AttributeRevocationRefs</code> element</li>
-     * and
-     * <li>Any <code>xades:SigAndRefsTimeStamp</code> element</li>
-     * and
-     * <li>Any <code>xades:RefsOnlyTimeStamp</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdESLTLevel(final List<Element> listSignatureElements) {
-	/* Una firma se considerarÃ¡ XAdES LT-Level si posee los elementos:
-	 * > xades:CertificateValues y xades:RevocationValues
-	 * > o xadesv141:TimeStampValidationData
-	 * Y si no posee los elementos:
-	 * > xades:CompleteCertificateRefs
-	 * > xades:CompleteRevocationRefs
-	 * > xades:AttributeCertificateRefs
-	 * > xades:AttributeRevocationRefs
-	 * > xades:SigAndRefsTimeStamp
-	 * > xades:RefsOnlyTimeStamp
-	 */
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-			if (isXAdESLTLevel(signatureElement)) {
-			    return true;
-			}
+    private static int getLevels(final int features) {
+	int levels = 0;
+	if ((features & SIGNATURE_POLICY_IDENTIFIER) != 0) {
+	    levels |= LEVEL_EPES;
+	}
+	if ((features & QUALIFYING_PROPERTIES) != 0) {
+	    levels |= LEVEL_BES;
+	}
+	if ((features & QUALIFYING_PROPERTIES_REFERENCE) == 0 && (features & DATA_OBJECT_FORMAT) != 0
+		&& (features & MIME_TYPE) != 0 && (features & SIGNING_TIME) != 0) {
+	    if ((features & SIGNING_CERTIFICATE) != 0) {
+		levels |= LEVEL_B;
+	    }
+	    if ((features & SIGNING_CERTIFICATE_V2) != 0) {
+		levels |= LEVEL_BB;
 	    }
 	}
-	return false;
+	if ((features & SIGNATURE_TIMESTAMP) != 0) {
+	    levels |= LEVEL_T;
+	}
+	// Para el nivel LT-Level se ha tenido en cuenta siempre el elemento
+	// xadesv141:TimeStampValidationData
+	if ((features & TIME_STAMP_VALIDATION_DATA) != 0 && (features & NO_LT_LEVEL_PROPERTIES) == 0) {
+	    levels |= LEVEL_LT;
+	}
+	if ((features & ARCHIVE_TIMESTAMP) != 0) {
+	    levels |= LEVEL_A;
+	}
+	final boolean hasValues = (features & CERTIFICATE_VALUES) != 0 && (features & REVOCATION_VALUES) != 0;
+	if ((features & SIG_AND_REFS_TIMESTAMP) != 0) {
+	    levels |= hasValues ? LEVEL_X1 | LEVEL_XL1 : LEVEL_X1;
+	}
+	if ((features & REFS_ONLY_TIMESTAMP) != 0) {
+	    levels |= hasValues ? LEVEL_X2 | LEVEL_XL2 : LEVEL_X2;
+	}
+	if ((features & COMPLETE_CERTIFICATE_REFS) != 0 && (features & COMPLETE_REVOCATION_REFS) != 0) {
+	    levels |= LEVEL_C;
+	}
+	return levels;
     }
 
     /**
-     * Method that indicates if a signer has XAdES LT-Level format.
+     * Method that obtains, walking the signature only once, the properties contained inside of a XML signature.
+     * <p>As in the XAdES structure, the signed properties are searched inside of the first <code>xades:SignedProperties</code>
+     * element and the unsigned properties inside of the first <code>xades:UnsignedSignatureProperties</code> element.</p>
      * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES LT-Level format.
+     * @return the properties of the signature, as a combination of the feature bits.
      */
-    private static boolean isXAdESLTLevel(final Element signatureElement) {
-	/* Una firma se considerarÃ¡ XAdES LT-Level si posee los elementos:
-	 * > xades:CertificateValues y xades:RevocationValues
-	 * > o xadesv141:TimeStampValidationData
-	 * Y si no posee los elementos:
-	 * > xades:CompleteCertificateRefs
-	 * > xades:CompleteRevocationRefs
-	 * > xades:AttributeCertificateRefs
-	 * > xades:AttributeRevocationRefs
-	 * > xades:SigAndRefsTimeStamp
-	 * > xades:RefsOnlyTimeStamp
-	 */
-	boolean hasCertificateValues = false;
-	final boolean hasRevocationValues = false;
-	boolean hashTimeStampValidationData = false;
-	boolean hasCompleteCertificateRefs = false;
-	boolean hasCompleteRevocationRefs = false;
-	boolean hasAttributeCertificateRefs = false;
-	boolean hasAttributeRevocationRefs = false;
-	boolean hasSigAndRefsTimeStamp = false;
-	boolean hasRefsOnlyTimeStamp = false;
-
-	// Accedemos al elemento xades:UnsignedProperties
-	final Element unsignedProperties = getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_PROPERTIES);
-	if (unsignedProperties != null) {
-	    // Accedemos al elemento xades:UnsignedSignatureProperties
-	    final Element unsignedSignatureProperties = getXMLElement(unsignedProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_SIGNATURE_PROPERTIES);
-	    if (unsignedSignatureProperties != null) {
-
-		// Comprobamos si contiene el elemento
-		// xades:CertificateValues
-		hasCertificateValues = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_CERTIFICATE_VALUES) != null;
-
-		// Comprobamos si contiene el elemento
-		// xades:RevocationValues
-		hasCertificateValues = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_REVOCATION_VALUES) != null;
-
-		// Comprobamos si contiene el elemento
-		// xadesv141:TimeStampValidationData
-		hashTimeStampValidationData = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_4_1, XAdESConstants.TAG_TIME_STAMP_VALIDATION_DATA) != null;
-
-		// Comprobamos si contiene el elemento
-		// xades:CompleteCertificateRefs
-		hasCompleteCertificateRefs = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_COMPLETE_CERTIFICATE_REFS) != null;
-
-		// Comprobamos si contiene el elemento
-		// xades:CompleteRevocationRefs
-		hasCompleteRevocationRefs = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_COMPLETE_REVOCATION_REFS) != null;
-
-		// Comprobamos si contiene el elemento
-		// xades:AttributeCertificateRefs
-		hasAttributeCertificateRefs = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_ATTRIBUTE_CERTIFICATE_REFS) != null;
-
-		// Comprobamos si contiene el elemento
-		// xades:AttributeRevocationRefs
-		hasAttributeRevocationRefs = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_ATTRIBUTE_REVOCATION_REFS) != null;
-
-		// Comprobamos si contiene el elemento
-		// xades:SigAndRefsTimeStamp
-		hasSigAndRefsTimeStamp = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIG_AND_REFS_TIMESTAMP) != null;
-
-		// Comprobamos si contiene el elemento
-		// xades:RefsOnlyTimeStamp
-		hasRefsOnlyTimeStamp = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_REFS_ONLY_TIMESTAMP) != null;
-
-		if (checkLTLevel(hasCertificateValues, hasRevocationValues, hashTimeStampValidationData, hasCompleteCertificateRefs, hasCompleteRevocationRefs, hasAttributeCertificateRefs, hasAttributeRevocationRefs, hasSigAndRefsTimeStamp, hasRefsOnlyTimeStamp)) {
-		    return true;
-		}
-	    }
-	}
-	return false;
+    private static int getFeatures(final Element signatureElement) {
+	final FeatureCollector collector = new FeatureCollector();
+	collector.visit(signatureElement, 0);
+	return collector.features;
     }
 
     /**
-     * Method that indicates if the input parameters has the values associated to a XAdES LT-Level signature.
-     * @param hasCertificateValues Parameter that indicates if a XML signature contains at least one <code>xades:CertificateValues</code> element.
-     * @param hasRevocationValues Parameter that indicates if a XML signature contains at least one <code>xades:RevocationValues</code> element.
-     * @param hashTimeStampValidationData Parameter that indicates if a XML signature contains at least one <code>xades:RevocationValues</code> element.
-     * @param hasCompleteCertificateRefs Parameter that indicates if a XML signature contains at least one <code>xades:CompleteCertificateRefs</code> element.
-     * @param hasCompleteRevocationRefs Parameter that indicates if a XML signature contains at least one <code>xades:CompleteRevocationRefs</code> element.
-     * @param hasAttributeCertificateRefs Parameter that indicates if a XML signature contains at least one <code>xades:AttributeCertificateRefs</code> element.
-     * @param hasAttributeRevocationRefs Parameter that indicates if a XML signature contains at least one <code>xades:AttributeRevocationRefs</code> element.
-     * @param hasSigAndRefsTimeStamp Parameter that indicates if a XML signature contains at least one <code>xades:SigAndRefsTimeStamp</code> element.
-     * @param hasRefsOnlyTimeStamp Parameter that indicates if a XML signature contains at least one <code>xades:RefsOnlyTimeStamp</code> element.
-     * @return a boolean that indicates if a XML signature:
-     * <ul>
-     * <li>Contains the <code>xades:CertificateValues</code> element and the <code>xades:RevocationValues</code> element</li>
-     * or
-     * <li>contains the <code>xadesv141:TimeStampValidationData</code> element</li>
-     * and doesn't contain
-     * <li>the <code>xades:CompleteCertificateRefs</code> element</li>
-     * and
-     * <li>the <code>xades:CompleteRevocationRefs</code> element</li>
-     * and
-     * <li>the <code>xades:AttributeCertificateRefs</code> element</li>
-     * and
-     * <li>the <code>xades:AttributeRevocationRefs</code> element</li>
-     * and
-     * <li>the <code>xades:SigAndRefsTimeStamp</code> element</li>
-     * and
-     * <li>the <code>xades:RefsOnlyTimeStamp</code> element.</li>
-     * </ul>
+     * Method that indicates if an element has the indicated XAdES name, either in the namespace or without prefix.
+     * @param element Parameter that represents the element to check.
+     * @param namespace Parameter that represents the namespace of the element.
+     * @param elementName Parameter that represents the name of the element.
+     * @return a boolean that indicates if the element has the indicated name.
      */
-    private static boolean checkLTLevel(final boolean hasCertificateValues, final boolean hasRevocationValues, final boolean hashTimeStampValidationData, final boolean hasCompleteCertificateRefs, final boolean hasCompleteRevocationRefs, final boolean hasAttributeCertificateRefs, final boolean hasAttributeRevocationRefs, final boolean hasSigAndRefsTimeStamp, final boolean hasRefsOnlyTimeStamp) {
-	// CHECKSTYLE:OFF expresion complexity needed
-	if ((hasCertificateValues && hasRevocationValues || hashTimeStampValidationData) && !hasCompleteCertificateRefs && !hasCompleteRevocationRefs && !hasAttributeCertificateRefs && !hasAttributeRevocationRefs && !hasSigAndRefsTimeStamp && !hasRefsOnlyTimeStamp) {
-	    // CHECKSTYLE:ON
-	    return true;
-	}
-	return false;
+    private static boolean isXAdESElement(final Element element, final String namespace, final String elementName) {
+	return elementName.equals(element.getLocalName()) && namespace.equals(element.getNamespaceURI())
+		|| elementName.equals(element.getNodeName());
     }
 
     /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li>One <code>xades:SigningCertificate</code> element</li>
-     * and
-     * <li>One <code>xades:SigningTime</code> element</li>
-     * and
-     * <li>One <code>xades:DataObjectFormat</code> element</li>
-     * and it doesn't contain any:
-     * <li>One <code>xades:QualifyingPropertiesReference</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of the list of XML signatures contains:
-     * <ul>
-     * <li>One <code>xades:SigningCertificate</code> element</li>
-     * and
-     * <li>One <code>xades:SigningTime</code> element</li>
-     * and
-     * <li>One <code>xades:DataObjectFormat</code> element</li>
-     * and it doesn't contain any:
-     * <li>One <code>xades:QualifyingPropertiesReference</code> element.</li>
-     * </ul>
+     * Class that walks a XML signature registering the properties that it contains.
      */
-    private static boolean isXAdESBLevel(final List<Element> listSignatureElements) {
-	/* Una firma se considerarÃ¡ XAdES B-Level si posee los elementos:
-	 * > xades:SigningCertificate
-	 * > xades:SigningTime
-	 * > xades:DataObjectFormat
-	 * Y si no posee el elemento:
-	 * > xades:QualifyingPropertiesReference
-	 */
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		return isXAdESBLevel(signatureElement);
-	    }
-	}
-	return false;
-    }
+    private static final class FeatureCollector {
 
-    /**
-     * Method that indicates if a signer has XAdES B-Level format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES B-Level format.
-     */
-    private static boolean isXAdESBLevel(final Element signatureElement) {
-	/* Un firmante se considerarÃ¡ XAdES B-Level si posee los elementos:
-	 * > xades:SigningCertificate
-	 * > xades:SigningTime
-	 * > xades:DataObjectFormat (incluyendo el elemento xades:MimeType)
-	 * Y si no posee el elemento:
-	 * > xades:QualifyingPropertiesReference
-	 */
-	boolean hasSigningCertificate = false;
-	boolean hasSigningTime = false;
-	boolean hasDataObjectFormat = false;
-	boolean hasMimeType = false;
-
-	// Comprobamos que la firma no contiene el elemento
-	// xades:QualifyingPropertiesReference
-	if (signatureElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_QUALIFYING_PROPERTIES_REFERENCE).getLength() == 0) {
-	    // Accedemos al elemento xades:SignedProperties
-	    Element signedPropertiesElement = null;
-	    if (signatureElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_PROPERTIES).getLength() > 0) {
-		signedPropertiesElement = (Element) signatureElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_PROPERTIES).item(0);
-
-		// Accedemos al elemento xades:SignedSignatureProperties
-		Element signedSignaturePropertiesElement = null;
-		if (signedPropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_SIGNATURE_PROPERTIES).getLength() > 0) {
-		    signedSignaturePropertiesElement = (Element) signatureElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_SIGNATURE_PROPERTIES).item(0);
-
-		    // Comprobamos si el elemento
-		    // xades:SignedSignatureProperties tiene
-		    // xades:SigningCertificate como uno de sus hijos
-		    hasSigningCertificate = signedSignaturePropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNING_CERTIFICATE).getLength() > 0;
-
-		    // Comprobamos si el elemento
-		    // xades:SignedSignatureProperties tiene
-		    // xades:SigningTime como uno de sus hijos
-		    hasSigningTime = signedSignaturePropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNING_TIME).getLength() > 0;
-		}
-		// Accedemos al elemento
-		// xades:SignedDataObjectProperties
-		Element signedDataObjectPropertiesElement = null;
-		if (signedPropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_DATA_OBJECT_PROPERTIES).getLength() > 0) {
-		    signedDataObjectPropertiesElement = (Element) signedPropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_DATA_OBJECT_PROPERTIES).item(0);
-
-		    // Comprobamos si el elemento
-		    // xades:SignedDataObjectProperties tiene
-		    // xades:DataObjectFormat como uno de sus hijos
-		    final Element dataObjectFormatElement = getXMLElement(signedDataObjectPropertiesElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_DATA_OBJECT_FORMAT);
-
-		    hasDataObjectFormat = dataObjectFormatElement != null;
-		    if (dataObjectFormatElement != null) {
-			hasDataObjectFormat = true;
-
-			// Comprobamos si el elemento
-			// xades:DataObjectFormat tiene
-			// xades:MimeType como uno de sus hijos
-			hasMimeType = dataObjectFormatElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_MIME_TYPE).getLength() > 0;
-		    }
-		}
-		if (hasSigningTime && hasSigningCertificate && hasDataObjectFormat && hasMimeType) {
-		    return true;
-		}
-	    }
+	/** Scope bit: inside of the first <code>xades:SignedProperties</code> element. */
+	private static final int IN_SIGNED_PROPERTIES = 1;
+
+	/** Scope bit: inside of the first <code>xades:SignedSignatureProperties</code> element. */
+	private static final int IN_SIGNED_SIGNATURE_PROPERTIES = 1 << 1;
+
+	/** Scope bit: inside of the first <code>xades:SignedDataObjectProperties</code> element. */
+	private static final int IN_SIGNED_DATA_OBJECT_PROPERTIES = 1 << 2;
+
+	/** Scope bit: inside of the first <code>xades:DataObjectFormat</code> element. */
+	private static final int IN_DATA_OBJECT_FORMAT = 1 << 3;
+
+	/** Scope bit: inside of the first <code>xades:UnsignedProperties</code> element. */
+	private static final int IN_UNSIGNED_PROPERTIES = 1 << 4;
+
+	/** Scope bit: inside of the first <code>xades:UnsignedSignatureProperties</code> element. */
+	private static final int IN_UNSIGNED_SIGNATURE_PROPERTIES = 1 << 5;
+
+	/** Properties found, as a combination of the feature bits. */
+	int features = 0;
+
+	/** Scopes already opened, so only the first element of each kind opens its scope. */
+	private int opened = 0;
+
+	/** First <code>xades:UnsignedSignatureProperties</code> element. */
+	private Element unsignedSignatureProperties = null;
+
+	FeatureCollector() {
+	    // Constructor por defecto
 	}
-	return false;
-    }
 
-    /**
-     * Method that indicates if a signer has XAdES B-B-Level format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES B-Level format.
-     */
-    private static boolean isXAdESBBLevel(final Element signatureElement) {
-	/* Un firmante se considerara XAdES B-Level si posee los elementos:
-	 * > xades:SigningCertificateV2
-	 * > xades:SigningTime
-	 * > xades:DataObjectFormat (incluyendo el elemento xades:MimeType)
-	 * Y si no posee el elemento:
-	 * > xades:QualifyingPropertiesReference
+	/**
+	 * Method that registers the properties of an element and its descendants.
+	 * @param element Parameter that represents the element to visit.
+	 * @param scope Parameter that represents the scopes of the ancestors of the element.
 	 */
-	boolean hasSigningCertificateV2 = false;
-	boolean hasSigningTime = false;
-	boolean hasDataObjectFormat = false;
-	boolean hasMimeType = false;
-
-	// Comprobamos que la firma no contiene el elemento
-	// xades:QualifyingPropertiesReference
-	if (signatureElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_QUALIFYING_PROPERTIES_REFERENCE).getLength() == 0) {
-	    // Accedemos al elemento xades:SignedProperties
-	    Element signedPropertiesElement = null;
-	    if (signatureElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_PROPERTIES).getLength() > 0) {
-		signedPropertiesElement = (Element) signatureElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_PROPERTIES).item(0);
-
-		// Accedemos al elemento xades:SignedSignatureProperties
-		Element signedSignaturePropertiesElement = null;
-		if (signedPropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_SIGNATURE_PROPERTIES).getLength() > 0) {
-		    signedSignaturePropertiesElement = (Element) signatureElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_SIGNATURE_PROPERTIES).item(0);
-
-		    // Comprobamos si el elemento
-		    // xades:SignedSignatureProperties tiene
-		    // xades:SigningCertificate como uno de sus hijos
-		    hasSigningCertificateV2 = signedSignaturePropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNING_CERTIFICATE_V2).getLength() > 0;
-
-		    // Comprobamos si el elemento
-		    // xades:SignedSignatureProperties tiene
-		    // xades:SigningTime como uno de sus hijos
-		    hasSigningTime = signedSignaturePropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNING_TIME).getLength() > 0;
-		}
-		// Accedemos al elemento
-		// xades:SignedDataObjectProperties
-		Element signedDataObjectPropertiesElement = null;
-		if (signedPropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_DATA_OBJECT_PROPERTIES).getLength() > 0) {
-		    signedDataObjectPropertiesElement = (Element) signedPropertiesElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_DATA_OBJECT_PROPERTIES).item(0);
-
-		    // Comprobamos si el elemento
-		    // xades:SignedDataObjectProperties tiene
-		    // xades:DataObjectFormat como uno de sus hijos
-		    final Element dataObjectFormatElement = getXMLElement(signedDataObjectPropertiesElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_DATA_OBJECT_FORMAT);
-
-		    hasDataObjectFormat = dataObjectFormatElement != null;
-		    if (dataObjectFormatElement != null) {
-			hasDataObjectFormat = true;
-
-			// Comprobamos si el elemento
-			// xades:DataObjectFormat tiene
-			// xades:MimeType como uno de sus hijos
-			hasMimeType = dataObjectFormatElement.getElementsByTagNameNS(XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_MIME_TYPE).getLength() > 0;
-		    }
-		}
-		if (hasSigningTime && hasSigningCertificateV2 && hasDataObjectFormat && hasMimeType) {
-		    return true;
+	void visit(final Element element, final int scope) {
+	    final int elementScope = scope | open(element, scope);
+
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_QUALIFYING_PROPERTIES)) {
+		this.features |= QUALIFYING_PROPERTIES;
+	    }
+	    else if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_QUALIFYING_PROPERTIES_REFERENCE)) {
+		this.features |= QUALIFYING_PROPERTIES_REFERENCE;
+	    }
+	    if ((scope & IN_SIGNED_SIGNATURE_PROPERTIES) != 0) {
+		this.features |= signedSignatureProperty(element);
+	    }
+	    if ((scope & IN_DATA_OBJECT_FORMAT) != 0
+		    && isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_MIME_TYPE)) {
+		this.features |= MIME_TYPE;
+	    }
+	    if ((scope & IN_UNSIGNED_SIGNATURE_PROPERTIES) != 0) {
+		this.features |= unsignedSignatureProperty(element);
+		if (element.getParentNode() == this.unsignedSignatureProperties
+			&& XAdESConstants.TAG_ARCHIVE_TIMESTAMP.equals(element.getLocalName())) {
+		    this.features |= ARCHIVE_TIMESTAMP;
 		}
 	    }
-	}
-	return false;
-    }
 
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li>One <code>xades:ArchiveTimeStamp</code> element</li>
-     * or
-     * <li>One <code>xadesv141:ArchiveTimeStamp</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of the list of XML signatures contains:
-     * <ul>
-     * <li>One <code>xades:ArchiveTimeStamp</code> element</li>
-     * or
-     * <li>One <code>xadesv141:ArchiveTimeStamp</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdESA(final List<Element> listSignatureElements) {
-	/* Una firma se considerarÃ¡ XAdES LTA-Level si posee al menos uno de los siguientes elementos:
-	 * > xades:ArchiveTimeStamp
-	 * > xadesv141:ArchiveTimeStamp
-	 */
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		if (isXAdESA(signatureElement)) {
-		    return true;
+	    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+		if (child.getNodeType() == Node.ELEMENT_NODE) {
+		    visit((Element) child, elementScope);
 		}
 	    }
 	}
-	return false;
-    }
 
-    /**
-     * Method that indicates if a signer has XAdES-A format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES-A format.
-     */
-    private static boolean isXAdESA(final Element signatureElement) {
-	/* Una firma se considerarÃ¡ XAdES LTA-Level si posee al menos uno de los siguientes elementos:
-	 * > xades:ArchiveTimeStamp
-	 * > xadesv141:ArchiveTimeStamp
+	/**
+	 * Method that opens the scope of an element if it is the first container element of its kind.
+	 * @param element Parameter that represents the element.
+	 * @param scope Parameter that represents the scopes of the ancestors of the element.
+	 * @return the scope opened by the element, or 0 if it doesn't open any.
 	 */
-	// Accedemos al elemento xades:UnsignedProperties
-	final Element unsignedProperties = getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_PROPERTIES);
-	if (unsignedProperties != null) {
-	    // Accedemos al elemento xades:UnsignedSignatureProperties
-	    final Element unsignedSignatureProperties = getXMLElement(unsignedProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_SIGNATURE_PROPERTIES);
-	    if (unsignedSignatureProperties != null) {
-		// Obtenemos el conjunto de hijos del elemento
-		// xades:UnsignedSignatureProperties
-		final NodeList nl = unsignedSignatureProperties.getChildNodes();
-
-		// Recorremos el conjunto de elementos hijos
-		for (int i = 0; i < nl.getLength(); i++) {
-		    if (nl.item(i).getNodeType() == Node.ELEMENT_NODE && nl.item(i).getLocalName().equals(XAdESConstants.TAG_ARCHIVE_TIMESTAMP)) {
-			return true;
-		    }
-		}
+	private int open(final Element element, final int scope) {
+	    int newScope = 0;
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_PROPERTIES)) {
+		newScope = IN_SIGNED_PROPERTIES;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:SigAndRefsTimeStamp</code> element</li>
-     * and
-     * <li>One <code>xades:CertificateValues</code> element</li>
-     * and
-     * <li>One <code>xades:RevocationValues</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:SigAndRefsTimeStamp</code> element</li>
-     * and
-     * <li>One <code>xades:CertificateValues</code> element</li>
-     * and
-     * <li>One <code>xades:RevocationValues</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdESXL1(final List<Element> listSignatureElements) {
-	// Si el documento XML posee elementos ds:Signature
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		if (isXAdESXL1(signatureElement)) {
-		    return true;
-		}
+	    else if ((scope & IN_SIGNED_PROPERTIES) != 0
+		    && isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_SIGNATURE_PROPERTIES)) {
+		newScope = IN_SIGNED_SIGNATURE_PROPERTIES;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if a signer has XAdES-XL1 format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES-XL1 format.
-     */
-    private static boolean isXAdESXL1(final Element signatureElement) {
-	// Accedemos al elemento UnsignedProperties
-	final Element unsignedProperties = getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_PROPERTIES);
-	if (unsignedProperties != null) {
-	    // Accedemos al elemento UnsignedSignatureProperties
-	    final Element unsignedSignatureProperties = getXMLElement(unsignedProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_SIGNATURE_PROPERTIES);
-	    if (unsignedSignatureProperties != null) {
-		// Se considera una firma con formato XAdES-XL1 si posee
-		// los
-		// elementos SigAndRefsTimeStamp, CertificateValues y
-		// RevocationValues
-		final Element sigAndRefsTimeStamp = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIG_AND_REFS_TIMESTAMP);
-		final Element certificateValues = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_CERTIFICATE_VALUES);
-		final Element revocationValues = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_REVOCATION_VALUES);
-		if (sigAndRefsTimeStamp != null && certificateValues != null && revocationValues != null) {
-		    return true;
-		}
+	    else if ((scope & IN_SIGNED_PROPERTIES) != 0
+		    && isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNED_DATA_OBJECT_PROPERTIES)) {
+		newScope = IN_SIGNED_DATA_OBJECT_PROPERTIES;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:RefsOnlyTimeStamp</code> element</li>
-     * and
-     * <li>One <code>xades:CertificateValues</code> element</li>
-     * and
-     * <li>One <code>xades:RevocationValues</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:RefsOnlyTimeStamp</code> element</li>
-     * and
-     * <li>One <code>xades:CertificateValues</code> element</li>
-     * and
-     * <li>One <code>xades:RevocationValues</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdESXL2(final List<Element> listSignatureElements) {
-	// Si el documento XML posee elementos ds:Signature
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		if (isXAdESXL2(signatureElement)) {
-		    return true;
-		}
+	    else if ((scope & IN_SIGNED_DATA_OBJECT_PROPERTIES) != 0
+		    && isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_DATA_OBJECT_FORMAT)) {
+		newScope = IN_DATA_OBJECT_FORMAT;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if a signer has XAdES-XL2 format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES-XL2 format.
-     */
-    private static boolean isXAdESXL2(final Element signatureElement) {
-	// Accedemos al elemento UnsignedProperties
-	final Element unsignedProperties = getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_PROPERTIES);
-	if (unsignedProperties != null) {
-	    // Accedemos al elemento UnsignedSignatureProperties
-	    final Element unsignedSignatureProperties = getXMLElement(unsignedProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_SIGNATURE_PROPERTIES);
-	    if (unsignedSignatureProperties != null) {
-		// Se considera una firma con formato XAdES-XL2 si posee
-		// los
-		// elementos RefsOnlyTimeStamp, CertificateValues y
-		// RevocationValues
-		final Element refsOnlyTimeStamp = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_REFS_ONLY_TIMESTAMP);
-		final Element certificateValues = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_CERTIFICATE_VALUES);
-		final Element revocationValues = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_REVOCATION_VALUES);
-		if (refsOnlyTimeStamp != null && certificateValues != null && revocationValues != null) {
-		    return true;
-		}
+	    else if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_PROPERTIES)) {
+		newScope = IN_UNSIGNED_PROPERTIES;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:SigAndRefsTimeStamp</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:SigAndRefsTimeStamp</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdESX1(final List<Element> listSignatureElements) {
-	// Si el documento XML posee elementos ds:Signature
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		if (isXAdESX1(signatureElement)) {
-		    return true;
-		}
+	    else if ((scope & IN_UNSIGNED_PROPERTIES) != 0
+		    && isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_SIGNATURE_PROPERTIES)) {
+		newScope = IN_UNSIGNED_SIGNATURE_PROPERTIES;
 	    }
-	}
-	return false;
-    }
 
-    /**
-     * Method that indicates if a signer has XAdES-X1 format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES-X1 format.
-     */
-    private static boolean isXAdESX1(final Element signatureElement) {
-	// Accedemos al elemento UnsignedProperties
-	final Element unsignedProperties = getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_PROPERTIES);
-	if (unsignedProperties != null) {
-	    // Accedemos al elemento UnsignedSignatureProperties
-	    final Element unsignedSignatureProperties = getXMLElement(unsignedProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_SIGNATURE_PROPERTIES);
-	    if (unsignedSignatureProperties != null) {
-		// Se considera una firma con formato XAdES-X1 si posee
-		// el
-		// elemento SigAndRefsTimeStamp
-		final Element sigAndRefsTimeStamp = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIG_AND_REFS_TIMESTAMP);
-		if (sigAndRefsTimeStamp != null) {
-		    return true;
-		}
+	    if (newScope == 0 || (this.opened & newScope) != 0) {
+		return 0;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:RefsOnlyTimeStamp</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:RefsOnlyTimeStamp</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdESX2(final List<Element> listSignatureElements) {
-	// Si el documento XML posee elementos ds:Signature
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		if (isXAdESX2(signatureElement)) {
-		    return true;
-		}
+	    this.opened |= newScope;
+	    if (newScope == IN_DATA_OBJECT_FORMAT) {
+		this.features |= DATA_OBJECT_FORMAT;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if a signer has XAdES-X2 format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES-X2 format.
-     */
-    private static boolean isXAdESX2(final Element signatureElement) {
-	// Accedemos al elemento UnsignedProperties
-	final Element unsignedProperties = getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_PROPERTIES);
-	if (unsignedProperties != null) {
-	    // Accedemos al elemento UnsignedSignatureProperties
-	    final Element unsignedSignatureProperties = getXMLElement(unsignedProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_SIGNATURE_PROPERTIES);
-	    if (unsignedSignatureProperties != null) {
-		// Se considera una firma con formato XAdES-X2 si posee
-		// el
-		// elemento RefsOnlyTimeStamp
-		final Element refsOnlyTimeStamp = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_REFS_ONLY_TIMESTAMP);
-		if (refsOnlyTimeStamp != null) {
-		    return true;
-		}
+	    else if (newScope == IN_UNSIGNED_SIGNATURE_PROPERTIES) {
+		this.unsignedSignatureProperties = element;
 	    }
+	    return newScope;
 	}
-	return false;
-    }
 
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:CompleteCertificateRefs</code> element</li>
-     * and
-     * <li>One <code>xades:CompleteRevocationRefs</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:CompleteCertificateRefs</code> element</li>
-     * and
-     * <li>One <code>xades:CompleteRevocationRefs</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdESC(final List<Element> listSignatureElements) {
-	// Si el documento XML posee elementos ds:Signature
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		if (isXAdESC(signatureElement)) {
-		    return true;
-		}
+	/**
+	 * Method that obtains the feature bit of an element contained inside of <code>xades:SignedSignatureProperties</code>.
+	 * @param element Parameter that represents the element.
+	 * @return the feature bit of the element, or 0 if it isn't a property used to determine the format.
+	 */
+	private static int signedSignatureProperty(final Element element) {
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNATURE_POLICY_IDENTIFIER)) {
+		return SIGNATURE_POLICY_IDENTIFIER;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if a signer has XAdES-C format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES-C format.
-     */
-    private static boolean isXAdESC(final Element signatureElement) {
-	// Accedemos al elemento UnsignedProperties
-	final Element unsignedProperties = getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_PROPERTIES);
-	if (unsignedProperties != null) {
-	    // Accedemos al elemento UnsignedSignatureProperties
-	    final Element unsignedSignatureProperties = getXMLElement(unsignedProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_SIGNATURE_PROPERTIES);
-	    if (unsignedSignatureProperties != null) {
-		// Se considera una firma con formato XAdES-C si posee
-		// los
-		// elementos CompleteCertificateRefs y
-		// CompleteRevocationRefs
-		final Element completeCertificateRefs = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_COMPLETE_CERTIFICATE_REFS);
-		final Element completeRevocationRefs = getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_COMPLETE_REVOCATION_REFS);
-		if (completeCertificateRefs != null && completeRevocationRefs != null) {
-		    return true;
-		}
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNING_CERTIFICATE)) {
+		return SIGNING_CERTIFICATE;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:SignaturePolicyIdentifier</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:SignaturePolicyIdentifier</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdESEPES(final List<Element> listSignatureElements) {
-	// Si el documento XML posee elementos ds:Signature
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		// Comprobamos si el firmante posee el elemento
-		// xades:SignaturePolicyIdentifier
-		if (hasSignaturePolicyIdentifier(signatureElement)) {
-		    return true;
-		}
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNING_CERTIFICATE_V2)) {
+		return SIGNING_CERTIFICATE_V2;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:QualifyingProperties</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:QualifyingProperties</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdESBES(final List<Element> listSignatureElements) {
-	// Si el documento XML posee elementos ds:Signature
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		// Se considera una firma con formato XAdES-BES si posee el
-		// elemento QualifyingProperties
-		if (getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_QUALIFYING_PROPERTIES) != null) {
-		    return true;
-		}
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNING_TIME)) {
+		return SIGNING_TIME;
 	    }
+	    return 0;
 	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if a signer has XAdES B-Level format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES B-Level format.
-     */
-    private static boolean isXAdESBES(final Element signatureElement) {
-	// Se considera una firma con formato XAdES-BES si posee el
-	// elemento QualifyingProperties
-	if (getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_QUALIFYING_PROPERTIES) != null) {
-	    return true;
-	}
-	return false;
-    }
 
-    /**
-     * Method that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:SignatureTimeStamp</code> element.</li>
-     * </ul>
-     * @param listSignatureElements Parameter that represents the list of signatures.
-     * @return a boolean that indicates if at least one of a list of XML signatures contains at least one:
-     * <ul>
-     * <li><code>xades:SignatureTimeStamp</code> element.</li>
-     * </ul>
-     */
-    private static boolean isXAdEST(final List<Element> listSignatureElements) {
-	// Si el documento XML posee elementos ds:Signature
-	if (!listSignatureElements.isEmpty()) {
-	    // Recorremos la lista de elementos ds:Signature
-	    for (final Element signatureElement: listSignatureElements) {
-		if (isXAdEST(signatureElement)) {
-		    return true;
-		}
+	/**
+	 * Method that obtains the feature bit of an element contained inside of <code>xades:UnsignedSignatureProperties</code>.
+	 * @param element Parameter that represents the element.
+	 * @return the feature bit of the element, or 0 if it isn't a property used to determine the format.
+	 */
+	private static int unsignedSignatureProperty(final Element element) {
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNATURE_TIMESTAMP)) {
+		return SIGNATURE_TIMESTAMP;
 	    }
-	}
-	return false;
-    }
-
-    /**
-     * Method that indicates if a signer has XAdES T-Level format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return a boolean that indicates if the signer has XAdES T-Level format.
-     */
-    private static boolean isXAdEST(final Element signatureElement) {
-	// Accedemos al elemento UnsignedProperties
-	final Element unsignedProperties = getXMLElement(signatureElement, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_PROPERTIES);
-	if (unsignedProperties != null) {
-	    // Accedemos al elemento UnsignedSignatureProperties. Se
-	    // considera una firma con formato XAdES-T si posee
-	    // el
-	    // elemento SignatureTimeStamp
-	    final Element unsignedSignatureProperties = getXMLElement(unsignedProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_UNSIGNED_SIGNATURE_PROPERTIES);
-	    if (unsignedSignatureProperties != null && getXMLElement(unsignedSignatureProperties, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIGNATURE_TIMESTAMP) != null) {
-		return true;
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_CERTIFICATE_VALUES)) {
+		return CERTIFICATE_VALUES;
+	    }
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_REVOCATION_VALUES)) {
+		return REVOCATION_VALUES;
+	    }
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_4_1, XAdESConstants.TAG_TIME_STAMP_VALIDATION_DATA)) {
+		return TIME_STAMP_VALIDATION_DATA;
+	    }
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_COMPLETE_CERTIFICATE_REFS)) {
+		return COMPLETE_CERTIFICATE_REFS;
+	    }
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_COMPLETE_REVOCATION_REFS)) {
+		return COMPLETE_REVOCATION_REFS;
+	    }
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_ATTRIBUTE_CERTIFICATE_REFS)) {
+		return ATTRIBUTE_CERTIFICATE_REFS;
 	    }
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_ATTRIBUTE_REVOCATION_REFS)) {
+		return ATTRIBUTE_REVOCATION_REFS;
+	    }
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_SIG_AND_REFS_TIMESTAMP)) {
+		return SIG_AND_REFS_TIMESTAMP;
+	    }
+	    if (isXAdESElement(element, XAdESConstants.NAMESPACE_XADES_1_3_2, XAdESConstants.TAG_REFS_ONLY_TIMESTAMP)) {
+		return REFS_ONLY_TIMESTAMP;
+	    }
+	    return 0;
 	}
-	return false;
     }
 
     /**
@@ -1144,197 +552,19 @@ public final class SignatureFormatDetectorXades implements ISignatureFormatDetec
 
 	// Si se ha indicado firmante
 	if (signatureElement != null) {
+	    // Recorremos una unica vez la firma para obtener sus niveles
+	    final int levels = getLevels(getFeatures(signatureElement));
+	    final boolean bLevel = (levels & LEVEL_B) != 0;
+	    final boolean bbLevel = (levels & LEVEL_BB) != 0;
+
 	    // Comprobamos si el firmante posee formato XAdES-EPES
-	    if (isXAdESEPES(signatureElement)) {
-		// Comprobamos si el firmante tiene
-		// un formato Baseline, estableciendo que, al menos, el
-		// formato
-		// es XAdES-EPES
-		format = resolveXAdESBaselineFormat(ISignatureFormatDetector.FORMAT_XADES_EPES, signatureElement);
-
-		// Si el firmante no tiene un
-		// formato
-		// Baseline, es decir, el formato por ahora es XAdES-EPES,
-		// comprobamos si posee un formato mÃ¡s avanzado no Baseline
-		if (format.equals(ISignatureFormatDetector.FORMAT_XADES_EPES)) {
-		    format = resolveXAdESNoBaselineFormat(ISignatureFormatDetector.FORMAT_XADES_EPES, signatureElement);
-		}
+	    if ((levels & LEVEL_EPES) != 0) {
+		format = resolveXAdESFormat(ISignatureFormatDetector.FORMAT_XADES_EPES, levels, bLevel, bbLevel);
 	    }
 	    // Comprobamos si el firmante tiene formato XAdES-BES
-	    else if (isXAdESBES(signatureElement)) {
-		// Comprobamos si el firmante tiene
-		// un formato Baseline, estableciendo que, al menos, el
-		// formato
-		// es XAdES-BES
-		format = resolveXAdESBaselineFormat(ISignatureFormatDetector.FORMAT_XADES_BES, signatureElement);
-
-		// Si el firmante no tiene un
-		// formato
-		// Baseline, es decir, el formato por ahora es XAdES-BES,
-		// comprobamos si posee un formato mÃ¡s avanzado no Baseline
-		if (format.equals(ISignatureFormatDetector.FORMAT_XADES_BES)) {
-		    format = resolveXAdESNoBaselineFormat(ISignatureFormatDetector.FORMAT_XADES_BES, signatureElement);
-		}
-	    }
-	}
-	return format;
-    }
-
-    /**
-     * Method that checks if a signer has XAdES-EPES format.
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element associated to the signer.
-     * @return a boolean that indicates if the signer has XAdES-EPES format.
-     */
-    private static boolean isXAdESEPES(final Element signatureElement) {
-	// Comprobamos si el firmante posee el elemento
-	// xades:SignaturePolicyIdentifier
-	if (hasSignaturePolicyIdentifier(signatureElement)) {
-	    return true;
-	}
-	return false;
-    }
-
-    /**
-     * Method that obtains the format associated to a signer.
-     * @param temporalFormat Parameter that represents the current format defined for the signer. This parameter only allows one of these values:
-     * <ul>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_BES}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_EPES}.</li>
-     * </ul>
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return one of these values:
-     * <ul>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_LTA_LEVEL}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_LT_LEVEL}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_T_LEVEL}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_B_LEVEL}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_BES}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_EPES}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_EPES}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_T}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_C}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_X1}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_X2}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_XL1}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_XL2}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_A}.</li>
-     * </ul>
-     */
-    private static String resolveXAdESBaselineFormat(final String temporalFormat, final Element signatureElement) {
-	String format = temporalFormat;
-	// Comprobamos si el firmante tiene
-	// el formato XAdES B-Level
-	if (isXAdESBLevel(signatureElement)) {
-	    // Indicamos que el formato por ahora es XAdES B-Level
-	    format = ISignatureFormatDetector.FORMAT_XADES_B_LEVEL;
-
-	    // Comprobamos si el firmante
-	    // tiene
-	    // el formato XAdES T-Level
-	    if (isXAdEST(signatureElement)) {
-		// Indicamos que el formato por ahora es XAdES T-Level
-		format = ISignatureFormatDetector.FORMAT_XADES_T_LEVEL;
-
-		// Comprobamos si el firmante
-		// tiene
-		// el formato XAdES LT-Level
-		if (isXAdESLTLevel(signatureElement)) {
-		    // Indicamos que el formato por ahora es XAdES
-		    // LT-Level
-		    format = ISignatureFormatDetector.FORMAT_XADES_LT_LEVEL;
-
-		    // Comprobamos si el firmante
-		    // tiene
-		    // el formato XAdES LTA-Level
-		    if (isXAdESLTALevel(signatureElement)) {
-			// Indicamos que el formato por ahora es XAdES
-			// LTA-Level
-			format = ISignatureFormatDetector.FORMAT_XADES_LTA_LEVEL;
-
-		    }
-		} else {
-		    resolveXAdESNoBaselineFormat(format, signatureElement);
-		}
-
+	    else if ((levels & LEVEL_BES) != 0) {
+		format = resolveXAdESFormat(ISignatureFormatDetector.FORMAT_XADES_BES, levels, bLevel, bbLevel);
 	    }
-	} else if (isXAdESBBLevel(signatureElement)) {
-		format = ISignatureFormatDetector.FORMAT_XADES_B_B_LEVEL;
-	}
-	return format;
-    }
-
-    /**
-     * Method that obtains the format no Baseline of a signer.
-     * @param temporalFormat Parameter that represents the current format associated to the signer. This parameter only allows one of these values:
-     * <ul>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_BES}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_EPES}.</li>
-     * </ul>
-     * @param signatureElement Parameter that represents the <code>ds:Signature</code> element.
-     * @return the format associated to the signer. The value to return will be on of these:
-     * <ul>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_A}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_XL2}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_XL1}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_X2}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_X1}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_T}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_C}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_BES}.</li>
-     * <li>{@link ISignatureFormatDetector#FORMAT_XADES_EPES}.</li>
-     * </ul>
-     */
-    private static String resolveXAdESNoBaselineFormat(final String temporalFormat, final Element signatureElement) {
-	String format = temporalFormat;
-
-	// Comprobamos si el firmante
-	// tiene
-	// el formato XAdES-A
-	if (isXAdESA(signatureElement)) {
-	    // Indicamos que el formato es XAdES-A
-	    format = ISignatureFormatDetector.FORMAT_XADES_A;
-	}
-	// Comprobamos si el firmante
-	// tiene
-	// el formato XAdES-XL1
-	else if (isXAdESXL1(signatureElement)) {
-	    // Indicamos que el formato es XAdES-XL1
-	    format = ISignatureFormatDetector.FORMAT_XADES_XL1;
-	}
-	// Comprobamos si el firmante
-	// tiene
-	// el formato XAdES-XL2
-	else if (isXAdESXL2(signatureElement)) {
-	    // Indicamos que el formato es XAdES-XL2
-	    format = ISignatureFormatDetector.FORMAT_XADES_XL2;
-	}
-	// Comprobamos si el firmante
-	// tiene
-	// el formato XAdES-X1
-	else if (isXAdESX1(signatureElement)) {
-	    // Indicamos que el formato es XAdES-X1
-	    format = ISignatureFormatDetector.FORMAT_XADES_X1;
-	}
-	// Comprobamos si el firmante
-	// tiene
-	// el formato XAdES-X2
-	else if (isXAdESX2(signatureElement)) {
-	    // Indicamos que el formato es XAdES-X2
-	    format = ISignatureFormatDetector.FORMAT_XADES_X2;
-	}
-	// Comprobamos si el firmante
-	// tiene
-	// el formato XAdES-C
-	else if (isXAdESC(signatureElement)) {
-	    // Indicamos que el formato es XAdES-C
-	    format = ISignatureFormatDetector.FORMAT_XADES_C;
-	}
-	// Comprobamos si el firmante
-	// tiene
-	// el formato XAdES-T
-	else if (isXAdEST(signatureElement) && !format.equals(ISignatureFormatDetector.FORMAT_XADES_T_LEVEL)) {
-	    // Indicamos que el formato es XAdES-T
-	    format = ISignatureFormatDetector.FORMAT_XADES_T;
 	}
 	return format;
     }
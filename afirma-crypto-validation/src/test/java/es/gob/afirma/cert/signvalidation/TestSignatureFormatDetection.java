@@ -0,0 +1,214 @@
+package es.gob.afirma.cert.signvalidation;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spongycastle.asn1.ASN1Encodable;
+import org.spongycastle.asn1.ASN1EncodableVector;
+import org.spongycastle.asn1.ASN1Set;
+import org.spongycastle.asn1.DERSet;
+import org.spongycastle.asn1.cms.ContentInfo;
+import org.spongycastle.asn1.cms.SignedData;
+import org.spongycastle.asn1.cms.SignerInfo;
+import org.spongycastle.cms.CMSSignedData;
+import org.spongycastle.cms.SignerInformation;
+
+import es.gob.afirma.core.misc.AOUtil;
+import es.gob.afirma.signers.xades.XAdESConstants;
+import es.gob.afirma.signers.xml.XMLConstants;
+import es.gob.afirma.signvalidation.ISignatureFormatDetector;
+import es.gob.afirma.signvalidation.SignatureFormatDetectorPadesCades;
+import es.gob.afirma.signvalidation.SignatureFormatDetectorXades;
+
+/** Pruebas de la detecci&oacute;n del formato de las firmas. Cada fila de las tablas
+ * indica una firma y el formato que se debe detectar en ella. */
+public final class TestSignatureFormatDetection {
+
+	/** Firmas XAdES de prueba y su formato. */
+	private static final String[][] XADES_FILES = {
+		{ "xades_epes_detached.xsig", ISignatureFormatDetector.FORMAT_XADES_B_LEVEL }, //$NON-NLS-1$
+	};
+
+	/** Firmas CAdES de prueba y el formato de su firmante. */
+	private static final String[][] CADES_FILES = {
+		{ "cades_implicit.csig", ISignatureFormatDetector.FORMAT_CADES_B_LEVEL }, //$NON-NLS-1$
+		{ "cades_explicit.csig", ISignatureFormatDetector.FORMAT_CADES_B_LEVEL }, //$NON-NLS-1$
+	};
+
+	/** Documentos PDF firmados de prueba y su formato. */
+	private static final String[][] PDF_FILES = {
+		{ "pades.pdf", ISignatureFormatDetector.FORMAT_PADES_BASIC }, //$NON-NLS-1$
+		{ "pades_sin_autofirma.pdf", ISignatureFormatDetector.FORMAT_PADES_BASIC }, //$NON-NLS-1$
+		{ "pades_epes.pdf", ISignatureFormatDetector.FORMAT_PADES_B_LEVEL }, //$NON-NLS-1$
+	};
+
+	private static final String SIGNING_CERTIFICATE = "<xades:SigningCertificate/>"; //$NON-NLS-1$
+	private static final String SIGNING_CERTIFICATE_V2 = "<xades:SigningCertificateV2/>"; //$NON-NLS-1$
+	private static final String SIGNING_TIME = "<xades:SigningTime/>"; //$NON-NLS-1$
+	private static final String POLICY = "<xades:SignaturePolicyIdentifier/>"; //$NON-NLS-1$
+	private static final String DATA_OBJECT_FORMAT =
+			"<xades:DataObjectFormat><xades:MimeType>text/plain</xades:MimeType></xades:DataObjectFormat>"; //$NON-NLS-1$
+
+	private static final String SIGNATURE_TIMESTAMP = "<xades:SignatureTimeStamp/>"; //$NON-NLS-1$
+	private static final String VALIDATION_DATA = "<xadesv141:TimeStampValidationData/>"; //$NON-NLS-1$
+	private static final String ARCHIVE_TIMESTAMP = "<xadesv141:ArchiveTimeStamp/>"; //$NON-NLS-1$
+	private static final String REFS = "<xades:CompleteCertificateRefs/><xades:CompleteRevocationRefs/>"; //$NON-NLS-1$
+	private static final String SIG_AND_REFS_TIMESTAMP = "<xades:SigAndRefsTimeStamp/>"; //$NON-NLS-1$
+	private static final String REFS_ONLY_TIMESTAMP = "<xades:RefsOnlyTimeStamp/>"; //$NON-NLS-1$
+	private static final String VALUES = "<xades:CertificateValues/><xades:RevocationValues/>"; //$NON-NLS-1$
+
+	private static final String B_LEVEL = SIGNING_CERTIFICATE + SIGNING_TIME;
+
+	/** Firmas XAdES generadas (propiedades firmadas de la firma, si incluye el formato de
+	 * los datos, propiedades no firmadas de la firma) y su formato. */
+	private static final Object[][] XADES_PROPERTIES = {
+		{ SIGNING_CERTIFICATE, Boolean.FALSE, "", ISignatureFormatDetector.FORMAT_XADES_BES }, //$NON-NLS-1$
+		{ SIGNING_CERTIFICATE + POLICY, Boolean.FALSE, "", ISignatureFormatDetector.FORMAT_XADES_EPES }, //$NON-NLS-1$
+		{ B_LEVEL, Boolean.FALSE, "", ISignatureFormatDetector.FORMAT_XADES_BES }, //$NON-NLS-1$
+		{ B_LEVEL, Boolean.TRUE, "", ISignatureFormatDetector.FORMAT_XADES_B_LEVEL }, //$NON-NLS-1$
+		{ B_LEVEL + POLICY, Boolean.TRUE, "", ISignatureFormatDetector.FORMAT_XADES_B_LEVEL }, //$NON-NLS-1$
+		{ SIGNING_CERTIFICATE_V2 + SIGNING_TIME, Boolean.TRUE, "", ISignatureFormatDetector.FORMAT_XADES_BES }, //$NON-NLS-1$
+		{ B_LEVEL, Boolean.TRUE, SIGNATURE_TIMESTAMP, ISignatureFormatDetector.FORMAT_XADES_T_LEVEL },
+		{ B_LEVEL, Boolean.TRUE, SIGNATURE_TIMESTAMP + VALIDATION_DATA, ISignatureFormatDetector.FORMAT_XADES_LT_LEVEL },
+		{ B_LEVEL, Boolean.TRUE, SIGNATURE_TIMESTAMP + VALIDATION_DATA + ARCHIVE_TIMESTAMP, ISignatureFormatDetector.FORMAT_XADES_LTA_LEVEL },
+		{ B_LEVEL, Boolean.TRUE, SIGNATURE_TIMESTAMP + VALIDATION_DATA + REFS, ISignatureFormatDetector.FORMAT_XADES_T_LEVEL },
+		{ SIGNING_CERTIFICATE, Boolean.FALSE, SIGNATURE_TIMESTAMP, ISignatureFormatDetector.FORMAT_XADES_T },
+		{ SIGNING_CERTIFICATE, Boolean.FALSE, SIGNATURE_TIMESTAMP + REFS, ISignatureFormatDetector.FORMAT_XADES_C },
+		{ SIGNING_CERTIFICATE, Boolean.FALSE, SIGNATURE_TIMESTAMP + REFS + SIG_AND_REFS_TIMESTAMP, ISignatureFormatDetector.FORMAT_XADES_X1 },
+		{ SIGNING_CERTIFICATE, Boolean.FALSE, SIGNATURE_TIMESTAMP + REFS + REFS_ONLY_TIMESTAMP, ISignatureFormatDetector.FORMAT_XADES_X2 },
+		{ SIGNING_CERTIFICATE, Boolean.FALSE, SIGNATURE_TIMESTAMP + REFS + SIG_AND_REFS_TIMESTAMP + VALUES, ISignatureFormatDetector.FORMAT_XADES_XL1 },
+		{ SIGNING_CERTIFICATE, Boolean.FALSE, SIGNATURE_TIMESTAMP + REFS + REFS_ONLY_TIMESTAMP + VALUES, ISignatureFormatDetector.FORMAT_XADES_XL2 },
+		{ SIGNING_CERTIFICATE, Boolean.FALSE, SIGNATURE_TIMESTAMP + REFS + SIG_AND_REFS_TIMESTAMP + VALUES + ARCHIVE_TIMESTAMP, ISignatureFormatDetector.FORMAT_XADES_A },
+		{ SIGNING_CERTIFICATE + POLICY, Boolean.FALSE, SIGNATURE_TIMESTAMP, ISignatureFormatDetector.FORMAT_XADES_T },
+	};
+
+	/** Comprueba el formato detectado en las firmas XAdES de prueba.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testXadesFiles() throws Exception {
+		for (final String[] row : XADES_FILES) {
+			Assert.assertEquals(row[0], row[1], SignatureFormatDetectorXades.getSignatureFormat(load(row[0])));
+		}
+	}
+
+	/** Comprueba el formato detectado en firmas XAdES con distintas combinaciones de
+	 * propiedades.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testXadesProperties() throws Exception {
+		for (final Object[] row : XADES_PROPERTIES) {
+			final byte[] signature = buildXades(
+					(String) row[0], ((Boolean) row[1]).booleanValue(), (String) row[2]);
+			Assert.assertEquals(
+					row[0] + " " + row[1] + " " + row[2], //$NON-NLS-1$ //$NON-NLS-2$
+					row[3], SignatureFormatDetectorXades.getSignatureFormat(signature));
+		}
+	}
+
+	/** Comprueba que no se reconoce como XAdES una firma XMLDSig ni un XML sin firmas.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testXmlWithoutXadesProperties() throws Exception {
+		final String xmldsig = "<root><ds:Signature xmlns:ds=\"" + XMLConstants.DSIGNNS + "\"/></root>"; //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertEquals(
+				ISignatureFormatDetector.FORMAT_UNRECOGNIZED,
+				SignatureFormatDetectorXades.getSignatureFormat(xmldsig.getBytes(StandardCharsets.UTF_8)));
+		Assert.assertEquals(
+				ISignatureFormatDetector.FORMAT_UNRECOGNIZED,
+				SignatureFormatDetectorXades.getSignatureFormat("<root/>".getBytes(StandardCharsets.UTF_8))); //$NON-NLS-1$
+	}
+
+	/** Comprueba el formato detectado en los firmantes de las firmas CAdES de prueba.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCadesFiles() throws Exception {
+		for (final String[] row : CADES_FILES) {
+			Assert.assertEquals(row[0], row[1], getSignerFormat(new CMSSignedData(load(row[0]))));
+		}
+	}
+
+	/** Comprueba que un firmante sin atributos firmados se detecta como CMS.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCmsWithoutSignedAttributes() throws Exception {
+		final ContentInfo contentInfo = ContentInfo.getInstance(load(CADES_FILES[0][0]));
+		final SignedData signedData = SignedData.getInstance(contentInfo.getContent());
+
+		final ASN1EncodableVector signerInfos = new ASN1EncodableVector();
+		for (final ASN1Encodable encodable : signedData.getSignerInfos().toArray()) {
+			final SignerInfo signerInfo = SignerInfo.getInstance(encodable);
+			signerInfos.add(new SignerInfo(
+					signerInfo.getSID(),
+					signerInfo.getDigestAlgorithm(),
+					(ASN1Set) null,
+					signerInfo.getDigestEncryptionAlgorithm(),
+					signerInfo.getEncryptedDigest(),
+					signerInfo.getUnauthenticatedAttributes()));
+		}
+		final SignedData cms = new SignedData(
+				signedData.getDigestAlgorithms(),
+				signedData.getEncapContentInfo(),
+				signedData.getCertificates(),
+				signedData.getCRLs(),
+				new DERSet(signerInfos));
+
+		Assert.assertEquals(
+				ISignatureFormatDetector.FORMAT_CMS,
+				getSignerFormat(new CMSSignedData(new ContentInfo(contentInfo.getContentType(), cms))));
+	}
+
+	/** Comprueba el formato detectado en los documentos PDF firmados de prueba.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testPdfFiles() throws Exception {
+		for (final String[] row : PDF_FILES) {
+			Assert.assertEquals(row[0], row[1], SignatureFormatDetectorPadesCades.resolvePDFFormat(load(row[0])));
+		}
+	}
+
+	private static String getSignerFormat(final CMSSignedData signedData) {
+		final Iterator<SignerInformation> it = signedData.getSignerInfos().getSigners().iterator();
+		final String format = SignatureFormatDetectorPadesCades.resolveASN1Format(signedData, it.next());
+		Assert.assertFalse(it.hasNext());
+		return format;
+	}
+
+	private static byte[] buildXades(final String signedSignatureProperties,
+			final boolean dataObjectFormat,
+			final String unsignedSignatureProperties) {
+		final StringBuilder xml = new StringBuilder()
+			.append("<ds:Signature xmlns:ds=\"").append(XMLConstants.DSIGNNS) //$NON-NLS-1$
+			.append("\" xmlns:xades=\"").append(XAdESConstants.NAMESPACE_XADES_1_3_2) //$NON-NLS-1$
+			.append("\" xmlns:xadesv141=\"").append(XAdESConstants.NAMESPACE_XADES_1_4_1).append("\">") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("<ds:Object><xades:QualifyingProperties><xades:SignedProperties>") //$NON-NLS-1$
+			.append("<xades:SignedSignatureProperties>").append(signedSignatureProperties) //$NON-NLS-1$
+			.append("</xades:SignedSignatureProperties>"); //$NON-NLS-1$
+		if (dataObjectFormat) {
+			xml.append("<xades:SignedDataObjectProperties>").append(DATA_OBJECT_FORMAT) //$NON-NLS-1$
+				.append("</xades:SignedDataObjectProperties>"); //$NON-NLS-1$
+		}
+		xml.append("</xades:SignedProperties>"); //$NON-NLS-1$
+		if (!unsignedSignatureProperties.isEmpty()) {
+			xml.append("<xades:UnsignedProperties><xades:UnsignedSignatureProperties>") //$NON-NLS-1$
+				.append(unsignedSignatureProperties)
+				.append("</xades:UnsignedSignatureProperties></xades:UnsignedProperties>"); //$NON-NLS-1$
+		}
+		xml.append("</xades:QualifyingProperties></ds:Object></ds:Signature>"); //$NON-NLS-1$
+		return xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] load(final String resource) throws Exception {
+		try (final InputStream is = ClassLoader.getSystemResourceAsStream(resource)) {
+			return AOUtil.getDataFromInputStream(is);
+		}
+	}
+}
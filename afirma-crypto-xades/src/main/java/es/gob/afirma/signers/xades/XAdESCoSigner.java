@@ -50,6 +50,7 @@ import es.gob.afirma.core.signers.AOSignConstants;
 import es.gob.afirma.core.signers.AdESPolicyPropertiesManager;
 import es.gob.afirma.signers.xml.Utils;
 import es.gob.afirma.signers.xml.XMLConstants;
+import es.gob.afirma.signers.xml.dereference.XmlIdIndex;
 import es.uji.crypto.xades.jxades.security.xml.XAdES.DataObjectFormat;
 import es.uji.crypto.xades.jxades.security.xml.XAdES.DataObjectFormatImpl;
 import es.uji.crypto.xades.jxades.security.xml.XAdES.ObjectIdentifier;
@@ -421,46 +422,7 @@ public final class XAdESCoSigner {
 			else {
 
 				final String dataNodeId = referenceUri.substring(referenceUri.startsWith("#") ? 1 : 0); //$NON-NLS-1$
-				Element dataObjectElement = null;
-				final Element docElement = docSig.getDocumentElement();
-
-				// Comprobamos si el nodo raiz o sus hijos inmediatos son el nodo de datos
-				Node nodeAttributeId = docElement.getAttributes() != null ?
-						docElement.getAttributes().getNamedItem(XAdESConstants.ID_IDENTIFIER) : null;
-				if (nodeAttributeId != null && dataNodeId.equals(nodeAttributeId.getNodeValue())) {
-					dataObjectElement = docElement;
-				}
-				else {
-					// Recorremos los hijos al reves para acceder antes a los datos y las firmas
-					final NodeList rootChildNodes = docElement.getChildNodes();
-					for (int j = rootChildNodes.getLength() - 1; j >= 0; j--) {
-
-						nodeAttributeId = rootChildNodes.item(j).getAttributes() != null ?
-								rootChildNodes.item(j).getAttributes().getNamedItem(XAdESConstants.ID_IDENTIFIER) :
-									null;
-								if (nodeAttributeId != null && dataNodeId.equals(nodeAttributeId.getNodeValue())) {
-									dataObjectElement = (Element) rootChildNodes.item(j);
-									break;
-								}
-
-								// Si es un nodo de firma tambien miramos en sus nodos hijos
-								if (XMLConstants.TAG_SIGNATURE.equals(rootChildNodes.item(j).getLocalName())) {
-									final NodeList subChildsNodes = rootChildNodes.item(j).getChildNodes();
-									for (int k = subChildsNodes.getLength() - 1; k >= 0; k--) {
-										nodeAttributeId = subChildsNodes.item(k).getAttributes() != null ?
-												subChildsNodes.item(k).getAttributes().getNamedItem(XAdESConstants.ID_IDENTIFIER) :
-													null;
-												if (nodeAttributeId != null && dataNodeId.equals(nodeAttributeId.getNodeValue())) {
-													dataObjectElement = (Element) subChildsNodes.item(k);
-													break;
-												}
-									}
-									if (dataObjectElement != null) {
-										break;
-									}
-								}
-					}
-				}
+				final Element dataObjectElement = getDataObjectElement(docSig, dataNodeId);
 				if (dataObjectElement != null) {
 					if (mimeType == null) {
 						mimeType = dataObjectElement.getAttribute("MimeType"); //$NON-NLS-1$
@@ -641,6 +603,95 @@ public final class XAdESCoSigner {
 		);
 	}
 
+	/**
+	 * Busca el nodo de datos de una firma, que puede ser el nodo ra&iacute;z, uno de sus hijos
+	 * inmediatos o un hijo inmediato de una de las firmas hijas del ra&iacute;z. Se usa el
+	 * &iacute;ndice de identificadores del documento y, si el nodo indexado no tiene
+	 * exactamente el atributo <i>Id</i> o no est&aacute; en una de esas posiciones, se recorren
+	 * esas posiciones.
+	 * @param docSig Documento de firma.
+	 * @param dataNodeId Identificador del nodo de datos.
+	 * @return Nodo de datos o {@code null} si no se encuentra.
+	 */
+	static Element getDataObjectElement(final Document docSig, final String dataNodeId) {
+		final Element docElement = docSig.getDocumentElement();
+		final Element indexedElement = XmlIdIndex.getElementById(docSig, dataNodeId);
+		if (indexedElement == null) {
+			return null;
+		}
+		if (hasId(indexedElement, dataNodeId) && isDataObjectPosition(indexedElement, docElement)) {
+			return indexedElement;
+		}
+		return findDataObjectElement(docElement, dataNodeId);
+	}
+
+	/**
+	 * Busca el nodo de datos de una firma recorriendo el nodo ra&iacute;z, sus hijos y los hijos
+	 * de las firmas hijas del ra&iacute;z.
+	 * @param docElement Nodo ra&iacute;z del documento.
+	 * @param dataNodeId Identificador del nodo de datos.
+	 * @return Nodo de datos o {@code null} si no se encuentra.
+	 */
+	private static Element findDataObjectElement(final Element docElement, final String dataNodeId) {
+
+		// Comprobamos si el nodo raiz o sus hijos inmediatos son el nodo de datos
+		if (hasId(docElement, dataNodeId)) {
+			return docElement;
+		}
+
+		// Recorremos los hijos al reves para acceder antes a los datos y las firmas
+		final NodeList rootChildNodes = docElement.getChildNodes();
+		for (int j = rootChildNodes.getLength() - 1; j >= 0; j--) {
+			final Node rootChild = rootChildNodes.item(j);
+			if (hasId(rootChild, dataNodeId)) {
+				return (Element) rootChild;
+			}
+
+			// Si es un nodo de firma tambien miramos en sus nodos hijos
+			if (XMLConstants.TAG_SIGNATURE.equals(rootChild.getLocalName())) {
+				final NodeList subChildsNodes = rootChild.getChildNodes();
+				for (int k = subChildsNodes.getLength() - 1; k >= 0; k--) {
+					if (hasId(subChildsNodes.item(k), dataNodeId)) {
+						return (Element) subChildsNodes.item(k);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Comprueba si un nodo tiene el atributo <i>Id</i> con el valor indicado.
+	 * @param node Nodo que se comprueba.
+	 * @param id Valor del identificador.
+	 * @return {@code true} si el nodo tiene ese identificador.
+	 */
+	private static boolean hasId(final Node node, final String id) {
+		final Node nodeAttributeId = node.getAttributes() != null ?
+				node.getAttributes().getNamedItem(XAdESConstants.ID_IDENTIFIER) : null;
+		return nodeAttributeId != null && id.equals(nodeAttributeId.getNodeValue());
+	}
+
+	/**
+	 * Comprueba si un elemento est&aacute; en una de las posiciones en las que se admite
+	 * el nodo de datos de una firma: el nodo ra&iacute;z, uno de sus hijos o un hijo de una
+	 * de las firmas hijas del ra&iacute;z.
+	 * @param element Elemento que se comprueba.
+	 * @param docElement Nodo ra&iacute;z del documento.
+	 * @return {@code true} si el elemento est&aacute; en una de esas posiciones.
+	 */
+	private static boolean isDataObjectPosition(final Element element, final Element docElement) {
+		if (element == docElement) {
+			return true;
+		}
+		final Node parent = element.getParentNode();
+		if (parent == docElement) {
+			return true;
+		}
+		return parent != null && XMLConstants.TAG_SIGNATURE.equals(parent.getLocalName())
+				&& parent.getParentNode() == docElement;
+	}
+
 	/**
 	 * Hace una copia del manifest de una firma.
 	 * @param referenceUri URI del manifest.
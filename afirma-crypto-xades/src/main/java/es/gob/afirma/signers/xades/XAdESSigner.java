@@ -54,9 +54,7 @@ import es.gob.afirma.core.misc.Base64;
 import es.gob.afirma.core.misc.LoggerUtil;
 import es.gob.afirma.core.misc.MimeHelper;
 import es.gob.afirma.core.misc.http.SSLErrorProcessor;
-import es.gob.afirma.core.misc.http.UrlHttpManager;
-import es.gob.afirma.core.misc.http.UrlHttpManagerFactory;
-import es.gob.afirma.core.misc.http.UrlHttpMethod;
+import es.gob.afirma.core.misc.http.UrlContentCache;
 import es.gob.afirma.core.signers.AOSignConstants;
 import es.gob.afirma.signers.xml.InvalidXMLException;
 import es.gob.afirma.signers.xml.Utils;
@@ -1625,12 +1623,10 @@ public final class XAdESSigner {
 				HTTPS_PROTOCOL_PREFIX.equalsIgnoreCase(uri.substring(0, HTTPS_PROTOCOL_PREFIX.length()))) {
 			try {
 
-				final UrlHttpManager httpManager = UrlHttpManagerFactory.getInstalledManager();
-
 				byte[] data;
 				final SSLErrorProcessor errorProcessor = new SSLErrorProcessor(extraParams);
 				try {
-					data = httpManager.readUrl(uri, UrlHttpMethod.GET, errorProcessor);
+					data = UrlContentCache.getSharedInstance().get(uri, errorProcessor);
 				} catch (final IOException e) {
 					if (errorProcessor.isCancelled()) {
 						LOGGER.info(
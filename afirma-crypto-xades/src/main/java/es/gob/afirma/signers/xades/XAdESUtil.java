@@ -51,6 +51,7 @@ import es.gob.afirma.core.SigningLTSException;
 import es.gob.afirma.core.signers.AOSignConstants;
 import es.gob.afirma.core.ui.AOUIFactory;
 import es.gob.afirma.signers.xml.XMLConstants;
+import es.gob.afirma.signers.xml.dereference.XmlIdIndex;
 import es.uji.crypto.xades.jxades.security.xml.XAdES.CommitmentTypeIdImpl;
 import es.uji.crypto.xades.jxades.security.xml.XAdES.CommitmentTypeIndication;
 import es.uji.crypto.xades.jxades.security.xml.XAdES.CommitmentTypeIndicationImpl;
@@ -259,6 +260,56 @@ public final class XAdESUtil {
 	 */
 	static Element findElementById(final String nodeId, final Element currentElement, final boolean omitSignatures) {
 
+		// Si el elemento forma parte de su documento, localizamos el nodo mediante el indice
+		// de identificadores del documento y comprobamos que este dentro del elemento. Si no,
+		// o si el nodo indexado no cumple las condiciones, lo buscamos recorriendo el elemento
+		final Document doc = currentElement.getOwnerDocument();
+		if (isDescendantOrSelf(currentElement, doc, false)) {
+			final Element indexedElement = XmlIdIndex.getElementById(doc, nodeId);
+			if (indexedElement == null) {
+				return null;
+			}
+			if (nodeId.equals(indexedElement.getAttribute(XAdESConstants.ID_IDENTIFIER))
+					&& isDescendantOrSelf(indexedElement, currentElement, omitSignatures)) {
+				return indexedElement;
+			}
+		}
+		return findElementByIdInTree(nodeId, currentElement, omitSignatures);
+	}
+
+	/**
+	 * Comprueba si un nodo se encuentra dentro de otro.
+	 * @param node Nodo que se busca.
+	 * @param ancestor Nodo en el que se busca.
+	 * @param omitSignatures Si es {@code true}, no se considera que est&eacute; dentro si
+	 * entre ambos (incluido el nodo en el que se busca) hay un nodo de nombre "Signature".
+	 * @return {@code true} si el nodo es el mismo o se encuentra dentro del otro.
+	 */
+	private static boolean isDescendantOrSelf(final Node node, final Node ancestor, final boolean omitSignatures) {
+		if (node == ancestor) {
+			return true;
+		}
+		for (Node parent = node.getParentNode(); parent != null; parent = parent.getParentNode()) {
+			if (omitSignatures && "Signature".equals(parent.getLocalName())) { //$NON-NLS-1$
+				return false;
+			}
+			if (parent == ancestor) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Busca un nodo con el atributo 'Id' indicado recorriendo un elemento.
+	 * @param nodeId Identificador del nodo que queremos encontrar.
+	 * @param currentElement Elemento en el que queremos buscar.
+	 * @param omitSignatures Si se omite la b&uacute;squeda dentro de los nodos "Signature".
+	 * @return Nodo con el identificador indicado o {@code null} si no
+	 * se encuentra el nodo.
+	 */
+	private static Element findElementByIdInTree(final String nodeId, final Element currentElement, final boolean omitSignatures) {
+
 		// Si es este el nodo, lo devolvemos
 		if (nodeId.equals(currentElement.getAttribute(XAdESConstants.ID_IDENTIFIER))) {
 			return currentElement;
@@ -277,7 +328,7 @@ public final class XAdESUtil {
 		for (int i = 0; i < childList.getLength(); i++) {
 			item = childList.item(i);
 			if (item.getNodeType() == Node.ELEMENT_NODE) {
-				final Element el = findElementById(nodeId, (Element) item, omitSignatures);
+				final Element el = findElementByIdInTree(nodeId, (Element) item, omitSignatures);
 				if (el != null) {
 					return el;
 				}
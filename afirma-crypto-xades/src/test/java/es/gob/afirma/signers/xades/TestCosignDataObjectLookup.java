@@ -0,0 +1,115 @@
+package es.gob.afirma.signers.xades;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.KeyStore.PrivateKeyEntry;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import es.gob.afirma.core.misc.AOUtil;
+import es.gob.afirma.core.signers.AOSignConstants;
+import es.gob.afirma.signers.xml.XMLConstants;
+
+/** Pruebas de la localizaci&oacute;n del nodo de datos al cofirmar. */
+public final class TestCosignDataObjectLookup {
+
+	private static final String CERT_PATH = "00_empleado_publico-hsm.p12"; //$NON-NLS-1$
+	private static final String CERT_PASS = "12345"; //$NON-NLS-1$
+	private static final String CERT_ALIAS = "nombre apellido1 apellido2 - dni 12345678z"; //$NON-NLS-1$
+
+	private static final String ENVELOPING_SIGNATURE = "XAdES-Enveloping-SHA1withRSA-XML.xml"; //$NON-NLS-1$
+
+	/** Un elemento anidado anterior en el documento con el mismo identificador no debe
+	 * impedir encontrar el nodo de datos hijo de la ra&iacute;z.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testNestedDuplicateIdBeforeDataObject() throws Exception {
+		final Document doc = parse(
+				"<root><a><b Id=\"data\"/></a><obj Id=\"data\"/></root>"); //$NON-NLS-1$
+		final Element element = XAdESCoSigner.getDataObjectElement(doc, "data"); //$NON-NLS-1$
+		Assert.assertNotNull(element);
+		Assert.assertEquals("obj", element.getNodeName()); //$NON-NLS-1$
+	}
+
+	/** Un atributo <i>ID</i> con otras may&uacute;sculas anterior en el documento no debe
+	 * impedir encontrar el nodo con el atributo <i>Id</i>.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDifferentlyCasedIdBeforeDataObject() throws Exception {
+		final Document doc = parse(
+				"<root><other ID=\"data\"/><obj Id=\"data\"/></root>"); //$NON-NLS-1$
+		final Element element = XAdESCoSigner.getDataObjectElement(doc, "data"); //$NON-NLS-1$
+		Assert.assertNotNull(element);
+		Assert.assertEquals("obj", element.getNodeName()); //$NON-NLS-1$
+	}
+
+	/** El nodo de datos puede ser hijo de una firma hija de la ra&iacute;z, pero no estar en
+	 * otras posiciones.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDataObjectPositions() throws Exception {
+		final Document doc = parse(
+				"<root><ds:Signature xmlns:ds=\"" + XMLConstants.DSIGNNS + "\">" //$NON-NLS-1$ //$NON-NLS-2$
+				+ "<ds:Object Id=\"inSignature\"/></ds:Signature>" //$NON-NLS-1$
+				+ "<a><b Id=\"nested\"/></a></root>"); //$NON-NLS-1$
+		final Element element = XAdESCoSigner.getDataObjectElement(doc, "inSignature"); //$NON-NLS-1$
+		Assert.assertNotNull(element);
+		Assert.assertEquals("Object", element.getLocalName()); //$NON-NLS-1$
+		Assert.assertNull(XAdESCoSigner.getDataObjectElement(doc, "nested")); //$NON-NLS-1$
+		Assert.assertNull(XAdESCoSigner.getDataObjectElement(doc, "absent")); //$NON-NLS-1$
+	}
+
+	/** Los nodos agregados despu&eacute;s de una primera b&uacute;squeda tambi&eacute;n se
+	 * encuentran.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDataObjectAddedAfterLookup() throws Exception {
+		final Document doc = parse("<root><obj Id=\"first\"/></root>"); //$NON-NLS-1$
+		Assert.assertNotNull(XAdESCoSigner.getDataObjectElement(doc, "first")); //$NON-NLS-1$
+		Assert.assertNull(XAdESCoSigner.getDataObjectElement(doc, "second")); //$NON-NLS-1$
+
+		final Element added = doc.createElement("obj"); //$NON-NLS-1$
+		added.setAttribute("Id", "second"); //$NON-NLS-1$ //$NON-NLS-2$
+		doc.getDocumentElement().appendChild(added);
+		Assert.assertSame(added, XAdESCoSigner.getDataObjectElement(doc, "second")); //$NON-NLS-1$
+	}
+
+	/** Cofirma de una firma enveloping, que requiere localizar el nodo de datos dentro de
+	 * la firma original.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCosignEnveloping() throws Exception {
+		final KeyStore ks = KeyStore.getInstance("PKCS12"); //$NON-NLS-1$
+		ks.load(ClassLoader.getSystemResourceAsStream(CERT_PATH), CERT_PASS.toCharArray());
+		final PrivateKeyEntry pke = (PrivateKeyEntry) ks.getEntry(CERT_ALIAS, new KeyStore.PasswordProtection(CERT_PASS.toCharArray()));
+
+		final byte[] signature = AOUtil.getDataFromInputStream(ClassLoader.getSystemResourceAsStream(ENVELOPING_SIGNATURE));
+		final byte[] cosign = new AOXAdESSigner().cosign(
+				signature, AOSignConstants.SIGN_ALGORITHM_SHA256WITHRSA,
+				pke.getPrivateKey(), pke.getCertificateChain(), null);
+
+		final Document doc = parse(cosign);
+		Assert.assertEquals(2, doc.getElementsByTagNameNS(XMLConstants.DSIGNNS, XMLConstants.TAG_SIGNATURE).getLength());
+	}
+
+	private static Document parse(final String xml) throws Exception {
+		return parse(xml.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Document parse(final byte[] xml) throws Exception {
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		return dbf.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+	}
+}
@@ -27,20 +27,16 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-import es.gob.afirma.core.misc.http.UrlHttpManagerFactory;
-import es.gob.afirma.core.misc.http.UrlHttpMethod;
+import es.gob.afirma.core.misc.http.UrlContentCache;
 import es.gob.afirma.signers.xml.Utils;
+import es.gob.afirma.signers.xml.dereference.XmlIdIndex;
 
 /** Dereferenciador a medida de referencias XML DOM. */
 public final class CustomUriDereferencer implements URIDereferencer {
 
-	private static final String ID = "Id"; //$NON-NLS-1$
-
 	private static final String DEFAULT_SUN_URI_DEREFERENCER_CLASSNAME =           "org.jcp.xml.dsig.internal.dom.DOMURIDereferencer"; //$NON-NLS-1$
 	private static final String DEFAULT_APACHE_URI_DEREFERENCER_CLASSNAME = "org.apache.jcp.xml.dsig.internal.dom.DOMURIDereferencer"; //$NON-NLS-1$
 
@@ -147,7 +143,7 @@ public final class CustomUriDereferencer implements URIDereferencer {
 				// nunca vamos a dejar importar los datos remotos en este caso si el SSL no es de confianza
 				byte[] externalContent;
 				try {
-					externalContent = UrlHttpManagerFactory.getInstalledManager().readUrl(uri, UrlHttpMethod.GET);
+					externalContent = UrlContentCache.getSharedInstance().get(uri, null);
 				}
 				catch (final Exception e1) {
 					throw new URIReferenceException(
@@ -250,24 +246,7 @@ public final class CustomUriDereferencer implements URIDereferencer {
 	 * @return Primer nodo de un documento XML que tenga un atributo <i>Id</i> con el
 	 *         valor indicado o <code>null</code> si no se encuentra ninguno */
 	public static Element getElementById(final Document doc, final String nodeId) {
-		if (doc == null || nodeId == null) {
-			return null;
-		}
-	    final NodeList nodeList = doc.getElementsByTagName("*"); //$NON-NLS-1$
-	    for (int i = 0, len = nodeList.getLength(); i < len; i++) {
-	        final Node node = nodeList.item(i);
-	        if (node.getNodeType() == Node.ELEMENT_NODE) {
-	        	// Buscamos un atributo 'Id'
-	        	final NamedNodeMap nnm = node.getAttributes();
-	        	for (int j = 0; j < nnm.getLength(); ++j) {
-	        	    final Node attr = nnm.item(j);
-	        	    if (ID.equalsIgnoreCase(attr.getNodeName()) && nodeId.equals(attr.getNodeValue()) && node instanceof Element) {
-	        	    	return (Element) node;
-	        	    }
-	        	}
-	        }
-	    }
-		return null;
+		return XmlIdIndex.getElementById(doc, nodeId);
 	}
 
 }
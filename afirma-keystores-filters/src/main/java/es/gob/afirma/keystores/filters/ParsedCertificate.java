@@ -0,0 +1,212 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.keystores.filters;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+
+import org.spongycastle.asn1.ASN1OctetString;
+import org.spongycastle.asn1.ASN1Sequence;
+import org.spongycastle.asn1.x509.CertificatePolicies;
+import org.spongycastle.asn1.x509.PolicyInformation;
+
+import es.gob.afirma.core.misc.AOUtil;
+
+/** Informaci&oacute;n de un certificado ya extra&iacute;da y analizada para su uso por los
+ * filtros: atributos de los nombres de titular y emisor, usos de clave, pol&iacute;ticas y
+ * huellas digitales. Cada certificado se analiza una &uacute;nica vez aunque se le apliquen
+ * varios filtros o se muestre varias veces el di&aacute;logo de selecci&oacute;n. La
+ * informaci&oacute;n se libera cuando deja de usarse el certificado. */
+public final class ParsedCertificate {
+
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	private static final String OID_CERTIFICATE_POLICIES = "2.5.29.32"; //$NON-NLS-1$
+
+	/** Certificados ya analizados. Los valores no referencian al certificado, por lo que
+	 * las entradas se eliminan cuando el certificado deja de estar en uso. */
+	private static final Map<X509Certificate, ParsedCertificate> CACHE = new WeakHashMap<>();
+
+	private final String subjectName;
+	private final String issuerName;
+	private final Attributes subjectAttributes;
+	private final Attributes issuerAttributes;
+	private final String subjectPrincipalLowerCase;
+	private final String issuerPrincipalLowerCase;
+	private final boolean[] keyUsage;
+	private final List<String> policyIds;
+	private final byte[] encoded;
+	private final Map<String, String> thumbprints = new HashMap<>();
+
+	private ParsedCertificate(final X509Certificate cert) {
+		this.subjectName = cert.getSubjectDN().toString();
+		this.issuerName = cert.getIssuerDN().toString();
+		this.subjectAttributes = parseName(this.subjectName);
+		this.issuerAttributes = parseName(this.issuerName);
+		this.subjectPrincipalLowerCase = cert.getSubjectX500Principal().toString().toLowerCase(Locale.getDefault());
+		this.issuerPrincipalLowerCase = cert.getIssuerX500Principal().toString().toLowerCase(Locale.getDefault());
+		this.keyUsage = cert.getKeyUsage();
+		this.policyIds = parsePolicyIds(cert);
+		byte[] enc;
+		try {
+			enc = cert.getEncoded();
+		}
+		catch (final CertificateEncodingException e) {
+			LOGGER.warning("No se ha podido obtener la codificacion del certificado: " + e); //$NON-NLS-1$
+			enc = null;
+		}
+		this.encoded = enc;
+	}
+
+	/** Obtiene la informaci&oacute;n analizada de un certificado, analiz&aacute;ndolo
+	 * s&oacute;lo si no se hab&iacute;a hecho antes.
+	 * @param cert Certificado.
+	 * @return Informaci&oacute;n del certificado. */
+	public static ParsedCertificate getInstance(final X509Certificate cert) {
+		if (cert == null) {
+			throw new IllegalArgumentException("El certificado no puede ser nulo"); //$NON-NLS-1$
+		}
+		synchronized (CACHE) {
+			ParsedCertificate parsed = CACHE.get(cert);
+			if (parsed == null) {
+				parsed = new ParsedCertificate(cert);
+				CACHE.put(cert, parsed);
+			}
+			return parsed;
+		}
+	}
+
+	/** Obtiene el nombre del titular tal como lo devuelve {@link X509Certificate#getSubjectDN()}.
+	 * @return Nombre del titular. */
+	public String getSubjectName() {
+		return this.subjectName;
+	}
+
+	/** Obtiene el nombre del emisor tal como lo devuelve {@link X509Certificate#getIssuerDN()}.
+	 * @return Nombre del emisor. */
+	public String getIssuerName() {
+		return this.issuerName;
+	}
+
+	/** Obtiene los atributos del nombre del titular. No deben modificarse.
+	 * @return Atributos del titular (vac&iacute;os si el nombre no tiene ninguno) o
+	 *         {@code null} si el nombre no se pudo analizar. */
+	public Attributes getSubjectAttributes() {
+		return this.subjectAttributes;
+	}
+
+	/** Obtiene los atributos del nombre del emisor. No deben modificarse.
+	 * @return Atributos del emisor (vac&iacute;os si el nombre no tiene ninguno) o
+	 *         {@code null} si el nombre no se pudo analizar. */
+	public Attributes getIssuerAttributes() {
+		return this.issuerAttributes;
+	}
+
+	/** Obtiene el principal X.500 del titular en min&uacute;sculas.
+	 * @return Principal del titular en min&uacute;sculas. */
+	public String getSubjectPrincipalLowerCase() {
+		return this.subjectPrincipalLowerCase;
+	}
+
+	/** Obtiene el principal X.500 del emisor en min&uacute;sculas.
+	 * @return Principal del emisor en min&uacute;sculas. */
+	public String getIssuerPrincipalLowerCase() {
+		return this.issuerPrincipalLowerCase;
+	}
+
+	/** Obtiene los usos de la clave del certificado.
+	 * @return Usos de la clave o {@code null} si el certificado no declara la extensi&oacute;n. */
+	public boolean[] getKeyUsage() {
+		return this.keyUsage != null ? this.keyUsage.clone() : null;
+	}
+
+	/** Obtiene los OID de las pol&iacute;ticas del certificado.
+	 * @return OID de las pol&iacute;ticas. */
+	public List<String> getPolicyIds() {
+		return this.policyIds;
+	}
+
+	/** Obtiene la huella digital del certificado en hexadecimal y sin separadores.
+	 * @param digestAlgorithm Algoritmo de huella.
+	 * @return Huella digital del certificado o {@code null} si no se pudo obtener la
+	 *         codificaci&oacute;n del certificado.
+	 * @throws NoSuchAlgorithmException Si el algoritmo de huella no est&aacute; soportado. */
+	public String getThumbprint(final String digestAlgorithm) throws NoSuchAlgorithmException {
+		if (this.encoded == null) {
+			return null;
+		}
+		final String key = digestAlgorithm.toUpperCase(Locale.US);
+		synchronized (this.thumbprints) {
+			String thumbprint = this.thumbprints.get(key);
+			if (thumbprint == null) {
+				thumbprint = AOUtil.hexify(MessageDigest.getInstance(digestAlgorithm).digest(this.encoded), ""); //$NON-NLS-1$
+				this.thumbprints.put(key, thumbprint);
+			}
+			return thumbprint;
+		}
+	}
+
+	private static Attributes parseName(final String name) {
+		final List<Rdn> rdns;
+		try {
+			rdns = new LdapName(name).getRdns();
+		}
+		catch (final Exception e) {
+			LOGGER.warning("No se ha podido analizar el nombre '" + name + "': " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+		final Attributes attrs = new BasicAttributes(true);
+		if (rdns != null) {
+			for (final Rdn rdn : rdns) {
+				attrs.put(rdn.getType(), rdn.getValue());
+			}
+		}
+		return attrs;
+	}
+
+	private static List<String> parsePolicyIds(final X509Certificate cert) {
+		final byte[] certificatePoliciesBytes = cert.getExtensionValue(OID_CERTIFICATE_POLICIES);
+		if (certificatePoliciesBytes == null || certificatePoliciesBytes.length < 1) {
+			return Collections.emptyList();
+		}
+		try {
+			final CertificatePolicies certificatePolicies = CertificatePolicies.getInstance(
+				ASN1Sequence.getInstance(
+					ASN1OctetString.getInstance(certificatePoliciesBytes).getOctets()
+				)
+			);
+			final PolicyInformation[] pis = certificatePolicies.getPolicyInformation();
+			final List<String> policyOids = new ArrayList<>(pis.length);
+			for (final PolicyInformation pi : pis) {
+				policyOids.add(pi.getPolicyIdentifier().toString());
+			}
+			return Collections.unmodifiableList(policyOids);
+		}
+		catch (final Exception e) {
+			LOGGER.warning("No se han podido analizar las politicas del certificado: " + e); //$NON-NLS-1$
+			return Collections.emptyList();
+		}
+	}
+}
@@ -10,16 +10,10 @@
 package es.gob.afirma.keystores.filters;
 
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
-import org.spongycastle.asn1.ASN1OctetString;
-import org.spongycastle.asn1.ASN1Sequence;
-import org.spongycastle.asn1.x509.CertificatePolicies;
-import org.spongycastle.asn1.x509.PolicyInformation;
-
 import es.gob.afirma.keystores.CertificateFilter;
 
 /** Filtro de certificados por identificador de pol&iacute;tica de certificaci&oacute;n.
@@ -65,7 +59,7 @@ public final class PolicyIdFilter extends CertificateFilter {
 		  return false;
 	  }
 
-	  final List<String> actualPolicies = getCertificatePolicyIds(cert);
+	  final List<String> actualPolicies = ParsedCertificate.getInstance(cert).getPolicyIds();
 	  if (actualPolicies == null || actualPolicies.isEmpty()) {
 		  return false;
 	  }
@@ -78,22 +72,4 @@ public final class PolicyIdFilter extends CertificateFilter {
 	  return true;
   }
 
-  private static List<String> getCertificatePolicyIds(final X509Certificate cert) {
-		final byte[] certificatePoliciesBytes = cert.getExtensionValue("2.5.29.32"); //$NON-NLS-1$
-		if (certificatePoliciesBytes == null || certificatePoliciesBytes.length < 1) {
-			return new ArrayList<>(0);
-		}
-		final CertificatePolicies certificatePolicies = CertificatePolicies.getInstance(
-			ASN1Sequence.getInstance(
-				ASN1OctetString.getInstance(certificatePoliciesBytes).getOctets()
-			)
-		);
-		final PolicyInformation[] pis = certificatePolicies.getPolicyInformation();
-		final List<String> policyOids = new ArrayList<>(pis.length);
-		for (final PolicyInformation pi : pis) {
-			policyOids.add(pi.getPolicyIdentifier().toString());
-		}
-		return policyOids;
-  }
-
 }
@@ -35,8 +35,10 @@ public final class TextContainedCertificateFilter extends CertificateFilter {
     @Override
 	public boolean matches(final X509Certificate cert) {
 
+    	final ParsedCertificate parsed = ParsedCertificate.getInstance(cert);
+
     	if (this.subjectTexts != null) {
-    		final String subjectPrincipal = cert.getSubjectX500Principal().toString().toLowerCase();
+    		final String subjectPrincipal = parsed.getSubjectPrincipalLowerCase();
     		for (final String fragment : this.subjectTexts) {
     			if (fragment != null && !subjectPrincipal.contains(fragment.toLowerCase())) {
     				return false;
@@ -45,7 +47,7 @@ public final class TextContainedCertificateFilter extends CertificateFilter {
     	}
 
     	if (this.issuerTexts != null) {
-    		final String issuerPrincipal = cert.getIssuerX500Principal().toString().toLowerCase();
+    		final String issuerPrincipal = parsed.getIssuerPrincipalLowerCase();
     		for (final String fragment : this.issuerTexts) {
     			if (fragment != null && !issuerPrincipal.contains(fragment.toLowerCase())) {
     				return false;
@@ -9,13 +9,10 @@
 
 package es.gob.afirma.keystores.filters;
 
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.logging.Logger;
 
-import es.gob.afirma.core.misc.AOUtil;
 import es.gob.afirma.keystores.CertificateFilter;
 
 /** Filtro para identificar un certificado a partir de su <i>thumbprint</i> (tambi&eacute;n
@@ -44,17 +41,17 @@ public final class ThumbPrintCertificateFilter extends CertificateFilter {
 	@Override
     public boolean matches(final X509Certificate cert) {
 		try {
-			return this.thumbprint.equalsIgnoreCase(
-					AOUtil.hexify(MessageDigest.getInstance(this.digestAlgorithm).digest(cert.getEncoded()), "")); //$NON-NLS-1$
+			final String certThumbprint = ParsedCertificate.getInstance(cert).getThumbprint(this.digestAlgorithm);
+			if (certThumbprint == null) {
+				LOGGER.warning("No se ha podido obtener la codificacion del certificado"); //$NON-NLS-1$
+				return false;
+			}
+			return this.thumbprint.equalsIgnoreCase(certThumbprint);
 		}
 		catch (final NoSuchAlgorithmException e) {
 			LOGGER.warning("Algoritmo de huella digital no reconocido: " + e); //$NON-NLS-1$
 			return false;
 		}
-		catch (final CertificateEncodingException e) {
-			LOGGER.warning("No se ha podido obtener la codificacion del certificado: " + e); //$NON-NLS-1$
-			return false;
-		}
 		catch (final Exception e) {
 			LOGGER.warning("No se ha podido filtrar el certificado: " + e); //$NON-NLS-1$
 			return false;
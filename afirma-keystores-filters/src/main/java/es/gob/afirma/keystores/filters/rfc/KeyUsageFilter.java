@@ -12,6 +12,7 @@ package es.gob.afirma.keystores.filters.rfc;
 import java.security.cert.X509Certificate;
 
 import es.gob.afirma.keystores.CertificateFilter;
+import es.gob.afirma.keystores.filters.ParsedCertificate;
 
 /** Clase que representa un filtro de certificados por los atributos KeyUsage para
  * el di&aacute;logo de selecci&oacute;n. */
@@ -28,7 +29,7 @@ public class KeyUsageFilter extends CertificateFilter {
             return false;
         }
         if (this.keyUsageFilter.length == KEYUSAGE_NBITS) {
-            final boolean[] certUsage = cert.getKeyUsage();
+            final boolean[] certUsage = ParsedCertificate.getInstance(cert).getKeyUsage();
             if (certUsage != null) {
                 for (int j = 0; j < certUsage.length; j++) {
                     if (this.keyUsageFilter[j] != null && this.keyUsageFilter[j].booleanValue() != certUsage[j]) {
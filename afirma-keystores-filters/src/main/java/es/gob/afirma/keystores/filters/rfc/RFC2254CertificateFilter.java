@@ -16,15 +16,15 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.naming.directory.Attributes;
-import javax.naming.directory.BasicAttributes;
-import javax.naming.ldap.LdapName;
-import javax.naming.ldap.Rdn;
 
 import es.gob.afirma.core.keystores.KeyStoreManager;
 import es.gob.afirma.keystores.CertificateFilter;
+import es.gob.afirma.keystores.filters.ParsedCertificate;
 
 /** Clase que representa un filtro de certificados para
- * el di&aacute;logo de selecci&oacute;n. */
+ * el di&aacute;logo de selecci&oacute;n. Las expresiones RFC2254 se analizan una sola vez al
+ * construir el filtro y se eval&uacute;an sobre los nombres ya analizados de cada certificado
+ * (ver {@link ParsedCertificate}). */
 public final class RFC2254CertificateFilter extends CertificateFilter {
 
     private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
@@ -37,6 +37,12 @@ public final class RFC2254CertificateFilter extends CertificateFilter {
 
     private final boolean recurseIssuers;
 
+    /** Filtro para el titular ya analizado o {@code null} si no se indic&oacute; o no es v&aacute;lido. */
+    private final SearchFilter subjectSearchFilter;
+
+    /** Filtro para el emisor ya analizado o {@code null} si no se indic&oacute; o no es v&aacute;lido. */
+    private final SearchFilter issuerSearchFilter;
+
     /** Construye un filtro para certificados mediante expresi&oacute;n RFC2254.
      * @param subjectFilter Cadena seg&uacute;n la RFC2254 para filtro por el campo del titular (<i>subject</i>).
      *                      Si se indica <code>null</code> se acepta cualquier titular.
@@ -53,6 +59,8 @@ public final class RFC2254CertificateFilter extends CertificateFilter {
         this.rfc2254IssuerFilter = issuerFilter != null && !issuerFilter.isEmpty() ? issuerFilter : null;
         this.rfc2254SubjectFilter = subjectFilter != null && !subjectFilter.isEmpty() ? subjectFilter : null;
         this.recurseIssuers = recurse;
+        this.subjectSearchFilter = compileFilter(this.rfc2254SubjectFilter);
+        this.issuerSearchFilter = compileFilter(this.rfc2254IssuerFilter);
     }
 
     /** Construye un filtro para certificados.
@@ -71,7 +79,7 @@ public final class RFC2254CertificateFilter extends CertificateFilter {
     	}
         final List<String> filteredAliases = new ArrayList<>();
         for (final String alias : aliases) {
-        	if (filterSubjectByRFC2254(this.rfc2254SubjectFilter, ksm.getCertificate(alias)) && matchesIssuersRecursivelly(ksm.getCertificateChain(alias))) {
+        	if (filterSubjectByRFC2254(this.rfc2254SubjectFilter, this.subjectSearchFilter, ksm.getCertificate(alias)) && matchesIssuersRecursivelly(ksm.getCertificateChain(alias))) {
                 filteredAliases.add(alias);
             }
         }
@@ -85,8 +93,8 @@ public final class RFC2254CertificateFilter extends CertificateFilter {
 				"No se dispone de la cadena de certificacion completa, el filtro solo se aplicara al emisor inmediato" //$NON-NLS-1$
 			);
     	}
-        return filterSubjectByRFC2254(this.rfc2254SubjectFilter, cert)
-            && filterIssuerByRFC2254(this.rfc2254IssuerFilter, cert);
+        return filterSubjectByRFC2254(this.rfc2254SubjectFilter, this.subjectSearchFilter, cert)
+            && filterIssuerByRFC2254(this.rfc2254IssuerFilter, this.issuerSearchFilter, cert);
     }
 
     private boolean matchesIssuersRecursivelly(final X509Certificate[] certs) {
@@ -94,70 +102,78 @@ public final class RFC2254CertificateFilter extends CertificateFilter {
     		return false;
     	}
     	for (final X509Certificate cert : certs) {
-    		if (filterSubjectByRFC2254(this.rfc2254IssuerFilter, cert)) {
+    		if (filterSubjectByRFC2254(this.rfc2254IssuerFilter, this.issuerSearchFilter, cert)) {
     			return true;
     		}
     	}
     	return false;
     }
 
-    private static boolean filterSubjectByRFC2254(final String filter, final X509Certificate cert) {
+    private static boolean filterSubjectByRFC2254(final String filter, final SearchFilter searchFilter, final X509Certificate cert) {
         if (cert == null || filter == null) {
             return true;
         }
-        return filterRFC2254(filter, cert.getSubjectDN().toString());
+        final ParsedCertificate parsed = ParsedCertificate.getInstance(cert);
+        return filterRFC2254(filter, searchFilter, parsed.getSubjectAttributes(), parsed.getSubjectName());
     }
 
-    private static boolean filterIssuerByRFC2254(final String filter, final X509Certificate cert) {
+    private static boolean filterIssuerByRFC2254(final String filter, final SearchFilter searchFilter, final X509Certificate cert) {
         if (cert == null || filter == null) {
             return true;
         }
-        return filterRFC2254(filter, cert.getIssuerDN().toString());
+        final ParsedCertificate parsed = ParsedCertificate.getInstance(cert);
+        return filterRFC2254(filter, searchFilter, parsed.getIssuerAttributes(), parsed.getIssuerName());
     }
 
-    /** Indica si un nombre LDAP se ajusta a los requisitos de un filtro.
+    /** Analiza una expresi&oacute;n de filtrado seg&uacute;n la RFC2254.
      * @param f Filtro seg&uacute;n la RFC2254.
-     * @param name Nombre LDAP al que se debe aplicar el filtro.
-     * @return <code>true</code> si el nombre LDAP es nulo o se adec&uacute;a al
-     *         filtro o este &uacute;ltimo es nulo, <code>false</code> en caso
-     *         contrario */
-    private static boolean filterRFC2254(final String f, final String name) {
-        try {
-            return filterRFC2254(f, new LdapName(name));
-        }
-        catch (final Exception e) {
-            LOGGER.log(
-            	Level.WARNING,
-        		"No ha sido posible filtrar el certificado (filtro: '" + f + "', nombre: '" + name + "'), no se eliminara del listado: "  + e, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-        		e
-    		);
-            return true;
-        }
+     * @return Filtro analizado o {@code null} si no se indic&oacute; o no es v&aacute;lido. */
+    private static SearchFilter compileFilter(final String f) {
+    	if (f == null) {
+    		return null;
+    	}
+    	try {
+    		return new SearchFilter(f);
+    	}
+    	catch (final Exception e) {
+    		LOGGER.log(
+				Level.WARNING,
+				"El filtro RFC2254 no es valido (filtro: '" + f + "'), no se eliminara ningun certificado por el: " + e, //$NON-NLS-1$ //$NON-NLS-2$
+				e
+			);
+    		return null;
+    	}
     }
 
-    /** Indica si un nombres LDAP se ajusta a los requisitos de un filtro.
+    /** Indica si los atributos de un nombre LDAP se ajustan a los requisitos de un filtro.
      * @param f Filtro seg&uacute;n la RFC2254.
+     * @param searchFilter Filtro ya analizado o {@code null} si no es v&aacute;lido.
+     * @param attrs Atributos del nombre LDAP o {@code null} si no se pudo analizar.
      * @param name Nombre LDAP al que se debe aplicar el filtro.
-     * @return <code>true</code> si el nombre LDAP es nulo o se adec&uacute;a al
-     *         filtro o este &uacute;ltimo es nulo, <code>false</code> en caso
+     * @return <code>true</code> si el nombre LDAP no se pudo analizar, el filtro no es
+     *         v&aacute;lido o el nombre se adec&uacute;a al filtro, <code>false</code> en caso
      *         contrario */
-	private static boolean filterRFC2254(final String f, final LdapName name) {
-        if (f == null || name == null) {
-            return true;
+	private static boolean filterRFC2254(final String f,
+			                             final SearchFilter searchFilter,
+			                             final Attributes attrs,
+			                             final String name) {
+        if (attrs == null) {
+        	LOGGER.warning(
+    			"No ha sido posible filtrar el certificado (filtro: '" + f + "', nombre: '" + name + "'), no se eliminara del listado" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			);
+        	return true;
+        }
+        if (attrs.size() == 0) {
+            LOGGER.warning(
+        		"El nombre proporcionado para filtrar no contiene atributos, no se mostrara el certificado en el listado" //$NON-NLS-1$
+    		);
+            return false;
+        }
+        if (searchFilter == null) {
+        	return true;
         }
         try {
-            final List<Rdn> rdns = name.getRdns();
-            if (rdns == null || rdns.isEmpty()) {
-                LOGGER.warning(
-            		"El nombre proporcionado para filtrar no contiene atributos, no se mostrara el certificado en el listado" //$NON-NLS-1$
-        		);
-                return false;
-            }
-            final Attributes attrs = new BasicAttributes(true);
-            for (final Rdn rdn : rdns) {
-                attrs.put(rdn.getType(), rdn.getValue());
-            }
-            return new SearchFilter(f).check(attrs);
+            return searchFilter.check(attrs);
         }
         catch (final Exception e) {
             LOGGER.log(
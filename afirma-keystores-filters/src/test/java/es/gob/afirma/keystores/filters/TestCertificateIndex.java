@@ -0,0 +1,125 @@
+package es.gob.afirma.keystores.filters;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.callback.PasswordCallback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.gob.afirma.core.keystores.KeyStoreManager;
+import es.gob.afirma.keystores.CertificateFilter;
+import es.gob.afirma.keystores.CertificateIndex;
+import es.gob.afirma.keystores.filters.rfc.RFC2254CertificateFilter;
+
+/** Pruebas del &iacute;ndice de certificados y de la informaci&oacute;n analizada que usan los filtros. */
+public final class TestCertificateIndex {
+
+	private static final String ALIAS = "tomas"; //$NON-NLS-1$
+
+	private static X509Certificate loadCertificate() throws Exception {
+		return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate( //$NON-NLS-1$
+			ClassLoader.getSystemResourceAsStream("Tomas_DNI_FIRMA.cer") //$NON-NLS-1$
+		);
+	}
+
+	/** Comprueba que un certificado se analiza una sola vez y que sus datos son correctos.
+	 * @throws Exception en cualquier error. */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testParsedCertificate() throws Exception {
+		final X509Certificate cert = loadCertificate();
+		final ParsedCertificate parsed = ParsedCertificate.getInstance(cert);
+		Assert.assertSame(parsed, ParsedCertificate.getInstance(cert));
+		Assert.assertEquals("AC DNIE 001", parsed.getIssuerAttributes().get("cn").get()); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertEquals("11830960J", parsed.getSubjectAttributes().get("SERIALNUMBER").get()); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertTrue(parsed.getPolicyIds().contains("2.16.724.1.2.2.2.3")); //$NON-NLS-1$
+		Assert.assertEquals("819A1CDC9A164611C6A056A8CD9DC842EC8A9D87", parsed.getThumbprint("SHA1").toUpperCase()); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertTrue(new ThumbPrintCertificateFilter("SHA1", "81 9a 1c dc 9a 16 46 11 c6 a0 56 a8 cd 9d c8 42 ec 8a 9d 87").matches(cert)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/** Comprueba que el &iacute;ndice s&oacute;lo consulta el almac&eacute;n una vez por certificado
+	 * y conserva los resultados de los filtros hasta que se refresca.
+	 * @throws Exception en cualquier error. */
+	@Test
+	@SuppressWarnings("static-method")
+	public void testIndexedFiltering() throws Exception {
+		final CountingKeyStoreManager ksm = new CountingKeyStoreManager(loadCertificate());
+		final CertificateIndex index = new CertificateIndex(ksm);
+		final String[] aliases = index.getAliases();
+
+		final CertificateFilter issuerFilter = new RFC2254CertificateFilter(null, "(cn=AC DNIE 001)"); //$NON-NLS-1$
+		final CertificateFilter otherIssuerFilter = new RFC2254CertificateFilter(null, "(cn=AC DNIE 002)"); //$NON-NLS-1$
+
+		Assert.assertEquals(Arrays.asList(ALIAS), Arrays.asList(index.getMatchingAliases(issuerFilter, aliases)));
+		Assert.assertEquals(0, index.getMatchingAliases(otherIssuerFilter, aliases).length);
+		Assert.assertEquals(Arrays.asList(ALIAS), Arrays.asList(index.getMatchingAliases(issuerFilter, aliases)));
+		Assert.assertEquals(1, ksm.certificateRequests.get());
+
+		index.refresh();
+		index.getMatchingAliases(issuerFilter, index.getAliases());
+		Assert.assertEquals(2, ksm.certificateRequests.get());
+	}
+
+	/** Almac&eacute;n con un &uacute;nico certificado que cuenta las veces que se le solicita. */
+	private static final class CountingKeyStoreManager implements KeyStoreManager {
+
+		final AtomicInteger certificateRequests = new AtomicInteger();
+
+		private final X509Certificate cert;
+
+		CountingKeyStoreManager(final X509Certificate cert) {
+			this.cert = cert;
+		}
+
+		@Override
+		public void deactivateEntry(final String certificateThumbprint) {
+			// No se usa
+		}
+
+		@Override
+		public boolean isKeyEntry(final String alias) {
+			return true;
+		}
+
+		@Override
+		public String[] getAliases() {
+			return new String[] { ALIAS };
+		}
+
+		@Override
+		public X509Certificate getCertificate(final String alias) {
+			this.certificateRequests.incrementAndGet();
+			return this.cert;
+		}
+
+		@Override
+		public X509Certificate[] getCertificateChain(final String alias) {
+			return new X509Certificate[] { getCertificate(alias) };
+		}
+
+		@Override
+		public PrivateKeyEntry getKeyEntry(final String alias) {
+			return null;
+		}
+
+		@Override
+		public void refresh() {
+			// No se usa
+		}
+
+		@Override
+		public void setEntryPasswordCallBack(final PasswordCallback pwc) {
+			// No se usa
+		}
+
+		@Override
+		public void setParentComponent(final Object parent) {
+			// No se usa
+		}
+	}
+}
@@ -11,7 +11,9 @@ package es.gob.afirma.keystores.mozilla;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.KeyStore;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.security.auth.callback.PasswordCallback;
 
@@ -70,20 +72,12 @@ public class MozillaUnifiedKeyStoreManager extends AggregatedKeyStoreManager {
 
 		final Object parentComponent = this.configParams != null && this.configParams.length > 0 ? this.configParams[0] : null;
 
-		if (!Boolean.getBoolean(ONLY_PKCS11) && !Boolean.parseBoolean(System.getenv(ONLY_PKCS11_ENV))) {
-			// Primero anadimos el almacen principal NSS
-			final AOKeyStoreManager ksm = getNssKeyStoreManager();
-			try {
-				ksm.init(type, store, pssCallBack, this.configParams, forceReset);
-			}
-			catch(final Exception e) {
-				LOGGER.severe(
-					"No se ha podido cargar NSS, se continuara con los almacenes externos: " + e //$NON-NLS-1$
-				);
-			}
-			setKeyStore(ksm.getKeyStore());
-			addKeyStoreManager(ksm);
-		}
+		// El almacen principal NSS ocupa la primera posicion del agregado. Su carga es lenta, asi
+		// que se hace en segundo plano, pero no empieza hasta terminar con las tarjetas, ya que NSS
+		// tambien accede a ellas mediante sus modulos PKCS#11 y el acceso concurrente por PC/SC no
+		// es fiable
+		final boolean loadNss = !Boolean.getBoolean(ONLY_PKCS11) && !Boolean.parseBoolean(System.getenv(ONLY_PKCS11_ENV));
+		final long nssPosition = loadNss ? reserveKeyStorePosition() : -1;
 
 		// Intentamos ahora agregar los almacenes externos preferentes ajenos a los
 		// dispositivos de seguridad configurados en Firefox haciendo uso del controlador Java
@@ -166,6 +160,30 @@ public class MozillaUnifiedKeyStoreManager extends AggregatedKeyStoreManager {
 			}
 		}
 
+		if (loadNss) {
+			final Object[] nssParams = this.configParams;
+			addKeyStoreManager(
+				"NSS", //$NON-NLS-1$
+				new Callable<AOKeyStoreManager>() {
+					@Override
+					public AOKeyStoreManager call() {
+						final AOKeyStoreManager ksm = getNssKeyStoreManager();
+						try {
+							ksm.init(type, store, pssCallBack, nssParams, forceReset);
+						}
+						catch(final Exception e) {
+							LOGGER.severe(
+								"No se ha podido cargar NSS, se continuara con los almacenes externos: " + e //$NON-NLS-1$
+							);
+						}
+						setKeyStore(ksm.getKeyStore());
+						return ksm;
+					}
+				},
+				nssPosition
+			);
+		}
+
 		if (lacksKeyStores()) {
 			LOGGER.warning(
 				"No se ha podido inicializar ningun almacen, interno o externo, de Mozilla, ni los almacenes preferentes" //$NON-NLS-1$
@@ -177,6 +195,16 @@ public class MozillaUnifiedKeyStoreManager extends AggregatedKeyStoreManager {
 		this.initialized = true;
 	}
 
+	/** {@inheritDoc}
+	 * El almac&eacute;n NSS se carga en segundo plano, por lo que si a&uacute;n no ha terminado
+	 * se espera a que lo haga. */
+	@Override
+	public KeyStore getKeyStore() {
+		if (super.getKeyStore() == null && isLoading()) {
+			getAliases();
+		}
+		return super.getKeyStore();
+	}
 
 	/** Inicializa un almac&eacute;n externo PKCS#11, mostrando un di&aacute;logo de inserci&oacute;n de PIN al usuario
 	 * si es necesario.
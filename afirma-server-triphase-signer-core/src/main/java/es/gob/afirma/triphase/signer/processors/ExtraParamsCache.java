@@ -0,0 +1,127 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.triphase.signer.processors;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import es.gob.afirma.core.signers.ExtraParamsProcessor;
+import es.gob.afirma.core.signers.ExtraParamsProcessor.IncompatiblePolicyException;
+
+/** Cach&eacute; acotada de par&aacute;metros adicionales ya expandidos con
+ * {@link ExtraParamsProcessor#expandProperties(Properties, byte[], String)}.
+ * Los servicios de firma suelen recibir una y otra vez las mismas configuraciones de
+ * firma, por lo que se guarda el resultado de expandir la pol&iacute;tica de firma de
+ * cada combinaci&oacute;n de formato y par&aacute;metros y se devuelve una copia en
+ * las siguientes peticiones.
+ * S&oacute;lo se cachean los par&aacute;metros que declaran una pol&iacute;tica a expandir,
+ * ya que en caso contrario la expansi&oacute;n se limita a copiar las propiedades. */
+public final class ExtraParamsCache {
+
+	/** Clave expansible para pol&iacute;ticas de firma. */
+	private static final String EXPANDIBLE_POLICY_KEY = "expPolicy"; //$NON-NLS-1$
+
+	/** Tama&ntilde;o de datos a partir del cual la pol&iacute;tica de la AGE establece
+	 * por defecto firmas CAdES expl&iacute;citas. Es el &uacute;nico punto en el que la
+	 * expansi&oacute;n depende de los datos, as&iacute; que forma parte de la clave. */
+	private static final int IMPLICIT_MODE_MAX_SIZE = 1024 * 1024;
+
+	/** N&uacute;mero m&aacute;ximo de configuraciones distintas que se guardan. */
+	private static final int MAX_ENTRIES = 256;
+
+	/** Longitud m&aacute;xima de la clave. Las configuraciones mayores (por ejemplo, con
+	 * im&aacute;genes de firma visible) se expanden sin cachear. */
+	private static final int MAX_KEY_LENGTH = 8 * 1024;
+
+	private static final Map<String, Properties> CACHE = new LinkedHashMap<String, Properties>(MAX_ENTRIES, 0.75f, true) {
+
+		private static final long serialVersionUID = 6163446108913370874L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Properties> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private ExtraParamsCache() {
+		// No instanciable
+	}
+
+	/** Obtiene los par&aacute;metros adicionales con la pol&iacute;tica de firma expandida.
+	 * El resultado es siempre un objeto nuevo que el llamante puede modificar.
+	 * @param params Par&aacute;metros definidos para la operaci&oacute;n.
+	 * @param signedData Datos firmados.
+	 * @param format Formato de firma.
+	 * @return Propiedades expandidas.
+	 * @throws IncompatiblePolicyException Si el formato de firma es incompatible con la pol&iacute;tica indicada. */
+	public static Properties expandProperties(final Properties params,
+			                                  final byte[] signedData,
+			                                  final String format) throws IncompatiblePolicyException {
+
+		if (params == null || !params.containsKey(EXPANDIBLE_POLICY_KEY)) {
+			return ExtraParamsProcessor.expandProperties(params != null ? params : new Properties(), signedData, format);
+		}
+
+		final String key = buildKey(params, signedData, format);
+		if (key == null) {
+			return ExtraParamsProcessor.expandProperties(params, signedData, format);
+		}
+
+		Properties expanded;
+		synchronized (CACHE) {
+			expanded = CACHE.get(key);
+		}
+		if (expanded == null) {
+			// Las configuraciones incompatibles lanzan excepcion y no se cachean
+			expanded = ExtraParamsProcessor.expandProperties(params, signedData, format);
+			synchronized (CACHE) {
+				CACHE.put(key, expanded);
+			}
+		}
+
+		final Properties copy = new Properties();
+		copy.putAll(expanded);
+		return copy;
+	}
+
+	/** Vac&iacute;a la cach&eacute;. */
+	public static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	/** Compone la clave de la cach&eacute; a partir del formato, la pol&iacute;tica,
+	 * el tama&ntilde;o relativo de los datos y todas las propiedades ordenadas.
+	 * @return Clave o {@code null} si la configuraci&oacute;n es demasiado grande para
+	 * cachearla. */
+	private static String buildKey(final Properties params, final byte[] signedData, final String format) {
+
+		final String[] names = params.keySet().toArray(new String[params.size()]);
+		Arrays.sort(names);
+
+		final StringBuilder key = new StringBuilder(256);
+		key.append(format).append('\n')
+			.append(params.getProperty(EXPANDIBLE_POLICY_KEY)).append('\n')
+			.append(signedData == null ? 'N' : signedData.length < IMPLICIT_MODE_MAX_SIZE ? 'S' : 'L').append('\n');
+		for (final String name : names) {
+			final String value = params.getProperty(name);
+			// Indicamos las longitudes para que ningun valor pueda confundirse con otra entrada
+			key.append(name.length()).append(':').append(name)
+				.append(value.length()).append(':').append(value);
+			if (key.length() > MAX_KEY_LENGTH) {
+				return null;
+			}
+		}
+		return key.toString();
+	}
+}
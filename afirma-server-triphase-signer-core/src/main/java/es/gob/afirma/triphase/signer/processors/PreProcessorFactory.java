@@ -5,8 +5,23 @@ import es.gob.afirma.core.signers.AOSignConstants;
 import es.gob.afirma.signers.pades.AOPDFSigner;
 import es.gob.afirma.signers.xades.AOFacturaESigner;
 
+/** Factor&iacute;a de procesadores de firma trif&aacute;sica. Los procesadores no guardan
+ * estado entre operaciones, por lo que se devuelve siempre la misma instancia de cada uno
+ * de ellos y pueden usarse concurrentemente desde distintas peticiones. */
 public class PreProcessorFactory {
 
+	private static final TriPhasePreProcessor PADES_PREPROCESSOR = new PAdESTriPhasePreProcessor();
+	private static final TriPhasePreProcessor CADES_PREPROCESSOR = new CAdESTriPhasePreProcessor();
+	private static final TriPhasePreProcessor XADES_PREPROCESSOR = new XAdESTriPhasePreProcessor();
+	private static final TriPhasePreProcessor CADES_ASIC_S_PREPROCESSOR = new CAdESASiCSTriPhasePreProcessor();
+	private static final TriPhasePreProcessor XADES_ASIC_S_PREPROCESSOR = new XAdESASiCSTriPhasePreProcessor();
+	private static final TriPhasePreProcessor FACTURAE_PREPROCESSOR = new FacturaETriPhasePreProcessor();
+	private static final TriPhasePreProcessor PKCS1_PREPROCESSOR = new Pkcs1TriPhasePreProcessor();
+
+	/** Firmadores usados &uacute;nicamente para identificar el tipo de los datos. */
+	private static final AOPDFSigner PDF_SIGNER = new AOPDFSigner();
+	private static final AOFacturaESigner FACTURAE_SIGNER = new AOFacturaESigner();
+
 	public static TriPhasePreProcessor getPreProcessor(final byte[] data) {
 		final String format = getSignFormat(data);
 		return getPreProcessor(format);
@@ -16,32 +31,32 @@ public class PreProcessorFactory {
 
 		if (AOSignConstants.SIGN_FORMAT_PADES.equalsIgnoreCase(format) ||
 			AOSignConstants.SIGN_FORMAT_PADES_TRI.equalsIgnoreCase(format)) {
-					return new PAdESTriPhasePreProcessor();
+					return PADES_PREPROCESSOR;
 		}
 		if (AOSignConstants.SIGN_FORMAT_CADES.equalsIgnoreCase(format) ||
 				 AOSignConstants.SIGN_FORMAT_CADES_TRI.equalsIgnoreCase(format)) {
-					return new CAdESTriPhasePreProcessor();
+					return CADES_PREPROCESSOR;
 		}
 		if (AOSignConstants.SIGN_FORMAT_XADES.equalsIgnoreCase(format) ||
 				 AOSignConstants.SIGN_FORMAT_XADES_TRI.equalsIgnoreCase(format)) {
-					return new XAdESTriPhasePreProcessor();
+					return XADES_PREPROCESSOR;
 		}
 		if (AOSignConstants.SIGN_FORMAT_CADES_ASIC_S.equalsIgnoreCase(format) ||
 				 AOSignConstants.SIGN_FORMAT_CADES_ASIC_S_TRI.equalsIgnoreCase(format)) {
-					return new CAdESASiCSTriPhasePreProcessor();
+					return CADES_ASIC_S_PREPROCESSOR;
 		}
 		if (AOSignConstants.SIGN_FORMAT_XADES_ASIC_S.equalsIgnoreCase(format) ||
 				 AOSignConstants.SIGN_FORMAT_XADES_ASIC_S_TRI.equalsIgnoreCase(format)) {
-					return new XAdESASiCSTriPhasePreProcessor();
+					return XADES_ASIC_S_PREPROCESSOR;
 		}
 		if (AOSignConstants.SIGN_FORMAT_FACTURAE.equalsIgnoreCase(format) ||
 				 AOSignConstants.SIGN_FORMAT_FACTURAE_TRI.equalsIgnoreCase(format) ||
 				 AOSignConstants.SIGN_FORMAT_FACTURAE_ALT1.equalsIgnoreCase(format)) {
-					return new FacturaETriPhasePreProcessor();
+					return FACTURAE_PREPROCESSOR;
 		}
 		if (AOSignConstants.SIGN_FORMAT_PKCS1.equalsIgnoreCase(format) ||
 				 AOSignConstants.SIGN_FORMAT_PKCS1_TRI.equalsIgnoreCase(format)) {
-					return new Pkcs1TriPhasePreProcessor();
+					return PKCS1_PREPROCESSOR;
 		}
 		throw new IllegalArgumentException("Formato de firma no soportado: " + format); //$NON-NLS-1$
 	}
@@ -73,7 +88,7 @@ public class PreProcessorFactory {
      * @return Devuelve {@code true} si los datos son un PDF. */
     private static boolean isPDF(final byte[] data) {
         try {
-            return new AOPDFSigner().isValidDataFile(data);
+            return PDF_SIGNER.isValidDataFile(data);
         }
         catch(final Exception e) {
             return false;
@@ -86,7 +101,7 @@ public class PreProcessorFactory {
      *         <code>false</code> en caso contrario */
     private static boolean isFacturae(final byte[] file) {
         try {
-            return new AOFacturaESigner().isValidDataFile(file);
+            return FACTURAE_SIGNER.isValidDataFile(file);
         }
         catch(final Exception e) {
             return false;
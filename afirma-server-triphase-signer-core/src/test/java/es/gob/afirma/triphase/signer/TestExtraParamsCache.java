@@ -0,0 +1,56 @@
+package es.gob.afirma.triphase.signer;
+
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.gob.afirma.core.signers.ExtraParamsProcessor;
+import es.gob.afirma.triphase.signer.processors.ExtraParamsCache;
+import es.gob.afirma.triphase.signer.processors.PreProcessorFactory;
+
+/** Pruebas de la reutilizaci&oacute;n de procesadores y par&aacute;metros expandidos. */
+public final class TestExtraParamsCache {
+
+	/** Comprueba que la cach&eacute; devuelve lo mismo que la expansi&oacute;n directa y que
+	 * modificar el resultado no afecta a las siguientes peticiones.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCachedExpansion() throws Exception {
+
+		final Properties params = new Properties();
+		params.setProperty("expPolicy", "FirmaAGE"); //$NON-NLS-1$ //$NON-NLS-2$
+		params.setProperty("signingCertificateV2", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		final byte[] data = new byte[] { 1, 2, 3 };
+
+		final Properties expected = ExtraParamsProcessor.expandProperties(params, data, "CAdES"); //$NON-NLS-1$
+
+		final Properties first = ExtraParamsCache.expandProperties(params, data, "CAdES"); //$NON-NLS-1$
+		Assert.assertEquals(expected, first);
+		first.remove("policyIdentifier"); //$NON-NLS-1$
+
+		final Properties second = ExtraParamsCache.expandProperties(params, data, "CAdES"); //$NON-NLS-1$
+		Assert.assertEquals(expected, second);
+		Assert.assertNotSame(first, second);
+
+		// El modo por defecto de la politica depende del tamano de los datos
+		final byte[] bigData = new byte[2 * 1024 * 1024];
+		Assert.assertEquals(
+			ExtraParamsProcessor.expandProperties(params, bigData, "CAdES"), //$NON-NLS-1$
+			ExtraParamsCache.expandProperties(params, bigData, "CAdES") //$NON-NLS-1$
+		);
+	}
+
+	/** Comprueba que la factor&iacute;a reutiliza los procesadores.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testPreProcessorReuse() throws Exception {
+		Assert.assertSame(
+			PreProcessorFactory.getPreProcessor("CAdES"), //$NON-NLS-1$
+			PreProcessorFactory.getPreProcessor("cadestri") //$NON-NLS-1$
+		);
+	}
+}
@@ -24,14 +24,8 @@ import es.gob.afirma.signers.batch.SingleSignConstants.DigestAlgorithm;
 import es.gob.afirma.signers.batch.xml.SingleSign;
 import es.gob.afirma.signers.pades.common.PdfExtraParams;
 import es.gob.afirma.triphase.server.ConfigManager;
-import es.gob.afirma.triphase.signer.processors.CAdESASiCSTriPhasePreProcessor;
-import es.gob.afirma.triphase.signer.processors.CAdESTriPhasePreProcessor;
-import es.gob.afirma.triphase.signer.processors.FacturaETriPhasePreProcessor;
-import es.gob.afirma.triphase.signer.processors.PAdESTriPhasePreProcessor;
-import es.gob.afirma.triphase.signer.processors.Pkcs1TriPhasePreProcessor;
+import es.gob.afirma.triphase.signer.processors.PreProcessorFactory;
 import es.gob.afirma.triphase.signer.processors.TriPhasePreProcessor;
-import es.gob.afirma.triphase.signer.processors.XAdESASiCSTriPhasePreProcessor;
-import es.gob.afirma.triphase.signer.processors.XAdESTriPhasePreProcessor;
 
 public class TriPhaseHelper {
 
@@ -224,19 +218,19 @@ public class TriPhaseHelper {
 		switch(sSign.getSignFormat()) {
 			case PADES:
 				configurePdfShadowAttackParameters(sSign.getExtraParams());
-				return new PAdESTriPhasePreProcessor();
+				return PreProcessorFactory.getPreProcessor(AOSignConstants.SIGN_FORMAT_PADES);
 			case CADES:
-				return new CAdESTriPhasePreProcessor();
+				return PreProcessorFactory.getPreProcessor(AOSignConstants.SIGN_FORMAT_CADES);
 			case CADES_ASIC:
-				return new CAdESASiCSTriPhasePreProcessor();
+				return PreProcessorFactory.getPreProcessor(AOSignConstants.SIGN_FORMAT_CADES_ASIC_S);
 			case XADES:
-				return new XAdESTriPhasePreProcessor();
+				return PreProcessorFactory.getPreProcessor(AOSignConstants.SIGN_FORMAT_XADES);
 			case XADES_ASIC:
-				return new XAdESASiCSTriPhasePreProcessor();
+				return PreProcessorFactory.getPreProcessor(AOSignConstants.SIGN_FORMAT_XADES_ASIC_S);
 			case FACTURAE:
-				return new FacturaETriPhasePreProcessor();
+				return PreProcessorFactory.getPreProcessor(AOSignConstants.SIGN_FORMAT_FACTURAE);
 			case PKCS1:
-				return new Pkcs1TriPhasePreProcessor();
+				return PreProcessorFactory.getPreProcessor(AOSignConstants.SIGN_FORMAT_PKCS1);
 			default:
 				throw new AOInvalidFormatException("Formato de firma no soportado: " + sSign.getSignFormat()); //$NON-NLS-1$
 		}
@@ -36,6 +36,7 @@ import es.gob.afirma.triphase.server.ConfigManager;
 import es.gob.afirma.triphase.server.cache.DocumentCacheManager;
 import es.gob.afirma.triphase.server.document.BatchDocumentManager;
 import es.gob.afirma.triphase.server.document.DocumentManager;
+import es.gob.afirma.triphase.server.metrics.TriphaseMetrics;
 
 /** Lote de firmas electr&oacute;nicas */
 public abstract class JSONSignBatch {
@@ -353,8 +354,11 @@ public abstract class JSONSignBatch {
 	protected String getResultLog() {
 		// Iniciamos el log de retorno
 		final StringBuilder ret = new StringBuilder("{\"signs\":["); //$NON-NLS-1$
+		TriphaseMetrics.value("batch.size", this.signs.size()); //$NON-NLS-1$
 		for (int i = 0; i < this.signs.size() ; i++) {
-			ret.append(printProcessResult(this.signs.get(i).getProcessResult()));
+			final ProcessResult result = this.signs.get(i).getProcessResult();
+			TriphaseMetrics.count(TriphaseMetrics.name("batch.result", String.valueOf(result.getResult()))); //$NON-NLS-1$
+			ret.append(printProcessResult(result));
 			if (this.signs.size() - 1 != i) {
 				ret.append(","); //$NON-NLS-1$
 			}
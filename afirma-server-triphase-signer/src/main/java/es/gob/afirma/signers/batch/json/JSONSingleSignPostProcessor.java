@@ -21,7 +21,6 @@ import java.util.logging.Logger;
 import es.gob.afirma.core.AOException;
 import es.gob.afirma.core.signers.AOSignConstants;
 import es.gob.afirma.core.signers.CounterSignTarget;
-import es.gob.afirma.core.signers.ExtraParamsProcessor;
 import es.gob.afirma.core.signers.ExtraParamsProcessor.IncompatiblePolicyException;
 import es.gob.afirma.core.signers.TriphaseData;
 import es.gob.afirma.core.signers.TriphaseData.TriSign;
@@ -33,6 +32,8 @@ import es.gob.afirma.signers.batch.TriPhaseHelper;
 import es.gob.afirma.triphase.server.ConfigManager;
 import es.gob.afirma.triphase.server.cache.DocumentCacheManager;
 import es.gob.afirma.triphase.server.document.DocumentManager;
+import es.gob.afirma.triphase.server.metrics.TriphaseMetrics;
+import es.gob.afirma.triphase.signer.processors.ExtraParamsCache;
 import es.gob.afirma.triphase.signer.processors.TriPhasePreProcessor;
 
 final class JSONSingleSignPostProcessor {
@@ -105,6 +106,7 @@ final class JSONSingleSignPostProcessor {
 			final TriSign preSign = td.getTriSigns().get(0);
 			if (preSign.getProperty(TRIPHASE_PROP_CACHE_ID) != null) {
 				final String cacheId = preSign.getProperty(TRIPHASE_PROP_CACHE_ID);
+				final long cacheStart = TriphaseMetrics.start();
 				try {
 					docBytes = docCacheManager.getDocumentFromCache(cacheId);
 				}
@@ -112,11 +114,15 @@ final class JSONSingleSignPostProcessor {
 					LOGGER.log(Level.WARNING, "No se pudo obtener un documento de la cache", e); //$NON-NLS-1$
 					docBytes = null;
 				}
+				TriphaseMetrics.stop("batch.cache.get", cacheStart); //$NON-NLS-1$
+				TriphaseMetrics.count(docBytes != null ? "batch.cache.hit" : "batch.cache.miss"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 		}
 
 		if (docBytes == null) {
+			final long getStart = TriphaseMetrics.start();
 			docBytes = docManager.getDocument(sSign.getDataRef(), certChain, sSign.getExtraParams());
+			TriphaseMetrics.stop("batch.document.get", getStart); //$NON-NLS-1$
 		}
 
 		//TODO: Dado que las cofirmas y las contrafirmas no se han realizado sobre los datos aqui
@@ -124,16 +130,19 @@ final class JSONSingleSignPostProcessor {
 		// PKCS#1. En las cofirmas y contrafirmas solo se comprobara la integridad. Habria que buscar
 		// un modo de mejorar esto
 		final boolean needVerifyPkcs1 = sSign.getSubOperation() == SignSubOperation.SIGN;
+		final long hmacStart = TriphaseMetrics.start();
 		try {
 			TriPhaseHelper.checkSignaturesIntegrity(td, docBytes, certChain[0], digestAlgorithm, needVerifyPkcs1);
+			TriphaseMetrics.stop("batch.hmac.verify", hmacStart); //$NON-NLS-1$
 		}
 		catch (final Exception e) {
+			TriphaseMetrics.count("batch.hmac.verify.invalid"); //$NON-NLS-1$
 			throw new AOException("Error en la verificacion de los PKCS#1 de las firmas recibidas", e); //$NON-NLS-1$
 		}
 
 		Properties extraParams;
 		try {
-			extraParams = ExtraParamsProcessor.expandProperties(sSign.getExtraParams(), docBytes, sSign.getSignFormat().name());
+			extraParams = ExtraParamsCache.expandProperties(sSign.getExtraParams(), docBytes, sSign.getSignFormat().name());
 		}
 		catch (final IncompatiblePolicyException e) {
 			LOGGER.log(
@@ -162,6 +171,9 @@ final class JSONSingleSignPostProcessor {
 
 		final String signAlgorithm = AOSignConstants.composeSignatureAlgorithmName(digestAlgorithm.getName(), certChain[0].getPublicKey().getAlgorithm());
 
+		final String postsignMetric = TriphaseMetrics.name("batch.postsign", sSign.getSignFormat().name()); //$NON-NLS-1$
+		final long postsignStart = TriphaseMetrics.start();
+
 		final byte[] signedDoc;
 		switch(sSign.getSubOperation()) {
 			case SIGN:
@@ -206,14 +218,19 @@ final class JSONSingleSignPostProcessor {
 				);
 		}
 
+		TriphaseMetrics.stop(postsignMetric, postsignStart);
+
 		// Se almacenara el documento con la configuracion indicada en el DocumentManager
+		final long storeStart = TriphaseMetrics.start();
 		try {
 			if (ConfigManager.isConcurrentModeEnable()) {
 				TempStoreFactory.getTempStore().store(signedDoc, sSign, batchId);
+				TriphaseMetrics.stop("batch.tempstore.store", storeStart); //$NON-NLS-1$
 			} else {
 				final Properties singleSignProps = sSign.getExtraParams();
 				singleSignProps.put("format", sSign.getSignFormat().toString()); //$NON-NLS-1$
 				docManager.storeDocument(sSign.getDataRef(), certChain, signedDoc, singleSignProps);
+				TriphaseMetrics.stop("batch.document.store", storeStart); //$NON-NLS-1$
 			}
 		} catch (final Exception e) {
 			throw new AOSaveDataException("No se pudo guardar la firma", e); //$NON-NLS-1$
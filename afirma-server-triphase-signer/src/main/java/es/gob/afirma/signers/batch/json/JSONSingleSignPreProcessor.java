@@ -20,7 +20,6 @@ import es.gob.afirma.core.AOException;
 import es.gob.afirma.core.misc.LoggerUtil;
 import es.gob.afirma.core.signers.AOSignConstants;
 import es.gob.afirma.core.signers.CounterSignTarget;
-import es.gob.afirma.core.signers.ExtraParamsProcessor;
 import es.gob.afirma.core.signers.ExtraParamsProcessor.IncompatiblePolicyException;
 import es.gob.afirma.core.signers.TriphaseData;
 import es.gob.afirma.signers.batch.LegacyFunctions;
@@ -30,6 +29,8 @@ import es.gob.afirma.signers.batch.TriPhaseHelper;
 import es.gob.afirma.triphase.server.ConfigManager;
 import es.gob.afirma.triphase.server.cache.DocumentCacheManager;
 import es.gob.afirma.triphase.server.document.DocumentManager;
+import es.gob.afirma.triphase.server.metrics.TriphaseMetrics;
+import es.gob.afirma.triphase.signer.processors.ExtraParamsCache;
 import es.gob.afirma.triphase.signer.processors.TriPhasePreProcessor;
 
 final class JSONSingleSignPreProcessor {
@@ -71,8 +72,11 @@ final class JSONSingleSignPreProcessor {
 		// Instanciamos el preprocesador adecuado
 		final TriPhasePreProcessor prep = TriPhaseHelper.getTriPhasePreProcessor(sSign);
 		byte[] docBytes;
+		final long getStart = TriphaseMetrics.start();
 		try {
 			docBytes = docManager.getDocument(sSign.getDataRef(), certChain, sSign.getExtraParams());
+			TriphaseMetrics.stop("batch.document.get", getStart); //$NON-NLS-1$
+			TriphaseMetrics.value("batch.document.size", docBytes.length); //$NON-NLS-1$
 		}
 		catch (final IOException e) {
 			LOGGER.log(Level.WARNING,
@@ -87,7 +91,7 @@ final class JSONSingleSignPreProcessor {
 
 		Properties extraParams;
 		try {
-			extraParams = ExtraParamsProcessor.expandProperties(sSign.getExtraParams(), docBytes, sSign.getSignFormat().name());
+			extraParams = ExtraParamsCache.expandProperties(sSign.getExtraParams(), docBytes, sSign.getSignFormat().name());
 		}
 		catch (final IncompatiblePolicyException e) {
 			LOGGER.log(
@@ -119,6 +123,9 @@ final class JSONSingleSignPreProcessor {
 
 		final String signAlgorithm = AOSignConstants.composeSignatureAlgorithmName(digestAlgorithm.getName(), certChain[0].getPublicKey().getAlgorithm());
 
+        final String presignMetric = TriphaseMetrics.name("batch.presign", sSign.getSignFormat().name()); //$NON-NLS-1$
+        final long presignStart = TriphaseMetrics.start();
+
         TriphaseData td;
 
 		switch(sSign.getSubOperation()) {
@@ -164,16 +171,22 @@ final class JSONSingleSignPreProcessor {
 				);
 		}
 
+		TriphaseMetrics.stop(presignMetric, presignStart);
+
 		// Agregamos los codigos de verificacion para posteriormente poder comprobar
 		// que el PKCS#1 recibido se genero con el certificado de firma
+		final long hmacStart = TriphaseMetrics.start();
 		try {
 			TriPhaseHelper.addVerificationCodes(td, certChain[0]);
 		} catch (final Exception e) {
 			throw new AOException("No se pudo agregar le codigo de verificacion de firmas", e); //$NON-NLS-1$
 		}
+		TriphaseMetrics.stop("batch.hmac.generate", hmacStart); //$NON-NLS-1$
 
 		if (Boolean.parseBoolean(ConfigManager.isCacheEnabled())) {
+			final long cacheStart = TriphaseMetrics.start();
 			saveToCache(docCacheManager, td, docBytes);
+			TriphaseMetrics.stop("batch.cache.put", cacheStart); //$NON-NLS-1$
 		}
 
 		return td;
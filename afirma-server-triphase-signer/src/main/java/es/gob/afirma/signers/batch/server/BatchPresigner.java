@@ -29,6 +29,7 @@ import es.gob.afirma.signers.batch.xml.SignBatchConcurrent;
 import es.gob.afirma.signers.batch.xml.SignBatchSerial;
 import es.gob.afirma.signers.xml.XmlDSigProviderHelper;
 import es.gob.afirma.triphase.server.ConfigManager;
+import es.gob.afirma.triphase.server.metrics.TriphaseMetrics;
 
 /** Realiza la primera fase de un proceso de firma por lote.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
@@ -120,10 +121,13 @@ public final class BatchPresigner extends HttpServlet {
 		}
 
 		final String pre;
+		final long batchStart = TriphaseMetrics.start();
 		try {
 			pre = batch.doPreBatch(certs);
+			TriphaseMetrics.stop("batch.presign", batchStart); //$NON-NLS-1$
 		}
 		catch(final Exception e) {
+			TriphaseMetrics.count("batch.presign.error"); //$NON-NLS-1$
 			LOGGER.log(Level.SEVERE, "Error en el preproceso del lote", e); //$NON-NLS-1$
 			response.sendError(
 				HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
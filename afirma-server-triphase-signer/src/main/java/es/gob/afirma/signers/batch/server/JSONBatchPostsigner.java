@@ -29,6 +29,7 @@ import es.gob.afirma.signers.batch.json.JSONSignBatch;
 import es.gob.afirma.signers.batch.json.JSONSignBatchConcurrent;
 import es.gob.afirma.signers.batch.json.JSONSignBatchSerial;
 import es.gob.afirma.triphase.server.ConfigManager;
+import es.gob.afirma.triphase.server.metrics.TriphaseMetrics;
 
 /**
  * Realiza la tercera (y &uacute;ltima) fase de un proceso de firma por lote.
@@ -137,10 +138,13 @@ public final class JSONBatchPostsigner extends HttpServlet {
 		}
 
 		final String ret;
+		final long batchStart = TriphaseMetrics.start();
 		try {
 			ret = batch.doPostBatch(certs, td);
+			TriphaseMetrics.stop("batch.postsign", batchStart); //$NON-NLS-1$
 		}
 		catch (final Exception e) {
+			TriphaseMetrics.count("batch.postsign.error"); //$NON-NLS-1$
 			LOGGER.log(Level.SEVERE, "Error en el postproceso del lote", e); //$NON-NLS-1$
 			response.sendError(
 				HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
@@ -29,6 +29,7 @@ import es.gob.afirma.signers.batch.json.JSONSignBatchConcurrent;
 import es.gob.afirma.signers.batch.json.JSONSignBatchSerial;
 import es.gob.afirma.signers.xml.XmlDSigProviderHelper;
 import es.gob.afirma.triphase.server.ConfigManager;
+import es.gob.afirma.triphase.server.metrics.TriphaseMetrics;
 
 /** Realiza la primera fase de un proceso de firma por lote. */
 public final class JSONBatchPresigner extends HttpServlet {
@@ -119,10 +120,13 @@ public final class JSONBatchPresigner extends HttpServlet {
 		}
 
 		final JSONObject jsonPreBatch;
+		final long batchStart = TriphaseMetrics.start();
 		try {
 			jsonPreBatch = batch.doPreBatch(certs);
+			TriphaseMetrics.stop("batch.presign", batchStart); //$NON-NLS-1$
 		}
 		catch(final Exception e) {
+			TriphaseMetrics.count("batch.presign.error"); //$NON-NLS-1$
 			LOGGER.log(Level.SEVERE, "Error en el preproceso del lote", e); //$NON-NLS-1$
 			response.sendError(
 				HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
@@ -32,6 +32,7 @@ import es.gob.afirma.signers.batch.ProcessResult;
 import es.gob.afirma.signers.batch.SingleSignConstants;
 import es.gob.afirma.signers.batch.TempStore;
 import es.gob.afirma.signers.batch.TempStoreFactory;
+import es.gob.afirma.triphase.server.metrics.TriphaseMetrics;
 
 /** Lote de firmas electr&oacute;nicas.
  * Un ejemplo de representaci&oacute;n XML de un lote podr&iacute;a ser:
@@ -203,7 +204,9 @@ public abstract class SignBatch {
 	protected String getResultLog() {
 		// Iniciamos el log de retorno
 		final StringBuilder ret = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<signs>\n"); //$NON-NLS-1$
+		TriphaseMetrics.value("batch.size", this.signs.size()); //$NON-NLS-1$
 		for (final SingleSign ss : this.signs) {
+			TriphaseMetrics.count(TriphaseMetrics.name("batch.result", String.valueOf(ss.getProcessResult().getResult()))); //$NON-NLS-1$
 			ret.append(" "); //$NON-NLS-1$
 			ret.append(printProcessResult(ss.getProcessResult()));
 			ret.append("\n"); //$NON-NLS-1$
@@ -52,6 +52,18 @@ public class ConfigManager {
 	 */
 	private static final String CONFIG_PARAM_BATCH_MAX_REFERENCE_SIZE = "batch.maxReferenceSize"; //$NON-NLS-1$
 
+	/** Propiedad que indica si se registran m&eacute;tricas del servicio. */
+	private static final String CONFIG_PARAM_METRICS_ENABLED = "metrics.enabled"; //$NON-NLS-1$
+
+	/** Propiedad con la clase de registro de m&eacute;tricas. */
+	private static final String CONFIG_PARAM_METRICS_RECORDER_CLASS = "metrics.recorder"; //$NON-NLS-1$
+
+	/** Propiedad que indica si se publican las m&eacute;tricas por JMX. */
+	private static final String CONFIG_PARAM_METRICS_JMX = "metrics.jmx"; //$NON-NLS-1$
+
+	/** Propiedad que indica si se permite consultar las m&eacute;tricas a trav&eacute;s del servicio web. */
+	private static final String CONFIG_PARAM_METRICS_ENDPOINT_ENABLED = "metrics.endpoint.enabled"; //$NON-NLS-1$
+
 	private static final long DEFAULT_CONCURRENT_TIMEOUT = 30;
 
 	private static final int DEFAULT_CONCURRENT_MAXSIGNS = 10;
@@ -292,4 +304,20 @@ public class ConfigManager {
 	public static boolean isProviderApacheConfigured() {
 		return !Boolean.FALSE.toString().equalsIgnoreCase(config.getProperty(CONFIG_PARAM_PROVIDER_APACHE));
 	}
+
+	public static boolean isMetricsEnabled() {
+		return !Boolean.FALSE.toString().equalsIgnoreCase(config.getProperty(CONFIG_PARAM_METRICS_ENABLED));
+	}
+
+	public static String getMetricsRecorderClassName() {
+		return config.getProperty(CONFIG_PARAM_METRICS_RECORDER_CLASS);
+	}
+
+	public static boolean isMetricsJmxEnabled() {
+		return !Boolean.FALSE.toString().equalsIgnoreCase(config.getProperty(CONFIG_PARAM_METRICS_JMX));
+	}
+
+	public static boolean isMetricsEndpointEnabled() {
+		return Boolean.parseBoolean(config.getProperty(CONFIG_PARAM_METRICS_ENDPOINT_ENABLED));
+	}
 }
@@ -47,13 +47,14 @@ import es.gob.afirma.core.misc.Base64;
 import es.gob.afirma.core.signers.AOSignConstants;
 import es.gob.afirma.core.signers.AOTriphaseException;
 import es.gob.afirma.core.signers.CounterSignTarget;
-import es.gob.afirma.core.signers.ExtraParamsProcessor;
 import es.gob.afirma.core.signers.TriphaseData;
 import es.gob.afirma.core.signers.TriphaseData.TriSign;
 import es.gob.afirma.signers.pades.common.PdfExtraParams;
 import es.gob.afirma.signers.xml.XmlDSigProviderHelper;
 import es.gob.afirma.triphase.server.cache.DocumentCacheManager;
 import es.gob.afirma.triphase.server.document.DocumentManager;
+import es.gob.afirma.triphase.server.metrics.TriphaseMetrics;
+import es.gob.afirma.triphase.signer.processors.ExtraParamsCache;
 import es.gob.afirma.triphase.signer.processors.PAdESTriPhasePreProcessor;
 import es.gob.afirma.triphase.signer.processors.PreProcessorFactory;
 import es.gob.afirma.triphase.signer.processors.TriPhasePreProcessor;
@@ -212,6 +213,8 @@ public final class SignatureService extends HttpServlet {
 
 		LOGGER.info("== INICIO FIRMA TRIFASICA =="); //$NON-NLS-1$
 
+		final long parseStart = TriphaseMetrics.start();
+
 		final Map<String, String> parameters = new HashMap<>();
 		final String[] params;
 		try (InputStream is = request.getInputStream()) {
@@ -301,7 +304,7 @@ public final class SignatureService extends HttpServlet {
 			extraParams.setProperty(EXTRA_PARAM_HEADLESS, Boolean.TRUE.toString());
 
 			try {
-				extraParams = ExtraParamsProcessor.expandProperties(
+				extraParams = ExtraParamsCache.expandProperties(
 					extraParams,
 					null,
 					format
@@ -358,10 +361,13 @@ public final class SignatureService extends HttpServlet {
 				}
 			}
 
+			TriphaseMetrics.stop("request.parse", parseStart); //$NON-NLS-1$
+
 			byte[] docBytes = null;
 
 			if (cacheEnabled && sessionData != null) {
 				LOGGER.info("Recuperamos el documento de cache"); //$NON-NLS-1$
+				final long cacheStart = TriphaseMetrics.start();
 				try {
 					final TriphaseData tr = TriphaseData.parser(sessionData);
 					final TriSign preSign = tr.getTriSigns().get(0);
@@ -372,17 +378,23 @@ public final class SignatureService extends HttpServlet {
 					LOGGER.log(Level.WARNING, "No se pudo obtener un documento de la cache", e); //$NON-NLS-1$
 					docBytes = null;
 				}
+				TriphaseMetrics.stop("cache.get", cacheStart); //$NON-NLS-1$
+				TriphaseMetrics.count(docBytes != null ? "cache.hit" : "cache.miss"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 
 			final String docId = parameters.get(PARAM_NAME_DOCID);
 			if (docId != null && docBytes == null) {
+				final long getStart = TriphaseMetrics.start();
 				try {
 					LOGGER.info("Recuperamos el documento mediante el DocumentManager"); //$NON-NLS-1$
 					docBytes = docManager.getDocument(docId, signerCertChain, extraParams);
+					TriphaseMetrics.stop("document.get", getStart); //$NON-NLS-1$
+					TriphaseMetrics.value("document.size", docBytes.length); //$NON-NLS-1$
 					LOGGER.info(
 							"Recuperado documento de " + docBytes.length + " octetos"); //$NON-NLS-1$ //$NON-NLS-2$
 				}
 				catch (final Throwable e) {
+					TriphaseMetrics.count("document.get.error"); //$NON-NLS-1$
 					LOGGER.log(Level.WARNING, "Error al recuperar el documento", e); //$NON-NLS-1$
 					out.print(ErrorManager.getErrorMessage(14) + ": " + new AOTriphaseException(e.toString(), e)); //$NON-NLS-1$
 					out.flush();
@@ -452,6 +464,9 @@ public final class SignatureService extends HttpServlet {
 				// Comprobamos si se ha pedido validar las firmas antes de agregarles una nueva
 		        final boolean checkSignatures = Boolean.parseBoolean(extraParams.getProperty("checkSignatures")); //$NON-NLS-1$
 
+				final String presignMetric = TriphaseMetrics.name("presign", format); //$NON-NLS-1$
+				final long presignStart = TriphaseMetrics.start();
+
 				TriphaseData preRes;
 				try {
 					if (PARAM_VALUE_SUB_OPERATION_SIGN.equalsIgnoreCase(subOperation)) {
@@ -494,15 +509,18 @@ public final class SignatureService extends HttpServlet {
 						throw new AOException("No se reconoce el codigo de sub-operacion: " + subOperation); //$NON-NLS-1$
 					}
 
+					TriphaseMetrics.stop(presignMetric, presignStart);
 					LOGGER.info("Se ha calculado el resultado de la prefirma y se devuelve"); //$NON-NLS-1$
 				}
 				catch (final RuntimeConfigNeededException e) {
+					TriphaseMetrics.count(presignMetric + ".configneeded"); //$NON-NLS-1$
 					LOGGER.log(Level.SEVERE, "Se requiere intervencion del usuario para la prefirma de los datos", e); //$NON-NLS-1$
 					out.print(ErrorManager.getErrorMessage(ErrorManager.CONFIGURATION_NEEDED, e.getRequestorText()) + ": " + e); //$NON-NLS-1$
 					out.flush();
 					return;
 				}
 				catch (final Exception e) {
+					TriphaseMetrics.count(presignMetric + ".error"); //$NON-NLS-1$
 					LOGGER.log(Level.SEVERE, "Error en la prefirma", e); //$NON-NLS-1$
 					out.print(ErrorManager.getErrorMessage(ErrorManager.PRESIGN_ERROR) + ": " + e); //$NON-NLS-1$
 					out.flush();
@@ -512,7 +530,9 @@ public final class SignatureService extends HttpServlet {
 				// Si la propiedad para habilitar el sistema de cache esta habilitada
 				// se procedera a la escritura del fichero en cache
 				if (cacheEnabled) {
+					final long cacheStart = TriphaseMetrics.start();
 					saveToCache(preRes, docBytes);
+					TriphaseMetrics.stop("cache.put", cacheStart); //$NON-NLS-1$
 				}
 
 				// Si se ha definido una clave HMAC para la comprobacion de integridad de
@@ -520,7 +540,9 @@ public final class SignatureService extends HttpServlet {
 				// asocie las prefirmas con el certificado de firma
 				if (ConfigManager.getHMacKey() != null) {
 					try {
+						final long hmacStart = TriphaseMetrics.start();
 						addVerificationCodes(preRes, signerCertChain[0]);
+						TriphaseMetrics.stop("hmac.generate", hmacStart); //$NON-NLS-1$
 					}
 					catch (final Exception e) {
 						LOGGER.log(Level.SEVERE, "Error al generar los codigos de verificacion de las firmas: " + e, e); //$NON-NLS-1$
@@ -562,10 +584,13 @@ public final class SignatureService extends HttpServlet {
 				// ningun punto de la operacion y que los PKCS#1 proporcionados
 				// esten realizados con ese certificado
 				if (ConfigManager.getHMacKey() != null) {
+					final long hmacStart = TriphaseMetrics.start();
 					try {
 						checkSignaturesIntegrity(triphaseData, prep, signerCertChain[0]);
+						TriphaseMetrics.stop("hmac.verify", hmacStart); //$NON-NLS-1$
 					}
 					catch (final InvalidVerificationCodeException e) {
+						TriphaseMetrics.count("hmac.verify.invalid"); //$NON-NLS-1$
 						LOGGER.log(Level.SEVERE, "Las prefirmas y/o el certificado obtenido no se corresponden con los generados en la prefirma", e); //$NON-NLS-1$
 						out.print(ErrorManager.getErrorMessage(ErrorManager.CHECKING_CSV_ERROR) + ": " + e); //$NON-NLS-1$
 						out.flush();
@@ -579,6 +604,9 @@ public final class SignatureService extends HttpServlet {
 					}
 				}
 
+				final String postsignMetric = TriphaseMetrics.name("postsign", format); //$NON-NLS-1$
+				final long postsignStart = TriphaseMetrics.start();
+
 				final byte[] signedDoc;
 				try {
 					if (PARAM_VALUE_SUB_OPERATION_SIGN.equals(subOperation)) {
@@ -621,14 +649,17 @@ public final class SignatureService extends HttpServlet {
 					else {
 						throw new AOException("No se reconoce el codigo de sub-operacion: " + subOperation); //$NON-NLS-1$
 					}
+					TriphaseMetrics.stop(postsignMetric, postsignStart);
 				}
 				catch (final RuntimeConfigNeededException e) {
+					TriphaseMetrics.count(postsignMetric + ".configneeded"); //$NON-NLS-1$
 					LOGGER.log(Level.SEVERE, "Se requiere intervencion del usuario para la postfirma de los datos", e); //$NON-NLS-1$
 					out.print(ErrorManager.getErrorMessage(ErrorManager.CONFIGURATION_NEEDED) + ":" + e.getRequestorText() + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
 					out.flush();
 					return;
 				}
 				catch (final Exception e) {
+					TriphaseMetrics.count(postsignMetric + ".error"); //$NON-NLS-1$
 					LOGGER.log(Level.SEVERE, "Error en la postfirma: " + e, e); //$NON-NLS-1$
 					out.print(ErrorManager.getErrorMessage(ErrorManager.POSTSIGN_ERROR) + ": " + e); //$NON-NLS-1$
 					out.flush();
@@ -645,10 +676,13 @@ public final class SignatureService extends HttpServlet {
 				// Devolvemos al servidor documental el documento firmado
 				LOGGER.info("Almacenamos la firma mediante el DocumentManager"); //$NON-NLS-1$
 				final String newDocId;
+				final long storeStart = TriphaseMetrics.start();
 				try {
 					newDocId = docManager.storeDocument(docId, signerCertChain, signedDoc, extraParams);
+					TriphaseMetrics.stop("document.store", storeStart); //$NON-NLS-1$
 				}
 				catch(final Throwable e) {
+					TriphaseMetrics.count("document.store.error"); //$NON-NLS-1$
 					LOGGER.severe("Error al almacenar el documento: " + e); //$NON-NLS-1$
 					out.print(ErrorManager.getErrorMessage(10) + ": " + e); //$NON-NLS-1$
 					out.flush();
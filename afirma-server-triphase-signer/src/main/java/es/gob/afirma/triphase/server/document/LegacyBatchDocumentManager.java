@@ -71,7 +71,7 @@ public class LegacyBatchDocumentManager implements BatchDocumentManager {
 		}
 		else {
 			checkDataSource(dataRef);
-			data = Base64.decode(dataRef.replace("-", "+").replace("_", "/")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			data = Base64.decode(dataRef);
 		}
 
 		if (ConfigManager.getConfig().containsKey(CONFIG_PARAM_DOCMANAGER_MAXDOCSIZE)) {
@@ -27,10 +27,8 @@ public final class SelfishDocumentManager implements DocumentManager {
 
 	@Override
 	public byte[] getDocument(final String dataRef, final X509Certificate[] certChain, final Properties config) throws IOException {
-		return Base64.decode(
-			// Por si acaso deshacemos un posible URL Safe
-			dataRef.replace("-", "+").replace("_", "/") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-		);
+		// El descodificador admite tanto Base64 normal como URL Safe
+		return Base64.decode(dataRef);
 	}
 
 	@Override
@@ -0,0 +1,235 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.triphase.server.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Registro de m&eacute;tricas en memoria. Cada temporizador o distribuci&oacute;n de valores
+ * se acumula en un histograma de cubetas logar&iacute;tmicas (cuatro por cada potencia de dos),
+ * de forma que registrar un valor s&oacute;lo requiere unas pocas operaciones at&oacute;micas
+ * y los percentiles se obtienen con un error relativo m&aacute;ximo del 25%. */
+public final class HistogramMetricsRecorder implements MetricsRecorder, HistogramMetricsRecorderMBean {
+
+	private static final double NANOS_PER_MILLI = 1000000d;
+
+	private final ConcurrentMap<String, Histogram> timers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Histogram> values = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+	@Override
+	public void recordTime(final String name, final long nanos) {
+		getHistogram(this.timers, name).record(nanos);
+	}
+
+	@Override
+	public void recordValue(final String name, final long value) {
+		getHistogram(this.values, name).record(value);
+	}
+
+	@Override
+	public void increment(final String name) {
+		AtomicLong counter = this.counters.get(name);
+		if (counter == null) {
+			final AtomicLong newCounter = new AtomicLong();
+			counter = this.counters.putIfAbsent(name, newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+	/** Obtiene el histograma de un temporizador.
+	 * @param name Nombre del temporizador.
+	 * @return Histograma con las duraciones en nanosegundos o {@code null} si no se ha registrado. */
+	public Histogram getTimer(final String name) {
+		return this.timers.get(name);
+	}
+
+	/** Obtiene el histograma de una distribuci&oacute;n de valores.
+	 * @param name Nombre de la distribuci&oacute;n.
+	 * @return Histograma de valores o {@code null} si no se ha registrado. */
+	public Histogram getValues(final String name) {
+		return this.values.get(name);
+	}
+
+	/** Obtiene el valor de un contador.
+	 * @param name Nombre del contador.
+	 * @return Valor del contador o 0 si no se ha incrementado nunca. */
+	public long getCount(final String name) {
+		final AtomicLong counter = this.counters.get(name);
+		return counter != null ? counter.get() : 0;
+	}
+
+	@Override
+	public String[] getMetricNames() {
+		final TreeSet<String> names = new TreeSet<>();
+		names.addAll(this.timers.keySet());
+		names.addAll(this.values.keySet());
+		names.addAll(this.counters.keySet());
+		return names.toArray(new String[names.size()]);
+	}
+
+	@Override
+	public String getReport() {
+		final Map<String, String> lines = new TreeMap<>();
+		for (final Map.Entry<String, Histogram> timer : this.timers.entrySet()) {
+			final Histogram h = timer.getValue();
+			lines.put(timer.getKey(), String.format(
+				Locale.US,
+				"count=%d mean_ms=%.3f p50_ms=%.3f p90_ms=%.3f p99_ms=%.3f max_ms=%.3f", //$NON-NLS-1$
+				Long.valueOf(h.getCount()),
+				Double.valueOf(h.getMean() / NANOS_PER_MILLI),
+				Double.valueOf(h.getPercentile(0.5) / NANOS_PER_MILLI),
+				Double.valueOf(h.getPercentile(0.9) / NANOS_PER_MILLI),
+				Double.valueOf(h.getPercentile(0.99) / NANOS_PER_MILLI),
+				Double.valueOf(h.getMax() / NANOS_PER_MILLI)
+			));
+		}
+		for (final Map.Entry<String, Histogram> value : this.values.entrySet()) {
+			final Histogram h = value.getValue();
+			lines.put(value.getKey(), String.format(
+				Locale.US,
+				"count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d", //$NON-NLS-1$
+				Long.valueOf(h.getCount()),
+				Double.valueOf(h.getMean()),
+				Long.valueOf(h.getPercentile(0.5)),
+				Long.valueOf(h.getPercentile(0.9)),
+				Long.valueOf(h.getPercentile(0.99)),
+				Long.valueOf(h.getMax())
+			));
+		}
+		for (final Map.Entry<String, AtomicLong> counter : this.counters.entrySet()) {
+			lines.put(counter.getKey(), "count=" + counter.getValue().get()); //$NON-NLS-1$
+		}
+
+		final StringBuilder report = new StringBuilder();
+		for (final Map.Entry<String, String> line : lines.entrySet()) {
+			report.append(line.getKey()).append(' ').append(line.getValue()).append('\n');
+		}
+		return report.toString();
+	}
+
+	@Override
+	public void reset() {
+		this.timers.clear();
+		this.values.clear();
+		this.counters.clear();
+	}
+
+	private static Histogram getHistogram(final ConcurrentMap<String, Histogram> histograms, final String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			final Histogram newHistogram = new Histogram();
+			histogram = histograms.putIfAbsent(name, newHistogram);
+			if (histogram == null) {
+				histogram = newHistogram;
+			}
+		}
+		return histogram;
+	}
+
+	/** Histograma de valores no negativos con cubetas logar&iacute;tmicas. */
+	public static final class Histogram {
+
+		/** Cubetas por cada potencia de dos. */
+		private static final int SUB_BUCKETS = 4;
+
+		private static final int SUB_BUCKET_BITS = 2;
+
+		private static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - SUB_BUCKET_BITS);
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		Histogram() {
+			// Solo se crean desde el registro
+		}
+
+		void record(final long value) {
+			final long v = Math.max(0, value);
+			this.buckets.incrementAndGet(bucketIndex(v));
+			this.count.incrementAndGet();
+			this.sum.addAndGet(v);
+			long current;
+			while (v > (current = this.max.get())) {
+				if (this.max.compareAndSet(current, v)) {
+					break;
+				}
+			}
+		}
+
+		/** Obtiene el n&uacute;mero de valores registrados.
+		 * @return N&uacute;mero de valores. */
+		public long getCount() {
+			return this.count.get();
+		}
+
+		/** Obtiene el mayor valor registrado.
+		 * @return Valor m&aacute;ximo. */
+		public long getMax() {
+			return this.max.get();
+		}
+
+		/** Obtiene la media de los valores registrados.
+		 * @return Media o 0 si no hay valores. */
+		public double getMean() {
+			final long n = this.count.get();
+			return n == 0 ? 0 : (double) this.sum.get() / n;
+		}
+
+		/** Obtiene una estimaci&oacute;n por exceso de un percentil.
+		 * @param quantile Cuantil entre 0 y 1 (por ejemplo, 0.99 para el percentil 99).
+		 * @return Cota superior del percentil, nunca mayor que el valor m&aacute;ximo registrado. */
+		public long getPercentile(final double quantile) {
+			final long n = this.count.get();
+			if (n == 0) {
+				return 0;
+			}
+			final long rank = Math.max(1, (long) Math.ceil(quantile * n));
+			long accumulated = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				accumulated += this.buckets.get(i);
+				if (accumulated >= rank) {
+					return Math.min(bucketUpperBound(i), this.max.get());
+				}
+			}
+			return this.max.get();
+		}
+
+		static int bucketIndex(final long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+			final int subBucket = (int) (value >>> exponent - SUB_BUCKET_BITS) & SUB_BUCKETS - 1;
+			return SUB_BUCKETS * (exponent - 1) + subBucket;
+		}
+
+		static long bucketUpperBound(final int index) {
+			if (index < SUB_BUCKETS) {
+				return index;
+			}
+			final int exponent = index / SUB_BUCKETS + 1;
+			final long subBucket = index % SUB_BUCKETS;
+			final long upper = (SUB_BUCKETS + subBucket + 1) << exponent - SUB_BUCKET_BITS;
+			return upper > 0 ? upper - 1 : Long.MAX_VALUE;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.triphase.server.metrics;
+
+/** Interfaz JMX del registro de m&eacute;tricas en memoria. */
+public interface HistogramMetricsRecorderMBean {
+
+	/** Obtiene los nombres de las m&eacute;tricas registradas.
+	 * @return Nombres de las m&eacute;tricas ordenados alfab&eacute;ticamente. */
+	String[] getMetricNames();
+
+	/** Obtiene un informe en texto plano con una l&iacute;nea por m&eacute;trica.
+	 * @return Informe de m&eacute;tricas. */
+	String getReport();
+
+	/** Descarta todas las m&eacute;tricas registradas. */
+	void reset();
+}
@@ -0,0 +1,33 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.triphase.server.metrics;
+
+/** Registro de m&eacute;tricas del servicio de firma trif&aacute;sica. Las implementaciones
+ * se invocan desde los hilos que atienden las peticiones, por lo que deben ser seguras
+ * ante accesos concurrentes y no deben bloquear.
+ * Para usar una implementaci&oacute;n propia, debe indicarse su clase en la propiedad
+ * <code>metrics.recorder</code> del fichero de configuraci&oacute;n. Debe tener un
+ * constructor vac&iacute;o o que reciba un <code>Properties</code>. */
+public interface MetricsRecorder {
+
+	/** Registra la duraci&oacute;n de una operaci&oacute;n.
+	 * @param name Nombre de la m&eacute;trica.
+	 * @param nanos Duraci&oacute;n en nanosegundos. */
+	void recordTime(String name, long nanos);
+
+	/** Registra un valor de una distribuci&oacute;n (por ejemplo, el tama&ntilde;o de un lote).
+	 * @param name Nombre de la m&eacute;trica.
+	 * @param value Valor registrado. */
+	void recordValue(String name, long value);
+
+	/** Incrementa en uno un contador.
+	 * @param name Nombre del contador. */
+	void increment(String name);
+}
@@ -0,0 +1,51 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.triphase.server.metrics;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import es.gob.afirma.triphase.server.ConfigManager;
+
+/** Servicio para la consulta de las m&eacute;tricas del servicio de firma trif&aacute;sica.
+ * S&oacute;lo responde si se ha habilitado con la propiedad <code>metrics.endpoint.enabled</code>
+ * del fichero de configuraci&oacute;n. */
+public final class MetricsService extends HttpServlet {
+
+	/** Serial Id. */
+	private static final long serialVersionUID = -2186318475216340947L;
+
+	private static final String CHARSET = "utf-8"; //$NON-NLS-1$
+
+	@Override
+	protected void doGet(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
+
+		if (!ConfigManager.isMetricsEndpointEnabled()) {
+			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		final String report = TriphaseMetrics.getReport();
+		if (report == null) {
+			resp.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED, "El registro de metricas configurado no proporciona informes"); //$NON-NLS-1$
+			return;
+		}
+
+		resp.setContentType("text/plain"); //$NON-NLS-1$
+		resp.setCharacterEncoding(CHARSET);
+		resp.setHeader("Cache-Control", "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
+		resp.getWriter().print(report);
+		resp.getWriter().flush();
+	}
+}
@@ -0,0 +1,184 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.triphase.server.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import es.gob.afirma.triphase.server.ConfigManager;
+
+/** Punto de acceso a las m&eacute;tricas del servicio de firma trif&aacute;sica. Registra
+ * tiempos, valores y contadores en el {@link MetricsRecorder} configurado y, si es el
+ * registro en memoria por defecto, lo publica por JMX con el nombre
+ * <code>es.gob.afirma.triphase:type=Metrics</code>. Si las m&eacute;tricas se deshabilitan
+ * (propiedad <code>metrics.enabled=false</code>), las llamadas no tienen efecto.
+ * <p>Uso t&iacute;pico:</p>
+ * <pre>
+ *  final long t = TriphaseMetrics.start();
+ *  ...
+ *  TriphaseMetrics.stop("document.get", t);
+ * </pre> */
+public final class TriphaseMetrics {
+
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	private static final String JMX_NAME = "es.gob.afirma.triphase:type=Metrics"; //$NON-NLS-1$
+
+	private static final MetricsRecorder RECORDER;
+
+	static {
+		MetricsRecorder recorder;
+		boolean enabled = true;
+		boolean jmx = true;
+		String recorderClassName = null;
+		Properties config = null;
+		try {
+			enabled = ConfigManager.isMetricsEnabled();
+			jmx = ConfigManager.isMetricsJmxEnabled();
+			recorderClassName = ConfigManager.getMetricsRecorderClassName();
+			config = ConfigManager.getConfig();
+		}
+		catch (final Throwable e) {
+			LOGGER.warning("No se ha podido leer la configuracion de las metricas, se usara la configuracion por defecto: " + e); //$NON-NLS-1$
+		}
+
+		if (!enabled) {
+			recorder = null;
+		}
+		else if (recorderClassName != null) {
+			recorder = loadRecorder(recorderClassName, config);
+		}
+		else {
+			recorder = new HistogramMetricsRecorder();
+		}
+
+		if (recorder instanceof HistogramMetricsRecorderMBean && jmx) {
+			registerMBean(recorder);
+		}
+
+		RECORDER = recorder;
+		LOGGER.info("Registro de metricas del servicio trifasico: " + //$NON-NLS-1$
+				(recorder != null ? recorder.getClass().getName() : "deshabilitado")); //$NON-NLS-1$
+	}
+
+	private TriphaseMetrics() {
+		// No instanciable
+	}
+
+	/** Indica si se est&aacute;n registrando m&eacute;tricas.
+	 * @return {@code true} si las m&eacute;tricas est&aacute;n habilitadas. */
+	public static boolean isEnabled() {
+		return RECORDER != null;
+	}
+
+	/** Marca el inicio de una operaci&oacute;n a medir.
+	 * @return Instante de inicio que debe pasarse a {@link #stop(String, long)}. */
+	public static long start() {
+		return RECORDER != null ? System.nanoTime() : 0L;
+	}
+
+	/** Registra la duraci&oacute;n de una operaci&oacute;n.
+	 * @param name Nombre del temporizador.
+	 * @param start Instante de inicio obtenido con {@link #start()}. */
+	public static void stop(final String name, final long start) {
+		if (RECORDER != null) {
+			RECORDER.recordTime(name, System.nanoTime() - start);
+		}
+	}
+
+	/** Incrementa un contador.
+	 * @param name Nombre del contador. */
+	public static void count(final String name) {
+		if (RECORDER != null) {
+			RECORDER.increment(name);
+		}
+	}
+
+	/** Registra un valor de una distribuci&oacute;n.
+	 * @param name Nombre de la distribuci&oacute;n.
+	 * @param value Valor. */
+	public static void value(final String name, final long value) {
+		if (RECORDER != null) {
+			RECORDER.recordValue(name, value);
+		}
+	}
+
+	/** Compone el nombre de una m&eacute;trica asociada a un formato de firma u otro valor
+	 * recibido en la petici&oacute;n, normaliz&aacute;ndolo para no generar nombres distintos
+	 * por diferencias de may&uacute;sculas o caracteres no v&aacute;lidos.
+	 * @param prefix Prefijo de la m&eacute;trica.
+	 * @param qualifier Formato u otro calificador. Puede ser {@code null}.
+	 * @return Nombre de la m&eacute;trica. */
+	public static String name(final String prefix, final String qualifier) {
+		if (qualifier == null) {
+			return prefix;
+		}
+		final StringBuilder sb = new StringBuilder(prefix.length() + 1 + qualifier.length());
+		sb.append(prefix).append('.');
+		final String q = qualifier.toLowerCase(Locale.US);
+		for (int i = 0; i < q.length(); i++) {
+			final char c = q.charAt(i);
+			sb.append(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_' || c == '-' ? c : '_');
+		}
+		return sb.toString();
+	}
+
+	/** Obtiene el informe de las m&eacute;tricas registradas.
+	 * @return Informe en texto plano o {@code null} si el registro configurado no lo proporciona. */
+	public static String getReport() {
+		return RECORDER instanceof HistogramMetricsRecorderMBean ?
+				((HistogramMetricsRecorderMBean) RECORDER).getReport() : null;
+	}
+
+	private static MetricsRecorder loadRecorder(final String className, final Properties config) {
+		final Class<?> recorderClass;
+		try {
+			recorderClass = Class.forName(className);
+		}
+		catch (final ClassNotFoundException e) {
+			LOGGER.severe("La clase MetricsRecorder indicada no existe (" + className + "), se usara la de por defecto: " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			return new HistogramMetricsRecorder();
+		}
+		try {
+			return (MetricsRecorder) recorderClass.getConstructor(Properties.class).newInstance(config);
+		}
+		catch (final Exception e) {
+			try {
+				return (MetricsRecorder) recorderClass.getConstructor().newInstance();
+			}
+			catch (final Exception e2) {
+				LOGGER.severe(
+					"No se ha podido inicializar el MetricsRecorder. Debe tener un constructor vacio o que reciba un Properties. Se usara el de por defecto: " + e2 //$NON-NLS-1$
+				);
+				return new HistogramMetricsRecorder();
+			}
+		}
+	}
+
+	private static void registerMBean(final MetricsRecorder recorder) {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(JMX_NAME);
+			// Si se redespliega el servicio, sustituimos el registro anterior
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(recorder, name);
+		}
+		catch (final Exception e) {
+			LOGGER.warning("No se han podido publicar las metricas por JMX: " + e); //$NON-NLS-1$
+		}
+	}
+}
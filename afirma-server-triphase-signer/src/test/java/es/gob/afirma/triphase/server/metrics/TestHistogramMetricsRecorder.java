@@ -0,0 +1,61 @@
+package es.gob.afirma.triphase.server.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.gob.afirma.triphase.server.metrics.HistogramMetricsRecorder.Histogram;
+
+/** Pruebas del registro de m&eacute;tricas en memoria. */
+public class TestHistogramMetricsRecorder {
+
+	/** Comprueba que cada valor cae en una cubeta cuya cota superior no es menor que &eacute;l
+	 * y que se desv&iacute;a menos de un 25%. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBucketBounds() {
+		final long[] values = { 0, 1, 3, 4, 5, 7, 8, 15, 16, 1000, 123456789L, Long.MAX_VALUE };
+		for (final long v : values) {
+			final long upper = Histogram.bucketUpperBound(Histogram.bucketIndex(v));
+			Assert.assertTrue("Cota inferior al valor " + v, upper >= v); //$NON-NLS-1$
+			Assert.assertTrue("Cota demasiado alta para " + v, upper - v <= v / 4); //$NON-NLS-1$
+		}
+	}
+
+	/** Comprueba los percentiles, contadores y el informe. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRecorder() {
+		final HistogramMetricsRecorder recorder = new HistogramMetricsRecorder();
+		for (int i = 1; i <= 100; i++) {
+			recorder.recordValue("batch.size", i); //$NON-NLS-1$
+		}
+		recorder.increment("batch.result.done_and_saved"); //$NON-NLS-1$
+		recorder.increment("batch.result.done_and_saved"); //$NON-NLS-1$
+		recorder.recordTime("document.get", 2000000L); //$NON-NLS-1$
+
+		final Histogram h = recorder.getValues("batch.size"); //$NON-NLS-1$
+		Assert.assertEquals(100, h.getCount());
+		Assert.assertEquals(100, h.getMax());
+		Assert.assertEquals(50.5, h.getMean(), 0.001);
+		Assert.assertTrue(h.getPercentile(0.5) >= 50 && h.getPercentile(0.5) <= 63);
+		Assert.assertEquals(100, h.getPercentile(1));
+		Assert.assertEquals(2, recorder.getCount("batch.result.done_and_saved")); //$NON-NLS-1$
+
+		final String report = recorder.getReport();
+		Assert.assertTrue(report, report.contains("document.get count=1")); //$NON-NLS-1$
+		Assert.assertTrue(report, report.contains("batch.result.done_and_saved count=2")); //$NON-NLS-1$
+		Assert.assertEquals(3, recorder.getMetricNames().length);
+
+		recorder.reset();
+		Assert.assertEquals(0, recorder.getMetricNames().length);
+	}
+
+	/** Comprueba la normalizaci&oacute;n de los nombres de las m&eacute;tricas. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testMetricName() {
+		Assert.assertEquals("presign.xades_asic_s", TriphaseMetrics.name("presign", "XAdES ASiC S")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		Assert.assertEquals("postsign.cades-asic-s", TriphaseMetrics.name("postsign", "CAdES-ASiC-S")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		Assert.assertEquals("batch.presign", TriphaseMetrics.name("batch.presign", null)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
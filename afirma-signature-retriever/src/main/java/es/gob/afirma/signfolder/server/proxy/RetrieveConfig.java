@@ -16,6 +16,8 @@ import java.io.InputStream;
 import java.util.Properties;
 import java.util.logging.Logger;
 
+import es.gob.afirma.signfolder.server.proxy.storage.TempDataStorage;
+
 /** Configuraci&oacute;n para la gesti&oacute;n del almacenamiento temporal de ficheros en servidor. */
 final class RetrieveConfig {
 
@@ -37,6 +39,12 @@ final class RetrieveConfig {
 	/** Clave para la configuraci&oacute;n del tiempo de caducidad de los ficheros temporales. */
 	private static final String EXPIRATION_TIME_KEY =  "expTime"; //$NON-NLS-1$
 
+	/** Clave para la configuraci&oacute;n del tiempo m&aacute;ximo de espera de los datos en una recuperaci&oacute;n. */
+	private static final String MAX_WAIT_TIME_KEY =  "maxWaitTime"; //$NON-NLS-1$
+
+	/** Clave para la configuraci&oacute;n del n&uacute;mero m&aacute;ximo de peticiones de recuperaci&oacute;n en espera. */
+	private static final String MAX_WAITING_REQUESTS_KEY =  "maxWaitingRequests"; //$NON-NLS-1$
+
 	private static final String SYS_PROP_PREFIX = "${"; //$NON-NLS-1$
 
 	private static final String SYS_PROP_SUFIX = "}"; //$NON-NLS-1$
@@ -44,14 +52,27 @@ final class RetrieveConfig {
 	/** Milisegundos que, por defecto, tardan los mensajes en caducar. */
 	private static final long DEFAULT_EXPIRATION_TIME = 60000; // 1 minuto
 
+	/** Milisegundos que, por defecto, puede quedar a la espera una petici&oacute;n de recuperaci&oacute;n. */
+	private static final long DEFAULT_MAX_WAIT_TIME = 20000; // 20 segundos
+
+	/** N&uacute;mero m&aacute;ximo de peticiones de recuperaci&oacute;n que, por defecto, pueden estar a la espera a la vez. */
+	private static final int DEFAULT_MAX_WAITING_REQUESTS = 50;
+
 	/** Directorio temporal a usar. */
 	private static final File TMP_DIR;
 
 	/** Modo de depuraci&oacute;n activo o no, en el que no se borran los ficheros en servidor ni se dan por caducados. */
 	static final boolean DEBUG;
 
+	/** Configuraci&oacute;n para el almacenamiento temporal, con los valores ya resueltos. */
+	private static final Properties STORAGE_CONFIG;
+
 	private static final long EXPIRATION_TIME;
 
+	private static final long MAX_WAIT_TIME;
+
+	private static final int MAX_WAITING_REQUESTS;
+
 	static {
 
 		InputStream is = null;
@@ -151,6 +172,45 @@ final class RetrieveConfig {
 			expTime = DEFAULT_EXPIRATION_TIME;
 		}
 		EXPIRATION_TIME = expTime;
+
+		long maxWaitTime;
+		final String maxWaitTimeValue = getProperty(config, MAX_WAIT_TIME_KEY, null);
+		try {
+			maxWaitTime = maxWaitTimeValue != null ?
+				Long.parseLong(maxWaitTimeValue) :
+					DEFAULT_MAX_WAIT_TIME;
+		}
+		catch (final Exception e) {
+			LOGGER.warning(
+				"Tiempo maximo de espera invalido en el fichero de configuracion (" + maxWaitTimeValue + "), se usara " + DEFAULT_MAX_WAIT_TIME + ": " + e //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			);
+			maxWaitTime = DEFAULT_MAX_WAIT_TIME;
+		}
+		MAX_WAIT_TIME = maxWaitTime;
+
+		int maxWaitingRequests;
+		final String maxWaitingRequestsValue = getProperty(config, MAX_WAITING_REQUESTS_KEY, null);
+		try {
+			maxWaitingRequests = maxWaitingRequestsValue != null ?
+				Math.max(0, Integer.parseInt(maxWaitingRequestsValue)) :
+					DEFAULT_MAX_WAITING_REQUESTS;
+		}
+		catch (final Exception e) {
+			LOGGER.warning(
+				"Numero maximo de peticiones en espera invalido en el fichero de configuracion (" + maxWaitingRequestsValue + "), se usara " + DEFAULT_MAX_WAITING_REQUESTS + ": " + e //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			);
+			maxWaitingRequests = DEFAULT_MAX_WAITING_REQUESTS;
+		}
+		MAX_WAITING_REQUESTS = maxWaitingRequests;
+
+		final Properties storageConfig = new Properties();
+		for (final String key : config.stringPropertyNames()) {
+			storageConfig.setProperty(key, getProperty(config, key, null));
+		}
+		storageConfig.setProperty(TempDataStorage.CONFIG_TMP_DIR, TMP_DIR.getAbsolutePath());
+		storageConfig.setProperty(TempDataStorage.CONFIG_EXPIRATION_TIME, Long.toString(EXPIRATION_TIME));
+		storageConfig.setProperty(TempDataStorage.CONFIG_DEBUG, Boolean.toString(DEBUG));
+		STORAGE_CONFIG = storageConfig;
 	}
 
 	/** Recupera el directorio configurado para la creaci&oacute;n de ficheros temporales o el por defecto.
@@ -168,6 +228,27 @@ final class RetrieveConfig {
 		return EXPIRATION_TIME;
 	}
 
+	/** Recupera el tiempo m&aacute;ximo en milisegundos que una petici&oacute;n de recuperaci&oacute;n
+	 * puede quedar a la espera de que se guarden los datos solicitados. Si es 0, no se permite esperar.
+	 * @return Tiempo m&aacute;ximo de espera en milisegundos. */
+	static long getMaxWaitTime() {
+		return MAX_WAIT_TIME;
+	}
+
+	/** Recupera el n&uacute;mero m&aacute;ximo de peticiones de recuperaci&oacute;n que pueden estar
+	 * a la vez a la espera de que se guarden sus datos. Cada una de ellas ocupa un hilo del servidor
+	 * de aplicaciones, por lo que, alcanzado este l&iacute;mite, las peticiones se responden de inmediato.
+	 * @return N&uacute;mero m&aacute;ximo de peticiones en espera. */
+	static int getMaxWaitingRequests() {
+		return MAX_WAITING_REQUESTS;
+	}
+
+	/** Recupera la configuraci&oacute;n con la que construir el almacenamiento temporal.
+	 * @return Configuraci&oacute;n del almacenamiento con las variables de entorno ya traducidas. */
+	static Properties getStorageConfig() {
+		return STORAGE_CONFIG;
+	}
+
 	/**
 	 * Carga una propiedad de la configuraci&oacute;n traduciendo su contenido por lo indicado
 	 * mediante variables de entorno si es necesario.
@@ -10,11 +10,12 @@
 package es.gob.afirma.signfolder.server.proxy;
 
 import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletException;
@@ -22,8 +23,19 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import es.gob.afirma.signfolder.server.proxy.storage.ChunkedTempDataStorage;
+import es.gob.afirma.signfolder.server.proxy.storage.TempDataStorage;
+import es.gob.afirma.signfolder.server.proxy.storage.TempDataStorageFactory;
+
 /** Servicio de almacenamiento temporal de firmas.
  * &Uacute;til para servir de intermediario en comunicaci&oacute;n entre JavaScript y aplicaciones nativas.
+ * Si el almacenamiento lo permite, los datos pueden descargarse por tramos con la versi&oacute;n
+ * {@value #SYNTAX_VERSION_CHUNKED} de la sintaxis: la operaci&oacute;n {@code info} devuelve el
+ * tama&ntilde;o de los datos, la operaci&oacute;n {@code get} con los par&aacute;metros
+ * {@code off} y {@code len} devuelve la huella SHA-256 del tramo en la primera l&iacute;nea
+ * seguida del tramo, sin eliminar los datos, y la operaci&oacute;n {@code del} los elimina al
+ * terminar. Los servicios que no admiten esta versi&oacute;n responden a {@code info} con un
+ * error de operaci&oacute;n no soportada.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
 public final class RetrieveService extends HttpServlet {
 
@@ -32,6 +44,12 @@ public final class RetrieveService extends HttpServlet {
 	/** Log para registrar las acciones del servicio. */
 	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma");  //$NON-NLS-1$
 
+	/** Codificaci&oacute;n de los textos de respuesta. */
+	private static final Charset CHARSET = Charset.forName("utf-8"); //$NON-NLS-1$
+
+	/** Separador de l&iacute;nea de las respuestas. */
+	private static final byte[] LINE_SEPARATOR = System.getProperty("line.separator", "\n").getBytes(); //$NON-NLS-1$ //$NON-NLS-2$
+
 	/** Nombre del par&aacute;metro con la operaci&oacute;n realizada. */
 	private static final String PARAMETER_NAME_OPERATION = "op"; //$NON-NLS-1$
 
@@ -41,10 +59,51 @@ public final class RetrieveService extends HttpServlet {
 	/** Nombre del par&aacute;metro con la versi&oacute;n de la sintaxis de petici&oacute; utilizada. */
 	private static final String PARAMETER_NAME_SYNTAX_VERSION = "v"; //$NON-NLS-1$
 
+	/** Nombre del par&aacute;metro opcional con los milisegundos que se puede esperar a que
+	 * se guarden los datos antes de responder. */
+	private static final String PARAMETER_NAME_WAIT = "wait"; //$NON-NLS-1$
+
+	/** Nombre del par&aacute;metro con la posici&oacute;n del tramo de datos solicitado. */
+	private static final String PARAMETER_NAME_OFFSET = "off"; //$NON-NLS-1$
+
+	/** Nombre del par&aacute;metro con la longitud del tramo de datos solicitado. */
+	private static final String PARAMETER_NAME_LENGTH = "len"; //$NON-NLS-1$
+
+	/** Versi&oacute;n de la sintaxis que permite la transferencia por tramos. */
+	static final String SYNTAX_VERSION_CHUNKED = "2_0"; //$NON-NLS-1$
+
+	/** Longitud m&aacute;xima de un tramo de datos. */
+	private static final int MAX_RANGE_LENGTH = 4 * 1024 * 1024;
+
+	/** Algoritmo de las huellas de los tramos. */
+	private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
 	private static final String OPERATION_RETRIEVE = "get"; //$NON-NLS-1$
 	private static final String OPERATION_CHECK = "check"; //$NON-NLS-1$
+	private static final String OPERATION_INFO = "info"; //$NON-NLS-1$
+	private static final String OPERATION_DELETE = "del"; //$NON-NLS-1$
 	private static final String SUCCESS = "OK"; //$NON-NLS-1$
 
+	/** Permisos para las peticiones que esperan a que se guarden sus datos. Al no haber
+	 * peticiones as&iacute;ncronas, cada espera retiene un hilo del servidor. */
+	private static final Semaphore WAIT_PERMITS = new Semaphore(RetrieveConfig.getMaxWaitingRequests());
+
+	/** Almacenamiento temporal de los datos. */
+	private transient TempDataStorage storage = null;
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+		this.storage = TempDataStorageFactory.getStorage(RetrieveConfig.getStorageConfig());
+	}
+
+	@Override
+	public void destroy() {
+		TempDataStorageFactory.releaseStorage(this.storage);
+		this.storage = null;
+		super.destroy();
+	}
+
 	@Override
 	protected void service(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
 
@@ -52,19 +111,21 @@ public final class RetrieveService extends HttpServlet {
 		response.setContentType("text/plain"); //$NON-NLS-1$
 		response.setCharacterEncoding("utf-8"); //$NON-NLS-1$
 
-		final PrintWriter out = response.getWriter();
+		// Escribimos directamente sobre el flujo de salida para poder copiar los datos
+		// almacenados sin cargarlos en memoria
+		final OutputStream out = response.getOutputStream();
 
 		final String operation = request.getParameter(PARAMETER_NAME_OPERATION);
 		if (operation == null) {
 			LOGGER.warning(ErrorManager.genError(ErrorManager.ERROR_MISSING_OPERATION_NAME));
-			out.println(ErrorManager.genError(ErrorManager.ERROR_MISSING_OPERATION_NAME));
+			println(out, ErrorManager.genError(ErrorManager.ERROR_MISSING_OPERATION_NAME));
 			out.flush();
 			return;
 		}
 
 		// Si solo se queria identificar la operatividad del servicio, respondemos directamente
 		if (OPERATION_CHECK.equals(operation)) {
-			out.println(SUCCESS);
+			println(out, SUCCESS);
 			out.flush();
 			return;
 		}
@@ -74,139 +135,272 @@ public final class RetrieveService extends HttpServlet {
 		final String syntaxVersion = request.getParameter(PARAMETER_NAME_SYNTAX_VERSION);
 		if (syntaxVersion == null) {
 			LOGGER.warning(ErrorManager.genError(ErrorManager.ERROR_MISSING_SYNTAX_VERSION));
-			out.println(ErrorManager.genError(ErrorManager.ERROR_MISSING_SYNTAX_VERSION));
+			println(out, ErrorManager.genError(ErrorManager.ERROR_MISSING_SYNTAX_VERSION));
 			out.flush();
 			return;
 		}
 
-		if (OPERATION_RETRIEVE.equalsIgnoreCase(operation)) {
-			retrieveSign(out, request);
+		final boolean chunked = SYNTAX_VERSION_CHUNKED.equals(syntaxVersion);
+		if (OPERATION_RETRIEVE.equalsIgnoreCase(operation)
+				&& chunked && request.getParameter(PARAMETER_NAME_OFFSET) != null) {
+			retrieveRange(out, request, this.storage);
+		}
+		else if (OPERATION_RETRIEVE.equalsIgnoreCase(operation)) {
+			retrieveSign(out, request, this.storage);
+		}
+		else if (OPERATION_INFO.equalsIgnoreCase(operation) && chunked) {
+			sendInfo(out, request, this.storage);
+		}
+		else if (OPERATION_DELETE.equalsIgnoreCase(operation) && chunked) {
+			deleteData(out, request, this.storage);
 		}
 		else {
 			LOGGER.warning(ErrorManager.genError(ErrorManager.ERROR_UNSUPPORTED_OPERATION_NAME));
-			out.println(ErrorManager.genError(ErrorManager.ERROR_UNSUPPORTED_OPERATION_NAME));
+			println(out, ErrorManager.genError(ErrorManager.ERROR_UNSUPPORTED_OPERATION_NAME));
 		}
 		out.flush();
 
 		LOGGER.info(" == FIN RECUPERACION"); //$NON-NLS-1$
-
-		// Antes de salir revisamos todos los ficheros y eliminamos los caducados.
-		removeExpiredFiles();
 	}
 
 	/** Recupera los datos del servidor.
 	 * @param out Respuesta a la petici&oacute;n.
 	 * @param request Petici&oacute;n.
+	 * @param storage Almacenamiento temporal de los datos.
 	 * @throws IOException Cuando ocurre un error al general la respuesta. */
-	private static void retrieveSign(final PrintWriter out,
-			                         final HttpServletRequest request) throws IOException {
+	private static void retrieveSign(final OutputStream out,
+			                         final HttpServletRequest request,
+			                         final TempDataStorage storage) throws IOException {
 
 		final String id = request.getParameter(PARAMETER_NAME_ID);
 		if (id == null) {
 			LOGGER.warning(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
-			out.println(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
+			println(out, ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
 			return;
 		}
 
 		LOGGER.info("Se solicita el fichero con el identificador: " + id); //$NON-NLS-1$
 
-		final File inFile = new File(RetrieveConfig.getTempDir(), id);
-
-		// No hacemos distincion si el archivo no existe, no es un fichero, no puede leerse o ha caducado
-		// para evitar que un atacante conozca su situacion. Lo borramos despues de usarlo
-		if (!inFile.isFile() || !inFile.canRead() || isExpired(inFile, RetrieveConfig.getExpirationTime())) {
-
-			if (!inFile.exists()) {
-				LOGGER.warning("El fichero con el identificador '" + id + "' no existe: " + inFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			else if (!inFile.isFile()) {
-				LOGGER.warning("El archivo con el identificador '" + id + "' no es un fichero: " + inFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			else if (!inFile.canRead()) {
-				LOGGER.warning("El fichero con el identificador '" + id + "' no tiene permisos de lectura: " + inFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			else {
-				LOGGER.warning("El fichero con el identificador '" + id + "' esta caducado: " + inFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-
-			out.println(
+		awaitData(id, request, storage);
+
+		final boolean found;
+		try {
+			found = storage.retrieve(id, out);
+		}
+		catch (final IOException e) {
+			LOGGER.severe("Error recuperando los datos con el identificador " + id + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			println(out, ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA));
+			return;
+		}
+
+		if (!found) {
+			println(
+				out,
 				ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA_ID)  + " ('" + id + "')" //$NON-NLS-1$ //$NON-NLS-2$
 			);
-			// Que el fichero sea de tipo fichero, implica que existe
-			if (inFile.isFile() && !RetrieveConfig.DEBUG) {
-				inFile.delete();
-			}
+			return;
 		}
-		else {
-			try {
-				final InputStream fis = new FileInputStream(inFile);
-				out.println(new String(getDataFromInputStream(fis)));
-				fis.close();
-				LOGGER.info("Se recupera el fichero: " + inFile.getName()); //$NON-NLS-1$
-			}
-			catch (final IOException e) {
-				LOGGER.severe("Error recuperando el fichero " + inFile.getAbsolutePath() + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
-				out.println(ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA));
-				return;
-			}
-			if (!RetrieveConfig.DEBUG) {
-				inFile.delete();
-			}
+
+		out.write(LINE_SEPARATOR);
+		LOGGER.info("Se recuperan los datos con el identificador: " + id); //$NON-NLS-1$
+	}
+
+	/** Indica el tama&ntilde;o de los datos, con la forma {@code OK:tama&ntilde;o}, para que
+	 * puedan descargarse por tramos.
+	 * @param out Respuesta a la petici&oacute;n.
+	 * @param request Petici&oacute;n.
+	 * @param storage Almacenamiento temporal de los datos.
+	 * @throws IOException Cuando ocurre un error al general la respuesta. */
+	private static void sendInfo(final OutputStream out,
+			                     final HttpServletRequest request,
+			                     final TempDataStorage storage) throws IOException {
+
+		final String id = getChunkedDataId(out, request, storage);
+		if (id == null) {
+			return;
+		}
+
+		awaitData(id, request, storage);
+
+		final long size = ((ChunkedTempDataStorage) storage).size(id);
+		if (size < 0) {
+			println(
+				out,
+				ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA_ID)  + " ('" + id + "')" //$NON-NLS-1$ //$NON-NLS-2$
+			);
+			return;
 		}
+		println(out, SUCCESS + ":" + size); //$NON-NLS-1$
 	}
 
-	/**
-	 * Elimina del directorio temporal todos los ficheros que hayan sobrepasado el tiempo m&aacute;ximo
-	 * de vida configurado.
-	 */
-	private static void removeExpiredFiles() {
+	/** Devuelve un tramo de los datos precedido de una l&iacute;nea con su huella en
+	 * hexadecimal. Los datos no se eliminan.
+	 * @param out Respuesta a la petici&oacute;n.
+	 * @param request Petici&oacute;n.
+	 * @param storage Almacenamiento temporal de los datos.
+	 * @throws IOException Cuando ocurre un error al general la respuesta. */
+	private static void retrieveRange(final OutputStream out,
+			                          final HttpServletRequest request,
+			                          final TempDataStorage storage) throws IOException {
+
+		final String id = getChunkedDataId(out, request, storage);
+		if (id == null) {
+			return;
+		}
+
+		final long offset;
+		final int length;
+		try {
+			offset = Long.parseLong(request.getParameter(PARAMETER_NAME_OFFSET));
+			length = request.getParameter(PARAMETER_NAME_LENGTH) != null ?
+				Math.min(Integer.parseInt(request.getParameter(PARAMETER_NAME_LENGTH)), MAX_RANGE_LENGTH) :
+					MAX_RANGE_LENGTH;
+		}
+		catch (final NumberFormatException e) {
+			LOGGER.warning("Se ha indicado un tramo de datos invalido: " + e); //$NON-NLS-1$
+			println(out, ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA));
+			return;
+		}
+		if (offset < 0 || length < 0) {
+			LOGGER.warning("Se ha indicado un tramo de datos invalido"); //$NON-NLS-1$
+			println(out, ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA));
+			return;
+		}
+
+		// El tramo esta acotado, asi que lo cargamos para calcular su huella antes de enviarlo
+		final ByteArrayOutputStream range = new ByteArrayOutputStream(length);
+		final boolean found;
+		try {
+			found = ((ChunkedTempDataStorage) storage).retrieveRange(id, offset, length, range);
+		}
+		catch (final IOException e) {
+			LOGGER.severe("Error recuperando un tramo de los datos con el identificador " + id + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			println(out, ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA));
+			return;
+		}
 
-		if (RetrieveConfig.DEBUG) {
-			// No se limpia el directorio temporal por estar en modo depuracion
+		if (!found) {
+			println(
+				out,
+				ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA_ID)  + " ('" + id + "')" //$NON-NLS-1$ //$NON-NLS-2$
+			);
 			return;
 		}
 
-		if (RetrieveConfig.getTempDir() != null && RetrieveConfig.getTempDir().isDirectory()) {
-			for (final File file : RetrieveConfig.getTempDir().listFiles()) {
-				try {
-					if (file.isFile() && isExpired(file, RetrieveConfig.getExpirationTime())) {
-						file.delete();
-					}
-				}
-				catch(final Exception e) {
-					// Suponemos que el fichero ha sido eliminado por otro hilo
-					LOGGER.warning(
-						"No se ha podido eliminar el fichero '" + file.getAbsolutePath() + "', es probable que se elimine en otro hilo de ejecucion: " + e //$NON-NLS-1$ //$NON-NLS-2$
-					);
-				}
-			}
+		final byte[] data = range.toByteArray();
+		final byte[] digest;
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(data);
+		}
+		catch (final NoSuchAlgorithmException e) {
+			throw new IOException("No se puede calcular la huella de los datos", e); //$NON-NLS-1$
+		}
+		out.write(toHex(digest).getBytes(CHARSET));
+		out.write('\n');
+		out.write(data);
+	}
+
+	/** Codifica unos datos en hexadecimal.
+	 * @param data Datos a codificar.
+	 * @return Texto hexadecimal. */
+	private static String toHex(final byte[] data) {
+		final StringBuilder hex = new StringBuilder(data.length * 2);
+		for (final byte b : data) {
+			hex.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/** Elimina los datos una vez descargados por tramos.
+	 * @param out Respuesta a la petici&oacute;n.
+	 * @param request Petici&oacute;n.
+	 * @param storage Almacenamiento temporal de los datos.
+	 * @throws IOException Cuando ocurre un error al general la respuesta. */
+	private static void deleteData(final OutputStream out,
+			                       final HttpServletRequest request,
+			                       final TempDataStorage storage) throws IOException {
+		final String id = getChunkedDataId(out, request, storage);
+		if (id != null) {
+			((ChunkedTempDataStorage) storage).remove(id);
+			println(out, SUCCESS);
+		}
+	}
+
+	/** Obtiene el identificador de los datos de una petici&oacute;n de transferencia por
+	 * tramos. Si no se indic&oacute; o el almacenamiento no la admite, se responde con el
+	 * error correspondiente.
+	 * @param out Respuesta a la petici&oacute;n.
+	 * @param request Petici&oacute;n.
+	 * @param storage Almacenamiento temporal de los datos.
+	 * @return Identificador de los datos o {@code null} si no se puede atender la petici&oacute;n.
+	 * @throws IOException Cuando ocurre un error al general la respuesta. */
+	private static String getChunkedDataId(final OutputStream out,
+			                               final HttpServletRequest request,
+			                               final TempDataStorage storage) throws IOException {
+		if (!(storage instanceof ChunkedTempDataStorage)) {
+			LOGGER.warning("El almacenamiento configurado no admite la transferencia por tramos"); //$NON-NLS-1$
+			println(out, ErrorManager.genError(ErrorManager.ERROR_UNSUPPORTED_OPERATION_NAME));
+			return null;
+		}
+		final String id = request.getParameter(PARAMETER_NAME_ID);
+		if (id == null) {
+			LOGGER.warning(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
+			println(out, ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
+		}
+		return id;
+	}
+
+	/** Si se permite, espera a que se guarden los datos en lugar de obligar al cliente a
+	 * repetir la petici&oacute;n.
+	 * @param id Identificador de los datos.
+	 * @param request Petici&oacute;n.
+	 * @param storage Almacenamiento temporal de los datos. */
+	private static void awaitData(final String id,
+			                      final HttpServletRequest request,
+			                      final TempDataStorage storage) {
+		final long waitTime = Math.min(getWaitTime(request), RetrieveConfig.getMaxWaitTime());
+		if (waitTime <= 0) {
+			return;
+		}
+		if (!WAIT_PERMITS.tryAcquire()) {
+			LOGGER.warning("Se ha alcanzado el maximo de peticiones en espera, se respondera de inmediato a la peticion: " + id); //$NON-NLS-1$
+			return;
+		}
+		try {
+			storage.await(id, waitTime);
+		}
+		catch (final InterruptedException e) {
+			LOGGER.warning("Se interrumpio la espera del fichero con el identificador: " + id); //$NON-NLS-1$
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			WAIT_PERMITS.release();
 		}
 	}
 
-	private static boolean isExpired(final File file, final long expirationTimeLimit) {
-		if (RetrieveConfig.DEBUG) {
-			return false;
+	/** Obtiene el tiempo de espera solicitado en la petici&oacute;n.
+	 * @param request Petici&oacute;n.
+	 * @return Milisegundos de espera o 0 si no se solicit&oacute; o no es v&aacute;lido. */
+	private static long getWaitTime(final HttpServletRequest request) {
+		final String waitValue = request.getParameter(PARAMETER_NAME_WAIT);
+		if (waitValue == null) {
+			return 0;
+		}
+		try {
+			return Math.max(0, Long.parseLong(waitValue));
+		}
+		catch (final NumberFormatException e) {
+			LOGGER.warning("Se ha indicado un tiempo de espera invalido: " + waitValue); //$NON-NLS-1$
+			return 0;
 		}
-		return System.currentTimeMillis() - file.lastModified() > expirationTimeLimit;
 	}
 
-	private static final int BUFFER_SIZE = 4096;
-
-	/** Lee un flujo de datos de entrada y los recupera en forma de array de
-     * octetos. Este m&eacute;todo consume pero no cierra el flujo de datos de entrada.
-     * @param input Flujo de donde se toman los datos.
-     * @return Los datos obtenidos del flujo.
-     * @throws IOException Cuando ocurre un problema durante la lectura. */
-    private static byte[] getDataFromInputStream(final InputStream input) throws IOException {
-        if (input == null) {
-            return new byte[0];
-        }
-        int nBytes = 0;
-        final byte[] buffer = new byte[BUFFER_SIZE];
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        while ((nBytes = input.read(buffer)) != -1) {
-            baos.write(buffer, 0, nBytes);
-        }
-        return baos.toByteArray();
-    }
-}
\ No newline at end of file
+	/** Escribe una l&iacute;nea de texto en la respuesta.
+	 * @param out Flujo de salida de la respuesta.
+	 * @param text Texto a escribir.
+	 * @throws IOException Cuando falla la escritura. */
+	private static void println(final OutputStream out, final String text) throws IOException {
+		out.write(text.getBytes(CHARSET));
+		out.write(LINE_SEPARATOR);
+	}
+}
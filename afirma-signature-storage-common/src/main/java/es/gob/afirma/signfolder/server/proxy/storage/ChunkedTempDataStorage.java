@@ -0,0 +1,66 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** Almacenamiento temporal que admite la transferencia de los datos por partes. Los datos
+ * pueden guardarse en partes numeradas desde 0 que se unen al confirmarlas, y recuperarse por
+ * tramos sin eliminarlos hasta que se solicite expresamente. Esto permite reanudar una
+ * transferencia interrumpida sin repetir las partes ya completadas.
+ * Los servicios s&oacute;lo ofrecen la transferencia por partes cuando el almacenamiento
+ * configurado implementa esta interfaz. */
+public interface ChunkedTempDataStorage extends TempDataStorage {
+
+	/** Almacena una parte de los datos. Si ya existiese esa parte, se sustituye. Si la lectura
+	 * falla, no se almacena nada.
+	 * @param id Identificador de los datos.
+	 * @param part N&uacute;mero de la parte, empezando en 0.
+	 * @param data Flujo con los datos de la parte. No se cierra.
+	 * @throws IOException Cuando ocurre un error al leer o almacenar los datos. */
+	void storePart(String id, int part, InputStream data) throws IOException;
+
+	/** Cuenta las partes consecutivas, empezando por la 0, que se han almacenado para unos
+	 * datos. Es la parte a partir de la cual debe reanudarse el env&iacute;o.
+	 * @param id Identificador de los datos.
+	 * @return N&uacute;mero de partes consecutivas almacenadas. */
+	int countParts(String id);
+
+	/** Une las partes almacenadas en el orden de su numeraci&oacute;n y las guarda como los
+	 * datos con el identificador indicado, que a partir de ese momento pueden recuperarse.
+	 * Las partes se eliminan.
+	 * @param id Identificador de los datos.
+	 * @param parts N&uacute;mero total de partes.
+	 * @return Tama&ntilde;o de los datos resultantes.
+	 * @throws IOException Cuando falta alguna de las partes o no pueden unirse. */
+	long commitParts(String id, int parts) throws IOException;
+
+	/** Obtiene el tama&ntilde;o de los datos almacenados con un identificador.
+	 * @param id Identificador de los datos.
+	 * @return Tama&ntilde;o de los datos o -1 si no existen o han caducado. */
+	long size(String id);
+
+	/** Escribe en un flujo un tramo de los datos almacenados con un identificador, sin
+	 * eliminarlos.
+	 * @param id Identificador de los datos.
+	 * @param offset Posici&oacute;n del primer octeto del tramo.
+	 * @param length N&uacute;mero m&aacute;ximo de octetos del tramo.
+	 * @param out Flujo en el que escribir los datos. No se cierra.
+	 * @return {@code true} si se encontraron los datos, {@code false} si no existen o han
+	 *         caducado, en cuyo caso no se escribe nada.
+	 * @throws IOException Cuando ocurre un error al leer los datos o escribirlos. */
+	boolean retrieveRange(String id, long offset, long length, OutputStream out) throws IOException;
+
+	/** Elimina los datos almacenados con un identificador.
+	 * @param id Identificador de los datos. */
+	void remove(String id);
+}
@@ -0,0 +1,162 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.io.File;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/** Limpiador peri&oacute;dico de los ficheros caducados del directorio temporal.
+ * Mantiene un &iacute;ndice de los ficheros ordenado por fecha de caducidad, de forma que
+ * en cada pasada s&oacute;lo se visitan los ficheros ya caducados en lugar de recorrer
+ * el directorio completo. */
+final class ExpiredFilesSweeper {
+
+	/** <i>Log</i> para registrar las acciones del servicio. */
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma");  //$NON-NLS-1$
+
+	/** Periodo m&iacute;nimo en milisegundos entre dos pasadas de limpieza. */
+	private static final long MIN_SWEEP_PERIOD = 1000;
+
+	/** Pasadas de limpieza por cada periodo de caducidad. Con ello un fichero no sobrevive
+	 * m&aacute;s de un cuarto de su tiempo de vida tras caducar. */
+	private static final int SWEEPS_PER_EXPIRATION = 4;
+
+	private final File dir;
+
+	private final long expirationTime;
+
+	private final DelayQueue<ExpiringFile> index = new DelayQueue<ExpiringFile>();
+
+	private ScheduledExecutorService executor = null;
+
+	/** Crea el limpiador de ficheros caducados.
+	 * @param dir Directorio a limpiar.
+	 * @param expirationTime Tiempo en milisegundos tras el que un fichero se considera caducado. */
+	ExpiredFilesSweeper(final File dir, final long expirationTime) {
+		this.dir = dir;
+		this.expirationTime = expirationTime;
+	}
+
+	/** Registra en el &iacute;ndice los ficheros existentes en el directorio y programa
+	 * la limpieza peri&oacute;dica. */
+	synchronized void start() {
+		if (this.executor != null) {
+			return;
+		}
+		if (this.dir != null && this.dir.isDirectory()) {
+			final File[] files = this.dir.listFiles();
+			if (files != null) {
+				for (final File file : files) {
+					register(file);
+				}
+			}
+		}
+		final long period = Math.max(MIN_SWEEP_PERIOD, this.expirationTime / SWEEPS_PER_EXPIRATION);
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "afirma-expired-files-sweeper"); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.executor.scheduleWithFixedDelay(
+			new Runnable() {
+				@Override
+				public void run() {
+					sweep();
+				}
+			},
+			period,
+			period,
+			TimeUnit.MILLISECONDS
+		);
+	}
+
+	/** Detiene la limpieza peri&oacute;dica. */
+	synchronized void stop() {
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+		this.index.clear();
+	}
+
+	/** Registra un fichero para su borrado una vez caduque.
+	 * @param file Fichero a registrar. */
+	void register(final File file) {
+		if (file != null && file.isFile()) {
+			this.index.add(new ExpiringFile(file, file.lastModified() + this.expirationTime));
+		}
+	}
+
+	/** Elimina los ficheros del &iacute;ndice cuyo tiempo de vida haya vencido. Los ficheros
+	 * que se hayan reescrito desde su registro se vuelven a indexar con su nueva caducidad. */
+	void sweep() {
+		ExpiringFile expired;
+		while ((expired = this.index.poll()) != null) {
+			final File file = expired.getFile();
+			try {
+				if (!file.isFile()) {
+					// Ya se recupero o se elimino en otro hilo
+					continue;
+				}
+				final long deadline = file.lastModified() + this.expirationTime;
+				if (deadline > System.currentTimeMillis()) {
+					this.index.add(new ExpiringFile(file, deadline));
+				}
+				else {
+					file.delete();
+				}
+			}
+			catch (final Exception e) {
+				// Suponemos que el fichero ha sido eliminado por otro hilo
+				LOGGER.warning(
+					"No se ha podido eliminar el fichero '" + file.getAbsolutePath() + "', es probable que se elimine en otro hilo de ejecucion: " + e //$NON-NLS-1$ //$NON-NLS-2$
+				);
+			}
+		}
+	}
+
+	/** Entrada del &iacute;ndice de caducidad. */
+	private static final class ExpiringFile implements Delayed {
+
+		private final File file;
+		private final long deadline;
+
+		ExpiringFile(final File file, final long deadline) {
+			this.file = file;
+			this.deadline = deadline;
+		}
+
+		File getFile() {
+			return this.file;
+		}
+
+		@Override
+		public long getDelay(final TimeUnit unit) {
+			return unit.convert(this.deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(final Delayed o) {
+			final long other = o instanceof ExpiringFile ?
+				((ExpiringFile) o).deadline :
+					System.currentTimeMillis() + o.getDelay(TimeUnit.MILLISECONDS);
+			return this.deadline < other ? -1 : this.deadline == other ? 0 : 1;
+		}
+	}
+}
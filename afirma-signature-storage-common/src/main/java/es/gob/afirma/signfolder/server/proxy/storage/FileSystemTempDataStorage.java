@@ -0,0 +1,348 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/** Almacenamiento temporal en un directorio del sistema de ficheros. Si el directorio es
+ * compartido (por ejemplo, una unidad de red), el guardado y la recuperaci&oacute;n pueden
+ * realizarse desde nodos distintos. */
+public final class FileSystemTempDataStorage implements ChunkedTempDataStorage {
+
+	/** <i>Log</i> para registrar las acciones del servicio. */
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma");  //$NON-NLS-1$
+
+	/** Sufijo de los ficheros que a&uacute;n se est&aacute;n escribiendo. */
+	private static final String PARTIAL_FILE_SUFFIX = ".part"; //$NON-NLS-1$
+
+	/** Separador entre el identificador de los datos y el n&uacute;mero de cada una de sus
+	 * partes en el nombre de los ficheros de las partes. */
+	private static final String CHUNK_FILE_SEPARATOR = ".chunk"; //$NON-NLS-1$
+
+	/** Milisegundos que, por defecto, tardan los datos en caducar. */
+	private static final long DEFAULT_EXPIRATION_TIME = 60000;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final File dir;
+
+	private final long expirationTime;
+
+	private final boolean debug;
+
+	private final ExpiredFilesSweeper sweeper;
+
+	private StoredDataWatcher watcher = null;
+
+	/** Construye el almacenamiento en disco.
+	 * @param config Configuraci&oacute;n con el directorio, el tiempo de caducidad y el
+	 *               modo de depuraci&oacute;n. */
+	public FileSystemTempDataStorage(final Properties config) {
+
+		final String tmpDirName = config.getProperty(CONFIG_TMP_DIR);
+		this.dir = tmpDirName != null && !tmpDirName.isEmpty() ?
+			new File(tmpDirName) :
+				new File(System.getProperty("java.io.tmpdir")); //$NON-NLS-1$
+
+		long expTime;
+		try {
+			expTime = Long.parseLong(config.getProperty(CONFIG_EXPIRATION_TIME));
+		}
+		catch (final Exception e) {
+			expTime = DEFAULT_EXPIRATION_TIME;
+		}
+		this.expirationTime = expTime;
+
+		this.debug = Boolean.parseBoolean(config.getProperty(CONFIG_DEBUG));
+
+		if (this.debug) {
+			this.sweeper = null;
+		}
+		else {
+			this.sweeper = new ExpiredFilesSweeper(this.dir, this.expirationTime);
+			this.sweeper.start();
+		}
+	}
+
+	@Override
+	public void store(final String id, final InputStream data) throws IOException {
+		storeFile(new File(this.dir, id), data);
+	}
+
+	@Override
+	public void storePart(final String id, final int part, final InputStream data) throws IOException {
+		storeFile(getChunkFile(id, part), data);
+	}
+
+	@Override
+	public int countParts(final String id) {
+		int parts = 0;
+		File chunkFile;
+		while ((chunkFile = getChunkFile(id, parts)).isFile() && !isExpired(chunkFile)) {
+			parts++;
+		}
+		return parts;
+	}
+
+	@Override
+	public long commitParts(final String id, final int parts) throws IOException {
+
+		final File[] chunkFiles = new File[parts];
+		for (int i = 0; i < parts; i++) {
+			chunkFiles[i] = getChunkFile(id, i);
+			if (!chunkFiles[i].isFile() || isExpired(chunkFiles[i])) {
+				throw new IOException("No se encuentra la parte " + i + " de los datos con el identificador: " + id); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+
+		// Unimos las partes en un fichero parcial que solo se hace visible cuando esta completo
+		final File outFile = new File(this.dir, id);
+		final File partFile = File.createTempFile("afirma", PARTIAL_FILE_SUFFIX, this.dir); //$NON-NLS-1$
+		long size = 0;
+		try {
+			final FileOutputStream fos = new FileOutputStream(partFile);
+			try {
+				final FileChannel outChannel = fos.getChannel();
+				for (final File chunkFile : chunkFiles) {
+					final FileInputStream fis = new FileInputStream(chunkFile);
+					try {
+						final FileChannel fc = fis.getChannel();
+						final long chunkSize = fc.size();
+						long pos = 0;
+						while (pos < chunkSize) {
+							pos += fc.transferTo(pos, chunkSize - pos, outChannel);
+						}
+						size += chunkSize;
+					}
+					finally {
+						fis.close();
+					}
+				}
+			}
+			finally {
+				fos.close();
+			}
+			moveFile(partFile, outFile);
+		}
+		catch (final IOException e) {
+			partFile.delete();
+			throw e;
+		}
+
+		for (final File chunkFile : chunkFiles) {
+			chunkFile.delete();
+		}
+
+		if (this.sweeper != null) {
+			this.sweeper.register(outFile);
+		}
+		return size;
+	}
+
+	@Override
+	public long size(final String id) {
+		final File inFile = new File(this.dir, id);
+		if (!inFile.isFile() || isExpired(inFile)) {
+			return -1;
+		}
+		return inFile.length();
+	}
+
+	@Override
+	public boolean retrieveRange(final String id, final long offset, final long length, final OutputStream out) throws IOException {
+
+		final File inFile = new File(this.dir, id);
+		if (!inFile.isFile() || !inFile.canRead() || isExpired(inFile)) {
+			LOGGER.warning("No se encuentran datos validos con el identificador: " + id); //$NON-NLS-1$
+			return false;
+		}
+
+		final FileInputStream fis = new FileInputStream(inFile);
+		try {
+			final FileChannel fc = fis.getChannel();
+			final WritableByteChannel outChannel = Channels.newChannel(out);
+			final long end = Math.min(fc.size(), offset + length);
+			long pos = offset;
+			while (pos < end) {
+				pos += fc.transferTo(pos, end - pos, outChannel);
+			}
+		}
+		finally {
+			fis.close();
+		}
+		return true;
+	}
+
+	@Override
+	public void remove(final String id) {
+		if (!this.debug) {
+			new File(this.dir, id).delete();
+		}
+	}
+
+	/** Almacena los datos le&iacute;dos de un flujo en un fichero.
+	 * @param outFile Fichero de destino. Si existe, se sustituye.
+	 * @param data Flujo con los datos a almacenar. No se cierra.
+	 * @throws IOException Cuando ocurre un error al leer o almacenar los datos. */
+	private void storeFile(final File outFile, final InputStream data) throws IOException {
+
+		if (!this.dir.isDirectory()) {
+			this.dir.mkdirs();
+		}
+
+		// Escribimos los datos en un fichero parcial y lo renombramos al terminar, de forma
+		// que nunca se pueda recuperar el fichero a medio escribir
+		final File partFile = File.createTempFile("afirma", PARTIAL_FILE_SUFFIX, this.dir); //$NON-NLS-1$
+		try {
+			final OutputStream fos = new FileOutputStream(partFile);
+			try {
+				int n;
+				final byte[] buffer = new byte[BUFFER_SIZE];
+				while ((n = data.read(buffer)) > 0) {
+					fos.write(buffer, 0, n);
+				}
+			}
+			finally {
+				fos.close();
+			}
+			moveFile(partFile, outFile);
+		}
+		catch (final IOException e) {
+			partFile.delete();
+			throw e;
+		}
+
+		if (this.sweeper != null) {
+			this.sweeper.register(outFile);
+		}
+	}
+
+	private File getChunkFile(final String id, final int part) {
+		return new File(this.dir, id + CHUNK_FILE_SEPARATOR + part);
+	}
+
+	@Override
+	public boolean retrieve(final String id, final OutputStream out) throws IOException {
+
+		final File inFile = new File(this.dir, id);
+
+		// No hacemos distincion si el archivo no existe, no es un fichero, no puede leerse o ha caducado
+		// para evitar que un atacante conozca su situacion. Lo borramos despues de usarlo
+		if (!inFile.isFile() || !inFile.canRead() || isExpired(inFile)) {
+
+			if (!inFile.exists()) {
+				LOGGER.warning("El fichero con el identificador '" + id + "' no existe: " + inFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			else if (!inFile.isFile()) {
+				LOGGER.warning("El archivo con el identificador '" + id + "' no es un fichero: " + inFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			else if (!inFile.canRead()) {
+				LOGGER.warning("El fichero con el identificador '" + id + "' no tiene permisos de lectura: " + inFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			else {
+				LOGGER.warning("El fichero con el identificador '" + id + "' esta caducado: " + inFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+
+			// Que el fichero sea de tipo fichero, implica que existe
+			if (inFile.isFile() && !this.debug) {
+				inFile.delete();
+			}
+			return false;
+		}
+
+		// Copiamos el fichero directamente al flujo de salida, sin cargarlo en memoria
+		final FileInputStream fis = new FileInputStream(inFile);
+		try {
+			final FileChannel fc = fis.getChannel();
+			final WritableByteChannel outChannel = Channels.newChannel(out);
+			final long size = fc.size();
+			long pos = 0;
+			while (pos < size) {
+				pos += fc.transferTo(pos, size - pos, outChannel);
+			}
+		}
+		finally {
+			fis.close();
+		}
+
+		if (!this.debug) {
+			inFile.delete();
+		}
+		return true;
+	}
+
+	@Override
+	public boolean await(final String id, final long timeout) throws InterruptedException {
+		return getWatcher().awaitFile(new File(this.dir, id), timeout);
+	}
+
+	/** Obtiene el vigilante del directorio, que s&oacute;lo se inicia cuando se espera por
+	 * primera vez unos datos.
+	 * @return Vigilante del directorio. */
+	private synchronized StoredDataWatcher getWatcher() {
+		if (this.watcher == null) {
+			this.watcher = new StoredDataWatcher(this.dir, this.sweeper);
+			this.watcher.start();
+		}
+		return this.watcher;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.watcher != null) {
+			this.watcher.stop();
+			this.watcher = null;
+		}
+		if (this.sweeper != null) {
+			this.sweeper.stop();
+		}
+	}
+
+	/** Indica si un nombre de fichero corresponde a unos datos que a&uacute;n se est&aacute;n escribiendo.
+	 * @param name Nombre del fichero.
+	 * @return {@code true} si el fichero est&aacute; a medio escribir. */
+	static boolean isPartialFile(final String name) {
+		return name.endsWith(PARTIAL_FILE_SUFFIX);
+	}
+
+	private boolean isExpired(final File file) {
+		if (this.debug) {
+			return false;
+		}
+		return System.currentTimeMillis() - file.lastModified() > this.expirationTime;
+	}
+
+	/** Mueve un fichero a su ubicaci&oacute;n definitiva, de forma at&oacute;mica siempre
+	 * que el sistema de ficheros lo permita.
+	 * @param source Fichero de origen.
+	 * @param target Fichero de destino. Si existe, se sustituye.
+	 * @throws IOException Cuando no se puede mover el fichero. */
+	private static void moveFile(final File source, final File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (final AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
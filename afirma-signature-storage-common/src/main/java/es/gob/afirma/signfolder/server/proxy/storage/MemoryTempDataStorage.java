@@ -0,0 +1,245 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** Almacenamiento temporal en memoria. S&oacute;lo es v&aacute;lido cuando el servicio de
+ * guardado y el de recuperaci&oacute;n se despliegan en un mismo WAR, de forma que compartan
+ * la instancia obtenida de {@link TempDataStorageFactory}. No puede usarse con los WAR de
+ * guardado y recuperaci&oacute;n desplegados por separado, ya que cada aplicaci&oacute;n web
+ * tendr&iacute;a su propia instancia. Las esperas de datos se resuelven en el mismo momento
+ * en el que se guardan. */
+public final class MemoryTempDataStorage implements ChunkedTempDataStorage {
+
+	/** Milisegundos que, por defecto, tardan los datos en caducar. */
+	private static final long DEFAULT_EXPIRATION_TIME = 60000;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Separador entre el identificador de los datos y el n&uacute;mero de cada una de sus
+	 * partes en la clave con la que se almacenan las partes. */
+	private static final String CHUNK_KEY_SEPARATOR = "\u0000"; //$NON-NLS-1$
+
+	private final ConcurrentHashMap<String, StoredData> entries = new ConcurrentHashMap<String, StoredData>();
+
+	/** Identificadores en orden de guardado. Como todas las entradas caducan tras el mismo
+	 * tiempo, es tambi&eacute;n su orden de caducidad. */
+	private final ConcurrentLinkedQueue<String> expirationIndex = new ConcurrentLinkedQueue<String>();
+
+	private final PendingDataWaiters waiters = new PendingDataWaiters();
+
+	private final long expirationTime;
+
+	private final boolean debug;
+
+	/** Construye el almacenamiento en memoria.
+	 * @param config Configuraci&oacute;n con el tiempo de caducidad y el modo de depuraci&oacute;n. */
+	public MemoryTempDataStorage(final Properties config) {
+		long expTime;
+		try {
+			expTime = Long.parseLong(config.getProperty(CONFIG_EXPIRATION_TIME));
+		}
+		catch (final Exception e) {
+			expTime = DEFAULT_EXPIRATION_TIME;
+		}
+		this.expirationTime = expTime;
+		this.debug = Boolean.parseBoolean(config.getProperty(CONFIG_DEBUG));
+	}
+
+	@Override
+	public void store(final String id, final InputStream data) throws IOException {
+		storeData(id, readData(data));
+	}
+
+	@Override
+	public void storePart(final String id, final int part, final InputStream data) throws IOException {
+		final byte[] chunk = readData(data);
+		removeExpiredEntries();
+		final String key = getChunkKey(id, part);
+		this.entries.put(key, new StoredData(chunk, System.currentTimeMillis()));
+		this.expirationIndex.add(key);
+	}
+
+	@Override
+	public int countParts(final String id) {
+		int parts = 0;
+		StoredData stored;
+		while ((stored = this.entries.get(getChunkKey(id, parts))) != null && !isExpired(stored)) {
+			parts++;
+		}
+		return parts;
+	}
+
+	@Override
+	public long commitParts(final String id, final int parts) throws IOException {
+
+		final StoredData[] chunks = new StoredData[parts];
+		int size = 0;
+		for (int i = 0; i < parts; i++) {
+			chunks[i] = this.entries.get(getChunkKey(id, i));
+			if (chunks[i] == null || isExpired(chunks[i])) {
+				throw new IOException("No se encuentra la parte " + i + " de los datos con el identificador: " + id); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			size += chunks[i].getData().length;
+		}
+
+		final byte[] data = new byte[size];
+		int pos = 0;
+		for (int i = 0; i < parts; i++) {
+			final byte[] chunk = chunks[i].getData();
+			System.arraycopy(chunk, 0, data, pos, chunk.length);
+			pos += chunk.length;
+			this.entries.remove(getChunkKey(id, i), chunks[i]);
+		}
+
+		storeData(id, data);
+		return size;
+	}
+
+	@Override
+	public long size(final String id) {
+		final StoredData stored = this.entries.get(id);
+		if (stored == null || isExpired(stored)) {
+			return -1;
+		}
+		return stored.getData().length;
+	}
+
+	@Override
+	public boolean retrieveRange(final String id, final long offset, final long length, final OutputStream out) throws IOException {
+		final StoredData stored = this.entries.get(id);
+		if (stored == null || isExpired(stored)) {
+			return false;
+		}
+		final byte[] data = stored.getData();
+		final int start = (int) Math.min(offset, data.length);
+		final int end = (int) Math.min(data.length, offset + length);
+		out.write(data, start, end - start);
+		return true;
+	}
+
+	@Override
+	public void remove(final String id) {
+		if (!this.debug) {
+			this.entries.remove(id);
+		}
+	}
+
+	private static byte[] readData(final InputStream data) throws IOException {
+		int n;
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		while ((n = data.read(buffer)) > 0) {
+			baos.write(buffer, 0, n);
+		}
+		return baos.toByteArray();
+	}
+
+	private void storeData(final String id, final byte[] data) {
+
+		removeExpiredEntries();
+
+		this.entries.put(id, new StoredData(data, System.currentTimeMillis()));
+		this.expirationIndex.add(id);
+
+		this.waiters.signal(id);
+	}
+
+	private static String getChunkKey(final String id, final int part) {
+		return id + CHUNK_KEY_SEPARATOR + part;
+	}
+
+	@Override
+	public boolean retrieve(final String id, final OutputStream out) throws IOException {
+		final StoredData stored = this.debug ? this.entries.get(id) : this.entries.remove(id);
+		if (stored == null || isExpired(stored)) {
+			return false;
+		}
+		out.write(stored.getData());
+		return true;
+	}
+
+	@Override
+	public boolean await(final String id, final long timeout) throws InterruptedException {
+		final CountDownLatch latch = this.waiters.register(id);
+		try {
+			// Comprobamos tras registrarnos para no perder un guardado concurrente
+			if (this.entries.containsKey(id)) {
+				return true;
+			}
+			return latch.await(timeout, TimeUnit.MILLISECONDS) && this.entries.containsKey(id);
+		}
+		finally {
+			this.waiters.unregister(id, latch);
+		}
+	}
+
+	@Override
+	public void close() {
+		this.entries.clear();
+		this.expirationIndex.clear();
+		this.waiters.signalAll();
+	}
+
+	/** Elimina las entradas caducadas recorriendo s&oacute;lo el principio del &iacute;ndice
+	 * de caducidad. */
+	private void removeExpiredEntries() {
+		if (this.debug) {
+			return;
+		}
+		String id;
+		while ((id = this.expirationIndex.peek()) != null) {
+			final StoredData stored = this.entries.get(id);
+			if (stored != null && !isExpired(stored)) {
+				// El resto de entradas son posteriores
+				return;
+			}
+			if (this.expirationIndex.remove(id) && stored != null) {
+				this.entries.remove(id, stored);
+			}
+		}
+	}
+
+	private boolean isExpired(final StoredData stored) {
+		if (this.debug) {
+			return false;
+		}
+		return System.currentTimeMillis() - stored.getTime() > this.expirationTime;
+	}
+
+	/** Datos almacenados junto a su momento de guardado. */
+	private static final class StoredData {
+
+		private final byte[] data;
+		private final long time;
+
+		StoredData(final byte[] data, final long time) {
+			this.data = data;
+			this.time = time;
+		}
+
+		byte[] getData() {
+			return this.data;
+		}
+
+		long getTime() {
+			return this.time;
+		}
+	}
+}
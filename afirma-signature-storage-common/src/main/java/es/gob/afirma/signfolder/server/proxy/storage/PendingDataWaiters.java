@@ -0,0 +1,77 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/** Registro de las peticiones que esperan a que se guarden unos datos. Cada petici&oacute;n
+ * en espera dispone de su propio cerrojo, de forma que la salida de una de ellas no afecta
+ * al resto de peticiones que esperan por el mismo identificador. */
+final class PendingDataWaiters {
+
+	private final Map<String, List<CountDownLatch>> waiters = new HashMap<String, List<CountDownLatch>>();
+
+	/** Registra una nueva espera.
+	 * @param id Identificador de los datos esperados.
+	 * @return Cerrojo que se liberar&aacute; cuando se notifique el guardado de los datos. */
+	synchronized CountDownLatch register(final String id) {
+		List<CountDownLatch> latches = this.waiters.get(id);
+		if (latches == null) {
+			latches = new ArrayList<CountDownLatch>(1);
+			this.waiters.put(id, latches);
+		}
+		final CountDownLatch latch = new CountDownLatch(1);
+		latches.add(latch);
+		return latch;
+	}
+
+	/** Elimina una espera del registro.
+	 * @param id Identificador de los datos esperados.
+	 * @param latch Cerrojo obtenido al registrar la espera. */
+	synchronized void unregister(final String id, final CountDownLatch latch) {
+		final List<CountDownLatch> latches = this.waiters.get(id);
+		if (latches != null) {
+			latches.remove(latch);
+			if (latches.isEmpty()) {
+				this.waiters.remove(id);
+			}
+		}
+	}
+
+	/** Despierta a todas las peticiones que esperan por unos datos.
+	 * @param id Identificador de los datos guardados. */
+	synchronized void signal(final String id) {
+		final List<CountDownLatch> latches = this.waiters.get(id);
+		if (latches != null) {
+			for (final CountDownLatch latch : latches) {
+				latch.countDown();
+			}
+		}
+	}
+
+	/** Despierta a todas las peticiones en espera. */
+	synchronized void signalAll() {
+		for (final List<CountDownLatch> latches : this.waiters.values()) {
+			for (final CountDownLatch latch : latches) {
+				latch.countDown();
+			}
+		}
+	}
+
+	/** Obtiene los identificadores por los que hay alguna petici&oacute;n esperando.
+	 * @return Copia de los identificadores en espera. */
+	synchronized List<String> getIds() {
+		return new ArrayList<String>(this.waiters.keySet());
+	}
+}
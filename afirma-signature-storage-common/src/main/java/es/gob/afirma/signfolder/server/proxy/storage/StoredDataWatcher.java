@@ -0,0 +1,169 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/** Registro de peticiones de recuperaci&oacute;n a la espera de que se guarden sus datos.
+ * Vigila el directorio temporal compartido con el servicio de guardado y despierta a las
+ * peticiones en espera en cuanto aparece el fichero con su identificador. Si el sistema de
+ * ficheros no notifica los cambios (por ejemplo, en unidades de red), las peticiones en espera
+ * comprueban el fichero peri&oacute;dicamente. */
+final class StoredDataWatcher implements Runnable {
+
+	/** <i>Log</i> para registrar las acciones del servicio. */
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma");  //$NON-NLS-1$
+
+	/** Milisegundos entre comprobaciones del fichero durante la espera. */
+	private static final long RECHECK_PERIOD = 1000;
+
+	private final File dir;
+
+	private final ExpiredFilesSweeper sweeper;
+
+	private final PendingDataWaiters waiters = new PendingDataWaiters();
+
+	private WatchService watchService = null;
+
+	/** Crea el vigilante del directorio temporal.
+	 * @param dir Directorio en el que se guardan los datos.
+	 * @param sweeper Limpiador en el que registrar los ficheros que se detecten o {@code null}
+	 *                si no se deben eliminar. */
+	StoredDataWatcher(final File dir, final ExpiredFilesSweeper sweeper) {
+		this.dir = dir;
+		this.sweeper = sweeper;
+	}
+
+	/** Comienza a vigilar el directorio. */
+	synchronized void start() {
+		if (this.watchService != null || this.dir == null || !this.dir.isDirectory()) {
+			return;
+		}
+		try {
+			this.watchService = this.dir.toPath().getFileSystem().newWatchService();
+			this.dir.toPath().register(
+				this.watchService,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY
+			);
+		}
+		catch (final Exception e) {
+			LOGGER.warning(
+				"No se pueden recibir notificaciones del directorio temporal, las esperas se resolveran mediante comprobaciones periodicas: " + e //$NON-NLS-1$
+			);
+			closeWatchService();
+			return;
+		}
+		final Thread thread = new Thread(this, "afirma-stored-data-watcher"); //$NON-NLS-1$
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/** Deja de vigilar el directorio y libera a las peticiones en espera. */
+	synchronized void stop() {
+		closeWatchService();
+		this.waiters.signalAll();
+	}
+
+	private void closeWatchService() {
+		if (this.watchService != null) {
+			try {
+				this.watchService.close();
+			}
+			catch (final IOException e) {
+				LOGGER.warning("No se pudo cerrar el servicio de vigilancia del directorio temporal: " + e); //$NON-NLS-1$
+			}
+			this.watchService = null;
+		}
+	}
+
+	@Override
+	public void run() {
+		final WatchService ws = this.watchService;
+		if (ws == null) {
+			return;
+		}
+		for (;;) {
+			final WatchKey key;
+			try {
+				key = ws.take();
+			}
+			catch (final InterruptedException e) {
+				return;
+			}
+			catch (final ClosedWatchServiceException e) {
+				return;
+			}
+			for (final WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					// Se han perdido eventos, despertamos solo a quienes ya tengan sus datos
+					for (final String id : this.waiters.getIds()) {
+						if (new File(this.dir, id).isFile()) {
+							this.waiters.signal(id);
+						}
+					}
+					continue;
+				}
+				final String name = ((Path) event.context()).toString();
+				if (FileSystemTempDataStorage.isPartialFile(name)) {
+					// Los ficheros a medio escribir no son datos recuperables
+					continue;
+				}
+				if (this.sweeper != null && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+					this.sweeper.register(new File(this.dir, name));
+				}
+				this.waiters.signal(name);
+			}
+			if (!key.reset()) {
+				LOGGER.warning("Se ha dejado de vigilar el directorio temporal: " + this.dir.getAbsolutePath()); //$NON-NLS-1$
+				return;
+			}
+		}
+	}
+
+	/** Espera a que exista el fichero indicado.
+	 * @param file Fichero con los datos que se esperan.
+	 * @param timeout Tiempo m&aacute;ximo de espera en milisegundos.
+	 * @return {@code true} si el fichero existe, {@code false} si se agot&oacute; el tiempo de espera.
+	 * @throws InterruptedException Si se interrumpe la espera. */
+	boolean awaitFile(final File file, final long timeout) throws InterruptedException {
+
+		final String id = file.getName();
+		final CountDownLatch latch = this.waiters.register(id);
+		try {
+			// Comprobamos tras registrarnos para no perder un guardado concurrente
+			final long deadline = System.currentTimeMillis() + timeout;
+			while (!file.isFile()) {
+				final long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				if (latch.await(Math.min(remaining, RECHECK_PERIOD), TimeUnit.MILLISECONDS)) {
+					// Si nos despiertan y no esta el fichero, otra peticion ya lo consumio
+					return file.isFile();
+				}
+			}
+			return true;
+		}
+		finally {
+			this.waiters.unregister(id, latch);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** Interfaz para la gesti&oacute;n del almacenamiento temporal de los datos que se intercambian
+ * a trav&eacute;s del servidor intermedio. Las implementaciones deben ser seguras para su uso
+ * concurrente y pueden compartirse entre el servicio de guardado y el de recuperaci&oacute;n,
+ * aunque estos se desplieguen en nodos distintos.
+ * Las implementaciones deben disponer de un constructor que reciba un {@code Properties} con la
+ * configuraci&oacute;n del servicio o de un constructor vac&iacute;o. */
+public interface TempDataStorage {
+
+	/** Clave de configuraci&oacute;n con el directorio de almacenamiento. */
+	String CONFIG_TMP_DIR = "tmpDir"; //$NON-NLS-1$
+
+	/** Clave de configuraci&oacute;n con el tiempo de caducidad de los datos en milisegundos. */
+	String CONFIG_EXPIRATION_TIME = "expTime"; //$NON-NLS-1$
+
+	/** Clave de configuraci&oacute;n del modo de depuraci&oacute;n, en el que los datos no caducan
+	 * ni se eliminan. */
+	String CONFIG_DEBUG = "debug"; //$NON-NLS-1$
+
+	/** Almacena los datos le&iacute;dos de un flujo. Si hubiese datos previos con el mismo
+	 * identificador, se sustituyen. Si la lectura falla, no se almacena nada.
+	 * @param id Identificador de los datos.
+	 * @param data Flujo con los datos a almacenar. No se cierra.
+	 * @throws IOException Cuando ocurre un error al leer o almacenar los datos. */
+	void store(String id, InputStream data) throws IOException;
+
+	/** Escribe en un flujo los datos almacenados con un identificador y los elimina.
+	 * @param id Identificador de los datos.
+	 * @param out Flujo en el que escribir los datos. No se cierra.
+	 * @return {@code true} si se encontraron los datos y se escribieron, {@code false} si
+	 *         no existen o han caducado, en cuyo caso no se escribe nada.
+	 * @throws IOException Cuando ocurre un error al leer los datos o escribirlos. */
+	boolean retrieve(String id, OutputStream out) throws IOException;
+
+	/** Espera a que se almacenen datos con el identificador indicado.
+	 * @param id Identificador de los datos.
+	 * @param timeout Tiempo m&aacute;ximo de espera en milisegundos.
+	 * @return {@code true} si hay datos disponibles, {@code false} si se agot&oacute;
+	 *         el tiempo de espera.
+	 * @throws InterruptedException Si se interrumpe la espera. */
+	boolean await(String id, long timeout) throws InterruptedException;
+
+	/** Libera los recursos del almacenamiento. */
+	void close();
+}
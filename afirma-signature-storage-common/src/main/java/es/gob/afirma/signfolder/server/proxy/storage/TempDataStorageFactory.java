@@ -0,0 +1,94 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.lang.reflect.Constructor;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/** Factor&iacute;a del almacenamiento temporal configurado. Todos los servicios de una misma
+ * aplicaci&oacute;n comparten la misma instancia, que se cierra cuando la liberan todos. */
+public final class TempDataStorageFactory {
+
+	/** Clave de configuraci&oacute;n con el nombre de la clase de almacenamiento a utilizar. */
+	public static final String CONFIG_STORAGE_CLASS = "storageClass"; //$NON-NLS-1$
+
+	/** <i>Log</i> para registrar las acciones del servicio. */
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma");  //$NON-NLS-1$
+
+	private static TempDataStorage storage = null;
+
+	private static int references = 0;
+
+	private TempDataStorageFactory() {
+		// No instanciable
+	}
+
+	/** Obtiene el almacenamiento temporal configurado, cre&aacute;ndolo si es necesario.
+	 * Si no se configura una clase, se usa el almacenamiento en disco.
+	 * @param config Configuraci&oacute;n del servicio.
+	 * @return Almacenamiento temporal.
+	 * @throws IllegalStateException Si no se puede instanciar la clase configurada. */
+	public static synchronized TempDataStorage getStorage(final Properties config) {
+		if (storage == null) {
+			storage = newStorage(config);
+			LOGGER.info("Se usara el siguiente almacenamiento temporal: " + storage.getClass().getName()); //$NON-NLS-1$
+		}
+		references++;
+		return storage;
+	}
+
+	/** Libera una referencia al almacenamiento temporal y lo cierra cuando no quedan m&aacute;s.
+	 * @param released Almacenamiento que se libera. */
+	public static synchronized void releaseStorage(final TempDataStorage released) {
+		if (released == null || released != storage) {
+			return;
+		}
+		references--;
+		if (references <= 0) {
+			storage.close();
+			storage = null;
+			references = 0;
+		}
+	}
+
+	private static TempDataStorage newStorage(final Properties config) {
+
+		final String className = config.getProperty(CONFIG_STORAGE_CLASS);
+		if (className == null || className.trim().isEmpty()) {
+			return new FileSystemTempDataStorage(config);
+		}
+
+		final Class<?> storageClass;
+		try {
+			storageClass = Class.forName(className.trim(), false, TempDataStorageFactory.class.getClassLoader());
+		}
+		catch (final ClassNotFoundException e) {
+			throw new IllegalStateException(
+				"La clase de almacenamiento temporal indicada no existe (" + className + "): " + e, e //$NON-NLS-1$ //$NON-NLS-2$
+			);
+		}
+
+		try {
+			final Constructor<?> constructor = storageClass.getConstructor(Properties.class);
+			return (TempDataStorage) constructor.newInstance(config);
+		}
+		catch (final Exception e) {
+			try {
+				return (TempDataStorage) storageClass.getConstructor().newInstance();
+			}
+			catch (final Exception e2) {
+				throw new IllegalStateException(
+					"No se ha podido inicializar el almacenamiento temporal. Debe tener un constructor vacio o que reciba un Properties: " + e2, e //$NON-NLS-1$
+				);
+			}
+		}
+	}
+}
@@ -0,0 +1,3 @@
+/** Almacenamiento temporal de datos compartido por los servicios de guardado y recuperaci&oacute;n
+ * del servidor intermedio. */
+package es.gob.afirma.signfolder.server.proxy.storage;
@@ -0,0 +1,106 @@
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Pruebas de la espera de datos en el servicio de recuperaci&oacute;n. */
+public final class TestStoredDataWatcher {
+
+	/** Prueba que una espera termina al guardarse el fichero y que agota el tiempo si no se guarda.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testAwaitFile() throws Exception {
+
+		final File dir = Files.createTempDirectory("afirma-retriever").toFile(); //$NON-NLS-1$
+		final StoredDataWatcher watcher = new StoredDataWatcher(dir, null);
+		watcher.start();
+		try {
+			final File missing = new File(dir, "NOEXISTE"); //$NON-NLS-1$
+			Assert.assertFalse(watcher.awaitFile(missing, 200));
+
+			final File data = new File(dir, "ID"); //$NON-NLS-1$
+			final Thread writer = new Thread() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(300);
+						final OutputStream os = new FileOutputStream(data);
+						os.write("DATA".getBytes()); //$NON-NLS-1$
+						os.close();
+					}
+					catch (final Exception e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			};
+			writer.start();
+			Assert.assertTrue(watcher.awaitFile(data, 10000));
+			writer.join();
+		}
+		finally {
+			watcher.stop();
+			for (final File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	/** Prueba que la salida de una espera no impide despertar a otra que espera los mismos
+	 * datos y que los ficheros a medio escribir no se consideran datos guardados.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testConcurrentWaiters() throws Exception {
+
+		final File dir = Files.createTempDirectory("afirma-retriever").toFile(); //$NON-NLS-1$
+		final StoredDataWatcher watcher = new StoredDataWatcher(dir, null);
+		watcher.start();
+		try {
+			final File data = new File(dir, "ID"); //$NON-NLS-1$
+			final AtomicBoolean found = new AtomicBoolean(false);
+			final Thread longWaiter = new Thread() {
+				@Override
+				public void run() {
+					try {
+						found.set(watcher.awaitFile(data, 10000));
+					}
+					catch (final InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			};
+			longWaiter.start();
+
+			// La primera espera termina antes de que se guarden los datos
+			Assert.assertFalse(watcher.awaitFile(data, 200));
+
+			final OutputStream partial = new FileOutputStream(new File(dir, "ID.part")); //$NON-NLS-1$
+			partial.write("DATA".getBytes()); //$NON-NLS-1$
+			partial.close();
+			Thread.sleep(200);
+			Assert.assertTrue(longWaiter.isAlive());
+
+			final OutputStream os = new FileOutputStream(data);
+			os.write("DATA".getBytes()); //$NON-NLS-1$
+			os.close();
+			longWaiter.join(10000);
+			Assert.assertFalse(longWaiter.isAlive());
+			Assert.assertTrue(found.get());
+		}
+		finally {
+			watcher.stop();
+			for (final File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package es.gob.afirma.signfolder.server.proxy.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Pruebas de las implementaciones del almacenamiento temporal. */
+public final class TestTempDataStorage {
+
+	/** Prueba el guardado y la recuperaci&oacute;n en disco.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testFileSystemStorage() throws Exception {
+		final File dir = Files.createTempDirectory("afirma-storage").toFile(); //$NON-NLS-1$
+		final Properties config = new Properties();
+		config.setProperty(TempDataStorage.CONFIG_TMP_DIR, dir.getAbsolutePath());
+		final FileSystemTempDataStorage storage = new FileSystemTempDataStorage(config);
+		try {
+			checkStorage(storage);
+			checkChunkedStorage(storage);
+			Assert.assertEquals(0, dir.listFiles().length);
+		}
+		finally {
+			storage.close();
+			dir.delete();
+		}
+	}
+
+	/** Prueba el guardado y la recuperaci&oacute;n en memoria.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testMemoryStorage() throws Exception {
+		final MemoryTempDataStorage storage = new MemoryTempDataStorage(new Properties());
+		try {
+			checkStorage(storage);
+			checkChunkedStorage(storage);
+		}
+		finally {
+			storage.close();
+		}
+	}
+
+	/** Prueba que, cuando varias peticiones esperan los mismos datos en memoria, la salida
+	 * de una de ellas no impide despertar a las dem&aacute;s.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testMemoryStorageConcurrentWaiters() throws Exception {
+		final MemoryTempDataStorage storage = new MemoryTempDataStorage(new Properties());
+		try {
+			final AtomicBoolean found = new AtomicBoolean(false);
+			final Thread longWaiter = new Thread() {
+				@Override
+				public void run() {
+					try {
+						found.set(storage.await("ID", 10000)); //$NON-NLS-1$
+					}
+					catch (final InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			};
+			longWaiter.start();
+
+			// La primera espera termina antes de que se guarden los datos
+			Assert.assertFalse(storage.await("ID", 200)); //$NON-NLS-1$
+
+			storage.store("ID", new ByteArrayInputStream("DATOS".getBytes())); //$NON-NLS-1$ //$NON-NLS-2$
+			longWaiter.join(10000);
+			Assert.assertFalse(longWaiter.isAlive());
+			Assert.assertTrue(found.get());
+		}
+		finally {
+			storage.close();
+		}
+	}
+
+	private static void checkStorage(final TempDataStorage storage) throws Exception {
+		Assert.assertFalse(storage.retrieve("ID", new ByteArrayOutputStream())); //$NON-NLS-1$
+		Assert.assertFalse(storage.await("ID", 100)); //$NON-NLS-1$
+
+		storage.store("ID", new ByteArrayInputStream("DATOS".getBytes())); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertTrue(storage.await("ID", 100)); //$NON-NLS-1$
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Assert.assertTrue(storage.retrieve("ID", out)); //$NON-NLS-1$
+		Assert.assertEquals("DATOS", new String(out.toByteArray())); //$NON-NLS-1$
+
+		// Los datos se eliminan al recuperarlos
+		Assert.assertFalse(storage.retrieve("ID", new ByteArrayOutputStream())); //$NON-NLS-1$
+	}
+
+	private static void checkChunkedStorage(final ChunkedTempDataStorage storage) throws Exception {
+		Assert.assertEquals(0, storage.countParts("ID")); //$NON-NLS-1$
+		Assert.assertEquals(-1, storage.size("ID")); //$NON-NLS-1$
+
+		// Se guarda una parte fuera de orden, que no cuenta hasta que esten las anteriores
+		storage.storePart("ID", 2, new ByteArrayInputStream("789".getBytes())); //$NON-NLS-1$ //$NON-NLS-2$
+		storage.storePart("ID", 0, new ByteArrayInputStream("0123".getBytes())); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertEquals(1, storage.countParts("ID")); //$NON-NLS-1$
+		try {
+			storage.commitParts("ID", 3); //$NON-NLS-1$
+			Assert.fail("No se detecto la falta de una parte"); //$NON-NLS-1$
+		}
+		catch (final IOException e) {
+			// Correcto
+		}
+
+		storage.storePart("ID", 1, new ByteArrayInputStream("456".getBytes())); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertEquals(3, storage.countParts("ID")); //$NON-NLS-1$
+		Assert.assertEquals(10, storage.commitParts("ID", 3)); //$NON-NLS-1$
+		Assert.assertEquals(0, storage.countParts("ID")); //$NON-NLS-1$
+		Assert.assertEquals(10, storage.size("ID")); //$NON-NLS-1$
+
+		// Los tramos se recuperan sin eliminar los datos
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Assert.assertTrue(storage.retrieveRange("ID", 0, 4, out)); //$NON-NLS-1$
+		Assert.assertTrue(storage.retrieveRange("ID", 4, 100, out)); //$NON-NLS-1$
+		Assert.assertEquals("0123456789", new String(out.toByteArray())); //$NON-NLS-1$
+
+		storage.remove("ID"); //$NON-NLS-1$
+		Assert.assertEquals(-1, storage.size("ID")); //$NON-NLS-1$
+		Assert.assertFalse(storage.retrieveRange("ID", 0, 4, new ByteArrayOutputStream())); //$NON-NLS-1$
+	}
+}
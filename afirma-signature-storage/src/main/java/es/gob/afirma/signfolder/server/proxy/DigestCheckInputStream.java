@@ -0,0 +1,84 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+/** Flujo de lectura que calcula la huella de los datos seg&uacute;n se leen y, al llegar al
+ * final, la compara con la esperada. Si no coinciden, la &uacute;ltima lectura lanza una
+ * {@link DigestMismatchException} en lugar de indicar el final de los datos, de forma que el
+ * almacenamiento descarta lo le&iacute;do. */
+final class DigestCheckInputStream extends DigestInputStream {
+
+	private final String expectedDigest;
+
+	private boolean checked = false;
+
+	/** Crea el flujo de lectura.
+	 * @param in Flujo con los datos.
+	 * @param md Algoritmo con el que calcular la huella.
+	 * @param expectedDigest Huella esperada en hexadecimal. */
+	DigestCheckInputStream(final InputStream in, final MessageDigest md, final String expectedDigest) {
+		super(in, md);
+		this.expectedDigest = expectedDigest;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int c = super.read();
+		if (c == -1) {
+			check();
+		}
+		return c;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final int n = super.read(b, off, len);
+		if (n == -1) {
+			check();
+		}
+		return n;
+	}
+
+	private void check() throws DigestMismatchException {
+		if (!this.checked) {
+			this.checked = true;
+			final String digest = toHex(getMessageDigest().digest());
+			if (!digest.equalsIgnoreCase(this.expectedDigest)) {
+				throw new DigestMismatchException();
+			}
+		}
+	}
+
+	/** Codifica unos datos en hexadecimal.
+	 * @param data Datos a codificar.
+	 * @return Texto hexadecimal. */
+	private static String toHex(final byte[] data) {
+		final StringBuilder hex = new StringBuilder(data.length * 2);
+		for (final byte b : data) {
+			hex.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/** Excepci&oacute;n que indica que la huella de los datos le&iacute;dos no es la esperada. */
+	static final class DigestMismatchException extends IOException {
+
+		private static final long serialVersionUID = -2712462733036373432L;
+
+		DigestMismatchException() {
+			super("La huella de los datos recibidos no coincide con la indicada"); //$NON-NLS-1$
+		}
+	}
+}
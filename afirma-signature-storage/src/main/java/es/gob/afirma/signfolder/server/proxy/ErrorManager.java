@@ -25,6 +25,7 @@ final class ErrorManager {
 	static final String ERROR_INVALID_DATA               = "ERR-07"; //$NON-NLS-1$
 	static final String ERROR_COMMUNICATING_WITH_WEB	 = "ERR-18"; //$NON-NLS-1$
 	static final String ERROR_MISSING_SYNTAX_VERSION	 = "ERR-20"; //$NON-NLS-1$
+	static final String ERROR_INVALID_DATA_DIGEST		 = "ERR-21"; //$NON-NLS-1$
 
 	private static final AbstractMap<String, String> ERRORS = new HashMap<String, String>();
 	static {
@@ -35,6 +36,7 @@ final class ErrorManager {
 		ERRORS.put(ERROR_INVALID_DATA,               "Los datos solicitados o enviados son inv\u00E1lidos");                      //$NON-NLS-1$
 		ERRORS.put(ERROR_COMMUNICATING_WITH_WEB,     "No se ha podido enviar la firma generada a la Web de origen");              //$NON-NLS-1$
 		ERRORS.put(ERROR_MISSING_SYNTAX_VERSION,     "No se ha indicado la versi\u00F3n de la sintaxis de la operaci\u00F3n");    //$NON-NLS-1$
+		ERRORS.put(ERROR_INVALID_DATA_DIGEST,        "La huella de los datos no coincide con la indicada");                       //$NON-NLS-1$
 	}
 
 	private ErrorManager() {
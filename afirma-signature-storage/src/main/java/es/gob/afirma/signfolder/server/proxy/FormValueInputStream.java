@@ -0,0 +1,125 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.signfolder.server.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Flujo de lectura del valor de un par&aacute;metro de un formulario codificado como
+ * <code>application/x-www-form-urlencoded</code>. Lee del flujo subyacente hasta el
+ * separador de par&aacute;metros o el final de los datos, descodificando al vuelo las
+ * secuencias de escape URL, de forma que no es necesario cargar el valor completo en memoria.
+ * Al cerrarlo no se cierra el flujo subyacente. */
+final class FormValueInputStream extends InputStream {
+
+	private static final int PARAMS_SEPARATOR = '&';
+
+	private final InputStream in;
+
+	private final boolean decode;
+
+	private final boolean separated;
+
+	private boolean finished = false;
+
+	private long count = 0;
+
+	private final long maxSize;
+
+	/** Crea el flujo de lectura de un valor que termina en el separador de par&aacute;metros.
+	 * @param in Flujo de datos posicionado al inicio del valor.
+	 * @param decode Si se deben descodificar las secuencias de escape URL.
+	 * @param maxSize N&uacute;mero m&aacute;ximo de octetos que se pueden leer o 0 si no hay l&iacute;mite. */
+	FormValueInputStream(final InputStream in, final boolean decode, final long maxSize) {
+		this(in, decode, maxSize, true);
+	}
+
+	/** Crea el flujo de lectura del valor.
+	 * @param in Flujo de datos posicionado al inicio del valor.
+	 * @param decode Si se deben descodificar las secuencias de escape URL.
+	 * @param maxSize N&uacute;mero m&aacute;ximo de octetos que se pueden leer o 0 si no hay l&iacute;mite.
+	 * @param separated Si el valor termina en el separador de par&aacute;metros o s&oacute;lo
+	 *                  al final del flujo. */
+	FormValueInputStream(final InputStream in, final boolean decode, final long maxSize, final boolean separated) {
+		this.in = in;
+		this.decode = decode;
+		this.maxSize = maxSize;
+		this.separated = separated;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (this.finished) {
+			return -1;
+		}
+		int c = this.in.read();
+		if (c == -1 || this.separated && c == PARAMS_SEPARATOR) {
+			this.finished = true;
+			return -1;
+		}
+		if (this.decode) {
+			if (c == '+') {
+				c = ' ';
+			}
+			else if (c == '%') {
+				final int h = Character.digit(this.in.read(), 16);
+				final int l = Character.digit(this.in.read(), 16);
+				if (h < 0 || l < 0) {
+					throw new IOException("Secuencia de escape URL invalida en los datos"); //$NON-NLS-1$
+				}
+				c = h << 4 | l;
+			}
+		}
+		if (this.maxSize > 0 && ++this.count > this.maxSize) {
+			throw new DataSizeExceededException(this.maxSize);
+		}
+		return c;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		int n = 0;
+		int c;
+		while (n < len && (c = read()) != -1) {
+			b[off + n++] = (byte) c;
+		}
+		return n == 0 ? -1 : n;
+	}
+
+	/** Lee el valor completo como texto.
+	 * @return Valor le&iacute;do.
+	 * @throws IOException Cuando ocurre un error de lectura. */
+	String readFully() throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		int c;
+		while ((c = read()) != -1) {
+			sb.append((char) c);
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public void close() {
+		// No se cierra el flujo subyacente
+	}
+
+	/** Excepci&oacute;n que indica que el valor supera el tama&ntilde;o m&aacute;ximo permitido. */
+	static final class DataSizeExceededException extends IOException {
+
+		private static final long serialVersionUID = 4529218427637683226L;
+
+		DataSizeExceededException(final long maxSize) {
+			super("Los datos superan el tamano maximo permitido: " + maxSize); //$NON-NLS-1$
+		}
+	}
+}
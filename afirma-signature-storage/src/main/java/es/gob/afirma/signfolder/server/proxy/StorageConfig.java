@@ -16,6 +16,8 @@ import java.io.InputStream;
 import java.util.Properties;
 import java.util.logging.Logger;
 
+import es.gob.afirma.signfolder.server.proxy.storage.TempDataStorage;
+
 /** Configuraci&oacute;n para la gesti&oacute;n del almacenamiento temporal de ficheros en servidor. */
 final class StorageConfig {
 
@@ -57,6 +59,9 @@ final class StorageConfig {
 	/** Modo de depuraci&oacute;n activo o no, en el que no se borran los ficheros en servidor ni se dan por caducados. */
 	static final boolean DEBUG;
 
+	/** Configuraci&oacute;n para el almacenamiento temporal, con los valores ya resueltos. */
+	private static final Properties STORAGE_CONFIG;
+
 	private static final long EXPIRATION_TIME;
 
 	private static final int MAX_SIZE;
@@ -170,6 +175,15 @@ final class StorageConfig {
 			maxSize = DEFAULT_MAX_SIZE;
 		}
 		MAX_SIZE = maxSize;
+
+		final Properties storageConfig = new Properties();
+		for (final String key : config.stringPropertyNames()) {
+			storageConfig.setProperty(key, getProperty(config, key, null));
+		}
+		storageConfig.setProperty(TempDataStorage.CONFIG_TMP_DIR, TMP_DIR.getAbsolutePath());
+		storageConfig.setProperty(TempDataStorage.CONFIG_EXPIRATION_TIME, Long.toString(EXPIRATION_TIME));
+		storageConfig.setProperty(TempDataStorage.CONFIG_DEBUG, Boolean.toString(DEBUG));
+		STORAGE_CONFIG = storageConfig;
 	}
 
 	/** Recupera el directorio configurado para la creaci&oacute;n de ficheros temporales o el por defecto.
@@ -194,6 +208,12 @@ final class StorageConfig {
 		return MAX_SIZE;
 	}
 
+	/** Recupera la configuraci&oacute;n con la que construir el almacenamiento temporal.
+	 * @return Configuraci&oacute;n del almacenamiento con las variables de entorno ya traducidas. */
+	static Properties getStorageConfig() {
+		return STORAGE_CONFIG;
+	}
+
 	/**
 	 * Carga una propiedad de la configuraci&oacute;n traduciendo su contenido por lo indicado
 	 * mediante variables de entorno si es necesario.
@@ -9,33 +9,40 @@
 
 package es.gob.afirma.signfolder.server.proxy;
 
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
 import java.io.PrintWriter;
-import java.net.URLDecoder;
-import java.util.Hashtable;
+import java.io.PushbackInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletException;
-import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import es.gob.afirma.signfolder.server.proxy.storage.ChunkedTempDataStorage;
+import es.gob.afirma.signfolder.server.proxy.storage.TempDataStorage;
+import es.gob.afirma.signfolder.server.proxy.storage.TempDataStorageFactory;
+
 /** Servicio de almacenamiento temporal de firmas. &Uacute;til para servir de intermediario en comunicaci&oacute;n
  * entre JavaScript y aplicaciones nativas.
+ * Si el almacenamiento lo permite, los datos pueden enviarse por partes con la versi&oacute;n
+ * {@value #SYNTAX_VERSION_CHUNKED} de la sintaxis: la operaci&oacute;n {@code status} indica
+ * cu&aacute;ntas partes consecutivas se han recibido ya, cada parte se env&iacute;a con la
+ * operaci&oacute;n {@code put} indicando su n&uacute;mero y su huella SHA-256 y la operaci&oacute;n
+ * {@code commit} une las partes recibidas. Los servicios que no admiten esta versi&oacute;n
+ * responden a {@code status} con un error de operaci&oacute;n no soportada.
  * @author Tom&aacute;s Garc&iacute;a-;er&aacute;s. */
 public final class StorageService extends HttpServlet {
 
 	private static final long serialVersionUID = -3272368448371213403L;
 
-	/** Codificaci&oacute;n de texto. */
-	private static final String DEFAULT_ENCODING = "utf-8"; //$NON-NLS-1$
-
 	/** <i>Log</i> para registrar las acciones del servicio. */
 	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma");  //$NON-NLS-1$
 
@@ -51,10 +58,45 @@ public final class StorageService extends HttpServlet {
 	/** Nombre del par&aacute;metro con los datos a firmar. */
 	private static final String PARAMETER_NAME_DATA = "dat"; //$NON-NLS-1$
 
+	/** Nombre del par&aacute;metro con el n&uacute;mero de la parte de los datos enviada. */
+	private static final String PARAMETER_NAME_PART = "part"; //$NON-NLS-1$
+
+	/** Nombre del par&aacute;metro con el n&uacute;mero total de partes de los datos. */
+	private static final String PARAMETER_NAME_PARTS = "parts"; //$NON-NLS-1$
+
+	/** Nombre del par&aacute;metro con la huella en hexadecimal de la parte enviada. */
+	private static final String PARAMETER_NAME_DIGEST = "dig"; //$NON-NLS-1$
+
+	/** Versi&oacute;n de la sintaxis que permite la transferencia por partes. */
+	static final String SYNTAX_VERSION_CHUNKED = "2_0"; //$NON-NLS-1$
+
+	/** Algoritmo de las huellas de las partes. */
+	private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
 	private static final String OPERATION_STORE = "put"; //$NON-NLS-1$
 	private static final String OPERATION_CHECK = "check"; //$NON-NLS-1$
+	private static final String OPERATION_STATUS = "status"; //$NON-NLS-1$
+	private static final String OPERATION_COMMIT = "commit"; //$NON-NLS-1$
 	private static final String SUCCESS = "OK"; //$NON-NLS-1$
 
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Almacenamiento temporal de los datos. */
+	private transient TempDataStorage storage = null;
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+		this.storage = TempDataStorageFactory.getStorage(StorageConfig.getStorageConfig());
+	}
+
+	@Override
+	public void destroy() {
+		TempDataStorageFactory.releaseStorage(this.storage);
+		this.storage = null;
+		super.destroy();
+	}
+
 	@Override
 	protected void service(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
 
@@ -74,46 +116,47 @@ public final class StorageService extends HttpServlet {
 
 		LOGGER.info(" == INICIO GUARDADO"); //$NON-NLS-1$
 
-		final String operation;
-		final String syntaxVersion;
-		final String id;
-		final String data;
+		final Map<String, String> params = new HashMap<String, String>();
+		InputStream data = null;
 
 		if (request.getMethod().equalsIgnoreCase("GET")) { //$NON-NLS-1$
-			operation     = request.getParameter(PARAMETER_NAME_OPERATION);
-			syntaxVersion = request.getParameter(PARAMETER_NAME_SYNTAX_VERSION);
-			id            = request.getParameter(PARAMETER_NAME_ID);
-			data          = request.getParameter(PARAMETER_NAME_DATA);
+			params.put(PARAMETER_NAME_OPERATION, request.getParameter(PARAMETER_NAME_OPERATION));
+			params.put(PARAMETER_NAME_SYNTAX_VERSION, request.getParameter(PARAMETER_NAME_SYNTAX_VERSION));
+			params.put(PARAMETER_NAME_ID, request.getParameter(PARAMETER_NAME_ID));
+			params.put(PARAMETER_NAME_PART, request.getParameter(PARAMETER_NAME_PART));
+			params.put(PARAMETER_NAME_PARTS, request.getParameter(PARAMETER_NAME_PARTS));
+			params.put(PARAMETER_NAME_DIGEST, request.getParameter(PARAMETER_NAME_DIGEST));
+			final String dataParam = request.getParameter(PARAMETER_NAME_DATA);
+			if (dataParam != null) {
+				data = new FormValueInputStream(new ByteArrayInputStream(dataParam.getBytes()), true, getMaxDataSize(), false);
+			}
 		}
 		else {
 
-			// Leemos la entrada
-			int n;
-			final byte[] buffer = new byte[1024];
-			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			final ServletInputStream sis = request.getInputStream();
-			while ((n = sis.read(buffer)) > 0) {
-				baos.write(buffer, 0, n);
-			}
-			baos.close();
-			sis.close();
-
-			// Separamos los parametros y sus valores
-			final Hashtable<String, String> params = new Hashtable<String, String>();
-			final String[] urlParams = new String(baos.toByteArray()).split("&"); //$NON-NLS-1$
-			for (final String param : urlParams) {
-				final int equalsPos = param.indexOf('=');
-				if (equalsPos != -1) {
-					params.put(param.substring(0, equalsPos), param.substring(equalsPos + 1));
+			// Leemos los parametros de la entrada segun llegan. Si cuando llegan los datos ya
+			// conocemos la operacion y su identificador, los guardamos directamente desde la
+			// entrada sin cargarlos en memoria
+			final InputStream is = new BufferedInputStream(request.getInputStream(), BUFFER_SIZE);
+			String key;
+			while ((key = readParameterName(is)) != null) {
+				if (PARAMETER_NAME_DATA.equals(key)) {
+					if (isStoreRequest(params)) {
+						store(out, params, new FormValueInputStream(is, true, getMaxDataSize()), this.storage);
+						out.flush();
+						LOGGER.info(" == FIN GUARDADO"); //$NON-NLS-1$
+						return;
+					}
+					final byte[] rawData = new FormValueInputStream(is, false, 0).readFully().getBytes();
+					data = new FormValueInputStream(new ByteArrayInputStream(rawData), true, getMaxDataSize());
+				}
+				else {
+					params.put(key, new FormValueInputStream(is, false, 0).readFully());
 				}
 			}
-
-			operation     = params.get(PARAMETER_NAME_OPERATION);
-			syntaxVersion = params.get(PARAMETER_NAME_SYNTAX_VERSION);
-			id            = params.get(PARAMETER_NAME_ID);
-			data          = params.get(PARAMETER_NAME_DATA);
+			is.close();
 		}
 
+		final String operation = params.get(PARAMETER_NAME_OPERATION);
 		if (operation == null) {
 			LOGGER.warning("No se ha indicado codigo de operacion"); //$NON-NLS-1$
 			out.println(ErrorManager.genError(ErrorManager.ERROR_MISSING_OPERATION_NAME));
@@ -121,7 +164,7 @@ public final class StorageService extends HttpServlet {
 			return;
 		}
 
-		if (syntaxVersion == null) {
+		if (params.get(PARAMETER_NAME_SYNTAX_VERSION) == null) {
 			LOGGER.warning("No se ha indicado la version del formato de llamada"); //$NON-NLS-1$
 			out.println(ErrorManager.genError(ErrorManager.ERROR_MISSING_SYNTAX_VERSION));
 			out.flush();
@@ -129,7 +172,13 @@ public final class StorageService extends HttpServlet {
 		}
 
 		if (OPERATION_STORE.equalsIgnoreCase(operation)) {
-			storeSign(out, id, data);
+			store(out, params, data, this.storage);
+		}
+		else if (OPERATION_STATUS.equalsIgnoreCase(operation)) {
+			sendStatus(out, params, this.storage);
+		}
+		else if (OPERATION_COMMIT.equalsIgnoreCase(operation)) {
+			commitParts(out, params, this.storage);
 		}
 		else {
 			out.println(ErrorManager.genError(ErrorManager.ERROR_UNSUPPORTED_OPERATION_NAME));
@@ -137,98 +186,270 @@ public final class StorageService extends HttpServlet {
 		out.flush();
 
 		LOGGER.info(" == FIN GUARDADO"); //$NON-NLS-1$
+	}
 
-		// Antes de salir revisamos todos los ficheros y eliminamos los caducados.
-		removeExpiredFiles();
+	/** Indica si los par&aacute;metros recibidos hasta el momento bastan para guardar los datos.
+	 * @param params Par&aacute;metros recibidos.
+	 * @return {@code true} si es una operaci&oacute;n de guardado completa. */
+	private static boolean isStoreRequest(final Map<String, String> params) {
+		return OPERATION_STORE.equalsIgnoreCase(params.get(PARAMETER_NAME_OPERATION))
+				&& params.get(PARAMETER_NAME_SYNTAX_VERSION) != null
+				&& params.get(PARAMETER_NAME_ID) != null;
 	}
 
-	/** Almacena una firma en servidor.
+	/** Lee el nombre del siguiente par&aacute;metro de un formulario, descartando los
+	 * par&aacute;metros sin valor.
+	 * @param is Flujo de entrada posicionado al inicio de un par&aacute;metro.
+	 * @return Nombre del par&aacute;metro o {@code null} si no hay m&aacute;s.
+	 * @throws IOException Cuando ocurre un error de lectura. */
+	private static String readParameterName(final InputStream is) throws IOException {
+		final StringBuilder name = new StringBuilder();
+		int c;
+		while ((c = is.read()) != -1) {
+			if (c == '=') {
+				return name.toString();
+			}
+			if (c == '&') {
+				name.setLength(0);
+			}
+			else {
+				name.append((char) c);
+			}
+		}
+		return null;
+	}
+
+	/** Obtiene el tama&ntilde;o m&aacute;ximo de los datos a almacenar.
+	 * @return Tama&ntilde;o m&aacute;ximo en octetos o 0 si no hay l&iacute;mite. */
+	private static long getMaxDataSize() {
+		return StorageConfig.DEBUG ? 0 : StorageConfig.getMaxDataSize();
+	}
+
+	/** Almacena los datos recibidos completos o, si se indica un n&uacute;mero de parte,
+	 * como una parte de ellos.
 	 * @param out Respuesta a la petici&oacute;n.
-	 * @param id Identificador de los datos a almacenar.
-	 * @param data Datos a almacenar.
+	 * @param params Par&aacute;metros recibidos.
+	 * @param data Flujo con los datos ya descodificados o {@code null} si no se recibieron.
+	 * @param storage Almacenamiento temporal.
 	 * @throws IOException Cuando ocurre un error al general la respuesta. */
-	private static void storeSign(final PrintWriter out,
-								  final String id,
-								  final String data) throws IOException {
-		if (id == null) {
-			LOGGER.severe(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
-			out.println(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
-			return;
+	private static void store(final PrintWriter out,
+							  final Map<String, String> params,
+							  final InputStream data,
+							  final TempDataStorage storage) throws IOException {
+		if (params.get(PARAMETER_NAME_PART) != null
+				&& SYNTAX_VERSION_CHUNKED.equals(params.get(PARAMETER_NAME_SYNTAX_VERSION))) {
+			storePart(out, params, data, storage);
+		}
+		else {
+			storeSign(out, params.get(PARAMETER_NAME_ID), data, storage);
 		}
+	}
 
-		LOGGER.info("Se solicita guardar un fichero con el identificador: " + id); //$NON-NLS-1$
+	/** Almacena una parte de los datos comprobando su huella.
+	 * @param out Respuesta a la petici&oacute;n.
+	 * @param params Par&aacute;metros recibidos.
+	 * @param data Flujo con los datos ya descodificados o {@code null} si no se recibieron.
+	 * @param storage Almacenamiento temporal.
+	 * @throws IOException Cuando ocurre un error al general la respuesta. */
+	private static void storePart(final PrintWriter out,
+								  final Map<String, String> params,
+								  final InputStream data,
+								  final TempDataStorage storage) throws IOException {
 
-		String dataText;
-		if (data == null || data.isEmpty()) {
-			LOGGER.severe(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA));
-			// Si no se indican los datos, se transmite el error en texto plano
-			// a traves del fichero generado
-			dataText = ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA);
+		final ChunkedTempDataStorage chunkedStorage = getChunkedStorage(out, params, storage);
+		if (chunkedStorage == null) {
+			return;
 		}
-		else {
-			dataText = URLDecoder.decode(data, DEFAULT_ENCODING);
-			if (StorageConfig.getMaxDataSize() > 0 && dataText.getBytes().length > StorageConfig.getMaxDataSize() && !StorageConfig.DEBUG) {
-				LOGGER.warning(
-					"El tamano de los datos (" + dataText.getBytes().length + ") es mayor de lo permitido: " + StorageConfig.getMaxDataSize() //$NON-NLS-1$ //$NON-NLS-2$
-				);
-				dataText = ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA);
-			}
+		final String id = params.get(PARAMETER_NAME_ID);
+		final int part = parseNumber(params.get(PARAMETER_NAME_PART));
+		final String digest = params.get(PARAMETER_NAME_DIGEST);
+		if (part < 0 || digest == null) {
+			LOGGER.warning("No se ha indicado un numero de parte o una huella validos para los datos: " + id); //$NON-NLS-1$
+			out.println(ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA));
+			return;
+		}
+		if (data == null) {
+			LOGGER.warning(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA));
+			out.println(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA));
+			return;
 		}
 
-		if (!StorageConfig.getTempDir().isDirectory()) {
-			StorageConfig.getTempDir().mkdirs();
+		final MessageDigest md;
+		try {
+			md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		}
+		catch (final NoSuchAlgorithmException e) {
+			throw new IOException("No se puede calcular la huella de los datos", e); //$NON-NLS-1$
 		}
 
-		final File outFile = new File(StorageConfig.getTempDir(), id);
 		try {
-			final OutputStream fos = new FileOutputStream(outFile);
-			final BufferedOutputStream bos = new BufferedOutputStream(fos);
-			bos.write(dataText.getBytes());
-			bos.flush();
-			bos.close();
-			fos.close();
+			chunkedStorage.storePart(id, part, new DigestCheckInputStream(data, md, digest));
+		}
+		catch (final DigestCheckInputStream.DigestMismatchException e) {
+			LOGGER.warning("La huella de la parte " + part + " de los datos " + id + " no es correcta"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			out.println(ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA_DIGEST));
+			return;
+		}
+		catch (final FormValueInputStream.DataSizeExceededException e) {
+			LOGGER.warning("El tamano de la parte es mayor de lo permitido: " + StorageConfig.getMaxDataSize()); //$NON-NLS-1$
+			out.println(ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA));
+			return;
 		}
 		catch (final IOException e) {
-			LOGGER.severe("No se ha podido generar el fichero temporal para el envio de datos a la web: " + e); //$NON-NLS-1$
+			LOGGER.severe("No se ha podido guardar la parte " + part + " de los datos " + id + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			out.println(ErrorManager.genError(ErrorManager.ERROR_COMMUNICATING_WITH_WEB));
 			return;
 		}
 
-		LOGGER.info("Se guardo correctamente el fichero: " + outFile.getAbsolutePath()); //$NON-NLS-1$
+		out.print(SUCCESS);
+	}
+
+	/** Indica cu&aacute;ntas partes consecutivas de los datos se han recibido ya, con la forma
+	 * {@code OK:n}.
+	 * @param out Respuesta a la petici&oacute;n.
+	 * @param params Par&aacute;metros recibidos.
+	 * @param storage Almacenamiento temporal. */
+	private static void sendStatus(final PrintWriter out,
+								   final Map<String, String> params,
+								   final TempDataStorage storage) {
+		final ChunkedTempDataStorage chunkedStorage = getChunkedStorage(out, params, storage);
+		if (chunkedStorage != null) {
+			out.print(SUCCESS + ":" + chunkedStorage.countParts(params.get(PARAMETER_NAME_ID))); //$NON-NLS-1$
+		}
+	}
+
+	/** Une las partes recibidas de los datos para que puedan recuperarse.
+	 * @param out Respuesta a la petici&oacute;n.
+	 * @param params Par&aacute;metros recibidos.
+	 * @param storage Almacenamiento temporal.
+	 * @throws IOException Cuando ocurre un error al general la respuesta. */
+	private static void commitParts(final PrintWriter out,
+									final Map<String, String> params,
+									final TempDataStorage storage) throws IOException {
+
+		final ChunkedTempDataStorage chunkedStorage = getChunkedStorage(out, params, storage);
+		if (chunkedStorage == null) {
+			return;
+		}
+		final String id = params.get(PARAMETER_NAME_ID);
+		final int parts = parseNumber(params.get(PARAMETER_NAME_PARTS));
+		if (parts < 1) {
+			LOGGER.warning("No se ha indicado un numero de partes valido para los datos: " + id); //$NON-NLS-1$
+			out.println(ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA));
+			return;
+		}
+
+		final long size;
+		try {
+			size = chunkedStorage.commitParts(id, parts);
+		}
+		catch (final IOException e) {
+			LOGGER.warning("No se han podido unir las partes de los datos " + id + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			out.println(ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA));
+			return;
+		}
+
+		// Igual que en el envio completo, si se supera el tamano maximo se transmite el error
+		// a traves de los datos guardados
+		if (getMaxDataSize() > 0 && size > getMaxDataSize()) {
+			LOGGER.warning(
+				"El tamano de los datos es mayor de lo permitido: " + StorageConfig.getMaxDataSize() //$NON-NLS-1$
+			);
+			storage.store(id, new ByteArrayInputStream(ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA).getBytes()));
+		}
+
+		LOGGER.info("Se unieron " + parts + " partes de los datos con el identificador: " + id); //$NON-NLS-1$ //$NON-NLS-2$
 
 		out.print(SUCCESS);
 	}
 
-	/**
-	 * Elimina del directorio temporal todos los ficheros que hayan sobrepasado el tiempo m&aacute;ximo
-	 * de vida configurado.
-	 */
-	private static void removeExpiredFiles() {
-		if (StorageConfig.getTempDir() != null && StorageConfig.getTempDir().isDirectory()) {
-			if (StorageConfig.DEBUG) {
-				// No se limpia el directorio temporal por estar en modo depuracion
-				return;
+	/** Obtiene el almacenamiento por partes si la petici&oacute;n es v&aacute;lida para
+	 * &eacute;l. Si no lo es, se responde con el error correspondiente.
+	 * @param out Respuesta a la petici&oacute;n.
+	 * @param params Par&aacute;metros recibidos.
+	 * @param storage Almacenamiento temporal.
+	 * @return Almacenamiento por partes o {@code null} si no se puede usar. */
+	private static ChunkedTempDataStorage getChunkedStorage(final PrintWriter out,
+															final Map<String, String> params,
+															final TempDataStorage storage) {
+		if (!SYNTAX_VERSION_CHUNKED.equals(params.get(PARAMETER_NAME_SYNTAX_VERSION))
+				|| !(storage instanceof ChunkedTempDataStorage)) {
+			LOGGER.warning("No se admite la transferencia por partes con la version de sintaxis: " //$NON-NLS-1$
+				+ params.get(PARAMETER_NAME_SYNTAX_VERSION));
+			out.println(ErrorManager.genError(ErrorManager.ERROR_UNSUPPORTED_OPERATION_NAME));
+			return null;
+		}
+		if (params.get(PARAMETER_NAME_ID) == null) {
+			LOGGER.warning(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
+			out.println(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
+			return null;
+		}
+		return (ChunkedTempDataStorage) storage;
+	}
+
+	/** Obtiene el valor num&eacute;rico de un par&aacute;metro.
+	 * @param value Valor del par&aacute;metro.
+	 * @return N&uacute;mero o -1 si no se indic&oacute; o no es un n&uacute;mero v&aacute;lido. */
+	private static int parseNumber(final String value) {
+		if (value == null) {
+			return -1;
+		}
+		try {
+			return Math.max(-1, Integer.parseInt(value));
+		}
+		catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/** Almacena una firma en servidor.
+	 * @param out Respuesta a la petici&oacute;n.
+	 * @param id Identificador de los datos a almacenar.
+	 * @param data Flujo con los datos ya descodificados o {@code null} si no se recibieron.
+	 * @param storage Almacenamiento temporal.
+	 * @throws IOException Cuando ocurre un error al general la respuesta. */
+	private static void storeSign(final PrintWriter out,
+								  final String id,
+								  final InputStream data,
+								  final TempDataStorage storage) throws IOException {
+		if (id == null) {
+			LOGGER.severe(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
+			out.println(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA_ID));
+			return;
+		}
+
+		LOGGER.info("Se solicita guardar un fichero con el identificador: " + id); //$NON-NLS-1$
+
+		try {
+			final PushbackInputStream dataStream = data != null ? new PushbackInputStream(data) : null;
+			final int first = dataStream != null ? dataStream.read() : -1;
+			if (first == -1) {
+				LOGGER.severe(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA));
+				// Si no se indican los datos, se transmite el error en texto plano
+				// a traves del fichero generado
+				storage.store(id, new ByteArrayInputStream(ErrorManager.genError(ErrorManager.ERROR_MISSING_DATA).getBytes()));
 			}
-			for (final File file : StorageConfig.getTempDir().listFiles()) {
+			else {
+				dataStream.unread(first);
 				try {
-					if (file.isFile() && isExpired(file, StorageConfig.getExpirationTime())) {
-						file.delete();
-					}
+					storage.store(id, dataStream);
 				}
-				catch(final Exception e) {
-					// Suponemos que el fichero ha sido eliminado por otro hilo
+				catch (final FormValueInputStream.DataSizeExceededException e) {
 					LOGGER.warning(
-						"No se ha podido eliminar el fichero '" + file.getAbsolutePath() + "', es probable que se elimine en otro hilo de ejecucion: " + e //$NON-NLS-1$ //$NON-NLS-2$
+						"El tamano de los datos es mayor de lo permitido: " + StorageConfig.getMaxDataSize() //$NON-NLS-1$
 					);
+					storage.store(id, new ByteArrayInputStream(ErrorManager.genError(ErrorManager.ERROR_INVALID_DATA).getBytes()));
 				}
 			}
 		}
-	}
-
-	private static boolean isExpired(final File file, final long expirationTimeLimit) {
-		if (StorageConfig.DEBUG) {
-			return false;
+		catch (final IOException e) {
+			LOGGER.severe("No se ha podido generar el fichero temporal para el envio de datos a la web: " + e); //$NON-NLS-1$
+			out.println(ErrorManager.genError(ErrorManager.ERROR_COMMUNICATING_WITH_WEB));
+			return;
 		}
-		return System.currentTimeMillis() - file.lastModified() > expirationTimeLimit;
+
+		LOGGER.info("Se guardaron correctamente los datos con el identificador: " + id); //$NON-NLS-1$
+
+		out.print(SUCCESS);
 	}
 }
@@ -32,7 +32,7 @@ Version=1.9
 Type=Application
 Terminal=false
 Categories=Office;Utilities;Signature;Java
-Exec=java -Djdk.tls.maxHandshakeMessageSize=65536 -jar %{_libdir}/%{name}/%{name}.jar %u
+Exec=%{_bindir}/%{name} %u
 Name=Autofirma
 Icon=%{_libdir}/%{name}/%{name}.png
 GenericName=Herramienta de firma
@@ -48,7 +48,13 @@ EOF
 
 cat > %{name} <<EOF
 #!/bin/bash
-java -Djdk.tls.maxHandshakeMessageSize=65536 -jar %{_libdir}/%{name}/%{name}.jar "\$@"
+# Si se genero durante la instalacion, se usa el archivo de clases compartidas (AppCDS)
+# para reducir el tiempo de arranque
+CDS_OPTS=""
+if [ -f %{_libdir}/%{name}/%{name}.jsa ]; then
+  CDS_OPTS="-XX:+IgnoreUnrecognizedVMOptions -XX:SharedArchiveFile=%{_libdir}/%{name}/%{name}.jsa -Xshare:auto"
+fi
+java \$CDS_OPTS -Djdk.tls.maxHandshakeMessageSize=65536 -jar %{_libdir}/%{name}/%{name}.jar "\$@"
 EOF
 
 cat > es.gob.afirma.metainfo.xml <<EOF
@@ -113,6 +119,11 @@ install -m 0755 %{name}.js %{buildroot}%{_libdir}/firefox/defaults/pref
 %post
 java -Djava.awt.headless=true -jar %{_libdir}/%{name}/%{name}Configurador.jar -install
 
+# Generamos el archivo de clases compartidas (AppCDS) con la JVM instalada para reducir el
+# tiempo de arranque. Requiere Java 13 o superior y, si no se puede generar, se prescinde de el
+rm -f %{_libdir}/%{name}/%{name}.jsa
+java -XX:ArchiveClassesAtExit=%{_libdir}/%{name}/%{name}.jsa -Djava.awt.headless=true -cp %{_libdir}/%{name}/%{name}.jar es.gob.afirma.standalone.ClassDataSharingTrainer > /dev/null 2>&1 || rm -f %{_libdir}/%{name}/%{name}.jsa
+
 if [ -e /usr/share/applications/mimeapps.list ]; then
   echo x-scheme-handler/afirma=%{name}.desktop >> /usr/share/applications/mimeapps.list
 else
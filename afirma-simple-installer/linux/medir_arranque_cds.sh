@@ -0,0 +1,52 @@
+#!/bin/bash
+# Mide el tiempo de arranque de AutoFirma con y sin el archivo de clases compartidas (AppCDS).
+#
+# Uso: medir_arranque_cds.sh [autofirma.jar] [repeticiones]
+#
+# Genera el archivo con la JVM del sistema mediante la ejecucion de entrenamiento y despues
+# ejecuta varias veces la misma carga (arranque, firma y validacion por linea de comandos en
+# CAdES, XAdES y PAdES) sin el archivo y con el, mostrando el tiempo medio de cada caso.
+# Requiere Java 13 o superior.
+
+JAR=${1:-/usr/lib/AutoFirma/autofirma.jar}
+RUNS=${2:-10}
+TRAINER=es.gob.afirma.standalone.ClassDataSharingTrainer
+ARCHIVE=$(mktemp -u /tmp/autofirma-XXXXXX.jsa)
+
+if [ ! -f "$JAR" ]; then
+	echo "No se encuentra el JAR de AutoFirma: $JAR"
+	exit 1
+fi
+
+echo "Generando el archivo de clases compartidas..."
+if ! java -XX:ArchiveClassesAtExit="$ARCHIVE" -Djava.awt.headless=true -cp "$JAR" $TRAINER > /dev/null 2>&1 || [ ! -f "$ARCHIVE" ]; then
+	echo "No se ha podido generar el archivo de clases compartidas (se requiere Java 13 o superior)"
+	exit 1
+fi
+
+# Devuelve el tiempo medio en milisegundos de las ejecuciones con las opciones indicadas
+measure() {
+	local total=0
+	for i in $(seq 1 "$RUNS"); do
+		local start=$(date +%s%N)
+		java "$@" -Djava.awt.headless=true -cp "$JAR" $TRAINER > /dev/null 2>&1
+		local end=$(date +%s%N)
+		total=$((total + (end - start) / 1000000))
+	done
+	echo $((total / RUNS))
+}
+
+# Ejecucion previa para que los ficheros esten en la cache del sistema en ambos casos
+java -Djava.awt.headless=true -cp "$JAR" $TRAINER > /dev/null 2>&1
+
+WITHOUT=$(measure -Xshare:auto)
+WITH=$(measure -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto)
+rm -f "$ARCHIVE"
+
+echo "Java: $(java -version 2>&1 | head -1)"
+echo "Repeticiones: $RUNS"
+echo "Sin archivo de clases compartidas: $WITHOUT ms"
+echo "Con archivo de clases compartidas: $WITH ms"
+if [ "$WITHOUT" -gt 0 ]; then
+	echo "Mejora: $(( (WITHOUT - WITH) * 100 / WITHOUT ))%"
+fi
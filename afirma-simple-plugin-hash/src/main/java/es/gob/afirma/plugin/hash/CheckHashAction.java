@@ -6,10 +6,8 @@ import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveAction;
@@ -18,27 +16,15 @@ import java.util.logging.Logger;
 
 /**
  * Acci&oacute;n que, recursivamente, calcular&aacute; el hash de ficheros de un directorio
- * utilizando hilos.
+ * utilizando hilos. Si se le proporcionan el tama&ntilde;o y la fecha de modificaci&oacute;n
+ * registrados para los ficheros, s&oacute;lo calcular&aacute; la huella de aquellos que
+ * hayan cambiado y dar&aacute; por buenos el resto.
  */
 public class CheckHashAction extends RecursiveAction {
 
 	/** Serial Id. */
 	private static final long serialVersionUID = 9133180415134836622L;
 
-	/** Listado de ficheros de los que nunca se calculara el hash. */
-	private final static Set<String> FILES_TO_AVOID = new HashSet<>(
-		Arrays.asList(
-			".fseventsd", //$NON-NLS-1$
-			".Spotlight-V100", //$NON-NLS-1$
-			".Trashes", //$NON-NLS-1$
-			"._.Trashes", //$NON-NLS-1$
-			".DS_Store", //$NON-NLS-1$
-			".desktop", //$NON-NLS-1$
-			"thumbs.db", //$NON-NLS-1$
-			"$Recycle.Bin" //$NON-NLS-1$
-		)
-	);
-
 	private static final Logger LOGGER = Logger.getLogger(CheckHashAction.class.getName());
 
 	private final Path basePath;
@@ -46,29 +32,47 @@ public class CheckHashAction extends RecursiveAction {
 	private final boolean recursive;
 	private final String digestAlgorithm;
 	private final Map<String, byte[]> hashes;
+	private final Map<String, FileStamp> stamps;
 	private final HashReport report;
 	private final ForkJoinPool pool;
 
 	public CheckHashAction(final Path basePath, final File dataFile, final HashDocument hashDocument,
 			final HashReport report, final ForkJoinPool pool) {
+		this(basePath, dataFile, hashDocument, false, report, pool);
+	}
 
-		this.basePath = basePath;
-		this.dataFile = dataFile;
-		this.recursive = hashDocument.isRecursive();
-		this.digestAlgorithm = hashDocument.getAlgorithm();
-		this.hashes = hashDocument.getHashes();
-		this.report = report;
-		this.pool = pool;
+	/**
+	 * Crea la acci&oacute;n de comprobaci&oacute;n.
+	 * @param basePath Directorio base respecto al que se expresan las rutas del documento.
+	 * @param dataFile Fichero o directorio a comprobar.
+	 * @param hashDocument Documento de huellas.
+	 * @param onlyChanged Indica si s&oacute;lo debe calcularse la huella de los ficheros
+	 * cuyo tama&ntilde;o o fecha de modificaci&oacute;n no coincidan con los registrados
+	 * en el documento.
+	 * @param report Informe en el que registrar el resultado.
+	 * @param pool Grupo de hilos en el que se ejecuta la acci&oacute;n.
+	 */
+	public CheckHashAction(final Path basePath, final File dataFile, final HashDocument hashDocument,
+			final boolean onlyChanged, final HashReport report, final ForkJoinPool pool) {
+		this(basePath, dataFile, hashDocument.isRecursive(), hashDocument.getAlgorithm(), hashDocument.getHashes(),
+				onlyChanged && !hashDocument.getStamps().isEmpty() ? hashDocument.getStamps() : null, report, pool);
 	}
 
 	public CheckHashAction(final Path basePath, final File dataFile, final boolean recursive, final String algorithm,
 			final Map<String, byte[]> hashes, final HashReport report, final ForkJoinPool pool) {
+		this(basePath, dataFile, recursive, algorithm, hashes, null, report, pool);
+	}
+
+	private CheckHashAction(final Path basePath, final File dataFile, final boolean recursive, final String algorithm,
+			final Map<String, byte[]> hashes, final Map<String, FileStamp> stamps, final HashReport report,
+			final ForkJoinPool pool) {
 
 		this.basePath = basePath;
 		this.dataFile = dataFile;
 		this.recursive = recursive;
 		this.digestAlgorithm = algorithm;
 		this.hashes = hashes;
+		this.stamps = stamps;
 		this.report = report;
 		this.pool = pool;
 	}
@@ -77,7 +81,7 @@ public class CheckHashAction extends RecursiveAction {
 	protected void compute() {
 
 		if (this.dataFile.isFile()) {
-			if (!this.dataFile.getName().contains("~$") && !FILES_TO_AVOID.contains(this.dataFile.getName())) { //$NON-NLS-1$
+			if (!HashUtil.isExcludedFile(this.dataFile)) {
 				processing();
 			}
 		}
@@ -86,7 +90,7 @@ public class CheckHashAction extends RecursiveAction {
 			for (final File file : this.dataFile.listFiles()) {
 				// Solo procesaremos los subdirectorios si es un proceso recursivo
 				if (this.recursive || file.isFile()) {
-					tasks.add(new CheckHashAction(this.basePath, file, this.recursive, this.digestAlgorithm, this.hashes, this.report, this.pool));
+					tasks.add(new CheckHashAction(this.basePath, file, this.recursive, this.digestAlgorithm, this.hashes, this.stamps, this.report, this.pool));
 				}
 			}
 			if (!this.pool.isShutdown()) {
@@ -103,6 +107,13 @@ public class CheckHashAction extends RecursiveAction {
 		if (previousHash == null) {
 			this.report.reportFileWithoutHash(path);
 		}
+		// Si se registraron el tamano y la fecha del fichero y no han cambiado, lo damos por bueno
+		else if (isUnchanged(path)) {
+			this.report.reportMatchingHash(path);
+			synchronized (this.hashes) {
+				this.hashes.remove(path);
+			}
+		}
 		// Si habia un hash, calculamos el hash del fichero y comprobamos si coincide o no
 		else {
 
@@ -132,4 +143,12 @@ public class CheckHashAction extends RecursiveAction {
 			}
 		}
 	}
+
+	private boolean isUnchanged(final String path) {
+		if (this.stamps == null) {
+			return false;
+		}
+		final FileStamp stamp = this.stamps.get(path);
+		return stamp != null && stamp.matches(this.dataFile);
+	}
 }
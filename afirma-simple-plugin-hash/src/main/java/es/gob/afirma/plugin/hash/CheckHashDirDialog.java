@@ -23,7 +23,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.StringWriter;
-import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,8 +30,6 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -58,7 +55,6 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import es.gob.afirma.core.AOCancelledOperationException;
-import es.gob.afirma.core.misc.AOUtil;
 import es.gob.afirma.core.misc.Platform;
 import es.gob.afirma.core.ui.AOUIFactory;
 import es.gob.afirma.standalone.plugins.UIFactory;
@@ -406,32 +402,43 @@ public final class CheckHashDirDialog extends JDialog implements KeyListener {
 	 */
 	public static void checkHash(final Path dir, final File hashDocumentPath, final HashReport report)
 			throws IOException, DocumentException, CorruptedDocumentException {
+		checkHash(dir, hashDocumentPath, false, report);
+	}
 
-		// Cargamos el documento de hashes
-		final byte[] hashDocumentContent = loadData(hashDocumentPath.getAbsolutePath());
+	/**
+	 * Analiza el fichero para identificar si se trata de alguno de los formatos soportados
+	 * de documentos de hashes y comprueba que los hashes de los ficheros del directorio
+	 * indicado se correspondan con los del documento.
+	 * @param dir Directorio seleccionado.
+	 * @param hashDocumentPath Ruta del documento de hashes.
+	 * @param onlyChanged Indica si s&oacute;lo debe calcularse la huella de los ficheros
+	 * cuyo tama&ntilde;o o fecha de modificaci&oacute;n difieran de los registrados en el
+	 * documento. El resto se dan por correctos. Si el documento no registra estos datos,
+	 * se comprueban todos los ficheros.
+	 * @param report Informe en el que registrar el resultado de la comprobaci&oacute;n.
+	 * @throws IOException Error al abrir o cerrar el fichero seleccionado.
+	 * @throws DocumentException Cuando se proporcione un documento de hashes no soportado.
+	 * @throws CorruptedDocumentException Cuando se ha identificado que el documento est&aacute; corrupto.
+	 */
+	public static void checkHash(final Path dir, final File hashDocumentPath, final boolean onlyChanged,
+			final HashReport report) throws IOException, DocumentException, CorruptedDocumentException {
 
-		final HashDocument hashDocument = HashDocumentFactory.loadDocument(hashDocumentContent, getExtension(hashDocumentPath));
+		final long startTime = new Date().getTime();
 
-		// El informe se genera en base a la misma configuracion que tuviese el documento de hashes
-		report.setAlgorithm(hashDocument.getAlgorithm());
-		report.setRecursive(hashDocument.isRecursive());
+		// Recorremos el documento de hashes comprobando cada entrada segun se lee
+		try (final HashDocumentReader reader = HashDocumentFactory.openDocument(
+				hashDocumentPath, getExtension(hashDocumentPath))) {
 
-		final long startTime = new Date().getTime();
+			// El informe se genera en base a la misma configuracion que tuviese el documento de hashes
+			report.setAlgorithm(reader.getAlgorithm());
+			report.setRecursive(reader.isRecursive());
 
-		final ForkJoinPool pool = new ForkJoinPool(10);
-		final RecursiveAction recursiveAction = new CheckHashAction(
-				dir, dir.toFile(), hashDocument, report, pool);
-		pool.invoke(recursiveAction);
-		recursiveAction.join();
+			HashDocumentChecker.check(dir, reader, onlyChanged, report);
+		}
 
 		final long processTime = new Date().getTime() - startTime;
 		LOGGER.info("Tiempo total de comprobacion de hashes: " + processTime / 1000.0 + " seg"); //$NON-NLS-1$ //$NON-NLS-2$
 		LOGGER.info("Numero de ficheros procesados: " + report.getProcessedFilesCount()); //$NON-NLS-1$
-
-		// Agregamos al informe las entradas que no se procesaron
-		for (final String pathname : hashDocument.getHashes().keySet()) {
-			report.reportHashWithoutFile(pathname);
-		}
 	}
 
 	/** Genera el XML donde est&aacute;n almacenadas las comparaciones de las
@@ -634,23 +641,6 @@ public final class CheckHashDirDialog extends JDialog implements KeyListener {
 		}
 	}
 
-	/**
-	 * Carga los datos de un fichero.
-	 * @param path Ruta del fichero del que cargar los datos.
-	 * @return Contenido del fichero.
-	 * @throws IOException Cuando no se puede completar la carga de los datos.
-	 */
-	private static byte[] loadData(final String path) throws IOException {
-		URI pathUri;
-		try {
-			pathUri = AOUtil.createURI(path);
-		}
-		catch (final Exception e) {
-			throw new IOException("No se pudo componer la ruta del fichero", e); //$NON-NLS-1$
-		}
-		return AOUtil.getDataFromInputStream(AOUtil.loadFile(pathUri));
-	}
-
 	/**
 	 * Recupera la extensi&oacute;n del fichero.
 	 * @param file Fichero.
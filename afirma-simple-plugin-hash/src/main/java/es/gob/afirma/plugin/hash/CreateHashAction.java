@@ -5,11 +5,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveAction;
@@ -18,7 +15,7 @@ import java.util.logging.Logger;
 
 /**
  * Acci&oacute;n que, recursivamente, calcular&aacute; el hash de ficheros de un directorio
- * utilizando hilos.
+ * utilizando hilos. Cada huella se notifica al {@link HashListener} en cuanto se obtiene.
  */
 public class CreateHashAction extends RecursiveAction {
 
@@ -27,35 +24,26 @@ public class CreateHashAction extends RecursiveAction {
 
 	private static final Logger LOGGER = Logger.getLogger(CreateHashAction.class.getName());
 
-	/** Listado de ficheros de los que nunca se calculara el hash. */
-	private final static Set<String> FILES_TO_AVOID = new HashSet<>(
-		Arrays.asList(
-			".fseventsd", //$NON-NLS-1$
-			".Spotlight-V100", //$NON-NLS-1$
-			".Trashes", //$NON-NLS-1$
-			"._.Trashes", //$NON-NLS-1$
-			".DS_Store", //$NON-NLS-1$
-			".desktop", //$NON-NLS-1$
-			"thumbs.db", //$NON-NLS-1$
-			"$Recycle.Bin" //$NON-NLS-1$
-		)
-	);
-
 	private final Path basePath;
 	private final File dataFile;
 	private final boolean recursive;
 	private final String digestAlgorithm;
-	private final Map<String, byte[]> result;
+	private final HashListener listener;
 	private final ForkJoinPool pool;
 
 	public CreateHashAction(final Path basePath, final File dataFile, final boolean recursive, final String digestAlgorithm,
 			final Map<String, byte[]> result, final ForkJoinPool pool) {
+		this(basePath, dataFile, recursive, digestAlgorithm, new HashCollector(result, false), pool);
+	}
+
+	public CreateHashAction(final Path basePath, final File dataFile, final boolean recursive, final String digestAlgorithm,
+			final HashListener listener, final ForkJoinPool pool) {
 
 		this.basePath = basePath;
 		this.dataFile = dataFile;
 		this.recursive = recursive;
 		this.digestAlgorithm = digestAlgorithm;
-		this.result = result;
+		this.listener = listener;
 		this.pool = pool;
 	}
 
@@ -63,7 +51,7 @@ public class CreateHashAction extends RecursiveAction {
 	protected void compute() {
 
 		if (this.dataFile.isFile()) {
-			if (!this.dataFile.getName().contains("~$") && !FILES_TO_AVOID.contains(this.dataFile.getName())) { //$NON-NLS-1$
+			if (!HashUtil.isExcludedFile(this.dataFile)) {
 				processing();
 			}
 		}
@@ -72,7 +60,7 @@ public class CreateHashAction extends RecursiveAction {
 			for (final File file : this.dataFile.listFiles()) {
 				// Solo procesaremos los subdirectorios si es un proceso recursivo
 				if (this.recursive || file.isFile()) {
-					tasks.add(new CreateHashAction(this.basePath, file, this.recursive, this.digestAlgorithm, this.result, this.pool));
+					tasks.add(new CreateHashAction(this.basePath, file, this.recursive, this.digestAlgorithm, this.listener, this.pool));
 				}
 			}
 			if (!this.pool.isShutdown()) {
@@ -82,10 +70,15 @@ public class CreateHashAction extends RecursiveAction {
 	}
 
 	private void processing() {
-		byte[] hash;
 		try {
-			hash = HashUtil.getFileHash(this.digestAlgorithm, this.dataFile);
-			this.result.put(this.basePath.relativize(Paths.get(this.dataFile.getAbsolutePath())).toString(), hash);
+			// Tomamos la marca antes de leer el fichero para que cualquier cambio
+			// posterior se detecte en futuras comprobaciones
+			final FileStamp stamp = FileStamp.of(this.dataFile);
+			final byte[] hash = HashUtil.getFileHash(this.digestAlgorithm, this.dataFile);
+			this.listener.hashCalculated(
+					this.basePath.relativize(Paths.get(this.dataFile.getAbsolutePath())).toString(),
+					hash,
+					stamp);
 		} catch (final NoSuchAlgorithmException e) {
 			LOGGER.log(Level.SEVERE, "Se ha indicado un algoritmo de hash no soportado", e); //$NON-NLS-1$
 			this.pool.shutdown();
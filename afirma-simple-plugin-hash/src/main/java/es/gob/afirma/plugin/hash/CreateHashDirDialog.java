@@ -26,15 +26,14 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -427,27 +426,59 @@ public final class CreateHashDirDialog extends JDialog implements KeyListener {
 	public static Map<String, byte[]> calculateHashes(final File dir, final boolean recursive,
 			final String hashAlgorithm, final Dialog waitingDialog)
 					throws InterruptedException, ExecutionException {
+		final HashCollector collector = new HashCollector(false);
+		calculateHashes(dir, recursive, hashAlgorithm, collector, waitingDialog);
+		return collector.getHashes();
+	}
+
+	/**
+	 * Calcula los hashes de los ficheros de un directorio, notificando cada uno de ellos
+	 * seg&uacute;n se obtiene.
+	 * @param dir Directorio.
+	 * @param recursive {@code true} para procesar los ficheros de los subdirectorios,
+	 * {@code false} en caso contrario.
+	 * @param hashAlgorithm Algoritmo de hash.
+	 * @param listener Receptor de las huellas calculadas. Se invoca desde varios hilos.
+	 * @param waitingDialog  Di&aacute;logo de espera o {@code null} para no requerir
+	 * interfaz gr&aacute;fica.
+	 * @throws InterruptedException Cuando no se interrumpe la operaci&oacute;n.
+	 * @throws ExecutionException Cuando falla la operaci&oacute;n.
+	 */
+	public static void calculateHashes(final File dir, final boolean recursive,
+			final String hashAlgorithm, final HashListener listener, final Dialog waitingDialog)
+					throws InterruptedException, ExecutionException {
 
 		// Arrancamos el proceso en un hilo aparte
-		final SwingWorker<Map<String, byte[]>, Void> worker = new SwingWorker<Map<String, byte[]>, Void>() {
+		final SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
 
 			@Override
-			protected java.util.Map<String, byte[]> doInBackground() throws Exception {
+			protected Integer doInBackground() throws Exception {
 
-				final Map<String, byte[]> result = Collections.synchronizedMap(new HashMap<>());
+				final AtomicInteger processed = new AtomicInteger();
 
 				final long startTime = new Date().getTime();
 
-				final ForkJoinPool pool = new ForkJoinPool(10);
-				final RecursiveAction recursiveAction = new CreateHashAction(dir.toPath(), dir, recursive, hashAlgorithm, result, pool);
-				pool.invoke(recursiveAction);
-				recursiveAction.join();
+				final ForkJoinPool pool = HashUtil.newHashPool();
+				final RecursiveAction recursiveAction = new CreateHashAction(
+						dir.toPath(), dir, recursive, hashAlgorithm,
+						(path, hash, stamp) -> {
+							listener.hashCalculated(path, hash, stamp);
+							processed.incrementAndGet();
+						},
+						pool);
+				try {
+					pool.invoke(recursiveAction);
+					recursiveAction.join();
+				}
+				finally {
+					pool.shutdown();
+				}
 
 				final long processTime = new Date().getTime() - startTime;
 				LOGGER.info("Tiempo total de generacion en la hashes: " + processTime / 1000.0 + " seg"); //$NON-NLS-1$ //$NON-NLS-2$
-				LOGGER.info("Numero de ficheros procesados: " + result.size()); //$NON-NLS-1$
+				LOGGER.info("Numero de ficheros procesados: " + processed.get()); //$NON-NLS-1$
 
-				return result;
+				return Integer.valueOf(processed.get());
 			}
 
 			@Override
@@ -465,7 +496,7 @@ public final class CreateHashDirDialog extends JDialog implements KeyListener {
 			waitingDialog.setVisible(true);
 		}
 
-		return worker.get();
+		worker.get();
 	}
 
 	/**
@@ -1,7 +1,13 @@
 package es.gob.afirma.plugin.hash;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
 import java.util.logging.Logger;
 
 import es.gob.afirma.core.misc.AOUtil;
@@ -11,23 +17,35 @@ public class CsvHashDocument extends HashDocument {
 	private static final Logger LOGGER = Logger.getLogger(CsvHashDocument.class.getName());
 
 	@Override
-	public byte[] generate() throws DocumentException {
-
-		final Map<String, byte[]> hashes = getHashes();
-		if (hashes == null || hashes.size() < 1) {
-			LOGGER.warning("No hay huellas, se genera un CSV vacio"); //$NON-NLS-1$
-			return new byte[0];
-		}
-		final StringBuilder sb = new StringBuilder();
-		for (final Map.Entry<String, byte[]> entry : hashes.entrySet()) {
-		    sb.append("\"" + entry.getKey() + "\",\"" + AOUtil.hexify(entry.getValue(), false) + "h\"\r\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-		}
-		return sb.toString().getBytes(getCharset() != null ? getCharset() : StandardCharsets.UTF_8);
+	public HashDocumentWriter openWriter(final OutputStream os) {
+		return new CsvHashDocumentWriter(os, getCharset() != null ? getCharset() : StandardCharsets.UTF_8);
 	}
 
 	@Override
-	void load(final byte[] document) throws DocumentException {
+	HashDocumentReader openReader(final InputStream is) {
 		throw new UnsupportedOperationException("No se soporta la validacion de documentos CSV de hashes"); //$NON-NLS-1$
 	}
 
+	/** Escritor de documentos CSV de hashes. */
+	private static final class CsvHashDocumentWriter extends HashDocumentWriter {
+
+		private final Writer writer;
+
+		CsvHashDocumentWriter(final OutputStream os, final Charset charset) {
+			this.writer = new BufferedWriter(new OutputStreamWriter(os, charset));
+		}
+
+		@Override
+		protected void writeEntry(final String path, final byte[] hash, final FileStamp stamp) throws IOException {
+			this.writer.write("\"" + path + "\",\"" + AOUtil.hexify(hash, false) + "h\"\r\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+
+		@Override
+		protected void writeEnd() throws IOException {
+			if (getCount() < 1) {
+				LOGGER.warning("No hay huellas, se genera un CSV vacio"); //$NON-NLS-1$
+			}
+			this.writer.flush();
+		}
+	}
 }
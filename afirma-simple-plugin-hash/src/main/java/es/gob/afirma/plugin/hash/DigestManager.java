@@ -171,7 +171,7 @@ public class DigestManager {
 	 * @param hash2 Segundo digest a ser comparado
 	 * @return true en caso de ser iguales, false en caso contrario
 	 */
-	public static synchronized boolean equalHashes(final byte[ ] hash1, final byte[ ] hash2) {
+	public static boolean equalHashes(final byte[ ] hash1, final byte[ ] hash2) {
 		return MessageDigest.isEqual(hash1, hash2);
 	}
 }
@@ -0,0 +1,61 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.plugin.hash;
+
+import java.io.File;
+
+/**
+ * Tama&ntilde;o y fecha de &uacute;ltima modificaci&oacute;n de un fichero en el momento
+ * de calcular su huella. Permite detectar los ficheros que no han cambiado desde entonces
+ * sin necesidad de volver a leerlos.
+ */
+public final class FileStamp {
+
+	private final long size;
+
+	private final long lastModified;
+
+	/**
+	 * Crea la marca de un fichero.
+	 * @param size Tama&ntilde;o en bytes.
+	 * @param lastModified Fecha de &uacute;ltima modificaci&oacute;n en milisegundos.
+	 */
+	public FileStamp(final long size, final long lastModified) {
+		this.size = size;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Obtiene la marca actual de un fichero.
+	 * @param file Fichero.
+	 * @return Tama&ntilde;o y fecha de &uacute;ltima modificaci&oacute;n del fichero.
+	 */
+	public static FileStamp of(final File file) {
+		return new FileStamp(file.length(), file.lastModified());
+	}
+
+	public long getSize() {
+		return this.size;
+	}
+
+	public long getLastModified() {
+		return this.lastModified;
+	}
+
+	/**
+	 * Indica si el fichero mantiene el tama&ntilde;o y la fecha de modificaci&oacute;n
+	 * de esta marca.
+	 * @param file Fichero a comprobar.
+	 * @return {@code true} si el fichero no parece haber cambiado, {@code false} en caso contrario.
+	 */
+	public boolean matches(final File file) {
+		return this.size == file.length() && this.lastModified == file.lastModified();
+	}
+}
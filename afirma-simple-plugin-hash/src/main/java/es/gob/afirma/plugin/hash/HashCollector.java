@@ -0,0 +1,64 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.plugin.hash;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Receptor de huellas que las acumula en memoria junto con, opcionalmente, el
+ * tama&ntilde;o y la fecha de modificaci&oacute;n de cada fichero.
+ */
+public final class HashCollector implements HashListener {
+
+	private final Map<String, byte[]> hashes;
+
+	private final Map<String, FileStamp> stamps;
+
+	/**
+	 * Crea el receptor.
+	 * @param keepStamps Indica si deben guardarse tambi&eacute;n el tama&ntilde;o y la
+	 * fecha de modificaci&oacute;n de los ficheros.
+	 */
+	public HashCollector(final boolean keepStamps) {
+		this(Collections.synchronizedMap(new HashMap<>()), keepStamps);
+	}
+
+	HashCollector(final Map<String, byte[]> hashes, final boolean keepStamps) {
+		this.hashes = hashes;
+		this.stamps = keepStamps ? Collections.synchronizedMap(new HashMap<>()) : null;
+	}
+
+	@Override
+	public void hashCalculated(final String path, final byte[] hash, final FileStamp stamp) {
+		this.hashes.put(path, hash);
+		if (this.stamps != null) {
+			this.stamps.put(path, stamp);
+		}
+	}
+
+	/**
+	 * Obtiene las huellas recibidas.
+	 * @return Huellas de los ficheros por ruta relativa.
+	 */
+	public Map<String, byte[]> getHashes() {
+		return this.hashes;
+	}
+
+	/**
+	 * Obtiene el tama&ntilde;o y la fecha de modificaci&oacute;n de los ficheros.
+	 * @return Marcas de los ficheros por ruta relativa o {@code null} si no se
+	 * solicit&oacute; guardarlas.
+	 */
+	public Map<String, FileStamp> getStamps() {
+		return this.stamps;
+	}
+}
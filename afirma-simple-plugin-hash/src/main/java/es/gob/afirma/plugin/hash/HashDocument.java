@@ -1,13 +1,24 @@
 package es.gob.afirma.plugin.hash;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Documento con los hashes calculados de los ficheros de un directorio.
+ * Documento con los hashes calculados de los ficheros de un directorio. Adem&aacute;s de
+ * generarse y cargarse completos en memoria, los documentos pueden escribirse y leerse
+ * entrada a entrada mediante {@link #openWriter(OutputStream)} y
+ * {@link #openReader(InputStream)}, lo que permite tratar directorios con cualquier
+ * n&uacute;mero de ficheros.
  */
 public abstract class HashDocument {
 
@@ -15,6 +26,8 @@ public abstract class HashDocument {
 
 	private Map<String, byte[]> hashes;
 
+	private Map<String, FileStamp> stamps;
+
 	private boolean recursive;
 
 	private String algorithm;
@@ -23,6 +36,7 @@ public abstract class HashDocument {
 
 	public HashDocument() {
 		this.hashes = new HashMap<>();
+		this.stamps = new HashMap<>();
 		this.recursive = false;
 		this.algorithm = DEFAULT_ALGORITHM;
 		this.charset = StandardCharsets.UTF_8;
@@ -36,6 +50,24 @@ public abstract class HashDocument {
 		this.hashes = hashes;
 	}
 
+	/**
+	 * Obtiene el tama&ntilde;o y la fecha de modificaci&oacute;n registrados para los
+	 * ficheros. S&oacute;lo algunos formatos de documento los almacenan.
+	 * @return Marcas de los ficheros por ruta relativa. Puede estar vac&iacute;o.
+	 */
+	public Map<String, FileStamp> getStamps() {
+		return this.stamps;
+	}
+
+	/**
+	 * Establece el tama&ntilde;o y la fecha de modificaci&oacute;n de los ficheros para
+	 * que se registren en el documento, si su formato lo permite.
+	 * @param stamps Marcas de los ficheros por ruta relativa.
+	 */
+	public void setStamps(final Map<String, FileStamp> stamps) {
+		this.stamps = stamps != null ? stamps : new HashMap<>();
+	}
+
 	public boolean isRecursive() {
 		return this.recursive;
 	}
@@ -65,7 +97,59 @@ public abstract class HashDocument {
 	 * @return Contenido del documento.
 	 * @throws DocumentException Cuando ocurre un error durante la generaci&oacute;n del documento.
 	 */
-	public abstract byte[] generate() throws DocumentException;
+	public byte[] generate() throws DocumentException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (final HashDocumentWriter writer = openWriter(baos)) {
+			final Map<String, FileStamp> stamps = getStamps();
+			for (final Map.Entry<String, byte[]> entry : getHashes().entrySet()) {
+				writer.hashCalculated(entry.getKey(), entry.getValue(), stamps.get(entry.getKey()));
+			}
+		}
+		catch (final IOException e) {
+			throw new DocumentException("Error al componer el documento de hashes", e); //$NON-NLS-1$
+		}
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Abre un escritor que compone el documento de hashes sobre un flujo de salida
+	 * seg&uacute;n se le notifican las huellas, con el algoritmo, la recursividad y el
+	 * juego de caracteres configurados en este documento.
+	 * @param os Flujo de salida. No se cierra al cerrar el escritor.
+	 * @return Escritor del documento.
+	 * @throws DocumentException Cuando no se puede componer el documento.
+	 * @throws IOException Cuando falla la escritura de la cabecera del documento.
+	 */
+	public abstract HashDocumentWriter openWriter(OutputStream os) throws DocumentException, IOException;
+
+	/**
+	 * Abre un lector que recorre las entradas de un documento de hashes. Se comprueba la
+	 * cabecera del documento, pero no el resto de su estructura, que se valida seg&uacute;n
+	 * se leen las entradas.
+	 * @param is Flujo de entrada con el documento. Se cierra al cerrar el lector.
+	 * @return Lector del documento.
+	 * @throws DocumentException Cuando el documento no tiene el formato esperado.
+	 * @throws IOException Cuando no se puede leer el documento.
+	 */
+	abstract HashDocumentReader openReader(InputStream is) throws DocumentException, IOException;
+
+	/**
+	 * Abre un lector que recorre las entradas de un fichero de hashes.
+	 * @param file Fichero de hashes.
+	 * @return Lector del documento.
+	 * @throws DocumentException Cuando el documento no tiene el formato esperado.
+	 * @throws IOException Cuando no se puede leer el fichero.
+	 */
+	HashDocumentReader openReader(final File file) throws DocumentException, IOException {
+		final InputStream is = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return openReader(is);
+		}
+		catch (final DocumentException | IOException | RuntimeException e) {
+			is.close();
+			throw e;
+		}
+	}
 
 	/**
 	 * Carga un documento de hashes.
@@ -76,5 +160,34 @@ public abstract class HashDocument {
 	 * formato correcto (hasta el momento de identificar el actual problema), pero que los
 	 * datos proporcionados no pueden ser v&aacute;lidos.
 	 */
-	abstract void load(byte[] document) throws DocumentException, IOException, CorruptedDocumentException;
+	void load(final byte[] document) throws DocumentException, IOException, CorruptedDocumentException {
+		try (final HashDocumentReader reader = openReader(new ByteArrayInputStream(document))) {
+			load(reader);
+		}
+	}
+
+	/**
+	 * Carga en memoria todas las entradas de un documento de hashes.
+	 * @param reader Lector del documento.
+	 * @throws DocumentException Cuando el documento de hashes no tiene el formato esperado.
+	 * @throws IOException Cuando no se puede leer el documento.
+	 * @throws CorruptedDocumentException Cuando los datos del documento no pueden ser v&aacute;lidos.
+	 */
+	void load(final HashDocumentReader reader) throws DocumentException, IOException, CorruptedDocumentException {
+		setAlgorithm(reader.getAlgorithm());
+		setRecursive(reader.isRecursive());
+		setCharset(reader.getCharset());
+
+		final Map<String, byte[]> dirEntries = new HashMap<>();
+		final Map<String, FileStamp> dirStamps = new HashMap<>();
+		HashDocumentReader.Entry entry;
+		while ((entry = reader.next()) != null) {
+			dirEntries.put(entry.getPath(), entry.getHash());
+			if (entry.getStamp() != null) {
+				dirStamps.put(entry.getPath(), entry.getStamp());
+			}
+		}
+		setHashes(dirEntries);
+		setStamps(dirStamps);
+	}
 }
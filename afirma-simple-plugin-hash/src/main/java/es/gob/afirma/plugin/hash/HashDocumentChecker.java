@@ -0,0 +1,192 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.plugin.hash;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Comprobador de las huellas de un directorio que procesa las entradas del documento de
+ * huellas seg&uacute;n se leen. Cada entrada se comprueba en un grupo de hilos mientras se
+ * sigue leyendo el documento, limitando el n&uacute;mero de entradas pendientes para que el
+ * consumo de memoria no dependa del tama&ntilde;o del documento. Al terminar, se recorre el
+ * directorio para identificar los ficheros de los que no hab&iacute;a huella, para lo cual
+ * s&oacute;lo se conservan las rutas de las entradas le&iacute;das.
+ */
+final class HashDocumentChecker {
+
+	private static final Logger LOGGER = Logger.getLogger(HashDocumentChecker.class.getName());
+
+	/** N&uacute;mero de entradas pendientes de comprobar por cada hilo. */
+	private static final int PENDING_ENTRIES_PER_THREAD = 16;
+
+	private HashDocumentChecker() {
+		// No instanciable
+	}
+
+	/**
+	 * Comprueba las huellas de los ficheros de un directorio.
+	 * @param dir Directorio.
+	 * @param reader Lector del documento de huellas.
+	 * @param onlyChanged Indica si s&oacute;lo debe calcularse la huella de los ficheros
+	 * cuyo tama&ntilde;o o fecha de modificaci&oacute;n difieran de los registrados.
+	 * @param report Informe en el que registrar el resultado.
+	 * @throws DocumentException Cuando una entrada del documento no tiene el formato esperado
+	 * o el algoritmo de huella no est&aacute; soportado.
+	 * @throws CorruptedDocumentException Cuando los datos de una entrada no pueden ser v&aacute;lidos.
+	 * @throws IOException Cuando falla la lectura del documento o de los ficheros.
+	 */
+	static void check(final Path dir, final HashDocumentReader reader, final boolean onlyChanged,
+			final HashReport report) throws DocumentException, CorruptedDocumentException, IOException {
+
+		final Path basePath = dir.toAbsolutePath().normalize();
+		final String algorithm = reader.getAlgorithm();
+		final boolean recursive = reader.isRecursive();
+
+		final Set<String> listed = new HashSet<>();
+		final AtomicReference<Exception> error = new AtomicReference<>();
+
+		final ForkJoinPool pool = HashUtil.newHashPool();
+		final Semaphore pending = new Semaphore(pool.getParallelism() * PENDING_ENTRIES_PER_THREAD);
+		try {
+			HashDocumentReader.Entry entry;
+			while (error.get() == null && (entry = reader.next()) != null) {
+
+				final String path = entry.getPath();
+				if (!listed.add(path)) {
+					LOGGER.warning("Se ignora una entrada duplicada en el documento de huellas: " + path); //$NON-NLS-1$
+					continue;
+				}
+
+				final File file = resolve(basePath, path, recursive);
+				if (file == null) {
+					report.reportHashWithoutFile(path);
+					continue;
+				}
+
+				pending.acquireUninterruptibly();
+				final HashDocumentReader.Entry current = entry;
+				pool.execute(() -> {
+					try {
+						checkEntry(current, file, algorithm, onlyChanged, report);
+					}
+					catch (final Exception e) {
+						error.compareAndSet(null, e);
+					}
+					finally {
+						pending.release();
+					}
+				});
+			}
+
+			pool.shutdown();
+			while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+				// Esperamos a que terminen las comprobaciones en curso
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Se interrumpio la comprobacion de las huellas", e); //$NON-NLS-1$
+		}
+		finally {
+			pool.shutdownNow();
+		}
+
+		if (error.get() instanceof NoSuchAlgorithmException) {
+			LOGGER.log(Level.SEVERE, "Se ha indicado un algoritmo de hash no soportado", error.get()); //$NON-NLS-1$
+			throw new DocumentException("El algoritmo de huella del documento no esta soportado: " + algorithm, error.get()); //$NON-NLS-1$
+		}
+		if (error.get() != null) {
+			LOGGER.log(Level.SEVERE, "Error al calcular el hash de un fichero", error.get()); //$NON-NLS-1$
+			throw new IOException("Error al calcular el hash de un fichero", error.get()); //$NON-NLS-1$
+		}
+
+		// Buscamos los ficheros del directorio de los que no habia huella
+		reportFilesWithoutHash(basePath, basePath.toFile(), recursive, listed, report);
+	}
+
+	/**
+	 * Obtiene el fichero al que hace referencia una entrada del documento.
+	 * @return Fichero o {@code null} si no existe, queda fuera del directorio o no se
+	 * habr&iacute;a procesado al generar el documento.
+	 */
+	private static File resolve(final Path basePath, final String path, final boolean recursive) {
+		final Path filePath;
+		try {
+			filePath = basePath.resolve(path).normalize();
+		}
+		catch (final InvalidPathException e) {
+			return null;
+		}
+		if (!filePath.startsWith(basePath) || !Files.isRegularFile(filePath)) {
+			return null;
+		}
+		if (!recursive && basePath.relativize(filePath).getNameCount() > 1) {
+			return null;
+		}
+		final File file = filePath.toFile();
+		return HashUtil.isExcludedFile(file) ? null : file;
+	}
+
+	private static void checkEntry(final HashDocumentReader.Entry entry, final File file, final String algorithm,
+			final boolean onlyChanged, final HashReport report) throws NoSuchAlgorithmException, IOException {
+
+		// Si se registraron el tamano y la fecha del fichero y no han cambiado, lo damos por bueno
+		if (onlyChanged && entry.getStamp() != null && entry.getStamp().matches(file)) {
+			report.reportMatchingHash(entry.getPath());
+			return;
+		}
+
+		final byte[] calculateHash = HashUtil.getFileHash(algorithm, file);
+		if (Arrays.equals(entry.getHash(), calculateHash)) {
+			report.reportMatchingHash(entry.getPath());
+		}
+		else {
+			report.reportNoMatchingHash(entry.getPath());
+		}
+	}
+
+	private static void reportFilesWithoutHash(final Path basePath, final File dir, final boolean recursive,
+			final Set<String> listed, final HashReport report) {
+
+		final File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (final File file : files) {
+			if (file.isFile()) {
+				if (!HashUtil.isExcludedFile(file)) {
+					final String path = basePath.relativize(Paths.get(file.getAbsolutePath())).toString();
+					if (!listed.contains(path)) {
+						report.reportFileWithoutHash(path);
+					}
+				}
+			}
+			// Solo procesaremos los subdirectorios si es un proceso recursivo
+			else if (recursive) {
+				reportFilesWithoutHash(basePath, file, recursive, listed, report);
+			}
+		}
+	}
+}
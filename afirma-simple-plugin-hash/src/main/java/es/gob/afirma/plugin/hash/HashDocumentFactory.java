@@ -1,5 +1,7 @@
 package es.gob.afirma.plugin.hash;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -55,22 +57,68 @@ public class HashDocumentFactory {
 
 	static HashDocument loadDocument(final byte[] data, final String ext)
 			throws DocumentException, CorruptedDocumentException {
+		return loadHashDocument(data, getDefaultHashDocumentClass(ext));
+	}
+
+	/**
+	 * Abre un lector con el que recorrer las entradas de un fichero de hashes sin
+	 * cargarlo completo en memoria. Se prueba primero con el formato asociado a la
+	 * extensi&oacute;n del fichero y, si no se corresponde, con el resto.
+	 * @param file Fichero de hashes.
+	 * @param ext Extensi&oacute;n del fichero.
+	 * @return Lector del documento.
+	 * @throws DocumentException Cuando el documento no tiene ninguno de los formatos soportados.
+	 * @throws IOException Cuando no se puede leer el fichero.
+	 */
+	static HashDocumentReader openDocument(final File file, final String ext)
+			throws DocumentException, IOException {
+
+		final String defaultHashDocumentClass = getDefaultHashDocumentClass(ext);
+
+		// Si hay un formato por defecto seleccionado, probamos primero con ese
+		if (defaultHashDocumentClass != null) {
+			try {
+				return loadHashDocumentClass(defaultHashDocumentClass).openReader(file);
+			}
+			catch (final FileNotFoundException e) {
+				throw e;
+			}
+			catch (final Exception e) {
+				LOGGER.warning("El formato del documento de hashes de entrada no se corresponde con el que declara"); //$NON-NLS-1$
+			}
+		}
 
-		String defaultHashDocumentClass = null;
+		// No habia formato por defecto o no se correspondia con el del fichero, asi
+		// que probamos con el resto de formatos
+		for (final String hashDocumentClassname : HASH_DOCUMENT_CLASSES) {
+			if (!hashDocumentClassname.equals(defaultHashDocumentClass)) {
+				try {
+					return loadHashDocumentClass(hashDocumentClassname).openReader(file);
+				}
+				catch (final Exception e) {
+					LOGGER.log(Level.INFO, String.format("El manejador %s no soporta el fichero de hashes indicado", hashDocumentClassname)); //$NON-NLS-1$
+				}
+			}
+		}
+
+		// El documento no cumple con los requisitos de ningun formato soportado
+		throw new DocumentException("El formato del documento de hashes seleccionado no esta soportado"); //$NON-NLS-1$
+	}
+
+	private static String getDefaultHashDocumentClass(final String ext) {
+		if (ext == null) {
+			return null;
+		}
 		switch (ext) {
 		case FORMAT_XML:
 		case EXT_HASHFILES_XML:
-			defaultHashDocumentClass = CLASS_HASHDOCUMENT_XML;
-			break;
+			return CLASS_HASHDOCUMENT_XML;
 		case FORMAT_TXT:
 		case EXT_HASHFILES_TXT:
-			defaultHashDocumentClass = CLASS_HASHDOCUMENT_TXT;
-			break;
-			default:
-			break;
+			return CLASS_HASHDOCUMENT_TXT;
+		default:
+			return null;
 		}
-
-		return loadHashDocument(data, defaultHashDocumentClass);
 	}
 
 
@@ -99,12 +147,16 @@ public class HashDocumentFactory {
 		// No habia formato por defecto o no se correspondia con el del fichero, asi
 		// que probamos con el resto de formatos
 		for (final String hashDocumentClassname : HASH_DOCUMENT_CLASSES) {
-			if (hashDocumentClassname != defaultHashDocumentClass) {
-				final HashDocument hashDocument = loadHashDocumentClass(defaultHashDocumentClass);
+			if (!hashDocumentClassname.equals(defaultHashDocumentClass)) {
+				final HashDocument hashDocument = loadHashDocumentClass(hashDocumentClassname);
 				try {
-
+					hashDocument.load(data);
 					return hashDocument;
 				}
+				catch (final CorruptedDocumentException e) {
+					LOGGER.severe("Se ha identificado que el documento esta corrupto o ha sido manipulado"); //$NON-NLS-1$
+					throw e;
+				}
 				catch (final Exception e) {
 					LOGGER.log(Level.INFO, String.format("El manejador %s no soporta el fichero de hashes indicado", hashDocumentClassname)); //$NON-NLS-1$
 				}
@@ -0,0 +1,102 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.plugin.hash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lector que recorre las entradas de un documento de huellas de una en una, sin cargar
+ * el documento completo en memoria. La configuraci&oacute;n del documento (algoritmo,
+ * recursividad y juego de caracteres) est&aacute; disponible desde su creaci&oacute;n.
+ * Al cerrarlo se cierra el flujo del que lee.
+ */
+public abstract class HashDocumentReader implements Closeable {
+
+	private String algorithm = "SHA-256"; //$NON-NLS-1$
+
+	private boolean recursive = false;
+
+	private Charset charset = StandardCharsets.UTF_8;
+
+	public String getAlgorithm() {
+		return this.algorithm;
+	}
+
+	protected void setAlgorithm(final String algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	public boolean isRecursive() {
+		return this.recursive;
+	}
+
+	protected void setRecursive(final boolean recursive) {
+		this.recursive = recursive;
+	}
+
+	public Charset getCharset() {
+		return this.charset;
+	}
+
+	protected void setCharset(final Charset charset) {
+		this.charset = charset;
+	}
+
+	/**
+	 * Lee la siguiente entrada del documento.
+	 * @return Entrada le&iacute;da o {@code null} si no quedan m&aacute;s.
+	 * @throws DocumentException Cuando la entrada no tiene el formato esperado.
+	 * @throws CorruptedDocumentException Cuando la entrada tiene el formato esperado
+	 * pero sus datos no pueden ser v&aacute;lidos.
+	 * @throws IOException Cuando no se puede leer el documento.
+	 */
+	public abstract Entry next() throws DocumentException, CorruptedDocumentException, IOException;
+
+	/** Entrada de un documento de huellas. */
+	public static final class Entry {
+
+		private final String path;
+		private final byte[] hash;
+		private final FileStamp stamp;
+
+		Entry(final String path, final byte[] hash, final FileStamp stamp) {
+			this.path = path;
+			this.hash = hash;
+			this.stamp = stamp;
+		}
+
+		/**
+		 * Obtiene la ruta del fichero relativa al directorio.
+		 * @return Ruta del fichero.
+		 */
+		public String getPath() {
+			return this.path;
+		}
+
+		/**
+		 * Obtiene la huella registrada para el fichero.
+		 * @return Huella del fichero.
+		 */
+		public byte[] getHash() {
+			return this.hash;
+		}
+
+		/**
+		 * Obtiene el tama&ntilde;o y fecha de modificaci&oacute;n registrados para el fichero.
+		 * @return Marca del fichero o {@code null} si el documento no la registra.
+		 */
+		public FileStamp getStamp() {
+			return this.stamp;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.plugin.hash;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Escritor que compone un documento de huellas directamente sobre un flujo de salida
+ * seg&uacute;n se le van notificando las huellas, sin mantenerlas en memoria. La cabecera
+ * del documento se escribe al crearlo y el cierre al invocar a {@link #close()}, que no
+ * cierra el flujo de salida.
+ * <p>Puede recibir las huellas desde varios hilos a la vez. Los errores de escritura que se
+ * produzcan al recibirlas se lanzan al cerrar el escritor.</p>
+ */
+public abstract class HashDocumentWriter implements HashListener, Closeable {
+
+	private IOException error = null;
+
+	private int count = 0;
+
+	private boolean closed = false;
+
+	@Override
+	public final synchronized void hashCalculated(final String path, final byte[] hash, final FileStamp stamp) {
+		if (this.error != null || this.closed) {
+			return;
+		}
+		try {
+			writeEntry(path, hash, stamp);
+			this.count++;
+		}
+		catch (final IOException e) {
+			this.error = e;
+		}
+	}
+
+	/**
+	 * Obtiene el n&uacute;mero de entradas escritas.
+	 * @return N&uacute;mero de entradas.
+	 */
+	public synchronized int getCount() {
+		return this.count;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		if (this.error != null) {
+			throw this.error;
+		}
+		writeEnd();
+	}
+
+	/**
+	 * Escribe una entrada del documento.
+	 * @param path Ruta relativa del fichero.
+	 * @param hash Huella del fichero.
+	 * @param stamp Tama&ntilde;o y fecha de modificaci&oacute;n del fichero o {@code null}
+	 * si no deben registrarse.
+	 * @throws IOException Cuando falla la escritura.
+	 */
+	protected abstract void writeEntry(String path, byte[] hash, FileStamp stamp) throws IOException;
+
+	/**
+	 * Escribe el final del documento y vuelca los datos pendientes al flujo de salida.
+	 * @throws IOException Cuando falla la escritura.
+	 */
+	protected abstract void writeEnd() throws IOException;
+}
@@ -0,0 +1,29 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.plugin.hash;
+
+/**
+ * Receptor de las huellas calculadas sobre los ficheros de un directorio. Se le notifica
+ * cada huella seg&uacute;n se obtiene, por lo que puede ir componiendo el documento de
+ * huellas sin esperar al final del proceso.
+ * <p>Las notificaciones se realizan desde los hilos de c&aacute;lculo, por lo que las
+ * implementaciones deben ser seguras ante accesos concurrentes.</p>
+ */
+public interface HashListener {
+
+	/**
+	 * Notifica la huella de un fichero.
+	 * @param path Ruta del fichero relativa al directorio procesado.
+	 * @param hash Huella digital del fichero.
+	 * @param stamp Tama&ntilde;o y fecha de modificaci&oacute;n del fichero antes de
+	 * calcular la huella.
+	 */
+	void hashCalculated(String path, byte[] hash, FileStamp stamp);
+}
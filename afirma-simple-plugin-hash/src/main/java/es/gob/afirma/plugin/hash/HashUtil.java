@@ -10,12 +10,22 @@
 package es.gob.afirma.plugin.hash;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
 import es.gob.afirma.standalone.plugins.AfirmaPlugin;
@@ -26,6 +36,32 @@ public final class HashUtil {
 
 	private static final Logger LOGGER = Logger.getLogger(HashUtil.class.getName());
 
+	/** Tama&ntilde;o del b&uacute;fer de lectura de cada hilo. */
+	private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+	/** B&uacute;fer directo de lectura de cada hilo. Se reutiliza entre ficheros para no
+	 * reservar memoria por cada uno de ellos y evitar copias intermedias en el mont&iacute;culo. */
+	private static final ThreadLocal<ByteBuffer> READ_BUFFER =
+			ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER_SIZE));
+
+	/** Instancias de los algoritmos de huella usados por cada hilo. */
+	private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS =
+			ThreadLocal.withInitial(HashMap::new);
+
+	/** Listado de ficheros de los que nunca se calculara el hash. */
+	private static final Set<String> FILES_TO_AVOID = new HashSet<>(
+		Arrays.asList(
+			".fseventsd", //$NON-NLS-1$
+			".Spotlight-V100", //$NON-NLS-1$
+			".Trashes", //$NON-NLS-1$
+			"._.Trashes", //$NON-NLS-1$
+			".DS_Store", //$NON-NLS-1$
+			".desktop", //$NON-NLS-1$
+			"thumbs.db", //$NON-NLS-1$
+			"$Recycle.Bin" //$NON-NLS-1$
+		)
+	);
+
 	private HashUtil() {
 		// No instanciable
 	}
@@ -61,14 +97,51 @@ public final class HashUtil {
 	 * @throws NoSuchAlgorithmException Si no se encuentra el algoritmo de huella. */
 	public static byte[] getFileHash(final String algorithm, final File dataFile) throws NoSuchAlgorithmException, IOException {
 
-		byte[] result;
-		final DigestManager digestManager = new DigestManager(algorithm, null);
-		try (	final FileInputStream in = new FileInputStream(dataFile);
-				final DigestManagerInputStream managerStreamHash = new DigestManagerInputStream(in, digestManager);) {
-			managerStreamHash.readOptimized(DigestManager.SIZE_25MB);
-			result = managerStreamHash.digest();
+		final MessageDigest md = getDigest(algorithm);
+		final ByteBuffer buffer = READ_BUFFER.get();
+		md.reset();
+		buffer.clear();
+		try (final FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				md.update(buffer);
+				buffer.clear();
+			}
+		}
+		catch (final NoSuchFileException e) {
+			throw new FileNotFoundException(e.getMessage());
+		}
+		return md.digest();
+	}
+
+	/** Obtiene la instancia del algoritmo de huella reservada para el hilo actual.
+	 * @param algorithm Algoritmo de huella.
+	 * @return Instancia del algoritmo.
+	 * @throws NoSuchAlgorithmException Si no se encuentra el algoritmo de huella. */
+	private static MessageDigest getDigest(final String algorithm) throws NoSuchAlgorithmException {
+		final Map<String, MessageDigest> digests = DIGESTS.get();
+		MessageDigest md = digests.get(algorithm);
+		if (md == null) {
+			md = MessageDigest.getInstance(algorithm);
+			digests.put(algorithm, md);
 		}
-		return result;
+		return md;
+	}
+
+	/** Indica si un fichero debe excluirse del c&aacute;lculo de huellas de un directorio por
+	 * ser un fichero temporal o de sistema.
+	 * @param file Fichero.
+	 * @return {@code true} si no debe calcularse la huella del fichero, {@code false} en caso contrario. */
+	static boolean isExcludedFile(final File file) {
+		return file.getName().contains("~$") || FILES_TO_AVOID.contains(file.getName()); //$NON-NLS-1$
+	}
+
+	/** Crea el grupo de hilos con el que calcular las huellas de los ficheros de un directorio.
+	 * Los hilos se reparten las tareas por robo de trabajo, por lo que se usa uno por
+	 * procesador disponible.
+	 * @return Grupo de hilos. */
+	static ForkJoinPool newHashPool() {
+		return new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
 	}
 
 	/** Recupera el directorio en el que se encuentra la aplicaci&oacute;n.
@@ -1,13 +1,16 @@
 package es.gob.afirma.plugin.hash;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,6 +23,11 @@ public class TxtHashDocument extends HashDocument {
 	private static final String LINE_HEADER_ALGORITHM = LINE_HEADER_PREFIX + "hashAlgorithm="; //$NON-NLS-1$
 	private static final String LINE_HEADER_RECURSIVE = LINE_HEADER_PREFIX + "recursive="; //$NON-NLS-1$
 
+	private static final String LINE_SEPARATOR = "\r\n"; //$NON-NLS-1$
+
+	/** Bytes del inicio del documento en los que se busca la declaraci&oacute;n del juego de caracteres. */
+	private static final int CHARSET_HEADER_LENGTH = 30;
+
 	private static final Logger LOGGER = Logger.getLogger(TxtHashDocument.class.getName());
 
 	public TxtHashDocument() {
@@ -27,87 +35,139 @@ public class TxtHashDocument extends HashDocument {
 	}
 
 	@Override
-	public byte[] generate() throws DocumentException {
-
-		final StringBuilder buffer = new StringBuilder();
-		buffer.append(";charset=").append(getCharset()).append("\r\n") //$NON-NLS-1$ //$NON-NLS-2$
-		.append(";hashAlgorithm=").append(getAlgorithm()).append("\r\n") //$NON-NLS-1$ //$NON-NLS-2$
-		.append(";recursive=").append(isRecursive()).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
-
-		final Map<String, byte[]> hashes = getHashes();
-		final Iterator<String> it = hashes.keySet().iterator();
-		while (it.hasNext()) {
-			final String path = it.next();
-			buffer.append(path).append(";").append(AOUtil.hexify(hashes.get(path), false)).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
-		}
-
-		return buffer.toString().getBytes(getCharset());
+	public HashDocumentWriter openWriter(final OutputStream os) throws IOException {
+		return new TxtHashDocumentWriter(os, getCharset(), getAlgorithm(), isRecursive());
 	}
 
 	@Override
-	void load(final byte[] document) throws DocumentException, IOException {
+	HashDocumentReader openReader(final InputStream is) throws DocumentException, IOException {
+		return new TxtHashDocumentReader(is);
+	}
 
+	/** Escritor de documentos de hashes en texto plano. */
+	private static final class TxtHashDocumentWriter extends HashDocumentWriter {
 
-		// Comenzamos identificando la codificacion
-		Charset charset = StandardCharsets.UTF_8;
-		if (document.length > 30) {
-			final String firstLine = new String(document, 0, 30);
-			if (firstLine.startsWith(LINE_HEADER_CHARSET) && firstLine.indexOf("\r") > 0) { //$NON-NLS-1$
-				final String charsetName = firstLine.substring(LINE_HEADER_CHARSET.length(), firstLine.indexOf("\r")); //$NON-NLS-1$
-				charset = Charset.forName(charsetName);
-			}
+		private final Writer writer;
+
+		TxtHashDocumentWriter(final OutputStream os, final Charset charset, final String algorithm,
+				final boolean recursive) throws IOException {
+			this.writer = new BufferedWriter(new OutputStreamWriter(os, charset));
+			this.writer.write(LINE_HEADER_CHARSET + charset + LINE_SEPARATOR);
+			this.writer.write(LINE_HEADER_ALGORITHM + algorithm + LINE_SEPARATOR);
+			this.writer.write(LINE_HEADER_RECURSIVE + recursive + LINE_SEPARATOR);
 		}
-		else {
-			throw new DocumentException("No dispone de la longitud minima para considerarlo un documento de hashes TXT"); //$NON-NLS-1$
+
+		@Override
+		protected void writeEntry(final String path, final byte[] hash, final FileStamp stamp) throws IOException {
+			this.writer.write(path);
+			this.writer.write(';');
+			this.writer.write(AOUtil.hexify(hash, false));
+			this.writer.write(LINE_SEPARATOR);
+		}
+
+		@Override
+		protected void writeEnd() throws IOException {
+			this.writer.flush();
 		}
+	}
+
+	/** Lector de documentos de hashes en texto plano. */
+	private static final class TxtHashDocumentReader extends HashDocumentReader {
+
+		private final BufferedReader reader;
+
+		/** Primera entrada del documento, le&iacute;da al procesar las cabeceras. */
+		private Entry pendingEntry;
+
+		TxtHashDocumentReader(final InputStream is) throws DocumentException, IOException {
+
+			// Comenzamos identificando la codificacion
+			final BufferedInputStream bis = new BufferedInputStream(is);
+			final byte[] start = new byte[CHARSET_HEADER_LENGTH + 1];
+			bis.mark(start.length);
+			int len = 0;
+			int n;
+			while (len < start.length && (n = bis.read(start, len, start.length - len)) != -1) {
+				len += n;
+			}
+			bis.reset();
+
+			Charset charset = StandardCharsets.UTF_8;
+			if (len > CHARSET_HEADER_LENGTH) {
+				final String firstLine = new String(start, 0, CHARSET_HEADER_LENGTH);
+				if (firstLine.startsWith(LINE_HEADER_CHARSET) && firstLine.indexOf("\r") > 0) { //$NON-NLS-1$
+					final String charsetName = firstLine.substring(LINE_HEADER_CHARSET.length(), firstLine.indexOf("\r")); //$NON-NLS-1$
+					charset = Charset.forName(charsetName);
+				}
+			}
+			else {
+				throw new DocumentException("No dispone de la longitud minima para considerarlo un documento de hashes TXT"); //$NON-NLS-1$
+			}
 
-		// Analizamos el fichero cargandolo con la codificacion resultante
-		try (	ByteArrayInputStream bais = new ByteArrayInputStream(document);
-				InputStreamReader isr = new InputStreamReader(bais, charset);
-				BufferedReader reader = new BufferedReader(isr)) {
+			// Analizamos el fichero leyendolo con la codificacion resultante
+			this.reader = new BufferedReader(new InputStreamReader(bis, charset));
 
 			// Procesamos la cabeceras
-			boolean processingHeaders = true;
-			String line;
-			do {
-				line = reader.readLine();
-				if (line.startsWith(LINE_HEADER_PREFIX)) {
-					if (line.startsWith(LINE_HEADER_ALGORITHM)) {
-						setAlgorithm(line.substring(LINE_HEADER_ALGORITHM.length()));
-					}
-					else if (line.startsWith(LINE_HEADER_RECURSIVE)) {
-						setRecursive(Boolean.parseBoolean(line.substring(LINE_HEADER_RECURSIVE.length())));
-					}
-					else if (line.startsWith(LINE_HEADER_CHARSET)) {
-						try {
-							setCharset(Charset.forName(line.substring(LINE_HEADER_CHARSET.length())));
-						}
-						catch (final Exception e) {
-							LOGGER.log(Level.WARNING, "Juego de caracteres no reconocido. Se usara el por defecto: " + getCharset(), e); //$NON-NLS-1$
-						}
-					}
-					// Ignoramos cualquier otro valor por compatibilidad con versiones futuras
+			String line = this.reader.readLine();
+			while (line != null && line.startsWith(LINE_HEADER_PREFIX)) {
+				if (line.startsWith(LINE_HEADER_ALGORITHM)) {
+					setAlgorithm(line.substring(LINE_HEADER_ALGORITHM.length()));
 				}
-				else {
-					processingHeaders = false;
+				else if (line.startsWith(LINE_HEADER_RECURSIVE)) {
+					setRecursive(Boolean.parseBoolean(line.substring(LINE_HEADER_RECURSIVE.length())));
 				}
-			} while (processingHeaders);
-
-			// Procesamos los hashes cuidando de que se mantenga el formato
-			final Map<String, byte[]> hashes = getHashes();
-			while(line != null) {
-				if (line.length() > 0) {
-					final int pos = line.indexOf(";"); //$NON-NLS-1$
-					if (pos <= 0 || pos == line.length() - 1) {
-						throw new DocumentException("Se encontro una linea de hash no compatible"); //$NON-NLS-1$
+				else if (line.startsWith(LINE_HEADER_CHARSET)) {
+					try {
+						setCharset(Charset.forName(line.substring(LINE_HEADER_CHARSET.length())));
+					}
+					catch (final Exception e) {
+						LOGGER.log(Level.WARNING, "Juego de caracteres no reconocido. Se usara el por defecto: " + getCharset(), e); //$NON-NLS-1$
 					}
-
-					// Descodificamos el hexadecimal (CUIDADO: esto no fallara si la cadena no es hexadecimal)
-					final byte[] hash = HexUtils.hexStringToByteArray(line.substring(pos + 1));
-					hashes.put(line.substring(0, pos), hash);
 				}
-				line = reader.readLine();
+				// Ignoramos cualquier otro valor por compatibilidad con versiones futuras
+				line = this.reader.readLine();
+			}
+
+			// Procesamos ya la primera entrada para descartar cuanto antes los documentos
+			// de otros formatos
+			while (line != null && line.length() == 0) {
+				line = this.reader.readLine();
+			}
+			this.pendingEntry = line != null ? parseEntry(line) : null;
+		}
+
+		@Override
+		public Entry next() throws DocumentException, IOException {
+
+			if (this.pendingEntry != null) {
+				final Entry entry = this.pendingEntry;
+				this.pendingEntry = null;
+				return entry;
+			}
+
+			String line = this.reader.readLine();
+			while (line != null && line.length() == 0) {
+				line = this.reader.readLine();
+			}
+			return line != null ? parseEntry(line) : null;
+		}
+
+		private static Entry parseEntry(final String line) throws DocumentException {
+
+			// Procesamos el hash cuidando de que se mantenga el formato
+			final int pos = line.indexOf(";"); //$NON-NLS-1$
+			if (pos <= 0 || pos == line.length() - 1) {
+				throw new DocumentException("Se encontro una linea de hash no compatible"); //$NON-NLS-1$
 			}
+
+			// Descodificamos el hexadecimal (CUIDADO: esto no fallara si la cadena no es hexadecimal)
+			final byte[] hash = HexUtils.hexStringToByteArray(line.substring(pos + 1));
+			return new Entry(line.substring(0, pos), hash, null);
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.reader.close();
 		}
 	}
 }
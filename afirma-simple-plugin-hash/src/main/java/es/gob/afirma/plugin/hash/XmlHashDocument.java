@@ -1,33 +1,26 @@
 package es.gob.afirma.plugin.hash;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
 
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 
-import org.w3c.dom.Attr;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import es.gob.afirma.core.misc.AOUtil;
@@ -48,6 +41,8 @@ import es.gob.afirma.core.misc.Base64;
  *           					&lt;xs:attribute type="xs:string" name="hash" use="required"/&gt;
  *           					&lt;xs:attribute type="xs:string" name="name" use="required"/&gt;
  *           					&lt;xs:attribute type="xs:string" name="hexhash"/&gt;
+ *           					&lt;xs:attribute type="xs:long" name="size"/&gt;
+ *           					&lt;xs:attribute type="xs:long" name="lastModified"/&gt;
  *         					&lt;\xs:extension&gt;
  *       				&lt;\xs:simpleContent&gt;
  *				     &lt;\xs:complexType&gt;
@@ -68,97 +63,75 @@ import es.gob.afirma.core.misc.Base64;
  *	 &lt;\xs:element&gt;
  * &lt;\xs:schema&gt;
  * </pre>
+ * Los atributos <code>size</code> y <code>lastModified</code> (tama&ntilde;o en bytes y fecha
+ * de modificaci&oacute;n en milisegundos) s&oacute;lo se incluyen si se han establecido las
+ * marcas de los ficheros, para que los documentos sigan siendo legibles por versiones
+ * anteriores que no los admiten.
+ * <p>El documento se escribe y se lee de forma secuencial con StAX, sin cargarlo completo
+ * en memoria.</p>
  */
 public class XmlHashDocument extends HashDocument {
 
+	private static final String ELEMENT_ENTRIES = "entries"; //$NON-NLS-1$
+	private static final String ELEMENT_ENTRY = "entry"; //$NON-NLS-1$
+	private static final String ATTR_ALGORITHM = "hashAlgorithm"; //$NON-NLS-1$
+	private static final String ATTR_RECURSIVE = "recursive"; //$NON-NLS-1$
+	private static final String ATTR_NAME = "name"; //$NON-NLS-1$
+	private static final String ATTR_HASH = "hash"; //$NON-NLS-1$
+	private static final String ATTR_HEXHASH = "hexhash"; //$NON-NLS-1$
+	private static final String ATTR_SIZE = "size"; //$NON-NLS-1$
+	private static final String ATTR_LAST_MODIFIED = "lastModified"; //$NON-NLS-1$
+
+	/** Salto de l&iacute;nea y sangrado previos a cada entrada. */
+	private static final String ENTRY_INDENT = "\n    "; //$NON-NLS-1$
+
+	private static final String SCHEMA_RESOURCE = "/schemas/folderhashes.xsd"; //$NON-NLS-1$
+
 	public XmlHashDocument() {
 		super();
 	}
 
 	@Override
-	public byte[] generate() throws DocumentException {
-
-		final DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-		final DocumentBuilder docBuilder;
+	public HashDocumentWriter openWriter(final OutputStream os) throws DocumentException {
 		try {
-			docBuilder = docFactory.newDocumentBuilder();
+			return new XmlHashDocumentWriter(os, getCharset(), getAlgorithm(), isRecursive());
 		}
-		catch (final Exception e) {
+		catch (final XMLStreamException e) {
 			throw new DocumentException("No se puede componer el documento XML", e); //$NON-NLS-1$
 		}
+	}
 
-		// Elemento raiz
-		final Document doc = docBuilder.newDocument();
-		final Element rootElement = doc.createElement("entries"); //$NON-NLS-1$
-		doc.appendChild(rootElement);
-		final Attr hashAlg = doc.createAttribute("hashAlgorithm"); //$NON-NLS-1$
-		hashAlg.setValue(getAlgorithm());
-		rootElement.setAttributeNode(hashAlg);
-		final Attr recursive = doc.createAttribute("recursive"); //$NON-NLS-1$
-		recursive.setValue(String.valueOf(isRecursive()));
-		rootElement.setAttributeNode(recursive);
-
-		final Map<String, byte[]> hashes = getHashes();
-		final Set<String> paths = hashes.keySet();
-		for (final String path : paths) {
-			final byte[] hash = hashes.get(path);
-
-			// Elemento entry
-			final Element entry = doc.createElement("entry"); //$NON-NLS-1$
-			rootElement.appendChild(entry);
-
-			// Se inicializa el atributo name
-			final Attr name = doc.createAttribute("name"); //$NON-NLS-1$
-			name.setValue(path);
-			entry.setAttributeNode(name);
-
-			// Se inicializa el atributo hash
-			final Attr hashAttribute = doc.createAttribute("hash"); //$NON-NLS-1$
-			hashAttribute.setValue(Base64.encode(hash, true));
-			entry.setAttributeNode(hashAttribute);
-
-			// Se inicializa el atributo hexhash
-			final Attr hexHashAttribute = doc.createAttribute("hexhash"); //$NON-NLS-1$
-			hexHashAttribute.setValue(AOUtil.hexify(hash, false) + "h"); //$NON-NLS-1$
-			entry.setAttributeNode(hexHashAttribute);
-		}
-		final StringWriter sw = new StringWriter();
+	@Override
+	HashDocumentReader openReader(final InputStream is) throws DocumentException {
 		try {
-			final TransformerFactory tf = TransformerFactory.newInstance();
-			final Transformer transformer = tf.newTransformer();
-			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.ENCODING, getCharset().name());
-
-			transformer.transform(
-					new DOMSource(doc), new StreamResult(sw)
-					);
+			return new XmlHashDocumentReader(is);
 		}
-		catch (final Exception e) {
-			throw new DocumentException("Error al codificar el XML", e); //$NON-NLS-1$
+		catch (final XMLStreamException e) {
+			throw new DocumentException("El documento no es un XML valido", e); //$NON-NLS-1$
 		}
+	}
 
-		return sw.toString().getBytes(getCharset());
+	@Override
+	HashDocumentReader openReader(final File file) throws DocumentException, IOException {
+		// La validacion contra el esquema tambien se hace de forma secuencial,
+		// asi que leemos el fichero una vez para validarlo y otra para procesarlo
+		try (InputStream is = new FileInputStream(file)) {
+			validate(is);
+		}
+		return super.openReader(file);
 	}
 
 	@Override
 	void load(final byte[] document) throws DocumentException, IOException, CorruptedDocumentException {
+		try (InputStream is = new ByteArrayInputStream(document)) {
+			validate(is);
+		}
+		super.load(document);
+	}
 
-		Document doc;
-		try {
-			final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			final DocumentBuilder builder = factory.newDocumentBuilder();
-
-			try (InputStream is = new ByteArrayInputStream(document)) {
-				validateAgainstXSD(is, CheckHashDirDialog.class.getResourceAsStream("/schemas/folderhashes.xsd")); //$NON-NLS-1$
-			}
-			doc = builder.parse(new ByteArrayInputStream(document));
-			final String encoding = doc.getXmlEncoding();
-			if (encoding != null) {
-				setCharset(Charset.forName(encoding));
-			}
-			doc.getDocumentElement().normalize();
+	private static void validate(final InputStream is) throws DocumentException, IOException {
+		try (InputStream xsd = CheckHashDirDialog.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+			validateAgainstXSD(is, xsd);
 		}
 		catch (final IOException e) {
 			throw e;
@@ -166,53 +139,161 @@ public class XmlHashDocument extends HashDocument {
 		catch (final Exception e) {
 			throw new DocumentException("El documento no es un XML valido",  e); //$NON-NLS-1$
 		}
+	}
 
-		final Map<String, byte[]> dirEntries = new HashMap<>();
-
-		try {
-			final NodeList nodeListEntries = doc.getElementsByTagName("entries"); //$NON-NLS-1$
-			final Node nodeEntries = nodeListEntries.item(0);
-			setAlgorithm(nodeEntries.getAttributes().getNamedItem("hashAlgorithm").getNodeValue()); //$NON-NLS-1$
-			setRecursive(
-					Boolean.parseBoolean(nodeEntries.getAttributes().getNamedItem("recursive").getNodeValue()) //$NON-NLS-1$
-					);
+	private static void validateAgainstXSD(final InputStream isxml, final InputStream xsd) throws SAXException, IOException {
 
-			final NodeList nodeList = doc.getElementsByTagName("entry"); //$NON-NLS-1$
-			for (int i = 0; i < nodeList.getLength(); i++) {
-				final Node node = nodeList.item(i);
+		final SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		final Schema schema = factory.newSchema(new StreamSource(xsd));
+		final Validator validator = schema.newValidator();
+		validator.validate(new StreamSource(isxml));
+	}
 
-				final String name = node.getAttributes().getNamedItem("name").getNodeValue(); //$NON-NLS-1$
+	/** Escritor de documentos XML de hashes. */
+	private static final class XmlHashDocumentWriter extends HashDocumentWriter {
 
-				final byte[] hashFromB64 = Base64.decode(
-						node.getAttributes().getNamedItem("hash").getNodeValue(), true //$NON-NLS-1$
-						);
+		private final XMLStreamWriter writer;
 
-				final byte[] hashFromHex = HexUtils.hexStringToByteArray(
-						node.getAttributes().getNamedItem("hexhash").getNodeValue() //$NON-NLS-1$
-						);
+		XmlHashDocumentWriter(final OutputStream os, final Charset charset, final String algorithm,
+				final boolean recursive) throws XMLStreamException {
+			this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(os, charset.name());
+			this.writer.writeStartDocument(charset.name(), "1.0"); //$NON-NLS-1$
+			this.writer.writeCharacters("\n"); //$NON-NLS-1$
+			this.writer.writeStartElement(ELEMENT_ENTRIES);
+			this.writer.writeAttribute(ATTR_ALGORITHM, algorithm);
+			this.writer.writeAttribute(ATTR_RECURSIVE, String.valueOf(recursive));
+		}
 
-				if (!Arrays.equals(hashFromB64, hashFromHex)) {
-					throw new CorruptedDocumentException("Se han encontrado que se han declarado dos hashes distintos para un fichero. Uno en hexadecimal y otro en Base 64"); //$NON-NLS-1$
+		@Override
+		protected void writeEntry(final String path, final byte[] hash, final FileStamp stamp) throws IOException {
+			try {
+				this.writer.writeCharacters(ENTRY_INDENT);
+				this.writer.writeEmptyElement(ELEMENT_ENTRY);
+				this.writer.writeAttribute(ATTR_NAME, path);
+				this.writer.writeAttribute(ATTR_HASH, Base64.encode(hash, true));
+				this.writer.writeAttribute(ATTR_HEXHASH, AOUtil.hexify(hash, false) + "h"); //$NON-NLS-1$
+				// Se registran el tamano y la fecha de modificacion si se conocen
+				if (stamp != null) {
+					this.writer.writeAttribute(ATTR_SIZE, Long.toString(stamp.getSize()));
+					this.writer.writeAttribute(ATTR_LAST_MODIFIED, Long.toString(stamp.getLastModified()));
 				}
+			}
+			catch (final XMLStreamException e) {
+				throw new IOException("Error al escribir la entrada del fichero " + path, e); //$NON-NLS-1$
+			}
+		}
 
-				dirEntries.put(name, hashFromB64);
+		@Override
+		protected void writeEnd() throws IOException {
+			try {
+				this.writer.writeCharacters("\n"); //$NON-NLS-1$
+				this.writer.writeEndElement();
+				this.writer.writeEndDocument();
+				this.writer.flush();
+				this.writer.close();
+			}
+			catch (final XMLStreamException e) {
+				throw new IOException("Error al finalizar el documento XML", e); //$NON-NLS-1$
 			}
 		}
-		catch (final CorruptedDocumentException e) {
-			throw e;
+	}
+
+	/** Lector de documentos XML de hashes. */
+	private static final class XmlHashDocumentReader extends HashDocumentReader {
+
+		private final InputStream is;
+
+		private final XMLStreamReader reader;
+
+		XmlHashDocumentReader(final InputStream is) throws XMLStreamException, DocumentException {
+			this.is = is;
+
+			final XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			this.reader = factory.createXMLStreamReader(is);
+
+			final String encoding = this.reader.getCharacterEncodingScheme();
+			if (encoding != null) {
+				setCharset(Charset.forName(encoding));
+			}
+
+			// Buscamos el elemento raiz y tomamos la configuracion de sus atributos
+			while (this.reader.hasNext() && this.reader.next() != XMLStreamConstants.START_ELEMENT) {
+				// Saltamos comentarios e instrucciones de procesamiento
+			}
+			if (!this.reader.isStartElement() || !ELEMENT_ENTRIES.equals(this.reader.getLocalName())) {
+				throw new DocumentException("El formato del documento no es el esperado"); //$NON-NLS-1$
+			}
+			final String algorithm = this.reader.getAttributeValue(null, ATTR_ALGORITHM);
+			final String recursive = this.reader.getAttributeValue(null, ATTR_RECURSIVE);
+			if (algorithm == null || recursive == null) {
+				throw new DocumentException("El formato del documento no es el esperado"); //$NON-NLS-1$
+			}
+			setAlgorithm(algorithm);
+			setRecursive(Boolean.parseBoolean(recursive));
 		}
-		catch (final Exception e) {
-			throw new DocumentException("El formato del documento no es el esperado", e); //$NON-NLS-1$
+
+		@Override
+		public Entry next() throws DocumentException, CorruptedDocumentException {
+			try {
+				while (this.reader.hasNext()) {
+					if (this.reader.next() == XMLStreamConstants.START_ELEMENT
+							&& ELEMENT_ENTRY.equals(this.reader.getLocalName())) {
+						return readEntry();
+					}
+				}
+			}
+			catch (final XMLStreamException e) {
+				throw new DocumentException("El documento no es un XML valido",  e); //$NON-NLS-1$
+			}
+			return null;
 		}
 
-		setHashes(dirEntries);
-	}
+		private Entry readEntry() throws DocumentException, CorruptedDocumentException {
 
-	private static void validateAgainstXSD(final InputStream isxml, final InputStream xsd) throws SAXException, IOException {
+			final String name = this.reader.getAttributeValue(null, ATTR_NAME);
+			final String b64Hash = this.reader.getAttributeValue(null, ATTR_HASH);
+			final String hexHash = this.reader.getAttributeValue(null, ATTR_HEXHASH);
+			if (name == null || b64Hash == null || hexHash == null) {
+				throw new DocumentException("El formato del documento no es el esperado"); //$NON-NLS-1$
+			}
 
-		final SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-		final Schema schema = factory.newSchema(new StreamSource(xsd));
-		final Validator validator = schema.newValidator();
-		validator.validate(new StreamSource(isxml));
+			final byte[] hashFromB64;
+			final byte[] hashFromHex;
+			FileStamp stamp = null;
+			try {
+				hashFromB64 = Base64.decode(b64Hash, true);
+				hashFromHex = HexUtils.hexStringToByteArray(hexHash);
+
+				final String size = this.reader.getAttributeValue(null, ATTR_SIZE);
+				final String lastModified = this.reader.getAttributeValue(null, ATTR_LAST_MODIFIED);
+				if (size != null && lastModified != null) {
+					stamp = new FileStamp(Long.parseLong(size), Long.parseLong(lastModified));
+				}
+			}
+			catch (final Exception e) {
+				throw new DocumentException("El formato del documento no es el esperado", e); //$NON-NLS-1$
+			}
+
+			if (!Arrays.equals(hashFromB64, hashFromHex)) {
+				throw new CorruptedDocumentException("Se han encontrado que se han declarado dos hashes distintos para un fichero. Uno en hexadecimal y otro en Base 64"); //$NON-NLS-1$
+			}
+
+			return new Entry(name, hashFromB64, stamp);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				this.reader.close();
+			}
+			catch (final XMLStreamException e) {
+				throw new IOException("Error al cerrar el documento XML", e); //$NON-NLS-1$
+			}
+			finally {
+				this.is.close();
+			}
+		}
 	}
 }
@@ -101,7 +101,7 @@ public class CheckHashCommand extends PluginCommandAction {
 
 			final HashReport report = new HashReport();
 			try {
-				CheckHashDirDialog.checkHash(dataFile.toPath(), hashFile, report);
+				CheckHashDirDialog.checkHash(dataFile.toPath(), hashFile, params.isOnlyChanged(), report);
 			} catch (final IOException e) {
 				throw new IOException(Messages.getString("CommandLine.101"), e); //$NON-NLS-1$
 			} catch (final DocumentException e) {
@@ -1,11 +1,12 @@
 package es.gob.afirma.plugin.hash.command;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import es.gob.afirma.core.AOException;
@@ -16,6 +17,8 @@ import es.gob.afirma.plugin.hash.CreateHashFileDialog;
 import es.gob.afirma.plugin.hash.DocumentException;
 import es.gob.afirma.plugin.hash.HashDocument;
 import es.gob.afirma.plugin.hash.HashDocumentFactory;
+import es.gob.afirma.plugin.hash.HashDocumentWriter;
+import es.gob.afirma.plugin.hash.HashListener;
 import es.gob.afirma.plugin.hash.HashUIHelper;
 import es.gob.afirma.plugin.hash.Messages;
 import es.gob.afirma.standalone.plugins.PluginCommandAction;
@@ -110,21 +113,37 @@ public class CreateHashCommand extends PluginCommandAction {
 				// Se obtiene el formato de salida para los hashes del directorio
 				final String outputFormat = params.getHashDirectoryFormat();
 
-				// Hacemos el calculo
-				final Map<String, byte[]> hashes = CreateHashDirDialog.calculateHashes(inputFile, params.isRecursive(), params.getHashAlgorithm(), null);
-
-				// Generamos el informe
 				final HashDocument hashDocument = HashDocumentFactory.getHashDocument(outputFormat);
-				hashDocument.setHashes(hashes);
 				hashDocument.setRecursive(params.isRecursive());
 				hashDocument.setAlgorithm(params.getHashAlgorithm());
 				hashDocument.setCharset(StandardCharsets.UTF_8);
 
+				// Si se ha proporcionado un fichero de salida, el documento se escribe en el
+				// segun se calculan las huellas, sin mantenerlas en memoria
+				if (params.getOutputFile() != null) {
+					try (final OutputStream fos = new BufferedOutputStream(new FileOutputStream(params.getOutputFile()))) {
+						writeHashDocument(inputFile, params, hashDocument, fos);
+					}
+					catch (final DocumentException e) {
+						throw new AOException(Messages.getString("CommandLine.93"), e); //$NON-NLS-1$
+					}
+					catch (final IOException e) {
+						throw new IOException(Messages.getString(
+								"CommandLine.21", //$NON-NLS-1$
+								params.getOutputFile().getAbsolutePath())
+								, e);
+					}
+					return Messages.getString("CommandLine.22"); //$NON-NLS-1$
+				}
+
+				// Si no, lo componemos en memoria para devolverlo
+				final ByteArrayOutputStream baos = new ByteArrayOutputStream();
 				try {
-					hashesDocumentData = hashDocument.generate();
-				} catch (final DocumentException e) {
+					writeHashDocument(inputFile, params, hashDocument, baos);
+				} catch (final DocumentException | IOException e) {
 					throw new AOException(Messages.getString("CommandLine.93"), e); //$NON-NLS-1$
 				}
+				hashesDocumentData = baos.toByteArray();
 			}
 			// Si es un fichero
 			else {
@@ -176,6 +195,29 @@ public class CreateHashCommand extends PluginCommandAction {
 		return result;
 	}
 
+	/** Calcula las huellas de los ficheros de un directorio y las escribe en un documento
+	 * de huellas seg&uacute;n se obtienen.
+	 * @param dir Directorio.
+	 * @param params Par&aacute;metros de configuraci&oacute;n.
+	 * @param hashDocument Documento de huellas con la configuraci&oacute;n de salida.
+	 * @param os Flujo en el que escribir el documento.
+	 * @throws DocumentException Cuando no se puede componer el documento.
+	 * @throws IOException Cuando falla la escritura del documento.
+	 * @throws InterruptedException Cuando se interrumpe el c&aacute;lculo.
+	 * @throws ExecutionException Cuando falla el c&aacute;lculo. */
+	private static void writeHashDocument(final File dir, final HashParameters params,
+			final HashDocument hashDocument, final OutputStream os)
+					throws DocumentException, IOException, InterruptedException, ExecutionException {
+
+		try (final HashDocumentWriter writer = hashDocument.openWriter(os)) {
+			// Solo se registran el tamano y la fecha de los ficheros si se ha solicitado
+			final HashListener listener = params.isFileInfo() ?
+					writer :
+					(path, hash, stamp) -> writer.hashCalculated(path, hash, null);
+			CreateHashDirDialog.calculateHashes(dir, params.isRecursive(), params.getHashAlgorithm(), listener, null);
+		}
+	}
+
 	@Override
 	public String getHelpText() {
 		return HashParameters.buildSyntaxError(HashCommands.CREATEHASH, null);
@@ -26,6 +26,8 @@ final class HashParameters {
 	private static final String PARAM_HASH_FORMAT = "-hformat"; //$NON-NLS-1$
 	private static final String PARAM_HASH_ALGO   = "-halgorithm"; //$NON-NLS-1$
 	private static final String PARAM_RECURSIVE   = "-r"; //$NON-NLS-1$
+	private static final String PARAM_FILE_INFO   = "-fileinfo"; //$NON-NLS-1$
+	private static final String PARAM_ONLY_CHANGED = "-onlychanged"; //$NON-NLS-1$
 
 	// Parametro oculto para indicar que se desea validar un directorio
 	private static final String PARAM_DIRECTORY   = "-d"; //$NON-NLS-1$
@@ -50,6 +52,8 @@ final class HashParameters {
 	private boolean gui = false;
 	private boolean recursive = false;
 	private boolean directory = false;
+	private boolean fileInfo = false;
+	private boolean onlyChanged = false;
 
 	public HashParameters(final HashCommands command, final String[] params)
 			throws IllegalArgumentException {
@@ -88,6 +92,12 @@ final class HashParameters {
 			else if (PARAM_DIRECTORY.equals(params[i])) {
 				this.directory = true;
 			}
+			else if (PARAM_FILE_INFO.equals(params[i])) {
+				this.fileInfo = true;
+			}
+			else if (PARAM_ONLY_CHANGED.equals(params[i])) {
+				this.onlyChanged = true;
+			}
 			else if (PARAM_HASH_ALGO.equals(params[i])) {
 				if (this.hashAlgorithm != null) {
 					throw new IllegalArgumentException(Messages.getString("CommandLine.26", params[i])); //$NON-NLS-1$
@@ -282,6 +292,26 @@ final class HashParameters {
 		return this.directory;
 	}
 
+	/**
+	 * Indica si se ha solicitado registrar el tama&ntilde;o y la fecha de modificaci&oacute;n
+	 * de los ficheros junto con sus huellas.
+	 * @return {@code true} si se deben registrar los datos de los ficheros,
+	 * {@code false} en caso contrario.
+	 */
+	public boolean isFileInfo() {
+		return this.fileInfo;
+	}
+
+	/**
+	 * Indica si se ha solicitado comprobar &uacute;nicamente los ficheros cuyo tama&ntilde;o o
+	 * fecha de modificaci&oacute;n hayan cambiado.
+	 * @return {@code true} si s&oacute;lo se deben comprobar los ficheros modificados,
+	 * {@code false} en caso contrario.
+	 */
+	public boolean isOnlyChanged() {
+		return this.onlyChanged;
+	}
+
 	/**
 	 * Construye la respuesta de s&iacute;ntaxis incorrecta.
 	 * @param cmds Comandos introducidos.
@@ -325,7 +355,8 @@ final class HashParameters {
 		.append(Messages.getString("CommandLine.117")).append(":\n") //$NON-NLS-1$ //$NON-NLS-2$
 		.append("  ").append(PARAM_GUI).append("\t\t\t(").append(Messages.getString("CommandLine.100")).append(")\n") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 		.append("  ").append(PARAM_INPUT).append(" FICHERO\t\t(").append(Messages.getString("CommandLine.105")).append(")\n") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-		.append("  ").append(PARAM_OUTPUT).append(" FICHERO\t\t(").append(Messages.getString("CommandLine.97")).append(")\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		.append("  ").append(PARAM_OUTPUT).append(" FICHERO\t\t(").append(Messages.getString("CommandLine.97")).append(")\n") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		.append("  ").append(PARAM_ONLY_CHANGED).append("\t\t(").append(Messages.getString("CommandLine.126")).append(")\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 
 		return sb.toString();
 	}
@@ -365,7 +396,8 @@ final class HashParameters {
 		.append("  ").append(PARAM_HASH_FORMAT).append(" FORMATO\t (").append(Messages.getString("CommandLine.78")).append(")\n")  //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 		.append("  \t ").append(FORMAT_HASH_DIR_XML).append("\t\t (").append(Messages.getString("CommandLine.85")).append(") (").append(Messages.getString("CommandLine.79")).append(")\n") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
 		.append("  \t ").append(FORMAT_HASH_DIR_PLAIN).append("\t\t (").append(Messages.getString("CommandLine.86")).append(")\n") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-		.append("  ").append(PARAM_RECURSIVE).append("\t\t (").append(Messages.getString("CommandLine.92")).append(")\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		.append("  ").append(PARAM_RECURSIVE).append("\t\t (").append(Messages.getString("CommandLine.92")).append(")\n") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		.append("  ").append(PARAM_FILE_INFO).append("\t (").append(Messages.getString("CommandLine.125")).append(")\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 
 		return sb.toString();
 	}
@@ -0,0 +1,108 @@
+package es.gob.afirma.plugin.hash;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Pruebas del c&aacute;lculo y comprobaci&oacute;n en paralelo de las huellas de un directorio. */
+public final class TestDirectoryHash {
+
+	private static final String ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+	/** Comprueba que se calculan las huellas de todos los ficheros del directorio y que,
+	 * en la comprobaci&oacute;n de ficheros modificados, s&oacute;lo se detectan los que
+	 * han cambiado.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCreateAndCheckChanged() throws Exception {
+
+		final Path dir = Files.createTempDirectory("afirmahash"); //$NON-NLS-1$
+		final Path subdir = Files.createDirectory(dir.resolve("sub")); //$NON-NLS-1$
+		final Path file1 = Files.write(dir.resolve("uno.txt"), "uno".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+		final Path file2 = Files.write(subdir.resolve("dos.txt"), new byte[3 * 1024 * 1024 + 7]); //$NON-NLS-1$
+		final Path ignored = Files.write(dir.resolve("thumbs.db"), new byte[] { 1 }); //$NON-NLS-1$
+
+		try {
+			final HashCollector collector = new HashCollector(true);
+			final ForkJoinPool pool = HashUtil.newHashPool();
+			pool.invoke(new CreateHashAction(dir, dir.toFile(), true, ALGORITHM, collector, pool));
+			pool.shutdown();
+
+			final Map<String, byte[]> hashes = collector.getHashes();
+			Assert.assertEquals(2, hashes.size());
+			final String name1 = dir.relativize(file1).toString();
+			final String name2 = dir.relativize(file2).toString();
+			Assert.assertArrayEquals(
+					MessageDigest.getInstance(ALGORITHM).digest(Files.readAllBytes(file2)),
+					hashes.get(name2));
+			Assert.assertArrayEquals(
+					MessageDigest.getInstance(ALGORITHM).digest(Files.readAllBytes(file1)),
+					HashUtil.getFileHash(ALGORITHM, file1.toFile()));
+			Assert.assertEquals(file1.toFile().length(), collector.getStamps().get(name1).getSize());
+
+			// Modificamos uno de los ficheros cambiando su tamano
+			Files.write(file1, "uno modificado".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+
+			final HashDocument document = new TxtHashDocument();
+			document.setRecursive(true);
+			document.setAlgorithm(ALGORITHM);
+			document.setHashes(new ConcurrentHashMap<>(hashes));
+			document.setStamps(collector.getStamps());
+
+			final HashReport report = new HashReport();
+			final ForkJoinPool checkPool = HashUtil.newHashPool();
+			checkPool.invoke(new CheckHashAction(dir, dir.toFile(), document, true, report, checkPool));
+			checkPool.shutdown();
+
+			final Iterator<String> noMatching = report.getNoMatchingHashIterator();
+			Assert.assertEquals(name1, noMatching.next());
+			Assert.assertFalse(noMatching.hasNext());
+			final Iterator<String> matching = report.getMatchingHashIterator();
+			Assert.assertEquals(name2, matching.next());
+			Assert.assertFalse(matching.hasNext());
+			Assert.assertTrue(document.getHashes().isEmpty());
+		}
+		finally {
+			for (final Path p : new Path[] { file1, file2, ignored, subdir, dir }) {
+				Files.deleteIfExists(p);
+			}
+		}
+	}
+
+	/** Comprueba que las huellas de un fichero vac&iacute;o y de uno mayor que el b&uacute;fer
+	 * de lectura coinciden con las calculadas directamente.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testFileHash() throws Exception {
+		final File empty = File.createTempFile("afirmahash", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+		final byte[] data = new byte[2 * 1024 * 1024 + 1];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		final File big = File.createTempFile("afirmahash", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			Files.write(big.toPath(), data);
+			Assert.assertArrayEquals(
+					MessageDigest.getInstance("SHA-512").digest(new byte[0]), //$NON-NLS-1$
+					HashUtil.getFileHash("SHA-512", empty)); //$NON-NLS-1$
+			Assert.assertArrayEquals(
+					MessageDigest.getInstance(ALGORITHM).digest(data),
+					HashUtil.getFileHash(ALGORITHM, big));
+		}
+		finally {
+			empty.delete();
+			big.delete();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package es.gob.afirma.plugin.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Pruebas de la escritura y lectura secuencial de documentos de huellas. */
+public final class TestHashDocumentStreaming {
+
+	private static final String ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+	/** Comprueba que los documentos XML y TXT escritos entrada a entrada se leen igual.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testWriteAndRead() throws Exception {
+
+		final byte[] hash1 = new byte[32];
+		final byte[] hash2 = new byte[32];
+		hash2[0] = 1;
+		final FileStamp stamp = new FileStamp(10, 1600000000000L);
+
+		for (final HashDocument document : new HashDocument[] { new XmlHashDocument(), new TxtHashDocument() }) {
+			document.setAlgorithm(ALGORITHM);
+			document.setRecursive(true);
+
+			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			try (final HashDocumentWriter writer = document.openWriter(baos)) {
+				writer.hashCalculated("dir" + File.separator + "a&<b>.txt", hash1, stamp); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.hashCalculated("c.txt", hash2, null); //$NON-NLS-1$
+				Assert.assertEquals(2, writer.getCount());
+			}
+
+			try (final HashDocumentReader reader = document.openReader(new ByteArrayInputStream(baos.toByteArray()))) {
+				Assert.assertEquals(ALGORITHM, reader.getAlgorithm());
+				Assert.assertTrue(reader.isRecursive());
+
+				final HashDocumentReader.Entry first = reader.next();
+				Assert.assertEquals("dir" + File.separator + "a&<b>.txt", first.getPath()); //$NON-NLS-1$ //$NON-NLS-2$
+				Assert.assertArrayEquals(hash1, first.getHash());
+				if (document instanceof XmlHashDocument) {
+					Assert.assertEquals(10, first.getStamp().getSize());
+					Assert.assertEquals(1600000000000L, first.getStamp().getLastModified());
+				}
+
+				final HashDocumentReader.Entry second = reader.next();
+				Assert.assertEquals("c.txt", second.getPath()); //$NON-NLS-1$
+				Assert.assertArrayEquals(hash2, second.getHash());
+				Assert.assertNull(second.getStamp());
+
+				Assert.assertNull(reader.next());
+			}
+		}
+	}
+
+	/** Comprueba la verificaci&oacute;n de un directorio leyendo el documento de huellas
+	 * entrada a entrada.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCheckDirectory() throws Exception {
+
+		final Path dir = Files.createTempDirectory("afirmahash"); //$NON-NLS-1$
+		final Path subdir = Files.createDirectory(dir.resolve("sub")); //$NON-NLS-1$
+		final Path unchanged = Files.write(dir.resolve("igual.txt"), "igual".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+		final Path modified = Files.write(subdir.resolve("cambia.txt"), "antes".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+		final Path deleted = Files.write(dir.resolve("borrado.txt"), "borrado".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+		final Path added = dir.resolve("nuevo.txt"); //$NON-NLS-1$
+		final File manifest = File.createTempFile("afirmahash", ".txthashfiles"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		try {
+			final HashDocument document = new TxtHashDocument();
+			document.setAlgorithm(ALGORITHM);
+			document.setRecursive(true);
+			try (final OutputStream os = new FileOutputStream(manifest);
+					final HashDocumentWriter writer = document.openWriter(os)) {
+				final ForkJoinPool pool = HashUtil.newHashPool();
+				pool.invoke(new CreateHashAction(dir, dir.toFile(), true, ALGORITHM, writer, pool));
+				pool.shutdown();
+			}
+
+			Files.write(modified, "despues".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+			Files.delete(deleted);
+			Files.write(added, "nuevo".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+
+			final HashReport report = new HashReport();
+			try (final HashDocumentReader reader = HashDocumentFactory.openDocument(manifest, "txthashfiles")) { //$NON-NLS-1$
+				HashDocumentChecker.check(dir, reader, false, report);
+			}
+
+			assertSingle(dir.relativize(unchanged).toString(), report.getMatchingHashIterator());
+			assertSingle(dir.relativize(modified).toString(), report.getNoMatchingHashIterator());
+			assertSingle(dir.relativize(deleted).toString(), report.getHashWithoutFileIterator());
+			assertSingle(dir.relativize(added).toString(), report.getFileWithoutHashIterator());
+		}
+		finally {
+			for (final Path p : new Path[] { unchanged, modified, deleted, added, subdir, dir, manifest.toPath() }) {
+				Files.deleteIfExists(p);
+			}
+		}
+	}
+
+	private static void assertSingle(final String expected, final Iterator<String> it) {
+		Assert.assertTrue(it.hasNext());
+		Assert.assertEquals(expected, it.next());
+		Assert.assertFalse(it.hasNext());
+	}
+}
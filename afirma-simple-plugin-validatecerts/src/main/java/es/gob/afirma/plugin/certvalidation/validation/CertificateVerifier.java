@@ -18,7 +18,9 @@ import java.security.SignatureException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 import es.gob.afirma.core.misc.AOUtil;
@@ -33,6 +35,10 @@ public abstract class CertificateVerifier implements CertificateVerificable {
 	/** <code>Logger</code> para uso en esta clase y sus derivadas. */
 	protected static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
 
+	/** Configuraciones de validaci&oacute;n ya cargadas, por ruta del fichero de configuraci&oacute;n.
+	 * Se comparten entre todos los verificadores de los certificados del mismo emisor. */
+	private static final Map<String, ValidationConfiguration> CONFIGURATIONS = new ConcurrentHashMap<>();
+
 	private X509Certificate certificate = null;
 	private final Properties conf = new Properties();
 
@@ -61,10 +67,28 @@ public abstract class CertificateVerifier implements CertificateVerificable {
 			);
 			return;
 		}
+
+		// Cada verificador necesita su propia copia de las propiedades, ya que puede
+		// modificarlas segun el certificado a validar
+		final ValidationConfiguration configuration = CONFIGURATIONS.computeIfAbsent(
+			confFile,
+			CertificateVerifier::loadValidationConfiguration
+		);
+		this.conf.putAll(configuration.getProperties());
+		if (configuration.getIssuerCert() != null) {
+			setIssuerCert(configuration.getIssuerCert());
+		}
+	}
+
+	/** Carga una configuraci&oacute;n de validaci&oacute;n y el certificado del emisor que indica.
+	 * @param confFile Ruta de la configuraci&oacute;n como recurso.
+	 * @return Configuraci&oacute;n de validaci&oacute;n. */
+	private static ValidationConfiguration loadValidationConfiguration(final String confFile) {
+		final Properties conf = new Properties();
 		try (
 			final InputStream is = CertificateVerifier.class.getResourceAsStream(confFile)
 		) {
-			this.conf.load(is);
+			conf.load(is);
 		}
 		catch (final Exception e) {
 			throw new IllegalArgumentException(
@@ -72,16 +96,15 @@ public abstract class CertificateVerifier implements CertificateVerificable {
 			);
 		}
 
-		final String issuerCertFile = this.conf.getProperty("issuerCertFile"); //$NON-NLS-1$
+		X509Certificate issuer = null;
+		final String issuerCertFile = conf.getProperty("issuerCertFile"); //$NON-NLS-1$
 		if (issuerCertFile != null) {
 			try (
 				final InputStream is = CertificateVerifier.class.getResourceAsStream(issuerCertFile)
 			) {
-				setIssuerCert(
-					(X509Certificate) CertificateFactory.getInstance(
-						"X.509" //$NON-NLS-1$
-					).generateCertificate(is)
-				);
+				issuer = (X509Certificate) CertificateFactory.getInstance(
+					"X.509" //$NON-NLS-1$
+				).generateCertificate(is);
 			}
 			catch (final CertificateException | IOException e) {
 				throw new IllegalArgumentException(
@@ -89,6 +112,7 @@ public abstract class CertificateVerifier implements CertificateVerificable {
 				);
 			}
 		}
+		return new ValidationConfiguration(conf, issuer);
 	}
 
 	private X509Certificate issuerCert;
@@ -134,7 +158,7 @@ public abstract class CertificateVerifier implements CertificateVerificable {
 
         // Compruebo ahora la firma
 		try {
-			cert.verify(this.issuerCert.getPublicKey());
+			IssuerSignatureCache.verify(cert, this.issuerCert);
 		}
 		catch (final InvalidKeyException | NoSuchAlgorithmException | NoSuchProviderException e) {
 			throw new CertificateException(e);
@@ -186,4 +210,24 @@ public abstract class CertificateVerifier implements CertificateVerificable {
 		return verifyRevocation(cert);
 
 	}
+
+	/** Configuraci&oacute;n de validaci&oacute;n cargada de un fichero. */
+	private static final class ValidationConfiguration {
+
+		private final Properties properties;
+		private final X509Certificate issuerCert;
+
+		ValidationConfiguration(final Properties properties, final X509Certificate issuerCert) {
+			this.properties = properties;
+			this.issuerCert = issuerCert;
+		}
+
+		Properties getProperties() {
+			return this.properties;
+		}
+
+		X509Certificate getIssuerCert() {
+			return this.issuerCert;
+		}
+	}
 }
\ No newline at end of file
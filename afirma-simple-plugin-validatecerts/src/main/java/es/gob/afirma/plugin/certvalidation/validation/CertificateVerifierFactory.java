@@ -11,7 +11,19 @@ package es.gob.afirma.plugin.certvalidation.validation;
 
 import java.io.InputStream;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import java.util.zip.CRC32;
 
@@ -21,16 +33,37 @@ import java.util.zip.CRC32;
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s */
 public final class CertificateVerifierFactory {
 
-	private static Properties p = null;
+	private static Properties config = null;
 
 	private static final String FACTORY_CONFIGURATION = "/es/gob/afirma/plugin/certvalidation/validationfactory.properties"; //$NON-NLS-1$
 
 	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
 
+	/** N&uacute;mero m&aacute;ximo de certificados que se validan a la vez en una validaci&oacute;n por lotes. */
+	private static final int MAX_CONCURRENT_VALIDATIONS = 8;
+
 	private CertificateVerifierFactory() {
 		// No permitimos la instanciacion
 	}
 
+	private static synchronized Properties getFactoryConfiguration() {
+		if (config == null) {
+			final Properties p = new Properties();
+			try (
+				final InputStream is = CertificateVerifierFactory.class.getResourceAsStream(FACTORY_CONFIGURATION)
+			) {
+				p.load(is);
+			}
+			catch (final Exception e) {
+				throw new IllegalStateException(
+					"No se ha podido cargar la configuracion de la factoria: " + e, e //$NON-NLS-1$
+				);
+			}
+			config = p;
+		}
+		return config;
+	}
+
 	private static String getIssuerIdentifier(final X509Certificate cert) {
 		// Es el CRC del emisor lo que le identifica
 		final CRC32 issuerCrc = new CRC32();
@@ -50,20 +83,7 @@ public final class CertificateVerifierFactory {
 		if (cert == null) {
 			throw new IllegalArgumentException("El certificado no puede ser nulo"); //$NON-NLS-1$
 		}
-		if (p == null) {
-			p = new Properties();
-			try (
-				final InputStream is = CertificateVerifierFactory.class.getResourceAsStream(FACTORY_CONFIGURATION)
-			) {
-				p.load(is);
-			}
-			catch (final Exception e) {
-				p = null;
-				throw new IllegalStateException(
-					"No se ha podido cargar la configuracion de la factoria: " + e, e //$NON-NLS-1$
-				);
-			}
-		}
+		final Properties p = getFactoryConfiguration();
 
 		String crc = getIssuerIdentifier(cert);
 		LOGGER.info("Identificador del emisor del certificado: " + crc); //$NON-NLS-1$
@@ -106,4 +126,79 @@ public final class CertificateVerifierFactory {
 		return certVerif;
 	}
 
+	/** Valida un conjunto de certificados. Los certificados se agrupan por emisor, de forma que
+	 * la configuraci&oacute;n de validaci&oacute;n, el certificado del emisor y las CRL se
+	 * obtienen una &uacute;nica vez para todos los del mismo emisor, y se validan
+	 * concurrentemente para solapar las consultas CRL y OCSP.
+	 * @param certs Certificados a validar.
+	 * @return Resultado de la validaci&oacute;n de cada certificado, en el orden en el que se
+	 *         proporcionaron. Si no se conocen mecanismos de validaci&oacute;n para el emisor
+	 *         de un certificado, su resultado es {@link ValidationResult#CA_NOT_SUPPORTED}. */
+	public static Map<X509Certificate, ValidationResult> validateCertificates(final Collection<X509Certificate> certs) {
+		if (certs == null) {
+			throw new IllegalArgumentException("La lista de certificados no puede ser nula"); //$NON-NLS-1$
+		}
+
+		// Agrupamos los certificados por emisor
+		final Set<X509Certificate> distinctCerts = new LinkedHashSet<>(certs);
+		final Map<String, List<X509Certificate>> certsByIssuer = new LinkedHashMap<>();
+		for (final X509Certificate cert : distinctCerts) {
+			if (cert == null) {
+				throw new IllegalArgumentException("La lista de certificados no puede contener nulos"); //$NON-NLS-1$
+			}
+			certsByIssuer.computeIfAbsent(getIssuerIdentifier(cert), k -> new ArrayList<>()).add(cert);
+		}
+
+		final Map<X509Certificate, Future<ValidationResult>> tasks = new HashMap<>();
+		final ExecutorService executor = Executors.newFixedThreadPool(
+			Math.max(1, Math.min(MAX_CONCURRENT_VALIDATIONS, distinctCerts.size())),
+			r -> {
+				final Thread t = new Thread(r, "CertificateVerifierFactory"); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		);
+		try {
+			for (final List<X509Certificate> issuerCerts : certsByIssuer.values()) {
+				for (final X509Certificate cert : issuerCerts) {
+					tasks.put(cert, executor.submit(() -> validateCertificate(cert)));
+				}
+			}
+
+			final Map<X509Certificate, ValidationResult> results = new LinkedHashMap<>();
+			for (final X509Certificate cert : certs) {
+				try {
+					results.put(cert, tasks.get(cert).get());
+				}
+				catch (final ExecutionException e) {
+					LOGGER.severe("Error durante la validacion del certificado: " + e.getCause()); //$NON-NLS-1$
+					results.put(cert, ValidationResult.SERVER_ERROR);
+				}
+				catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Se ha interrumpido la validacion de los certificados", e); //$NON-NLS-1$
+				}
+			}
+			return results;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static ValidationResult validateCertificate(final X509Certificate cert) {
+		final CertificateVerificable verifier;
+		try {
+			verifier = getCertificateVerifier(cert);
+		}
+		catch (final CertificateVerifierFactoryException e) {
+			LOGGER.warning("No se conocen mecanismos de validacion para el emisor del certificado: " + e); //$NON-NLS-1$
+			return ValidationResult.CA_NOT_SUPPORTED;
+		}
+		catch (final IllegalArgumentException e) {
+			LOGGER.severe("No se ha podido configurar la validacion del certificado: " + e); //$NON-NLS-1$
+			return ValidationResult.SERVER_ERROR;
+		}
+		return verifier.validateCertificate(cert);
+	}
 }
@@ -21,8 +21,14 @@ import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Logger;
 
 import javax.naming.Context;
@@ -51,6 +57,12 @@ final class CrlHelper {
 
 	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
 
+	/** N&uacute;mero m&aacute;ximo de CRL que se conservan descargadas. */
+	private static final int MAX_CACHED_CRLS = 16;
+
+	/** CRL descargadas o en descarga, por punto de distribuci&oacute;n. */
+	private static final Map<String, FutureTask<DownloadedCrl>> CRLS = new ConcurrentHashMap<>();
+
 	private CrlHelper() {
 		// No permitimos la instanciacion
 	}
@@ -92,42 +104,36 @@ final class CrlHelper {
 			"El certificado con serie '" + cert.getSerialNumber() + "' tiene asociadas las siguientes CRL: " + crlDistPoints //$NON-NLS-1$ //$NON-NLS-2$
 		);
 
-		final CertificateFactory cf;
-		try {
-			cf = CertificateFactory.getInstance("X.509"); //$NON-NLS-1$
-		}
-		catch (final CertificateException e1) {
-			LOGGER.severe("Error instanciando la factoria de certificados: " + e1); //$NON-NLS-1$
-			return ValidationResult.SERVER_ERROR;
-		}
-
 		boolean checked = false;
 		boolean cannotDownload = false;
 		for (final String crlDP : crlDistPoints) {
 
-			// Descargamos
-			final byte[] crlBytes;
+			// Descargamos, o reutilizamos la CRL si ya se descargo y sigue vigente
+			final DownloadedCrl downloadedCrl;
 			try {
-				crlBytes = downloadCrl(crlDP);
+				downloadedCrl = getCrl(crlDP);
 			}
-			catch (final Exception e1) {
+			catch (final CrlDownloadException e1) {
 				LOGGER.severe(
-					"No se ha podido descargar la CRL (" + crlDP + "), se continuara con el siguiente punto de distribucion: " + e1 //$NON-NLS-1$ //$NON-NLS-2$
+					"No se ha podido descargar la CRL (" + crlDP + "), se continuara con el siguiente punto de distribucion: " + e1.getCause() //$NON-NLS-1$ //$NON-NLS-2$
 				);
 				cannotDownload = true;
 				continue;
 			}
-
-			final X509CRL crl;
-			try {
-				crl = (X509CRL)cf.generateCRL(new ByteArrayInputStream(crlBytes));
+			catch (final InterruptedException e) {
+				LOGGER.severe("Se ha interrumpido la descarga de la CRL (" + crlDP + "): " + e); //$NON-NLS-1$ //$NON-NLS-2$
+				Thread.currentThread().interrupt();
+				return ValidationResult.SERVER_ERROR;
 			}
 			catch (final Exception e) {
 				LOGGER.severe("Error analizando la lista de revocacion: " + e); //$NON-NLS-1$
 				return ValidationResult.SERVER_ERROR;
 			}
+
+			final X509CRL crl = downloadedCrl.getCrl();
+
 			// Comprobamos la firma de la CRL
-			if (vaPublicKey != null) {
+			if (vaPublicKey != null && !downloadedCrl.isVerifiedBy(vaPublicKey)) {
 				try {
 					crl.verify(vaPublicKey);
 				}
@@ -135,6 +141,7 @@ final class CrlHelper {
 					LOGGER.severe("No se ha podido comprobar la firma de la CRL: " + e); //$NON-NLS-1$
 					return ValidationResult.SERVER_ERROR;
 				}
+				downloadedCrl.setVerifiedBy(vaPublicKey);
 			}
 			if (crl.isRevoked(cert)) {
 				return ValidationResult.REVOKED;
@@ -154,6 +161,102 @@ final class CrlHelper {
 		return ValidationResult.UNKNOWN;
 	}
 
+	/** Obtiene la CRL de un punto de distribuci&oacute;n. Si varios hilos piden a la vez la
+	 * misma CRL, s&oacute;lo uno la descarga y el resto esperan a que termine. La CRL se
+	 * reutiliza hasta la fecha de su siguiente actualizaci&oacute;n, a partir de la cual se
+	 * vuelve a descargar.
+	 * @param crlDP Punto de distribuci&oacute;n de la CRL.
+	 * @return CRL descargada.
+	 * @throws CrlDownloadException Si no se puede descargar la CRL.
+	 * @throws CRLException Si la CRL descargada no es v&aacute;lida.
+	 * @throws InterruptedException Si se interrumpe la espera de la descarga. */
+	private static DownloadedCrl getCrl(final String crlDP) throws CrlDownloadException,
+	                                                               CRLException,
+	                                                               InterruptedException {
+		while (true) {
+			FutureTask<DownloadedCrl> task = CRLS.get(crlDP);
+			boolean downloaded = false;
+			if (task == null) {
+				final FutureTask<DownloadedCrl> newTask = new FutureTask<>(() -> {
+					final byte[] crlBytes;
+					try {
+						crlBytes = downloadCrl(crlDP);
+					}
+					catch (final Exception e) {
+						throw new CrlDownloadException(e);
+					}
+					return new DownloadedCrl(
+						(X509CRL) CertificateFactory.getInstance("X.509").generateCRL(new ByteArrayInputStream(crlBytes)) //$NON-NLS-1$
+					);
+				});
+				task = CRLS.putIfAbsent(crlDP, newTask);
+				if (task == null) {
+					task = newTask;
+					downloaded = true;
+					if (CRLS.size() > MAX_CACHED_CRLS) {
+						evictCrl(crlDP);
+					}
+					task.run();
+				}
+			}
+
+			final DownloadedCrl crl;
+			try {
+				crl = task.get();
+			}
+			catch (final ExecutionException e) {
+				CRLS.remove(crlDP, task);
+				if (e.getCause() instanceof CrlDownloadException) {
+					throw (CrlDownloadException) e.getCause();
+				}
+				if (e.getCause() instanceof CRLException) {
+					throw (CRLException) e.getCause();
+				}
+				throw new CRLException(e.getCause());
+			}
+
+			// Las CRL caducadas no se conservan, y si la que teniamos ya lo estaba se vuelve a descargar
+			if (crl.getExpiration() <= System.currentTimeMillis()) {
+				CRLS.remove(crlDP, task);
+				if (!downloaded) {
+					continue;
+				}
+			}
+			return crl;
+		}
+	}
+
+	/** Descarta de la cach&eacute; la CRL que antes caduca, sin contar la del punto de
+	 * distribuci&oacute;n indicado. Las CRL que a&uacute;n se est&aacute;n descargando
+	 * s&oacute;lo se descartan si no hay otras.
+	 * @param crlDP Punto de distribuci&oacute;n cuya CRL no se debe descartar.
+	 * @throws InterruptedException Si se interrumpe la consulta de una CRL descargada. */
+	private static void evictCrl(final String crlDP) throws InterruptedException {
+		Map.Entry<String, FutureTask<DownloadedCrl>> evicted = null;
+		long evictedExpiration = Long.MAX_VALUE;
+		for (final Map.Entry<String, FutureTask<DownloadedCrl>> entry : CRLS.entrySet()) {
+			if (entry.getKey().equals(crlDP)) {
+				continue;
+			}
+			long expiration = Long.MAX_VALUE;
+			if (entry.getValue().isDone()) {
+				try {
+					expiration = entry.getValue().get().getExpiration();
+				}
+				catch (final ExecutionException e) {
+					expiration = Long.MIN_VALUE;
+				}
+			}
+			if (evicted == null || expiration < evictedExpiration) {
+				evicted = entry;
+				evictedExpiration = expiration;
+			}
+		}
+		if (evicted != null) {
+			CRLS.remove(evicted.getKey(), evicted.getValue());
+		}
+	}
+
 	private static byte[] downloadCrl(final String crlURL) throws CRLException,
 	                                                              IOException,
 	                                                              NamingException,
@@ -232,4 +335,45 @@ final class CrlHelper {
 			}
 		}
 	}
+
+	/** CRL descargada junto con las claves con las que ya se ha comprobado su firma. */
+	private static final class DownloadedCrl {
+
+		private final X509CRL crl;
+		private final Set<PublicKey> verifiedKeys = ConcurrentHashMap.newKeySet();
+
+		DownloadedCrl(final X509CRL crl) {
+			this.crl = crl;
+		}
+
+		X509CRL getCrl() {
+			return this.crl;
+		}
+
+		/** Obtiene el momento a partir del cual la CRL deja de estar vigente.
+		 * @return Fecha de la siguiente actualizaci&oacute;n en milisegundos, o
+		 *         <code>Long.MIN_VALUE</code> si la CRL no la indica. */
+		long getExpiration() {
+			final Date nextUpdate = this.crl.getNextUpdate();
+			return nextUpdate != null ? nextUpdate.getTime() : Long.MIN_VALUE;
+		}
+
+		boolean isVerifiedBy(final PublicKey key) {
+			return this.verifiedKeys.contains(key);
+		}
+
+		void setVerifiedBy(final PublicKey key) {
+			this.verifiedKeys.add(key);
+		}
+	}
+
+	/** Error en la descarga de una CRL. */
+	private static final class CrlDownloadException extends Exception {
+
+		private static final long serialVersionUID = -2186413553519461382L;
+
+		CrlDownloadException(final Throwable cause) {
+			super(cause);
+		}
+	}
 }
@@ -0,0 +1,74 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.plugin.certvalidation.validation;
+
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.SignatureException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+
+import es.gob.afirma.core.misc.AOUtil;
+
+/** Cach&eacute; de las comprobaciones de firma de certificados por parte de su emisor.
+ * S&oacute;lo se guardan las comprobaciones correctas, identificadas por la huella del
+ * certificado completo y la de la clave p&uacute;blica del emisor, de forma que un
+ * certificado alterado nunca coincide con uno ya comprobado. */
+final class IssuerSignatureCache {
+
+	/** N&uacute;mero m&aacute;ximo de comprobaciones guardadas. */
+	private static final int MAX_ENTRIES = 10000;
+
+	private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+	/** Comprobaciones correctas, de la menos a la m&aacute;s recientemente usada. */
+	private static final LinkedHashMap<String, Boolean> VERIFIED = new LinkedHashMap<>(16, 0.75f, true);
+
+	private IssuerSignatureCache() {
+		// No permitimos la instanciacion
+	}
+
+	/** Comprueba que un certificado est&aacute; firmado por el emisor indicado, salvo que ya
+	 * se haya comprobado antes.
+	 * @param cert Certificado a comprobar.
+	 * @param issuerCert Certificado del emisor.
+	 * @throws CertificateException Si el certificado no se puede codificar.
+	 * @throws NoSuchAlgorithmException Si no se soporta el algoritmo de firma.
+	 * @throws InvalidKeyException Si la clave del emisor no es v&aacute;lida.
+	 * @throws NoSuchProviderException Si no hay proveedor para la comprobaci&oacute;n.
+	 * @throws SignatureException Si la firma no es del emisor. */
+	static void verify(final X509Certificate cert, final X509Certificate issuerCert) throws CertificateException,
+	                                                                                        NoSuchAlgorithmException,
+	                                                                                        InvalidKeyException,
+	                                                                                        NoSuchProviderException,
+	                                                                                        SignatureException {
+		final MessageDigest md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		final String key = AOUtil.hexify(md.digest(cert.getEncoded()), false)
+				+ AOUtil.hexify(md.digest(issuerCert.getPublicKey().getEncoded()), false);
+
+		synchronized (VERIFIED) {
+			if (VERIFIED.get(key) != null) {
+				return;
+			}
+		}
+
+		cert.verify(issuerCert.getPublicKey());
+
+		synchronized (VERIFIED) {
+			VERIFIED.put(key, Boolean.TRUE);
+			if (VERIFIED.size() > MAX_ENTRIES) {
+				VERIFIED.remove(VERIFIED.keySet().iterator().next());
+			}
+		}
+	}
+}
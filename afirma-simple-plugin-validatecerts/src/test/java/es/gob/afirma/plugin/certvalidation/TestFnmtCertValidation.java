@@ -5,6 +5,8 @@ import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -102,4 +104,31 @@ public final class TestFnmtCertValidation {
 		}
 	}
 
+	/** Prueba de validaci&oacute;n por lotes de certificados FNMT v&aacute;lidos y revocados.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	@Ignore
+	public void testBatch() throws Exception {
+		final CertificateFactory cf = CertificateFactory.getInstance("X.509"); //$NON-NLS-1$
+		final Map<X509Certificate, ValidationResult> expected = new LinkedHashMap<>();
+		for (final String c : ACTIVOS) {
+			try (
+				final InputStream is = TestFnmtCertValidation.class.getResourceAsStream("/fnmt/" + c) //$NON-NLS-1$
+			) {
+				expected.put((X509Certificate) cf.generateCertificate(is), ValidationResult.VALID);
+			}
+		}
+		for (final String c : REVOCADOS) {
+			try (
+				final InputStream is = TestFnmtCertValidation.class.getResourceAsStream("/fnmt/" + c) //$NON-NLS-1$
+			) {
+				expected.put((X509Certificate) cf.generateCertificate(is), ValidationResult.REVOKED);
+			}
+		}
+		final Map<X509Certificate, ValidationResult> results = CertificateVerifierFactory.validateCertificates(
+			expected.keySet()
+		);
+		Assert.assertEquals(expected, results);
+	}
 }
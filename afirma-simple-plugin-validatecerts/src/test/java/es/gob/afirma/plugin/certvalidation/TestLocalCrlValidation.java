@@ -0,0 +1,212 @@
+package es.gob.afirma.plugin.certvalidation;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.spongycastle.asn1.x500.X500Name;
+import org.spongycastle.asn1.x509.CRLDistPoint;
+import org.spongycastle.asn1.x509.CRLReason;
+import org.spongycastle.asn1.x509.DistributionPoint;
+import org.spongycastle.asn1.x509.DistributionPointName;
+import org.spongycastle.asn1.x509.Extension;
+import org.spongycastle.asn1.x509.GeneralName;
+import org.spongycastle.asn1.x509.GeneralNames;
+import org.spongycastle.cert.X509v2CRLBuilder;
+import org.spongycastle.cert.X509v3CertificateBuilder;
+import org.spongycastle.cert.jcajce.JcaX509CRLConverter;
+import org.spongycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.spongycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.spongycastle.operator.ContentSigner;
+import org.spongycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import es.gob.afirma.plugin.certvalidation.validation.CertificateVerifierFactory;
+import es.gob.afirma.plugin.certvalidation.validation.ValidationResult;
+
+/** Pruebas de validaci&oacute;n de certificados contra CRL locales, sin acceso a red.
+ * Los certificados los emite una CA de prueba sin configuraci&oacute;n espec&iacute;fica,
+ * por lo que se validan mediante la CRL de su punto de distribuci&oacute;n. */
+public final class TestLocalCrlValidation {
+
+	private static final String SIGNATURE_ALGORITHM = "SHA256withRSA"; //$NON-NLS-1$
+
+	private static final X500Name ISSUER = new X500Name("CN=CA de pruebas de CRL locales, O=Cliente @firma, C=ES"); //$NON-NLS-1$
+
+	/** Milisegundos en un d&iacute;a. */
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	/** N&uacute;mero de CRL que se usan para llenar la cach&eacute; de CRL descargadas. */
+	private static final int CACHE_FILLING_CRLS = 20;
+
+	private static KeyPair caKeys;
+
+	private static long serial = System.currentTimeMillis();
+
+	/** Genera las claves de la CA de pruebas.
+	 * @throws Exception En cualquier error. */
+	@BeforeClass
+	public static void generateCaKeys() throws Exception {
+		final KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA"); //$NON-NLS-1$
+		kpg.initialize(2048);
+		caKeys = kpg.generateKeyPair();
+	}
+
+	/** Prueba la validaci&oacute;n por lotes de certificados v&aacute;lidos, revocados y
+	 * con una CRL que no se puede obtener.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBatch() throws Exception {
+		final File crlFile = newCrlFile();
+		final File missingCrlFile = newCrlFile();
+		Assert.assertTrue(missingCrlFile.delete());
+
+		final X509Certificate valid = createCertificate(crlFile);
+		final X509Certificate revoked = createCertificate(crlFile);
+		final X509Certificate otherRevoked = createCertificate(crlFile);
+		final X509Certificate withoutCrl = createCertificate(missingCrlFile);
+		writeCrl(crlFile, new Date(System.currentTimeMillis() + DAY), revoked, otherRevoked);
+
+		final Map<X509Certificate, ValidationResult> expected = new LinkedHashMap<>();
+		expected.put(valid, ValidationResult.VALID);
+		expected.put(revoked, ValidationResult.REVOKED);
+		expected.put(withoutCrl, ValidationResult.CANNOT_DOWNLOAD_CRL);
+		expected.put(otherRevoked, ValidationResult.REVOKED);
+
+		final Map<X509Certificate, ValidationResult> results = CertificateVerifierFactory.validateCertificates(
+			expected.keySet()
+		);
+		Assert.assertEquals(expected, results);
+		Assert.assertEquals(
+			new ArrayList<>(expected.keySet()),
+			new ArrayList<>(results.keySet())
+		);
+	}
+
+	/** Comprueba que la CRL descargada se reutiliza mientras est&aacute; vigente y que se
+	 * vuelve a descargar cuando pasa la fecha de su siguiente actualizaci&oacute;n.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testExpiredCrlIsDownloadedAgain() throws Exception {
+		final File crlFile = newCrlFile();
+		final X509Certificate cert = createCertificate(crlFile);
+
+		// La fecha de la siguiente actualizacion se codifica en segundos
+		final long nextUpdate = (System.currentTimeMillis() / 1000 + 3) * 1000;
+		writeCrl(crlFile, new Date(nextUpdate));
+		Assert.assertEquals(ValidationResult.VALID, validate(cert));
+
+		writeCrl(crlFile, new Date(System.currentTimeMillis() + DAY), cert);
+		Assert.assertEquals(ValidationResult.VALID, validate(cert));
+
+		Thread.sleep(Math.max(0, nextUpdate - System.currentTimeMillis()) + 500);
+		Assert.assertEquals(ValidationResult.REVOKED, validate(cert));
+	}
+
+	/** Comprueba que al llenarse la cach&eacute; de CRL s&oacute;lo se descartan las que antes
+	 * caducan, y no todas las anteriores.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCacheOverflowKeepsOtherCrls() throws Exception {
+		final File crlFile = newCrlFile();
+		final X509Certificate cert = createCertificate(crlFile);
+		writeCrl(crlFile, new Date(System.currentTimeMillis() + 2 * DAY));
+		Assert.assertEquals(ValidationResult.VALID, validate(cert));
+
+		final List<X509Certificate> others = new ArrayList<>();
+		for (int i = 0; i < CACHE_FILLING_CRLS; i++) {
+			final File otherCrlFile = newCrlFile();
+			others.add(createCertificate(otherCrlFile));
+			writeCrl(otherCrlFile, new Date(System.currentTimeMillis() + DAY));
+		}
+		for (final X509Certificate other : others) {
+			Assert.assertEquals(ValidationResult.VALID, validate(other));
+		}
+
+		// La CRL del primer certificado sigue en cache, por lo que no se ve la revocacion
+		writeCrl(crlFile, new Date(System.currentTimeMillis() + 2 * DAY), cert);
+		Assert.assertEquals(ValidationResult.VALID, validate(cert));
+	}
+
+	private static ValidationResult validate(final X509Certificate cert) {
+		return CertificateVerifierFactory.validateCertificates(Collections.singletonList(cert)).get(cert);
+	}
+
+	private static File newCrlFile() throws Exception {
+		final File crlFile = File.createTempFile("afirma_test_", ".crl"); //$NON-NLS-1$ //$NON-NLS-2$
+		crlFile.deleteOnExit();
+		return crlFile;
+	}
+
+	private static synchronized BigInteger nextSerial() {
+		return BigInteger.valueOf(serial++);
+	}
+
+	private static X509Certificate createCertificate(final File crlFile) throws Exception {
+		final KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA"); //$NON-NLS-1$
+		kpg.initialize(1024);
+		final KeyPair keys = kpg.generateKeyPair();
+
+		final BigInteger certSerial = nextSerial();
+		final long now = System.currentTimeMillis();
+		final X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+			ISSUER,
+			certSerial,
+			new Date(now - DAY),
+			new Date(now + 30 * DAY),
+			new X500Name("CN=Certificado de pruebas " + certSerial + ", O=Cliente @firma, C=ES"), //$NON-NLS-1$ //$NON-NLS-2$
+			keys.getPublic()
+		);
+		builder.addExtension(
+			Extension.cRLDistributionPoints,
+			false,
+			new CRLDistPoint(new DistributionPoint[] {
+				new DistributionPoint(
+					new DistributionPointName(
+						new GeneralNames(new GeneralName(GeneralName.uniformResourceIdentifier, crlFile.toURI().toString()))
+					),
+					null,
+					null
+				)
+			})
+		);
+		return new JcaX509CertificateConverter().getCertificate(builder.build(caSigner()));
+	}
+
+	private static void writeCrl(final File crlFile,
+			                     final Date nextUpdate,
+			                     final X509Certificate... revoked) throws Exception {
+		final Date now = new Date();
+		final X509v2CRLBuilder builder = new X509v2CRLBuilder(ISSUER, new Date(now.getTime() - DAY));
+		builder.setNextUpdate(nextUpdate);
+		for (final X509Certificate cert : Arrays.asList(revoked)) {
+			builder.addCRLEntry(cert.getSerialNumber(), now, CRLReason.keyCompromise);
+		}
+		final X509CRL crl = new JcaX509CRLConverter().getCRL(builder.build(caSigner()));
+		try (
+			final FileOutputStream fos = new FileOutputStream(crlFile)
+		) {
+			fos.write(crl.getEncoded());
+		}
+	}
+
+	private static ContentSigner caSigner() throws Exception {
+		return new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(caKeys.getPrivate());
+	}
+}
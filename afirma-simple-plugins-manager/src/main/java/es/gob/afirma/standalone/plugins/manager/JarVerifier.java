@@ -23,6 +23,8 @@ public class JarVerifier {
 
 	private static final long THRESHOLD_FILE_SIZE = 100000000; // 100Mb
 
+	private static final int BUFFER_SIZE = 8192;
+
 	private JarVerifier() {
 		// Impedimos instanciar la clase
 	}
@@ -60,6 +62,7 @@ public class JarVerifier {
 			}
 
 			// Cargamos todas las entradas para comprobar que estan correctamente firmadas
+			final byte[] buffer = new byte[BUFFER_SIZE];
 			final Enumeration<JarEntry> entries = jar.entries();
 			while (entries.hasMoreElements()) {
 				final JarEntry entry = entries.nextElement();
@@ -71,7 +74,6 @@ public class JarVerifier {
 				}
 
 				// Leemos la entrada para forzar a cargar su informacion
-				final byte[] buffer = new byte[8096];
 				try (InputStream is = jar.getInputStream(entry)) {
 					while (is.read(buffer, 0, buffer.length) != -1) {
 						// No hacemos nada
@@ -8,10 +8,10 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 
 import es.gob.afirma.standalone.plugins.AfirmaPlugin;
 import es.gob.afirma.standalone.plugins.GenericMenuOption;
@@ -33,7 +33,10 @@ public class PluginLoader {
 
 	private static final String CONFIG_FILE = "/plugin.json"; //$NON-NLS-1$
 
-	public static final Map<String, AfirmaPlugin> classLoaderForPlugin = new HashMap<>();
+	/** Plugin que atiende cada clase de acci&oacute;n de men&uacute; o de l&iacute;nea de comandos.
+	 * Si varios plugins declaran la misma clase, la atiende el primero en el orden de
+	 * instalaci&oacute;n. */
+	private static final Map<String, AfirmaPlugin> classLoaderForPlugin = new ConcurrentHashMap<>();
 
 	/**
 	 * Carga la colecci&oacute;n de JARs de un plugin y devuelve un objeto
@@ -90,12 +93,10 @@ public class PluginLoader {
 
 			final PluginInfo info = loadPluginConfiguration(loadedPlugin);
 
-			registryPluginReferences(loadedPlugin, info);
-
-			// TODO: Puesto que ya almacenamos el classLoader de cada clase del plugin, ya
-			// no es necesario configurar las acciones de los botones de los plugins. Habria
-			// que ver donde se usa cada accion y cargar las clases involucradas a partir de
-			// su classLoader, igual que se hace con los menus.
+			// Comprobamos que las acciones de los botones sean validas, pero no las instanciamos
+			// hasta que se pulse el boton (ver getPluginAction(PluginButton)). Cada boton conserva
+			// el plugin que lo definio, de forma que su accion se carga siempre con el ClassLoader
+			// de ese plugin
 			if (info.getButtons() != null) {
 				for (final PluginButton button : info.getButtons()) {
 
@@ -108,16 +109,14 @@ public class PluginLoader {
 						throw new PluginException(String.format("El plugin '%1s' no ha definido la ventana en la que debe aparecer un boton", info.getName())); //$NON-NLS-1$
 					}
 					try {
-						final PluginAction action = (PluginAction)
-								loadAction(button.getActionClassName(), PluginAction.class, classLoader);
-						action.setPlugin(loadedPlugin);
-						button.setAction(action);
+						loadActionClass(button.getActionClassName(), PluginAction.class, classLoader);
 					}
 					catch (final Exception e) {
 						classLoader.close();
 						throw new PluginException(String.format("El plugin '%1s' definio una clase de accion erronea: %2s", //$NON-NLS-1$
 								info.getName(), button.getActionClassName()), e);
 					}
+					button.setPlugin(loadedPlugin);
 				}
 			}
 			// Configuramos la informacion obtenida del plugin, en el propio plugin
@@ -131,20 +130,27 @@ public class PluginLoader {
 	}
 
 	/**
-	 * M&eacute;todo encargado de asociar una lista de actions a un determinado classLoader.
+	 * Asocia las acciones de un plugin cargado a ese plugin. Las acciones que ya
+	 * estuviesen asociadas a otro plugin no se modifican, por lo que los plugins
+	 * deben registrarse en el orden de instalaci&oacute;n.
 	 * @param plugin Plugin.
-	 * @param info Informaci&oacute;n asociada al plugin.
 	 */
-	private static void registryPluginReferences(final AfirmaPlugin plugin, final PluginInfo info) {
+	static void registryPluginReferences(final AfirmaPlugin plugin) {
 		final List<String> actions = new ArrayList<>();
-		getListActions(info, actions);
+		getListActions(plugin.getInfo(), actions);
 		for (final String action : actions) {
-			if (!classLoaderForPlugin.containsKey(action)) {
-				classLoaderForPlugin.put(action, plugin);
-			}
+			classLoaderForPlugin.putIfAbsent(action, plugin);
 		}
 	}
 
+	/**
+	 * Elimina las asociaciones de las acciones de un plugin que se descarga.
+	 * @param plugin Plugin.
+	 */
+	static void removePluginReferences(final AfirmaPlugin plugin) {
+		classLoaderForPlugin.values().removeIf(p -> p == plugin);
+	}
+
 	/**
 	 * M&eacute;todo encargado de recuperar la lista de actions del plugin dado.
 	 * @param info Informaci%oaacute;n del plugin.
@@ -226,7 +232,7 @@ public class PluginLoader {
 	public static PluginAction getPluginAction(final String actionClassName)
 			throws PluginException {
 
-		final AfirmaPlugin plugin = classLoaderForPlugin.get(actionClassName);
+		final AfirmaPlugin plugin = getPluginForAction(actionClassName);
 
 		final PluginAction action = (PluginAction)
 				loadAction(actionClassName, PluginAction.class, plugin.getClassLoader());
@@ -235,6 +241,30 @@ public class PluginLoader {
 		return action;
 	}
 
+	/**
+	 * Obtiene la acci&oacute;n de un bot&oacute;n de plugin. La acci&oacute;n se instancia
+	 * la primera vez que se solicita y se reutiliza en las siguientes.
+	 * @param button Bot&oacute;n del plugin.
+	 * @return Acci&oacute;n del bot&oacute;n.
+	 * @throws PluginException Cuando no se pueda cargar la acci&oacute;n.
+	 */
+	public static PluginAction getPluginAction(final PluginButton button) throws PluginException {
+		synchronized (button) {
+			if (button.getAction() == null) {
+				final AfirmaPlugin plugin = button.getPlugin();
+				if (plugin == null) {
+					throw new PluginException(String.format("El boton con la accion %s no pertenece a ningun plugin cargado", //$NON-NLS-1$
+							button.getActionClassName()));
+				}
+				final PluginAction action = (PluginAction)
+						loadAction(button.getActionClassName(), PluginAction.class, plugin.getClassLoader());
+				action.setPlugin(plugin);
+				button.setAction(action);
+			}
+			return button.getAction();
+		}
+	}
+
 	/**
 	 * Carga una acci&oacute;n de l&iacute;nea de comandos conocida su clase.
 	 * @param actionClassName Nombre de la acci&oacute;n.
@@ -244,7 +274,7 @@ public class PluginLoader {
 	public static PluginCommandAction getPluginCommandAction(final String actionClassName)
 			throws PluginException {
 
-		final AfirmaPlugin plugin = classLoaderForPlugin.get(actionClassName);
+		final AfirmaPlugin plugin = getPluginForAction(actionClassName);
 
 		final PluginCommandAction action = (PluginCommandAction)
 				loadAction(actionClassName, PluginCommandAction.class, plugin.getClassLoader());
@@ -253,7 +283,16 @@ public class PluginLoader {
 		return action;
 	}
 
-	private static Object loadAction(final String actionClassName, final Class<?> actionClassType,
+	private static AfirmaPlugin getPluginForAction(final String actionClassName) throws PluginException {
+		final AfirmaPlugin plugin = classLoaderForPlugin.get(actionClassName);
+		if (plugin == null) {
+			throw new PluginException(String.format("Ningun plugin cargado define la accion %s", //$NON-NLS-1$
+					actionClassName));
+		}
+		return plugin;
+	}
+
+	private static Class<?> loadActionClass(final String actionClassName, final Class<?> actionClassType,
 			final ClassLoader classLoader) throws PluginException {
 		Class<?> actionClass;
 		try {
@@ -268,6 +307,13 @@ public class PluginLoader {
 					"Se ha establecido un boton que no define una accion de tipo %1s", //$NON-NLS-1$
 					PluginAction.class.getName()));
 		}
+		return actionClass;
+	}
+
+	private static Object loadAction(final String actionClassName, final Class<?> actionClassType,
+			final ClassLoader classLoader) throws PluginException {
+
+		final Class<?> actionClass = loadActionClass(actionClassName, actionClassType, classLoader);
 
 		Object actionObject;
 		try {
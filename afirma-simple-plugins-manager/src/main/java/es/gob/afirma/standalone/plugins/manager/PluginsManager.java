@@ -14,6 +14,10 @@ import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -63,6 +67,11 @@ public class PluginsManager {
 	 */
 	public List<AfirmaPlugin> getPluginsLoadedList(final boolean force) throws PluginException {
 		if (this.pluginsLoadedList == null || force) {
+			if (this.pluginsLoadedList != null) {
+				for (final AfirmaPlugin plugin : this.pluginsLoadedList) {
+					PluginLoader.removePluginReferences(plugin);
+				}
+			}
 			this.pluginsLoadedList = loadPlugins();
 		}
 
@@ -85,15 +94,35 @@ public class PluginsManager {
 				throw new PluginException("Error al cargar el listado de plugins", e); //$NON-NLS-1$
 			}
 
-			for (final MinimalPluginInfo info : installedPlugins) {
-				try {
-					final AfirmaPlugin plugin = loadPlugin(info);
-					list.add(plugin);
+			// Los plugins son independientes entre si, asi que los cargamos en paralelo,
+			// conservando en el listado el orden de instalacion. Sus acciones se registran
+			// despues en ese mismo orden, de forma que si dos plugins declaran la misma
+			// accion siempre la atienda el que se instalo antes
+			final ExecutorService executor = Executors.newFixedThreadPool(
+					Math.max(1, Math.min(installedPlugins.length, Runtime.getRuntime().availableProcessors())));
+			try {
+				final List<Future<AfirmaPlugin>> loadings = new ArrayList<>();
+				for (final MinimalPluginInfo info : installedPlugins) {
+					loadings.add(executor.submit(() -> loadPlugin(info)));
 				}
-				catch (final PluginException e) {
-					LOGGER.log(Level.WARNING, String.format("No se ha podido cargar la informacion del plugin %s. Se eliminara del listado", info.getInternalName()), e); //$NON-NLS-1$
+				for (int i = 0; i < installedPlugins.length; i++) {
+					try {
+						final AfirmaPlugin plugin = loadings.get(i).get();
+						PluginLoader.registryPluginReferences(plugin);
+						list.add(plugin);
+					}
+					catch (final ExecutionException e) {
+						LOGGER.log(Level.WARNING, String.format("No se ha podido cargar la informacion del plugin %s. Se eliminara del listado", installedPlugins[i].getInternalName()), e.getCause()); //$NON-NLS-1$
+					}
 				}
 			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new PluginException("Se interrumpio la carga de los plugins", e); //$NON-NLS-1$
+			}
+			finally {
+				executor.shutdown();
+			}
 		}
 
 		return list;
@@ -201,6 +230,7 @@ public class PluginsManager {
 	 * @param plugin Plugin a descargar.
 	 */
 	public static void closePlugin(final AfirmaPlugin plugin) {
+		PluginLoader.removePluginReferences(plugin);
 		final ClassLoader classloader = plugin.getClass().getClassLoader();
 		if (classloader instanceof URLClassLoader) {
 			try {
@@ -269,6 +299,7 @@ public class PluginsManager {
 			this.pluginsLoadedList = new ArrayList<>();
 		}
 		this.pluginsLoadedList.add(plugin);
+		PluginLoader.registryPluginReferences(plugin);
 
 		return plugin;
 	}
@@ -369,6 +400,12 @@ public class PluginsManager {
 		// Descargamos el plugin de memoria
 		final String internalName = info.getInternalName();
 		this.pluginsLoadedList.remove(plugin);
+		PluginLoader.removePluginReferences(plugin);
+		// Las acciones que tambien declarase otro plugin pasan a atenderse por el siguiente
+		// en el orden de instalacion
+		for (final AfirmaPlugin loadedPlugin : this.pluginsLoadedList) {
+			PluginLoader.registryPluginReferences(loadedPlugin);
+		}
 		((URLClassLoader) plugin.getClass().getClassLoader()).close();
 
 		// Identificamos el directorio del plugin y lo eliminamos
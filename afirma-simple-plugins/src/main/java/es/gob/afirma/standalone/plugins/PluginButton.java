@@ -13,6 +13,7 @@ public class PluginButton {
 	private String afirmaWindow = null;
 	private String actionClassName = null;
 	private PluginAction action = null;
+	private AfirmaPlugin plugin = null;
 
 	/**
 	 * Recupera el texto del bot&oacute;n.
@@ -115,4 +116,19 @@ public class PluginButton {
 	public void setAction(final PluginAction action) {
 		this.action = action;
 	}
+
+	/**
+	 * Recupera el plugin que defini&oacute; el bot&oacute;n.
+	 * @return Plugin al que pertenece el bot&oacute;n.
+	 */
+	public AfirmaPlugin getPlugin() {
+		return this.plugin;
+	}
+	/**
+	 * Establece el plugin que defini&oacute; el bot&oacute;n.
+	 * @param plugin Plugin al que pertenece el bot&oacute;n.
+	 */
+	public void setPlugin(final AfirmaPlugin plugin) {
+		this.plugin = plugin;
+	}
 }
@@ -0,0 +1,308 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.standalone;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+import org.spongycastle.asn1.x500.X500Name;
+import org.spongycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.spongycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.spongycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import es.gob.afirma.core.misc.Base64;
+import es.gob.afirma.core.misc.protocol.ProtocolInvocationUriParser;
+import es.gob.afirma.standalone.CommandLineLauncher.CommandResult;
+
+/** Ejecuci&oacute;n de entrenamiento para generar el archivo de clases compartidas (AppCDS)
+ * con el que se reduce el tiempo de arranque de la aplicaci&oacute;n.
+ * <p>Recorre los caminos habituales de arranque (carga de las clases de la interfaz
+ * gr&aacute;fica y de la invocaci&oacute;n por protocolo, an&aacute;lisis de las URL de
+ * invocaci&oacute;n y firma y validaci&oacute;n por l&iacute;nea de comandos en cada formato)
+ * con un certificado temporal y sin mostrar nada al usuario, de forma que la JVM registre las
+ * clases que se cargan. Se ejecuta con la misma JVM con la que se usar&aacute; el archivo:</p>
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=autofirma.jsa -Djava.awt.headless=true \
+ *      -cp autofirma.jar es.gob.afirma.standalone.ClassDataSharingTrainer
+ * </pre>
+ * <p>y el archivo generado se usa al arrancar la aplicaci&oacute;n con
+ * <code>-XX:SharedArchiveFile=autofirma.jsa -Xshare:auto</code>. Los errores en cualquiera de
+ * los pasos no interrumpen el entrenamiento, ya que s&oacute;lo hacen que el archivo recoja
+ * menos clases.</p>
+ * <p>S&oacute;lo los instaladores de Linux generan el archivo, durante la instalaci&oacute;n y
+ * con la JVM del sistema. En Windows el lanzador puede usar cualquier JRE 8 o superior del
+ * sistema en lugar del que se distribuye, y en macOS el archivo no se puede escribir dentro
+ * de la aplicaci&oacute;n firmada sin invalidar su firma, por lo que en ambos casos se
+ * arranca sin &eacute;l.</p> */
+public final class ClassDataSharingTrainer {
+
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	private static final String ALIAS = "cds"; //$NON-NLS-1$
+
+	private static final String PASSWORD = "cds-training"; //$NON-NLS-1$
+
+	/** Formatos con los que se firma y valida por l&iacute;nea de comandos. */
+	private static final String[] FORMATS = {
+		CommandLineParameters.FORMAT_CADES,
+		CommandLineParameters.FORMAT_XADES,
+		CommandLineParameters.FORMAT_PADES
+	};
+
+	/** Clases de la interfaz gr&aacute;fica y de la invocaci&oacute;n por protocolo que no
+	 * pueden ejecutarse sin usuario y que, por tanto, s&oacute;lo se cargan. */
+	private static final String[] PRELOADED_CLASSES = {
+		"es.gob.afirma.standalone.SimpleAfirma", //$NON-NLS-1$
+		"es.gob.afirma.standalone.ui.MainMenu", //$NON-NLS-1$
+		"es.gob.afirma.standalone.ui.MainScreen", //$NON-NLS-1$
+		"es.gob.afirma.standalone.ui.SignPanel", //$NON-NLS-1$
+		"es.gob.afirma.standalone.ui.SignPanelFilePanel", //$NON-NLS-1$
+		"es.gob.afirma.standalone.ui.SignPanelSignTask", //$NON-NLS-1$
+		"es.gob.afirma.standalone.ui.SignDetailPanel", //$NON-NLS-1$
+		"es.gob.afirma.standalone.ui.SignResultListPanel", //$NON-NLS-1$
+		"es.gob.afirma.standalone.ui.DNIeWaitPanel", //$NON-NLS-1$
+		"es.gob.afirma.standalone.ui.ClosePanel", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.ProtocolInvocationLauncher", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.ProtocolInvocationLauncherSign", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.ProtocolInvocationLauncherSignAndSave", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.ProtocolInvocationLauncherSelectCert", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.ProtocolInvocationLauncherBatch", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.ProtocolInvocationLauncherSave", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.ProtocolInvocationLauncherLoad", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.ProtocolInvocationLauncherErrorManager", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.AfirmaWebSocketServerManager", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.AfirmaWebSocketServerV4", //$NON-NLS-1$
+		"es.gob.afirma.standalone.protocol.ResidentInstanceManager", //$NON-NLS-1$
+		"es.gob.afirma.standalone.LocalServiceChannel", //$NON-NLS-1$
+		"es.gob.afirma.ui.core.jse.certificateselection.CertificateSelectionDialog" //$NON-NLS-1$
+	};
+
+	private ClassDataSharingTrainer() {
+		// No instanciable
+	}
+
+	/** Ejecuta el entrenamiento.
+	 * @param args No se usa.
+	 * @throws Exception Si no se puede preparar el entorno de entrenamiento. */
+	public static void main(final String[] args) throws Exception {
+
+		final File workDir = createTempDir();
+		try {
+			trainDesktop();
+			trainProtocol();
+			trainCommandLine(workDir);
+		}
+		finally {
+			deleteDir(workDir);
+		}
+
+		// Se termina de forma ordenada para que la JVM vuelque el archivo de clases
+		System.exit(0);
+	}
+
+	/** Carga las clases de la interfaz gr&aacute;fica y construye algunos componentes
+	 * b&aacute;sicos con el aspecto de la aplicaci&oacute;n. */
+	private static void trainDesktop() {
+		try {
+			LookAndFeelManager.applyLookAndFeel();
+			final JPanel panel = new JPanel();
+			panel.add(new JLabel(SimpleAfirmaMessages.getString("SimpleAfirma.48"))); //$NON-NLS-1$
+			panel.add(new JButton());
+			panel.add(new JComboBox<String>());
+			panel.add(new JScrollPane(new JTextArea()));
+			panel.doLayout();
+		}
+		catch (final Exception | Error e) {
+			LOGGER.log(Level.WARNING, "Error en el entrenamiento de la interfaz grafica", e); //$NON-NLS-1$
+		}
+		for (final String className : PRELOADED_CLASSES) {
+			try {
+				Class.forName(className, false, ClassDataSharingTrainer.class.getClassLoader());
+			}
+			catch (final Exception | LinkageError e) {
+				LOGGER.warning("No se ha podido cargar la clase " + className + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	/** Analiza URL de invocaci&oacute;n por protocolo de las operaciones m&aacute;s
+	 * habituales. */
+	private static void trainProtocol() {
+		final String data = Base64.encode("Datos de entrenamiento".getBytes(StandardCharsets.UTF_8), true); //$NON-NLS-1$
+		final String common = "&id=1234567890&key=12345678&stservlet=http://127.0.0.1/afirma-signature-storage/StorageService" //$NON-NLS-1$
+				+ "&rtservlet=http://127.0.0.1/afirma-signature-retriever/RetrieveService"; //$NON-NLS-1$
+		try {
+			ProtocolInvocationUriParser.getParametersToSign(
+				"afirma://sign?op=sign&format=CAdES&algorithm=SHA256withRSA&dat=" + data + common, //$NON-NLS-1$
+				true);
+			ProtocolInvocationUriParser.getParametersToSign(
+				"afirma://sign?op=sign&format=XAdES&algorithm=SHA256withRSA&dat=" + data + common, //$NON-NLS-1$
+				true);
+			ProtocolInvocationUriParser.getParametersToSelectCert(
+				"afirma://selectcert?op=selectcert" + common, //$NON-NLS-1$
+				true);
+		}
+		catch (final Exception e) {
+			LOGGER.log(Level.WARNING, "Error en el entrenamiento de la invocacion por protocolo", e); //$NON-NLS-1$
+		}
+	}
+
+	/** Firma y valida por l&iacute;nea de comandos en cada formato con un certificado
+	 * temporal.
+	 * @param workDir Directorio de trabajo.
+	 * @throws Exception Si no se puede generar el almac&eacute;n o los datos de prueba. */
+	private static void trainCommandLine(final File workDir) throws Exception {
+
+		final File p12 = new File(workDir, "cds.p12"); //$NON-NLS-1$
+		writeFile(p12, generatePkcs12());
+
+		final File txt = new File(workDir, "data.txt"); //$NON-NLS-1$
+		writeFile(txt, "Datos de entrenamiento".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+		final File xml = new File(workDir, "data.xml"); //$NON-NLS-1$
+		writeFile(xml, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><datos><dato Id=\"d1\">Entrenamiento</dato></datos>" //$NON-NLS-1$
+				.getBytes(StandardCharsets.UTF_8));
+		final File pdf = new File(workDir, "data.pdf"); //$NON-NLS-1$
+		writeFile(pdf, buildPdf());
+
+		final String store = CommandLineLauncher.STORE_P12 + ':' + p12.getAbsolutePath();
+
+		execute(CommandLineCommand.LIST.getOp(), "-store", store, "-password", PASSWORD); //$NON-NLS-1$ //$NON-NLS-2$
+
+		for (final String format : FORMATS) {
+			final File input = CommandLineParameters.FORMAT_XADES.equals(format) ? xml
+					: CommandLineParameters.FORMAT_PADES.equals(format) ? pdf : txt;
+			final File output = new File(workDir, "signature." + format); //$NON-NLS-1$
+			execute(CommandLineCommand.SIGN.getOp(),
+					CommandLineParameters.PARAM_INPUT, input.getAbsolutePath(),
+					CommandLineParameters.PARAM_OUTPUT, output.getAbsolutePath(),
+					"-format", format, //$NON-NLS-1$
+					CommandLineParameters.PARAM_STORE, store,
+					"-password", PASSWORD, //$NON-NLS-1$
+					"-alias", ALIAS); //$NON-NLS-1$
+			if (output.isFile()) {
+				execute(CommandLineCommand.VERIFY.getOp(),
+						CommandLineParameters.PARAM_INPUT, output.getAbsolutePath());
+			}
+		}
+	}
+
+	private static void execute(final String... args) {
+		try {
+			final CommandResult result = CommandLineLauncher.executeCommand(args, false);
+			if (result.getStatus() != CommandLineLauncher.STATUS_SUCCESS) {
+				LOGGER.warning("Error en el comando de entrenamiento " + args[0] + ": " + result.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		catch (final Exception e) {
+			LOGGER.log(Level.WARNING, "Error en el comando de entrenamiento " + args[0], e); //$NON-NLS-1$
+		}
+	}
+
+	/** Genera un almac&eacute;n PKCS#12 con un certificado autofirmado de un solo uso.
+	 * @return Almac&eacute;n codificado.
+	 * @throws Exception Si no se puede generar el certificado. */
+	private static byte[] generatePkcs12() throws Exception {
+		final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA"); //$NON-NLS-1$
+		keyPairGenerator.initialize(2048);
+		final KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+		final X500Name name = new X500Name("CN=Autofirma CDS"); //$NON-NLS-1$
+		final Date now = new Date();
+		final X509Certificate cert = new JcaX509CertificateConverter().getCertificate(
+			new JcaX509v3CertificateBuilder(
+				name,
+				BigInteger.valueOf(now.getTime()),
+				now,
+				new Date(now.getTime() + 24L * 3600 * 1000),
+				name,
+				keyPair.getPublic()
+			).build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())) //$NON-NLS-1$
+		);
+
+		final KeyStore ks = KeyStore.getInstance("PKCS12"); //$NON-NLS-1$
+		ks.load(null, null);
+		ks.setKeyEntry(ALIAS, keyPair.getPrivate(), PASSWORD.toCharArray(), new Certificate[] { cert });
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ks.store(baos, PASSWORD.toCharArray());
+		return baos.toByteArray();
+	}
+
+	/** Construye un PDF m&iacute;nimo de una p&aacute;gina.
+	 * @return Documento PDF. */
+	private static byte[] buildPdf() {
+		final String[] objects = {
+			"<</Type/Catalog/Pages 2 0 R>>", //$NON-NLS-1$
+			"<</Type/Pages/Kids[3 0 R]/Count 1>>", //$NON-NLS-1$
+			"<</Type/Page/Parent 2 0 R/MediaBox[0 0 595 842]>>" //$NON-NLS-1$
+		};
+		final StringBuilder pdf = new StringBuilder("%PDF-1.4\n"); //$NON-NLS-1$
+		final int[] offsets = new int[objects.length];
+		for (int i = 0; i < objects.length; i++) {
+			offsets[i] = pdf.length();
+			pdf.append(i + 1).append(" 0 obj\n").append(objects[i]).append("\nendobj\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		final int xref = pdf.length();
+		pdf.append("xref\n0 ").append(objects.length + 1).append("\n0000000000 65535 f \n"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (final int offset : offsets) {
+			pdf.append(String.format("%010d 00000 n \n", Integer.valueOf(offset))); //$NON-NLS-1$
+		}
+		pdf.append("trailer\n<</Size ").append(objects.length + 1).append("/Root 1 0 R>>\n") //$NON-NLS-1$ //$NON-NLS-2$
+			.append("startxref\n").append(xref).append("\n%%EOF\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		return pdf.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static File createTempDir() throws IOException {
+		final File dir = File.createTempFile("afirma-cds", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		if (!dir.delete() || !dir.mkdirs()) {
+			throw new IOException("No se ha podido crear el directorio de entrenamiento"); //$NON-NLS-1$
+		}
+		return dir;
+	}
+
+	private static void writeFile(final File file, final byte[] content) throws IOException {
+		try (final OutputStream os = new FileOutputStream(file)) {
+			os.write(content);
+		}
+	}
+
+	private static void deleteDir(final File dir) {
+		final File[] files = dir.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				if (!file.delete()) {
+					file.deleteOnExit();
+				}
+			}
+		}
+		if (!dir.delete()) {
+			dir.deleteOnExit();
+		}
+	}
+}
@@ -0,0 +1,385 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.standalone;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.gob.afirma.standalone.CommandLineLauncher.CommandResult;
+
+/** Servicio residente de l&iacute;nea de comandos. Atiende por un puerto local los mismos
+ * comandos que la l&iacute;nea de comandos, conservando abiertos los almacenes PKCS#12 y
+ * cargados los proveedores y firmadores entre operaciones, de forma que las invocaciones
+ * sucesivas no tienen que volver a iniciarlos.
+ * <p>Se inicia con el comando <code>daemon [-port PUERTO] [-timeout SEGUNDOS]</code> y
+ * finaliza cuando pasa el tiempo indicado sin recibir peticiones (por defecto, 30 minutos;
+ * 0 para no finalizar nunca). Mientras est&aacute; en ejecuci&oacute;n, las invocaciones
+ * por l&iacute;nea de comandos que no requieren interfaz gr&aacute;fica se le delegan
+ * autom&aacute;ticamente.</p>
+ * <p>El puerto y la clave con la que se autentican mutuamente el servicio y los clientes se
+ * publican mediante {@link LocalServiceChannel}, de forma que los par&aacute;metros (incluidas
+ * las contrase&ntilde;as) s&oacute;lo se env&iacute;an al servicio tras comprobar que conoce
+ * la clave.</p> */
+final class CommandLineDaemon {
+
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	/** Comando con el que se inicia el servicio. */
+	static final String COMMAND = "daemon"; //$NON-NLS-1$
+
+	private static final String PARAM_PORT = "-port"; //$NON-NLS-1$
+
+	private static final String PARAM_TIMEOUT = "-timeout"; //$NON-NLS-1$
+
+	private static final String PARAM_HELP = "-help"; //$NON-NLS-1$
+
+	/** Segundos sin peticiones tras los que se detiene el servicio por defecto. */
+	private static final int DEFAULT_IDLE_TIMEOUT = 1800;
+
+	/** Milisegundos entre las comprobaciones de inactividad. */
+	private static final int IDLE_CHECK_INTERVAL = 1000;
+
+	/** Fichero en el que se publican el puerto y la clave del servicio. */
+	private static final File DESCRIPTOR_FILE = new File(SimpleAfirma.APPLICATION_HOME, "commandline.daemon"); //$NON-NLS-1$
+
+	private final LocalServiceChannel channel;
+
+	private final long idleTimeout;
+
+	private final ExecutorService workers;
+
+	private final AtomicInteger activeRequests = new AtomicInteger(0);
+
+	private volatile long lastActivity = System.currentTimeMillis();
+
+	private CommandLineDaemon(final LocalServiceChannel channel, final int idleTimeoutSeconds) {
+		this.channel = channel;
+		this.idleTimeout = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+		this.workers = Executors.newFixedThreadPool(
+			Math.max(2, Runtime.getRuntime().availableProcessors()),
+			r -> {
+				final Thread t = new Thread(r, "CommandLineDaemonWorker"); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		);
+	}
+
+	/** Inicia el servicio residente y atiende peticiones hasta que se supera el tiempo
+	 * de inactividad.
+	 * @param args Par&aacute;metros con los que se ha invocado a la aplicaci&oacute;n.
+	 * @return Resultado con el que debe finalizar la aplicaci&oacute;n. */
+	static CommandResult start(final String[] args) {
+
+		int port = 0;
+		int idleTimeoutSeconds = DEFAULT_IDLE_TIMEOUT;
+		for (int i = 1; i < args.length; i++) {
+			if (PARAM_HELP.equalsIgnoreCase(args[i])) {
+				return new CommandResult(CommandLineLauncher.STATUS_SUCCESS, buildSyntax(null));
+			}
+			if (i + 1 >= args.length) {
+				return new CommandResult(CommandLineLauncher.STATUS_ERROR, buildSyntax(args[i]));
+			}
+			try {
+				if (PARAM_PORT.equalsIgnoreCase(args[i])) {
+					port = Integer.parseInt(args[++i]);
+				}
+				else if (PARAM_TIMEOUT.equalsIgnoreCase(args[i])) {
+					idleTimeoutSeconds = Integer.parseInt(args[++i]);
+				}
+				else {
+					return new CommandResult(CommandLineLauncher.STATUS_ERROR, buildSyntax(args[i]));
+				}
+			}
+			catch (final NumberFormatException e) {
+				return new CommandResult(CommandLineLauncher.STATUS_ERROR, buildSyntax(args[i - 1]));
+			}
+			if (port < 0 || port > 65535 || idleTimeoutSeconds < 0) {
+				return new CommandResult(CommandLineLauncher.STATUS_ERROR, buildSyntax(args[i - 1]));
+			}
+		}
+
+		final LocalServiceChannel channel;
+		try {
+			channel = LocalServiceChannel.open(DESCRIPTOR_FILE, port, IDLE_CHECK_INTERVAL);
+		}
+		catch (final IOException e) {
+			LOGGER.log(Level.SEVERE, "No se pudo iniciar el servicio de linea de comandos", e); //$NON-NLS-1$
+			return new CommandResult(
+				CommandLineLauncher.STATUS_ERROR,
+				"No se pudo iniciar el servicio de linea de comandos: " + e //$NON-NLS-1$
+			);
+		}
+		if (channel == null) {
+			return new CommandResult(
+				CommandLineLauncher.STATUS_ERROR,
+				"Ya hay un servicio de linea de comandos en ejecucion" //$NON-NLS-1$
+			);
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> channel.close()));
+
+		final CommandLineDaemon daemon = new CommandLineDaemon(channel, idleTimeoutSeconds);
+		CommandLineLauncher.enableKeyStoreCache();
+		daemon.serve();
+
+		return new CommandResult(CommandLineLauncher.STATUS_SUCCESS, null);
+	}
+
+	/** Delega un comando en el servicio residente si hay uno en ejecuci&oacute;n y el
+	 * comando no requiere interfaz gr&aacute;fica.
+	 * @param args Par&aacute;metros con los que se ha invocado a la aplicaci&oacute;n.
+	 * @return Resultado del comando o {@code null} si no se ha podido delegar y debe
+	 *         ejecutarse en este proceso. */
+	static CommandResult forward(final String[] args) {
+
+		if (!isForwardable(args)) {
+			return null;
+		}
+
+		// Solo se obtiene la conexion si el servicio ha demostrado conocer la clave publicada
+		final Socket connection = LocalServiceChannel.connect(DESCRIPTOR_FILE);
+		if (connection == null) {
+			return null;
+		}
+
+		try (final Socket socket = connection) {
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			final String[] absoluteArgs = absolutizePaths(args);
+			out.writeInt(absoluteArgs.length);
+			for (final String arg : absoluteArgs) {
+				writeString(out, arg);
+			}
+			out.flush();
+
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final int status = in.readInt();
+			return new CommandResult(status, readString(in));
+		}
+		catch (final IOException e) {
+			LOGGER.log(Level.WARNING, "Error en la comunicacion con el servicio de linea de comandos", e); //$NON-NLS-1$
+			return new CommandResult(
+				CommandLineLauncher.STATUS_ERROR,
+				"Error en la comunicacion con el servicio de linea de comandos: " + e //$NON-NLS-1$
+			);
+		}
+	}
+
+	/** Atiende peticiones hasta que se supera el tiempo de inactividad. */
+	private void serve() {
+		LOGGER.info("Servicio de linea de comandos iniciado en el puerto " + this.channel.getPort()); //$NON-NLS-1$
+		try {
+			while (!isIdle()) {
+				final Socket socket;
+				try {
+					socket = this.channel.accept();
+				}
+				catch (final SocketTimeoutException e) {
+					continue;
+				}
+				this.activeRequests.incrementAndGet();
+				this.lastActivity = System.currentTimeMillis();
+				try {
+					this.workers.execute(() -> attend(socket));
+				}
+				catch (final RejectedExecutionException e) {
+					this.activeRequests.decrementAndGet();
+					closeQuietly(socket);
+				}
+			}
+			LOGGER.info("Se detiene el servicio de linea de comandos por inactividad"); //$NON-NLS-1$
+		}
+		catch (final IOException e) {
+			LOGGER.log(Level.SEVERE, "Error en el servicio de linea de comandos", e); //$NON-NLS-1$
+		}
+		finally {
+			shutdown();
+		}
+	}
+
+	/** Atiende una petici&oacute;n.
+	 * @param socket Conexi&oacute;n por la que se recibe la petici&oacute;n. */
+	private void attend(final Socket socket) {
+		try (final Socket s = socket) {
+			// Las peticiones que no se autentiquen se descartan sin respuesta. La autenticacion
+			// deja establecido un tiempo maximo de lectura, de forma que un cliente que no envia
+			// datos no ocupa indefinidamente un hilo del servicio
+			if (!this.channel.authenticate(s)) {
+				LOGGER.warning("Se ha descartado una peticion sin la clave del servicio de linea de comandos"); //$NON-NLS-1$
+				return;
+			}
+
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+			final int argsCount = in.readInt();
+			if (argsCount < 0 || argsCount > 1024) {
+				throw new IOException("Numero de argumentos no valido: " + argsCount); //$NON-NLS-1$
+			}
+			final String[] args = new String[argsCount];
+			for (int i = 0; i < argsCount; i++) {
+				args[i] = readString(in);
+			}
+
+			final CommandResult result;
+			if (isForwardable(args)) {
+				result = CommandLineLauncher.executeCommand(args, false);
+			}
+			else {
+				result = new CommandResult(
+					CommandLineLauncher.STATUS_ERROR,
+					"El servicio de linea de comandos no admite este comando" //$NON-NLS-1$
+				);
+			}
+			out.writeInt(result.getStatus());
+			writeString(out, result.getMessage());
+			out.flush();
+		}
+		catch (final EOFException | SocketTimeoutException e) {
+			LOGGER.fine("Se cerro la conexion sin enviar una peticion: " + e); //$NON-NLS-1$
+		}
+		catch (final Exception e) {
+			LOGGER.log(Level.WARNING, "Error al atender una peticion del servicio de linea de comandos", e); //$NON-NLS-1$
+		}
+		finally {
+			this.lastActivity = System.currentTimeMillis();
+			this.activeRequests.decrementAndGet();
+		}
+	}
+
+	/** Indica si se ha superado el tiempo de inactividad sin peticiones en curso.
+	 * @return {@code true} si debe detenerse el servicio. */
+	private boolean isIdle() {
+		return this.idleTimeout > 0
+				&& this.activeRequests.get() == 0
+				&& System.currentTimeMillis() - this.lastActivity > this.idleTimeout;
+	}
+
+	/** Detiene el servicio y elimina el fichero con su clave. */
+	private void shutdown() {
+		this.channel.close();
+		this.workers.shutdown();
+	}
+
+	/** Indica si un comando puede ejecutarse en el servicio residente. No pueden hacerlo
+	 * los comandos de los plugins, las peticiones de ayuda ni las operaciones que muestran
+	 * interfaz gr&aacute;fica.
+	 * @param args Par&aacute;metros con los que se ha invocado a la aplicaci&oacute;n.
+	 * @return {@code true} si el comando puede delegarse. */
+	private static boolean isForwardable(final String[] args) {
+		if (args == null || args.length < 1 || CommandLineCommand.parse(args[0].toLowerCase()) == null) {
+			return false;
+		}
+		for (final String arg : args) {
+			if (PARAM_HELP.equalsIgnoreCase(arg)
+					|| CommandLineParameters.PARAM_GUI.equals(arg)
+					|| CommandLineParameters.PARAM_CERT_GUI.equals(arg)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Convierte en absolutas las rutas relativas de los par&aacute;metros, ya que el
+	 * servicio se ejecuta en un directorio distinto al del cliente.
+	 * @param args Par&aacute;metros con los que se ha invocado a la aplicaci&oacute;n.
+	 * @return Par&aacute;metros con las rutas absolutas. */
+	private static String[] absolutizePaths(final String[] args) {
+		final String[] result = args.clone();
+		for (int i = 1; i < result.length - 1; i++) {
+			if (CommandLineParameters.PARAM_INPUT.equals(result[i])
+					|| CommandLineParameters.PARAM_OUTPUT.equals(result[i])) {
+				result[i + 1] = absolutizePath(result[i + 1]);
+				i++;
+			}
+			else if (CommandLineParameters.PARAM_STORE.equals(result[i])) {
+				for (final String prefix : new String[] { CommandLineLauncher.STORE_P12 + ":", CommandLineLauncher.STORE_P11 + ":" }) { //$NON-NLS-1$ //$NON-NLS-2$
+					if (result[i + 1].startsWith(prefix)) {
+						result[i + 1] = prefix + absolutizePath(result[i + 1].substring(prefix.length()));
+					}
+				}
+				i++;
+			}
+		}
+		return result;
+	}
+
+	private static String absolutizePath(final String path) {
+		// Las rutas relativas al directorio de usuario se resuelven igual en el servicio
+		if (path.startsWith("~")) { //$NON-NLS-1$
+			return path;
+		}
+		return new File(path).getAbsolutePath();
+	}
+
+	private static String buildSyntax(final String wrongParam) {
+		final StringBuilder sb = new StringBuilder();
+		if (wrongParam != null) {
+			sb.append("Parametro no valido: ").append(wrongParam).append("\n\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		sb.append(DesktopUtil.getApplicationFilename()).append(' ').append(COMMAND)
+			.append(" [").append(PARAM_PORT).append(" puerto]") //$NON-NLS-1$ //$NON-NLS-2$
+			.append(" [").append(PARAM_TIMEOUT).append(" segundos]"); //$NON-NLS-1$ //$NON-NLS-2$
+		return sb.toString();
+	}
+
+	private static byte[] readBytes(final DataInputStream in, final int length) throws IOException {
+		final byte[] data = new byte[length];
+		in.readFully(data);
+		return data;
+	}
+
+	/** Escribe un texto precedido de su longitud. Se usa en lugar de
+	 * {@link DataOutputStream#writeUTF(String)} porque los resultados pueden superar 64 KB.
+	 * @param out Flujo de escritura.
+	 * @param text Texto o {@code null}.
+	 * @throws IOException Cuando falla la escritura. */
+	private static void writeString(final DataOutputStream out, final String text) throws IOException {
+		if (text == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(encoded.length);
+		out.write(encoded);
+	}
+
+	private static String readString(final DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		return new String(readBytes(in, length), StandardCharsets.UTF_8);
+	}
+
+	private static void closeQuietly(final Closeable closeable) {
+		try {
+			closeable.close();
+		}
+		catch (final IOException e) {
+			LOGGER.fine("Error al cerrar la conexion: " + e); //$NON-NLS-1$
+		}
+	}
+}
@@ -26,7 +26,9 @@ import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableEntryException;
 import java.security.cert.CertificateEncodingException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -96,112 +98,140 @@ final class CommandLineLauncher {
 	/** Clave con la que se configuran los filtros en el CertFilterManager. */
 	private static final String KEY_FILTERS = "filters";  //$NON-NLS-1$
 
-	private static final int STATUS_ERROR = -1;
-	private static final int STATUS_SUCCESS = 0;
+	static final int STATUS_ERROR = -1;
+	static final int STATUS_SUCCESS = 0;
 
 	private static final String STORE_AUTO = "auto"; //$NON-NLS-1$
 	private static final String STORE_MAC  = "mac"; //$NON-NLS-1$
 	private static final String STORE_WIN  = "windows"; //$NON-NLS-1$
-	private static final String STORE_P12  = "pkcs12"; //$NON-NLS-1$
+	static final String STORE_P12          = "pkcs12"; //$NON-NLS-1$
 	private static final String STORE_NSS  = "mozilla"; //$NON-NLS-1$
 	private static final String STORE_DNI  = "dni"; //$NON-NLS-1$
-	private static final String STORE_P11  = "pkcs11"; //$NON-NLS-1$
+	static final String STORE_P11          = "pkcs11"; //$NON-NLS-1$
 
     private static PluginsManager pluginsManager = null;
 
+	/** Almacenes PKCS#12 ya abiertos, por ruta can&oacute;nica y contrase&ntilde;a.
+	 * S&oacute;lo se usa cuando la aplicaci&oacute;n se ejecuta como servicio residente. */
+	private static Map<String, CachedKeyStore> ksmCache = null;
+
 	static void processCommandLine(final String[] args) {
 
 		final Console console = System.console();
 		try (final PrintWriter pw = console != null ? console.writer() : new PrintWriter(System.out)) {
 
-			// Comprobamos si hay que mostrar la sintaxis de la aplicacion
-			if (args == null || args.length < 1 || PARAM_HELP.equalsIgnoreCase(args[0])) {
-				closeApp(STATUS_SUCCESS, pw, buildGeneralSyntax(null));
+			// Comprobamos si se debe iniciar el servicio residente
+			if (args != null && args.length > 0 && CommandLineDaemon.COMMAND.equalsIgnoreCase(args[0])) {
+				final CommandResult result = CommandLineDaemon.start(args);
+				closeApp(result.getStatus(), pw, result.getMessage());
 				return;
 			}
 
-			// Identificamos el comando
-			String response;
-			final String argCommand = args[0].toLowerCase();
-			final boolean needXmlResponse = checkXmlResponseNeeded(args);
-			final CommandLineCommand command = CommandLineCommand.parse(argCommand);
-			try {
-				// Si es uno de los comandos reconocidos por la aplicacion, ejecutamos
-				// la operacion
-				if (command != null) {
-					response = processCommand(command, args);
-				}
-				// Si no es es un comando reconocido por la aplicacion, comprobamos si esta
-				// reconocido por alguno de los plugins
-				else {
-					final PluginCommand pluginCommand = getPluginCommand(args[0].toLowerCase());
-					if (pluginCommand != null) {
-						response = processPluginCommand(pluginCommand, args);
-					}
-					// Si no es un comando reconocido ni por la aplicacion ni por los plugins,
-					// mostramos un error
-					else {
-						throw new UnsupportedOperationException(
-								buildGeneralSyntax(
-										CommandLineMessages.getString(
-												"CommandLineLauncher.15", //$NON-NLS-1$
-												args[0])));
-					}
-				}
+			// Si hay un servicio residente en ejecucion, le delegamos la operacion
+			CommandResult result = CommandLineDaemon.forward(args);
+
+			// Si no, la ejecutamos en este proceso
+			if (result == null) {
+				result = executeCommand(args, true);
 			}
-			catch (final CommandLineParameterException e) {
-				if (e.isUsingGui()) {
-					showErrorDialog(e.getMessage(), e);
-				}
 
-				final String msg = CommandLineParameters.buildSyntaxError(command, e.getMessage());
-				closeApp(STATUS_ERROR, pw, msg);
+			if (result.getStatus() != STATUS_SUCCESS) {
+				closeApp(result.getStatus(), pw, result.getMessage());
 				return;
 			}
-			catch (final CommandLineException e) {
-				if (e.isUsingGui()) {
-					showErrorDialog(e.getMessage(), e);
-				}
 
-				String msg;
-				final Throwable cause = e.getCause();
-				if (cause != null && cause instanceof AOKeystoreAlternativeException) {
-					msg = CommandLineMessages.getString("CommandLineLauncher.49", cause.getMessage()); //$NON-NLS-1$
-				} else if (cause != null) {
-					msg = cause.getMessage();
-				} else {
-					msg = e.getMessage();
-				}
-				if (needXmlResponse) {
-					msg = buildXmlResponse(false, msg, null);
-				}
-				closeApp(STATUS_ERROR, pw, msg);
-				return;
+			// Imprimimos el resultado de la operacion
+			printMessage(pw, result.getMessage());
+
+			if (result.getMessage() != null) {
+				System.exit(0);
 			}
-			catch (PluginControlledException | UnsupportedOperationException e) {
-				String msg = e.getMessage();
-				if (needXmlResponse) {
-					msg = buildXmlResponse(false, msg, null);
-				}
-				closeApp(STATUS_ERROR, pw, msg);
-				return;
+		}
+	}
+
+	/** Ejecuta un comando sin finalizar la aplicaci&oacute;n.
+	 * @param args Par&aacute;metros con los que se ha invocado a la aplicaci&oacute;n.
+	 * @param guiAllowed Si se pueden mostrar di&aacute;logos de error al usuario.
+	 * @return Resultado de la ejecuci&oacute;n. */
+	static CommandResult executeCommand(final String[] args, final boolean guiAllowed) {
+
+		// Comprobamos si hay que mostrar la sintaxis de la aplicacion
+		if (args == null || args.length < 1 || PARAM_HELP.equalsIgnoreCase(args[0])) {
+			return new CommandResult(STATUS_SUCCESS, buildGeneralSyntax(null));
+		}
+
+		// Identificamos el comando
+		String response;
+		final String argCommand = args[0].toLowerCase();
+		final boolean needXmlResponse = checkXmlResponseNeeded(args);
+		final CommandLineCommand command = CommandLineCommand.parse(argCommand);
+		try {
+			// Si es uno de los comandos reconocidos por la aplicacion, ejecutamos
+			// la operacion
+			if (command != null) {
+				response = processCommand(command, args);
 			}
-			catch (final Exception e) {
-				String msg = CommandLineMessages.getString("CommandLineLauncher.50", e.getMessage()); //$NON-NLS-1$
-				if (needXmlResponse) {
-					msg = buildXmlResponse(false, msg, null);
+			// Si no es es un comando reconocido por la aplicacion, comprobamos si esta
+			// reconocido por alguno de los plugins
+			else {
+				final PluginCommand pluginCommand = getPluginCommand(args[0].toLowerCase());
+				if (pluginCommand != null) {
+					response = processPluginCommand(pluginCommand, args);
+				}
+				// Si no es un comando reconocido ni por la aplicacion ni por los plugins,
+				// mostramos un error
+				else {
+					throw new UnsupportedOperationException(
+							buildGeneralSyntax(
+									CommandLineMessages.getString(
+											"CommandLineLauncher.15", //$NON-NLS-1$
+											args[0])));
 				}
-				closeApp(STATUS_ERROR, pw, msg);
-				return;
+			}
+		}
+		catch (final CommandLineParameterException e) {
+			if (guiAllowed && e.isUsingGui()) {
+				showErrorDialog(e.getMessage(), e);
 			}
 
-			// Imprimimos el resultado de la operacion
-			printMessage(pw, response);
+			final String msg = CommandLineParameters.buildSyntaxError(command, e.getMessage());
+			return new CommandResult(STATUS_ERROR, msg);
+		}
+		catch (final CommandLineException e) {
+			if (guiAllowed && e.isUsingGui()) {
+				showErrorDialog(e.getMessage(), e);
+			}
 
-			if (response != null) {
-				System.exit(0);
+			String msg;
+			final Throwable cause = e.getCause();
+			if (cause != null && cause instanceof AOKeystoreAlternativeException) {
+				msg = CommandLineMessages.getString("CommandLineLauncher.49", cause.getMessage()); //$NON-NLS-1$
+			} else if (cause != null) {
+				msg = cause.getMessage();
+			} else {
+				msg = e.getMessage();
+			}
+			if (needXmlResponse) {
+				msg = buildXmlResponse(false, msg, null);
 			}
+			return new CommandResult(STATUS_ERROR, msg);
 		}
+		catch (PluginControlledException | UnsupportedOperationException e) {
+			String msg = e.getMessage();
+			if (needXmlResponse) {
+				msg = buildXmlResponse(false, msg, null);
+			}
+			return new CommandResult(STATUS_ERROR, msg);
+		}
+		catch (final Exception e) {
+			String msg = CommandLineMessages.getString("CommandLineLauncher.50", e.getMessage()); //$NON-NLS-1$
+			if (needXmlResponse) {
+				msg = buildXmlResponse(false, msg, null);
+			}
+			return new CommandResult(STATUS_ERROR, msg);
+		}
+
+		return new CommandResult(STATUS_SUCCESS, response);
 	}
 
 	private static boolean checkXmlResponseNeeded(final String[] args) {
@@ -948,10 +978,72 @@ final class CommandLineLauncher {
 		return sb.toString();
 	}
 
+	/** Hace que los gestores de almac&eacute;n se conserven abiertos para las siguientes
+	 * operaciones en lugar de cargarlos en cada una de ellas. */
+	static synchronized void enableKeyStoreCache() {
+		if (ksmCache == null) {
+			ksmCache = new HashMap<>();
+		}
+	}
+
+	/** Obtiene el gestor del almac&eacute;n indicado. Cuando est&aacute; activa la cach&eacute;
+	 * s&oacute;lo se reutilizan los almacenes PKCS#12, que son ficheros en memoria que admiten
+	 * su uso simult&aacute;neo, y se vuelven a cargar si el fichero cambia. Los almacenes del
+	 * sistema y los de tarjeta (PKCS#11, DNIe) no admiten su uso desde varios hilos a la vez y
+	 * su contenido cambia al insertar o extraer tarjetas, por lo que se cargan en cada
+	 * operaci&oacute;n.
+	 * @param storeType Tipo de almac&eacute;n indicado en la l&iacute;nea de comandos.
+	 * @param pwd Contrase&ntilde;a del almac&eacute;n.
+	 * @return Gestor del almac&eacute;n. */
 	private static AOKeyStoreManager getKsm(final String storeType,
 			                                final String pwd) throws IOException,
 	                                                                 CommandLineException,
 	                                                                 AOKeystoreAlternativeException {
+		final Map<String, CachedKeyStore> cache;
+		synchronized (CommandLineLauncher.class) {
+			cache = ksmCache;
+		}
+		if (cache == null || storeType == null || !storeType.startsWith(STORE_P12 + ":")) { //$NON-NLS-1$
+			return loadKsm(storeType, pwd);
+		}
+
+		final File p12File = cleanupPathFile(storeType.replace(STORE_P12 + ":", "")); //$NON-NLS-1$ //$NON-NLS-2$
+		if (p12File == null) {
+			return loadKsm(storeType, pwd);
+		}
+		final long lastModified = p12File.lastModified();
+		final String key = p12File.getPath() + '\0' + pwd;
+
+		// Cada almacen se carga una unica vez aunque lo soliciten varias operaciones a la vez
+		synchronized (cache) {
+			final CachedKeyStore cached = cache.get(key);
+			if (cached != null && cached.lastModified == lastModified) {
+				return cached.ksm;
+			}
+			final AOKeyStoreManager ksm = loadKsm(storeType, pwd);
+			cache.put(key, new CachedKeyStore(ksm, lastModified));
+			return ksm;
+		}
+	}
+
+	/** Almac&eacute;n PKCS#12 abierto junto con la fecha de modificaci&oacute;n del fichero
+	 * del que se carg&oacute;. */
+	private static final class CachedKeyStore {
+
+		final AOKeyStoreManager ksm;
+
+		final long lastModified;
+
+		CachedKeyStore(final AOKeyStoreManager ksm, final long lastModified) {
+			this.ksm = ksm;
+			this.lastModified = lastModified;
+		}
+	}
+
+	private static AOKeyStoreManager loadKsm(final String storeType,
+			                                 final String pwd) throws IOException,
+	                                                                  CommandLineException,
+	                                                                  AOKeystoreAlternativeException {
 		final AOKeyStore store;
 		String lib = null;
 		if (STORE_AUTO.equals(storeType) || storeType == null) {
@@ -1209,4 +1301,28 @@ final class CommandLineLauncher {
 		final String title = CommandLineMessages.getString("CommandLineLauncher.127"); //$NON-NLS-1$
 		AOUIFactory.showErrorMessage(message, title, JOptionPane.ERROR_MESSAGE, t);
 	}
+
+	/** Resultado de la ejecuci&oacute;n de un comando. */
+	static final class CommandResult {
+
+		private final int status;
+		private final String message;
+
+		CommandResult(final int status, final String message) {
+			this.status = status;
+			this.message = message;
+		}
+
+		/** Obtiene el estado con el que debe finalizar la aplicaci&oacute;n.
+		 * @return Estado de finalizaci&oacute;n. */
+		int getStatus() {
+			return this.status;
+		}
+
+		/** Obtiene el mensaje a mostrar al usuario.
+		 * @return Mensaje o {@code null} si no hay que mostrar ninguno. */
+		String getMessage() {
+			return this.message;
+		}
+	}
 }
@@ -19,18 +19,18 @@ import es.gob.afirma.core.misc.Platform;
  * l&iacute;nea de comandos. */
 final class CommandLineParameters {
 
-	private static final String PARAM_INPUT       = "-i"; //$NON-NLS-1$
-	private static final String PARAM_OUTPUT      = "-o"; //$NON-NLS-1$
+	static final String PARAM_INPUT               = "-i"; //$NON-NLS-1$
+	static final String PARAM_OUTPUT              = "-o"; //$NON-NLS-1$
 	private static final String PARAM_ALIAS       = "-alias"; //$NON-NLS-1$
 	private static final String PARAM_FILTER      = "-filter"; //$NON-NLS-1$
-	private static final String PARAM_STORE       = "-store"; //$NON-NLS-1$
+	static final String PARAM_STORE               = "-store"; //$NON-NLS-1$
 	private static final String PARAM_FORMAT      = "-format"; //$NON-NLS-1$
 	private static final String PARAM_PASSWD      = "-password"; //$NON-NLS-1$
 	private static final String PARAM_ALGO        = "-algorithm"; //$NON-NLS-1$
 	private static final String PARAM_CONFIG      = "-config"; //$NON-NLS-1$
 	private static final String PARAM_OP	      = "-operation"; //$NON-NLS-1$
-	private static final String PARAM_GUI         = "-gui"; //$NON-NLS-1$
-	private static final String PARAM_CERT_GUI    = "-certgui"; //$NON-NLS-1$
+	static final String PARAM_GUI                 = "-gui"; //$NON-NLS-1$
+	static final String PARAM_CERT_GUI            = "-certgui"; //$NON-NLS-1$
 	private static final String PARAM_PREURL      = "-preurl"; //$NON-NLS-1$
 	private static final String PARAM_POSTURL     = "-posturl"; //$NON-NLS-1$
 	private static final String PARAM_HASH_FORMAT = "-hformat"; //$NON-NLS-1$
@@ -0,0 +1,335 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.standalone;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import es.gob.afirma.core.misc.Base64;
+
+/** Canal local entre un proceso residente de la aplicaci&oacute;n y las invocaciones
+ * posteriores que le delegan sus operaciones.
+ * <p>El proceso residente escucha en un puerto de la interfaz local y publica el puerto y una
+ * clave aleatoria en un fichero del directorio de la aplicaci&oacute;n que s&oacute;lo puede
+ * leer el usuario. Mientras est&aacute; en ejecuci&oacute;n mantiene un bloqueo exclusivo
+ * sobre un fichero asociado, de forma que s&oacute;lo un proceso puede publicarse a la vez y
+ * el bloqueo desaparece aunque el proceso termine de forma abrupta.</p>
+ * <p>Al conectar, cada extremo demuestra al otro que conoce la clave sin enviarla, mediante
+ * un HMAC de n&uacute;meros aleatorios de ambos. El cliente no env&iacute;a nada m&aacute;s que
+ * su n&uacute;mero aleatorio hasta comprobar la respuesta del servidor, por lo que un proceso
+ * que ocupe el puerto de un fichero publicado obsoleto no recibe los datos de la
+ * operaci&oacute;n.</p> */
+public final class LocalServiceChannel implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	/** Milisegundos de espera m&aacute;xima al conectar y durante la autenticaci&oacute;n. */
+	private static final int CONNECT_TIMEOUT = 2000;
+
+	private static final String KEY_PORT = "port"; //$NON-NLS-1$
+
+	private static final String KEY_TOKEN = "token"; //$NON-NLS-1$
+
+	private static final String LOCK_FILE_SUFFIX = ".lock"; //$NON-NLS-1$
+
+	private static final String HMAC_ALGORITHM = "HmacSHA256"; //$NON-NLS-1$
+
+	private static final byte[] SERVER_LABEL = "server".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+
+	private static final byte[] CLIENT_LABEL = "client".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+
+	private static final int TOKEN_SIZE = 32;
+
+	private static final int NONCE_SIZE = 32;
+
+	private static final int MAC_SIZE = 32;
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final File descriptorFile;
+
+	private final RandomAccessFile lockFile;
+
+	private final FileLock lock;
+
+	private final ServerSocket serverSocket;
+
+	private final byte[] token;
+
+	private LocalServiceChannel(final File descriptorFile,
+			                    final RandomAccessFile lockFile,
+			                    final FileLock lock,
+			                    final ServerSocket serverSocket) {
+		this.descriptorFile = descriptorFile;
+		this.lockFile = lockFile;
+		this.lock = lock;
+		this.serverSocket = serverSocket;
+		this.token = new byte[TOKEN_SIZE];
+		RANDOM.nextBytes(this.token);
+	}
+
+	/** Abre el puerto del proceso residente y lo publica. El bloqueo que garantiza que no hay
+	 * otro proceso publicado se toma antes de abrir el puerto y se conserva hasta cerrar el canal.
+	 * @param descriptorFile Fichero en el que publicar el puerto y la clave.
+	 * @param port Puerto en el que escuchar o 0 para usar cualquiera libre.
+	 * @param acceptTimeout Milisegundos tras los que {@link #accept()} deja de esperar conexiones.
+	 * @return Canal abierto o {@code null} si ya hay otro proceso publicado en ese fichero.
+	 * @throws IOException Cuando no se puede abrir el puerto o crear el fichero. */
+	public static LocalServiceChannel open(final File descriptorFile,
+			                               final int port,
+			                               final int acceptTimeout) throws IOException {
+
+		final File parent = descriptorFile.getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("No se pudo crear el directorio " + parent); //$NON-NLS-1$
+		}
+
+		final RandomAccessFile lockFile = new RandomAccessFile(getLockFile(descriptorFile), "rw"); //$NON-NLS-1$
+		FileLock lock = null;
+		ServerSocket serverSocket = null;
+		try {
+			try {
+				lock = lockFile.getChannel().tryLock();
+			}
+			catch (final OverlappingFileLockException e) {
+				// Ya lo tiene este mismo proceso
+				lock = null;
+			}
+			if (lock == null) {
+				lockFile.close();
+				return null;
+			}
+			serverSocket = new ServerSocket();
+			serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+			serverSocket.setSoTimeout(acceptTimeout);
+
+			final LocalServiceChannel channel = new LocalServiceChannel(descriptorFile, lockFile, lock, serverSocket);
+			channel.publish();
+			return channel;
+		}
+		catch (final IOException | RuntimeException e) {
+			if (serverSocket != null) {
+				serverSocket.close();
+			}
+			if (lock != null) {
+				lock.release();
+			}
+			lockFile.close();
+			throw e;
+		}
+	}
+
+	/** Obtiene el puerto en el que escucha el canal.
+	 * @return Puerto local. */
+	public int getPort() {
+		return this.serverSocket.getLocalPort();
+	}
+
+	/** Espera una conexi&oacute;n.
+	 * @return Conexi&oacute;n recibida, a&uacute;n sin autenticar.
+	 * @throws java.net.SocketTimeoutException Cuando pasa el tiempo de espera sin conexiones.
+	 * @throws IOException Cuando se produce un error en el puerto. */
+	public Socket accept() throws IOException {
+		return this.serverSocket.accept();
+	}
+
+	/** Realiza la autenticaci&oacute;n mutua con el cliente de una conexi&oacute;n recibida.
+	 * Deja establecido en la conexi&oacute;n un tiempo m&aacute;ximo de lectura, de forma que
+	 * un cliente que no env&iacute;a datos no bloquea al servidor.
+	 * @param socket Conexi&oacute;n recibida.
+	 * @return {@code true} si el cliente conoce la clave, {@code false} en caso contrario.
+	 * @throws IOException Cuando falla la comunicaci&oacute;n. */
+	public boolean authenticate(final Socket socket) throws IOException {
+		socket.setSoTimeout(CONNECT_TIMEOUT);
+		final DataInputStream in = new DataInputStream(socket.getInputStream());
+		final OutputStream out = socket.getOutputStream();
+
+		final byte[] clientNonce = new byte[NONCE_SIZE];
+		in.readFully(clientNonce);
+
+		final byte[] serverNonce = new byte[NONCE_SIZE];
+		RANDOM.nextBytes(serverNonce);
+		out.write(serverNonce);
+		out.write(mac(this.token, SERVER_LABEL, clientNonce, serverNonce));
+		out.flush();
+
+		final byte[] clientMac = new byte[MAC_SIZE];
+		in.readFully(clientMac);
+		return MessageDigest.isEqual(mac(this.token, CLIENT_LABEL, serverNonce, clientNonce), clientMac);
+	}
+
+	/** Conecta con el proceso publicado en un fichero y realiza la autenticaci&oacute;n mutua.
+	 * @param descriptorFile Fichero en el que se public&oacute; el proceso.
+	 * @return Conexi&oacute;n autenticada, sin tiempo m&aacute;ximo de lectura, o {@code null}
+	 *         si no hay ning&uacute;n proceso publicado o no se ha podido autenticar. */
+	public static Socket connect(final File descriptorFile) {
+
+		final Properties descriptor = readDescriptor(descriptorFile);
+		if (descriptor == null) {
+			return null;
+		}
+
+		final int port;
+		final byte[] token;
+		try {
+			port = Integer.parseInt(descriptor.getProperty(KEY_PORT));
+			token = Base64.decode(descriptor.getProperty(KEY_TOKEN));
+		}
+		catch (final Exception e) {
+			LOGGER.warning("El fichero de publicacion " + descriptorFile + " no es valido: " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+
+		final Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT);
+			socket.setSoTimeout(CONNECT_TIMEOUT);
+			final DataInputStream in = new DataInputStream(socket.getInputStream());
+			final OutputStream out = socket.getOutputStream();
+
+			final byte[] clientNonce = new byte[NONCE_SIZE];
+			RANDOM.nextBytes(clientNonce);
+			out.write(clientNonce);
+			out.flush();
+
+			final byte[] serverNonce = new byte[NONCE_SIZE];
+			in.readFully(serverNonce);
+			final byte[] serverMac = new byte[MAC_SIZE];
+			in.readFully(serverMac);
+			if (!MessageDigest.isEqual(mac(token, SERVER_LABEL, clientNonce, serverNonce), serverMac)) {
+				// Puede ser otro proceso que ocupa el puerto de una publicacion obsoleta
+				LOGGER.warning("El proceso del puerto " + port + " no ha demostrado conocer la clave publicada"); //$NON-NLS-1$ //$NON-NLS-2$
+				closeQuietly(socket);
+				return null;
+			}
+			out.write(mac(token, CLIENT_LABEL, serverNonce, clientNonce));
+			out.flush();
+			socket.setSoTimeout(0);
+			return socket;
+		}
+		catch (final IOException e) {
+			// Puede quedar publicado el fichero de un proceso que se cerro de forma abrupta
+			LOGGER.info("No se pudo conectar con el proceso del puerto " + port + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			closeQuietly(socket);
+			return null;
+		}
+	}
+
+	/** Deja de escuchar, elimina el fichero publicado y libera el bloqueo. */
+	@Override
+	public synchronized void close() {
+		if (!this.lock.isValid()) {
+			return;
+		}
+		// El fichero se elimina antes de liberar el bloqueo para no borrar el de otro proceso
+		final Properties descriptor = readDescriptor(this.descriptorFile);
+		if (descriptor != null && Base64.encode(this.token).equals(descriptor.getProperty(KEY_TOKEN))) {
+			this.descriptorFile.delete();
+		}
+		closeQuietly(this.serverSocket);
+		try {
+			this.lock.release();
+		}
+		catch (final IOException e) {
+			LOGGER.fine("Error al liberar el bloqueo de " + this.descriptorFile + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		closeQuietly(this.lockFile);
+	}
+
+	/** Publica el puerto y la clave del canal para que puedan usarlos los clientes.
+	 * @throws IOException Cuando no se puede crear el fichero. */
+	private void publish() throws IOException {
+		final Properties descriptor = new Properties();
+		descriptor.setProperty(KEY_PORT, Integer.toString(getPort()));
+		descriptor.setProperty(KEY_TOKEN, Base64.encode(this.token));
+
+		// Restringimos los permisos antes de escribir la clave. Al tener el bloqueo, el fichero
+		// que hubiese es de un proceso que ya termino
+		this.descriptorFile.delete();
+		if (!this.descriptorFile.createNewFile()) {
+			throw new IOException("No se pudo crear el fichero " + this.descriptorFile); //$NON-NLS-1$
+		}
+		this.descriptorFile.setReadable(false, false);
+		this.descriptorFile.setWritable(false, false);
+		this.descriptorFile.setReadable(true, true);
+		this.descriptorFile.setWritable(true, true);
+		try (final OutputStream fos = new FileOutputStream(this.descriptorFile)) {
+			descriptor.store(fos, null);
+		}
+	}
+
+	/** Lee un fichero de publicaci&oacute;n.
+	 * @param descriptorFile Fichero de publicaci&oacute;n.
+	 * @return Propiedades del proceso o {@code null} si no hay ninguno publicado. */
+	private static Properties readDescriptor(final File descriptorFile) {
+		if (!descriptorFile.isFile()) {
+			return null;
+		}
+		final Properties descriptor = new Properties();
+		try (final InputStream fis = new FileInputStream(descriptorFile)) {
+			descriptor.load(fis);
+		}
+		catch (final IOException e) {
+			LOGGER.warning("No se pudo leer el fichero de publicacion " + descriptorFile + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+		return descriptor.containsKey(KEY_PORT) && descriptor.containsKey(KEY_TOKEN) ? descriptor : null;
+	}
+
+	private static File getLockFile(final File descriptorFile) {
+		return new File(descriptorFile.getParentFile(), descriptorFile.getName() + LOCK_FILE_SUFFIX);
+	}
+
+	private static byte[] mac(final byte[] key, final byte[] label, final byte[] first, final byte[] second) {
+		try {
+			final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+			mac.update(label);
+			mac.update(first);
+			mac.update(second);
+			return mac.doFinal();
+		}
+		catch (final GeneralSecurityException e) {
+			// HmacSHA256 esta disponible en cualquier JRE
+			throw new IllegalStateException("No se pudo calcular el HMAC de autenticacion", e); //$NON-NLS-1$
+		}
+	}
+
+	private static void closeQuietly(final Closeable closeable) {
+		try {
+			closeable.close();
+		}
+		catch (final IOException e) {
+			LOGGER.fine("Error al cerrar el recurso: " + e); //$NON-NLS-1$
+		}
+	}
+}
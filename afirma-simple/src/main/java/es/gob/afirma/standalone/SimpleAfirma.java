@@ -85,6 +85,7 @@ import es.gob.afirma.standalone.configurator.common.ConfigUpdaterManager;
 import es.gob.afirma.standalone.configurator.common.PreferencesManager;
 import es.gob.afirma.standalone.plugins.manager.PluginsManager;
 import es.gob.afirma.standalone.protocol.ProtocolInvocationLauncher;
+import es.gob.afirma.standalone.protocol.ResidentInstanceManager;
 import es.gob.afirma.standalone.ui.ClosePanel;
 import es.gob.afirma.standalone.ui.DNIeWaitPanel;
 import es.gob.afirma.standalone.ui.MainMenu;
@@ -857,6 +858,13 @@ public final class SimpleAfirma implements PropertyChangeListener, WindowListene
     	// Configuramos el log de la aplicacion
     	configureLog();
 
+    	// Si hay una instancia residente, le entregamos la invocacion por protocolo y
+    	// terminamos sin pasar por el resto del arranque
+    	if (args != null && args.length > 0 && ResidentInstanceManager.isEnabled()
+    			&& ResidentInstanceManager.forward(args[0])) {
+    		forceCloseApplication(0);
+    	}
+
     	// Se define el look and feel
     	LookAndFeelManager.applyLookAndFeel();
 
@@ -975,7 +983,13 @@ public final class SimpleAfirma implements PropertyChangeListener, WindowListene
     			//							peticiones desde otros hilos. En estos casos no se debe cerrar
     			//							la aplicacion, que debera permanecer abierta hasta que se cierre
     			//							el socket.
+    			// Si esta activado el modo residente, en lugar de cerrar la aplicacion la
+    			// mantenemos abierta para atender las siguientes invocaciones
     			if (!args[0].startsWith(WEBSOCKET_REQUEST_PREFIX)) {
+    				if (ResidentInstanceManager.isEnabled()
+    						&& ResidentInstanceManager.isResidentInvocation(args[0])) {
+    					ResidentInstanceManager.startAndServe();
+    				}
     				forceCloseApplication(0);
     			}
     		}
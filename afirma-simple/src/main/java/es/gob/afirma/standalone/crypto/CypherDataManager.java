@@ -1,20 +1,73 @@
 package es.gob.afirma.standalone.crypto;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
-import java.util.Arrays;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 
 import es.gob.afirma.core.misc.Base64;
+import es.gob.afirma.core.misc.Base64Codec;
+import es.gob.afirma.core.misc.protocol.ProtocolVersion;
 
-/** Gestor para el cifrado sim&eacute;trico de datos (para el servidor intermedio). */
+/** Gestor para el cifrado sim&eacute;trico de datos (para el servidor intermedio).
+ * <p>Los datos se cifran y codifican en Base64 por bloques, escribiendo el resultado
+ * directamente en el destino, de forma que la memoria necesaria no depende del
+ * tama&ntilde;o de los datos.</p>
+ * <p>Por defecto se usa DES y el formato <code>PADDING.CIPHERDATAB64</code>. A partir de la
+ * versi&oacute;n {@link ProtocolVersion#VERSION_5} del protocolo puede usarse en su lugar
+ * AES-GCM, que adem&aacute;s autentica los datos, con el formato
+ * <code>G.IVCIPHERDATATAGB64</code>. Al descifrar se reconocen ambos formatos.</p> */
 public final class CypherDataManager {
 
 	/** Car&aacute;cter utilizado para separar el padding agregado a los datos para cifrarlos y los propios datos
 	 * cifrados en base64. */
 	private static final char PADDING_CHAR_SEPARATOR = '.';
 
+	/** Prefijo que identifica los datos cifrados con AES-GCM. */
+	private static final char AUTHENTICATED_CIPHER_PREFIX = 'G';
+
+	/** Algoritmo de cifrado autenticado. */
+	private static final String AUTHENTICATED_CIPHER_ALGORITHM = "AES/GCM/NoPadding"; //$NON-NLS-1$
+
+	/** Tama&ntilde;o en octetos del vector de inicializaci&oacute;n de AES-GCM. */
+	private static final int GCM_IV_LENGTH = 12;
+
+	/** Tama&ntilde;o en bits de la etiqueta de autenticaci&oacute;n de AES-GCM. */
+	private static final int GCM_TAG_LENGTH = 128;
+
+	/** Tama&ntilde;o de los bloques en los que se procesan los datos. M&uacute;ltiplo de 3, 4 y 8. */
+	private static final int BUFFER_SIZE = 6144;
+
+	/** N&uacute;mero m&aacute;ximo de caracteres del prefijo que precede a los datos cifrados. */
+	private static final int MAX_PREFIX_LENGTH = 2;
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private CypherDataManager() {
+		// No instanciable
+	}
+
+	/** Indica si en una versi&oacute;n del protocolo se cifran los datos con el cifrado autenticado.
+	 * @param protocolVersion Versi&oacute;n del protocolo declarada en la petici&oacute;n.
+	 * @return {@code true} si se debe usar el cifrado autenticado, {@code false} si se debe usar DES. */
+	public static boolean isAuthenticatedCipherSupported(final int protocolVersion) {
+		return protocolVersion >= ProtocolVersion.VERSION_5.getVersion();
+	}
+
 	/** Descifra datos.
 	 * @param cypheredDataB64 Datos cifrados (en Base64)
 	 * @param cypherKey Clave de descifrado
@@ -26,38 +79,57 @@ public final class CypherDataManager {
 			                          final byte[] cypherKey) throws InvalidKeyException,
 			                                                         GeneralSecurityException,
 			                                                         IOException {
-		final String recoveredData = new String(cypheredDataB64, StandardCharsets.UTF_8).replace("_", "/").replace("-", "+"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 		if (cypherKey != null) {
-			return decipherData(recoveredData, cypherKey);
+			final ByteArrayOutputStream baos = new ByteArrayOutputStream(
+					Base64Codec.maxDecodedLength(cypheredDataB64.length));
+			decipherData(new ByteArrayInputStream(cypheredDataB64), cypherKey, baos);
+			return baos.toByteArray();
 		}
-		return Base64.decode(recoveredData);
+		return Base64.decode(new String(cypheredDataB64, StandardCharsets.UTF_8));
 	}
 
-	/** Descifra una cadena de datos. Esta cadena viene precedida por el n&uacute;mero de caracteres de padding que
-	 * se agregaron y separado por un punto (.) de la cadena base 64 con los datos cifrados.
-	 * @param data Cadena de datos con la forma: PADDING.CIPHERDATAB64.
+	/** Descifra los datos le&iacute;dos de un flujo y escribe el resultado en otro seg&uacute;n
+	 * se descifran. Los datos deben tener la forma PADDING.CIPHERDATAB64, en la que el
+	 * n&uacute;mero de caracteres de padding agregados se separa por un punto (.) de la cadena
+	 * base 64 con los datos cifrados, o bien G.IVCIPHERDATATAGB64 si se cifraron con AES-GCM.
+	 * @param cipheredDataB64 Flujo con los datos cifrados. No se cierra.
 	 * @param cipherKey Clave de cifrado.
-	 * @return Datos descifrados.
+	 * @param out Flujo en el que se escriben los datos descifrados. No se cierra.
 	 * @throws InvalidKeyException Cuando la clave no es v&aacute;lida.
-	 * @throws GeneralSecurityException Cuando falla el proceso de cifrado.
-	 * @throws IllegalArgumentException Si los datos no se corresponden con un Base64 v&aacute;lido.
-	 * @throws IOException Cuando ocurre un error en la decodificaci&oacute;n de los datos. */
-	private static byte[] decipherData(final String data,
-			                           final byte[] cipherKey) throws InvalidKeyException,
-			                                                          GeneralSecurityException,
-			                                                          IllegalArgumentException,
-			                                                          IOException {
-		int padding = 0;
-		final int dotPos = data.indexOf(PADDING_CHAR_SEPARATOR);
-		if (dotPos != -1) {
-			padding = Integer.parseInt(data.substring(0, dotPos));
-		}
-
-		final byte[] decipheredData = DesCipher.decipher(
-				Base64.decode(data.substring(dotPos + 1).replace('-', '+').replace('_', '/')),
-				cipherKey);
-
-		return padding == 0 ? decipheredData : Arrays.copyOf(decipheredData, decipheredData.length - padding);
+	 * @throws GeneralSecurityException Cuando falla el proceso de cifrado o los datos
+	 * cifrados con AES-GCM no superan la comprobaci&oacute;n de integridad.
+	 * @throws IOException Cuando ocurre un error en la lectura, decodificaci&oacute;n o
+	 * escritura de los datos. */
+	public static void decipherData(final InputStream cipheredDataB64,
+			                        final byte[] cipherKey,
+			                        final OutputStream out) throws InvalidKeyException,
+			                                                       GeneralSecurityException,
+			                                                       IOException {
+
+		final PushbackInputStream in = new PushbackInputStream(cipheredDataB64, MAX_PREFIX_LENGTH);
+		final String prefix = readPrefix(in);
+
+		if (prefix != null && prefix.charAt(0) == AUTHENTICATED_CIPHER_PREFIX) {
+			final byte[] iv = new byte[GCM_IV_LENGTH];
+			final Base64Codec.Decoder decoder = new Base64Codec.Decoder();
+			final ByteBuffer src = ByteBuffer.wrap(new byte[BUFFER_SIZE], 0, 0);
+			final ByteBuffer dst = ByteBuffer.wrap(iv);
+			while (dst.hasRemaining() && !decoder.isFinished() && fill(in, src)) {
+				decoder.decode(src, dst);
+			}
+			if (dst.hasRemaining()) {
+				throw new EOFException("Los datos cifrados no contienen el vector de inicializacion"); //$NON-NLS-1$
+			}
+			final Cipher cipher = getAuthenticatedCipher(Cipher.DECRYPT_MODE, cipherKey, iv);
+			decipher(in, decoder, src, cipher, out);
+		}
+		else {
+			final int padding = prefix != null ? Integer.parseInt(prefix) : 0;
+			final Cipher cipher = DesCipher.getCipher(Cipher.DECRYPT_MODE, cipherKey);
+			final TruncatingOutputStream truncatingOut = new TruncatingOutputStream(out, padding);
+			decipher(in, new Base64Codec.Decoder(), ByteBuffer.wrap(new byte[BUFFER_SIZE], 0, 0), cipher, truncatingOut);
+		}
+		out.flush();
 	}
 
 	/** Genera una cadena con datos cifrados y codificados en base 64 antecedidos por el n&uacute;mero de
@@ -69,9 +141,215 @@ public final class CypherDataManager {
 	 * @throws InvalidKeyException Cuando la clave no es v&aacute;lida.
 	 * @throws GeneralSecurityException Cuando falla el proceso de cifrado. */
 	public static String cipherData(final byte[] data, final byte[] cipherKey) throws InvalidKeyException, GeneralSecurityException {
-		return new StringBuilder((int)(data.length * 1.2))
-			.append(Integer.toString((DesCipher.getPaddingLength() - data.length % DesCipher.getPaddingLength()) % DesCipher.getPaddingLength()))
-			.append(PADDING_CHAR_SEPARATOR)
-			.append(Base64.encode(DesCipher.cipher(data, cipherKey), true)).toString();
+		final StringBuilder buffer = new StringBuilder(2 + Base64Codec.encodedLength(data.length + DesCipher.getPaddingLength()));
+		cipherData(data, cipherKey, false, buffer);
+		return buffer.toString();
+	}
+
+	/** Cifra unos datos y agrega el resultado codificado en base 64 a un buffer, sin generar
+	 * cadenas ni copias intermedias de los datos.
+	 * @param data Datos a cifrar.
+	 * @param cipherKey Clave de cifrado.
+	 * @param authenticated Si se deben cifrar con AES-GCM en lugar de con DES.
+	 * @param buffer Buffer al que se agregan los datos cifrados.
+	 * @throws InvalidKeyException Cuando la clave no es v&aacute;lida.
+	 * @throws GeneralSecurityException Cuando falla el proceso de cifrado. */
+	public static void cipherData(final byte[] data, final byte[] cipherKey, final boolean authenticated,
+			final StringBuilder buffer) throws InvalidKeyException, GeneralSecurityException {
+		buffer.ensureCapacity(buffer.length() + 2 + Base64Codec.encodedLength(data.length + GCM_IV_LENGTH + GCM_TAG_LENGTH / 8));
+		try {
+			cipherData(new ByteArrayInputStream(data), data.length, cipherKey, authenticated, new AppendingOutputStream(buffer));
+		}
+		catch (final IOException e) {
+			// No deberia ocurrir al trabajar en memoria
+			throw new GeneralSecurityException("Error al cifrar los datos: " + e, e); //$NON-NLS-1$
+		}
+	}
+
+	/** Cifra los datos le&iacute;dos de un flujo y escribe en otro el resultado codificado en
+	 * base 64 seg&uacute;n se cifra. Con DES, el resultado va antecedido por el n&uacute;mero de
+	 * caracteres agregados como padding y un car&aacute;cter separador, por lo que es necesario
+	 * conocer de antemano el tama&ntilde;o de los datos.
+	 * @param data Flujo con los datos a cifrar. No se cierra.
+	 * @param length Tama&ntilde;o de los datos a cifrar.
+	 * @param cipherKey Clave de cifrado.
+	 * @param authenticated Si se deben cifrar con AES-GCM en lugar de con DES.
+	 * @param out Flujo en el que se escriben los datos cifrados. No se cierra.
+	 * @throws InvalidKeyException Cuando la clave no es v&aacute;lida.
+	 * @throws GeneralSecurityException Cuando falla el proceso de cifrado.
+	 * @throws IOException Cuando ocurre un error en la lectura o escritura de los datos o
+	 * el flujo no contiene el n&uacute;mero de octetos indicado. */
+	public static void cipherData(final InputStream data, final long length, final byte[] cipherKey,
+			final boolean authenticated, final OutputStream out) throws InvalidKeyException,
+			                                                           GeneralSecurityException,
+			                                                           IOException {
+		final Base64Codec.Encoder encoder = new Base64Codec.Encoder(true);
+		final byte[] b64 = new byte[BUFFER_SIZE / 3 * 4];
+		final ByteBuffer dst = ByteBuffer.wrap(b64);
+
+		final Cipher cipher;
+		final int padding;
+		if (authenticated) {
+			final byte[] iv = new byte[GCM_IV_LENGTH];
+			RANDOM.nextBytes(iv);
+			cipher = getAuthenticatedCipher(Cipher.ENCRYPT_MODE, cipherKey, iv);
+			padding = 0;
+			out.write(AUTHENTICATED_CIPHER_PREFIX);
+			out.write(PADDING_CHAR_SEPARATOR);
+			encode(encoder, ByteBuffer.wrap(iv), dst, out);
+		}
+		else {
+			cipher = DesCipher.getCipher(Cipher.ENCRYPT_MODE, cipherKey);
+			padding = (int) ((DesCipher.getPaddingLength() - length % DesCipher.getPaddingLength()) % DesCipher.getPaddingLength());
+			out.write(Integer.toString(padding).getBytes(StandardCharsets.US_ASCII));
+			out.write(PADDING_CHAR_SEPARATOR);
+		}
+
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final byte[] ciphered = new byte[cipher.getOutputSize(BUFFER_SIZE)];
+		long total = 0;
+		int n;
+		while ((n = data.read(buffer)) > 0) {
+			total += n;
+			final int c = cipher.update(buffer, 0, n, ciphered);
+			encode(encoder, ByteBuffer.wrap(ciphered, 0, c), dst, out);
+		}
+		if (total != length) {
+			throw new EOFException("Se esperaban " + length + " octetos de datos y se leyeron " + total); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		// El relleno de DES son ceros que se eliminan al descifrar
+		encode(encoder, ByteBuffer.wrap(cipher.doFinal(new byte[padding])), dst, out);
+		encoder.finish(dst);
+		out.write(b64, 0, dst.position());
+		out.flush();
+	}
+
+	/** Lee el prefijo que precede al separador de los datos cifrados.
+	 * @return Prefijo o {@code null} si los datos no tienen prefijo, en cuyo caso se
+	 * devuelven al flujo los caracteres le&iacute;dos. */
+	static String readPrefix(final PushbackInputStream in) throws IOException {
+		final byte[] prefix = new byte[MAX_PREFIX_LENGTH];
+		int n = 0;
+		int c;
+		while (n < prefix.length && (c = in.read()) != -1) {
+			if (c == PADDING_CHAR_SEPARATOR) {
+				return n > 0 ? new String(prefix, 0, n, StandardCharsets.US_ASCII) : null;
+			}
+			prefix[n++] = (byte) c;
+		}
+		in.unread(prefix, 0, n);
+		return null;
+	}
+
+	/** Descodifica el base 64 restante del flujo y descifra el resultado. */
+	private static void decipher(final InputStream in, final Base64Codec.Decoder decoder, final ByteBuffer src,
+			final Cipher cipher, final OutputStream out) throws IOException, GeneralSecurityException {
+		final byte[] b64 = src.array();
+		final byte[] decoded = new byte[Base64Codec.maxDecodedLength(b64.length)];
+		final byte[] deciphered = new byte[cipher.getOutputSize(decoded.length)];
+		final ByteBuffer dst = ByteBuffer.wrap(decoded);
+		while (!decoder.isFinished() && fill(in, src)) {
+			decoder.decode(src, dst);
+			out.write(deciphered, 0, cipher.update(decoded, 0, dst.position(), deciphered));
+			dst.clear();
+		}
+		decoder.finish(dst);
+		out.write(cipher.doFinal(decoded, 0, dst.position()));
+	}
+
+	/** Lee m&aacute;s datos en el buffer de origen si ya se consumieron los anteriores.
+	 * @return {@code false} si no quedan datos que descodificar. */
+	private static boolean fill(final InputStream in, final ByteBuffer src) throws IOException {
+		if (src.hasRemaining()) {
+			return true;
+		}
+		final int n = in.read(src.array());
+		if (n <= 0) {
+			return false;
+		}
+		src.limit(n);
+		src.position(0);
+		return true;
+	}
+
+	/** Codifica los datos de un buffer y escribe el resultado en el flujo. */
+	private static void encode(final Base64Codec.Encoder encoder, final ByteBuffer src, final ByteBuffer dst,
+			final OutputStream out) throws IOException {
+		while (src.hasRemaining()) {
+			encoder.encode(src, dst);
+			out.write(dst.array(), 0, dst.position());
+			dst.clear();
+		}
+	}
+
+	/** Obtiene el cifrador AES-GCM. La clave AES de 256 bits se deriva de la clave de cifrado
+	 * indicada en la petici&oacute;n mediante SHA-256. */
+	private static Cipher getAuthenticatedCipher(final int mode, final byte[] cipherKey, final byte[] iv) throws GeneralSecurityException {
+		final Cipher cipher = Cipher.getInstance(AUTHENTICATED_CIPHER_ALGORITHM);
+		cipher.init(
+				mode,
+				new SecretKeySpec(MessageDigest.getInstance("SHA-256").digest(cipherKey), "AES"), //$NON-NLS-1$ //$NON-NLS-2$
+				new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+		return cipher;
+	}
+
+	/** Flujo que agrega a un buffer de caracteres los octetos ASCII que se escriben. */
+	private static final class AppendingOutputStream extends OutputStream {
+
+		private final StringBuilder buffer;
+
+		AppendingOutputStream(final StringBuilder buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void write(final int b) {
+			this.buffer.append((char) (b & 0xFF));
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			for (int i = off; i < off + len; i++) {
+				this.buffer.append((char) (b[i] & 0xFF));
+			}
+		}
+	}
+
+	/** Flujo que retiene los &uacute;ltimos octetos que se escriben y los descarta al terminar,
+	 * para eliminar el relleno de los datos descifrados sin conocer su tama&ntilde;o. */
+	static final class TruncatingOutputStream extends FilterOutputStream {
+
+		private final byte[] held;
+
+		private int count = 0;
+
+		TruncatingOutputStream(final OutputStream out, final int truncate) {
+			super(out);
+			this.held = new byte[truncate];
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			final int release = this.count + len - this.held.length;
+			if (release <= 0) {
+				System.arraycopy(b, off, this.held, this.count, len);
+				this.count += len;
+				return;
+			}
+			final int fromHeld = Math.min(release, this.count);
+			this.out.write(this.held, 0, fromHeld);
+			final int fromData = release - fromHeld;
+			this.out.write(b, off, fromData);
+			final int keptHeld = this.count - fromHeld;
+			System.arraycopy(this.held, fromHeld, this.held, 0, keptHeld);
+			System.arraycopy(b, off + fromData, this.held, keptHeld, len - fromData);
+			this.count = this.held.length;
+		}
 	}
 }
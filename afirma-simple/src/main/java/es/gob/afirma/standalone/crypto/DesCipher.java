@@ -26,16 +26,7 @@ public final class DesCipher {
 	 * @throws InvalidKeyException Cuando La clave no es valida para el algoritmo DES.
 	 * @throws GeneralSecurityException Cuando los datos introducidos no son validos o se produce un error en la operaci&oacute;n. */
 	public static byte[] cipher(final byte[] data, final byte[] sk) throws InvalidKeyException, GeneralSecurityException {
-		final Cipher desCipher;
-		try {
-			desCipher = Cipher.getInstance("DES/ECB/NoPadding"); //$NON-NLS-1$
-		}
-		catch (final Exception e) {
-			// Este caso no deberia ocurrir nunca
-			throw new GeneralSecurityException("Algoritmo o formato no soportado por la maquina virtual: " + e); //$NON-NLS-1$
-		}
-		desCipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(sk, "DES")); //$NON-NLS-1$
-		return desCipher.doFinal(padding(data, 8));
+		return getCipher(Cipher.ENCRYPT_MODE, sk).doFinal(padding(data, 8));
 	}
 
 	/** Descifra datos con un algoritmo DES (ECB sin relleno).
@@ -45,6 +36,18 @@ public final class DesCipher {
 	 * @throws InvalidKeyException Cuando La clave no es valida para el algoritmo DES.
 	 * @throws GeneralSecurityException Cuando los datos introducidos no son validos o se produce un error en la operaci&oacute;n. */
 	public static byte[] decipher(final byte[] data, final byte[] sk) throws InvalidKeyException, GeneralSecurityException {
+		return getCipher(Cipher.DECRYPT_MODE, sk).doFinal(data);
+	}
+
+	/** Obtiene un cifrador DES (ECB sin relleno) inicializado, con el que cifrar o descifrar
+	 * los datos por partes. La longitud total de los datos debe ser m&uacute;ltiplo de
+	 * {@link #getPaddingLength()}.
+	 * @param mode Modo de operaci&oacute;n ({@link Cipher#ENCRYPT_MODE} o {@link Cipher#DECRYPT_MODE}).
+	 * @param sk Contrase&ntilde;a para generar la clave secreta.
+	 * @return Cifrador inicializado.
+	 * @throws InvalidKeyException Cuando La clave no es valida para el algoritmo DES.
+	 * @throws GeneralSecurityException Cuando el algoritmo no est&aacute; soportado. */
+	static Cipher getCipher(final int mode, final byte[] sk) throws InvalidKeyException, GeneralSecurityException {
 		final Cipher desCipher;
 		try {
 			desCipher = Cipher.getInstance("DES/ECB/NoPadding"); //$NON-NLS-1$
@@ -53,8 +56,8 @@ public final class DesCipher {
 			// Este caso no deberia ocurrir nunca
 			throw new GeneralSecurityException("Algoritmo o formato no soportado por la maquina virtual: " + e); //$NON-NLS-1$
 		}
-		desCipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(sk, "DES")); //$NON-NLS-1$
-		return desCipher.doFinal(data);
+		desCipher.init(mode, new SecretKeySpec(sk, "DES")); //$NON-NLS-1$
+		return desCipher;
 	}
 
 	/** Rellena un array de bytes, si es necesario, para que sea m&uacute;ltiplo de la cantidad indicada.
@@ -1,32 +1,41 @@
 package es.gob.afirma.standalone.crypto;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.security.GeneralSecurityException;
-import java.security.InvalidKeyException;
-import java.util.Arrays;
-
-import es.gob.afirma.core.misc.Base64;
 import es.gob.afirma.standalone.plugins.DataCipher;
 import es.gob.afirma.standalone.plugins.EncryptingException;
 
 /** Gestor para el cifrado sim&eacute;trico de datos (para el servidor intermedio). */
 public final class NativeDataCipher implements DataCipher {
 
-	/** Car&aacute;cter utilizado para separar el padding agregado a los datos para cifrarlos y los propios datos
-	 * cifrados en base64. */
-	private static final char PADDING_CHAR_SEPARATOR = '.';
-
 	private final byte[] cipherKey;
 
+	private final boolean authenticated;
+
 	public NativeDataCipher(final byte[] key) {
+		this(key, false);
+	}
+
+	/** Crea el cifrador.
+	 * @param key Clave de cifrado.
+	 * @param authenticated Si se deben cifrar los datos con AES-GCM en lugar de con DES. */
+	public NativeDataCipher(final byte[] key, final boolean authenticated) {
 		this.cipherKey = key != null ? key.clone() : null;
+		this.authenticated = authenticated;
 	}
 
 	@Override
 	public String cipher(final byte[] data) throws EncryptingException {
+		final StringBuilder buffer = new StringBuilder();
+		cipher(data, buffer);
+		return buffer.toString();
+	}
+
+	/** Cifra unos datos y agrega el resultado codificado en base 64 a un buffer.
+	 * @param data Datos a cifrar.
+	 * @param buffer Buffer al que se agregan los datos cifrados.
+	 * @throws EncryptingException Cuando ocurre un error durante el cifrado. */
+	public void cipher(final byte[] data, final StringBuilder buffer) throws EncryptingException {
 		try {
-			return cipherData(data, this.cipherKey);
+			CypherDataManager.cipherData(data, this.cipherKey, this.authenticated, buffer);
 		} catch (final Exception e) {
 			throw new EncryptingException("Error durante el cifrado de los datos", e); //$NON-NLS-1$
 		}
@@ -35,69 +44,9 @@ public final class NativeDataCipher implements DataCipher {
 	@Override
 	public byte[] decipher(final byte[] cipheredData) throws EncryptingException {
 		try {
-			return decipherData(cipheredData, this.cipherKey);
+			return CypherDataManager.decipherData(cipheredData, this.cipherKey);
 		} catch (final Exception e) {
 			throw new EncryptingException("Error durante el descifrado de los datos", e); //$NON-NLS-1$
 		}
 	}
-
-	/** Descifra datos.
-	 * @param cypheredDataB64 Datos cifrados (en Base64)
-	 * @param cypherKey Clave de descifrado
-	 * @return Datos descifrados
-	 * @throws InvalidKeyException Si la clave de descifrado no es v&aacute;lida
-	 * @throws GeneralSecurityException Cuando falla el proceso de cifrado
-	 * @throws IOException Si hay problemas en el tratamiento de datos */
-	private static byte[] decipherData(final byte[] cypheredDataB64,
-			                          final byte[] cypherKey) throws InvalidKeyException,
-			                                                         GeneralSecurityException,
-			                                                         IOException {
-		final String recoveredData = new String(cypheredDataB64, StandardCharsets.UTF_8).replace("_", "/").replace("-", "+"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-		if (cypherKey != null) {
-			return decipherData(recoveredData, cypherKey);
-		}
-		return Base64.decode(recoveredData);
-	}
-
-	/** Descifra una cadena de datos. Esta cadena viene precedida por el n&uacute;mero de caracteres de padding que
-	 * se agregaron y separado por un punto (.) de la cadena base 64 con los datos cifrados.
-	 * @param data Cadena de datos con la forma: PADDING.CIPHERDATAB64.
-	 * @param cipherKey Clave de cifrado.
-	 * @return Datos descifrados.
-	 * @throws InvalidKeyException Cuando la clave no es v&aacute;lida.
-	 * @throws GeneralSecurityException Cuando falla el proceso de cifrado.
-	 * @throws IllegalArgumentException Si los datos no se corresponden con un Base64 v&aacute;lido.
-	 * @throws IOException Cuando ocurre un error en la decodificaci&oacute;n de los datos. */
-	private static byte[] decipherData(final String data,
-			                           final byte[] cipherKey) throws InvalidKeyException,
-			                                                          GeneralSecurityException,
-			                                                          IllegalArgumentException,
-			                                                          IOException {
-		int padding = 0;
-		final int dotPos = data.indexOf(PADDING_CHAR_SEPARATOR);
-		if (dotPos != -1) {
-			padding = Integer.parseInt(data.substring(0, dotPos));
-		}
-
-		final byte[] decipheredData = DesCipher.decipher(
-				Base64.decode(data.substring(dotPos + 1).replace('-', '+').replace('_', '/')),
-				cipherKey);
-
-		return padding == 0 ? decipheredData : Arrays.copyOf(decipheredData, decipheredData.length - padding);
-	}
-
-	/** Genera una cadena con datos cifrados y codificados en base 64 antecedidos por el n&uacute;mero de
-	 * caracteres que se han tenido que agregar como padding y separados por un car&aacute;cter separador.
-	 * @param data Datos a cifrar.
-	 * @param cipherKey Clave de cifrado.
-	 * @return Cadena con el numero de caracteres agregados manualmente para cumplir la longitud requerida,
-	 * el caracter separador y los datos cifrados y en base 64.
-	 * @throws InvalidKeyException Cuando la clave no es v&aacute;lida.
-	 * @throws GeneralSecurityException Cuando falla el proceso de cifrado. */
-	private static String cipherData(final byte[] data, final byte[] cipherKey) throws InvalidKeyException, GeneralSecurityException {
-		return new StringBuilder((int)(data.length * 1.2))
-			.append(Integer.toString((DesCipher.getPaddingLength() - data.length % DesCipher.getPaddingLength()) % DesCipher.getPaddingLength()))
-			.append(PADDING_CHAR_SEPARATOR)
-			.append(Base64.encode(DesCipher.cipher(data, cipherKey), true)).toString();
-	}
 }
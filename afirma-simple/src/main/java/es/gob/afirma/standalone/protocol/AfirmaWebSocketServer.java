@@ -10,17 +10,37 @@
 package es.gob.afirma.standalone.protocol;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer;
 
 /**
  * Servidor para la comunicaci&oacute;n por <i>WebSocket</i> acorde a la versi&oacute;n
  * inicial del protocolo.
+ * Las operaciones se ejecutan fuera del hilo de E/S del <i>socket</i>, de forma que este
+ * sigue atendiendo ecos y mensajes de control mientras dura la operaci&oacute;n.
+ * Si el cliente lo negocia enviando el mensaje <code>transport=2</code>, las peticiones
+ * pueden enviarse como mensajes binarios, durante la operaci&oacute;n se env&iacute;a
+ * peri&oacute;dicamente el mensaje <code>#WAIT</code> y el resultado se devuelve como un
+ * mensaje binario fragmentado con el texto de la respuesta codificado en UTF-8. Los clientes
+ * que no lo negocien reciben las respuestas como hasta ahora.
  */
 public class AfirmaWebSocketServer extends WebSocketServer {
 
@@ -32,16 +52,46 @@ public class AfirmaWebSocketServer extends WebSocketServer {
 	/** Respuesta que se debe enviar ante las peticiones de echo correctas. */
 	private static final String ECHO_OK_RESPONSE = "OK"; //$NON-NLS-1$
 
-	/** Uno de los prefijos que puede presentar el mensaje de invocaci&oacute;n de una firma de lote. Versi&oacute;n 1. */
-	private static final String HEADER_BATCH_1 = "afirma://batch?"; //$NON-NLS-1$
+	/** Prefijo de las peticiones de negociaci&oacute;n de la versi&oacute;n de transporte. */
+	private static final String TRANSPORT_REQUEST_PREFIX = "transport="; //$NON-NLS-1$
 
-	/** Uno de los prefijos que puede presentar el mensaje de invocaci&oacute;n de una firma de lote. Versi&oacute;n 1. */
-	private static final String HEADER_BATCH_2 = "afirma://batch/?"; //$NON-NLS-1$
+	/** Versi&oacute;n de transporte en la que las peticiones y respuestas se env&iacute;an como texto. */
+	private static final int TRANSPORT_TEXT = 1;
+
+	/** Versi&oacute;n de transporte en la que las respuestas se env&iacute;an como mensajes
+	 * binarios fragmentados y se notifica peri&oacute;dicamente que la operaci&oacute;n sigue en curso. */
+	private static final int TRANSPORT_BINARY = 2;
+
+	/** Mensaje que se env&iacute;a peri&oacute;dicamente mientras dura una operaci&oacute;n. */
+	private static final String WAIT_MESSAGE = "#WAIT"; //$NON-NLS-1$
+
+	/** Segundos entre los mensajes de espera. */
+	private static final int WAIT_MESSAGE_PERIOD = 10;
+
+	/** Segundos sin respuesta a los mensajes de control tras los que se da por perdida la conexi&oacute;n. */
+	private static final int CONNECTION_LOST_TIMEOUT = 60;
+
+	/** Tama&ntilde;o m&aacute;ximo de cada fragmento de los mensajes binarios. */
+	private static final int FRAGMENT_SIZE = 64 * 1024;
 
 	private static int protocolVersion = -1;
 
 	protected String sessionId;
 
+	/** Ejecutor de las operaciones, que se atienden de una en una. */
+	private final ExecutorService operationExecutor = Executors.newSingleThreadExecutor(r -> {
+		final Thread t = new Thread(r, "AfirmaWebSocketOperation"); //$NON-NLS-1$
+		t.setDaemon(true);
+		return t;
+	});
+
+	/** Planificador de los mensajes de espera. */
+	private final ScheduledExecutorService waitMessageScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		final Thread t = new Thread(r, "AfirmaWebSocketWait"); //$NON-NLS-1$
+		t.setDaemon(true);
+		return t;
+	});
+
 	/**
 	 * Genera un servidor websocket que atiende las peticiones de Autofirma.
 	 * @param port Puerto a trav&eacute;s del que realizar la comunicaci&oacute;n.
@@ -51,6 +101,7 @@ public class AfirmaWebSocketServer extends WebSocketServer {
 	public AfirmaWebSocketServer(final int port, final String sessionId) {
 		super(new InetSocketAddress(port));
 		setReuseAddr(true);
+		setConnectionLostTimeout(CONNECTION_LOST_TIMEOUT);
 
 		this.sessionId = sessionId;
 
@@ -98,19 +149,161 @@ public class AfirmaWebSocketServer extends WebSocketServer {
 	@Override
 	public void onMessage(final WebSocket ws, final String message) {
 		LOGGER.info("Recibimos una peticion en el socket del puerto: " + getAddress().getPort()); //$NON-NLS-1$
+		processRequest(ws, message, protocolVersion);
+	}
+
+	@Override
+	public void onMessage(final WebSocket ws, final ByteBuffer message) {
+		// Las peticiones binarias contienen el mismo texto que las peticiones de texto
+		// codificado en UTF-8. La biblioteca ya ha reensamblado los fragmentos
+		onMessage(ws, StandardCharsets.UTF_8.decode(message).toString());
+	}
+
+	/**
+	 * Procesa una petici&oacute;n ya validada.
+	 * @param ws Conexi&oacute;n por la que se recibi&oacute; la petici&oacute;n.
+	 * @param message Petici&oacute;n.
+	 * @param version Versi&oacute;n del protocolo con la que se procesa la petici&oacute;n.
+	 */
+	protected void processRequest(final WebSocket ws, final String message, final int version) {
 
 		// Si recibimos en el socket un eco, lo respondemos con un OK
 		if (message.startsWith(ECHO_REQUEST_PREFIX)) {
 			broadcast(ECHO_OK_RESPONSE, Collections.singletonList(ws));
 		}
-		// Si recibimos cualquier cosa distinta de un eco, consideraremos que es una peticion de
-		// operacion y la procesaremos como tal
+		// Si recibimos una negociacion de la version de transporte, respondemos con
+		// la version que usaremos en esta conexion
+		else if (message.startsWith(TRANSPORT_REQUEST_PREFIX)) {
+			final int transport = Math.min(getRequestedTransport(message), TRANSPORT_BINARY);
+			ws.setAttachment(Integer.valueOf(transport));
+			LOGGER.info("Se usara la version de transporte " + transport + " en el socket del puerto " + getAddress().getPort()); //$NON-NLS-1$ //$NON-NLS-2$
+			broadcast(TRANSPORT_REQUEST_PREFIX + transport, Collections.singletonList(ws));
+		}
+		// Si recibimos cualquier cosa distinta, consideraremos que es una peticion de
+		// operacion y la procesaremos como tal fuera del hilo del socket
 		else {
-			// Si se trata de una operacion de firma de lote, incrementamos el tiempo de timeout
-			final boolean batchOperation = message.startsWith(HEADER_BATCH_1) || message.startsWith(HEADER_BATCH_2);
-			setConnectionLostTimeout(batchOperation ? 240 : 60);
-			// Ejecutamos la peticion y devolvemos el resultado
-			broadcast(ProtocolInvocationLauncher.launch(message, protocolVersion, true), Collections.singletonList(ws));
+			this.operationExecutor.execute(() -> launchOperation(ws, message, version));
+		}
+	}
+
+	/**
+	 * Ejecuta una operaci&oacute;n y env&iacute;a el resultado. Mientras dura la operaci&oacute;n
+	 * se env&iacute;an mensajes de espera a los clientes que lo hayan negociado.
+	 * @param ws Conexi&oacute;n por la que se recibi&oacute; la petici&oacute;n.
+	 * @param message Petici&oacute;n de operaci&oacute;n.
+	 * @param version Versi&oacute;n del protocolo con la que se procesa la petici&oacute;n.
+	 */
+	private void launchOperation(final WebSocket ws, final String message, final int version) {
+
+		final boolean binary = getTransport(ws) >= TRANSPORT_BINARY;
+
+		final ScheduledFuture<?> waitMessages = binary ?
+				this.waitMessageScheduler.scheduleAtFixedRate(
+						() -> sendWaitMessage(ws),
+						WAIT_MESSAGE_PERIOD,
+						WAIT_MESSAGE_PERIOD,
+						TimeUnit.SECONDS) :
+				null;
+
+		final String result;
+		try {
+			result = ProtocolInvocationLauncher.launch(message, version, true);
+		}
+		finally {
+			if (waitMessages != null) {
+				waitMessages.cancel(false);
+			}
+		}
+
+		if (!ws.isOpen()) {
+			LOGGER.warning("Se cerro la conexion con el socket del puerto " + getAddress().getPort() + " antes de enviar el resultado"); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		try {
+			if (binary) {
+				sendFragmented(ws, result);
+			}
+			else {
+				broadcast(result, Collections.singletonList(ws));
+			}
+		}
+		catch (final WebsocketNotConnectedException e) {
+			LOGGER.log(Level.WARNING, "No se pudo enviar el resultado por el socket del puerto " + getAddress().getPort(), e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Env&iacute;a un mensaje de espera. Se sincroniza con la conexi&oacute;n para no
+	 * intercalarlo entre los fragmentos de un resultado.
+	 * @param ws Conexi&oacute;n a la que enviar el mensaje.
+	 */
+	private static void sendWaitMessage(final WebSocket ws) {
+		synchronized (ws) {
+			if (ws.isOpen()) {
+				try {
+					ws.send(WAIT_MESSAGE);
+				}
+				catch (final WebsocketNotConnectedException e) {
+					LOGGER.fine("No se pudo enviar el mensaje de espera: " + e); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	/**
+	 * Env&iacute;a un texto como un mensaje binario fragmentado. El texto se codifica en
+	 * UTF-8 fragmento a fragmento, sin generar una copia completa en memoria.
+	 * @param ws Conexi&oacute;n a la que enviar el mensaje.
+	 * @param text Texto a enviar.
+	 */
+	private static void sendFragmented(final WebSocket ws, final String text) {
+		final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		final CharBuffer in = CharBuffer.wrap(text);
+		synchronized (ws) {
+			boolean last = false;
+			while (!last) {
+				final ByteBuffer fragment = ByteBuffer.allocate(FRAGMENT_SIZE);
+				final CoderResult cr = encoder.encode(in, fragment, true);
+				last = cr.isUnderflow();
+				if (last) {
+					encoder.flush(fragment);
+				}
+				fragment.flip();
+				ws.sendFragmentedFrame(Opcode.BINARY, fragment, last);
+			}
+		}
+	}
+
+	/**
+	 * Obtiene la versi&oacute;n de transporte negociada en una conexi&oacute;n.
+	 * @param ws Conexi&oacute;n.
+	 * @return Versi&oacute;n de transporte.
+	 */
+	private static int getTransport(final WebSocket ws) {
+		final Integer transport = ws.getAttachment();
+		return transport != null ? transport.intValue() : TRANSPORT_TEXT;
+	}
+
+	/**
+	 * Obtiene la versi&oacute;n de transporte solicitada en una petici&oacute;n de
+	 * negociaci&oacute;n.
+	 * @param message Petici&oacute;n de negociaci&oacute;n.
+	 * @return Versi&oacute;n solicitada o la versi&oacute;n de texto si no se indic&oacute;
+	 * una v&aacute;lida.
+	 */
+	private static int getRequestedTransport(final String message) {
+		int endIdx = TRANSPORT_REQUEST_PREFIX.length();
+		while (endIdx < message.length() && Character.isDigit(message.charAt(endIdx))) {
+			endIdx++;
+		}
+		try {
+			return Integer.parseInt(message.substring(TRANSPORT_REQUEST_PREFIX.length(), endIdx));
+		}
+		catch (final NumberFormatException e) {
+			LOGGER.warning("Version de transporte no valida: " + e); //$NON-NLS-1$
+			return TRANSPORT_TEXT;
 		}
 	}
 
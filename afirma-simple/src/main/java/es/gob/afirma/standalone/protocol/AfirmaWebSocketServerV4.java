@@ -23,26 +23,14 @@ public final class AfirmaWebSocketServerV4 extends AfirmaWebSocketServer {
 	/** Versi&oacute;n de protocolo. */
 	private static final int PROTOCOL_VERSION = 4;
 
-	/** Prefijo de las peticiones de eco. */
-	private static final String ECHO_REQUEST_PREFIX = "echo="; //$NON-NLS-1$
-
 	/** Sufijo de las peticiones de eco. */
 	private static final String ECHO_REQUEST_SUFFIX = "@EOF"; //$NON-NLS-1$
 
 	private static final String IDSESSION_PARAM_PREFIX = "idsession="; //$NON-NLS-1$
 
-	/** Respuesta que se debe enviar ante las peticiones de echo correctas. */
-	private static final String ECHO_OK_RESPONSE = "OK"; //$NON-NLS-1$
-
 	/** IP local. */
 	private static final String LOCALHOST_ADDRESS = "127.0.0.1"; //$NON-NLS-1$
 
-	/** Uno de los prefijos que puede presentar el mensaje de invocaci&oacute;n de una firma de lote. Versi&oacute;n 1. */
-	private static final String HEADER_BATCH_1 = "afirma://batch?"; //$NON-NLS-1$
-
-	/** Uno de los prefijos que puede presentar el mensaje de invocaci&oacute;n de una firma de lote. Versi&oacute;n 1. */
-	private static final String HEADER_BATCH_2 = "afirma://batch/?"; //$NON-NLS-1$
-
 	/**
 	 * Genera un servidor websocket que atiende las peticiones de Autofirma.
 	 * @param port Puerto a trav&eacute;s del que realizar la comunicaci&oacute;n.
@@ -77,19 +65,7 @@ public final class AfirmaWebSocketServerV4 extends AfirmaWebSocketServer {
 			return;
 		}
 
-		// Si recibimos en el socket un eco, lo respondemos con un OK
-		if (message.startsWith(ECHO_REQUEST_PREFIX)) {
-			broadcast(ECHO_OK_RESPONSE, Collections.singletonList(ws));
-		}
-		// Si recibimos cualquier cosa distinta de un eco, consideraremos que es una peticion de
-		// operacion y la procesaremos como tal
-		else {
-			// Si se trata de una operacion de firma de lote, incrementamos el tiempo de timeout
-			final boolean batchOperation = message.startsWith(HEADER_BATCH_1) || message.startsWith(HEADER_BATCH_2);
-			setConnectionLostTimeout(batchOperation ? 240 : 60);
-			// Ejecutamos la peticion y devolvemos el resultado
-			broadcast(ProtocolInvocationLauncher.launch(message, PROTOCOL_VERSION, true), Collections.singletonList(ws));
-		}
+		processRequest(ws, message, PROTOCOL_VERSION);
 	}
 
 	/**
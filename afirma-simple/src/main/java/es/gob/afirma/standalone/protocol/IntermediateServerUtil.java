@@ -9,21 +9,61 @@
 
 package es.gob.afirma.standalone.protocol;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.logging.Logger;
 
+import es.gob.afirma.core.misc.AOUtil;
 import es.gob.afirma.core.misc.http.UrlHttpMethod;
 import es.gob.afirma.standalone.HttpManager;
 
 /**
  * Clases para la interaccion con el servidor intermedio.
+ * Los datos de m&aacute;s de {@value #PART_SIZE} caracteres se env&iacute;an por partes si el
+ * servidor admite la versi&oacute;n {@value #SYNTAX_VERSION_CHUNKED} de la sintaxis. Cada parte
+ * lleva su huella y, si falla su transferencia, se reintenta desde la primera parte que no haya
+ * recibido el servidor. Los datos tambi&eacute;n pueden recuperarse por partes comprobando la
+ * huella de cada una cuando as&iacute; se solicite. Si el servidor no admite esta versi&oacute;n,
+ * los datos se transfieren en una &uacute;nica petici&oacute;n.
  */
 public class IntermediateServerUtil {
 
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
 	private static final String METHOD_OP_PUT = "put"; //$NON-NLS-1$
 	private static final String METHOD_OP_GET = "get"; //$NON-NLS-1$
+	private static final String METHOD_OP_STATUS = "status"; //$NON-NLS-1$
+	private static final String METHOD_OP_COMMIT = "commit"; //$NON-NLS-1$
+	private static final String METHOD_OP_INFO = "info"; //$NON-NLS-1$
+	private static final String METHOD_OP_DELETE = "del"; //$NON-NLS-1$
 
 	private static final String SYNTAX_VERSION = "1_0"; //$NON-NLS-1$
 
+	/** Versi&oacute;n de la sintaxis que permite la transferencia por partes. */
+	private static final String SYNTAX_VERSION_CHUNKED = "2_0"; //$NON-NLS-1$
+
+	/** Tama&ntilde;o de cada parte en la transferencia por partes. */
+	private static final int PART_SIZE = 1024 * 1024;
+
+	/** N&uacute;mero m&aacute;ximo de fallos permitidos en una transferencia por partes. */
+	private static final int MAX_FAILED_ATTEMPTS = 3;
+
+	private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+	private static final String SUCCESS = "OK"; //$NON-NLS-1$
+
+	/** Prefijo de la respuesta con un valor de las operaciones de transferencia por partes. */
+	private static final String SUCCESS_WITH_VALUE = "OK:"; //$NON-NLS-1$
+
+	/** C&oacute;digo de error que devuelve el servidor cuando no admite una operaci&oacute;n. */
+	private static final String ERROR_UNSUPPORTED_OPERATION = "ERR-01"; //$NON-NLS-1$
+
+	private static final String ERROR_PREFIX = "ERR-"; //$NON-NLS-1$
+
 	private static Object semaphore = null;
 
 	/** Env&iacute;a datos al servidor intermedio.
@@ -33,6 +73,10 @@ public class IntermediateServerUtil {
 	 * @throws IOException Si hay problemas enviando los datos. */
 	public static void sendData(final CharSequence data, final String storageServiceUrl, final String id) throws IOException {
 
+		if (data.length() > PART_SIZE && sendDataInParts(data, storageServiceUrl, id)) {
+			return;
+		}
+
 		final StringBuilder url = new StringBuilder(storageServiceUrl)
 		.append("?op=").append(METHOD_OP_PUT) //$NON-NLS-1$
 		.append("&v=").append(SYNTAX_VERSION) //$NON-NLS-1$
@@ -42,20 +86,238 @@ public class IntermediateServerUtil {
 		send(url);
 	}
 
-	/** Recupera datos del servidor intermedio.
+	/** Recupera datos del servidor intermedio en una &uacute;nica petici&oacute;n.
 	 * @param retrieveServiceUrl URL del servicio de recuperaci&oacute;n.
 	 * @param id Identificador a asignar a los datos a subir al servidor.
 	 * @return Datos recuperados.
 	 * @throws IOException Si hay problemas recuperando los datos. */
 	public static byte[] retrieveData(final String retrieveServiceUrl, final String id) throws IOException {
+		return retrieveData(retrieveServiceUrl, id, false);
+	}
+
+	/** Recupera datos del servidor intermedio.
+	 * @param retrieveServiceUrl URL del servicio de recuperaci&oacute;n.
+	 * @param id Identificador a asignar a los datos a subir al servidor.
+	 * @param checkDigest Si es {@code true} y el servidor lo admite, los datos se descargan por
+	 * partes comprobando la huella de cada una, lo que requiere peticiones adicionales para
+	 * consultar su tama&ntilde;o y eliminarlos al terminar. Si es {@code false}, se descargan en
+	 * una &uacute;nica petici&oacute;n.
+	 * @return Datos recuperados.
+	 * @throws IOException Si hay problemas recuperando los datos. */
+	public static byte[] retrieveData(final String retrieveServiceUrl, final String id,
+			final boolean checkDigest) throws IOException {
 		final StringBuilder url = new StringBuilder(retrieveServiceUrl)
 				.append("?op=").append(METHOD_OP_GET) //$NON-NLS-1$
 				.append("&v=").append(SYNTAX_VERSION) //$NON-NLS-1$
 				.append("&id=").append(id); //$NON-NLS-1$
 
+		if (!checkDigest) {
+			return send(url);
+		}
+
+		// Consultamos el tamano de los datos para descargarlos por partes. Si el servidor no
+		// admite la operacion, los descargamos de una vez
+		final byte[] info = send(new StringBuilder(retrieveServiceUrl)
+				.append("?op=").append(METHOD_OP_INFO) //$NON-NLS-1$
+				.append("&v=").append(SYNTAX_VERSION_CHUNKED) //$NON-NLS-1$
+				.append("&id=").append(id)); //$NON-NLS-1$
+		final String infoText = new String(info, StandardCharsets.UTF_8).trim();
+		if (infoText.startsWith(SUCCESS_WITH_VALUE)) {
+			final long size;
+			try {
+				size = Long.parseLong(infoText.substring(SUCCESS_WITH_VALUE.length()));
+			}
+			catch (final NumberFormatException e) {
+				throw new IOException("El servidor intermedio devolvio un tamano de datos invalido: " + infoText, e); //$NON-NLS-1$
+			}
+			return retrieveDataInParts(retrieveServiceUrl, id, size);
+		}
+		// Si el servidor admite la operacion pero devuelve un error (por ejemplo, que no
+		// existen los datos), lo devolvemos como haria la descarga completa
+		if (!infoText.startsWith(ERROR_UNSUPPORTED_OPERATION)) {
+			return info;
+		}
+
 		return send(url);
 	}
 
+	/** Env&iacute;a los datos al servidor intermedio por partes, empezando por la primera
+	 * que no tenga ya el servidor.
+	 * @param data Datos a enviar.
+	 * @param storageServiceUrl URL del servicio de guardado.
+	 * @param id Identificador de los datos.
+	 * @return {@code true} si se enviaron los datos, {@code false} si el servidor no admite
+	 * el env&iacute;o por partes y no se ha enviado nada.
+	 * @throws IOException Si hay problemas enviando los datos. */
+	private static boolean sendDataInParts(final CharSequence data, final String storageServiceUrl,
+			final String id) throws IOException {
+
+		int part = getReceivedParts(storageServiceUrl, id);
+		if (part < 0) {
+			LOGGER.info("El servidor intermedio no admite el envio por partes"); //$NON-NLS-1$
+			return false;
+		}
+
+		final int parts = (data.length() + PART_SIZE - 1) / PART_SIZE;
+		int failures = 0;
+		while (part < parts) {
+			final CharSequence chunk = data.subSequence(part * PART_SIZE, Math.min(data.length(), (part + 1) * PART_SIZE));
+			final String response = new String(send(new StringBuilder(storageServiceUrl)
+					.append("?op=").append(METHOD_OP_PUT) //$NON-NLS-1$
+					.append("&v=").append(SYNTAX_VERSION_CHUNKED) //$NON-NLS-1$
+					.append("&id=").append(id) //$NON-NLS-1$
+					.append("&part=").append(part) //$NON-NLS-1$
+					.append("&dig=").append(digest(chunk.toString().getBytes(StandardCharsets.UTF_8))) //$NON-NLS-1$
+					.append("&dat=").append(chunk), //$NON-NLS-1$
+					failures), StandardCharsets.UTF_8).trim();
+
+			if (SUCCESS.equals(response)) {
+				part++;
+				continue;
+			}
+
+			if (++failures >= MAX_FAILED_ATTEMPTS) {
+				throw new IOException("No se pudo enviar la parte " + part + " de los datos al servidor intermedio: " + response); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			LOGGER.warning("Error al enviar la parte " + part + " de los datos al servidor intermedio: " + response); //$NON-NLS-1$ //$NON-NLS-2$
+			// Reanudamos desde la primera parte que no tenga el servidor
+			try {
+				final int received = getReceivedParts(storageServiceUrl, id);
+				if (received >= 0) {
+					part = received;
+				}
+			}
+			catch (final IOException e) {
+				LOGGER.warning("No se pudo consultar el estado del envio al servidor intermedio: " + e); //$NON-NLS-1$
+			}
+		}
+
+		final String response = new String(send(new StringBuilder(storageServiceUrl)
+				.append("?op=").append(METHOD_OP_COMMIT) //$NON-NLS-1$
+				.append("&v=").append(SYNTAX_VERSION_CHUNKED) //$NON-NLS-1$
+				.append("&id=").append(id) //$NON-NLS-1$
+				.append("&parts=").append(parts)), StandardCharsets.UTF_8).trim(); //$NON-NLS-1$
+		if (!SUCCESS.equals(response)) {
+			throw new IOException("El servidor intermedio no pudo unir las partes de los datos: " + response); //$NON-NLS-1$
+		}
+		return true;
+	}
+
+	/** Consulta al servidor intermedio cu&aacute;ntas partes consecutivas de los datos ha
+	 * recibido ya.
+	 * @param storageServiceUrl URL del servicio de guardado.
+	 * @param id Identificador de los datos.
+	 * @return N&uacute;mero de partes recibidas o -1 si el servidor no admite el env&iacute;o
+	 * por partes.
+	 * @throws IOException Si hay problemas en la consulta. */
+	private static int getReceivedParts(final String storageServiceUrl, final String id) throws IOException {
+		final String response = new String(send(new StringBuilder(storageServiceUrl)
+				.append("?op=").append(METHOD_OP_STATUS) //$NON-NLS-1$
+				.append("&v=").append(SYNTAX_VERSION_CHUNKED) //$NON-NLS-1$
+				.append("&id=").append(id)), StandardCharsets.UTF_8).trim(); //$NON-NLS-1$
+		if (!response.startsWith(SUCCESS_WITH_VALUE)) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(response.substring(SUCCESS_WITH_VALUE.length()));
+		}
+		catch (final NumberFormatException e) {
+			LOGGER.warning("El servidor intermedio devolvio un estado invalido: " + response); //$NON-NLS-1$
+			return -1;
+		}
+	}
+
+	/** Descarga los datos del servidor intermedio por partes, comprobando la huella de cada
+	 * una, y los elimina del servidor al terminar.
+	 * @param retrieveServiceUrl URL del servicio de recuperaci&oacute;n.
+	 * @param id Identificador de los datos.
+	 * @param size Tama&ntilde;o de los datos.
+	 * @return Datos recuperados.
+	 * @throws IOException Si hay problemas recuperando los datos. */
+	private static byte[] retrieveDataInParts(final String retrieveServiceUrl, final String id,
+			final long size) throws IOException {
+
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Los datos del servidor intermedio son demasiado grandes: " + size); //$NON-NLS-1$
+		}
+
+		final ByteArrayOutputStream data = new ByteArrayOutputStream((int) size);
+		int failures = 0;
+		while (data.size() < size) {
+			final byte[] response = send(new StringBuilder(retrieveServiceUrl)
+					.append("?op=").append(METHOD_OP_GET) //$NON-NLS-1$
+					.append("&v=").append(SYNTAX_VERSION_CHUNKED) //$NON-NLS-1$
+					.append("&id=").append(id) //$NON-NLS-1$
+					.append("&off=").append(data.size()) //$NON-NLS-1$
+					.append("&len=").append(PART_SIZE), //$NON-NLS-1$
+					failures);
+
+			// La respuesta tiene la huella del tramo en la primera linea, seguida del tramo
+			int lineEnd = 0;
+			while (lineEnd < response.length && response[lineEnd] != '\n') {
+				lineEnd++;
+			}
+			final String header = new String(response, 0, lineEnd, StandardCharsets.UTF_8).trim();
+			final byte[] chunk = lineEnd < response.length ?
+					Arrays.copyOfRange(response, lineEnd + 1, response.length) : new byte[0];
+
+			if (!header.startsWith(ERROR_PREFIX) && chunk.length > 0 && header.equalsIgnoreCase(digest(chunk))) {
+				data.write(chunk, 0, chunk.length);
+				continue;
+			}
+
+			if (++failures >= MAX_FAILED_ATTEMPTS) {
+				throw new IOException("No se pudo descargar la posicion " + data.size() + " de los datos del servidor intermedio: " + header); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			LOGGER.warning("Error al descargar la posicion " + data.size() + " de los datos del servidor intermedio: " + header); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		// Ya tenemos los datos, asi que si falla el borrado dejamos que caduquen en el servidor
+		try {
+			send(new StringBuilder(retrieveServiceUrl)
+					.append("?op=").append(METHOD_OP_DELETE) //$NON-NLS-1$
+					.append("&v=").append(SYNTAX_VERSION_CHUNKED) //$NON-NLS-1$
+					.append("&id=").append(id)); //$NON-NLS-1$
+		}
+		catch (final IOException e) {
+			LOGGER.warning("No se pudieron eliminar los datos del servidor intermedio: " + e); //$NON-NLS-1$
+		}
+
+		return data.toByteArray();
+	}
+
+	/** Hace una llamada de una transferencia por partes al servidor intermedio. Los errores
+	 * de comunicaci&oacute;n se propagan s&oacute;lo si ya se han agotado los intentos.
+	 * @param url URL de la llamada.
+	 * @param failures N&uacute;mero de fallos previos de la transferencia.
+	 * @return Respuesta del servidor o un error vac&iacute;o si fall&oacute; la comunicaci&oacute;n.
+	 * @throws IOException Si falla la comunicaci&oacute;n y no quedan intentos. */
+	private static byte[] send(final StringBuilder url, final int failures) throws IOException {
+		try {
+			return send(url);
+		}
+		catch (final IOException e) {
+			if (failures + 1 >= MAX_FAILED_ATTEMPTS) {
+				throw e;
+			}
+			LOGGER.warning("Error de comunicacion con el servidor intermedio: " + e); //$NON-NLS-1$
+			return ERROR_PREFIX.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	/** Calcula la huella en hexadecimal de unos datos.
+	 * @param data Datos.
+	 * @return Huella de los datos.
+	 * @throws IOException Si no se puede calcular la huella. */
+	private static String digest(final byte[] data) throws IOException {
+		try {
+			return AOUtil.hexify(MessageDigest.getInstance(DIGEST_ALGORITHM).digest(data), false);
+		}
+		catch (final NoSuchAlgorithmException e) {
+			throw new IOException("No se puede calcular la huella de los datos", e); //$NON-NLS-1$
+		}
+	}
+
 	/**
 	 * Hace la llamada al servidor intermedio.
 	 * @param url URL del servicio de guardado.
@@ -183,9 +183,33 @@ public class JSONBatchManager {
 
 	public static String buildBatchResultJson(final List<LocalSingleBatchResult> results) {
 
-		final JSONArray signs = new JSONArray();
-
+		final BatchResultJsonBuilder builder = new BatchResultJsonBuilder();
 		for (final LocalSingleBatchResult singleResult : results) {
+			builder.add(singleResult);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Construye de forma incremental el JSON con el resultado de un lote de firma monof&aacute;sica.
+	 * Cada resultado se codifica en cuanto se agrega, de forma que no es necesario conservar
+	 * en memoria las firmas de todo el lote hasta el final.
+	 */
+	static final class BatchResultJsonBuilder {
+
+		private final StringBuilder buffer = new StringBuilder();
+
+		private boolean empty;
+
+		BatchResultJsonBuilder() {
+			reset();
+		}
+
+		/**
+		 * Agrega el resultado de una firma del lote.
+		 * @param singleResult Resultado de la firma.
+		 */
+		void add(final LocalSingleBatchResult singleResult) {
 
 			final JSONObject element = new JSONObject();
 			element.put(RESP_ELEM_ID, singleResult.getDocId());
@@ -196,14 +220,28 @@ public class JSONBatchManager {
 			if (singleResult.getSignature() != null) {
 				element.put(RESP_ELEM_SIGNATURE, Base64.encode(singleResult.getSignature()));
 			}
-			signs.put(element);
+
+			if (!this.empty) {
+				this.buffer.append(',');
+			}
+			this.buffer.append(element.toString());
+			this.empty = false;
 		}
 
-		final JSONObject mainElement = new JSONObject();
-		mainElement.put(RESP_ELEM_MAIN, signs);
+		/** Descarta los resultados agregados hasta el momento. */
+		void reset() {
+			this.buffer.setLength(0);
+			this.buffer.append('{').append(JSONObject.quote(RESP_ELEM_MAIN)).append(":["); //$NON-NLS-1$
+			this.empty = true;
+		}
 
-		return mainElement.toString();
+		/**
+		 * Obtiene el JSON con los resultados agregados.
+		 * @return JSON con el resultado del lote.
+		 */
+		String build() {
+			return this.buffer.toString() + "]}"; //$NON-NLS-1$
+		}
 	}
 
-
 }
@@ -0,0 +1,97 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.standalone.protocol;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import javax.security.auth.callback.PasswordCallback;
+
+import es.gob.afirma.keystores.AOKeyStore;
+import es.gob.afirma.keystores.AOKeyStoreManager;
+import es.gob.afirma.keystores.AOKeyStoreManagerFactory;
+import es.gob.afirma.keystores.AOKeystoreAlternativeException;
+
+/** Cach&eacute; de los gestores de almacenes de claves abiertos durante las invocaciones por
+ * protocolo. S&oacute;lo se usa cuando la aplicaci&oacute;n se ejecuta como instancia residente
+ * (ver {@link ResidentInstanceManager}), de forma que las operaciones posteriores a la primera
+ * reutilizan el gestor ya abierto, con los proveedores cargados y los alias que &eacute;ste
+ * guarda, en lugar de volver a abrir el almac&eacute;n.
+ * <p>S&oacute;lo se guardan los almacenes del sistema operativo (Windows y llavero de macOS),
+ * que el propio sistema mantiene actualizados y que se recargan al actualizar el listado
+ * desde el di&aacute;logo de selecci&oacute;n de certificados. Los almacenes PKCS#11, de
+ * Mozilla y de tarjetas se abren de nuevo en cada operaci&oacute;n, para detectar los
+ * cambios de tarjeta o de ranura y no mantener desbloqueado un almac&eacute;n protegido.</p> */
+final class KeyStoreManagerCache {
+
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	/** Almacenes cuyos gestores se pueden reutilizar entre operaciones. */
+	private static final Set<AOKeyStore> CACHEABLE_KEYSTORES = EnumSet.of(
+		AOKeyStore.WINDOWS,
+		AOKeyStore.WINADDRESSBOOK,
+		AOKeyStore.WINCA,
+		AOKeyStore.APPLE
+	);
+
+	/** Gestores de almacenes abiertos o {@code null} si no est&aacute; activa la cach&eacute;. */
+	private static Map<String, AOKeyStoreManager> managers = null;
+
+	private KeyStoreManagerCache() {
+		// No instanciable
+	}
+
+	/** Activa la cach&eacute; de gestores de almacenes. */
+	static synchronized void enable() {
+		if (managers == null) {
+			managers = new HashMap<>();
+		}
+	}
+
+	/** Obtiene un gestor del almac&eacute;n indicado, reutilizando el de una operaci&oacute;n
+	 * anterior si est&aacute; activa la cach&eacute;.
+	 * @param aoks Tipo de almac&eacute;n.
+	 * @param lib Biblioteca o fichero del almac&eacute;n, o {@code null} si no se necesita.
+	 * @param pwc <i>PasswordCallback</i> para abrir el almac&eacute;n.
+	 * @return Gestor del almac&eacute;n.
+	 * @throws AOKeystoreAlternativeException Si no se puede abrir el almac&eacute;n pero hay
+	 *                                        uno alternativo.
+	 * @throws IOException Si no se puede abrir el almac&eacute;n. */
+	static synchronized AOKeyStoreManager getAOKeyStoreManager(final AOKeyStore aoks,
+			                                                   final String lib,
+			                                                   final PasswordCallback pwc) throws AOKeystoreAlternativeException,
+	                                                                                              IOException {
+		if (managers == null || !isCacheable(aoks)) {
+			return AOKeyStoreManagerFactory.getAOKeyStoreManager(aoks, lib, null, pwc, null);
+		}
+
+		final String key = aoks.name() + '\0' + lib;
+		AOKeyStoreManager ksm = managers.get(key);
+		if (ksm != null) {
+			LOGGER.info("Se reutiliza el gestor del almacen abierto en una operacion anterior"); //$NON-NLS-1$
+			return ksm;
+		}
+		ksm = AOKeyStoreManagerFactory.getAOKeyStoreManager(aoks, lib, null, pwc, null);
+		managers.put(key, ksm);
+		return ksm;
+	}
+
+	/** Indica si el gestor de un tipo de almac&eacute;n se puede reutilizar entre operaciones.
+	 * @param aoks Tipo de almac&eacute;n.
+	 * @return {@code true} si el almac&eacute;n es del sistema operativo, {@code false} en
+	 *         caso contrario. */
+	static boolean isCacheable(final AOKeyStore aoks) {
+		return CACHEABLE_KEYSTORES.contains(aoks);
+	}
+}
@@ -1,9 +1,19 @@
 package es.gob.afirma.standalone.protocol;
 
 import java.security.KeyStore.PrivateKeyEntry;
-import java.util.ArrayList;
+import java.security.PrivateKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,37 +49,90 @@ public class LocalBatchSigner {
 
 	private static final String EXTRAPARAM_HEADLESS = "headless"; //$NON-NLS-1$
 
+	/** N&uacute;mero m&aacute;ximo de firmas que se realizan simult&aacute;neamente con claves software. */
+	private static final int MAX_PARALLEL_SIGNS = 4;
+
 	/**
 	 * Metodo encargado de firmar todas las firmas monof&aacute;sicas que conforman un lote.
+	 * Cuando la clave es software, las firmas se realizan en paralelo, aunque sus resultados
+	 * se agregan a la respuesta en el orden del lote seg&uacute;n van termin&aacute;ndose.
+	 * Con claves de tarjeta o de almacenes externos las firmas se realizan una a una.
+	 * Los errores de las firmas se registran en su resultado, salvo las excepciones no
+	 * comprobadas y los errores de la m&aacute;quina virtual, que se propagan como al firmar
+	 * de forma secuencial.
 	 * @param batchConfig Configuraci&oacute;n del lote de firma.
 	 * @param pke Clave privada usada por el certificado.
 	 * @return Resultado del proceso.
 	 */
 	public static String signLocalBatch(final BatchSignOperation batchConfig, final PrivateKeyEntry pke) {
+		final int parallelism = isSoftwareKey(pke.getPrivateKey()) ?
+				Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARALLEL_SIGNS) : 1;
+		return signLocalBatch(batchConfig, pke, parallelism);
+	}
+
+	/**
+	 * Firma todas las firmas monof&aacute;sicas que conforman un lote con, como m&aacute;ximo,
+	 * el n&uacute;mero indicado de firmas simult&aacute;neas.
+	 * @param batchConfig Configuraci&oacute;n del lote de firma.
+	 * @param pke Clave privada usada por el certificado.
+	 * @param maxParallelism N&uacute;mero m&aacute;ximo de firmas simult&aacute;neas.
+	 * @return Resultado del proceso.
+	 */
+	static String signLocalBatch(final BatchSignOperation batchConfig, final PrivateKeyEntry pke, final int maxParallelism) {
+
+		final List<SingleSignOperation> signs = batchConfig.getSigns();
+		final JSONBatchManager.BatchResultJsonBuilder results = new JSONBatchManager.BatchResultJsonBuilder();
 
-		final List<LocalSingleBatchResult> results = new ArrayList<>();
+		// Firmadores ya resueltos en este lote para cada formato
+		final Map<String, AOSigner> signers = new HashMap<>();
 
-		boolean errorOcurred = false;
-		for (final SingleSignOperation singleConfig : batchConfig.getSigns()) {
+		final int parallelism = Math.max(1, Math.min(maxParallelism, signs.size()));
 
-			if (errorOcurred && batchConfig.isStopOnError()) {
-				results.add(new LocalSingleBatchResult(singleConfig.getDocId()));
-			} else {
+		// Limitamos las firmas lanzadas que aun no se han agregado a la respuesta para no
+		// acumular en memoria las que terminen antes que las anteriores del lote. Si no se
+		// firma en paralelo, no se lanza una firma hasta haber agregado la anterior
+		final int window = parallelism > 1 ? 2 * parallelism : 1;
+
+		final ExecutorService executor = parallelism > 1 ?
+				Executors.newFixedThreadPool(parallelism, r -> {
+					final Thread t = new Thread(r, "LocalBatchSigner"); //$NON-NLS-1$
+					t.setDaemon(true);
+					return t;
+				}) : null;
+
+		try {
+			final Deque<FutureTask<byte[]>> pending = new ArrayDeque<>();
+			int next = 0;
+			for (int i = 0; i < signs.size(); i++) {
+
+				while (next < signs.size() && pending.size() < window) {
+					pending.add(launchSign(signs.get(next), pke, signers, executor));
+					next++;
+				}
+
+				final SingleSignOperation singleConfig = signs.get(i);
 				try {
-					final byte[] signature = processSign(singleConfig, pke);
+					final byte[] signature = getSignResult(pending.poll());
 					results.add(new LocalSingleBatchResult(singleConfig.getDocId(), signature));
 				}
 				catch (final SocketOperationException e) {
-					errorOcurred = true;
 					LOGGER.severe("Error al procesar la firma de lotes monofasica con ID: " + LoggerUtil.getTrimStr(singleConfig.getDocId()) + "Excepcion :" + e); //$NON-NLS-1$ //$NON-NLS-2$
 
 					// Si se debia detener la ejecucion en caso de error, ademas de
 					// no hacer mas firmas, se cambiara el estado de las firmas previas
 					if (batchConfig.isStopOnError()) {
-						for (final LocalSingleBatchResult singleResult : results) {
-							singleResult.setResult(SKIPPED_SIGN);
-							singleResult.setSignature(null);
+						for (final FutureTask<byte[]> task : pending) {
+							task.cancel(true);
+						}
+						results.reset();
+						for (int j = 0; j < i; j++) {
+							results.add(new LocalSingleBatchResult(signs.get(j).getDocId()));
+						}
+						results.add(new LocalSingleBatchResult(singleConfig.getDocId(), e.getMessage()));
+						for (int j = i + 1; j < signs.size(); j++) {
+							results.add(new LocalSingleBatchResult(signs.get(j).getDocId()));
 						}
+						return results.build();
 					}
 
 					// Agreamos ahora el error de la firma actual
@@ -77,56 +140,145 @@ public class LocalBatchSigner {
 				}
 			}
 		}
+		finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
 
+		return results.build();
+	}
 
+	/**
+	 * Indica si la clave privada es software, en cuyo caso puede usarse desde varios hilos
+	 * a la vez sin interacci&oacute;n con el usuario ni con un dispositivo externo.
+	 * @param key Clave privada.
+	 * @return {@code true} si es una clave RSA o EC software, {@code false} en caso contrario.
+	 */
+	private static boolean isSoftwareKey(final PrivateKey key) {
+		return key instanceof RSAPrivateCrtKey || key instanceof ECPrivateKey;
+	}
+
+	/**
+	 * Prepara y lanza una firma del lote. La selecci&oacute;n del algoritmo y del firmador se
+	 * realiza en el hilo que llama, en el orden del lote, y la firma se ejecuta en el
+	 * <code>executor</code> o, si este es {@code null}, directamente en el hilo que llama.
+	 * @param singleConfig Configuraci&oacute;n de la firma.
+	 * @param pke Clave privada usada por el certificado.
+	 * @param signers Firmadores ya resueltos en el lote para cada formato.
+	 * @param executor Ejecutor de las firmas o {@code null} para firmar en el hilo actual.
+	 * @return Tarea de la firma.
+	 */
+	private static FutureTask<byte[]> launchSign(final SingleSignOperation singleConfig,
+			                                     final PrivateKeyEntry pke,
+			                                     final Map<String, AOSigner> signers,
+			                                     final ExecutorService executor) {
+		FutureTask<byte[]> task;
+		try {
+			final String signatureAlgorithm = getSignatureAlgorithm(singleConfig, pke);
+			final AOSigner signer = getSigner(singleConfig, signers);
+			task = new FutureTask<>(() -> processSign(singleConfig, signer, signatureAlgorithm, pke));
+		}
+		catch (final SocketOperationException e) {
+			task = new FutureTask<>(() -> {
+				throw e;
+			});
+		}
+
+		if (executor != null) {
+			executor.execute(task);
+		}
+		else {
+			task.run();
+		}
+		return task;
+	}
 
-		return JSONBatchManager.buildBatchResultJson(results);
+	/**
+	 * Espera a que termine una firma del lote y obtiene su resultado.
+	 * @param task Tarea de la firma.
+	 * @return Firma generada.
+	 * @throws SocketOperationException Cuando falla la firma.
+	 */
+	private static byte[] getSignResult(final FutureTask<byte[]> task) throws SocketOperationException {
+		try {
+			return task.get();
+		}
+		catch (final ExecutionException e) {
+			if (e.getCause() instanceof SocketOperationException) {
+				throw (SocketOperationException) e.getCause();
+			}
+			// Las excepciones no comprobadas y los errores se propagan igual que si la
+			// firma se hubiese hecho en este hilo
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			LOGGER.log(Level.SEVERE, "Error al realizar la operacion de firma", e.getCause()); //$NON-NLS-1$
+			throw new SocketOperationException(ProtocolInvocationLauncherErrorManager.ERROR_SIGNATURE_FAILED, e.getCause());
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SocketOperationException(ProtocolInvocationLauncherErrorManager.ERROR_SIGNATURE_FAILED, e);
+		}
 	}
 
-	private static byte[] processSign(final SingleSignOperation singleConfig, final PrivateKeyEntry pke) throws SocketOperationException {
+	private static String getSignatureAlgorithm(final SingleSignOperation singleConfig, final PrivateKeyEntry pke) throws SocketOperationException {
 
-		final Operation cryptoOperation = singleConfig.getCryptoOperation();
-		final byte[] data = singleConfig.getData();
 		final String algorithm = singleConfig.getAlgorithm();
     	final String keyType = pke.getPrivateKey().getAlgorithm();
 
     	// Seleccionamos el algoritmo de firma
-		String signatureAlgorithm;
 		try {
-			signatureAlgorithm = AOSignConstants.composeSignatureAlgorithmName(algorithm, keyType);
+			return AOSignConstants.composeSignatureAlgorithmName(algorithm, keyType);
 		}
 		catch (final Exception e) {
 			final String errorCode = ProtocolInvocationLauncherErrorManager.ERROR_INCOMPATIBLE_KEY_TYPE;
 			throw new SocketOperationException(errorCode, e);
 		}
+	}
 
-		final String format = singleConfig.getFormat();
-		final Properties extraParams = singleConfig.getExtraParams();
+	private static AOSigner getSigner(final SingleSignOperation singleConfig, final Map<String, AOSigner> signers) throws SocketOperationException {
 
-		// En caso de que no se haya solicitado una operacion de multifirma con
-		// el formato AUTO, configuramos el servidor en base al nombre de formato
-		AOSigner signer = null;
-		if (!AOSignConstants.SIGN_FORMAT_AUTO.equalsIgnoreCase(format)) {
-			signer = AOSignerFactory.getSigner(format);
-			if (signer == null) {
-				LOGGER.severe("No hay un firmador configurado para el formato: " + LoggerUtil.getTrimStr(format)); //$NON-NLS-1$
-				final String errorCode = ProtocolInvocationLauncherErrorManager.ERROR_UNSUPPORTED_FORMAT;
+		String format = singleConfig.getFormat();
+
+		// En caso de que se haya solicitado una operacion de multifirma con el formato
+		// AUTO, es necesario identificar cual es el que se deberia usar
+		if (AOSignConstants.SIGN_FORMAT_AUTO.equalsIgnoreCase(format)) {
+			format = ProtocolInvocationLauncherUtil.identifyFormatFromData(
+					singleConfig.getData(),
+					SignOperation.Operation.valueOf(singleConfig.getCryptoOperation().name()));
+			if (format == null) {
+				LOGGER.severe(
+					"Los datos no se corresponden con una firma electronica o no se pudieron analizar"); //$NON-NLS-1$
+				final String errorCode = ProtocolInvocationLauncherErrorManager.ERROR_UNKNOWN_SIGNER;
 				throw new SocketOperationException(errorCode);
 			}
 		}
 
-		// En no haber fijado aun el firmador significa que se selecciono el formato AUTO y
-		// es necesario identificar cual es el que se deberia usar
+		AOSigner signer = signers.get(format);
 		if (signer == null) {
-			final String signFormat = ProtocolInvocationLauncherUtil.identifyFormatFromData(data, SignOperation.Operation.valueOf(cryptoOperation.name()));
-			if (signFormat == null) {
-				LOGGER.severe(
-					"Los datos no se corresponden con una firma electronica o no se pudieron analizar"); //$NON-NLS-1$
-				final String errorCode = ProtocolInvocationLauncherErrorManager.ERROR_UNKNOWN_SIGNER;
+			signer = AOSignerFactory.getSigner(format);
+			if (signer == null) {
+				LOGGER.severe("No hay un firmador configurado para el formato: " + LoggerUtil.getTrimStr(format)); //$NON-NLS-1$
+				final String errorCode = ProtocolInvocationLauncherErrorManager.ERROR_UNSUPPORTED_FORMAT;
 				throw new SocketOperationException(errorCode);
 			}
-			signer = AOSignerFactory.getSigner(signFormat);
+			signers.put(format, signer);
 		}
+		return signer;
+	}
+
+	private static byte[] processSign(final SingleSignOperation singleConfig,
+			                          final AOSigner signer,
+			                          final String signatureAlgorithm,
+			                          final PrivateKeyEntry pke) throws SocketOperationException {
+
+		final Operation cryptoOperation = singleConfig.getCryptoOperation();
+		final byte[] data = singleConfig.getData();
+		final Properties extraParams = singleConfig.getExtraParams();
 
 		// Hacemos una copia del extraParam y le agregamos la propiedad "headless" para
 		// evitar que se muestren dialogos graficos que interrumpan la ejecucion
@@ -7,8 +7,8 @@ import java.util.Properties;
 import java.util.logging.Logger;
 
 import es.gob.afirma.core.misc.Base64;
+import es.gob.afirma.standalone.crypto.CypherDataManager;
 import es.gob.afirma.standalone.crypto.NativeDataCipher;
-import es.gob.afirma.standalone.plugins.DataCipher;
 import es.gob.afirma.standalone.plugins.EncryptingException;
 import es.gob.afirma.standalone.plugins.PluginControlledException;
 import es.gob.afirma.standalone.plugins.SignDataProcessor;
@@ -22,7 +22,7 @@ public class NativeSignDataProcessor extends SignDataProcessor {
 
 	private static final char RESULT_SEPARATOR = '|';
 
-	private DataCipher cipher;
+	private NativeDataCipher cipher;
 
 	public NativeSignDataProcessor(final int protocolVersion) {
 		super(protocolVersion);
@@ -32,7 +32,8 @@ public class NativeSignDataProcessor extends SignDataProcessor {
 	@Override
 	public void setCipherKey(final byte[] key) {
 		if (key != null) {
-			this.cipher = new NativeDataCipher(key);
+			this.cipher = new NativeDataCipher(
+					key, CypherDataManager.isAuthenticatedCipherSupported(getProtocolVersion()));
 		}
 	}
 
@@ -68,15 +69,15 @@ public class NativeSignDataProcessor extends SignDataProcessor {
 		if (this.cipher != null) {
 			LOGGER.info("Se cifran los datos resultantes con la clave de cifrado proporcionada"); //$NON-NLS-1$
 			try {
-				// El CipherData devuelve los datos directamente en Base64
-				dataToSend.append(this.cipher.cipher(certEncoded));
+				// El CipherData agrega los datos directamente en Base64
+				this.cipher.cipher(certEncoded, dataToSend);
 				dataToSend.append(RESULT_SEPARATOR);
-				dataToSend.append(this.cipher.cipher(sign));
+				this.cipher.cipher(sign, dataToSend);
 
 				// A partir del protocolo version 3, si se cargo un fichero, se devuelve el nombre
 				if (extraData != null && !extraData.isEmpty() && getProtocolVersion() >= 3) {
 					dataToSend.append(RESULT_SEPARATOR);
-					dataToSend.append(this.cipher.cipher(buildExtraDataResult(extraData)));
+					this.cipher.cipher(buildExtraDataResult(extraData), dataToSend);
 				}
 			}
 			catch (final Exception e) {
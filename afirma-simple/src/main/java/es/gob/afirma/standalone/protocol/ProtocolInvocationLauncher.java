@@ -59,7 +59,7 @@ public final class ProtocolInvocationLauncher {
 
     private static final String RESULT_OK = "OK"; //$NON-NLS-1$
 
-    static final ProtocolVersion MAX_PROTOCOL_VERSION_SUPPORTED = ProtocolVersion.VERSION_4;
+    static final ProtocolVersion MAX_PROTOCOL_VERSION_SUPPORTED = ProtocolVersion.VERSION_5;
 
     private static final int MIN_JAVASCRIPT_VERSION_CODE_NEEDED = 1;
 
@@ -609,7 +609,7 @@ public final class ProtocolInvocationLauncher {
                 // espera activa si se encontraba vigente
                 if (!bySocket) {
                 	LOGGER.info("Enviamos el resultado de la operacion de firma y guardado al servidor intermedio"); //$NON-NLS-1$
-                	sendDataToServer(dataToSend.toString(), params.getStorageServletUrl().toString(), params.getId());
+                	sendDataToServer(dataToSend, params.getStorageServletUrl().toString(), params.getId());
                 }
 
                 return dataToSend.toString();
@@ -718,7 +718,7 @@ public final class ProtocolInvocationLauncher {
                 // espera activa si se encontraba vigente
                 if (!bySocket) {
                 	LOGGER.info("Enviamos el resultado de la operacion de firma al servidor intermedio"); //$NON-NLS-1$
-                	sendDataToServer(dataToSend.toString(), params.getStorageServletUrl().toString(), params.getId());
+                	sendDataToServer(dataToSend, params.getStorageServletUrl().toString(), params.getId());
                 }
 
                 return dataToSend.toString();
@@ -867,7 +867,7 @@ public final class ProtocolInvocationLauncher {
      * @param serviceUrl URL del servicio de env&iacute;o de datos.
 	 * @param id         Identificador del mensaje en el servidor.
 	 */
-	private static void sendDataToServer(final String data, final String serviceUrl, final String id) {
+	private static void sendDataToServer(final CharSequence data, final String serviceUrl, final String id) {
 		// Detenemos la espera activa
 		final Thread waitingThread = getActiveWaitingThread();
 		if (waitingThread != null) {
@@ -38,7 +38,6 @@ import es.gob.afirma.keystores.AOCertificatesNotFoundException;
 import es.gob.afirma.keystores.AOKeyStore;
 import es.gob.afirma.keystores.AOKeyStoreDialog;
 import es.gob.afirma.keystores.AOKeyStoreManager;
-import es.gob.afirma.keystores.AOKeyStoreManagerFactory;
 import es.gob.afirma.keystores.CertificateFilter;
 import es.gob.afirma.keystores.filters.CertFilterManager;
 import es.gob.afirma.keystores.filters.EncodedCertificateFilter;
@@ -166,10 +165,11 @@ final class ProtocolInvocationLauncherBatch {
 		// Si hay clave de cifrado, ciframos
 		if (options.getDesKey() != null) {
 			try {
-				result.append(CypherDataManager.cipherData(operationResult.getResult(), options.getDesKey()));
+				final boolean authenticated = CypherDataManager.isAuthenticatedCipherSupported(protocolVersion);
+				CypherDataManager.cipherData(operationResult.getResult(), options.getDesKey(), authenticated, result);
 				if (signingCertEncoded != null) {
-					result.append(RESULT_SEPARATOR)
-						.append(CypherDataManager.cipherData(signingCertEncoded, options.getDesKey()));
+					result.append(RESULT_SEPARATOR);
+					CypherDataManager.cipherData(signingCertEncoded, options.getDesKey(), authenticated, result);
 				}
 			}
 			catch (final Exception e) {
@@ -246,13 +246,7 @@ final class ProtocolInvocationLauncherBatch {
 			final PasswordCallback pwc = aoks.getStorePasswordCallback(null);
 			final AOKeyStoreManager ksm;
 			try {
-				ksm = AOKeyStoreManagerFactory.getAOKeyStoreManager(
-					aoks, // Store
-					aoksLib, // Lib
-					null, // Description
-					pwc,  // PasswordCallback
-					null  // Parent
-				);
+				ksm = KeyStoreManagerCache.getAOKeyStoreManager(aoks, aoksLib, pwc);
 			}
 			catch (final Exception e) {
 				LOGGER.log(Level.SEVERE, "Error obteniendo el AOKeyStoreManager", e); //$NON-NLS-1$
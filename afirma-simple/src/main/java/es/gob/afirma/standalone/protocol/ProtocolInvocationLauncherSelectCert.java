@@ -29,7 +29,6 @@ import es.gob.afirma.keystores.AOCertificatesNotFoundException;
 import es.gob.afirma.keystores.AOKeyStore;
 import es.gob.afirma.keystores.AOKeyStoreDialog;
 import es.gob.afirma.keystores.AOKeyStoreManager;
-import es.gob.afirma.keystores.AOKeyStoreManagerFactory;
 import es.gob.afirma.keystores.CertificateFilter;
 import es.gob.afirma.keystores.filters.CertFilterManager;
 import es.gob.afirma.standalone.SimpleAfirma;
@@ -146,13 +145,7 @@ final class ProtocolInvocationLauncherSelectCert {
 			final PasswordCallback pwc = aoks.getStorePasswordCallback(null);
 			final AOKeyStoreManager ksm;
 			try {
-				ksm = AOKeyStoreManagerFactory.getAOKeyStoreManager(
-						aoks, // Store
-						aoksLib, // Lib
-						null, // Description
-						pwc, // PasswordCallback
-						null // Parent
-				);
+				ksm = KeyStoreManagerCache.getAOKeyStoreManager(aoks, aoksLib, pwc);
 			} catch (final Exception e) {
 				LOGGER.log(Level.SEVERE, "Error obteniendo el AOKeyStoreManager", e); //$NON-NLS-1$
 				final String errorCode = ProtocolInvocationLauncherErrorManager.ERROR_CANNOT_ACCESS_KEYSTORE;
@@ -245,7 +238,10 @@ final class ProtocolInvocationLauncherSelectCert {
 		if (options.getDesKey() != null) {
 			try {
 				// El CipherData devuelve los datos directamente en Base64
-				dataToSend = CypherDataManager.cipherData(certEncoded, options.getDesKey());
+				final StringBuilder buffer = new StringBuilder();
+				CypherDataManager.cipherData(certEncoded, options.getDesKey(),
+						CypherDataManager.isAuthenticatedCipherSupported(protocolVersion), buffer);
+				dataToSend = buffer.toString();
 			} catch (final Exception e) {
 				LOGGER.severe("Error en el cifrado de los datos a enviar: " + e); //$NON-NLS-1$
 				final String errorCode = ProtocolInvocationLauncherErrorManager.ERROR_ENCRIPTING_DATA;
@@ -59,7 +59,6 @@ import es.gob.afirma.keystores.AOCertificatesNotFoundException;
 import es.gob.afirma.keystores.AOKeyStore;
 import es.gob.afirma.keystores.AOKeyStoreDialog;
 import es.gob.afirma.keystores.AOKeyStoreManager;
-import es.gob.afirma.keystores.AOKeyStoreManagerFactory;
 import es.gob.afirma.keystores.CertificateFilter;
 import es.gob.afirma.keystores.filters.CertFilterManager;
 import es.gob.afirma.keystores.filters.EncodedCertificateFilter;
@@ -573,12 +572,7 @@ final class ProtocolInvocationLauncherSign {
 			LOGGER.info("Obtenido gestor de almacenes de claves: " + aoks); //$NON-NLS-1$
 			final AOKeyStoreManager ksm;
 			try {
-				ksm = AOKeyStoreManagerFactory.getAOKeyStoreManager(aoks, // Store
-						keyStoreLib, // Lib
-						null, // Description
-						pwc, // PasswordCallback
-						null // Parent
-						);
+				ksm = KeyStoreManagerCache.getAOKeyStoreManager(aoks, keyStoreLib, pwc);
 			} catch (final Exception e) {
 				LOGGER.log(Level.SEVERE, "Error obteniendo el AOKeyStoreManager", e); //$NON-NLS-1$
 				final String errorCode = ProtocolInvocationLauncherErrorManager.ERROR_CANNOT_ACCESS_KEYSTORE;
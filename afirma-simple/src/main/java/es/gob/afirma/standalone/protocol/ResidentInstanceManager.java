@@ -0,0 +1,279 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.standalone.protocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import es.gob.afirma.standalone.LocalServiceChannel;
+import es.gob.afirma.standalone.SimpleAfirma;
+
+/** Gestor del modo residente de la invocaci&oacute;n por protocolo.
+ * <p>Cada invocaci&oacute;n por protocolo que se comunica mediante servidor intermedio arranca
+ * una nueva instancia de la aplicaci&oacute;n que se cierra al terminar la operaci&oacute;n, por
+ * lo que todas pagan el coste completo de arranque (configuraci&oacute;n del proxy y de los
+ * almacenes de confianza, b&uacute;squeda de actualizaciones, carga de los proveedores y del
+ * almac&eacute;n de claves...). Si se activa el modo residente, la instancia que completa una
+ * operaci&oacute;n queda abierta escuchando en un puerto local y las invocaciones posteriores le
+ * entregan su URL y finalizan inmediatamente. La instancia residente ejecuta las operaciones de
+ * una en una, reutilizando los almacenes de claves ya abiertos, y se cierra cuando pasa un
+ * tiempo sin recibir peticiones.</p>
+ * <p>El modo residente se activa estableciendo a <code>true</code> la propiedad de Java
+ * {@value #RESIDENT_MODE} o la variable de entorno {@value #RESIDENT_MODE_ENV}. La instancia
+ * residente se publica mediante un {@link LocalServiceChannel}, por lo que s&oacute;lo puede
+ * haber una a la vez y las URL s&oacute;lo se entregan tras comprobar que quien escucha en el
+ * puerto publicado es la propia instancia residente.</p> */
+public final class ResidentInstanceManager {
+
+	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	/** Propiedad de Java que hay que establecer a <code>true</code> para activar el modo
+	 * residente de la invocaci&oacute;n por protocolo. */
+	public static final String RESIDENT_MODE = "es.gob.afirma.protocol.resident"; //$NON-NLS-1$
+
+	/** Variable de entorno que hay que establecer a <code>true</code> para activar el modo
+	 * residente de la invocaci&oacute;n por protocolo. */
+	public static final String RESIDENT_MODE_ENV = "AUTOFIRMA_PROTOCOL_RESIDENT"; //$NON-NLS-1$
+
+	/** Milisegundos sin peticiones tras los que se cierra la instancia residente. */
+	private static final long IDLE_TIMEOUT = 15 * 60 * 1000L;
+
+	/** Milisegundos entre las comprobaciones de inactividad. */
+	private static final int IDLE_CHECK_INTERVAL = 1000;
+
+	/** Milisegundos de espera m&aacute;xima de la respuesta de la instancia residente. */
+	private static final int RESPONSE_TIMEOUT = 2000;
+
+	/** Fichero en el que se publican el puerto y la clave de la instancia residente. */
+	private static final File DESCRIPTOR_FILE = new File(SimpleAfirma.APPLICATION_HOME, "protocol.resident"); //$NON-NLS-1$
+
+	/** Respuesta de la instancia residente cuando acepta una petici&oacute;n. */
+	private static final int STATUS_ACCEPTED = 0;
+
+	/** Respuesta de la instancia residente cuando rechaza una petici&oacute;n. */
+	private static final int STATUS_REJECTED = 1;
+
+	private static final String PROTOCOL_URL_START = "afirma://"; //$NON-NLS-1$
+
+	private final LocalServiceChannel channel;
+
+	/** Ejecutor de las operaciones. Se usa un &uacute;nico hilo porque el lanzador de
+	 * operaciones por protocolo guarda estado est&aacute;tico de la operaci&oacute;n en curso. */
+	private final ExecutorService worker;
+
+	private final AtomicInteger pendingOperations = new AtomicInteger(0);
+
+	private volatile long lastActivity = System.currentTimeMillis();
+
+	private ResidentInstanceManager(final LocalServiceChannel channel) {
+		this.channel = channel;
+		this.worker = Executors.newSingleThreadExecutor(r -> {
+			final Thread t = new Thread(r, "ResidentProtocolWorker"); //$NON-NLS-1$
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/** Indica si est&aacute; activado el modo residente.
+	 * @return {@code true} si est&aacute; activado el modo residente. */
+	public static boolean isEnabled() {
+		// Se usa try-catch para capturar errores de permisos de lectura de variables
+		try {
+			return Boolean.getBoolean(RESIDENT_MODE) || Boolean.parseBoolean(System.getenv(RESIDENT_MODE_ENV));
+		}
+		catch (final Exception e) {
+			LOGGER.warning("No se pudo comprobar si esta activado el modo residente: " + e); //$NON-NLS-1$
+			return false;
+		}
+	}
+
+	/** Indica si una URL de invocaci&oacute;n puede atenderla la instancia residente. No
+	 * pueden hacerlo las peticiones de apertura de <i>socket</i> o <i>WebSocket</i>, ya que
+	 * en esos modos la aplicaci&oacute;n permanece abierta por s&iacute; misma.
+	 * @param url URL de invocaci&oacute;n.
+	 * @return {@code true} si la instancia residente puede atender la petici&oacute;n. */
+	public static boolean isResidentInvocation(final String url) {
+		return url != null
+				&& url.startsWith(PROTOCOL_URL_START)
+				&& !url.startsWith(PROTOCOL_URL_START + "websocket") //$NON-NLS-1$
+				&& !url.startsWith(PROTOCOL_URL_START + "service"); //$NON-NLS-1$
+	}
+
+	/** Entrega una URL de invocaci&oacute;n a la instancia residente si hay una en
+	 * ejecuci&oacute;n.
+	 * @param url URL de invocaci&oacute;n.
+	 * @return {@code true} si la instancia residente ha aceptado la petici&oacute;n,
+	 *         {@code false} si debe atenderse en este proceso. */
+	public static boolean forward(final String url) {
+
+		if (!isResidentInvocation(url)) {
+			return false;
+		}
+
+		// La URL solo se envia una vez que la instancia residente ha demostrado conocer la clave
+		final Socket authenticated = LocalServiceChannel.connect(DESCRIPTOR_FILE);
+		if (authenticated == null) {
+			return false;
+		}
+
+		try (final Socket socket = authenticated) {
+			socket.setSoTimeout(RESPONSE_TIMEOUT);
+
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			final byte[] encodedUrl = url.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(encodedUrl.length);
+			out.write(encodedUrl);
+			out.flush();
+
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			if (in.readInt() == STATUS_ACCEPTED) {
+				LOGGER.info("Se ha entregado la peticion a la instancia residente"); //$NON-NLS-1$
+				return true;
+			}
+			LOGGER.warning("La instancia residente ha rechazado la peticion"); //$NON-NLS-1$
+		}
+		catch (final IOException e) {
+			// La instancia residente puede cerrarse mientras se le entrega la peticion
+			LOGGER.info("No se pudo entregar la peticion a la instancia residente: " + e); //$NON-NLS-1$
+		}
+		return false;
+	}
+
+	/** Convierte este proceso en la instancia residente y atiende peticiones hasta que se
+	 * supera el tiempo de inactividad. Si ya hay otra instancia residente en ejecuci&oacute;n
+	 * o no se puede abrir el puerto, vuelve inmediatamente.
+	 * @return {@code true} si este proceso ha actuado como instancia residente. */
+	public static boolean startAndServe() {
+
+		// La comprobacion de si hay otra instancia y la publicacion de esta se hacen de forma
+		// atomica mediante el bloqueo del canal
+		final LocalServiceChannel channel;
+		try {
+			channel = LocalServiceChannel.open(DESCRIPTOR_FILE, 0, IDLE_CHECK_INTERVAL);
+		}
+		catch (final IOException e) {
+			LOGGER.log(Level.WARNING, "No se pudo iniciar la instancia residente", e); //$NON-NLS-1$
+			return false;
+		}
+		if (channel == null) {
+			LOGGER.info("Ya hay una instancia residente en ejecucion"); //$NON-NLS-1$
+			return false;
+		}
+
+		KeyStoreManagerCache.enable();
+		new ResidentInstanceManager(channel).serve();
+		return true;
+	}
+
+	/** Atiende peticiones hasta que se supera el tiempo de inactividad. */
+	private void serve() {
+		LOGGER.info("Instancia residente iniciada en el puerto " + this.channel.getPort()); //$NON-NLS-1$
+		try {
+			while (!isIdle()) {
+				try (final Socket socket = this.channel.accept()) {
+					attend(socket);
+				}
+				catch (final SocketTimeoutException e) {
+					continue;
+				}
+			}
+			LOGGER.info("Se cierra la instancia residente por inactividad"); //$NON-NLS-1$
+		}
+		finally {
+			shutdown();
+		}
+	}
+
+	/** Recibe una petici&oacute;n y, si es v&aacute;lida, la encola para su ejecuci&oacute;n.
+	 * @param socket Conexi&oacute;n por la que se recibe la petici&oacute;n. */
+	private void attend(final Socket socket) {
+		try {
+			// Las peticiones que no se autentiquen se descartan sin respuesta
+			if (!this.channel.authenticate(socket)) {
+				LOGGER.warning("Se ha descartado una peticion sin la clave de la instancia residente"); //$NON-NLS-1$
+				return;
+			}
+
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			final int length = in.readInt();
+			if (length < 0 || length > 1024 * 1024) {
+				throw new IOException("Longitud de URL no valida: " + length); //$NON-NLS-1$
+			}
+			final byte[] encodedUrl = new byte[length];
+			in.readFully(encodedUrl);
+			final String url = new String(encodedUrl, StandardCharsets.UTF_8);
+
+			if (!isResidentInvocation(url)) {
+				out.writeInt(STATUS_REJECTED);
+				out.flush();
+				return;
+			}
+
+			this.pendingOperations.incrementAndGet();
+			this.lastActivity = System.currentTimeMillis();
+			this.worker.execute(() -> launch(url));
+
+			out.writeInt(STATUS_ACCEPTED);
+			out.flush();
+		}
+		catch (final EOFException | SocketTimeoutException e) {
+			// Conexiones que se cierran o no envian nada, como las de clientes que no
+			// reconocen a esta instancia
+			LOGGER.fine("Se cerro la conexion sin enviar una peticion: " + e); //$NON-NLS-1$
+		}
+		catch (final IOException e) {
+			LOGGER.log(Level.WARNING, "Error al recibir una peticion en la instancia residente", e); //$NON-NLS-1$
+		}
+	}
+
+	/** Ejecuta una operaci&oacute;n solicitada a la instancia residente.
+	 * @param url URL de invocaci&oacute;n. */
+	private void launch(final String url) {
+		try {
+			LOGGER.info("Invocacion por protocolo en la instancia residente"); //$NON-NLS-1$
+			ProtocolInvocationLauncher.launch(url);
+		}
+		catch (final Throwable e) {
+			LOGGER.log(Level.SEVERE, "Error en una operacion de la instancia residente", e); //$NON-NLS-1$
+		}
+		finally {
+			this.lastActivity = System.currentTimeMillis();
+			this.pendingOperations.decrementAndGet();
+		}
+	}
+
+	/** Indica si se ha superado el tiempo de inactividad sin operaciones en curso.
+	 * @return {@code true} si debe cerrarse la instancia residente. */
+	private boolean isIdle() {
+		return this.pendingOperations.get() == 0
+				&& System.currentTimeMillis() - this.lastActivity > IDLE_TIMEOUT;
+	}
+
+	/** Deja de atender peticiones y retira la publicaci&oacute;n de la instancia. */
+	private void shutdown() {
+		this.channel.close();
+		this.worker.shutdown();
+	}
+}
@@ -75,6 +75,9 @@ final class SignDataPanel extends JPanel {
     private static final String FILE_ICON_OOXML_WIN = "icon_office_win.png"; //$NON-NLS-1$
     private static final String FILE_ICON_ODF = "icon_openoffice.png"; //$NON-NLS-1$
 
+    /** N&uacute;mero m&aacute;ximo de filas del &aacute;rbol de firmantes que se expanden al mostrarlo. */
+    private static final int MAX_EXPANDED_ROWS = 200;
+
     private final JLabel certDescText = new JLabel();
     private final JLabel filePathText = new JLabel();
     private final JLabel certIcon = new JLabel();
@@ -542,7 +545,9 @@ final class SignDataPanel extends JPanel {
         	tree.addKeyListener(extKeyListener);
         }
 
-        for (int i = 0; i < tree.getRowCount(); i++) {
+        // Expandimos el arbol, salvo las ramas que queden por debajo del maximo de filas, que
+        // se cargaran cuando el usuario las expanda
+        for (int i = 0; i < tree.getRowCount() && i < MAX_EXPANDED_ROWS; i++) {
             tree.expandRow(i);
         }
 
@@ -27,6 +27,7 @@ import java.security.cert.X509Certificate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.BoxLayout;
@@ -49,7 +50,10 @@ import es.gob.afirma.standalone.SimpleAfirmaMessages;
 import es.gob.afirma.standalone.crypto.CompleteSignInfo;
 import es.gob.afirma.standalone.plugins.OutputData;
 import es.gob.afirma.standalone.plugins.PluginAction;
+import es.gob.afirma.standalone.plugins.PluginButton;
 import es.gob.afirma.standalone.plugins.SignatureProcessAction;
+import es.gob.afirma.standalone.plugins.manager.PluginException;
+import es.gob.afirma.standalone.plugins.manager.PluginLoader;
 
 /** Panel con detalles de una firma electr&oacute;nica. */
 public final class SignDetailPanel extends JPanel implements PluginButtonsContainer {
@@ -226,8 +230,7 @@ public final class SignDetailPanel extends JPanel implements PluginButtonsContai
     			PluginIntegrationWindow.SINGLE_RESULT);
 
 		for (final PluginGraphicButton button : pluginsButtons) {
-			final PluginAction action = button.getButton().getAction();
-    		button.getGraphicButton().addActionListener(new PluginButtonActionListener(this, this.signingCert, action));
+    		button.getGraphicButton().addActionListener(new PluginButtonActionListener(this, this.signingCert, button.getButton()));
     	}
 
     	EventQueue.invokeLater(() -> {
@@ -249,12 +252,12 @@ public final class SignDetailPanel extends JPanel implements PluginButtonsContai
 
 		final SignDetailPanel signDetailPanel;
 		final X509Certificate cert;
-		final PluginAction action;
+		final PluginButton button;
 
-		public PluginButtonActionListener(final SignDetailPanel signDetailPanel, final X509Certificate signingCert, final PluginAction action) {
+		public PluginButtonActionListener(final SignDetailPanel signDetailPanel, final X509Certificate signingCert, final PluginButton button) {
 			this.signDetailPanel = signDetailPanel;
 			this.cert = signingCert;
-			this.action = action;
+			this.button = button;
 		}
 
 		@Override
@@ -273,13 +276,22 @@ public final class SignDetailPanel extends JPanel implements PluginButtonsContai
 			data.setCerts(certs.values().toArray(new X509Certificate[certs.size()]));
 
 			new Thread(() -> {
-				if (PluginButtonActionListener.this.action instanceof SignatureProcessAction) {
-					((SignatureProcessAction) PluginButtonActionListener.this.action).processSignatures(
+				// La accion se instancia la primera vez que se pulsa el boton
+				final PluginAction action;
+				try {
+					action = PluginLoader.getPluginAction(PluginButtonActionListener.this.button);
+				}
+				catch (final PluginException ex) {
+					LOGGER.log(Level.SEVERE, "No se pudo cargar la accion del boton", ex); //$NON-NLS-1$
+					return;
+				}
+				if (action instanceof SignatureProcessAction) {
+					((SignatureProcessAction) action).processSignatures(
 							new OutputData[] { data }, PluginButtonActionListener.this.cert,
 							SwingUtilities.getWindowAncestor(SignDetailPanel.this));
 				}
 				else {
-					PluginButtonActionListener.this.action.start(
+					action.start(
 							SwingUtilities.getWindowAncestor(SignDetailPanel.this));
 				}
 			}).start();
@@ -85,6 +85,9 @@ import static es.gob.afirma.standalone.configurator.common.PreferencesManager.PR
 import static es.gob.afirma.standalone.configurator.common.PreferencesManager.PREFERENCE_GENERAL_DEFAULT_FORMAT_XML;
 import es.gob.afirma.standalone.plugins.DataProcessAction;
 import es.gob.afirma.standalone.plugins.InputData;
+import es.gob.afirma.standalone.plugins.PluginAction;
+import es.gob.afirma.standalone.plugins.manager.PluginException;
+import es.gob.afirma.standalone.plugins.manager.PluginLoader;
 import es.gob.afirma.standalone.ui.SignOperationConfig.CryptoOperation;
 import es.gob.afirma.standalone.ui.pdf.VisiblePdfSignatureManager;
 
@@ -819,13 +822,22 @@ public final class SignPanel extends JPanel implements LoadDataFileListener, Sig
 							}
 
 							new Thread(() -> {
-								if (button.getButton().getAction() instanceof DataProcessAction) {
-								((DataProcessAction) button.getButton().getAction()).processData(
+								// La accion se instancia la primera vez que se pulsa el boton
+								final PluginAction action;
+								try {
+									action = PluginLoader.getPluginAction(button.getButton());
+								}
+								catch (final PluginException ex) {
+									LOGGER.log(Level.SEVERE, "No se pudo cargar la accion del boton", ex); //$NON-NLS-1$
+									return;
+								}
+								if (action instanceof DataProcessAction) {
+								((DataProcessAction) action).processData(
 									inputDatas.toArray(new InputData[inputDatas.size()]),
 									SwingUtilities.getWindowAncestor(SignPanel.this));
 								}
 								else {
-									button.getButton().getAction().start(
+									action.start(
 											SwingUtilities.getWindowAncestor(SignPanel.this));
 								}
 							}).start();
@@ -18,6 +18,8 @@ import java.io.IOException;
 import java.security.KeyStore.PrivateKeyEntry;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
 import java.security.UnrecoverableEntryException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
@@ -26,10 +28,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
 import es.gob.afirma.core.AOCancelledOperationException;
@@ -86,6 +96,16 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
 	/** ExtraParam que configura que no aparezcan di&aacute;logos gr&aacute;ficos durante la firma. */
 	private static final String EXTRAPARAM_HEADLESS = "headless"; //$NON-NLS-1$
 
+	/** N&uacute;mero m&aacute;ximo de firmas que se generan a la vez en las firmas masivas. */
+	private static final int MAX_PARALLEL_SIGNATURES = 8;
+
+	/** Parte del nombre del proveedor con el que se accede a las claves del almac&eacute;n
+	 * software de NSS, que admite su uso concurrente. */
+	private static final String NSS_PROVIDER_NAME = "NSSCrypto-AFirma"; //$NON-NLS-1$
+
+	/** Objeto con el que se evita que los plugins procesen varias firmas a la vez. */
+	private static final Object PLUGINS_LOCK = new Object();
+
 	private final Component parent;
 	private final List<SignOperationConfig> signConfigs;
 	private final AOKeyStoreManager ksm;
@@ -97,7 +117,7 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
 
 	private boolean needRelaunch = false;
 
-	private final static List<String> invalidPageNumberFilesList = new ArrayList<>();
+	private final static List<String> invalidPageNumberFilesList = Collections.synchronizedList(new ArrayList<>());
 
 
 	SignPanelSignTask(final Component parent,
@@ -211,10 +231,21 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
         	}
         }
 
+        // Si se firman varios documentos con una clave que admite su uso concurrente,
+        // las firmas se generan en paralelo. Con tarjetas y otros dispositivos se firma
+        // siempre de una en una
+        final boolean parallel = !onlyOneFile && isConcurrentKey(this.selectedPke.getPrivateKey());
+        final List<SignOperationConfig> parallelConfigs = new ArrayList<>();
+
         // Realizamos la firma de cada documento
         byte[] signResult = null;
+        int processed = 0;
         for (final SignOperationConfig signConfig : this.signConfigs) {
 
+        	if (!onlyOneFile && !parallel) {
+        		updateProgress(processed++, this.signConfigs.size());
+        	}
+
         	// Evitamos agregar nuevas firmas a los documentos con firmas no validas
         	if (signConfig.getSignValidity() != null
         			&& signConfig.getSignValidity().get(0).getValidity() == SIGN_DETAIL_TYPE.KO
@@ -287,6 +318,11 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
     			}
             }
 
+            if (parallel) {
+            	parallelConfigs.add(signConfig);
+            	continue;
+            }
+
             byte[] data;
             try {
             	data = loadData(signConfig.getDataFile());
@@ -466,31 +502,16 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
 
             // En caso de definirse directorio de salida, se guarda la firma
             if (outDir != null) {
-            	final String defaultFilename = signConfig.getSigner().getSignedName(
-            			signConfig.getDataFile().getName(), "_signed"); //$NON-NLS-1$
-
-            	String relativePath = ""; //$NON-NLS-1$
-            	if (signConfig.getDataFile() != null && !inputBasePath.isEmpty()) {
-            		relativePath = signConfig.getDataFile().getParentFile().getAbsolutePath().substring(
-            				inputBasePath.length()) + File.separator;
-            	}
-
-            	final File defaultOutFile = new File(outDir, relativePath + defaultFilename);
-            	final boolean overwrite = PreferencesManager.getBoolean(PreferencesManager.PREFERENCE_GENERAL_MASSIVE_OVERWRITE);
-
-            	File outFile;
-            	try {
-            		outFile = saveDataToFile(signResult, defaultOutFile, overwrite);
-            	}
-            	catch (final Exception e) {
-            		LOGGER.log(Level.WARNING, "Error al guardar una de las firmas generadas", e); //$NON-NLS-1$
-            		continue;
-				}
-            	signConfig.setSignatureFile(outFile);
+            	saveToOutDir(signResult, signConfig, outDir, inputBasePath);
             }
 
         }
 
+        // Generamos en paralelo las firmas que se hayan podido preparar
+        if (parallel && !signInParallel(parallelConfigs, outDir, inputBasePath)) {
+        	return;
+        }
+
         // Terminado el proceso, notificamos al plugin que puede reiniciarse si es preciso
         pluginsReset();
 
@@ -559,6 +580,252 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
 		}
 	}
 
+    /**
+     * Genera en paralelo las firmas de varios documentos y las guarda en el directorio de
+     * salida. La carga y el guardado de los ficheros de unas firmas se solapan con la
+     * generaci&oacute;n de otras.
+     * @param configs Configuraciones de las firmas a generar.
+     * @param outDir Directorio de salida.
+     * @param inputBasePath Ruta base de los ficheros de entrada.
+     * @return {@code true} si se complet&oacute; el proceso, aunque fallasen algunas de las
+     * firmas, {@code false} si se aborto.
+     */
+    private boolean signInParallel(final List<SignOperationConfig> configs,
+    		                       final File outDir,
+    		                       final String inputBasePath) {
+
+    	if (configs.isEmpty()) {
+    		return true;
+    	}
+
+    	// Componemos los algoritmos de firma antes de empezar para abortar ante claves no soportadas
+    	final String keyType = this.selectedPke.getPrivateKey().getAlgorithm();
+    	final List<String> signatureAlgorithms = new ArrayList<>(configs.size());
+    	for (final SignOperationConfig signConfig : configs) {
+        	String digestAlgorithm = signConfig.getDigestAlgorithm();
+        	if (digestAlgorithm == null) {
+        		digestAlgorithm = PreferencesManager.get(PreferencesManager.PREFERENCE_GENERAL_SIGNATURE_ALGORITHM);
+        	}
+        	try {
+        		signatureAlgorithms.add(AOSignConstants.composeSignatureAlgorithmName(digestAlgorithm, keyType));
+        	}
+        	catch (final Exception e) {
+        		LOGGER.severe("El tipo de clave del certificado no esta soportado: " + e); //$NON-NLS-1$
+        		showErrorMessage(SimpleAfirmaMessages.getString("SignPanel.123", keyType), null); //$NON-NLS-1$
+        		return false;
+        	}
+    	}
+
+    	final int threads = Math.min(
+			configs.size(),
+			Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARALLEL_SIGNATURES)
+		);
+    	final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+    		final Thread t = new Thread(r, "SignPanelSignTask"); //$NON-NLS-1$
+    		t.setDaemon(true);
+    		return t;
+    	});
+    	final CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+    	final AtomicBoolean aborted = new AtomicBoolean(false);
+    	final PrivateKeyEntry pke = this.selectedPke;
+
+    	try {
+    		for (int i = 0; i < configs.size(); i++) {
+    			final SignOperationConfig signConfig = configs.get(i);
+    			final String signatureAlgorithm = signatureAlgorithms.get(i);
+    			completionService.submit(() -> {
+    				if (!aborted.get()) {
+    					signAndSave(signConfig, signatureAlgorithm, pke, outDir, inputBasePath);
+    				}
+    				return null;
+    			});
+    		}
+
+    		updateProgress(0, configs.size());
+    		for (int i = 0; i < configs.size(); i++) {
+    			final Future<Void> future = completionService.take();
+    			try {
+    				future.get();
+    			}
+    			catch (final ExecutionException e) {
+    				final Throwable cause = e.getCause();
+    				if (cause instanceof AOCancelledOperationException
+    						|| cause instanceof AOCancelledSMOperationException) {
+    					aborted.set(true);
+    					return false;
+    				}
+    				if (cause instanceof LockedKeyStoreException) {
+    					aborted.set(true);
+    					LOGGER.log(Level.SEVERE, "El almacen de claves o o el certificado esta bloqueado", cause); //$NON-NLS-1$
+    					refreshKeyStore();
+    					showErrorMessage(SimpleAfirmaMessages.getString("SignPanel.161"), cause); //$NON-NLS-1$
+    					return false;
+    				}
+    				if (cause instanceof AuthenticationException) {
+    					aborted.set(true);
+    					LOGGER.log(Level.SEVERE, "Error al firmar por un problema de acceso al almacen o la clave del certificado", cause); //$NON-NLS-1$
+    					showErrorMessage(SimpleAfirmaMessages.getString("SignPanel.162"), cause); //$NON-NLS-1$
+    					return false;
+    				}
+    				LOGGER.log(Level.WARNING, "Error en una firma del lote, se continua con la siguiente: " + cause, cause); //$NON-NLS-1$
+    			}
+    			updateProgress(i + 1, configs.size());
+    		}
+    	}
+    	catch (final InterruptedException e) {
+    		LOGGER.warning("Se interrumpio la firma de los documentos: " + e); //$NON-NLS-1$
+    		aborted.set(true);
+    		Thread.currentThread().interrupt();
+    		return false;
+    	}
+    	finally {
+    		executor.shutdownNow();
+    	}
+    	return true;
+    }
+
+    /**
+     * Carga un documento, lo firma y guarda la firma en el directorio de salida.
+     * @param signConfig Configuraci&oacute;n de la firma.
+     * @param signatureAlgorithm Algoritmo de firma.
+     * @param pke Referencia al certificado y clave de firma.
+     * @param outDir Directorio de salida.
+     * @param inputBasePath Ruta base de los ficheros de entrada.
+     * @throws Exception Cuando falla la carga del documento o la firma.
+     */
+    private void signAndSave(final SignOperationConfig signConfig,
+    		                 final String signatureAlgorithm,
+    		                 final PrivateKeyEntry pke,
+    		                 final File outDir,
+    		                 final String inputBasePath) throws Exception {
+
+    	final byte[] data;
+    	try {
+    		data = loadData(signConfig.getDataFile());
+    	}
+    	catch (final Exception e) {
+    		LOGGER.severe("Error cargando el fichero a firmar: " + e); //$NON-NLS-1$
+    		return;
+    	}
+
+    	final byte[] dataToSign;
+    	synchronized (PLUGINS_LOCK) {
+    		dataToSign = pluginsPreProcess(data, signConfig.getSignatureFormatName());
+    	}
+
+    	byte[] signResult;
+    	try {
+    		signResult = signData(
+				dataToSign,
+				signConfig.getSigner(),
+				signConfig,
+				signatureAlgorithm,
+				pke,
+				false,
+				this.parent
+			);
+    	}
+    	catch (final OutOfMemoryError ooe) {
+    		LOGGER.severe("Falta de memoria en el proceso de firma: " + ooe); //$NON-NLS-1$
+    		return;
+    	}
+
+    	synchronized (PLUGINS_LOCK) {
+    		signResult = pluginsPostProcess(signResult, signConfig.getSignatureFormatName(), pke.getCertificateChain());
+    	}
+
+    	saveToOutDir(signResult, signConfig, outDir, inputBasePath);
+    }
+
+    /**
+     * Guarda una firma en el directorio de salida, conservando la ruta relativa del
+     * documento firmado con respecto a la ruta base de entrada.
+     * @param signResult Firma generada.
+     * @param signConfig Configuraci&oacute;n de la firma.
+     * @param outDir Directorio de salida.
+     * @param inputBasePath Ruta base de los ficheros de entrada.
+     */
+    private static void saveToOutDir(final byte[] signResult,
+    		                         final SignOperationConfig signConfig,
+    		                         final File outDir,
+    		                         final String inputBasePath) {
+
+    	final String defaultFilename = signConfig.getSigner().getSignedName(
+    			signConfig.getDataFile().getName(), "_signed"); //$NON-NLS-1$
+
+    	String relativePath = ""; //$NON-NLS-1$
+    	if (signConfig.getDataFile() != null && !inputBasePath.isEmpty()) {
+    		relativePath = signConfig.getDataFile().getParentFile().getAbsolutePath().substring(
+    				inputBasePath.length()) + File.separator;
+    	}
+
+    	final File defaultOutFile = new File(outDir, relativePath + defaultFilename);
+    	final boolean overwrite = PreferencesManager.getBoolean(PreferencesManager.PREFERENCE_GENERAL_MASSIVE_OVERWRITE);
+
+    	File outFile;
+    	try {
+    		outFile = saveDataToFile(signResult, defaultOutFile, overwrite);
+    	}
+    	catch (final Exception e) {
+    		LOGGER.log(Level.WARNING, "Error al guardar una de las firmas generadas", e); //$NON-NLS-1$
+    		return;
+    	}
+    	signConfig.setSignatureFile(outFile);
+    }
+
+    /**
+     * Muestra en el di&aacute;logo de espera el n&uacute;mero de documentos procesados.
+     * @param processed N&uacute;mero de documentos procesados.
+     * @param total N&uacute;mero total de documentos.
+     */
+    private void updateProgress(final int processed, final int total) {
+    	if (this.waitDialog != null) {
+    		final String message = SimpleAfirmaMessages.getString(
+				"SignPanelSignTask.5", //$NON-NLS-1$
+				Integer.toString(processed),
+				Integer.toString(total)
+			);
+    		SwingUtilities.invokeLater(() -> this.waitDialog.setMessage(message));
+    	}
+    }
+
+    /**
+     * Indica si una clave admite que se generen varias firmas con ella a la vez. Es
+     * as&iacute; con las claves software extra&iacute;bles (PKCS#12, JKS...) y las del
+     * almac&eacute;n software de NSS, pero no con las de tarjetas inteligentes y otros
+     * dispositivos o almacenes del sistema.
+     * @param key Clave privada.
+     * @return {@code true} si la clave admite su uso concurrente.
+     */
+    static boolean isConcurrentKey(final PrivateKey key) {
+    	if (key == null) {
+    		return false;
+    	}
+    	if (key.getEncoded() != null) {
+    		return true;
+    	}
+    	// Comprobamos que proveedor usaria la clave
+    	final String probeAlgorithm;
+    	if ("RSA".equalsIgnoreCase(key.getAlgorithm())) { //$NON-NLS-1$
+    		probeAlgorithm = "SHA256withRSA"; //$NON-NLS-1$
+    	}
+    	else if ("EC".equalsIgnoreCase(key.getAlgorithm()) || "ECDSA".equalsIgnoreCase(key.getAlgorithm())) { //$NON-NLS-1$ //$NON-NLS-2$
+    		probeAlgorithm = "SHA256withECDSA"; //$NON-NLS-1$
+    	}
+    	else {
+    		return false;
+    	}
+    	try {
+    		final Signature sig = Signature.getInstance(probeAlgorithm);
+    		sig.initSign(key);
+    		return sig.getProvider() != null && sig.getProvider().getName().contains(NSS_PROVIDER_NAME);
+    	}
+    	catch (final Exception e) {
+    		LOGGER.fine("No se pudo determinar el proveedor de la clave: " + e); //$NON-NLS-1$
+    		return false;
+    	}
+    }
+
 	/**
      * Ejecuta una operaci&oacute;n de firma.
      * @param data Datos a firmar.
@@ -638,8 +905,10 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
         	newExtraParams.remove(PdfExtraParams.SIGNATURE_PAGE);
         	newExtraParams.remove(PdfExtraParams.SIGNATURE_PAGES);
         	signConfig.setExtraParams(newExtraParams);
-        	if (!invalidPageNumberFilesList.contains(signConfig.getDataFile().getName())) {
-            	invalidPageNumberFilesList.add(signConfig.getDataFile().getName());
+        	synchronized (invalidPageNumberFilesList) {
+        		if (!invalidPageNumberFilesList.contains(signConfig.getDataFile().getName())) {
+        			invalidPageNumberFilesList.add(signConfig.getDataFile().getName());
+        		}
         	}
         	signResult = signData(data, signer, signConfig, algorithm, pke, onlyOneFile, parent);
         }
@@ -653,8 +922,10 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
         	newExtraParams.remove(PdfExtraParams.SIGNATURE_POSITION_ON_PAGE_UPPER_RIGHTX);
         	newExtraParams.remove(PdfExtraParams.SIGNATURE_POSITION_ON_PAGE_UPPER_RIGHTY);
         	signConfig.setExtraParams(newExtraParams);
-        	if (!invalidPageNumberFilesList.contains(signConfig.getDataFile().getName())) {
-            	invalidPageNumberFilesList.add(signConfig.getDataFile().getName());
+        	synchronized (invalidPageNumberFilesList) {
+        		if (!invalidPageNumberFilesList.contains(signConfig.getDataFile().getName())) {
+        			invalidPageNumberFilesList.add(signConfig.getDataFile().getName());
+        		}
         	}
         	signResult = signData(data, signer, signConfig, algorithm, pke, onlyOneFile, parent);
         }
@@ -815,10 +1086,17 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
 	 * @return Fichero en el que se guardan los datos.
 	 * @throws IOException Cuando se produce un error durante el guardado. */
 	private static File saveDataToFile(final byte[] data, final File defaultOutFile, final boolean overwrite) throws IOException {
+		if (!defaultOutFile.getParentFile().isDirectory() && !defaultOutFile.getParentFile().mkdirs()
+				&& !defaultOutFile.getParentFile().isDirectory()) {
+			throw new IOException("No se pudo crear el directorio de salida de la firma"); //$NON-NLS-1$
+		}
+
+		// Si no se sobreescribe, reservamos el nombre creando el fichero para que dos
+		// firmas que se guarden a la vez no usen el mismo
 		File outFile = defaultOutFile;
 		if (!overwrite) {
 			int i = 1;
-			while (outFile.isFile()) {
+			while (!outFile.createNewFile()) {
 				final String defaultFilename = defaultOutFile.getName();
 				final int extPos = defaultFilename.lastIndexOf('.');
 				final String filename = defaultFilename.substring(0, extPos) + '(' + i + ')' + defaultFilename.substring(extPos);
@@ -827,13 +1105,16 @@ final class SignPanelSignTask extends SwingWorker<Void, Void> {
 			}
 		}
 
-		if (!defaultOutFile.getParentFile().isDirectory() && !defaultOutFile.getParentFile().mkdirs()) {
-			throw new IOException("No se pudo crear el directorio de salida de la firma"); //$NON-NLS-1$
-		}
-
 		try (FileOutputStream fos = new FileOutputStream(outFile)) {
 			fos.write(data, 0, data.length);
 		}
+		catch (final IOException e) {
+			// Liberamos el nombre reservado
+			if (!overwrite && !outFile.delete()) {
+				LOGGER.warning("No se pudo eliminar el fichero de firma incompleto: " + outFile); //$NON-NLS-1$
+			}
+			throw e;
+		}
 		return outFile;
 	}
 
@@ -22,6 +22,7 @@ import java.io.File;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.BoxLayout;
@@ -39,7 +40,10 @@ import es.gob.afirma.standalone.SimpleAfirma;
 import es.gob.afirma.standalone.SimpleAfirmaMessages;
 import es.gob.afirma.standalone.plugins.OutputData;
 import es.gob.afirma.standalone.plugins.PluginAction;
+import es.gob.afirma.standalone.plugins.PluginButton;
 import es.gob.afirma.standalone.plugins.SignatureProcessAction;
+import es.gob.afirma.standalone.plugins.manager.PluginException;
+import es.gob.afirma.standalone.plugins.manager.PluginLoader;
 
 /** Panel con el resultado de un proceso de firma masiva. */
 public final class SignResultListPanel extends JPanel implements PluginButtonsContainer {
@@ -199,7 +203,7 @@ public final class SignResultListPanel extends JPanel implements PluginButtonsCo
 			button.getGraphicButton().addActionListener(new PluginButtonActionListener(
 					this,
 					this.currentSigningCert,
-					button.getButton().getAction()));
+					button.getButton()));
     	}
 
     	EventQueue.invokeLater(() -> {
@@ -223,12 +227,12 @@ public final class SignResultListPanel extends JPanel implements PluginButtonsCo
 
 		final SignResultListPanel signResultPanel;
 		final X509Certificate cert;
-		final PluginAction action;
+		final PluginButton button;
 
-		public PluginButtonActionListener(final SignResultListPanel signResultPanel, final X509Certificate signingCert, final PluginAction action) {
+		public PluginButtonActionListener(final SignResultListPanel signResultPanel, final X509Certificate signingCert, final PluginButton button) {
 			this.signResultPanel = signResultPanel;
 			this.cert = signingCert;
-			this.action = action;
+			this.button = button;
 		}
 
 		@Override
@@ -244,13 +248,22 @@ public final class SignResultListPanel extends JPanel implements PluginButtonsCo
 			}
 
 			new Thread(() -> {
-				if (PluginButtonActionListener.this.action instanceof SignatureProcessAction) {
-				((SignatureProcessAction) PluginButtonActionListener.this.action).processSignatures(
+				// La accion se instancia la primera vez que se pulsa el boton
+				final PluginAction action;
+				try {
+					action = PluginLoader.getPluginAction(PluginButtonActionListener.this.button);
+				}
+				catch (final PluginException ex) {
+					LOGGER.log(Level.SEVERE, "No se pudo cargar la accion del boton", ex); //$NON-NLS-1$
+					return;
+				}
+				if (action instanceof SignatureProcessAction) {
+				((SignatureProcessAction) action).processSignatures(
 						datas.toArray(new OutputData[datas.size()]), PluginButtonActionListener.this.cert,
 						SwingUtilities.getWindowAncestor(SignResultListPanel.this));
 				}
 				else {
-					PluginButtonActionListener.this.action.start(
+					action.start(
 							SwingUtilities.getWindowAncestor(SignResultListPanel.this));
 				}
 			}).start();
@@ -10,6 +10,7 @@
 package es.gob.afirma.standalone.ui;
 
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
 
 import es.gob.afirma.core.util.tree.AOTreeModel;
 import es.gob.afirma.core.util.tree.AOTreeNode;
@@ -27,26 +28,65 @@ public final class TreeModelManager {
     }
 
     /** Recupera un &aacute;rbol Swing a partir de un TreeModel con los certificados
-     * de Autofirma.
+     * de Autofirma. Los nodos del &aacute;rbol Swing se crean seg&uacute;n se consultan, de
+     * forma que las ramas no expandidas no se llegan a cargar.
      * @return &Aacute;rbol Swing. */
     public DefaultMutableTreeNode getSwingTree() {
-        final DefaultMutableTreeNode swingTreeRoot = new DefaultMutableTreeNode();
-        copyBranch((AOTreeNode) this.tree.getRoot(), swingTreeRoot);
-        return swingTreeRoot;
+        return new LazyTreeNode((AOTreeNode) this.tree.getRoot());
     }
 
-    /** Copia el contenido de un nodo y replica la rama que cuelga del mismo.
-     * @param treeNode Nodo que deseamos replicar.
-     * @param swingTreeNode Nodo al que se desea copiar
-     * @return Nodo replicado. */
-    private DefaultMutableTreeNode copyBranch(final AOTreeNode treeNode, final DefaultMutableTreeNode swingTreeNode) {
-        swingTreeNode.setUserObject(treeNode.getUserObject());
-        DefaultMutableTreeNode newChild;
-        for (int i = 0; i < treeNode.getChildCount(); i++) {
-            newChild = new DefaultMutableTreeNode();
-            copyBranch(treeNode.getChildAt(i), newChild);
-            swingTreeNode.add(newChild);
+    /** Nodo Swing que replica un nodo de &aacute;rbol y crea los nodos de sus hijos la
+     * primera vez que se consultan. */
+    private static final class LazyTreeNode extends DefaultMutableTreeNode {
+
+        private static final long serialVersionUID = -3624458893524915468L;
+
+        private final transient AOTreeNode treeNode;
+
+        private boolean userObjectSet = false;
+
+        private boolean populated = false;
+
+        LazyTreeNode(final AOTreeNode treeNode) {
+            this.treeNode = treeNode;
+        }
+
+        private void populate() {
+            if (!this.populated) {
+                this.populated = true;
+                for (int i = 0; i < this.treeNode.getChildCount(); i++) {
+                    add(new LazyTreeNode(this.treeNode.getChildAt(i)));
+                }
+            }
+        }
+
+        @Override
+        public int getChildCount() {
+            populate();
+            return super.getChildCount();
+        }
+
+        @Override
+        public TreeNode getChildAt(final int index) {
+            populate();
+            return super.getChildAt(index);
+        }
+
+        @Override
+        public Object getUserObject() {
+            return this.userObjectSet ? super.getUserObject() : this.treeNode.getUserObject();
+        }
+
+        @Override
+        public void setUserObject(final Object userObject) {
+            this.userObjectSet = true;
+            super.setUserObject(userObject);
+        }
+
+        @Override
+        public String toString() {
+            final Object userObject = getUserObject();
+            return userObject == null ? "" : userObject.toString(); //$NON-NLS-1$
         }
-        return swingTreeNode;
     }
 }
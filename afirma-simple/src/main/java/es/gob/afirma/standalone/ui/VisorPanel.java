@@ -64,7 +64,10 @@ import es.gob.afirma.standalone.VisorFirma;
 import es.gob.afirma.standalone.crypto.CompleteSignInfo;
 import es.gob.afirma.standalone.plugins.OutputData;
 import es.gob.afirma.standalone.plugins.PluginAction;
+import es.gob.afirma.standalone.plugins.PluginButton;
 import es.gob.afirma.standalone.plugins.SignatureProcessAction;
+import es.gob.afirma.standalone.plugins.manager.PluginException;
+import es.gob.afirma.standalone.plugins.manager.PluginLoader;
 
 /** Visor de firmas.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s.
@@ -373,7 +376,7 @@ public final class VisorPanel extends JPanel implements KeyListener, PluginButto
 			button.getGraphicButton().addActionListener(new PluginButtonActionListener(
 					this.signDataPanel,
 					this.signatureFile,
-					button.getButton().getAction()));
+					button.getButton()));
     	}
 
     	EventQueue.invokeLater(() -> {
@@ -397,12 +400,12 @@ public final class VisorPanel extends JPanel implements KeyListener, PluginButto
 
 		final SignDataPanel panel;
 		final File signFile;
-		final PluginAction action;
+		final PluginButton button;
 
-		public PluginButtonActionListener(final SignDataPanel panel, final File signFile, final PluginAction action) {
+		public PluginButtonActionListener(final SignDataPanel panel, final File signFile, final PluginButton button) {
 			this.panel = panel;
 			this.signFile = signFile;
-			this.action = action;
+			this.button = button;
 		}
 
 		@Override
@@ -422,14 +425,23 @@ public final class VisorPanel extends JPanel implements KeyListener, PluginButto
 			data.setCerts(certs.values().toArray(new X509Certificate[certs.size()]));
 
 			new Thread(() -> {
-				if (PluginButtonActionListener.this.action instanceof SignatureProcessAction) {
-				((SignatureProcessAction) PluginButtonActionListener.this.action).processSignatures(
+				// La accion se instancia la primera vez que se pulsa el boton
+				final PluginAction action;
+				try {
+					action = PluginLoader.getPluginAction(PluginButtonActionListener.this.button);
+				}
+				catch (final PluginException ex) {
+					LOGGER.log(Level.SEVERE, "No se pudo cargar la accion del boton", ex); //$NON-NLS-1$
+					return;
+				}
+				if (action instanceof SignatureProcessAction) {
+				((SignatureProcessAction) action).processSignatures(
 					new OutputData[] { data },
 					null,
 					SwingUtilities.getWindowAncestor(VisorPanel.this));
 				}
 				else {
-					PluginButtonActionListener.this.action.start(
+					action.start(
 							SwingUtilities.getWindowAncestor(VisorPanel.this));
 				}
 			}).start();
@@ -21,6 +21,7 @@ import java.awt.event.MouseEvent;
 import java.awt.geom.Area;
 import java.util.EventListener;
 
+import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 
@@ -198,6 +199,19 @@ final class PageLabel extends JLabel {
 		return this.scale;
 	}
 
+	/** Sustituye la imagen de la p&aacute;gina por otra de las mismas proporciones, como la
+	 * imagen definitiva de una p&aacute;gina de la que se mostraba una vista previa. La nueva
+	 * imagen se escala al tama&ntilde;o de la actual, por lo que se conserva el &aacute;rea
+	 * seleccionada.
+	 * @param image Nueva imagen de la p&aacute;gina. */
+	void setPageImage(final Image image) {
+		final Icon icon = getIcon();
+		setIcon(new ImageIcon(
+			image.getScaledInstance(icon.getIconWidth(), icon.getIconHeight(), Image.SCALE_SMOOTH)
+		));
+		repaint();
+	}
+
 	@Override
 	public void paintComponent(final Graphics g) {
         super.paintComponent(g);
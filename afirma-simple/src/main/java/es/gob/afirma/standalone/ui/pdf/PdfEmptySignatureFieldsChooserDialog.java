@@ -62,6 +62,9 @@ public final class PdfEmptySignatureFieldsChooserDialog extends JDialog implemen
 
 	private JPanel activePanel;
 
+	/** Im&aacute;genes de las p&aacute;ginas del PDF mostradas para colocar el sello. */
+	private PdfPageImages pages = null;
+
 	private final Properties extraParams;
 	private final boolean stampVisible;
 
@@ -146,29 +149,35 @@ public final class PdfEmptySignatureFieldsChooserDialog extends JDialog implemen
 			}
 		);
 
-		try {
-			final BufferedImage im = getFragmentImage(getField());
-			if(im!=null) {
-				nextPanel(this.extraParams, im);
+		// La pagina del campo se renderiza fuera del hilo de eventos de Swing y el dialogo se
+		// muestra cuando esta lista
+		new Thread(() -> {
+			try {
+				final BufferedImage im = getFragmentImage(getField());
+				if (im == null) {
+					throw new IOException("Error creando la imagen para previsualizar"); //$NON-NLS-1$
+				}
+				SwingUtilities.invokeLater(() -> nextPanel(this.extraParams, im));
 			}
-			else {
-				throw new IOException("Error creando la imagen para previsualizar"); //$NON-NLS-1$
+			catch (final Exception e1) {
+				SwingUtilities.invokeLater(() -> fragmentImageFailed(e1));
 			}
-		}
-		catch (final Exception e1) {
-			Logger.getLogger("es.gob.afirma").severe( //$NON-NLS-1$
-				"No ha sido posible cargar la previsualizacion del acrocampo: " + e1//$NON-NLS-1$
-			);
-			AOUIFactory.showErrorMessage(
-                  SignPdfUiMessages.getString("SignPdfFieldChooser.2"), //$NON-NLS-1$
-                  SignPdfUiMessages.getString("SignPdfFieldChooser.3"), //$NON-NLS-1$
-                  JOptionPane.ERROR_MESSAGE,
-                  e1
-            );
-			setVisible(false);
-			getListener().propertiesCreated(new Properties());
-			dispose();
-		}
+		}).start();
+	}
+
+	void fragmentImageFailed(final Exception cause) {
+		Logger.getLogger("es.gob.afirma").severe( //$NON-NLS-1$
+			"No ha sido posible cargar la previsualizacion del acrocampo: " + cause //$NON-NLS-1$
+		);
+		AOUIFactory.showErrorMessage(
+              SignPdfUiMessages.getString("SignPdfFieldChooser.2"), //$NON-NLS-1$
+              SignPdfUiMessages.getString("SignPdfFieldChooser.3"), //$NON-NLS-1$
+              JOptionPane.ERROR_MESSAGE,
+              cause
+        );
+		setVisible(false);
+		getListener().propertiesCreated(new Properties());
+		dispose();
 	}
 
 	BufferedImage getFragmentImage(final SignatureField sf) throws IOException {
@@ -176,10 +185,10 @@ public final class PdfEmptySignatureFieldsChooserDialog extends JDialog implemen
 		final int currentPage = sf.getPage() - 1;
 
 		char[] password = null;
-		List<BufferedImage> pages = null;
+		PdfPageImages fieldPages = null;
 		do {
 			try {
-				pages = Pdf2ImagesConverter.pdf2ImagesUsefulSections(this.pdf, password, currentPage);
+				fieldPages = Pdf2ImagesConverter.pdf2ImagesOnDemand(this.pdf, password);
 			}
 			catch (final InvalidPasswordException e) {
 				// Si no se pudo abrir porque requiere contrasena, la pedimos, teniendo en cuenta si lo
@@ -196,9 +205,19 @@ public final class PdfEmptySignatureFieldsChooserDialog extends JDialog implemen
 				throw e;
 			}
 		}
-		while (pages == null);
+		while (fieldPages == null);
 
-		final BufferedImage page = pages.get(currentPage);
+		// Solo se necesita la pagina del campo
+		final BufferedImage page;
+		try {
+			page = fieldPages.get(currentPage);
+		}
+		finally {
+			fieldPages.close();
+		}
+		if (page == null) {
+			throw new IOException("No se ha podido generar la imagen de la pagina " + sf.getPage()); //$NON-NLS-1$
+		}
 
 		final int uxr = sf.getSignaturePositionOnPageUpperRightX();
 		final int uyr = sf.getSignaturePositionOnPageUpperRightY();
@@ -252,6 +271,14 @@ public final class PdfEmptySignatureFieldsChooserDialog extends JDialog implemen
 		dispose();
 	}
 
+	@Override
+	public void dispose() {
+		if (this.pages != null) {
+			this.pages.close();
+		}
+		super.dispose();
+	}
+
 	/**
 	 * Muestra un di&aacute;logo gr&aacute;fico para la selecci&oacute;n de un campo de firma en un PDF.
 	 * @param emptySignatureFields Listado de campos de firma del PDF.
@@ -312,11 +339,10 @@ public final class PdfEmptySignatureFieldsChooserDialog extends JDialog implemen
 		getContentPane().remove(this.activePanel);
 
 		char[] password = null;
-		List<BufferedImage> pages = null;
 		final Properties initialParams = new Properties();
 		do {
 			try {
-				pages = Pdf2ImagesConverter.pdf2ImagesUsefulSections(document, password, 0);
+				this.pages = Pdf2ImagesConverter.pdf2ImagesOnDemand(document, password);
 			}
 			catch (final InvalidPasswordException e) {
 				// Si no se pudo abrir porque requiere contrasena, la pedimos, teniendo en cuenta si lo
@@ -333,7 +359,13 @@ public final class PdfEmptySignatureFieldsChooserDialog extends JDialog implemen
 				throw e;
 			}
 		}
-		while (pages == null);
+		while (this.pages == null);
+
+		// No se espera a la primera pagina: el panel muestra una pagina provisional de su
+		// tamano y la sustituye cuando se ha renderizado
+		if (this.pages.isEmpty()) {
+			throw new IOException("El PDF no tiene paginas que previsualizar"); //$NON-NLS-1$
+		}
 
 		final List<Dimension> pageSizes = SignPdfUiUtil.getPageSizes(document, password);
 
@@ -342,9 +374,8 @@ public final class PdfEmptySignatureFieldsChooserDialog extends JDialog implemen
 		}
 
 		this.activePanel = new SignPdfUiPanelStamp(
-			pages,
+			this.pages,
 			pageSizes,
-			document,
 			this,
 			new Properties()
 		);
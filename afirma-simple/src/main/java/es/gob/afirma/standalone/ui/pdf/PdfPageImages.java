@@ -0,0 +1,498 @@
+/* Copyright (C) 2011 [Gobierno de Espana]
+ * This file is part of "Cliente @Firma".
+ * "Cliente @Firma" is free software; you can redistribute it and/or modify it under the terms of:
+ *   - the GNU General Public License as published by the Free Software Foundation;
+ *     either version 2 of the License, or (at your option) any later version.
+ *   - or The European Software License; either version 1.1 or (at your option) any later version.
+ * You may contact the copyright holder at: soporte.afirma@seap.minhap.es
+ */
+
+package es.gob.afirma.standalone.ui.pdf;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+/** Im&aacute;genes de las p&aacute;ginas de un PDF generadas bajo demanda.
+ * <p>El documento se carga una &uacute;nica vez y cada p&aacute;gina se renderiza s&oacute;lo
+ * cuando se necesita, en un hilo en segundo plano (PDFBox no admite renderizar en paralelo
+ * un mismo documento). Las p&aacute;ginas renderizadas se conservan en una cach&eacute; de
+ * tama&ntilde;o limitado de la que se descartan primero las usadas hace m&aacute;s tiempo, y
+ * al mostrar una p&aacute;gina se adelanta el renderizado de las contiguas. As&iacute;, el
+ * tiempo hasta mostrar la primera p&aacute;gina y la memoria usada no dependen del
+ * n&uacute;mero de p&aacute;ginas del documento.</p>
+ * <p>{@link #getPage(int, PageRenderListener)} no espera nunca al renderizado: devuelve de
+ * inmediato la mejor imagen disponible de la p&aacute;gina (la definitiva, su vista previa de
+ * baja resoluci&oacute;n o una p&aacute;gina en blanco de su tama&ntilde;o) y notifica
+ * despu&eacute;s las mejores im&aacute;genes seg&uacute;n se generen. {@link #get(int)} espera
+ * siempre a la imagen definitiva.</p>
+ * <p>Una vez deja de usarse debe cerrarse para liberar el documento.</p> */
+final class PdfPageImages extends AbstractList<BufferedImage> implements Closeable {
+
+	static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	/** Resoluci&oacute;n de las im&aacute;genes definitivas de las p&aacute;ginas. */
+	static final float PAGE_DPI = 75;
+
+	/** Resoluci&oacute;n de las vistas previas de las p&aacute;ginas. */
+	private static final float PREVIEW_DPI = 18;
+
+	/** N&uacute;mero de p&aacute;ginas a cada lado de la mostrada que se renderizan por adelantado. */
+	private static final int ADJACENT_PAGES = 2;
+
+	/** Tama&ntilde;o m&aacute;ximo en octetos de la cach&eacute; de p&aacute;ginas. */
+	private static final long MAX_PAGES_CACHE_SIZE = 64L * 1024 * 1024;
+
+	/** Tama&ntilde;o m&aacute;ximo en octetos de la cach&eacute; de vistas previas. */
+	private static final long MAX_PREVIEWS_CACHE_SIZE = 8L * 1024 * 1024;
+
+	private final PDDocument document;
+
+	private final PDFRenderer renderer;
+
+	private final int numPages;
+
+	/** Dimensiones de la imagen definitiva de cada p&aacute;gina. */
+	private final Dimension[] pageDimensions;
+
+	private final ImageCache pages = new ImageCache(MAX_PAGES_CACHE_SIZE);
+
+	private final ImageCache previews = new ImageCache(MAX_PREVIEWS_CACHE_SIZE);
+
+	/** Renderizados de p&aacute;gina en curso o pendientes, para no repetirlos. */
+	private final Map<Integer, Future<BufferedImage>> pendingPages = new HashMap<>();
+
+	/** P&aacute;ginas por las que se est&aacute; esperando en {@link #get(int)}, con el
+	 * n&uacute;mero de esperas por cada una. */
+	private final Map<Integer, Integer> awaitedPages = new HashMap<>();
+
+	/** Ejecutor de un &uacute;nico hilo en el que se hace todo acceso al documento. */
+	private final ThreadPoolExecutor executor;
+
+	/** P&aacute;gina que se est&aacute; mostrando. Los renderizados por adelantado de
+	 * p&aacute;ginas que ya no est&aacute;n cerca de ella se descartan. */
+	private volatile int currentPage = 0;
+
+	private volatile boolean closed = false;
+
+	/** Carga un documento PDF para obtener las im&aacute;genes de sus p&aacute;ginas.
+	 * @param pdf Documento PDF.
+	 * @param password Contrase&ntilde;a de apertura del PDF o {@code null} si no tiene.
+	 * @throws IOException Cuando falla la carga del documento como PDF.
+	 * @throws org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException Cuando el documento
+	 *         requiere una contrase&ntilde;a y no se ha proporcionado o no es correcta. */
+	PdfPageImages(final byte[] pdf, final char[] password) throws IOException {
+		this.document = PDDocument.load(
+			new ByteArrayInputStream(pdf),
+			password != null ? new String(password) : null
+		);
+		this.renderer = new PDFRenderer(this.document);
+		this.numPages = this.document.getNumberOfPages();
+		this.pageDimensions = new Dimension[this.numPages];
+		for (int i = 0; i < this.numPages; i++) {
+			this.pageDimensions[i] = getRenderedDimension(this.document.getPage(i));
+		}
+		this.executor = new ThreadPoolExecutor(
+			1, 1, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<Runnable>(),
+			r -> {
+				final Thread t = new Thread(r, "PdfPageRenderer"); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		);
+	}
+
+	@Override
+	public int size() {
+		return this.numPages;
+	}
+
+	/** Obtiene la imagen de una p&aacute;gina, esperando a que se renderice si no lo estaba.
+	 * @param index &Iacute;ndice de la p&aacute;gina, empezando en 0.
+	 * @return Imagen de la p&aacute;gina o {@code null} si no se pudo generar. */
+	@Override
+	public BufferedImage get(final int index) {
+		checkIndex(index);
+		final BufferedImage cached = this.pages.get(index);
+		if (cached != null) {
+			return cached;
+		}
+		final Integer key = Integer.valueOf(index);
+		synchronized (this.awaitedPages) {
+			final Integer count = this.awaitedPages.get(key);
+			this.awaitedPages.put(key, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+		}
+		try {
+			BufferedImage image = renderPage(index, null).get();
+			if (image == null && !this.closed) {
+				// El renderizado por adelantado se descarto antes de que empezasemos a esperar
+				image = renderPage(index, null).get();
+			}
+			return image;
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOGGER.warning("Se interrumpio la espera del renderizado de la pagina " + (index + 1)); //$NON-NLS-1$
+		}
+		catch (final ExecutionException e) {
+			LOGGER.log(Level.SEVERE, "No se ha podido renderizar la pagina " + (index + 1), e.getCause()); //$NON-NLS-1$
+		}
+		catch (final CancellationException e) {
+			LOGGER.warning("Se cancelo el renderizado de la pagina " + (index + 1) + " al cerrar el documento"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		finally {
+			synchronized (this.awaitedPages) {
+				final int count = this.awaitedPages.get(key).intValue();
+				if (count > 1) {
+					this.awaitedPages.put(key, Integer.valueOf(count - 1));
+				}
+				else {
+					this.awaitedPages.remove(key);
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Obtiene la imagen que mostrar de una p&aacute;gina y adelanta el renderizado de las
+	 * contiguas, sin esperar a ning&uacute;n renderizado, por lo que puede llamarse desde el
+	 * hilo de eventos de Swing. Si la p&aacute;gina ya estaba renderizada, se devuelve su imagen
+	 * definitiva. Si no, se devuelve su vista previa de baja resoluci&oacute;n o, si tampoco
+	 * estaba generada, una p&aacute;gina en blanco, ambas con las dimensiones de la imagen
+	 * definitiva, y se notifican la vista previa y la imagen definitiva, desde el hilo de
+	 * eventos de Swing, seg&uacute;n est&eacute;n listas.
+	 * @param index &Iacute;ndice de la p&aacute;gina, empezando en 0.
+	 * @param listener Clase a la que notificar las im&aacute;genes de la p&aacute;gina.
+	 * @return Imagen definitiva, vista previa o p&aacute;gina en blanco.
+	 * @throws IOException Cuando el documento ya se ha cerrado. */
+	BufferedImage getPage(final int index, final PageRenderListener listener) throws IOException {
+		checkIndex(index);
+		if (this.closed) {
+			throw new IOException("El documento se ha cerrado"); //$NON-NLS-1$
+		}
+		this.currentPage = index;
+		BufferedImage image = this.pages.get(index);
+		if (image == null) {
+			final BufferedImage preview = this.previews.get(index);
+			if (preview != null) {
+				image = scaleToPage(index, preview);
+			}
+			else {
+				image = createBlankPage(index);
+				// Al haber un unico hilo, la vista previa se notifica antes que la imagen definitiva
+				submit(() -> {
+					notifyPreview(index, listener);
+					return null;
+				});
+			}
+			renderPage(index, listener);
+		}
+		for (int i = 1; i <= ADJACENT_PAGES; i++) {
+			prefetch(index + i);
+			prefetch(index - i);
+		}
+		return image;
+	}
+
+	/** Programa el renderizado por adelantado de una p&aacute;gina.
+	 * @param index &Iacute;ndice de la p&aacute;gina, que puede estar fuera del documento. */
+	private void prefetch(final int index) {
+		if (index >= 0 && index < this.numPages && this.pages.get(index) == null) {
+			renderPage(index, null);
+		}
+	}
+
+	/** Programa el renderizado de una p&aacute;gina, reutilizando el que ya estuviese pendiente.
+	 * @param index &Iacute;ndice de la p&aacute;gina.
+	 * @param listener Clase a la que notificar la imagen o {@code null} si no se notifica.
+	 * @return Renderizado de la p&aacute;gina. */
+	private Future<BufferedImage> renderPage(final int index, final PageRenderListener listener) {
+		final Future<BufferedImage> future;
+		synchronized (this.pendingPages) {
+			final Future<BufferedImage> pending = this.pendingPages.get(Integer.valueOf(index));
+			if (pending != null) {
+				future = pending;
+			}
+			else {
+				future = submit(() -> {
+					try {
+						return render(index);
+					}
+					finally {
+						synchronized (this.pendingPages) {
+							this.pendingPages.remove(Integer.valueOf(index));
+						}
+					}
+				});
+				this.pendingPages.put(Integer.valueOf(index), future);
+			}
+		}
+		if (listener != null) {
+			// Al haber un unico hilo, la notificacion se ejecuta despues del renderizado
+			submit(() -> {
+				notifyRendered(index, future, listener);
+				return null;
+			});
+		}
+		return future;
+	}
+
+	/** Genera y notifica la vista previa de una p&aacute;gina si sigue siendo la que se muestra
+	 * y a&uacute;n no tiene su imagen definitiva. Debe llamarse desde el hilo del ejecutor. */
+	private void notifyPreview(final int index, final PageRenderListener listener) {
+		if (index != this.currentPage || this.pages.get(index) != null) {
+			return;
+		}
+		final BufferedImage preview;
+		try {
+			preview = renderPreview(index);
+		}
+		catch (final Exception e) {
+			LOGGER.warning("No se ha podido generar la vista previa de la pagina " + (index + 1) + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		SwingUtilities.invokeLater(() -> {
+			// Puede haberse notificado ya la imagen definitiva o haber cambiado de pagina
+			if (index == this.currentPage && this.pages.get(index) == null) {
+				listener.pageRendered(index, preview);
+			}
+		});
+	}
+
+	/** Notifica una p&aacute;gina renderizada si sigue siendo la que se muestra. */
+	private void notifyRendered(final int index,
+			                    final Future<BufferedImage> future,
+			                    final PageRenderListener listener) {
+		if (!future.isDone() || index != this.currentPage) {
+			return;
+		}
+		final BufferedImage image;
+		try {
+			image = future.get();
+		}
+		catch (final Exception e) {
+			// Ya se registro el error al renderizar
+			return;
+		}
+		if (image != null) {
+			SwingUtilities.invokeLater(() -> listener.pageRendered(index, image));
+		}
+	}
+
+	private <T> Future<T> submit(final Callable<T> task) {
+		final FutureTask<T> future = new FutureTask<>(task);
+		if (this.closed) {
+			future.cancel(false);
+			return future;
+		}
+		try {
+			this.executor.execute(future);
+		}
+		catch (final RejectedExecutionException e) {
+			// Se cerro el documento mientras se programaba la tarea
+			future.cancel(false);
+		}
+		return future;
+	}
+
+	/** Renderiza la imagen definitiva de una p&aacute;gina. Debe llamarse desde el hilo del ejecutor. */
+	private BufferedImage render(final int index) throws IOException {
+		BufferedImage image = this.pages.get(index);
+		if (image != null) {
+			return image;
+		}
+		if (this.closed) {
+			throw new IOException("El documento se ha cerrado"); //$NON-NLS-1$
+		}
+		// Si el usuario ya se ha alejado de esta pagina no se renderiza por adelantado, aunque
+		// se hace igualmente si se esta esperando por ella
+		if (Math.abs(index - this.currentPage) > ADJACENT_PAGES && !isAwaited(index)) {
+			return null;
+		}
+		image = this.renderer.renderImageWithDPI(index, PAGE_DPI, ImageType.RGB);
+		this.pages.put(index, image);
+		return image;
+	}
+
+	/** Indica si la p&aacute;gina es la mostrada o si se est&aacute; esperando por ella en {@link #get(int)}. */
+	private boolean isAwaited(final int index) {
+		if (index == this.currentPage) {
+			return true;
+		}
+		synchronized (this.awaitedPages) {
+			return this.awaitedPages.containsKey(Integer.valueOf(index));
+		}
+	}
+
+	/** Renderiza la vista previa de una p&aacute;gina, escalada a las dimensiones de su imagen
+	 * definitiva. Debe llamarse desde el hilo del ejecutor. */
+	private BufferedImage renderPreview(final int index) throws IOException {
+		final BufferedImage rendered = this.pages.get(index);
+		if (rendered != null) {
+			return rendered;
+		}
+		BufferedImage preview = this.previews.get(index);
+		if (preview == null) {
+			preview = this.renderer.renderImageWithDPI(index, PREVIEW_DPI, ImageType.RGB);
+			this.previews.put(index, preview);
+		}
+		return scaleToPage(index, preview);
+	}
+
+	/** Escala una vista previa a las dimensiones de la imagen definitiva de su p&aacute;gina. */
+	private BufferedImage scaleToPage(final int index, final BufferedImage preview) {
+		final Dimension size = this.pageDimensions[index];
+		final BufferedImage scaled = new BufferedImage(size.width, size.height, preview.getType());
+		final Graphics2D g = scaled.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(preview, 0, 0, size.width, size.height, null);
+		g.dispose();
+		return scaled;
+	}
+
+	/** Crea una p&aacute;gina en blanco con las dimensiones de la imagen definitiva de una p&aacute;gina. */
+	private BufferedImage createBlankPage(final int index) {
+		final Dimension size = this.pageDimensions[index];
+		final BufferedImage blank = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g = blank.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, size.width, size.height);
+		g.dispose();
+		return blank;
+	}
+
+	/** Calcula las dimensiones de la imagen definitiva de una p&aacute;gina igual que PDFBox. */
+	private static Dimension getRenderedDimension(final PDPage page) {
+		final PDRectangle cropBox = page.getCropBox();
+		final float scale = PAGE_DPI / 72;
+		int width = (int) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+		int height = (int) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
+		final int rotation = page.getRotation();
+		if (rotation == 90 || rotation == 270) {
+			final int tmp = width;
+			width = height;
+			height = tmp;
+		}
+		return new Dimension(width, height);
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= this.numPages) {
+			throw new IndexOutOfBoundsException(
+				"El documento no tiene la pagina " + (index + 1) + ", tiene " + this.numPages //$NON-NLS-1$ //$NON-NLS-2$
+			);
+		}
+	}
+
+	/** Cierra el documento y descarta los renderizados pendientes y las im&aacute;genes generadas. */
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		// Se cancelan las tareas pendientes para liberar a quien estuviese esperando por ellas
+		final List<Runnable> pendingTasks = new ArrayList<>();
+		this.executor.getQueue().drainTo(pendingTasks);
+		for (final Runnable task : pendingTasks) {
+			((Future<?>) task).cancel(false);
+		}
+		// El documento se cierra en el hilo del ejecutor, una vez termine el renderizado en curso
+		this.executor.execute(() -> {
+			try {
+				this.document.close();
+			}
+			catch (final IOException e) {
+				LOGGER.warning("No se ha podido cerrar el documento PDF: " + e); //$NON-NLS-1$
+			}
+		});
+		this.executor.shutdown();
+		this.pages.clear();
+		this.previews.clear();
+	}
+
+	/** Clase a la que se notifica la imagen definitiva de una p&aacute;gina. */
+	interface PageRenderListener {
+
+		/** Notifica que se ha renderizado una p&aacute;gina, primero su vista previa, si no
+		 * estaba ya disponible, y despu&eacute;s su imagen definitiva. Se llama desde el hilo de
+		 * eventos de Swing y s&oacute;lo si la p&aacute;gina sigue siendo la mostrada.
+		 * @param index &Iacute;ndice de la p&aacute;gina, empezando en 0.
+		 * @param image Imagen de la p&aacute;gina. */
+		void pageRendered(int index, BufferedImage image);
+	}
+
+	/** Cach&eacute; de im&aacute;genes limitada por su tama&ntilde;o en memoria que descarta
+	 * primero las im&aacute;genes usadas hace m&aacute;s tiempo. */
+	private static final class ImageCache {
+
+		private final long maxSize;
+
+		private long size = 0;
+
+		private final LinkedHashMap<Integer, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+
+		ImageCache(final long maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		synchronized BufferedImage get(final int index) {
+			return this.images.get(Integer.valueOf(index));
+		}
+
+		synchronized void put(final int index, final BufferedImage image) {
+			final BufferedImage old = this.images.put(Integer.valueOf(index), image);
+			if (old != null) {
+				this.size -= sizeOf(old);
+			}
+			this.size += sizeOf(image);
+			// Siempre se conserva al menos la ultima imagen
+			while (this.size > this.maxSize && this.images.size() > 1) {
+				final Map.Entry<Integer, BufferedImage> eldest = this.images.entrySet().iterator().next();
+				this.size -= sizeOf(eldest.getValue());
+				this.images.remove(eldest.getKey());
+			}
+		}
+
+		synchronized void clear() {
+			this.images.clear();
+			this.size = 0;
+		}
+
+		private static long sizeOf(final BufferedImage image) {
+			return (long) image.getWidth() * image.getHeight()
+					* Math.max(1, image.getColorModel().getPixelSize() / 8);
+		}
+	}
+}
@@ -200,7 +200,7 @@ public final class SignPdfDialog extends JDialog implements PdfLoaderListener, S
 		return dialog;
 	}
 
-	private List<BufferedImage> pages;
+	private PdfPageImages pages;
 	private List<Dimension> pageSizes;
 
 	@Override
@@ -215,7 +215,7 @@ public final class SignPdfDialog extends JDialog implements PdfLoaderListener, S
 		final Properties initialParams = new Properties();
 		do {
 			try {
-				this.pages = Pdf2ImagesConverter.pdf2ImagesUsefulSections(this.pdfData, password, 0);
+				this.pages = Pdf2ImagesConverter.pdf2ImagesOnDemand(this.pdfData, password);
 			}
 			catch (final InvalidPasswordException e) {
 				// Si no se pudo abrir porque requiere contrasena, la pedimos, teniendo en cuenta si lo
@@ -234,6 +234,12 @@ public final class SignPdfDialog extends JDialog implements PdfLoaderListener, S
 		}
 		while (this.pages == null);
 
+		// No se espera a la primera pagina: el panel muestra una pagina provisional de su
+		// tamano y la sustituye cuando se ha renderizado
+		if (this.pages.isEmpty()) {
+			throw new IOException("El PDF no tiene paginas que previsualizar"); //$NON-NLS-1$
+		}
+
 		this.pageSizes = SignPdfUiUtil.getPageSizes(this.pdfData, password);
 
 		if (password != null) {
@@ -242,13 +248,12 @@ public final class SignPdfDialog extends JDialog implements PdfLoaderListener, S
 
 		if (this.signatureVisible) {
 			setPreferredSize(getPreferredDimensionToSignatureDialog());
-			this.activePanel = new SignPdfUiPanel(this.isPdfSign, this.isMassiveSign, this.pages, this.pageSizes, this.pdfData, initialParams, this);
+			this.activePanel = new SignPdfUiPanel(this.isPdfSign, this.isMassiveSign, this.pages, this.pageSizes, initialParams, this);
 			this.scrollPanel.setViewportView(this.activePanel);
 		} else if (this.stampVisible) {
 			setPreferredSize(getPreferredDimensionToStampDialog());
 			setTitle(SignPdfUiMessages.getString("SignPdfUiStamp.0")); //$NON-NLS-1$
-			this.activePanel = new SignPdfUiPanelStamp(this.pages, this.pageSizes, this.pdfData, this,
-					initialParams);
+			this.activePanel = new SignPdfUiPanelStamp(this.pages, this.pageSizes, this, initialParams);
 			((SignPdfUiPanelStamp) this.activePanel).setDialogParent(this);
 			this.scrollPanel.setViewportView(this.activePanel);
 		}
@@ -329,7 +334,7 @@ public final class SignPdfDialog extends JDialog implements PdfLoaderListener, S
 		// la pantalla seleccion de la posicion de la imagen.
 		else if (this.activePanel instanceof SignPdfUiPanelPreview && this.stampVisible) {
 			setPreferredSize(getPreferredDimensionToStampDialog());
-			this.activePanel = new SignPdfUiPanelStamp(this.pages, this.pageSizes, this.pdfData, this, p);
+			this.activePanel = new SignPdfUiPanelStamp(this.pages, this.pageSizes, this, p);
 			((SignPdfUiPanelStamp) this.activePanel).setDialogParent(this);
 			this.scrollPanel.setViewportView(this.activePanel);
 			pack();
@@ -377,6 +382,14 @@ public final class SignPdfDialog extends JDialog implements PdfLoaderListener, S
 		dispose();
 	}
 
+	@Override
+	public void dispose() {
+		if (this.pages != null) {
+			this.pages.close();
+		}
+		super.dispose();
+	}
+
 	@Override
 	public Frame getParent() {
 		return this.parent;
@@ -103,7 +103,7 @@ final class SignPdfUiPanelStamp extends JPanel implements KeyListener,
 	boolean locationSelected = false;
 
 	private JPanel pagePanel;
-	private final List<BufferedImage> pdfPages;
+	private final PdfPageImages pdfPages;
 
 	private final List<Dimension> pdfPageSizes;
 	private PageLabel pageLabel;
@@ -122,13 +122,9 @@ final class SignPdfUiPanelStamp extends JPanel implements KeyListener,
 
 	private JDialog dialogParent;
 
-	private final PdfDocument pdfDocument;
-	private int pressButton = 0;
-
 	SignPdfUiPanelStamp(
-			   final List<BufferedImage> pages,
+			   final PdfPageImages pages,
 			   final List<Dimension> pageSizes,
-			   final byte[] pdf,
 		       final SignPdfUiPanelListener spul,
 		       final Properties extraParams) {
 
@@ -152,9 +148,6 @@ final class SignPdfUiPanelStamp extends JPanel implements KeyListener,
 		this.listener = spul;
 		this.extraParams = extraParams;
 
-		this.pdfDocument = new PdfDocument();
-		this.pdfDocument.setBytesPdf(pdf);
-
 		createUI();
 	}
 
@@ -286,9 +279,17 @@ final class SignPdfUiPanelStamp extends JPanel implements KeyListener,
 		this.pagePanel.setLayout(new GridBagLayout());
 		this.pagePanel.setPreferredSize(new Dimension(PAGEPANEL_PREFERRED_WIDTH, PAGEPANEL_PREFERRED_HEIGHT));
 
-		// Creamos la etiqueta y establecemos la primera pagina
+		// Creamos la etiqueta y establecemos la primera pagina, que ya se genero al cargar el documento
+		BufferedImage firstPage;
+		try {
+			firstPage = getPageImage(0);
+		}
+		catch (final IOException e) {
+			LOGGER.warning("No se ha podido obtener la vista previa de la primera pagina: " + e); //$NON-NLS-1$
+			firstPage = this.pdfPages.get(0);
+		}
 		this.pageLabel = createPageLabel(
-			this.pdfPages.get(0),
+			firstPage,
 			this,
 			this,
 			this.pagePanel,
@@ -610,12 +611,10 @@ final class SignPdfUiPanelStamp extends JPanel implements KeyListener,
 	public void keyPressed(final KeyEvent ke) {
 		if (ke != null) {
 			if (ke.getKeyCode() == KeyEvent.VK_LEFT && getCurrentPage() > 1) {
-				this.currentPage--;
-				changePage();
+				changePage(getCurrentPage() - 1);
 			}
 			else if (ke.getKeyCode() == KeyEvent.VK_RIGHT && getCurrentPage() < this.pdfPages.size()) {
-				this.currentPage++;
-				changePage();
+				changePage(getCurrentPage() + 1);
 			}
 			else if (ke.getKeyCode() == KeyEvent.VK_ESCAPE) {
 				this.currentPage++;
@@ -642,61 +641,40 @@ final class SignPdfUiPanelStamp extends JPanel implements KeyListener,
 	public void actionPerformed(final ActionEvent e) {
 		if (e != null) {
 			if (e.getSource() == this.firstPageButton && getCurrentPage() > 1) {
-				this.currentPage = 1;
-				changePage();
+				changePage(1);
 			}
 			else if (e.getSource() == this.previousPageButton && getCurrentPage() > 1) {
-				this.currentPage--;
-				if (this.pressButton > 0) {
-					try {
-						preLoadImages(getCurrentPage() + 1, this.currentPage);
-					}
-					catch (final IOException ex) {
-						LOGGER.log(Level.SEVERE, "Error durante la carga de las miniaturas anteriores: " + ex, ex); //$NON-NLS-1$
-						this.currentPage++; // Deshacemos el cambio de pagina
-						AOUIFactory.showErrorMessage(
-							SignPdfUiMessages.getString("SignPdfUiStamp.15"), //$NON-NLS-1$
-							SignPdfUiMessages.getString("SignPdfUiStamp.12"), //$NON-NLS-1$
-							JOptionPane.ERROR_MESSAGE,
-							ex
-						);
-					}
-				}
-				if(this.pdfPages.get(getCurrentPage() - 1) != null) {
-					changePage();
-					this.pressButton++;
-				}
+				changePage(getCurrentPage() - 1);
 			}
 			else if (e.getSource() == this.nextPageButton && getCurrentPage() < this.pdfPages.size()) {
-				this.currentPage++;
-				if (this.pressButton > 0) {
-					try {
-						preLoadImages(getCurrentPage() - 1, this.currentPage);
-					}
-					catch (final IOException ex) {
-						LOGGER.log(Level.SEVERE, "Error durante la carga de las miniaturas siguientes: " + ex, ex); //$NON-NLS-1$
-						this.currentPage--; // Deshacemos el cambio de pagina
-						AOUIFactory.showErrorMessage(
-							SignPdfUiMessages.getString("SignPdfUiStamp.15"), //$NON-NLS-1$
-							SignPdfUiMessages.getString("SignPdfUiStamp.12"), //$NON-NLS-1$
-							JOptionPane.ERROR_MESSAGE,
-							ex
-						);
-					}
-				}
-				if (this.pdfPages.get(getCurrentPage() - 1) != null) {
-					changePage();
-					this.pressButton++;
-				}
+				changePage(getCurrentPage() + 1);
 			}
 			else if (e.getSource() == this.lastPageButton && getCurrentPage() < this.pdfPages.size()) {
-				this.currentPage = this.pdfPages.size();
-				changePage();
+				changePage(this.pdfPages.size());
 			}
 		}
 	}
 
-	private void changePage() {
+	/** Muestra una p&aacute;gina del documento. Si no se puede generar su imagen, se informa
+	 * al usuario y se sigue mostrando la p&aacute;gina actual.
+	 * @param newPage N&uacute;mero de la p&aacute;gina a mostrar, empezando en 1. */
+	private void changePage(final int newPage) {
+		final BufferedImage page;
+		try {
+			page = getPageImage(newPage - 1);
+		}
+		catch (final IOException | OutOfMemoryError ex) {
+			LOGGER.log(Level.SEVERE, "Error durante la carga de la miniatura de la pagina " + newPage + ": " + ex, ex); //$NON-NLS-1$ //$NON-NLS-2$
+			AOUIFactory.showErrorMessage(
+				SignPdfUiMessages.getString("SignPdfUiStamp.15"), //$NON-NLS-1$
+				SignPdfUiMessages.getString("SignPdfUiStamp.12"), //$NON-NLS-1$
+				JOptionPane.ERROR_MESSAGE,
+				ex
+			);
+			return;
+		}
+		this.currentPage = newPage;
+
 		enableButtons();
 		this.pagePanel.remove(this.pageLabel);
 		this.posX.setText(""); //$NON-NLS-1$
@@ -704,7 +682,7 @@ final class SignPdfUiPanelStamp extends JPanel implements KeyListener,
 		this.width.setText(""); //$NON-NLS-1$
 		this.height.setText(""); //$NON-NLS-1$
 		this.pageLabel = createPageLabel(
-			this.pdfPages.get(getCurrentPage() - 1),
+			page,
 			this,
 			this,
 			this.pagePanel,
@@ -750,32 +728,21 @@ final class SignPdfUiPanelStamp extends JPanel implements KeyListener,
 		}
 	}
 
-	private void preLoadImages(final int actualPage, final int pageToLoad) throws IOException {
-
-		int necessaryPage;
-		// Pulsado boton izquierdo (anterior)
-		if (actualPage > pageToLoad) {
-			necessaryPage = pageToLoad - 2;
-		}
-		// Pulsado boton derecho (siguente)
-		else {
-			necessaryPage = pageToLoad + 1;
-		}
-
-		// Verificamos que sea una pagina valida
-		if(necessaryPage < 0 || necessaryPage >= this.pdfPages.size()) {
-			return;
-		}
-
-		// Si no tenemos la pagina que necesitamos, la cargamos
-		if (this.pdfPages.get(necessaryPage) == null) {
-			try {
-				this.pdfDocument.loadNewPages(this.pdfPages, getCurrentPage() - 1);
-			}
-			catch (final OutOfMemoryError | Exception e) {
-				throw new IOException("No se ha podido cargar la previsualizacion de la pagina", e); //$NON-NLS-1$
+	/** Obtiene la imagen que mostrar de una p&aacute;gina. Si la p&aacute;gina no se
+	 * hab&iacute;a generado, se obtiene una vista previa que se sustituye por la imagen
+	 * definitiva cuando est&eacute; lista.
+	 * @param pageIndex &Iacute;ndice de la p&aacute;gina, empezando en 0.
+	 * @return Imagen de la p&aacute;gina.
+	 * @throws IOException Cuando no se puede generar la imagen de la p&aacute;gina. */
+	private BufferedImage getPageImage(final int pageIndex) throws IOException {
+		return this.pdfPages.getPage(
+			pageIndex,
+			(index, image) -> {
+				if (index == getCurrentPage() - 1 && this.pageLabel != null) {
+					this.pageLabel.setPageImage(image);
+				}
 			}
-		}
+		);
 	}
 
 	@Override
@@ -0,0 +1,168 @@
+package es.gob.afirma.standalone.crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.gob.afirma.core.misc.Base64;
+
+/** Pruebas del cifrado de datos para el servidor intermedio. */
+public final class TestCypherDataManager {
+
+	private static final byte[] KEY = "12345678".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+
+	private static final String VECTOR_DATA = "Datos de prueba del servidor intermedio ~~~???>>>"; //$NON-NLS-1$
+
+	/** Resultado de cifrar {@link #VECTOR_DATA} con {@link #KEY} mediante la implementaci&oacute;n
+	 * anterior al cifrado por bloques (DES sobre los datos completos y Base64 de una vez). */
+	private static final String VECTOR_CIPHERED = "7.sKlg53LuTXLYB1DFbcCjR7Gy0-kQX9SSNU9plsnYePqI70Tdtx5y1ElkJ-d4pX549xkN4oocChA="; //$NON-NLS-1$
+
+	/** Tama&ntilde;os que cubren datos vac&iacute;os, con y sin relleno, y que ocupan
+	 * uno o varios bloques de proceso. */
+	private static final int[] SIZES = { 0, 1, 7, 8, 9, 6143, 6144, 6145, 3 * 6144 + 5 };
+
+	/** Comprueba que se sigue generando y descifrando el mismo resultado que con la
+	 * implementaci&oacute;n anterior.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDesCompatibleWithPreviousFormat() throws Exception {
+		final byte[] data = VECTOR_DATA.getBytes(StandardCharsets.UTF_8);
+		Assert.assertEquals(VECTOR_CIPHERED, CypherDataManager.cipherData(data, KEY));
+		Assert.assertArrayEquals(data, CypherDataManager.decipherData(VECTOR_CIPHERED.getBytes(StandardCharsets.US_ASCII), KEY));
+	}
+
+	/** Comprueba que el cifrado DES por bloques genera lo mismo que el cifrado de los datos
+	 * completos y que se descifra correctamente.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDesStreamingRoundTrip() throws Exception {
+		for (final int size : SIZES) {
+			final byte[] data = randomData(size);
+
+			final ByteArrayOutputStream ciphered = new ByteArrayOutputStream();
+			CypherDataManager.cipherData(new ByteArrayInputStream(data), size, KEY, false, ciphered);
+
+			final int padding = (8 - size % 8) % 8;
+			final String expected = padding + "." + Base64.encode(DesCipher.cipher(data, KEY), true); //$NON-NLS-1$
+			Assert.assertEquals("Tamano " + size, expected, new String(ciphered.toByteArray(), StandardCharsets.US_ASCII)); //$NON-NLS-1$
+
+			final ByteArrayOutputStream deciphered = new ByteArrayOutputStream();
+			CypherDataManager.decipherData(new ByteArrayInputStream(ciphered.toByteArray()), KEY, deciphered);
+			Assert.assertArrayEquals("Tamano " + size, data, deciphered.toByteArray()); //$NON-NLS-1$
+		}
+	}
+
+	/** Comprueba que el cifrado por bloques falla si el flujo no tiene el tama&ntilde;o indicado.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test(expected = EOFException.class)
+	public void testDesStreamingWrongLength() throws Exception {
+		CypherDataManager.cipherData(new ByteArrayInputStream(new byte[10]), 11, KEY, false, new ByteArrayOutputStream());
+	}
+
+	/** Comprueba el cifrado y descifrado con AES-GCM.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testGcmRoundTrip() throws Exception {
+		for (final int size : SIZES) {
+			final byte[] data = randomData(size);
+
+			final StringBuilder ciphered = new StringBuilder();
+			CypherDataManager.cipherData(data, KEY, true, ciphered);
+			Assert.assertTrue(ciphered.toString().startsWith("G.")); //$NON-NLS-1$
+
+			final byte[] deciphered = CypherDataManager.decipherData(ciphered.toString().getBytes(StandardCharsets.US_ASCII), KEY);
+			Assert.assertArrayEquals("Tamano " + size, data, deciphered); //$NON-NLS-1$
+
+			// Cada cifrado usa un vector de inicializacion distinto
+			final StringBuilder cipheredAgain = new StringBuilder();
+			CypherDataManager.cipherData(data, KEY, true, cipheredAgain);
+			Assert.assertNotEquals(ciphered.toString(), cipheredAgain.toString());
+		}
+	}
+
+	/** Comprueba que se detecta la modificaci&oacute;n de los datos cifrados con AES-GCM.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test(expected = GeneralSecurityException.class)
+	public void testGcmDetectsTampering() throws Exception {
+		final StringBuilder ciphered = new StringBuilder();
+		CypherDataManager.cipherData(randomData(100), KEY, true, ciphered);
+		final int pos = ciphered.length() / 2;
+		ciphered.setCharAt(pos, ciphered.charAt(pos) == 'A' ? 'B' : 'A');
+		CypherDataManager.decipherData(ciphered.toString().getBytes(StandardCharsets.US_ASCII), KEY);
+	}
+
+	/** Comprueba que el flujo de descarte del relleno elimina los &uacute;ltimos octetos
+	 * independientemente de c&oacute;mo se escriban.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testTruncatingOutputStream() throws Exception {
+		final byte[] data = randomData(50);
+		for (int truncate = 0; truncate < 8; truncate++) {
+			for (final int chunk : new int[] { 1, 3, 7, 8, 50 }) {
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				try (final CypherDataManager.TruncatingOutputStream tos = new CypherDataManager.TruncatingOutputStream(out, truncate)) {
+					for (int off = 0; off < data.length; off += chunk) {
+						tos.write(data, off, Math.min(chunk, data.length - off));
+					}
+				}
+				Assert.assertArrayEquals(
+						"Truncado " + truncate + ", bloques de " + chunk, //$NON-NLS-1$ //$NON-NLS-2$
+						Arrays.copyOf(data, data.length - truncate), out.toByteArray());
+			}
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (final CypherDataManager.TruncatingOutputStream tos = new CypherDataManager.TruncatingOutputStream(out, truncate)) {
+				for (final byte b : data) {
+					tos.write(b);
+				}
+			}
+			Assert.assertArrayEquals(Arrays.copyOf(data, data.length - truncate), out.toByteArray());
+		}
+	}
+
+	/** Comprueba la lectura del prefijo de los datos cifrados.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testReadPrefix() throws Exception {
+		assertPrefix("7.abcd", "7", "abcd"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertPrefix("G.abcd", "G", "abcd"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertPrefix(".abcd", null, "abcd"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("abcd", null, "abcd"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("a", null, "a"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertPrefix("", null, ""); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static void assertPrefix(final String data, final String expectedPrefix, final String expectedRemaining) throws IOException {
+		final PushbackInputStream in = new PushbackInputStream(
+				new ByteArrayInputStream(data.getBytes(StandardCharsets.US_ASCII)), 2);
+		Assert.assertEquals(expectedPrefix, CypherDataManager.readPrefix(in));
+		final ByteArrayOutputStream remaining = new ByteArrayOutputStream();
+		int c;
+		while ((c = in.read()) != -1) {
+			remaining.write(c);
+		}
+		Assert.assertEquals(expectedRemaining, new String(remaining.toByteArray(), StandardCharsets.US_ASCII));
+	}
+
+	private static byte[] randomData(final int size) {
+		final byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+}
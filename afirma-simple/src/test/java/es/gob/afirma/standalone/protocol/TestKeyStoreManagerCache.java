@@ -0,0 +1,29 @@
+package es.gob.afirma.standalone.protocol;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import es.gob.afirma.keystores.AOKeyStore;
+
+/** Pruebas de la cach&eacute; de gestores de almacenes de la instancia residente. */
+public final class TestKeyStoreManagerCache {
+
+	/** Comprueba que los almacenes PKCS#11, de Mozilla y de tarjetas no se reutilizan
+	 * entre operaciones, aunque se abran sin contrase&ntilde;a, y que s&oacute;lo se
+	 * reutilizan los del sistema operativo.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testPkcs11KeyStoreIsNotReused() throws Exception {
+		Assert.assertFalse(KeyStoreManagerCache.isCacheable(AOKeyStore.PKCS11));
+		Assert.assertFalse(KeyStoreManagerCache.isCacheable(AOKeyStore.SHARED_NSS));
+		Assert.assertFalse(KeyStoreManagerCache.isCacheable(AOKeyStore.MOZ_UNI));
+		Assert.assertFalse(KeyStoreManagerCache.isCacheable(AOKeyStore.TEMD));
+		Assert.assertFalse(KeyStoreManagerCache.isCacheable(AOKeyStore.DNIEJAVA));
+		Assert.assertFalse(KeyStoreManagerCache.isCacheable(AOKeyStore.CERES));
+		Assert.assertFalse(KeyStoreManagerCache.isCacheable(AOKeyStore.KNOWN_SMARTCARDS));
+
+		Assert.assertTrue(KeyStoreManagerCache.isCacheable(AOKeyStore.WINDOWS));
+		Assert.assertTrue(KeyStoreManagerCache.isCacheable(AOKeyStore.APPLE));
+	}
+}
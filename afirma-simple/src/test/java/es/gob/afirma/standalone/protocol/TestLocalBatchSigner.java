@@ -0,0 +1,273 @@
+package es.gob.afirma.standalone.protocol;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import es.gob.afirma.core.misc.Base64;
+import es.gob.afirma.core.signers.AOPkcs1Signer;
+import es.gob.afirma.core.signers.AOSignConstants;
+import es.gob.afirma.standalone.protocol.LocalBatchSigner.LocalSingleBatchResult;
+import es.gob.afirma.standalone.protocol.SingleSignOperation.Operation;
+
+/** Pruebas de la firma de lotes monof&aacute;sicos en local. */
+public final class TestLocalBatchSigner {
+
+	private static final String CERT_PATH = "ANF_PF_Activo.pfx"; //$NON-NLS-1$
+	private static final String CERT_PASS = "12341234"; //$NON-NLS-1$
+	private static final String CERT_ALIAS = "anf usuario activo"; //$NON-NLS-1$
+
+	private static final String DONE = "DONE_AND_SAVED"; //$NON-NLS-1$
+	private static final String SKIPPED = "SKIPPED"; //$NON-NLS-1$
+	private static final String ERROR = "ERROR_PRE"; //$NON-NLS-1$
+
+	/** N&uacute;mero de documentos de los lotes de prueba. */
+	private static final int BATCH_SIZE = 12;
+
+	/** N&uacute;mero de firmas simult&aacute;neas con las que se firman los lotes en paralelo. */
+	private static final int PARALLELISM = 4;
+
+	private static PrivateKeyEntry pke;
+
+	/** Carga la clave de firma.
+	 * @throws Exception En cualquier error. */
+	@BeforeClass
+	public static void loadKey() throws Exception {
+		final KeyStore ks = KeyStore.getInstance("PKCS12"); //$NON-NLS-1$
+		ks.load(ClassLoader.getSystemResourceAsStream(CERT_PATH), CERT_PASS.toCharArray());
+		pke = (PrivateKeyEntry) ks.getEntry(CERT_ALIAS, new KeyStore.PasswordProtection(CERT_PASS.toCharArray()));
+	}
+
+	/** Comprueba que el lote firmado en paralelo genera la misma respuesta que firmado de
+	 * forma secuencial y que la construida con cada firma por separado, incluyendo firmas
+	 * que fallan antes y durante la firma.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testParallelMatchesSequential() throws Exception {
+		final BatchSignOperation batch = buildBatch(false, 3, 7);
+
+		final String sequential = LocalBatchSigner.signLocalBatch(batch, pke, 1);
+		final String parallel = LocalBatchSigner.signLocalBatch(batch, pke, PARALLELISM);
+		Assert.assertEquals(sequential, parallel);
+
+		final JSONArray signs = new JSONObject(parallel).getJSONArray("signs"); //$NON-NLS-1$
+		Assert.assertEquals(BATCH_SIZE, signs.length());
+		final AOPkcs1Signer signer = new AOPkcs1Signer();
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			final JSONObject sign = signs.getJSONObject(i);
+			Assert.assertEquals(getDocId(i), sign.getString("id")); //$NON-NLS-1$
+			if (i == 3 || i == 7) {
+				Assert.assertEquals(ERROR, sign.getString("result")); //$NON-NLS-1$
+				Assert.assertFalse(sign.has("signature")); //$NON-NLS-1$
+			}
+			else {
+				Assert.assertEquals(DONE, sign.getString("result")); //$NON-NLS-1$
+				final byte[] expected = signer.sign(
+						getData(i), AOSignConstants.SIGN_ALGORITHM_SHA256WITHRSA,
+						pke.getPrivateKey(), pke.getCertificateChain(), null);
+				Assert.assertArrayEquals(expected, Base64.decode(sign.getString("signature"))); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/** Comprueba que, si se detiene el lote al primer error, se omiten todas las firmas
+	 * salvo la err&oacute;nea independientemente de su posici&oacute;n en el lote, del tipo
+	 * de error y de si se firma en paralelo.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testStopOnError() throws Exception {
+		for (final int failing : new int[] { 0, BATCH_SIZE / 2, BATCH_SIZE - 1 }) {
+			for (final int parallelism : new int[] { 1, PARALLELISM }) {
+				// Un error en la firma (cofirma PKCS#1) y otro previo a ella (formato no soportado)
+				for (final BatchSignOperation batch : new BatchSignOperation[] {
+						buildBatch(true, failing, -1), buildBatch(true, -1, failing) }) {
+
+					final JSONArray signs = new JSONObject(
+							LocalBatchSigner.signLocalBatch(batch, pke, parallelism)).getJSONArray("signs"); //$NON-NLS-1$
+
+					final String message = "Error en " + failing + " con " + parallelism + " firmas simultaneas"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					Assert.assertEquals(message, BATCH_SIZE, signs.length());
+					for (int i = 0; i < BATCH_SIZE; i++) {
+						final JSONObject sign = signs.getJSONObject(i);
+						Assert.assertEquals(message, getDocId(i), sign.getString("id")); //$NON-NLS-1$
+						Assert.assertEquals(message, i == failing ? ERROR : SKIPPED, sign.getString("result")); //$NON-NLS-1$
+						Assert.assertEquals(message, Boolean.valueOf(i == failing), Boolean.valueOf(sign.has("description"))); //$NON-NLS-1$
+						Assert.assertFalse(message, sign.has("signature")); //$NON-NLS-1$
+					}
+				}
+			}
+		}
+	}
+
+	/** Comprueba que los errores de la m&aacute;quina virtual producidos durante una firma
+	 * en paralelo se propagan en lugar de registrarse como un error de la firma.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testUncheckedErrorsArePropagated() throws Exception {
+		final PrivateKeyEntry failingPke = new PrivateKeyEntry(
+				new FailingKey((RSAPrivateCrtKey) pke.getPrivateKey()), pke.getCertificateChain());
+		for (final int parallelism : new int[] { 1, PARALLELISM }) {
+			try {
+				LocalBatchSigner.signLocalBatch(buildBatch(false, -1, -1), failingPke, parallelism);
+				Assert.fail("Deberia haberse propagado el error de la clave"); //$NON-NLS-1$
+			}
+			catch (final KeyError e) {
+				// Correcto
+			}
+		}
+	}
+
+	/** Comprueba que el constructor incremental del JSON genera lo mismo que el
+	 * construido de una vez y que descarta los resultados al reiniciarse.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBatchResultJsonBuilder() throws Exception {
+		final JSONBatchManager.BatchResultJsonBuilder builder = new JSONBatchManager.BatchResultJsonBuilder();
+		Assert.assertEquals(0, new JSONObject(builder.build()).getJSONArray("signs").length()); //$NON-NLS-1$
+
+		final byte[] signature = "firma".getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+		final List<LocalSingleBatchResult> results = Arrays.asList(
+				new LocalSingleBatchResult("doc\"1\"", signature), //$NON-NLS-1$
+				new LocalSingleBatchResult("doc2", "Error \"entre comillas\""), //$NON-NLS-1$ //$NON-NLS-2$
+				new LocalSingleBatchResult("doc3")); //$NON-NLS-1$
+
+		builder.add(new LocalSingleBatchResult("descartado")); //$NON-NLS-1$
+		builder.reset();
+		for (final LocalSingleBatchResult result : results) {
+			builder.add(result);
+		}
+		final String json = builder.build();
+		Assert.assertEquals(JSONBatchManager.buildBatchResultJson(results), json);
+
+		final JSONArray signs = new JSONObject(json).getJSONArray("signs"); //$NON-NLS-1$
+		Assert.assertEquals(3, signs.length());
+
+		Assert.assertEquals("doc\"1\"", signs.getJSONObject(0).getString("id")); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertEquals(DONE, signs.getJSONObject(0).getString("result")); //$NON-NLS-1$
+		Assert.assertArrayEquals(signature, Base64.decode(signs.getJSONObject(0).getString("signature"))); //$NON-NLS-1$
+		Assert.assertFalse(signs.getJSONObject(0).has("description")); //$NON-NLS-1$
+
+		Assert.assertEquals(ERROR, signs.getJSONObject(1).getString("result")); //$NON-NLS-1$
+		Assert.assertEquals("Error \"entre comillas\"", signs.getJSONObject(1).getString("description")); //$NON-NLS-1$ //$NON-NLS-2$
+		Assert.assertFalse(signs.getJSONObject(1).has("signature")); //$NON-NLS-1$
+
+		Assert.assertEquals(SKIPPED, signs.getJSONObject(2).getString("result")); //$NON-NLS-1$
+		Assert.assertFalse(signs.getJSONObject(2).has("description")); //$NON-NLS-1$
+		Assert.assertFalse(signs.getJSONObject(2).has("signature")); //$NON-NLS-1$
+	}
+
+	/** Construye un lote de firmas PKCS#1.
+	 * @param stopOnError Si debe detenerse el lote al primer error.
+	 * @param failingSign Posici&oacute;n de una firma que falla al firmar o -1.
+	 * @param failingLaunch Posici&oacute;n de una firma que falla antes de firmar o -1.
+	 * @return Lote de firma. */
+	private static BatchSignOperation buildBatch(final boolean stopOnError, final int failingSign, final int failingLaunch) {
+		final List<SingleSignOperation> signs = new ArrayList<>();
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			final SingleSignOperation sign = new SingleSignOperation();
+			sign.setDocId(getDocId(i));
+			sign.setData(getData(i));
+			sign.setAlgorithm(AOSignConstants.DIGEST_ALGORITHM_SHA256);
+			// La cofirma no esta soportada en PKCS#1
+			sign.setCryptoOperation(i == failingSign ? Operation.COSIGN : Operation.SIGN);
+			sign.setFormat(i == failingLaunch ? "formato-inexistente" : AOSignConstants.SIGN_FORMAT_PKCS1); //$NON-NLS-1$
+			signs.add(sign);
+		}
+		return new BatchSignOperation(stopOnError, signs);
+	}
+
+	private static String getDocId(final int i) {
+		return "doc" + i; //$NON-NLS-1$
+	}
+
+	private static byte[] getData(final int i) {
+		return ("Documento de prueba " + i).getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+	}
+
+	/** Error que se produce al usar {@link FailingKey}. */
+	private static final class KeyError extends Error {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/** Clave RSA software que produce un error de la m&aacute;quina virtual al usarse para firmar. */
+	private static final class FailingKey implements RSAPrivateCrtKey {
+
+		private static final long serialVersionUID = 1L;
+
+		private final RSAPrivateCrtKey key;
+
+		FailingKey(final RSAPrivateCrtKey key) {
+			this.key = key;
+		}
+
+		@Override
+		public String getAlgorithm() {
+			return this.key.getAlgorithm();
+		}
+
+		@Override
+		public String getFormat() {
+			return this.key.getFormat();
+		}
+
+		@Override
+		public byte[] getEncoded() {
+			throw new KeyError();
+		}
+
+		@Override
+		public BigInteger getModulus() {
+			throw new KeyError();
+		}
+
+		@Override
+		public BigInteger getPrivateExponent() {
+			throw new KeyError();
+		}
+
+		@Override
+		public BigInteger getPublicExponent() {
+			throw new KeyError();
+		}
+
+		@Override
+		public BigInteger getPrimeP() {
+			throw new KeyError();
+		}
+
+		@Override
+		public BigInteger getPrimeQ() {
+			throw new KeyError();
+		}
+
+		@Override
+		public BigInteger getPrimeExponentP() {
+			throw new KeyError();
+		}
+
+		@Override
+		public BigInteger getPrimeExponentQ() {
+			throw new KeyError();
+		}
+
+		@Override
+		public BigInteger getCrtCoefficient() {
+			throw new KeyError();
+		}
+	}
+}
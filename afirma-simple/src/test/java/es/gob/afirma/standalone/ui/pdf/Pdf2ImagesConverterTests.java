@@ -14,6 +14,7 @@ import java.util.logging.Logger;
 import javax.imageio.ImageIO;
 import javax.swing.JFrame;
 
+import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -36,18 +37,40 @@ public final class Pdf2ImagesConverterTests {
 	 * @throws Exception En cualquier error. */
 	@SuppressWarnings("static-method")
 	@Test
-	@Ignore
-	//XXX: Esto va a fallar porque ahora la conversion de imagenes no realiza las de todo el documento
+	@Ignore // Genera ficheros temporales
 	public void testPdf2ImagesConverter() throws Exception {
 		final byte[] testPdf = AOUtil.getDataFromInputStream(ClassLoader.getSystemResourceAsStream(TEST_FILE));
-		final List<BufferedImage> images = Pdf2ImagesConverter.pdf2ImagesUsefulSections(testPdf, null, 0);
-		for (final BufferedImage im : images) {
-	        final File saveFile = File.createTempFile("PDFCONVERTED-", ".png"); //$NON-NLS-1$ //$NON-NLS-2$
-	        try (
-        		final OutputStream os = new FileOutputStream(saveFile);
-    		) {
-	        	ImageIO.write(im, "png", os); //$NON-NLS-1$
-	        }
+		try (final PdfPageImages images = Pdf2ImagesConverter.pdf2ImagesOnDemand(testPdf, null)) {
+			for (final BufferedImage im : images) {
+		        final File saveFile = File.createTempFile("PDFCONVERTED-", ".png"); //$NON-NLS-1$ //$NON-NLS-2$
+		        try (
+	        		final OutputStream os = new FileOutputStream(saveFile);
+	    		) {
+		        	ImageIO.write(im, "png", os); //$NON-NLS-1$
+		        }
+			}
+		}
+	}
+
+	/** Prueba de la generaci&oacute;n bajo demanda de las im&aacute;genes de las p&aacute;ginas.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testPdfPageImagesOnDemand() throws Exception {
+		final byte[] testPdf = AOUtil.getDataFromInputStream(ClassLoader.getSystemResourceAsStream(TEST_FILE));
+		try (final PdfPageImages images = Pdf2ImagesConverter.pdf2ImagesOnDemand(testPdf, null)) {
+			Assert.assertTrue(images.size() > 1);
+
+			// La vista previa tiene las mismas dimensiones que la imagen definitiva
+			final BufferedImage preview = images.getPage(1, (index, image) -> { /* No se usa */ });
+			final BufferedImage page = images.get(1);
+			Assert.assertNotNull(page);
+			Assert.assertEquals(page.getWidth(), preview.getWidth());
+			Assert.assertEquals(page.getHeight(), preview.getHeight());
+
+			// Una vez generada, se reutiliza la imagen
+			Assert.assertSame(page, images.get(1));
+			Assert.assertSame(page, images.getPage(1, (index, image) -> { /* No se usa */ }));
 		}
 	}
 
@@ -77,7 +77,7 @@ public final class UiTester {
 				public void pdfLoaded(final boolean isSign, final boolean isMassiveSign, final byte[] pdf) throws IOException {
 					LOGGER.info("Cargado"); //$NON-NLS-1$
 
-					final List<BufferedImage> pages = Pdf2ImagesConverter.pdf2ImagesUsefulSections(pdf, null, 0);
+					final PdfPageImages pages = Pdf2ImagesConverter.pdf2ImagesOnDemand(pdf, null);
 					final List<Dimension> pageSizes = SignPdfUiUtil.getPageSizes(pdf, null);
 
 					frame.add(
@@ -86,7 +86,6 @@ public final class UiTester {
 							isMassiveSign,
 							pages,
 							pageSizes,
-							pdf,
 							null,
 							new SignPdfUiPanelListener() {
 
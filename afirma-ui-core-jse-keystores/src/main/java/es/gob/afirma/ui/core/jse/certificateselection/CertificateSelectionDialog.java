@@ -15,6 +15,8 @@ import java.awt.Dimension;
 import java.awt.KeyEventDispatcher;
 import java.awt.KeyboardFocusManager;
 import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.Arrays;
@@ -24,6 +26,7 @@ import java.util.logging.Logger;
 
 import javax.swing.JDialog;
 import javax.swing.JOptionPane;
+import javax.swing.Timer;
 
 import es.gob.afirma.core.keystores.NameCertificateBean;
 import es.gob.afirma.core.ui.KeyStoreDialogManager;
@@ -34,6 +37,10 @@ import es.gob.afirma.core.ui.KeyStoreDialogManager;
 public final class CertificateSelectionDialog extends MouseAdapter {
 
 	private static final Logger LOGGER = Logger.getLogger("es.gob.afirma"); //$NON-NLS-1$
+
+	/** Milisegundos entre comprobaciones de los almacenes que se cargan en segundo plano. */
+	private static final int LOADING_CHECK_PERIOD = 500;
+
 	private final CertificateSelectionPanel csd;
 	private final JOptionPane optionPane;
 	private final Component parent;
@@ -42,6 +49,12 @@ public final class CertificateSelectionDialog extends MouseAdapter {
 
 	private final boolean disableSelection;
 
+	/** Alias de los certificados mostrados, ordenados, para detectar los que aparezcan al
+	 * terminar de cargarse los almacenes en segundo plano. */
+	private String[] shownAliases;
+
+	private Timer loadingTimer = null;
+
 	/** Construye el di&aacute;logo de selecci&oacute;n de certificados a partir del listado con
 	 * sus nombres y los propios certificados.
 	 * @param parent Componente sobre el que se mostrar&aacute; el di&aacute;logo.
@@ -80,6 +93,7 @@ public final class CertificateSelectionDialog extends MouseAdapter {
 	    final NameCertificateBean[] certs = this.ksdm.getNameCertificates();
 
 	    Arrays.sort(certs, CERT_NAME_COMPARATOR);
+	    this.shownAliases = getSortedAliases(certs);
 	    this.csd = new CertificateSelectionPanel(
     		certs,
     		this,
@@ -89,7 +103,7 @@ public final class CertificateSelectionDialog extends MouseAdapter {
     		ksdm.isExternalStoresOpeningAllowed(),
     		this.ksdm.getAvailablesKeyStores()
 		);
-		this.optionPane = certs.length > 1 ?
+		this.optionPane = certs.length > 1 || this.ksdm.isLoading() ?
 			new CertOptionPane(this.csd) :
 				new JOptionPane();
 
@@ -163,7 +177,9 @@ public final class CertificateSelectionDialog extends MouseAdapter {
 						new Dimension((int) this.certDialog.getSize().getWidth(), screenHeight));
 			}
 		}
+		startLoadingMonitor();
 		this.certDialog.setVisible(true);
+		stopLoadingMonitor();
 
 		KeyboardFocusManager.getCurrentKeyboardFocusManager().removeKeyEventDispatcher(dispatcher);
 
@@ -201,6 +217,69 @@ public final class CertificateSelectionDialog extends MouseAdapter {
 		}
 	}
 
+	/** Si quedan almacenes carg&aacute;ndose en segundo plano, comprueba peri&oacute;dicamente
+	 * si se han cargado y, en tal caso, muestra sus certificados. */
+	private void startLoadingMonitor() {
+		if (this.loadingTimer != null || !this.ksdm.isLoading()) {
+			return;
+		}
+		this.loadingTimer = new Timer(LOADING_CHECK_PERIOD, new ActionListener() {
+			@Override
+			public void actionPerformed(final ActionEvent e) {
+				checkLoadedKeyStores();
+			}
+		});
+		this.loadingTimer.start();
+	}
+
+	private void stopLoadingMonitor() {
+		if (this.loadingTimer != null) {
+			this.loadingTimer.stop();
+			this.loadingTimer = null;
+		}
+	}
+
+	/** Actualiza el listado de certificados si han aparecido nuevos al cargarse un almac&eacute;n
+	 * y deja de comprobarlo cuando no quedan almacenes por cargar. */
+	void checkLoadedKeyStores() {
+		final boolean loading = this.ksdm.isLoading();
+		final NameCertificateBean[] certs = this.ksdm.getNameCertificates();
+		Arrays.sort(certs, CERT_NAME_COMPARATOR);
+		final String[] aliases = getSortedAliases(certs);
+		if (!Arrays.equals(aliases, this.shownAliases)) {
+			this.shownAliases = aliases;
+			try {
+				this.csd.refresh(certs);
+			}
+			catch (final Exception e) {
+				LOGGER.warning("No se pudo actualizar el dialogo de seleccion: " + e); //$NON-NLS-1$
+			}
+			if (this.certDialog != null) {
+				this.certDialog.pack();
+			}
+		}
+		if (!loading) {
+			stopLoadingMonitor();
+		}
+	}
+
+	private static String[] getSortedAliases(final NameCertificateBean[] certs) {
+		final String[] aliases = new String[certs.length];
+		for (int i = 0; i < certs.length; i++) {
+			aliases[i] = certs[i] != null ? certs[i].getAlias() : null;
+		}
+		Arrays.sort(aliases, new Comparator<String>() {
+			@Override
+			public int compare(final String o1, final String o2) {
+				if (o1 == null) {
+					return o2 == null ? 0 : 1;
+				}
+				return o2 == null ? -1 : o1.compareTo(o2);
+			}
+		});
+		return aliases;
+	}
+
 	/** Refresca el almacen de certificados y el di&aacute;logo de selecci&oacute;n. */
 	public void refreshKeystore() {
 
@@ -213,6 +292,7 @@ public final class CertificateSelectionDialog extends MouseAdapter {
 		}
 
 		refreshDialog();
+		startLoadingMonitor();
 	}
 
 	/** Refresca el apartado gr&aacute;fico del di&aacute;logo de selecci&oacute;n. */
@@ -220,6 +300,7 @@ public final class CertificateSelectionDialog extends MouseAdapter {
 
 		final NameCertificateBean[] certs = this.ksdm.getNameCertificates();
 		Arrays.sort(certs, CERT_NAME_COMPARATOR);
+		this.shownAliases = getSortedAliases(certs);
 
 		refreshDialog(certs);
 	}
@@ -277,6 +358,7 @@ public final class CertificateSelectionDialog extends MouseAdapter {
 		if (changed) {
 			// Actualizamos el dialogo para cargar los nuevos certificados
 			refreshDialog();
+			startLoadingMonitor();
 
 			// Cambiamos el titulo del dialogo
 			this.currentKeyStoreTypeName = this.ksdm.getKeyStoreName();